@@ -245,6 +245,7 @@ CTX.INPUT['executors'] = """
 
 CTX.INPUT['expressions'] = """
  abstractexpression.cpp
+ batchpredicate.cpp
  expressionutil.cpp
  vectorexpression.cpp
  functionexpression.cpp
@@ -397,6 +398,7 @@ if whichtests in ("${eetestsuite}", "execution"):
 
 if whichtests in ("${eetestsuite}", "expressions"):
     CTX.TESTS['expressions'] = """
+     batch_predicate_test
      expression_test
      function_test
     """
@@ -416,6 +418,8 @@ if whichtests in ("${eetestsuite}", "storage"):
      constraint_test
      CopyOnWriteTest
      filter_test
+     MaterializedViewMinMaxTest
+     MaterializedViewJoinTest
      persistent_table_log_test
      PersistentTableMemStatsTest
      serialize_test
@@ -433,7 +437,9 @@ if whichtests in ("${eetestsuite}", "structures"):
     CTX.TESTS['structures'] = """
      CompactingMapTest
      CompactingMapIndexCountTest
+     CompactingBTreeTest
      CompactingHashTest
+     CompactingOpenHashTest
      CompactingPoolTest
     """
 
@@ -26,6 +26,22 @@ void DefaultTupleSerializer::serializeTo(TableTuple tuple, ReferenceSerializeOut
     tuple.serializeTo(*out);
 }
 
+/**
+ * Serialize only the given columns of the provided tuple, in the given order
+ */
+void DefaultTupleSerializer::serializeColumnsTo(TableTuple tuple, const std::vector<int> &columns,
+                                                ReferenceSerializeOutput *out) {
+    tuple.serializeColumnsTo(*out, columns);
+}
+
+/**
+ * Serialize the provided tuple preceded by an additional BIGINT column
+ */
+void DefaultTupleSerializer::serializeWithPrefixTo(TableTuple tuple, int64_t prefix,
+                                                   ReferenceSerializeOutput *out) {
+    tuple.serializeWithPrefixTo(*out, prefix);
+}
+
 /**
  * Calculate the maximum size of a serialized tuple based upon the schema of the table/tuple
  */
@@ -31,6 +31,16 @@ public:
      */
     void serializeTo(TableTuple tuple, ReferenceSerializeOutput *out);
 
+    /**
+     * Serialize only the given columns of the provided tuple, in the given order
+     */
+    void serializeColumnsTo(TableTuple tuple, const std::vector<int> &columns, ReferenceSerializeOutput *out);
+
+    /**
+     * Serialize the provided tuple preceded by an additional BIGINT column
+     */
+    void serializeWithPrefixTo(TableTuple tuple, int64_t prefix, ReferenceSerializeOutput *out);
+
     /**
      * Calculate the maximum size of a serialized tuple based upon the schema of the table/tuple
      */
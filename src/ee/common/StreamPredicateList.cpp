@@ -35,6 +35,19 @@ bool StreamPredicateList::parseStrings(
         const std::vector<std::string> &predicateStrings,
         std::ostringstream& errmsg,
         std::vector<bool> &predicateDeletes)
+{
+    std::vector<std::vector<int> > predicateProjections;
+    return parseStrings(predicateStrings, errmsg, predicateDeletes, predicateProjections);
+}
+
+/*
+ * As above, also collecting the optional "projection" column list of each predicate.
+ */
+bool StreamPredicateList::parseStrings(
+        const std::vector<std::string> &predicateStrings,
+        std::ostringstream& errmsg,
+        std::vector<bool> &predicateDeletes,
+        std::vector<std::vector<int> > &predicateProjections)
 {
     bool failed = false;
     for (std::vector<std::string>::const_iterator iter = predicateStrings.begin();
@@ -49,6 +62,15 @@ bool StreamPredicateList::parseStrings(
 
                     predicateDeletes.push_back(predicateObject.valueForKey("triggersDelete").asBool());
 
+                    std::vector<int> projection;
+                    if (predicateObject.hasKey("projection")) {
+                        PlannerDomValue columnsArray = predicateObject.valueForKey("projection");
+                        for (int i = 0; i < columnsArray.arrayLen(); i++) {
+                            projection.push_back(columnsArray.valueAtIndex(i).asInt());
+                        }
+                    }
+                    predicateProjections.push_back(projection);
+
                     AbstractExpression *expr = NULL;
                     if (predicateObject.hasKey("predicateExpression")) {
                         expr = AbstractExpression::buildExpressionTree(
@@ -84,6 +106,7 @@ bool StreamPredicateList::parseStrings(
         else {
             // NULL predicates are okay.
             push_back(NULL);
+            predicateProjections.push_back(std::vector<int>());
         }
     }
     return !failed;
@@ -49,6 +49,15 @@ public:
     bool parseStrings(const std::vector<std::string> &predicateStrings,
                       std::ostringstream& errmsg,
                       std::vector<bool> &predicateDeleteFlags);
+
+    /**
+     * Parse expression strings and add generated predicate objects to list,
+     * along with the column projection of each predicate (empty for all columns).
+     */
+    bool parseStrings(const std::vector<std::string> &predicateStrings,
+                      std::ostringstream& errmsg,
+                      std::vector<bool> &predicateDeleteFlags,
+                      std::vector<std::vector<int> > &predicateProjections);
 };
 
 } // namespace voltdb
@@ -44,10 +44,20 @@ std::size_t TupleOutputStream::startRows(int32_t partitionId)
 }
 
 std::size_t TupleOutputStream::writeRow(TupleSerializer &tupleSerializer,
-                                        const TableTuple &tuple)
+                                        const TableTuple &tuple,
+                                        const std::vector<int> *projection,
+                                        const int64_t *blockId)
 {
     const std::size_t startPos = position();
-    tupleSerializer.serializeTo(tuple, this);
+    if (blockId != NULL) {
+        tupleSerializer.serializeWithPrefixTo(tuple, *blockId, this);
+    }
+    else if (projection != NULL && !projection->empty()) {
+        tupleSerializer.serializeColumnsTo(tuple, *projection, this);
+    }
+    else {
+        tupleSerializer.serializeTo(tuple, this);
+    }
     const std::size_t endPos = position();
     m_rowCount++;
     std::size_t bytesSerialized = endPos - startPos;
@@ -19,6 +19,7 @@
 #define TUPLEOUTPUTSTREAM_H_
 
 #include <cstddef>
+#include <vector>
 #include <boost/ptr_container/ptr_vector.hpp>
 #include "serializeio.h"
 
@@ -54,9 +55,13 @@ public:
 
     /**
      * Write a tuple and return the number of bytes written.
+     * Only the given columns are written when a projection is supplied.
+     * When a block id is supplied it is written as an additional first column.
      */
     std::size_t writeRow(TupleSerializer &tupleSerializer,
-                         const TableTuple &tuple);
+                         const TableTuple &tuple,
+                         const std::vector<int> *projection = NULL,
+                         const int64_t *blockId = NULL);
 
     /**
      * Return true if nbytes can fit in the buffer's remaining space.
@@ -50,6 +50,7 @@ void TupleOutputStreamProcessor::clearState()
 {
     m_maxTupleLength = 0;
     m_predicates = NULL;
+    m_predicateProjections = NULL;
     m_table = NULL;
 }
 
@@ -66,7 +67,8 @@ void TupleOutputStreamProcessor::open(PersistentTable &table,
                                       std::size_t maxTupleLength,
                                       int32_t partitionId,
                                       StreamPredicateList &predicates,
-                                      std::vector<bool> &predicateDeletes)
+                                      std::vector<bool> &predicateDeletes,
+                                      std::vector<std::vector<int> > *predicateProjections)
 {
     m_table = &table;
     m_maxTupleLength = maxTupleLength;
@@ -77,6 +79,12 @@ void TupleOutputStreamProcessor::open(PersistentTable &table,
     }
     m_predicates = &predicates;
     m_predicateDeletes = &predicateDeletes;
+    if (predicateProjections != NULL && !predicateProjections->empty()) {
+        if (predicateProjections->size() != predicates.size()) {
+            throwFatalException("serializeMore() expects either no projections or one per predicate.");
+        }
+        m_predicateProjections = predicateProjections;
+    }
     for (TupleOutputStreamProcessor::iterator iter = begin(); iter != end(); ++iter) {
         iter->startRows(partitionId);
     }
@@ -98,7 +106,8 @@ void TupleOutputStreamProcessor::close()
  */
 bool TupleOutputStreamProcessor::writeRow(TupleSerializer &tupleSerializer,
                                           TableTuple &tuple,
-                                          bool *deleteRow)
+                                          bool *deleteRow,
+                                          const int64_t *blockId)
 {
     if (m_table == NULL) {
         throwFatalException("TupleOutputStreamProcessor::writeRow() was called before open().");
@@ -107,6 +116,7 @@ bool TupleOutputStreamProcessor::writeRow(TupleSerializer &tupleSerializer,
     // Predicates, if supplied, are one per output stream (previously asserted).
     StreamPredicateList::iterator ipredicate;
     std::vector<bool>::iterator iDeleteFlag;
+    std::size_t istream = 0;
     assert(m_predicates != NULL);
 
     if (!m_predicates->empty()) {
@@ -138,7 +148,9 @@ bool TupleOutputStreamProcessor::writeRow(TupleSerializer &tupleSerializer,
                 throwFatalException(
                     "TupleOutputStreamProcessor::writeRow() failed because buffer has no space.");
             }
-            iter->writeRow(tupleSerializer, tuple);
+            iter->writeRow(tupleSerializer, tuple,
+                           m_predicateProjections != NULL ? &(*m_predicateProjections)[istream] : NULL,
+                           blockId);
 
             // Check if we'll need to yield after handling this row.
             if (!yield) {
@@ -148,6 +160,7 @@ bool TupleOutputStreamProcessor::writeRow(TupleSerializer &tupleSerializer,
                          || iter->getTotalBytesSerialized() > m_bytesSerializedThreshold);
             }
         }
+        ++istream;
     }
     return yield;
 }
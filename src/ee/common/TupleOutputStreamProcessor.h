@@ -48,12 +48,17 @@ public:
     /** Convenience method to create and add a new TupleOutputStream. */
     TupleOutputStream &add(void *data, std::size_t length);
 
-    /** Start serializing. */
+    /**
+     * Start serializing.
+     * The optional projections are the columns each stream writes, one
+     * list per predicate; an empty list writes every column.
+     */
     void open(PersistentTable &table,
               std::size_t maxTupleLength,
               int32_t partitionId,
               StreamPredicateList &predicates,
-              std::vector<bool> &predicateDeletes);
+              std::vector<bool> &predicateDeletes,
+              std::vector<std::vector<int> > *predicateProjections = NULL);
 
     /** Stop serializing. */
     void close();
@@ -62,11 +67,13 @@ public:
      * Write a tuple to the output streams.
      * Expects buffer space was already checked.
      * numCopiesMade helps deletion logic decide when something is being moved.
+     * The block id, if supplied, is written ahead of the tuple's columns.
      * Returns true when the caller should yield to allow other work to proceed.
      */
     bool writeRow(TupleSerializer &tupleSerializer,
                   TableTuple &tuple,
-                  bool *deleteRow = NULL);
+                  bool *deleteRow = NULL,
+                  const int64_t *blockId = NULL);
 
 private:
 
@@ -85,6 +92,9 @@ private:
     /** Vector of booleans that indicates whether the predicate return true means the row should be deleted */
     std::vector<bool> *m_predicateDeletes;
 
+    /** Per-predicate column projections. May be NULL. */
+    std::vector<std::vector<int> > *m_predicateProjections;
+
     /** Private method used by constructors, etc. to clear state. */
     void clearState();
 };
@@ -32,6 +32,17 @@ public:
      */
     virtual void serializeTo(TableTuple tuple, ReferenceSerializeOutput *out) = 0;
 
+    /**
+     * Serialize only the given columns of the provided tuple, in the given order
+     */
+    virtual void serializeColumnsTo(TableTuple tuple, const std::vector<int> &columns,
+                                    ReferenceSerializeOutput *out) = 0;
+
+    /**
+     * Serialize the provided tuple preceded by an additional BIGINT column
+     */
+    virtual void serializeWithPrefixTo(TableTuple tuple, int64_t prefix, ReferenceSerializeOutput *out) = 0;
+
     /**
      * Calculate the maximum size of a serialized tuple based upon the schema of the table/tuple
      */
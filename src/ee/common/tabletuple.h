@@ -297,6 +297,8 @@ public:
     void deserializeFrom(voltdb::SerializeInputBE &tupleIn, Pool *stringPool);
     void deserializeFromDR(voltdb::SerializeInputLE &tupleIn, Pool *stringPool);
     void serializeTo(voltdb::SerializeOutput &output);
+    void serializeColumnsTo(voltdb::SerializeOutput &output, const std::vector<int> &columns);
+    void serializeWithPrefixTo(voltdb::SerializeOutput &output, int64_t prefix);
     void serializeToExport(voltdb::ExportSerializeOutput &io,
                           int colOffset, uint8_t *nullArray);
     void serializeToDR(voltdb::ExportSerializeOutput &io,
@@ -782,6 +784,36 @@ inline void TableTuple::serializeTo(voltdb::SerializeOutput &output) {
     output.writeIntAt(start, static_cast<int32_t>(output.position() - start - sizeof(int32_t)));
 }
 
+/*
+ * Serialize a projection of the tuple, in the same format as serializeTo().
+ */
+inline void TableTuple::serializeColumnsTo(voltdb::SerializeOutput &output,
+                                           const std::vector<int> &columns) {
+    size_t start = output.reserveBytes(4);
+
+    for (std::vector<int>::const_iterator it = columns.begin(); it != columns.end(); ++it) {
+        getNValue(*it).serializeTo(output);
+    }
+
+    // write the length of the tuple
+    output.writeIntAt(start, static_cast<int32_t>(output.position() - start - sizeof(int32_t)));
+}
+
+/*
+ * Serialize the tuple, in the same format as serializeTo(), preceded by a BIGINT column.
+ */
+inline void TableTuple::serializeWithPrefixTo(voltdb::SerializeOutput &output, int64_t prefix) {
+    size_t start = output.reserveBytes(4);
+
+    output.writeLong(prefix);
+    for (int j = 0; j < m_schema->columnCount(); ++j) {
+        getNValue(j).serializeTo(output);
+    }
+
+    // write the length of the tuple
+    output.writeIntAt(start, static_cast<int32_t>(output.position() - start - sizeof(int32_t)));
+}
+
 inline
 void
 TableTuple::serializeToExport(ExportSerializeOutput &io,
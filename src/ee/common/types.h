@@ -343,6 +343,8 @@ enum QuantifierType {
 enum TableIndexType {
     BALANCED_TREE_INDEX     = 1,
     HASH_TABLE_INDEX        = 2,
+    BTREE_INDEX             = 3,
+    OPEN_HASH_TABLE_INDEX   = 4,
 };
 
 // ------------------------------------------------------------------
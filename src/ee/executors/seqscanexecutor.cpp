@@ -62,6 +62,62 @@
 
 using namespace voltdb;
 
+namespace {
+
+/**
+ * Reads a block of tuples at a time from a persistent table and returns
+ * the ones that pass a BatchPredicate. A block the predicate can't be
+ * evaluated on in batch is filtered with eval() a tuple at a time, which
+ * raises the error at the tuple that caused it.
+ */
+class BatchFilteredScan {
+public:
+    BatchFilteredScan(TableIterator &iterator, ProgressMonitorProxy &pmp,
+                      BatchPredicate &batch, const AbstractExpression &predicate)
+        : m_iterator(iterator), m_pmp(pmp), m_batch(batch), m_predicate(predicate),
+          m_passed(0), m_next(0), m_exhausted(false) {}
+
+    bool next(TableTuple &out) {
+        while (m_next == m_passed) {
+            if (m_exhausted) {
+                return false;
+            }
+            int count = 0;
+            while (count < BatchPredicate::BLOCK_SIZE && m_iterator.next(out)) {
+                m_pmp.countdownProgress();
+                m_block[count++] = out.address();
+            }
+            m_exhausted = count < BatchPredicate::BLOCK_SIZE;
+            m_next = 0;
+            m_passed = m_batch.filter(m_block, count, m_selected);
+            if (m_passed < 0) {
+                m_passed = 0;
+                for (int k = 0; k < count; ++k) {
+                    out.move(m_block[k]);
+                    if (m_predicate.eval(&out, NULL).isTrue()) {
+                        m_selected[m_passed++] = k;
+                    }
+                }
+            }
+        }
+        out.move(m_block[m_selected[m_next++]]);
+        return true;
+    }
+
+private:
+    TableIterator &m_iterator;
+    ProgressMonitorProxy &m_pmp;
+    BatchPredicate &m_batch;
+    const AbstractExpression &m_predicate;
+    char *m_block[BatchPredicate::BLOCK_SIZE];
+    int m_selected[BatchPredicate::BLOCK_SIZE];
+    int m_passed;
+    int m_next;
+    bool m_exhausted;
+};
+
+}
+
 bool SeqScanExecutor::p_init(AbstractPlanNode* abstract_node,
                              TempTableLimits* limits)
 {
@@ -102,6 +158,13 @@ bool SeqScanExecutor::p_init(AbstractPlanNode* abstract_node,
     // Inline aggregation can be serial, partial or hash
     m_aggExec = voltdb::getInlineAggregateExecutor(node);
 
+    // Tuples of a subquery's temp table may be freed as the scan moves past
+    // them, so only a persistent table can be read a block at a time.
+    if (node->getPredicate() != NULL && ! isSubquery) {
+        m_batchPredicate.reset(BatchPredicate::compile(node->getPredicate(),
+                                                       node->getTargetTable()->schema()));
+    }
+
     return true;
 }
 
@@ -188,6 +251,20 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
         TempTable* output_temp_table = dynamic_cast<TempTable*>(output_table);
 
         ProgressMonitorProxy pmp(m_engine, this, node->isSubQuery() ? NULL : input_table);
+
+        //
+        // OPTIMIZATION: BATCHED PREDICATE
+        // Simple predicates on numeric columns are evaluated a block of
+        // tuples at a time, unless a parameter's type rules it out.
+        //
+        BatchPredicate *batch = NULL;
+        if (m_batchPredicate && m_batchPredicate->bind()) {
+            batch = m_batchPredicate.get();
+        }
+        boost::scoped_ptr<BatchFilteredScan> batchScan;
+        if (batch != NULL) {
+            batchScan.reset(new BatchFilteredScan(iterator, pmp, *batch, *predicate));
+        }
         TableTuple temp_tuple;
         if (m_aggExec != NULL) {
             const TupleSchema * inputSchema = input_table->schema();
@@ -200,17 +277,21 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
             temp_tuple = output_temp_table->tempTuple();
         }
 
-        while ((limit == -1 || tuple_ctr < limit) && iterator.next(tuple))
+        while ((limit == -1 || tuple_ctr < limit) &&
+               (batch == NULL ? iterator.next(tuple) : batchScan->next(tuple)))
         {
             VOLT_TRACE("INPUT TUPLE: %s, %d/%d\n",
                        tuple.debug(input_table->name()).c_str(), tuple_ctr,
                        (int)input_table->activeTupleCount());
-            pmp.countdownProgress();
+            if (batch == NULL) {
+                pmp.countdownProgress();
+            }
 
             //
             // For each tuple we need to evaluate it against our predicate
+            // (a batched scan only returns the tuples that pass it)
             //
-            if (predicate == NULL || predicate->eval(&tuple, NULL).isTrue())
+            if (batch != NULL || predicate == NULL || predicate->eval(&tuple, NULL).isTrue())
             {
                 // Check if we have to skip this tuple because of offset
                 if (tuple_skipped < offset) {
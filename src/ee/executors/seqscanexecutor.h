@@ -50,6 +50,9 @@
 #include "common/valuevector.h"
 #include "executors/abstractexecutor.h"
 #include "execution/VoltDBEngine.h"
+#include "expressions/batchpredicate.h"
+
+#include <boost/scoped_ptr.hpp>
 
 namespace voltdb
 {
@@ -70,6 +73,8 @@ namespace voltdb
 
     private:
         AggregateExecutorBase* m_aggExec;
+        // The predicate, evaluated a block of tuples at a time when it can be
+        boost::scoped_ptr<BatchPredicate> m_batchPredicate;
 
     };
 }
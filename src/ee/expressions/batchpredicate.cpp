@@ -0,0 +1,851 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "expressions/batchpredicate.h"
+
+#include "common/tabletuple.h"
+#include "common/TupleSchema.h"
+#include "common/ValuePeeker.hpp"
+#include "expressions/tuplevalueexpression.h"
+
+#include <cassert>
+#include <cmath>
+#include <cstring>
+
+namespace voltdb {
+
+namespace {
+
+// Three valued logic of a predicate over one tuple
+enum Truth { TRUTH_FALSE = 0, TRUTH_TRUE = 1, TRUTH_NULL = 2 };
+
+inline int compareNumbers(int64_t lhs, int64_t rhs) {
+    return lhs > rhs ? 1 : (lhs < rhs ? -1 : 0);
+}
+
+// The same order as NValue::compareDoubleValue(): NaNs are equal to each
+// other and less than any other value.
+inline int compareNumbers(double lhs, double rhs) {
+    if (std::isnan(lhs)) {
+        return std::isnan(rhs) ? 0 : -1;
+    }
+    if (std::isnan(rhs)) {
+        return 1;
+    }
+    return lhs > rhs ? 1 : (lhs < rhs ? -1 : 0);
+}
+
+struct CompareEq  { static bool test(int cmp) { return cmp == 0; } };
+struct CompareNe  { static bool test(int cmp) { return cmp != 0; } };
+struct CompareLt  { static bool test(int cmp) { return cmp < 0; } };
+struct CompareGt  { static bool test(int cmp) { return cmp > 0; } };
+struct CompareLte { static bool test(int cmp) { return cmp <= 0; } };
+struct CompareGte { static bool test(int cmp) { return cmp >= 0; } };
+
+// A double result is rejected where NValue throws for it, an integer
+// result where it would overflow or be read back as NULL.
+inline bool isValidResult(double value) {
+    return ! std::isnan(value) && ! non_std_isinf(value);
+}
+
+struct ArithmeticAdd {
+    static bool apply(int64_t lhs, int64_t rhs, int64_t &result) {
+        if ((rhs > 0 && lhs > INT64_MAX - rhs) || (rhs < 0 && lhs < INT64_MIN - rhs)) {
+            return false;
+        }
+        result = lhs + rhs;
+        return result != INT64_NULL;
+    }
+    static bool apply(double lhs, double rhs, double &result) {
+        result = lhs + rhs;
+        return isValidResult(result);
+    }
+};
+
+struct ArithmeticSubtract {
+    static bool apply(int64_t lhs, int64_t rhs, int64_t &result) {
+        if ((rhs < 0 && lhs > INT64_MAX + rhs) || (rhs > 0 && lhs < INT64_MIN + rhs)) {
+            return false;
+        }
+        result = lhs - rhs;
+        return result != INT64_NULL;
+    }
+    static bool apply(double lhs, double rhs, double &result) {
+        result = lhs - rhs;
+        return isValidResult(result);
+    }
+};
+
+struct ArithmeticMultiply {
+    static bool apply(int64_t lhs, int64_t rhs, int64_t &result) {
+        if (lhs > 0) {
+            if (rhs > 0 ? lhs > INT64_MAX / rhs : rhs < INT64_MIN / lhs) {
+                return false;
+            }
+        }
+        else if (rhs > 0 ? lhs < INT64_MIN / rhs : (lhs != 0 && rhs < INT64_MAX / lhs)) {
+            return false;
+        }
+        result = lhs * rhs;
+        return result != INT64_NULL;
+    }
+    static bool apply(double lhs, double rhs, double &result) {
+        result = lhs * rhs;
+        return isValidResult(result);
+    }
+};
+
+// The NULL encoding of each fixed width storage type, see common/value_defs.h
+template <typename T> struct Storage;
+template <> struct Storage<int8_t>  { static bool isNull(int8_t value)  { return value == INT8_NULL; } };
+template <> struct Storage<int16_t> { static bool isNull(int16_t value) { return value == INT16_NULL; } };
+template <> struct Storage<int32_t> { static bool isNull(int32_t value) { return value == INT32_NULL; } };
+template <> struct Storage<int64_t> { static bool isNull(int64_t value) { return value == INT64_NULL; } };
+template <> struct Storage<double>  { static bool isNull(double value)  { return value <= DOUBLE_NULL; } };
+
+// Operands of the comparison and arithmetic loops. NULL scalars are
+// handled before the loops, so a scalar operand is never NULL.
+template <typename T> class VectorOperand {
+public:
+    VectorOperand(const T *values, const char *nulls) : m_values(values), m_nulls(nulls) {}
+    T value(int k) const { return m_values[k]; }
+    bool isNull(int k) const { return m_nulls[k]; }
+private:
+    const T *m_values;
+    const char *m_nulls;
+};
+
+template <typename T> class ScalarOperand {
+public:
+    ScalarOperand(T value) : m_value(value) {}
+    T value(int) const { return m_value; }
+    bool isNull(int) const { return false; }
+private:
+    const T m_value;
+};
+
+template <typename Op, typename L, typename R>
+inline void compareLoop(const L &lhs, const R &rhs, int n, char *result) {
+    for (int k = 0; k < n; ++k) {
+        if (lhs.isNull(k) || rhs.isNull(k)) {
+            result[k] = TRUTH_NULL;
+        }
+        else {
+            result[k] = Op::test(compareNumbers(lhs.value(k), rhs.value(k))) ? TRUTH_TRUE : TRUTH_FALSE;
+        }
+    }
+}
+
+template <typename Op, typename T, typename L, typename R>
+inline bool arithmeticLoop(const L &lhs, const R &rhs, int n, T *values, char *nulls) {
+    for (int k = 0; k < n; ++k) {
+        nulls[k] = lhs.isNull(k) || rhs.isNull(k);
+        if ( ! nulls[k] && ! Op::apply(lhs.value(k), rhs.value(k), values[k])) {
+            return false;
+        }
+    }
+    return true;
+}
+
+bool isArithmeticType(ValueType type) {
+    switch (type) {
+    case VALUE_TYPE_TINYINT:
+    case VALUE_TYPE_SMALLINT:
+    case VALUE_TYPE_INTEGER:
+    case VALUE_TYPE_BIGINT:
+    case VALUE_TYPE_DOUBLE:
+        return true;
+    default:
+        return false;
+    }
+}
+
+bool isBatchColumnType(ValueType type) {
+    return isArithmeticType(type) || type == VALUE_TYPE_TIMESTAMP;
+}
+
+}
+
+/**
+ * A numeric operand, evaluated into a dense int64_t or double vector with a
+ * NULL flag per tuple. Constants, parameters and arithmetic on only those
+ * are scalars, evaluated once by bind().
+ */
+class BatchPredicate::NumberNode {
+public:
+    NumberNode(bool isScalar)
+        : m_isScalar(isScalar), m_type(VALUE_TYPE_INVALID),
+          m_scalarNull(false), m_scalarInt(0), m_scalarDouble(0.0)
+    {
+        if ( ! isScalar) {
+            m_ints.resize(BLOCK_SIZE);
+            m_doubles.resize(BLOCK_SIZE);
+            m_nulls.resize(BLOCK_SIZE);
+        }
+    }
+
+    virtual ~NumberNode() {}
+
+    /** Resolve the type, and the value of a scalar. False if it's not a fixed width number. */
+    virtual bool bind() = 0;
+
+    /** Evaluate tuples[sel[0]] .. tuples[sel[n - 1]]. False if an arithmetic result overflowed. */
+    virtual bool eval(char * const *tuples, const int *sel, int n) = 0;
+
+    bool isScalar() const { return m_isScalar; }
+    bool isDouble() const { return m_type == VALUE_TYPE_DOUBLE; }
+    bool isScalarNull() const { return m_scalarNull; }
+    ValueType type() const { return m_type; }
+
+    /** Make values<double>() valid for an integer vector mixed with a double operand */
+    void asDoubles(int n) {
+        if ( ! m_isScalar && ! isDouble()) {
+            const int64_t *ints = &m_ints[0];
+            double *doubles = &m_doubles[0];
+            for (int k = 0; k < n; ++k) {
+                doubles[k] = static_cast<double>(ints[k]);
+            }
+        }
+    }
+
+    template <typename T> T scalar() const;
+    template <typename T> T* values();
+    const char* nulls() const { return &m_nulls[0]; }
+
+protected:
+    const bool m_isScalar;
+    ValueType m_type;
+    bool m_scalarNull;
+    int64_t m_scalarInt;
+    double m_scalarDouble;
+    std::vector<int64_t> m_ints;
+    std::vector<double> m_doubles;
+    std::vector<char> m_nulls;
+};
+
+template <> inline int64_t BatchPredicate::NumberNode::scalar<int64_t>() const {
+    return m_scalarInt;
+}
+
+template <> inline double BatchPredicate::NumberNode::scalar<double>() const {
+    return isDouble() ? m_scalarDouble : static_cast<double>(m_scalarInt);
+}
+
+template <> inline int64_t* BatchPredicate::NumberNode::values<int64_t>() {
+    return &m_ints[0];
+}
+
+template <> inline double* BatchPredicate::NumberNode::values<double>() {
+    return &m_doubles[0];
+}
+
+/**
+ * A predicate, evaluated into a Truth per tuple.
+ */
+class BatchPredicate::BoolNode {
+public:
+    BoolNode() : m_result(BLOCK_SIZE) {}
+    virtual ~BoolNode() {}
+
+    virtual bool bind() = 0;
+
+    /** Evaluate tuples[sel[0]] .. tuples[sel[n - 1]]. False if an arithmetic result overflowed. */
+    virtual bool eval(char * const *tuples, const int *sel, int n) = 0;
+
+    const char* result() const { return &m_result[0]; }
+
+protected:
+    std::vector<char> m_result;
+};
+
+namespace {
+
+typedef BatchPredicate::NumberNode NumberNode;
+typedef BatchPredicate::BoolNode BoolNode;
+
+class ColumnNode : public NumberNode {
+public:
+    ColumnNode(ValueType type, uint32_t offset)
+        : NumberNode(false), m_columnType(type), m_offset(TUPLE_HEADER_SIZE + offset) {}
+
+    bool bind() {
+        m_type = m_columnType;
+        return true;
+    }
+
+    bool eval(char * const *tuples, const int *sel, int n) {
+        switch (m_columnType) {
+        case VALUE_TYPE_TINYINT:
+            gather<int8_t>(tuples, sel, n, values<int64_t>());
+            break;
+        case VALUE_TYPE_SMALLINT:
+            gather<int16_t>(tuples, sel, n, values<int64_t>());
+            break;
+        case VALUE_TYPE_INTEGER:
+            gather<int32_t>(tuples, sel, n, values<int64_t>());
+            break;
+        case VALUE_TYPE_BIGINT:
+        case VALUE_TYPE_TIMESTAMP:
+            gather<int64_t>(tuples, sel, n, values<int64_t>());
+            break;
+        default:
+            assert(m_columnType == VALUE_TYPE_DOUBLE);
+            gather<double>(tuples, sel, n, values<double>());
+            break;
+        }
+        return true;
+    }
+
+private:
+    template <typename T, typename V>
+    void gather(char * const *tuples, const int *sel, int n, V *values) {
+        char *nulls = &m_nulls[0];
+        for (int k = 0; k < n; ++k) {
+            const T value = *reinterpret_cast<const T*>(tuples[sel[k]] + m_offset);
+            nulls[k] = Storage<T>::isNull(value);
+            values[k] = static_cast<V>(value);
+        }
+    }
+
+    const ValueType m_columnType;
+    const uint32_t m_offset;
+};
+
+// A constant or parameter
+class ValueNode : public NumberNode {
+public:
+    ValueNode(const AbstractExpression *expression) : NumberNode(true), m_expression(expression) {}
+
+    bool bind() {
+        const NValue value = m_expression->eval(NULL, NULL);
+        m_type = ValuePeeker::peekValueType(value);
+        m_scalarNull = value.isNull();
+        if (m_type == VALUE_TYPE_NULL) {
+            return true;
+        }
+        if ( ! isBatchColumnType(m_type)) {
+            return false;
+        }
+        if ( ! m_scalarNull) {
+            if (isDouble()) {
+                m_scalarDouble = ValuePeeker::peekDouble(value);
+            }
+            else {
+                m_scalarInt = ValuePeeker::peekAsBigInt(value);
+            }
+        }
+        return true;
+    }
+
+    bool eval(char * const *tuples, const int *sel, int n) {
+        return true;
+    }
+
+private:
+    const AbstractExpression *m_expression;
+};
+
+class ArithmeticNode : public NumberNode {
+public:
+    ArithmeticNode(ExpressionType op, NumberNode *left, NumberNode *right)
+        : NumberNode(left->isScalar() && right->isScalar()), m_op(op), m_left(left), m_right(right) {}
+
+    ~ArithmeticNode() {
+        delete m_left;
+        delete m_right;
+    }
+
+    bool bind() {
+        if ( ! m_left->bind() || ! m_right->bind() ||
+             ! isArithmeticType(m_left->type()) || ! isArithmeticType(m_right->type())) {
+            return false;
+        }
+        m_type = (m_left->isDouble() || m_right->isDouble()) ? VALUE_TYPE_DOUBLE : VALUE_TYPE_BIGINT;
+        if ( ! m_isScalar) {
+            return true;
+        }
+        m_scalarNull = m_left->isScalarNull() || m_right->isScalarNull();
+        if (m_scalarNull) {
+            return true;
+        }
+        // Overflowing on every tuple is left to eval() to report
+        switch (m_op) {
+        case EXPRESSION_TYPE_OPERATOR_PLUS:
+            return applyScalar<ArithmeticAdd>();
+        case EXPRESSION_TYPE_OPERATOR_MINUS:
+            return applyScalar<ArithmeticSubtract>();
+        default:
+            return applyScalar<ArithmeticMultiply>();
+        }
+    }
+
+    bool eval(char * const *tuples, const int *sel, int n) {
+        if (m_isScalar) {
+            return true;
+        }
+        if ( ! m_left->eval(tuples, sel, n) || ! m_right->eval(tuples, sel, n)) {
+            return false;
+        }
+        if (m_left->isScalarNull() || m_right->isScalarNull()) {
+            ::memset(&m_nulls[0], 1, n);
+            return true;
+        }
+        switch (m_op) {
+        case EXPRESSION_TYPE_OPERATOR_PLUS:
+            return apply<ArithmeticAdd>(n);
+        case EXPRESSION_TYPE_OPERATOR_MINUS:
+            return apply<ArithmeticSubtract>(n);
+        default:
+            return apply<ArithmeticMultiply>(n);
+        }
+    }
+
+private:
+    template <typename Op>
+    bool applyScalar() {
+        if (isDouble()) {
+            return Op::apply(m_left->scalar<double>(), m_right->scalar<double>(), m_scalarDouble);
+        }
+        return Op::apply(m_left->scalar<int64_t>(), m_right->scalar<int64_t>(), m_scalarInt);
+    }
+
+    template <typename Op>
+    bool apply(int n) {
+        if (isDouble()) {
+            m_left->asDoubles(n);
+            m_right->asDoubles(n);
+            return applyAs<Op, double>(n);
+        }
+        return applyAs<Op, int64_t>(n);
+    }
+
+    template <typename Op, typename T>
+    bool applyAs(int n) {
+        T *out = values<T>();
+        char *nulls = &m_nulls[0];
+        if (m_left->isScalar()) {
+            return arithmeticLoop<Op>(ScalarOperand<T>(m_left->scalar<T>()),
+                                      VectorOperand<T>(m_right->values<T>(), m_right->nulls()),
+                                      n, out, nulls);
+        }
+        if (m_right->isScalar()) {
+            return arithmeticLoop<Op>(VectorOperand<T>(m_left->values<T>(), m_left->nulls()),
+                                      ScalarOperand<T>(m_right->scalar<T>()),
+                                      n, out, nulls);
+        }
+        return arithmeticLoop<Op>(VectorOperand<T>(m_left->values<T>(), m_left->nulls()),
+                                  VectorOperand<T>(m_right->values<T>(), m_right->nulls()),
+                                  n, out, nulls);
+    }
+
+    const ExpressionType m_op;
+    NumberNode *m_left;
+    NumberNode *m_right;
+};
+
+class CompareNode : public BoolNode {
+public:
+    // A scalar operand is always kept on the right
+    CompareNode(ExpressionType op, NumberNode *left, NumberNode *right)
+        : m_op(op), m_left(left), m_right(right), m_isDouble(false), m_scalarTruth(TRUTH_NULL)
+    {
+        if (left->isScalar() && ! right->isScalar()) {
+            m_left = right;
+            m_right = left;
+            switch (op) {
+            case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+                m_op = EXPRESSION_TYPE_COMPARE_GREATERTHAN;
+                break;
+            case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+                m_op = EXPRESSION_TYPE_COMPARE_LESSTHAN;
+                break;
+            case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+                m_op = EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO;
+                break;
+            case EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO:
+                m_op = EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO;
+                break;
+            default:
+                break;
+            }
+        }
+    }
+
+    ~CompareNode() {
+        delete m_left;
+        delete m_right;
+    }
+
+    bool bind() {
+        if ( ! m_left->bind() || ! m_right->bind()) {
+            return false;
+        }
+        m_isDouble = m_left->isDouble() || m_right->isDouble();
+        if (m_left->isScalar()) {
+            if (m_left->isScalarNull() || m_right->isScalarNull()) {
+                m_scalarTruth = TRUTH_NULL;
+            }
+            else {
+                const int cmp = m_isDouble ?
+                    compareNumbers(m_left->scalar<double>(), m_right->scalar<double>()) :
+                    compareNumbers(m_left->scalar<int64_t>(), m_right->scalar<int64_t>());
+                m_scalarTruth = test(cmp) ? TRUTH_TRUE : TRUTH_FALSE;
+            }
+        }
+        return true;
+    }
+
+    bool eval(char * const *tuples, const int *sel, int n) {
+        if (m_left->isScalar()) {
+            ::memset(&m_result[0], m_scalarTruth, n);
+            return true;
+        }
+        if ( ! m_left->eval(tuples, sel, n) || ! m_right->eval(tuples, sel, n)) {
+            return false;
+        }
+        if (m_right->isScalarNull()) {
+            ::memset(&m_result[0], TRUTH_NULL, n);
+            return true;
+        }
+        switch (m_op) {
+        case EXPRESSION_TYPE_COMPARE_EQUAL:
+            compare<CompareEq>(n);
+            break;
+        case EXPRESSION_TYPE_COMPARE_NOTEQUAL:
+            compare<CompareNe>(n);
+            break;
+        case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+            compare<CompareLt>(n);
+            break;
+        case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+            compare<CompareGt>(n);
+            break;
+        case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+            compare<CompareLte>(n);
+            break;
+        default:
+            compare<CompareGte>(n);
+            break;
+        }
+        return true;
+    }
+
+private:
+    bool test(int cmp) const {
+        switch (m_op) {
+        case EXPRESSION_TYPE_COMPARE_EQUAL:
+            return CompareEq::test(cmp);
+        case EXPRESSION_TYPE_COMPARE_NOTEQUAL:
+            return CompareNe::test(cmp);
+        case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+            return CompareLt::test(cmp);
+        case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+            return CompareGt::test(cmp);
+        case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+            return CompareLte::test(cmp);
+        default:
+            return CompareGte::test(cmp);
+        }
+    }
+
+    template <typename Op>
+    void compare(int n) {
+        if (m_isDouble) {
+            m_left->asDoubles(n);
+            m_right->asDoubles(n);
+            compareAs<Op, double>(n);
+        }
+        else {
+            compareAs<Op, int64_t>(n);
+        }
+    }
+
+    template <typename Op, typename T>
+    void compareAs(int n) {
+        VectorOperand<T> lhs(m_left->values<T>(), m_left->nulls());
+        if (m_right->isScalar()) {
+            compareLoop<Op>(lhs, ScalarOperand<T>(m_right->scalar<T>()), n, &m_result[0]);
+        }
+        else {
+            compareLoop<Op>(lhs, VectorOperand<T>(m_right->values<T>(), m_right->nulls()), n, &m_result[0]);
+        }
+    }
+
+    ExpressionType m_op;
+    NumberNode *m_left;
+    NumberNode *m_right;
+    bool m_isDouble;
+    char m_scalarTruth;
+};
+
+/**
+ * AND and OR. As in ConjunctionExpression, the right side is only
+ * evaluated for the tuples where the left side doesn't decide the result.
+ */
+class ConjunctionNode : public BoolNode {
+public:
+    ConjunctionNode(bool isAnd, BoolNode *left, BoolNode *right)
+        : m_isAnd(isAnd), m_left(left), m_right(right), m_subSel(BatchPredicate::BLOCK_SIZE), m_subPos(BatchPredicate::BLOCK_SIZE) {}
+
+    ~ConjunctionNode() {
+        delete m_left;
+        delete m_right;
+    }
+
+    bool bind() {
+        return m_left->bind() && m_right->bind();
+    }
+
+    bool eval(char * const *tuples, const int *sel, int n) {
+        if ( ! m_left->eval(tuples, sel, n)) {
+            return false;
+        }
+        const char *left = m_left->result();
+        const char decided = m_isAnd ? TRUTH_FALSE : TRUTH_TRUE;
+        int *subSel = &m_subSel[0];
+        int *subPos = &m_subPos[0];
+        int m = 0;
+        for (int k = 0; k < n; ++k) {
+            if (left[k] != decided) {
+                subSel[m] = sel[k];
+                subPos[m] = k;
+                ++m;
+            }
+        }
+        ::memcpy(&m_result[0], left, n);
+        if (m == 0) {
+            return true;
+        }
+        if ( ! m_right->eval(tuples, subSel, m)) {
+            return false;
+        }
+        const char *right = m_right->result();
+        char *result = &m_result[0];
+        for (int j = 0; j < m; ++j) {
+            const int k = subPos[j];
+            // AND: TRUE and x is x, NULL and FALSE is FALSE, otherwise NULL
+            // OR: FALSE or x is x, NULL or TRUE is TRUE, otherwise NULL
+            if (right[j] == decided) {
+                result[k] = decided;
+            }
+            else if (left[k] != TRUTH_NULL) {
+                result[k] = right[j];
+            }
+            else {
+                result[k] = TRUTH_NULL;
+            }
+        }
+        return true;
+    }
+
+private:
+    const bool m_isAnd;
+    BoolNode *m_left;
+    BoolNode *m_right;
+    std::vector<int> m_subSel;
+    std::vector<int> m_subPos;
+};
+
+class NotNode : public BoolNode {
+public:
+    NotNode(BoolNode *child) : m_child(child) {}
+
+    ~NotNode() {
+        delete m_child;
+    }
+
+    bool bind() {
+        return m_child->bind();
+    }
+
+    bool eval(char * const *tuples, const int *sel, int n) {
+        if ( ! m_child->eval(tuples, sel, n)) {
+            return false;
+        }
+        const char *child = m_child->result();
+        char *result = &m_result[0];
+        for (int k = 0; k < n; ++k) {
+            result[k] = child[k] == TRUTH_NULL ? TRUTH_NULL : (child[k] == TRUTH_TRUE ? TRUTH_FALSE : TRUTH_TRUE);
+        }
+        return true;
+    }
+
+private:
+    BoolNode *m_child;
+};
+
+class IsNullNode : public BoolNode {
+public:
+    IsNullNode(NumberNode *child) : m_child(child) {}
+
+    ~IsNullNode() {
+        delete m_child;
+    }
+
+    bool bind() {
+        return m_child->bind();
+    }
+
+    bool eval(char * const *tuples, const int *sel, int n) {
+        if ( ! m_child->eval(tuples, sel, n)) {
+            return false;
+        }
+        if (m_child->isScalar()) {
+            ::memset(&m_result[0], m_child->isScalarNull() ? TRUTH_TRUE : TRUTH_FALSE, n);
+            return true;
+        }
+        const char *nulls = m_child->nulls();
+        char *result = &m_result[0];
+        for (int k = 0; k < n; ++k) {
+            result[k] = nulls[k] ? TRUTH_TRUE : TRUTH_FALSE;
+        }
+        return true;
+    }
+
+private:
+    NumberNode *m_child;
+};
+
+NumberNode* compileNumber(const AbstractExpression *expression, const TupleSchema *schema) {
+    if (expression == NULL) {
+        return NULL;
+    }
+    switch (expression->getExpressionType()) {
+    case EXPRESSION_TYPE_VALUE_TUPLE:
+    {
+        const TupleValueExpression *tve = dynamic_cast<const TupleValueExpression*>(expression);
+        if (tve == NULL || tve->getTupleId() != 0 || tve->getColumnId() >= schema->columnCount()) {
+            return NULL;
+        }
+        const TupleSchema::ColumnInfo *columnInfo = schema->getColumnInfo(tve->getColumnId());
+        if ( ! isBatchColumnType(columnInfo->getVoltType())) {
+            return NULL;
+        }
+        return new ColumnNode(columnInfo->getVoltType(), columnInfo->offset);
+    }
+    case EXPRESSION_TYPE_VALUE_CONSTANT:
+    case EXPRESSION_TYPE_VALUE_PARAMETER:
+        return new ValueNode(expression);
+    case EXPRESSION_TYPE_OPERATOR_PLUS:
+    case EXPRESSION_TYPE_OPERATOR_MINUS:
+    case EXPRESSION_TYPE_OPERATOR_MULTIPLY:
+    {
+        NumberNode *left = compileNumber(expression->getLeft(), schema);
+        if (left == NULL) {
+            return NULL;
+        }
+        NumberNode *right = compileNumber(expression->getRight(), schema);
+        if (right == NULL) {
+            delete left;
+            return NULL;
+        }
+        return new ArithmeticNode(expression->getExpressionType(), left, right);
+    }
+    default:
+        return NULL;
+    }
+}
+
+BoolNode* compileBool(const AbstractExpression *expression, const TupleSchema *schema) {
+    if (expression == NULL) {
+        return NULL;
+    }
+    switch (expression->getExpressionType()) {
+    case EXPRESSION_TYPE_CONJUNCTION_AND:
+    case EXPRESSION_TYPE_CONJUNCTION_OR:
+    {
+        BoolNode *left = compileBool(expression->getLeft(), schema);
+        if (left == NULL) {
+            return NULL;
+        }
+        BoolNode *right = compileBool(expression->getRight(), schema);
+        if (right == NULL) {
+            delete left;
+            return NULL;
+        }
+        return new ConjunctionNode(expression->getExpressionType() == EXPRESSION_TYPE_CONJUNCTION_AND,
+                                   left, right);
+    }
+    case EXPRESSION_TYPE_OPERATOR_NOT:
+    {
+        BoolNode *child = compileBool(expression->getLeft(), schema);
+        return child == NULL ? NULL : new NotNode(child);
+    }
+    case EXPRESSION_TYPE_OPERATOR_IS_NULL:
+    {
+        NumberNode *child = compileNumber(expression->getLeft(), schema);
+        return child == NULL ? NULL : new IsNullNode(child);
+    }
+    case EXPRESSION_TYPE_COMPARE_EQUAL:
+    case EXPRESSION_TYPE_COMPARE_NOTEQUAL:
+    case EXPRESSION_TYPE_COMPARE_LESSTHAN:
+    case EXPRESSION_TYPE_COMPARE_GREATERTHAN:
+    case EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO:
+    case EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO:
+    {
+        NumberNode *left = compileNumber(expression->getLeft(), schema);
+        if (left == NULL) {
+            return NULL;
+        }
+        NumberNode *right = compileNumber(expression->getRight(), schema);
+        if (right == NULL) {
+            delete left;
+            return NULL;
+        }
+        return new CompareNode(expression->getExpressionType(), left, right);
+    }
+    default:
+        return NULL;
+    }
+}
+
+}
+
+BatchPredicate* BatchPredicate::compile(const AbstractExpression *predicate, const TupleSchema *schema) {
+    BoolNode *root = compileBool(predicate, schema);
+    return root == NULL ? NULL : new BatchPredicate(root);
+}
+
+BatchPredicate::BatchPredicate(BoolNode *root) : m_root(root), m_all(BLOCK_SIZE) {
+    for (int k = 0; k < BLOCK_SIZE; ++k) {
+        m_all[k] = k;
+    }
+}
+
+BatchPredicate::~BatchPredicate() {
+    delete m_root;
+}
+
+bool BatchPredicate::bind() {
+    return m_root->bind();
+}
+
+int BatchPredicate::filter(char * const *tuples, int count, int *selected) {
+    assert(count <= BLOCK_SIZE);
+    if ( ! m_root->eval(tuples, &m_all[0], count)) {
+        return -1;
+    }
+    const char *result = m_root->result();
+    int passed = 0;
+    for (int k = 0; k < count; ++k) {
+        selected[passed] = k;
+        passed += (result[k] == TRUTH_TRUE);
+    }
+    return passed;
+}
+
+}
@@ -0,0 +1,86 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef BATCHPREDICATE_H
+#define BATCHPREDICATE_H
+
+#include "expressions/abstractexpression.h"
+
+#include <vector>
+
+namespace voltdb {
+
+class TupleSchema;
+
+/**
+ * Evaluates a scan predicate over a block of tuples at a time, instead of
+ * one virtual AbstractExpression::eval() and a few NValue copies per tuple.
+ *
+ * Only predicates built from AND, OR, NOT, IS NULL and the six ordering
+ * comparisons over fixed width numeric columns (TINYINT through BIGINT,
+ * TIMESTAMP and FLOAT), constants, parameters and +, - and * of those are
+ * handled. Each column is gathered into a dense int64_t or double vector
+ * with a loop specialized for its storage type, and each comparison and
+ * arithmetic operator is one loop over those vectors. The result is the
+ * same as evaluating the predicate on each tuple with eval(), including
+ * the handling of NULLs and NaNs.
+ */
+class BatchPredicate {
+public:
+    // Largest number of tuples passed to one filter() call
+    static const int BLOCK_SIZE = 256;
+
+    class BoolNode;
+    class NumberNode;
+
+    /**
+     * @return an evaluator for the predicate over tuples of the given schema,
+     * or NULL if any part of it can only be evaluated a tuple at a time.
+     */
+    static BatchPredicate* compile(const AbstractExpression *predicate, const TupleSchema *schema);
+
+    ~BatchPredicate();
+
+    /**
+     * Read this execution's constant and parameter values. Call before the
+     * first filter() of each execution.
+     * @return false if a value isn't a fixed width number (e.g. a DECIMAL or
+     * VARCHAR parameter), in which case the predicate has to be evaluated a
+     * tuple at a time for this execution.
+     */
+    bool bind();
+
+    /**
+     * Find the tuples for which the predicate is true.
+     * @param tuples addresses of up to BLOCK_SIZE tuples, as from TableTuple::address()
+     * @param selected set to the positions in tuples of the tuples that pass
+     * @return the number of tuples that pass, or -1 if an arithmetic result
+     * overflowed. eval() throws for those, so the caller must evaluate this
+     * block a tuple at a time to raise the error at the right tuple.
+     */
+    int filter(char * const *tuples, int count, int *selected);
+
+private:
+    BatchPredicate(BoolNode *root);
+
+    BoolNode *m_root;
+    // 0 .. BLOCK_SIZE - 1, the selection of every tuple in a block
+    std::vector<int> m_all;
+};
+
+}
+#endif
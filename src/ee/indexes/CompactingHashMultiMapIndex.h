@@ -51,19 +51,22 @@
 #include "indexes/tableindex.h"
 #include "common/tabletuple.h"
 #include "structures/CompactingHashTable.h"
+#include "structures/CompactingOpenHashTable.h"
 
 namespace voltdb {
 
 /**
- * Index implemented as a Hash Table Multimap.
+ * Index implemented as a Hash Table Multimap, over either the chained
+ * CompactingHashTable or the open addressing CompactingOpenHashTable.
  * @see TableIndex
  */
-template<typename KeyType>
+template<typename KeyType,
+         template<typename, typename, typename, typename, typename> class Table = CompactingHashTable>
 class CompactingHashMultiMapIndex : public TableIndex
 {
     typedef typename KeyType::KeyEqualityChecker KeyEqualityChecker;
     typedef typename KeyType::KeyHasher KeyHasher;
-    typedef CompactingHashTable<KeyType, const void*, KeyHasher, KeyEqualityChecker> MapType;
+    typedef Table<KeyType, const void*, KeyHasher, KeyEqualityChecker, std::equal_to<const void*> > MapType;
     typedef typename MapType::iterator MapIterator;
 
     ~CompactingHashMultiMapIndex() {};
@@ -160,7 +163,11 @@ class CompactingHashMultiMapIndex : public TableIndex
         return m_entries.bytesAllocated();
     }
 
-    std::string getTypeName() const { return "CompactingHashMultiMapIndex"; };
+    double getLoadFactor() const { return m_entries.loadFactor(); }
+
+    double getAverageProbeLength() const { return m_entries.averageProbeLength(); }
+
+    std::string getTypeName() const { return std::string(MapType::typeName()) + "MultiMapIndex"; };
 
     // Non-virtual (so "really-private") helper methods.
     MapIterator findKey(const TableTuple *searchKey) const
@@ -51,19 +51,22 @@
 
 #include "indexes/tableindex.h"
 #include "structures/CompactingHashTable.h"
+#include "structures/CompactingOpenHashTable.h"
 
 namespace voltdb {
 
 /**
- * Index implemented as a Hash Table Unique Map.
+ * Index implemented as a Hash Table Unique Map, over either the chained
+ * CompactingHashTable or the open addressing CompactingOpenHashTable.
  * @see TableIndex
  */
-template<typename KeyType>
+template<typename KeyType,
+         template<typename, typename, typename, typename, typename> class Table = CompactingHashTable>
 class CompactingHashUniqueIndex : public TableIndex
 {
     typedef typename KeyType::KeyEqualityChecker KeyEqualityChecker;
     typedef typename KeyType::KeyHasher KeyHasher;
-    typedef CompactingHashTable<KeyType, const void*, KeyHasher, KeyEqualityChecker> MapType;
+    typedef Table<KeyType, const void*, KeyHasher, KeyEqualityChecker, std::equal_to<const void*> > MapType;
     typedef typename MapType::iterator MapIterator;
 
     ~CompactingHashUniqueIndex() {};
@@ -157,7 +160,11 @@ class CompactingHashUniqueIndex : public TableIndex
         return m_entries.bytesAllocated();
     }
 
-    std::string getTypeName() const { return "CompactingHashUniqueIndex"; };
+    double getLoadFactor() const { return m_entries.loadFactor(); }
+
+    double getAverageProbeLength() const { return m_entries.averageProbeLength(); }
+
+    std::string getTypeName() const { return std::string(MapType::typeName()) + "UniqueIndex"; };
 
     TableIndex *cloneEmptyNonCountingTreeIndex() const
     {
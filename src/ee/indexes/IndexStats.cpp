@@ -39,6 +39,8 @@ vector<string> IndexStats::generateIndexStatsColumnNames() {
     columnNames.push_back("IS_COUNTABLE");
     columnNames.push_back("ENTRY_COUNT");
     columnNames.push_back("MEMORY_ESTIMATE");
+    columnNames.push_back("LOAD_FACTOR");
+    columnNames.push_back("AVG_PROBE_LENGTH");
 
     return columnNames;
 }
@@ -91,6 +93,18 @@ void IndexStats::populateIndexStatsSchema(
     columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_INTEGER));
     allowNull.push_back(false);
     inBytes.push_back(false);
+
+    // hash load factor
+    types.push_back(VALUE_TYPE_DOUBLE);
+    columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_DOUBLE));
+    allowNull.push_back(false);
+    inBytes.push_back(false);
+
+    // hash average probe length
+    types.push_back(VALUE_TYPE_DOUBLE);
+    columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_DOUBLE));
+    allowNull.push_back(false);
+    inBytes.push_back(false);
 }
 
 Table*
@@ -199,6 +213,10 @@ void IndexStats::updateStatsTuple(TableTuple *tuple) {
     tuple->setNValue(StatsSource::m_columnName2Index["MEMORY_ESTIMATE"],
                      ValueFactory::
                      getIntegerValue(static_cast<int32_t>(mem_estimate_kb)));
+    tuple->setNValue(StatsSource::m_columnName2Index["LOAD_FACTOR"],
+                     ValueFactory::getDoubleValue(m_index->getLoadFactor()));
+    tuple->setNValue(StatsSource::m_columnName2Index["AVG_PROBE_LENGTH"],
+                     ValueFactory::getDoubleValue(m_index->getAverageProbeLength()));
 }
 
 /**
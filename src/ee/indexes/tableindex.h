@@ -433,6 +433,13 @@ public:
     // index.
     virtual int64_t getMemoryEstimate() const = 0;
 
+    // Entries per bucket or slot of a hash index, 0 for other indexes.
+    virtual double getLoadFactor() const { return 0.0; }
+
+    // Average number of buckets or slots a successful hash index lookup
+    // examines, 0 for other indexes.
+    virtual double getAverageProbeLength() const { return 0.0; }
+
     const std::vector<int>& getColumnIndices() const
     {
         return m_scheme.columnIndices;
@@ -61,26 +61,45 @@ namespace voltdb {
 
 class TableIndexPicker
 {
-    template <class TKeyType>
-    TableIndex *getInstanceForKeyType() const
+    template <class TKeyType, template<typename, typename, bool> class Map>
+    TableIndex *getTreeInstanceForKeyType() const
     {
         if (m_scheme.unique) {
-            if (m_type != BALANCED_TREE_INDEX) {
-                return new CompactingHashUniqueIndex<TKeyType >(m_keySchema, m_scheme);
-            } else if (m_scheme.countable) {
-                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TKeyType>, true>(m_keySchema, m_scheme);
+            if (m_scheme.countable) {
+                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TKeyType>, true, Map>(m_keySchema, m_scheme);
             } else {
-                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TKeyType>, false>(m_keySchema, m_scheme);
+                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TKeyType>, false, Map>(m_keySchema, m_scheme);
             }
         } else {
-            if (m_type != BALANCED_TREE_INDEX) {
+            if (m_scheme.countable) {
+                return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TKeyType>, true, Map>(m_keySchema, m_scheme);
+            } else {
+                return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TKeyType>, false, Map>(m_keySchema, m_scheme);
+            }
+        }
+    }
+
+    template <class TKeyType>
+    TableIndex *getInstanceForKeyType() const
+    {
+        if (m_type == HASH_TABLE_INDEX) {
+            if (m_scheme.unique) {
+                return new CompactingHashUniqueIndex<TKeyType >(m_keySchema, m_scheme);
+            } else {
                 return new CompactingHashMultiMapIndex<TKeyType >(m_keySchema, m_scheme);
-            } else if (m_scheme.countable) {
-                return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TKeyType>, true>(m_keySchema, m_scheme);
+            }
+        }
+        if (m_type == OPEN_HASH_TABLE_INDEX) {
+            if (m_scheme.unique) {
+                return new CompactingHashUniqueIndex<TKeyType, CompactingOpenHashTable>(m_keySchema, m_scheme);
             } else {
-                return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TKeyType>, false>(m_keySchema, m_scheme);
+                return new CompactingHashMultiMapIndex<TKeyType, CompactingOpenHashTable>(m_keySchema, m_scheme);
             }
         }
+        if (m_type == BTREE_INDEX) {
+            return getTreeInstanceForKeyType<TKeyType, CompactingBTree>();
+        }
+        return getTreeInstanceForKeyType<TKeyType, CompactingMap>();
     }
 
     template <std::size_t KeySize>
@@ -95,7 +114,7 @@ class TableIndexPicker
             return getInstanceForKeyType<IntsKey<(KeySize-1)/8 + 1> >();
         }
         // Generic Key
-        if (m_type == HASH_TABLE_INDEX) {
+        if (m_type == HASH_TABLE_INDEX || m_type == OPEN_HASH_TABLE_INDEX) {
             VOLT_INFO("Producing a tree index for %s: "
                       "hash index not currently supported for this index key.\n",
                       m_scheme.name.c_str());
@@ -181,18 +200,10 @@ public:
             return result;
         }
 
-        if (m_scheme.unique) {
-            if (m_scheme.countable) {
-                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TupleKey>, true >(m_keySchema, m_scheme);
-            } else {
-                return new CompactingTreeUniqueIndex<NormalKeyValuePair<TupleKey>, false>(m_keySchema, m_scheme);
-            }
-        }
-        if (m_scheme.countable) {
-            return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TupleKey>, true >(m_keySchema, m_scheme);
-        } else {
-            return new CompactingTreeMultiMapIndex<PointerKeyValuePair<TupleKey>, false>(m_keySchema, m_scheme);
+        if (m_type == BTREE_INDEX) {
+            return getTreeInstanceForKeyType<TupleKey, CompactingBTree>();
         }
+        return getTreeInstanceForKeyType<TupleKey, CompactingMap>();
     }
 
     TableIndexPicker(const TupleSchema *keySchema, bool intsOnly, bool inlinesOrColumnsOnly,
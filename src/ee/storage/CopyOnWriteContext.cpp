@@ -22,6 +22,7 @@
 #include "common/TupleOutputStream.h"
 #include "common/FatalException.hpp"
 #include "common/StreamPredicateList.h"
+#include "common/PlannerDomValue.h"
 #include "logging/LogManager.h"
 #include <algorithm>
 #include <cassert>
@@ -52,7 +53,10 @@ CopyOnWriteContext::CopyOnWriteContext(
              m_blocksCompacted(0),
              m_serializationBatches(0),
              m_inserts(0),
-             m_updates(0)
+             m_updates(0),
+             m_blockTracking(parseBlockTracking(predicateStrings)),
+             m_carriedBlocksWritten(0),
+             m_backedUpTuplesStreamed(0)
 {
 }
 
@@ -63,6 +67,32 @@ CopyOnWriteContext::~CopyOnWriteContext()
 {}
 
 
+/**
+ * The optional "blockTracking" attribute of the stream's predicates, "FULL" or "DELTA".
+ */
+BlockTracking CopyOnWriteContext::parseBlockTracking(const std::vector<std::string> &predicateStrings)
+{
+    for (std::vector<std::string>::const_iterator iter = predicateStrings.begin();
+         iter != predicateStrings.end(); ++iter) {
+        if (iter->empty()) {
+            continue;
+        }
+        PlannerDomRoot domRoot(iter->c_str());
+        if (domRoot.isNull() || !domRoot.rootObject().hasKey("blockTracking")) {
+            continue;
+        }
+        std::string mode = domRoot.rootObject().valueForKey("blockTracking").asStr();
+        if (mode == "FULL") {
+            return BLOCK_TRACKING_FULL;
+        }
+        if (mode == "DELTA") {
+            return BLOCK_TRACKING_DELTA;
+        }
+        throwFatalException("Unknown snapshot block tracking mode %s", mode.c_str());
+    }
+    return BLOCK_TRACKING_NONE;
+}
+
 /**
  * Activation handler.
  */
@@ -80,7 +110,35 @@ CopyOnWriteContext::handleActivation(TableStreamType streamType)
         return ACTIVATION_FAILED;
     }
 
-    m_surgeon.activateSnapshot();
+    if (m_blockTracking == BLOCK_TRACKING_DELTA) {
+        // Only scan the blocks changed since the last tracked snapshot.
+        m_blocks.clear();
+        int64_t dirtyTuples = 0;
+        TBMap &data = m_surgeon.getData();
+        for (TBMapI iter = data.begin(); iter != data.end(); ++iter) {
+            TBPtr block = iter.data();
+            if (block->isDirty()) {
+                m_blocks.insert(iter.key(), block);
+                dirtyTuples += block->activeTuples();
+            }
+            else {
+                m_carriedBlockIds.push_back(block->id());
+            }
+        }
+        // -1 is used as a sentinel value to disable counting for tests.
+        if (m_totalTuples >= 0) {
+            m_totalTuples = dirtyTuples;
+            m_tuplesRemaining = dirtyTuples;
+        }
+        m_surgeon.activateDeltaSnapshot();
+    }
+    else {
+        m_surgeon.activateSnapshot();
+    }
+
+    if (m_blockTracking != BLOCK_TRACKING_NONE) {
+        m_surgeon.markAllBlocksClean();
+    }
 
     m_iterator.reset(new CopyOnWriteIterator(&getTable(), &m_surgeon, m_blocks));
 
@@ -95,8 +153,10 @@ int64_t CopyOnWriteContext::handleStreamMore(TupleOutputStreamProcessor &outputS
                                              std::vector<int> &retPositions) {
     assert(m_iterator != NULL);
 
+    const std::size_t carriedBlocks = m_carriedBlockIds.size();
+
     // Don't expect to be re-called after streaming all the tuples.
-    if (m_totalTuples != 0 && m_tuplesRemaining == 0) {
+    if (m_totalTuples != 0 && m_tuplesRemaining == 0 && m_carriedBlocksWritten == carriedBlocks) {
         throwFatalException("serializeMore() was called again after streaming completed.")
     }
 
@@ -104,11 +164,13 @@ int64_t CopyOnWriteContext::handleStreamMore(TupleOutputStreamProcessor &outputS
     if (outputStreams.empty()) {
         throwFatalException("serializeMore() expects at least one output stream.");
     }
+    const bool tracking = m_blockTracking != BLOCK_TRACKING_NONE;
     outputStreams.open(getTable(),
-                       getMaxTupleLength(),
+                       getMaxTupleLength() + (tracking ? sizeof(int64_t) : 0),
                        getPartitionId(),
                        getPredicates(),
-                       getPredicateDeleteFlags());
+                       getPredicateDeleteFlags(),
+                       &getPredicateProjections());
 
     //=== Tuple processing loop
 
@@ -118,6 +180,21 @@ int64_t CopyOnWriteContext::handleStreamMore(TupleOutputStreamProcessor &outputS
     // Set to true to break out of the loop after the tuples dry up
     // or the byte count threshold is hit.
     bool yield = false;
+
+    /*
+     * A delta stream starts with an all-null row for each clean block, carrying
+     * the negated id (minus one) of the block so that a restore takes the block's
+     * rows from an earlier snapshot.
+     */
+    if (m_carriedBlocksWritten < carriedBlocks) {
+        TableTuple &placeholder = m_backedUpTuples->tempTuple();
+        placeholder.setAllNulls();
+        while (!yield && m_carriedBlocksWritten < carriedBlocks) {
+            const int64_t carriedId = -m_carriedBlockIds[m_carriedBlocksWritten++] - 1;
+            yield = outputStreams.writeRow(getSerializer(), placeholder, NULL, &carriedId);
+        }
+    }
+
     while (!yield) {
 
         // Next tuple?
@@ -135,7 +212,17 @@ int64_t CopyOnWriteContext::handleStreamMore(TupleOutputStreamProcessor &outputS
              * The returned copy count helps decide when to delete if m_doDelete is true.
              */
             bool deleteTuple = false;
-            yield = outputStreams.writeRow(getSerializer(), tuple, &deleteTuple);
+            int64_t blockId = 0;
+            if (tracking) {
+                if (m_finishedTableScan) {
+                    assert(m_backedUpTuplesStreamed < m_backedUpBlockIds.size());
+                    blockId = m_backedUpBlockIds[m_backedUpTuplesStreamed++];
+                }
+                else {
+                    blockId = static_cast<CopyOnWriteIterator*>(m_iterator.get())->m_currentBlock->id();
+                }
+            }
+            yield = outputStreams.writeRow(getSerializer(), tuple, &deleteTuple, tracking ? &blockId : NULL);
             /*
              * May want to delete tuple if processing the actual table.
              */
@@ -264,7 +351,7 @@ int64_t CopyOnWriteContext::handleStreamMore(TupleOutputStreamProcessor &outputS
 
     m_serializationBatches++;
 
-    int64_t retValue = m_tuplesRemaining;
+    int64_t retValue = m_tuplesRemaining + static_cast<int64_t>(carriedBlocks - m_carriedBlocksWritten);
 
     // Handle the sentinel value of -1 which is passed in from tests that don't
     // care about the active tuple count. Return max int as if there are always
@@ -351,6 +438,7 @@ void CopyOnWriteContext::markTupleDirty(TableTuple tuple, bool newTuple) {
          */
         if (!newTuple) {
             m_backedUpTuples->insertTupleNonVirtualWithDeepCopy(tuple, &m_pool);
+            m_backedUpBlockIds.push_back(block->id());
         }
     } else {
         tuple.setDirtyFalse();
@@ -37,6 +37,18 @@ class ParsedPredicate;
 class TupleOutputStreamProcessor;
 class PersistentTableSurgeon;
 
+/**
+ * How a snapshot stream uses the dirty flags of the table's blocks.
+ * NONE leaves them alone. FULL writes every block, DELTA writes only the dirty
+ * blocks and the ids of the clean ones. Both tag the rows with their block id
+ * and start tracking the blocks changed from the activation on.
+ */
+enum BlockTracking {
+    BLOCK_TRACKING_NONE,
+    BLOCK_TRACKING_FULL,
+    BLOCK_TRACKING_DELTA
+};
+
 class CopyOnWriteContext : public TableStreamerContext {
 
     friend bool TableStreamer::activateStream(PersistentTableSurgeon&, TupleSerializer&,
@@ -86,6 +98,10 @@ public:
      */
     virtual bool notifyTupleDelete(TableTuple &tuple);
 
+    BlockTracking getBlockTracking() const {
+        return m_blockTracking;
+    }
+
 private:
 
     /**
@@ -133,6 +149,24 @@ private:
     int64_t m_inserts;
     int64_t m_updates;
 
+    BlockTracking m_blockTracking;
+
+    /**
+     * Ids of the clean blocks a delta stream writes a placeholder row for, and
+     * how many were written so far.
+     */
+    std::vector<int64_t> m_carriedBlockIds;
+    std::size_t m_carriedBlocksWritten;
+
+    /**
+     * Ids of the blocks the backed up tuples were copied from, in insertion order,
+     * and how many of the backed up tuples were streamed so far.
+     */
+    std::vector<int64_t> m_backedUpBlockIds;
+    std::size_t m_backedUpTuplesStreamed;
+
+    static BlockTracking parseBlockTracking(const std::vector<std::string> &predicateStrings);
+
     void checkRemainingTuples(const std::string &label);
 
 };
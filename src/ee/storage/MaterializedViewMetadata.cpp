@@ -22,6 +22,9 @@
 #include "common/PlannerDomValue.h"
 #include "common/FatalException.hpp"
 #include "common/ValueFactory.hpp"
+#include "common/executorcontext.hpp"
+#include "common/UndoQuantum.h"
+#include "execution/VoltDBEngine.h"
 #include "catalog/catalog.h"
 #include "catalog/columnref.h"
 #include "catalog/column.h"
@@ -33,7 +36,11 @@
 #include "expressions/expressionutil.h"
 #include "indexes/tableindex.h"
 #include "storage/persistenttable.h"
+#include "storage/MaterializedViewUndoMinMaxAction.h"
+#include "storage/TableCatalogDelegate.hpp"
 #include "boost/foreach.hpp"
+#include "boost/scoped_ptr.hpp"
+#include "boost/scoped_array.hpp"
 #include "boost/shared_array.hpp"
 
 namespace voltdb {
@@ -47,6 +54,13 @@ MaterializedViewMetadata::MaterializedViewMetadata(PersistentTable *srcTable,
     , m_groupByColumnCount(parseGroupBy(mvInfo)) // also loads m_groupByExprs/Columns as needed
     , m_searchKeyValue(m_groupByColumnCount)
     , m_aggColumnCount(parseAggregation(mvInfo))
+    , m_minMaxSlotCount(0)
+    , m_minMaxMemory(0)
+    , m_joinedRowSchema(NULL)
+    , m_joinedRowBackingStore(NULL)
+    , m_scanJoinedRowBackingStore(NULL)
+    , m_leavingJoin(-1)
+    , m_leavingJoinedTuple(NULL)
 {
     // best not to have to worry about the destination table disappearing out from under the source table that feeds it.
     VOLT_TRACE("construct materializedViewMetadata...");
@@ -69,10 +83,14 @@ MaterializedViewMetadata::MaterializedViewMetadata(PersistentTable *srcTable,
         }
     }
 
+    parseJoins(mvInfo);
+    resolveJoinedTables();
+
     // handle index for min / max support
     setIndexForMinMax(mvInfo->indexForMinMax());
 
     allocateBackedTuples();
+    initMinMaxTracking();
 
     // Catch up on pre-existing source tuples UNLESS target tuples have already been migrated in.
     if (( ! srcTable->isPersistentTableEmpty()) && m_target->isPersistentTableEmpty()) {
@@ -96,6 +114,15 @@ MaterializedViewMetadata::MaterializedViewMetadata(PersistentTable *srcTable,
 
 MaterializedViewMetadata::~MaterializedViewMetadata() {
     freeBackedTuples();
+    freeJoinedRows();
+    BOOST_FOREACH(JoinedTable &join, m_joins) {
+        if (join.table) {
+            join.table->removeJoinedView(this);
+        }
+        for (int ii = 0; ii < join.keyExprs.size(); ++ii) {
+            delete join.keyExprs[ii];
+        }
+    }
     delete m_filterPredicate;
     for (int ii = 0; ii < m_groupByExprs.size(); ++ii) {
         delete m_groupByExprs[ii];
@@ -103,12 +130,16 @@ MaterializedViewMetadata::~MaterializedViewMetadata() {
     for (int ii = 0; ii < m_aggExprs.size(); ++ii) {
         delete m_aggExprs[ii];
     }
+    m_target->addMinMaxTrackingMemory(-m_minMaxMemory);
     m_target->decrementRefcount();
 }
 
 void MaterializedViewMetadata::setTargetTable(PersistentTable * target)
 {
     PersistentTable * oldTarget = m_target;
+    // the value counts are rebuilt for the new target
+    oldTarget->addMinMaxTrackingMemory(-m_minMaxMemory);
+    m_minMaxMemory = 0;
 
     m_target = target;
     target->incrementRefcount();
@@ -118,6 +149,7 @@ void MaterializedViewMetadata::setTargetTable(PersistentTable * target)
 
     freeBackedTuples();
     allocateBackedTuples();
+    initMinMaxTracking();
 
     oldTarget->decrementRefcount();
 }
@@ -125,7 +157,8 @@ void MaterializedViewMetadata::setTargetTable(PersistentTable * target)
 void MaterializedViewMetadata::setIndexForMinMax(std::string indexForMinOrMax)
 {
     m_indexForMinMax = NULL;
-    if (indexForMinOrMax.compare("") != 0) {
+    // the rows of a join view's group can't be found through a source table index
+    if (indexForMinOrMax.compare("") != 0 && ! isJoinView()) {
         std::vector<TableIndex*> candidates = m_srcTable->allIndexes();
         for (int i = 0; i < candidates.size(); i++) {
             if (indexForMinOrMax.compare(candidates[i]->getName()) == 0) {
@@ -170,6 +203,270 @@ void MaterializedViewMetadata::allocateBackedTuples()
     m_emptyTuple.move(m_emptyTupleBackingStore);
 }
 
+void MaterializedViewMetadata::parseJoins(catalog::MaterializedViewInfo *mvInfo)
+{
+    const std::string joinsAsText = mvInfo->joinsJson();
+    if (joinsAsText.length() == 0) {
+        return;
+    }
+    VOLT_TRACE("Joins: %s\n", joinsAsText.c_str());
+    PlannerDomRoot domRoot(joinsAsText.c_str());
+    PlannerDomValue joinsArray = domRoot.rootObject();
+    m_joins.resize(joinsArray.arrayLen());
+    for (int i = 0; i < joinsArray.arrayLen(); i++) {
+        PlannerDomValue joinValue = joinsArray.valueAtIndex(i);
+        JoinedTable &join = m_joins[i];
+        join.tableName = joinValue.valueForKey("TABLE").asStr();
+        join.indexName = joinValue.valueForKey("INDEX").asStr();
+        PlannerDomValue keysArray = joinValue.valueForKey("KEYS");
+        for (int k = 0; k < keysArray.arrayLen(); k++) {
+            join.keyExprs.push_back(AbstractExpression::buildExpressionTree(keysArray.valueAtIndex(k)));
+        }
+        join.table = NULL;
+        join.index = NULL;
+        join.offset = 0;
+        join.keyBackingStore = NULL;
+    }
+}
+
+void MaterializedViewMetadata::resolveJoinedTables()
+{
+    if (m_joins.empty()) {
+        return;
+    }
+    VoltDBEngine *engine = ExecutorContext::getEngine();
+    bool changed = false;
+    BOOST_FOREACH(JoinedTable &join, m_joins) {
+        // The delegates are kept current while a catalog update is still redefining tables.
+        TableCatalogDelegate *delegate = engine->getTableDelegate(join.tableName);
+        PersistentTable *table = delegate ? dynamic_cast<PersistentTable*>(delegate->getTable()) : NULL;
+        if (table == join.table) {
+            continue;
+        }
+        if (join.table) {
+            join.table->removeJoinedView(this);
+        }
+        join.table = table;
+        join.index = NULL;
+        if (table) {
+            table->addJoinedView(this);
+            join.index = table->index(join.indexName);
+        }
+        changed = true;
+    }
+    if ( ! changed) {
+        return;
+    }
+
+    // The joined row is rebuilt from the current definitions of all the tables.
+    freeJoinedRows();
+    BOOST_FOREACH(JoinedTable &join, m_joins) {
+        if (join.index == NULL) {
+            // not all (re)defined yet, try again when the view is next used
+            return;
+        }
+    }
+    TupleSchema *schema = TupleSchema::createTupleSchema(m_srcTable->schema());
+    BOOST_FOREACH(JoinedTable &join, m_joins) {
+        join.offset = schema->columnCount();
+        TupleSchema *wider = TupleSchema::createTupleSchema(schema, join.table->schema());
+        TupleSchema::freeTupleSchema(schema);
+        schema = wider;
+
+        const TupleSchema *keySchema = join.index->getKeySchema();
+        join.keyTuple = TableTuple(keySchema);
+        join.keyBackingStore = new char[keySchema->tupleLength() + 1];
+        memset(join.keyBackingStore, 0, keySchema->tupleLength() + 1);
+        join.keyTuple.move(join.keyBackingStore);
+    }
+    m_joinedRowSchema = schema;
+
+    m_joinedRow = TableTuple(m_joinedRowSchema);
+    m_joinedRowBackingStore = new char[m_joinedRowSchema->tupleLength() + 1];
+    memset(m_joinedRowBackingStore, 0, m_joinedRowSchema->tupleLength() + 1);
+    m_joinedRow.move(m_joinedRowBackingStore);
+
+    m_scanJoinedRow = TableTuple(m_joinedRowSchema);
+    m_scanJoinedRowBackingStore = new char[m_joinedRowSchema->tupleLength() + 1];
+    memset(m_scanJoinedRowBackingStore, 0, m_joinedRowSchema->tupleLength() + 1);
+    m_scanJoinedRow.move(m_scanJoinedRowBackingStore);
+}
+
+void MaterializedViewMetadata::freeJoinedRows()
+{
+    BOOST_FOREACH(JoinedTable &join, m_joins) {
+        delete[] join.keyBackingStore;
+        join.keyBackingStore = NULL;
+    }
+    delete[] m_joinedRowBackingStore;
+    m_joinedRowBackingStore = NULL;
+    delete[] m_scanJoinedRowBackingStore;
+    m_scanJoinedRowBackingStore = NULL;
+    if (m_joinedRowSchema) {
+        TupleSchema::freeTupleSchema(m_joinedRowSchema);
+        m_joinedRowSchema = NULL;
+    }
+}
+
+void MaterializedViewMetadata::dropJoinedTable(PersistentTable *joinedTable)
+{
+    BOOST_FOREACH(JoinedTable &join, m_joins) {
+        if (join.table == joinedTable) {
+            join.table = NULL;
+            join.index = NULL;
+        }
+    }
+    freeJoinedRows();
+}
+
+int MaterializedViewMetadata::findJoin(PersistentTable *joinedTable)
+{
+    for (int j = 0; j < m_joins.size(); j++) {
+        if (m_joins[j].table == joinedTable) {
+            return j;
+        }
+    }
+    return -1;
+}
+
+bool MaterializedViewMetadata::joinsThrough(const TableTuple &srcTuple, int join,
+                                            const TableTuple &joinedTuple)
+{
+    JoinedTable &joined = m_joins[join];
+    const std::vector<int> &keyColumns = joined.index->getColumnIndices();
+    for (int k = 0; k < joined.keyExprs.size(); k++) {
+        NValue key = joined.keyExprs[k]->eval(&srcTuple, NULL);
+        if (key.isNull() || key.compare(joinedTuple.getNValue(keyColumns[k])) != 0) {
+            return false;
+        }
+    }
+    return true;
+}
+
+void MaterializedViewMetadata::findJoiningSourceTuples(int join, const TableTuple &joinedTuple,
+                                                       std::vector<TableTuple> &tuples)
+{
+    JoinedTable &joined = m_joins[join];
+    const std::vector<int> &joinedColumns = joined.index->getColumnIndices();
+    // The source columns the lookup key is made of, if it is only columns
+    std::vector<int> keyColumns;
+    BOOST_FOREACH(AbstractExpression *expr, joined.keyExprs) {
+        TupleValueExpression *tve = dynamic_cast<TupleValueExpression*>(expr);
+        if (tve == NULL) {
+            keyColumns.clear();
+            break;
+        }
+        keyColumns.push_back(tve->getColumnId());
+    }
+    TableIndex *srcIndex = NULL;
+    // for each column of srcIndex, the key column of the joined table it equals
+    std::vector<int> keyOrder;
+    if ( ! keyColumns.empty()) {
+        BOOST_FOREACH(TableIndex *index, m_srcTable->allIndexes()) {
+            const std::vector<int> &columns = index->getColumnIndices();
+            if (index->isPartialIndex() || ! index->getIndexedExpressions().empty() ||
+                columns.size() != keyColumns.size()) {
+                continue;
+            }
+            keyOrder.clear();
+            for (int i = 0; i < columns.size(); i++) {
+                for (int k = 0; k < keyColumns.size(); k++) {
+                    // the key values are copied, so they must not need a cast
+                    if (keyColumns[k] == columns[i] &&
+                        m_srcTable->schema()->getColumnInfo(columns[i])->getVoltType() ==
+                        joined.table->schema()->getColumnInfo(joinedColumns[k])->getVoltType()) {
+                        keyOrder.push_back(joinedColumns[k]);
+                        break;
+                    }
+                }
+            }
+            if (keyOrder.size() == columns.size()) {
+                srcIndex = index;
+                break;
+            }
+        }
+    }
+
+    if (srcIndex == NULL) {
+        // No index of the source table covers the join key, so scan it all.
+        TableTuple tuple(m_srcTable->schema());
+        boost::scoped_ptr<TableIterator> iterator(m_srcTable->makeIterator());
+        while (iterator->next(tuple)) {
+            if (joinsThrough(tuple, join, joinedTuple)) {
+                tuples.push_back(tuple);
+            }
+        }
+        return;
+    }
+
+    const TupleSchema *keySchema = srcIndex->getKeySchema();
+    boost::scoped_array<char> keyBackingStore(new char[keySchema->tupleLength() + 1]);
+    memset(keyBackingStore.get(), 0, keySchema->tupleLength() + 1);
+    TableTuple searchKey(keySchema);
+    searchKey.move(keyBackingStore.get());
+    for (int i = 0; i < keyOrder.size(); i++) {
+        NValue key = joinedTuple.getNValue(keyOrder[i]);
+        // an inner join never matches a NULL key
+        if (key.isNull()) {
+            return;
+        }
+        searchKey.setNValue(i, key);
+    }
+    IndexCursor cursor(srcIndex->getTupleSchema());
+    srcIndex->moveToKey(&searchKey, cursor);
+    TableTuple tuple;
+    while ( ! (tuple = srcIndex->nextValueAtKey(cursor)).isNullTuple()) {
+        tuples.push_back(tuple);
+    }
+}
+
+const TableTuple* MaterializedViewMetadata::joinSourceTuple(const TableTuple &srcTuple,
+                                                            const TableTuple &joinedRow,
+                                                            int overrideJoin,
+                                                            const TableTuple *overrideTuple)
+{
+    if (m_joins.empty()) {
+        return &srcTuple;
+    }
+    if (m_joinedRowSchema == NULL) {
+        resolveJoinedTables();
+        if (m_joinedRowSchema == NULL) {
+            std::string name = m_target->name();
+            throwFatalException("MaterializedViewMetadata for table %s could not find"
+                                " all the tables it joins", name.c_str());
+        }
+    }
+    // Check the given row first, it usually rules the source tuple out.
+    if (overrideJoin >= 0 && ! joinsThrough(srcTuple, overrideJoin, *overrideTuple)) {
+        return NULL;
+    }
+    joinedRow.setNValues(0, srcTuple, 0, srcTuple.sizeInValues());
+    for (int j = 0; j < m_joins.size(); j++) {
+        JoinedTable &join = m_joins[j];
+        TableTuple match;
+        if (j == overrideJoin) {
+            match = *overrideTuple;
+        }
+        else {
+            for (int k = 0; k < join.keyExprs.size(); k++) {
+                NValue key = join.keyExprs[k]->eval(&srcTuple, NULL);
+                // an inner join never matches a NULL key
+                if (key.isNull()) {
+                    return NULL;
+                }
+                join.keyTuple.setNValue(k, key);
+            }
+            IndexCursor cursor(join.index->getTupleSchema());
+            join.index->moveToKey(&join.keyTuple, cursor);
+            match = join.index->nextValueAtKey(cursor);
+            if (match.isNullTuple()) {
+                return NULL;
+            }
+        }
+        joinedRow.setNValues(join.offset, match, 0, match.sizeInValues());
+    }
+    return &joinedRow;
+}
 
 AbstractExpression* MaterializedViewMetadata::parsePredicate(catalog::MaterializedViewInfo *mvInfo)
 {
@@ -301,7 +598,9 @@ NValue MaterializedViewMetadata::findMinMaxFallbackValueIndexed(const TableTuple
     m_indexForMinMax->moveToKey(&m_searchKeyTuple, minMaxCursor);
     VOLT_TRACE("Starting to scan tuples using index %s\n", m_indexForMinMax->debug().c_str());
     TableTuple tuple;
+    int64_t scanned = 0;
     while (!(tuple = m_indexForMinMax->nextValueAtKey(minMaxCursor)).isNullTuple()) {
+        ++scanned;
         // skip the oldTuple and apply post filter
         if (tuple.equals(oldTuple) ||
             (m_filterPredicate && !m_filterPredicate->eval(&tuple, NULL).isTrue())) {
@@ -323,6 +622,7 @@ NValue MaterializedViewMetadata::findMinMaxFallbackValueIndexed(const TableTuple
             VOLT_TRACE("\tAfter: new best %s\n", newVal.debug().c_str());
         }
     }
+    m_target->addMinMaxFallbackScan(scanned);
     return newVal;
 }
 
@@ -341,20 +641,28 @@ NValue MaterializedViewMetadata::findMinMaxFallbackValueSequential(const TableTu
     }
     NValue newVal = initialNull;
     // loop through tuples to find the MIN / MAX
-    bool skippedOne = false;
+    // The deleted tuple is left out with the others leaving through a joined row, if any,
+    // else the first tuple found with the old MIN / MAX value stands for it.
+    bool skippedOne = (m_leavingJoin >= 0);
     TableTuple tuple(m_srcTable->schema());
     TableIterator &iterator = m_srcTable->iterator();
     VOLT_TRACE("Starting iteration on: %s\n", m_srcTable->debug().c_str());
+    int64_t scanned = 0;
     while (iterator.next(tuple)) {
-        // apply post filter
+        ++scanned;
+        // apply join and post filter
         VOLT_TRACE("Checking tuple: %s\n", tuple.debugNoHeader().c_str());
-        if (m_filterPredicate && !m_filterPredicate->eval(&tuple, NULL).isTrue()) {
+        if (m_leavingJoin >= 0 && joinsThrough(tuple, m_leavingJoin, *m_leavingJoinedTuple)) {
+            continue;
+        }
+        const TableTuple *row = joinSourceTuple(tuple, m_scanJoinedRow);
+        if (row == NULL || (m_filterPredicate && !m_filterPredicate->eval(row, NULL).isTrue())) {
             continue;
         }
         VOLT_TRACE("passed 1\n");
         int comparison = 0;
         for (int idx = 0; idx < m_groupByColumnCount; idx++) {
-            NValue foundKey = getGroupByValueFromSrcTuple(idx, tuple);
+            NValue foundKey = getGroupByValueFromSrcTuple(idx, *row);
             comparison = m_searchKeyValue[idx].compare(foundKey);
             if (comparison != 0) {
                 break;
@@ -364,7 +672,7 @@ NValue MaterializedViewMetadata::findMinMaxFallbackValueSequential(const TableTu
             continue;
         }
         VOLT_TRACE("passed 2\n");
-        NValue current = (aggExpr) ? aggExpr->eval(&tuple, NULL) : tuple.getNValue(srcColIdx);
+        NValue current = (aggExpr) ? aggExpr->eval(row, NULL) : row->getNValue(srcColIdx);
         if (current.isNull()) {
             continue;
         }
@@ -385,9 +693,221 @@ NValue MaterializedViewMetadata::findMinMaxFallbackValueSequential(const TableTu
         }
     }
     VOLT_TRACE("\tFinal: new best %s\n", newVal.debug().c_str());
+    m_target->addMinMaxFallbackScan(scanned);
     return newVal;
 }
 
+void MaterializedViewMetadata::initMinMaxTracking()
+{
+    assert(m_minMaxMemory == 0);
+    m_minMaxGroups.clear();
+    m_minMaxSlots.assign(m_aggColumnCount, -1);
+    m_minMaxSlotCount = 0;
+    const TupleSchema *schema = m_target->schema();
+    for (int colindex = 0; colindex < m_groupByColumnCount; colindex++) {
+        if (schema->columnType(colindex) == VALUE_TYPE_DOUBLE) {
+            return;
+        }
+    }
+    int aggOffset = (int)m_groupByColumnCount + 1;
+    for (int aggIndex = 0; aggIndex < m_aggColumnCount; aggIndex++) {
+        if (m_aggTypes[aggIndex] != EXPRESSION_TYPE_AGGREGATE_MIN &&
+            m_aggTypes[aggIndex] != EXPRESSION_TYPE_AGGREGATE_MAX) {
+            continue;
+        }
+        switch (schema->columnType(aggOffset + aggIndex)) {
+        case VALUE_TYPE_TINYINT:
+        case VALUE_TYPE_SMALLINT:
+        case VALUE_TYPE_INTEGER:
+        case VALUE_TYPE_BIGINT:
+        case VALUE_TYPE_TIMESTAMP:
+        case VALUE_TYPE_DOUBLE:
+        case VALUE_TYPE_DECIMAL:
+            m_minMaxSlots[aggIndex] = (int)m_minMaxSlotCount++;
+            break;
+        default:
+            // strings would need their own storage, so they keep using fallback scans
+            break;
+        }
+    }
+}
+
+void MaterializedViewMetadata::buildGroupKey()
+{
+    m_groupKeyOutput.reset();
+    for (int colindex = 0; colindex < m_groupByColumnCount; colindex++) {
+        m_searchKeyValue[colindex].serializeTo(m_groupKeyOutput);
+    }
+    m_groupKey.assign(m_groupKeyOutput.data(), m_groupKeyOutput.size());
+}
+
+void MaterializedViewMetadata::registerMinMaxUndo(int change, const std::vector<NValue> &values, bool fallible)
+{
+    if ( ! fallible) {
+        return;
+    }
+    UndoQuantum *uq = ExecutorContext::currentUndoQuantum();
+    if (uq) {
+        uq->registerUndoAction(new (*uq) MaterializedViewUndoMinMaxAction(this,
+                static_cast<MaterializedViewUndoMinMaxAction::Change>(change), m_groupKey, values));
+    }
+}
+
+void MaterializedViewMetadata::countMinMaxInputs(const TableTuple &tuple, MinMaxGroup &group)
+{
+    if (m_filterPredicate && !m_filterPredicate->eval(&tuple, NULL).isTrue()) {
+        return;
+    }
+    for (int aggIndex = 0; aggIndex < m_aggColumnCount; aggIndex++) {
+        int slot = m_minMaxSlots[aggIndex];
+        if (slot < 0) {
+            continue;
+        }
+        NValue value = getAggInputFromSrcTuple(aggIndex, tuple);
+        if ( ! value.isNull()) {
+            countMinMaxValue(group[slot], value);
+        }
+    }
+}
+
+void MaterializedViewMetadata::trackMinMaxInsert(const TableTuple &newTuple, bool newGroup, bool fallible)
+{
+    buildGroupKey();
+    MinMaxGroup *group;
+    if (newGroup) {
+        group = &resetMinMaxGroup(m_groupKey);
+    }
+    else {
+        MinMaxGroupMap::iterator found = m_minMaxGroups.find(m_groupKey);
+        if (found == m_minMaxGroups.end()) {
+            // not tracked until a delete of its MIN or MAX builds it
+            return;
+        }
+        group = &found->second;
+    }
+    std::vector<NValue> values(m_minMaxSlotCount);
+    for (int aggIndex = 0; aggIndex < m_aggColumnCount; aggIndex++) {
+        int slot = m_minMaxSlots[aggIndex];
+        if (slot < 0) {
+            continue;
+        }
+        values[slot] = getAggInputFromSrcTuple(aggIndex, newTuple);
+        if ( ! values[slot].isNull()) {
+            countMinMaxValue((*group)[slot], values[slot]);
+        }
+    }
+    registerMinMaxUndo(MaterializedViewUndoMinMaxAction::INSERTED, values, fallible);
+}
+
+// Rough sizes of the nodes of the maps, including their links
+static const int64_t MINMAX_VALUE_NODE_MEMORY = sizeof(std::pair<const NValue, int64_t>) + 4 * sizeof(void*);
+
+int64_t MaterializedViewMetadata::minMaxGroupMemory(const std::string &key) const
+{
+    return sizeof(MinMaxGroupMap::value_type) + 2 * sizeof(void*) + key.size() +
+        m_minMaxSlotCount * sizeof(MinMaxValueCounts);
+}
+
+void MaterializedViewMetadata::addMinMaxMemory(int64_t bytes)
+{
+    m_minMaxMemory += bytes;
+    m_target->addMinMaxTrackingMemory(bytes);
+}
+
+MaterializedViewMetadata::MinMaxGroup& MaterializedViewMetadata::resetMinMaxGroup(const std::string &key)
+{
+    MinMaxGroupMap::iterator found = m_minMaxGroups.find(key);
+    if (found == m_minMaxGroups.end()) {
+        found = m_minMaxGroups.insert(std::make_pair(key, MinMaxGroup())).first;
+        addMinMaxMemory(minMaxGroupMemory(key));
+    }
+    else {
+        BOOST_FOREACH(MinMaxValueCounts &counts, found->second) {
+            addMinMaxMemory(-(int64_t)counts.size() * MINMAX_VALUE_NODE_MEMORY);
+        }
+    }
+    found->second.assign(m_minMaxSlotCount, MinMaxValueCounts());
+    return found->second;
+}
+
+void MaterializedViewMetadata::dropMinMaxGroup(MinMaxGroupMap::iterator group)
+{
+    int64_t bytes = minMaxGroupMemory(group->first);
+    BOOST_FOREACH(MinMaxValueCounts &counts, group->second) {
+        bytes += counts.size() * MINMAX_VALUE_NODE_MEMORY;
+    }
+    m_minMaxGroups.erase(group);
+    addMinMaxMemory(-bytes);
+}
+
+void MaterializedViewMetadata::countMinMaxValue(MinMaxValueCounts &counts, const NValue &value)
+{
+    if (++counts[value] == 1) {
+        addMinMaxMemory(MINMAX_VALUE_NODE_MEMORY);
+    }
+}
+
+bool MaterializedViewMetadata::uncountMinMaxValue(MinMaxValueCounts &counts, const NValue &value)
+{
+    MinMaxValueCounts::iterator found = counts.find(value);
+    if (found == counts.end()) {
+        return false;
+    }
+    if (--(found->second) == 0) {
+        counts.erase(found);
+        addMinMaxMemory(-MINMAX_VALUE_NODE_MEMORY);
+    }
+    return true;
+}
+
+MaterializedViewMetadata::MinMaxGroup* MaterializedViewMetadata::buildMinMaxGroup(const TableTuple &oldTuple,
+                                                                                  const TableTuple &oldRow,
+                                                                                  bool fallible)
+{
+    MinMaxGroup &group = resetMinMaxGroup(m_groupKey);
+    int64_t scanned = 0;
+    TableTuple tuple(m_srcTable->schema());
+    // The tuple being deleted or updated may or may not still be found by the scan,
+    // so it is skipped by address and counted on its own below.
+    if (m_indexForMinMax) {
+        IndexCursor minMaxCursor(m_indexForMinMax->getTupleSchema());
+        m_indexForMinMax->moveToKey(&m_searchKeyTuple, minMaxCursor);
+        while ( ! (tuple = m_indexForMinMax->nextValueAtKey(minMaxCursor)).isNullTuple()) {
+            ++scanned;
+            if (tuple.address() != oldTuple.address()) {
+                countMinMaxInputs(tuple, group);
+            }
+        }
+    }
+    else {
+        TableIterator &iterator = m_srcTable->iterator();
+        while (iterator.next(tuple)) {
+            ++scanned;
+            if (tuple.address() == oldTuple.address()) {
+                continue;
+            }
+            const TableTuple *row = joinSourceTuple(tuple, m_scanJoinedRow);
+            if (row == NULL) {
+                continue;
+            }
+            int comparison = 0;
+            for (int idx = 0; idx < m_groupByColumnCount; idx++) {
+                comparison = m_searchKeyValue[idx].compare(getGroupByValueFromSrcTuple(idx, *row));
+                if (comparison != 0) {
+                    break;
+                }
+            }
+            if (comparison == 0) {
+                countMinMaxInputs(*row, group);
+            }
+        }
+    }
+    countMinMaxInputs(oldRow, group);
+    m_target->addMinMaxFallbackScan(scanned);
+    registerMinMaxUndo(MaterializedViewUndoMinMaxAction::BUILT, std::vector<NValue>(), fallible);
+    return &group;
+}
+
 void MaterializedViewMetadata::initializeTupleHavingNoGroupBy()
 {
     // clear the tuple that will be built to insert or overwrite
@@ -409,12 +929,81 @@ void MaterializedViewMetadata::initializeTupleHavingNoGroupBy()
 }
 
 void MaterializedViewMetadata::processTupleInsert(const TableTuple &newTuple, bool fallible)
+{
+    // don't change a join view if this tuple doesn't join
+    const TableTuple *newRow = joinSourceTuple(newTuple, m_joinedRow);
+    if (newRow) {
+        processSourceRowInsert(*newRow, fallible);
+    }
+}
+
+void MaterializedViewMetadata::processTupleDelete(const TableTuple &oldTuple, bool fallible)
+{
+    const TableTuple *oldRow = joinSourceTuple(oldTuple, m_joinedRow);
+    if (oldRow) {
+        processSourceRowDelete(oldTuple, *oldRow, fallible);
+    }
+}
+
+void MaterializedViewMetadata::processJoinedTupleInsert(PersistentTable *joinedTable,
+                                                        const TableTuple &newTuple,
+                                                        bool fallible)
+{
+    int join = findJoin(joinedTable);
+    if (join < 0) {
+        return;
+    }
+    std::vector<TableTuple> tuples;
+    findJoiningSourceTuples(join, newTuple, tuples);
+    BOOST_FOREACH(const TableTuple &tuple, tuples) {
+        const TableTuple *newRow = joinSourceTuple(tuple, m_joinedRow, join, &newTuple);
+        if (newRow) {
+            processSourceRowInsert(*newRow, fallible);
+        }
+    }
+}
+
+void MaterializedViewMetadata::processJoinedTupleDelete(PersistentTable *joinedTable,
+                                                        const TableTuple &oldTuple,
+                                                        bool fallible)
+{
+    int join = findJoin(joinedTable);
+    if (join < 0) {
+        return;
+    }
+    m_leavingJoin = join;
+    m_leavingJoinedTuple = &oldTuple;
+    try {
+        std::vector<TableTuple> tuples;
+        findJoiningSourceTuples(join, oldTuple, tuples);
+        BOOST_FOREACH(const TableTuple &tuple, tuples) {
+            const TableTuple *oldRow = joinSourceTuple(tuple, m_joinedRow, join, &oldTuple);
+            if (oldRow) {
+                processSourceRowDelete(tuple, *oldRow, fallible);
+            }
+        }
+    }
+    catch (...) {
+        m_leavingJoin = -1;
+        m_leavingJoinedTuple = NULL;
+        throw;
+    }
+    m_leavingJoin = -1;
+    m_leavingJoinedTuple = NULL;
+}
+
+void MaterializedViewMetadata::processSourceRowInsert(const TableTuple &newTuple, bool fallible)
 {
     // don't change the view if this tuple doesn't match the predicate
     if (m_filterPredicate && !m_filterPredicate->eval(&newTuple, NULL).isTrue()) {
         return;
     }
     bool exists = findExistingTuple(newTuple);
+    if (m_minMaxSlotCount != 0) {
+        // A view with no group by keeps its row even when it counts no source rows.
+        bool newGroup = !exists || m_existingTuple.getNValue((int)m_groupByColumnCount).isZero();
+        trackMinMaxInsert(newTuple, newGroup, fallible);
+    }
     if (!exists) {
         // create a blank tuple
         VOLT_TRACE("newTuple does not exist,create a blank tuple");
@@ -504,13 +1093,15 @@ void MaterializedViewMetadata::processTupleInsert(const TableTuple &newTuple, bo
     }
 }
 
-void MaterializedViewMetadata::processTupleDelete(const TableTuple &oldTuple, bool fallible)
+void MaterializedViewMetadata::processSourceRowDelete(const TableTuple &oldTuple,
+                                                      const TableTuple &oldRow,
+                                                      bool fallible)
 {
     // don't change the view if this tuple doesn't match the predicate
-    if (m_filterPredicate && !m_filterPredicate->eval(&oldTuple, NULL).isTrue())
+    if (m_filterPredicate && !m_filterPredicate->eval(&oldRow, NULL).isTrue())
         return;
 
-    if ( ! findExistingTuple(oldTuple)) {
+    if ( ! findExistingTuple(oldRow)) {
         std::string name = m_target->name();
         throwFatalException("MaterializedViewMetadata for table %s went"
                             " looking for a tuple in the view and"
@@ -523,6 +1114,58 @@ void MaterializedViewMetadata::processTupleDelete(const TableTuple &oldTuple, bo
     // set up the first column, which is a count
     NValue count = m_existingTuple.getNValue((int)m_groupByColumnCount).op_decrement();
 
+    int aggOffset = (int)m_groupByColumnCount + 1;
+    // find the MIN / MAX value counts of the group, building them if the deleted
+    // tuple holds a current MIN or MAX and the group isn't tracked yet
+    MinMaxGroup *group = NULL;
+    std::vector<NValue> minMaxValues(m_minMaxSlotCount);
+    if (m_minMaxSlotCount != 0) {
+        buildGroupKey();
+        bool holdsMinOrMax = false;
+        for (int aggIndex = 0; aggIndex < m_aggColumnCount; aggIndex++) {
+            int slot = m_minMaxSlots[aggIndex];
+            if (slot < 0) {
+                continue;
+            }
+            minMaxValues[slot] = getAggInputFromSrcTuple(aggIndex, oldRow);
+            if ( ! minMaxValues[slot].isNull() &&
+                minMaxValues[slot].compare(m_existingTuple.getNValue(aggOffset+aggIndex)) == 0) {
+                holdsMinOrMax = true;
+            }
+        }
+        MinMaxGroupMap::iterator found = m_minMaxGroups.find(m_groupKey);
+        if (found != m_minMaxGroups.end()) {
+            if (count.isZero()) {
+                dropMinMaxGroup(found);
+                registerMinMaxUndo(MaterializedViewUndoMinMaxAction::DROPPED, minMaxValues, fallible);
+            }
+            else {
+                group = &found->second;
+            }
+        }
+        // The tuples leaving through a joined row are not all deleted yet, so a group
+        // built now would count the wrong ones. The scan for a new MIN / MAX skips them.
+        else if (holdsMinOrMax && ! count.isZero() && m_leavingJoin < 0) {
+            group = buildMinMaxGroup(oldTuple, oldRow, fallible);
+        }
+        if (group) {
+            for (int slot = 0; slot < m_minMaxSlotCount; slot++) {
+                if (minMaxValues[slot].isNull()) {
+                    continue;
+                }
+                if ( ! uncountMinMaxValue((*group)[slot], minMaxValues[slot])) {
+                    // out of step with the source table: forget the group and scan instead
+                    dropMinMaxGroup(m_minMaxGroups.find(m_groupKey));
+                    group = NULL;
+                    break;
+                }
+            }
+            if (group) {
+                registerMinMaxUndo(MaterializedViewUndoMinMaxAction::DELETED, minMaxValues, fallible);
+            }
+        }
+    }
+
     // check if we should remove the tuple
     if (count.isZero()) {
         m_target->deleteTuple(m_existingTuple, fallible);
@@ -546,11 +1189,10 @@ void MaterializedViewMetadata::processTupleDelete(const TableTuple &oldTuple, bo
 
     m_updatedTuple.setNValue((int)m_groupByColumnCount, count);
 
-    int aggOffset = (int)m_groupByColumnCount + 1;
     // set values for the other columns
     for (int aggIndex = 0; aggIndex < m_aggColumnCount; aggIndex++) {
         NValue existingValue = m_existingTuple.getNValue(aggOffset+aggIndex);
-        NValue oldValue = getAggInputFromSrcTuple(aggIndex, oldTuple);
+        NValue oldValue = getAggInputFromSrcTuple(aggIndex, oldRow);
         NValue newValue = existingValue;
         if ( ! oldValue.isNull()) {
             int reversedForMin = 1; // initially assume that agg is not MIN.
@@ -569,13 +1211,20 @@ void MaterializedViewMetadata::processTupleDelete(const TableTuple &oldTuple, bo
                     // re-calculate MIN / MAX
                     newValue = NValue::getNullValue(m_target->schema()->columnType(aggOffset+aggIndex));
 
-                    // indexscan if an index is available, otherwise tablescan
-                    if (m_indexForMinMax) {
+                    // take it from the group's value counts if they are tracked,
+                    // else indexscan if an index is available, otherwise tablescan
+                    int slot = m_minMaxSlots[aggIndex];
+                    if (group && slot >= 0) {
+                        const MinMaxValueCounts &counts = (*group)[slot];
+                        if ( ! counts.empty()) {
+                            newValue = (reversedForMin == -1) ? counts.begin()->first : counts.rbegin()->first;
+                        }
+                    } else if (m_indexForMinMax) {
                         newValue = findMinMaxFallbackValueIndexed(oldTuple, existingValue, newValue,
                                                                   reversedForMin, aggIndex);
                     } else {
                         VOLT_TRACE("before findMinMaxFallbackValueSequential\n");
-                        newValue = findMinMaxFallbackValueSequential(oldTuple, existingValue, newValue,
+                        newValue = findMinMaxFallbackValueSequential(oldRow, existingValue, newValue,
                                                                      reversedForMin, aggIndex);
                         VOLT_TRACE("after findMinMaxFallbackValueSequential\n");
                     }
@@ -18,10 +18,14 @@
 #ifndef MATERIALIZEDVIEWMETADATA_H_
 #define MATERIALIZEDVIEWMETADATA_H_
 
+#include <map>
+#include <string>
 #include <vector>
 
+#include "boost/unordered_map.hpp"
 #include "common/types.h"
 #include "common/tabletuple.h"
+#include "common/serializeio.h"
 #include "indexes/tableindex.h"
 #include "catalog/materializedviewinfo.h"
 
@@ -36,8 +40,15 @@ class TableIndex;
  * a source table. An instance sits between the two tables translasting changes in one table
  * into changes in another table. It loads all this information from the catalog in its
  * constructor.
+ *
+ * A view over a join also looks up, for each source tuple, the one matching row of each
+ * joined (replicated) table through a unique index of that table. The view's expressions
+ * are evaluated against a joined row of the source tuple's columns followed by the columns
+ * of each joined row. Changes to a joined table are applied by re-joining the source tuples
+ * that matched the changed row.
  */
 class MaterializedViewMetadata {
+    friend class MaterializedViewUndoMinMaxAction;
 public:
 
     MaterializedViewMetadata(PersistentTable *srcTable, PersistentTable *destTable, catalog::MaterializedViewInfo *mvInfo);
@@ -55,6 +66,26 @@ public:
      */
     void processTupleDelete(const TableTuple &oldTuple, bool fallible);
 
+    /**
+     * Called when a table joined into the view has inserted a tuple, or updated
+     * one to its new values. Adds the source tuples that now join it to the view.
+     */
+    void processJoinedTupleInsert(PersistentTable *joinedTable, const TableTuple &newTuple, bool fallible);
+
+    /**
+     * Called when a table joined into the view is about to delete a tuple, or to update
+     * it from its old values. Removes the source tuples that join it from the view.
+     */
+    void processJoinedTupleDelete(PersistentTable *joinedTable, const TableTuple &oldTuple, bool fallible);
+
+    /** Called when a table joined into the view goes away, e.g. after a schema change */
+    void dropJoinedTable(PersistentTable *joinedTable);
+
+    /** (Re)connect to the current definitions of the joined tables, by name */
+    void resolveJoinedTables();
+
+    bool isJoinView() const { return ! m_joins.empty(); }
+
     void initializeTupleHavingNoGroupBy();
 
     PersistentTable * targetTable() const { return m_target; }
@@ -68,9 +99,70 @@ public:
     }
 private:
 
+    // Counted multiset of the non-null MIN / MAX input values of one view group
+    typedef std::map<NValue, int64_t, NValue::ltNValue> MinMaxValueCounts;
+    // One multiset per tracked MIN / MAX column, indexed by m_minMaxSlots
+    typedef std::vector<MinMaxValueCounts> MinMaxGroup;
+    // Tracked groups, keyed by their serialized group by values
+    typedef boost::unordered_map<std::string, MinMaxGroup> MinMaxGroupMap;
+
+    /**
+     * Serializes the group by values of a tuple into an owned key.
+     * Grows its own buffer instead of writing into a fixed one.
+     */
+    class GroupKeyOutput : public SerializeOutput {
+    public:
+        GroupKeyOutput() : m_bytes(256) { initialize(&m_bytes[0], m_bytes.size()); }
+        void reset() { setPosition(0); }
+    protected:
+        virtual void expand(size_t minimum_desired) {
+            m_bytes.resize(minimum_desired * 2);
+            initialize(&m_bytes[0], m_bytes.size());
+        }
+    private:
+        std::vector<char> m_bytes;
+    };
+
+    /** A table joined into the view, with the unique index used to find its one matching row */
+    struct JoinedTable {
+        std::string tableName;
+        std::string indexName;
+        // evaluated on a source tuple to build the lookup key
+        std::vector<AbstractExpression *> keyExprs;
+        PersistentTable *table;
+        TableIndex *index;
+        // where the joined table's columns start in the joined row
+        int offset;
+        TableTuple keyTuple;
+        char *keyBackingStore;
+    };
+
     void freeBackedTuples();
     void allocateBackedTuples();
 
+    void parseJoins(catalog::MaterializedViewInfo *mvInfo);
+    void freeJoinedRows();
+    /**
+     * Return the row the view's expressions evaluate on for a source tuple: the tuple itself,
+     * or for a join view the tuple joined into joinedRow, or NULL if some table has no match.
+     * If overrideJoin is a join's position, that table's row is taken to be overrideTuple,
+     * and it only matches if its key columns are equal to the source tuple's lookup key.
+     */
+    const TableTuple* joinSourceTuple(const TableTuple &srcTuple, const TableTuple &joinedRow,
+                                      int overrideJoin = -1, const TableTuple *overrideTuple = NULL);
+    int findJoin(PersistentTable *joinedTable);
+    /** Whether the lookup key of a source tuple for a join matches the key columns of joinedTuple */
+    bool joinsThrough(const TableTuple &srcTuple, int join, const TableTuple &joinedTuple);
+    /**
+     * Collect the source tuples whose lookup key for a join matches the key columns of
+     * joinedTuple, through an index of the source table on the key columns if there is one.
+     */
+    void findJoiningSourceTuples(int join, const TableTuple &joinedTuple, std::vector<TableTuple> &tuples);
+
+    /** the inserts and deletes of the rows the view's expressions evaluate on */
+    void processSourceRowInsert(const TableTuple &newTuple, bool fallible);
+    void processSourceRowDelete(const TableTuple &oldTuple, const TableTuple &oldRow, bool fallible);
+
     /** load a predicate from the catalog structure if it's there */
     static AbstractExpression* parsePredicate(catalog::MaterializedViewInfo *mvInfo);
 
@@ -97,6 +189,34 @@ private:
                                              int negate_for_min,
                                              int aggIndex);
 
+    /** decide which MIN / MAX columns can be maintained from per-group value counts */
+    void initMinMaxTracking();
+    /** serialize m_searchKeyValue into m_groupKey */
+    void buildGroupKey();
+    /** count a new source tuple's MIN / MAX inputs into its group, if the group is tracked */
+    void trackMinMaxInsert(const TableTuple &newTuple, bool newGroup, bool fallible);
+    /**
+     * Scan the source table for the rows of the current group and build its value counts.
+     * Used once per group that existed before tracking started, e.g. after a schema change.
+     */
+    MinMaxGroup* buildMinMaxGroup(const TableTuple &oldTuple, const TableTuple &oldRow, bool fallible);
+    /** count the MIN / MAX inputs of a source tuple that passes the view's filter */
+    void countMinMaxInputs(const TableTuple &tuple, MinMaxGroup &group);
+    void registerMinMaxUndo(int action, const std::vector<NValue> &values, bool fallible);
+
+    /*
+     * All changes to m_minMaxGroups go through these, so m_minMaxMemory stays current.
+     */
+    /** an empty group for key, replacing the counts of any group already there */
+    MinMaxGroup& resetMinMaxGroup(const std::string &key);
+    void dropMinMaxGroup(MinMaxGroupMap::iterator group);
+    void countMinMaxValue(MinMaxValueCounts &counts, const NValue &value);
+    /** false if the value wasn't counted */
+    bool uncountMinMaxValue(MinMaxValueCounts &counts, const NValue &value);
+    /** the estimated memory of a group's entry, without its values */
+    int64_t minMaxGroupMemory(const std::string &key) const;
+    void addMinMaxMemory(int64_t bytes);
+
     // the source persistent table
     PersistentTable *m_srcTable;
     // the materialized view table
@@ -151,6 +271,34 @@ private:
     // aggregated columns, but there might be some other mostly harmless ones in there that are based
     // solely on the immutable primary key (GROUP BY columns).
     std::vector<TableIndex*> m_updatableIndexList;
+
+    // For each agg column, its slot in a MinMaxGroup, or -1 if it is not a MIN / MAX
+    // that can be maintained incrementally. Only fixed width values are counted, and
+    // no group is tracked if a group by value is a FLOAT (-0.0 and 0.0 group together
+    // but do not serialize alike).
+    std::vector<int> m_minMaxSlots;
+    std::size_t m_minMaxSlotCount;
+    MinMaxGroupMap m_minMaxGroups;
+    // estimated bytes used by m_minMaxGroups, also reported by the view table
+    int64_t m_minMaxMemory;
+    GroupKeyOutput m_groupKeyOutput;
+    std::string m_groupKey;
+
+    // the tables joined to the source table, in FROM clause order
+    std::vector<JoinedTable> m_joins;
+    // a source tuple's columns followed by the columns of each joined table
+    TupleSchema *m_joinedRowSchema;
+    // the joined row of the tuple being inserted or deleted
+    TableTuple m_joinedRow;
+    char *m_joinedRowBackingStore;
+    // the joined row of a tuple found by a scan of the source table
+    TableTuple m_scanJoinedRow;
+    char *m_scanJoinedRowBackingStore;
+    // While a joined table's row is deleted or updated, the join it belongs to and the row.
+    // It is still in its index with its old values, but every source tuple joined through
+    // it is leaving its group, so the scans for a new MIN / MAX leave them out.
+    int m_leavingJoin;
+    const TableTuple *m_leavingJoinedTuple;
 };
 
 } // namespace voltdb
@@ -0,0 +1,114 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef MATERIALIZEDVIEWUNDOMINMAXACTION_H_
+#define MATERIALIZEDVIEWUNDOMINMAXACTION_H_
+
+#include <string>
+#include <vector>
+
+#include "common/UndoAction.h"
+#include "storage/MaterializedViewMetadata.h"
+
+namespace voltdb {
+
+/**
+ * Reverts a change to the MIN / MAX value counts of one view group.
+ * The view table rolls its own rows back, so the counts have to follow.
+ * Whenever the counts can't be restored exactly the group is just forgotten,
+ * which makes the next delete of its MIN or MAX rebuild it with a scan.
+ */
+class MaterializedViewUndoMinMaxAction: public voltdb::UndoAction {
+public:
+    enum Change {
+        // source values were counted into an existing group
+        INSERTED,
+        // source values were removed from a group that still has rows
+        DELETED,
+        // the last row of a group was deleted and the group was dropped
+        DROPPED,
+        // the group was built by scanning the source table
+        BUILT
+    };
+
+    inline MaterializedViewUndoMinMaxAction(MaterializedViewMetadata *view,
+                                            Change change,
+                                            const std::string &groupKey,
+                                            const std::vector<NValue> &values)
+        : m_view(view), m_change(change), m_groupKey(groupKey), m_values(values)
+    { }
+
+    virtual ~MaterializedViewUndoMinMaxAction() { }
+
+    virtual void undo() {
+        MaterializedViewMetadata::MinMaxGroupMap &groups = m_view->m_minMaxGroups;
+        MaterializedViewMetadata::MinMaxGroupMap::iterator found = groups.find(m_groupKey);
+        if (m_change == DROPPED) {
+            // The group had exactly this one row before it was dropped.
+            addValues(m_view->resetMinMaxGroup(m_groupKey));
+            return;
+        }
+        if (found == groups.end()) {
+            return;
+        }
+        if (m_change == BUILT) {
+            m_view->dropMinMaxGroup(found);
+        }
+        else if (m_change == DELETED) {
+            addValues(found->second);
+        }
+        else if ( ! removeValues(found->second)) {
+            m_view->dropMinMaxGroup(found);
+        }
+    }
+
+    /*
+     * Release any resources held by the undo action. It will not need
+     * to be undone in the future.
+     */
+    void release() { }
+private:
+    void addValues(MaterializedViewMetadata::MinMaxGroup &group) {
+        for (size_t slot = 0; slot < m_values.size(); slot++) {
+            if ( ! m_values[slot].isNull()) {
+                m_view->countMinMaxValue(group[slot], m_values[slot]);
+            }
+        }
+    }
+
+    // Returns false if a value was missing or the group no longer counts anything.
+    bool removeValues(MaterializedViewMetadata::MinMaxGroup &group) {
+        bool empty = true;
+        for (size_t slot = 0; slot < m_values.size(); slot++) {
+            if ( ! m_values[slot].isNull() &&
+                ! m_view->uncountMinMaxValue(group[slot], m_values[slot])) {
+                return false;
+            }
+            empty = empty && group[slot].empty();
+        }
+        return ! empty;
+    }
+
+    MaterializedViewMetadata *m_view;
+    Change m_change;
+    std::string m_groupKey;
+    std::vector<NValue> m_values;
+};
+
+}
+
+#endif /* MATERIALIZEDVIEWUNDOMINMAXACTION_H_ */
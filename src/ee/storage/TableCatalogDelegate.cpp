@@ -173,6 +173,12 @@ getIndexIdFromMap(TableIndexType type, bool countable, bool isUnique,
         case HASH_TABLE_INDEX:
             retval += "H";
             break;
+        case BTREE_INDEX:
+            retval += "T";
+            break;
+        case OPEN_HASH_TABLE_INDEX:
+            retval += "O";
+            break;
         default:
             // this would need to change if we added index types
             assert(false);
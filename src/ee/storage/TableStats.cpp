@@ -39,6 +39,9 @@ vector<string> TableStats::generateTableStatsColumnNames() {
     columnNames.push_back("STRING_DATA_MEMORY");
     columnNames.push_back("TUPLE_LIMIT");
     columnNames.push_back("PERCENT_FULL");
+    columnNames.push_back("MINMAX_FALLBACK_SCANS");
+    columnNames.push_back("MINMAX_FALLBACK_TUPLES");
+    columnNames.push_back("MINMAX_TRACKING_MEMORY");
     return columnNames;
 }
 
@@ -56,6 +59,9 @@ void TableStats::populateTableStatsSchema(
     types.push_back(VALUE_TYPE_INTEGER); columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_INTEGER)); allowNull.push_back(false);inBytes.push_back(false);
     types.push_back(VALUE_TYPE_INTEGER); columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_INTEGER)); allowNull.push_back(false);inBytes.push_back(false);
     types.push_back(VALUE_TYPE_INTEGER); columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_INTEGER)); allowNull.push_back(false);inBytes.push_back(false);
+    types.push_back(VALUE_TYPE_BIGINT);  columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));  allowNull.push_back(false);inBytes.push_back(false);
+    types.push_back(VALUE_TYPE_BIGINT);  columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));  allowNull.push_back(false);inBytes.push_back(false);
+    types.push_back(VALUE_TYPE_INTEGER); columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_INTEGER)); allowNull.push_back(false);inBytes.push_back(false);
 }
 
 Table*
@@ -91,7 +97,8 @@ TableStats::generateEmptyTableStatsTable()
 TableStats::TableStats(Table* table)
     : StatsSource(), m_table(table), m_lastTupleCount(0),
       m_lastAllocatedTupleMemory(0), m_lastOccupiedTupleMemory(0),
-      m_lastStringDataMemory(0)
+      m_lastStringDataMemory(0), m_lastMinMaxFallbackScans(0),
+      m_lastMinMaxFallbackTuples(0), m_lastMinMaxTrackingMemory(0)
 {
 }
 
@@ -137,6 +144,9 @@ void TableStats::updateStatsTuple(TableTuple *tuple) {
         occupied_tuple_mem_kb = m_table->occupiedTupleMemory() / 1024;
     }
     int64_t string_data_mem_kb = m_table->nonInlinedMemorySize() / 1024;
+    int64_t minMaxFallbackScans = m_table->minMaxFallbackScans();
+    int64_t minMaxFallbackTuples = m_table->minMaxFallbackTuplesScanned();
+    int64_t minmax_tracking_mem_kb = m_table->minMaxTrackingMemory() / 1024;
 
     if (interval()) {
         tupleCount = tupleCount - m_lastTupleCount;
@@ -150,6 +160,13 @@ void TableStats::updateStatsTuple(TableTuple *tuple) {
         string_data_mem_kb =
             string_data_mem_kb - (m_lastStringDataMemory / 1024);
         m_lastStringDataMemory = m_table->nonInlinedMemorySize();
+        minMaxFallbackScans = minMaxFallbackScans - m_lastMinMaxFallbackScans;
+        m_lastMinMaxFallbackScans = m_table->minMaxFallbackScans();
+        minMaxFallbackTuples = minMaxFallbackTuples - m_lastMinMaxFallbackTuples;
+        m_lastMinMaxFallbackTuples = m_table->minMaxFallbackTuplesScanned();
+        minmax_tracking_mem_kb =
+            minmax_tracking_mem_kb - (m_lastMinMaxTrackingMemory / 1024);
+        m_lastMinMaxTrackingMemory = m_table->minMaxTrackingMemory();
     }
 
     if (string_data_mem_kb > INT32_MAX)
@@ -164,6 +181,10 @@ void TableStats::updateStatsTuple(TableTuple *tuple) {
     {
         occupied_tuple_mem_kb = -1;
     }
+    if (minmax_tracking_mem_kb > INT32_MAX)
+    {
+        minmax_tracking_mem_kb = -1;
+    }
 
     tuple->setNValue(
             StatsSource::m_columnName2Index["TUPLE_COUNT"],
@@ -183,6 +204,12 @@ void TableStats::updateStatsTuple(TableTuple *tuple) {
         percentage = static_cast<int32_t> (ceil(static_cast<double>(tupleCount) * 100.0 / tupleLimit));
     }
     tuple->setNValue(StatsSource::m_columnName2Index["PERCENT_FULL"],ValueFactory::getIntegerValue(percentage));
+    tuple->setNValue(StatsSource::m_columnName2Index["MINMAX_FALLBACK_SCANS"],
+            ValueFactory::getBigIntValue(minMaxFallbackScans));
+    tuple->setNValue(StatsSource::m_columnName2Index["MINMAX_FALLBACK_TUPLES"],
+            ValueFactory::getBigIntValue(minMaxFallbackTuples));
+    tuple->setNValue(StatsSource::m_columnName2Index["MINMAX_TRACKING_MEMORY"],
+            ValueFactory::getIntegerValue(static_cast<int32_t>(minmax_tracking_mem_kb)));
 }
 
 /**
@@ -67,10 +67,22 @@ void TableStreamerContext::updatePredicates(const std::vector<std::string> &pred
     // Throws an exception to be handled by caller on errors.
     std::ostringstream errmsg;
     m_predicates.clear();
-    if (!m_predicates.parseStrings(predicateStrings, errmsg, m_predicateDeleteFlags)) {
+    m_predicateProjections.clear();
+    if (!m_predicates.parseStrings(predicateStrings, errmsg, m_predicateDeleteFlags,
+                                   m_predicateProjections)) {
         const char* details = errmsg.str().c_str();
         throwFatalException("TableStreamerContext() failed to parse predicate strings: %s", details);
     }
+    const int columnCount = m_table.schema()->columnCount();
+    for (std::size_t i = 0; i < m_predicateProjections.size(); i++) {
+        const std::vector<int> &projection = m_predicateProjections[i];
+        for (std::size_t j = 0; j < projection.size(); j++) {
+            if (projection[j] < 0 || projection[j] >= columnCount) {
+                throwFatalException("TableStreamerContext() got projected column %d of a table with %d columns",
+                                    projection[j], columnCount);
+            }
+        }
+    }
 }
 
 }
@@ -197,6 +197,14 @@ protected:
         return m_predicateDeleteFlags;
     }
 
+    /**
+     * Per-predicate column projections accessor.
+     */
+    std::vector<std::vector<int> > &getPredicateProjections()
+    {
+        return m_predicateProjections;
+    }
+
     PersistentTableSurgeon &m_surgeon;
 
     /**
@@ -216,6 +224,11 @@ private:
      */
     std::vector<bool> m_predicateDeleteFlags;
 
+    /**
+     * Per-predicate columns to serialize, empty to serialize all of them.
+     */
+    std::vector<std::vector<int> > m_predicateProjections;
+
     /**
      * Maximum serialized length of a tuple
      */
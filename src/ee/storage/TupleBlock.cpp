@@ -24,7 +24,7 @@ namespace voltdb {
 
 volatile int tupleBlocksAllocated = 0;
 
-TupleBlock::TupleBlock(Table *table, TBBucketPtr bucket) :
+TupleBlock::TupleBlock(Table *table, TBBucketPtr bucket, int64_t id) :
         m_storage(NULL),
         m_references(0),
         m_tupleLength(table->m_tupleLength),
@@ -34,7 +34,9 @@ TupleBlock::TupleBlock(Table *table, TBBucketPtr bucket) :
         m_lastCompactionOffset(0),
         m_tuplesPerBlockDivNumBuckets(m_tuplesPerBlock / static_cast<double>(TUPLE_BLOCK_NUM_BUCKETS)),
         m_bucket(bucket),
-        m_bucketIndex(0)
+        m_bucketIndex(0),
+        m_id(id),
+        m_dirty(true)
 {
 #ifdef USE_MMAP
     size_t tableAllocationSize = static_cast<size_t> (m_tupleLength * m_tuplesPerBlock);
@@ -117,6 +119,8 @@ std::pair<int, int> TupleBlock::merge(Table *table, TBPtr source, TupleMovementL
         }
 
         source->freeTuple(sourceTupleWithNewValues.address());
+        markDirty();
+        source->markDirty();
     }
     source->lastCompactionOffset(m_nextTupleInSourceOffset);
 
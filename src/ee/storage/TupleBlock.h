@@ -88,7 +88,7 @@ class TupleBlock {
     friend void ::intrusive_ptr_add_ref(voltdb::TupleBlock * p);
     friend void ::intrusive_ptr_release(voltdb::TupleBlock * p);
 public:
-    TupleBlock(Table *table, TBBucketPtr bucket);
+    TupleBlock(Table *table, TBBucketPtr bucket, int64_t id = 0);
 
     double loadFactor() {
         return m_activeTuples / m_tuplesPerBlock;
@@ -222,6 +222,30 @@ public:
     inline TBBucketPtr currentBucket() {
         return m_bucket;
     }
+
+    /**
+     * Identifies the block among the blocks of its table, for the lifetime of the table.
+     * Incremental snapshots tag every row with the id of the block it was read from.
+     */
+    inline int64_t id() const {
+        return m_id;
+    }
+
+    /**
+     * A block is dirty if its contents may have changed since the last snapshot that
+     * tracked blocks. New blocks start dirty.
+     */
+    inline bool isDirty() const {
+        return m_dirty;
+    }
+
+    inline void markDirty() {
+        m_dirty = true;
+    }
+
+    inline void markClean() {
+        m_dirty = false;
+    }
 private:
     char*   m_storage;
     uint32_t m_references;
@@ -243,6 +267,8 @@ private:
 
     TBBucketPtr m_bucket;
     int m_bucketIndex;
+    const int64_t m_id;
+    bool m_dirty;
 };
 
 /**
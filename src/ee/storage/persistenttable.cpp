@@ -96,8 +96,13 @@ PersistentTable::PersistentTable(int partitionColumn, char * signature, bool isM
     m_partitionColumn(partitionColumn),
     m_tupleLimit(tupleLimit),
     m_purgeExecutorVector(),
+    m_minMaxFallbackScans(0),
+    m_minMaxFallbackTuplesScanned(0),
+    m_minMaxTrackingMemory(0),
     stats_(this),
     m_failedCompactionCount(0),
+    m_nextBlockId(0),
+    m_blockTrackingEnabled(false),
     m_invisibleTuplesPendingDeleteCount(0),
     m_surgeon(*this),
     m_isMaterialized(isMaterialized),
@@ -139,6 +144,11 @@ PersistentTable::~PersistentTable()
         delete m_views[i];
     }
 
+    // views joining this table look it up again if they are still needed
+    BOOST_FOREACH(MaterializedViewMetadata *joinedView, m_joinedViews) {
+        joinedView->dropJoinedTable(this);
+    }
+
     // Indexes are deleted in parent class Table destructor.
 }
 
@@ -171,6 +181,7 @@ void PersistentTable::nextFreeTuple(TableTuple *tuple) {
         }
 
         tuple->move(retval.first);
+        block->markDirty();
         ++m_tupleCount;
         if (!block->hasFreeTuples()) {
             m_blocksWithSpace.erase(block);
@@ -277,6 +288,17 @@ void PersistentTable::truncateTableRelease(PersistentTable *originalTable) {
 
 
 void PersistentTable::truncateTable(VoltDBEngine* engine, bool fallible) {
+    // A view over a join is kept up to date one row at a time, so a table that
+    // feeds one can't just be swapped for an empty copy.
+    bool feedsJoinView = ! m_joinedViews.empty();
+    BOOST_FOREACH(MaterializedViewMetadata *view, m_views) {
+        feedsJoinView = feedsJoinView || view->isJoinView();
+    }
+    if (feedsJoinView) {
+        deleteAllTuples(true);
+        return;
+    }
+
     TableCatalogDelegate * tcd = engine->getTableDelegate(m_name);
     assert(tcd);
 
@@ -467,6 +489,9 @@ void PersistentTable::insertTupleCommon(TableTuple &source, TableTuple &target,
     for (int i = 0; i < m_views.size(); i++) {
         m_views[i]->processTupleInsert(target, fallible);
     }
+    for (int i = 0; i < m_joinedViews.size(); i++) {
+        m_joinedViews[i]->processJoinedTupleInsert(this, target, fallible);
+    }
 }
 
 /*
@@ -547,6 +572,13 @@ bool PersistentTable::updateTupleWithSpecificIndexes(TableTuple &targetTupleToUp
         m_tableStreamer->notifyTupleUpdate(targetTupleToUpdate);
     }
 
+    if (m_blockTrackingEnabled) {
+        TBPtr block = findBlock(targetTupleToUpdate.address(), m_data, m_tableAllocationSize);
+        if (block.get() != NULL) {
+            block->markDirty();
+        }
+    }
+
     /**
      * Remove the current tuple from any indexes.
      */
@@ -574,6 +606,9 @@ bool PersistentTable::updateTupleWithSpecificIndexes(TableTuple &targetTupleToUp
     for (int i = 0; i < m_views.size(); i++) {
         m_views[i]->processTupleDelete(targetTupleToUpdate, fallible);
     }
+    for (int i = 0; i < m_joinedViews.size(); i++) {
+        m_joinedViews[i]->processJoinedTupleDelete(this, targetTupleToUpdate, fallible);
+    }
 
     ExecutorContext *ec = ExecutorContext::getExecutorContext();
     DRTupleStream *drStream = getDRTupleStream(ec);
@@ -655,6 +690,9 @@ bool PersistentTable::updateTupleWithSpecificIndexes(TableTuple &targetTupleToUp
     for (int i = 0; i < m_views.size(); i++) {
         m_views[i]->processTupleInsert(targetTupleToUpdate, fallible);
     }
+    for (int i = 0; i < m_joinedViews.size(); i++) {
+        m_joinedViews[i]->processJoinedTupleInsert(this, targetTupleToUpdate, fallible);
+    }
     return true;
 }
 
@@ -733,6 +771,9 @@ bool PersistentTable::deleteTuple(TableTuple &target, bool fallible) {
     for (int i = 0; i < m_views.size(); i++) {
         m_views[i]->processTupleDelete(target, fallible);
     }
+    for (int i = 0; i < m_joinedViews.size(); i++) {
+        m_joinedViews[i]->processJoinedTupleDelete(this, target, fallible);
+    }
 
     ExecutorContext *ec = ExecutorContext::getExecutorContext();
     DRTupleStream *drStream = getDRTupleStream(ec);
@@ -972,6 +1013,19 @@ void PersistentTable::addMaterializedView(MaterializedViewMetadata *view)
     m_views.push_back(view);
 }
 
+void PersistentTable::addJoinedView(MaterializedViewMetadata *view)
+{
+    m_joinedViews.push_back(view);
+}
+
+void PersistentTable::removeJoinedView(MaterializedViewMetadata *view)
+{
+    std::vector<MaterializedViewMetadata*>::iterator toView = find(m_joinedViews.begin(), m_joinedViews.end(), view);
+    if (toView != m_joinedViews.end()) {
+        m_joinedViews.erase(toView);
+    }
+}
+
 /*
  * drop a view. the table is no longer feeding it.
  * The destination table will go away when the view metadata is deleted (or later?) as its refcount goes to 0.
@@ -1043,6 +1097,8 @@ PersistentTable::updateMaterializedViewTargetTable(PersistentTable* target, cata
             if (currView->indexForMinMax().compare(targetMvInfo->indexForMinMax()) != 0) {
                 currView->setIndexForMinMax(targetMvInfo->indexForMinMax());
             }
+            // and to pick up any joined table that has been re-defined
+            currView->resolveJoinedTables();
             return;
         }
 
@@ -1053,6 +1109,7 @@ PersistentTable::updateMaterializedViewTargetTable(PersistentTable* target, cata
             // the view was initialized, so re-initialize the view.
             currView->setTargetTable(target);
             currView->setIndexForMinMax(targetMvInfo->indexForMinMax());
+            currView->resolveJoinedTables();
             return;
         }
     }
@@ -1560,6 +1617,16 @@ int64_t PersistentTable::validatePartitioning(TheHashinator *hashinator, int32_t
     return mispartitionedRows;
 }
 
+size_t PersistentTable::dirtyBlockCount() const {
+    size_t count = 0;
+    for (TBMap::const_iterator iter = m_data.begin(); iter != m_data.end(); ++iter) {
+        if (iter.data()->isDirty()) {
+            count++;
+        }
+    }
+    return count;
+}
+
 void PersistentTableSurgeon::activateSnapshot() {
     //All blocks are now pending snapshot
     m_table.m_blocksPendingSnapshot.swap(m_table.m_blocksNotPendingSnapshot);
@@ -1570,6 +1637,36 @@ void PersistentTableSurgeon::activateSnapshot() {
     }
 }
 
+/*
+ * Only the dirty blocks are pending snapshot, the clean ones remain eligible for
+ * compaction with each other and with the blocks the snapshot has finished scanning.
+ */
+void PersistentTableSurgeon::activateDeltaSnapshot() {
+    assert(m_table.m_blocksPendingSnapshot.empty());
+    for (TBMapI iter = m_table.m_data.begin(); iter != m_table.m_data.end(); ++iter) {
+        TBPtr block = iter.data();
+        if (!block->isDirty()) {
+            continue;
+        }
+        m_table.m_blocksNotPendingSnapshot.erase(block);
+        m_table.m_blocksPendingSnapshot.insert(block);
+        int bucketIndex = block->calculateBucketIndex();
+        if (bucketIndex != -1) {
+            block->swapToBucket(m_table.m_blocksPendingSnapshotLoad[bucketIndex]);
+        }
+    }
+}
+
+/*
+ * Start tracking the blocks changed from now on.
+ */
+void PersistentTableSurgeon::markAllBlocksClean() {
+    m_table.m_blockTrackingEnabled = true;
+    for (TBMapI iter = m_table.m_data.begin(); iter != m_table.m_data.end(); ++iter) {
+        iter.data()->markClean();
+    }
+}
+
 void PersistentTable::computeSmallestUniqueIndex() {
     uint32_t smallestIndexTupleLength = UINT32_MAX;
     m_noAvailableUniqueIndex = true;
@@ -131,6 +131,8 @@ public:
     boost::shared_ptr<ElasticIndexTupleRangeIterator>
             getIndexTupleRangeIterator(const ElasticIndexHashRange &range);
     void activateSnapshot();
+    void activateDeltaSnapshot();
+    void markAllBlocksClean();
     void printIndex(std::ostream &os, int32_t limit) const;
     ElasticHash generateTupleHash(TableTuple &tuple) const;
     void DRRollback(size_t drMark);
@@ -327,6 +329,14 @@ class PersistentTable : public Table, public UndoQuantumReleaseInterest,
     /** Add/drop/list materialized views to this table */
     void addMaterializedView(MaterializedViewMetadata *view);
 
+    /**
+     * Add/remove a materialized view of another table that joins this table.
+     * The views are not owned: each one removes itself when it is dropped,
+     * and each is told when this table goes away.
+     */
+    void addJoinedView(MaterializedViewMetadata *view);
+    void removeJoinedView(MaterializedViewMetadata *view);
+
     /**
      * Prepare table for streaming from serialized data.
      * Return true on success or false if it was already active.
@@ -385,6 +395,9 @@ class PersistentTable : public Table, public UndoQuantumReleaseInterest,
         return m_data.size();
     }
 
+    // Blocks changed since the last snapshot that tracked blocks.
+    size_t dirtyBlockCount() const;
+
     // This is a testability feature not intended for use in product logic.
     int visibleTupleCount() const { return m_tupleCount - m_invisibleTuplesPendingDeleteCount; }
 
@@ -401,6 +414,28 @@ class PersistentTable : public Table, public UndoQuantumReleaseInterest,
         m_tupleLimit = newLimit;
     }
 
+    int64_t minMaxFallbackScans() const {
+        return m_minMaxFallbackScans;
+    }
+
+    int64_t minMaxFallbackTuplesScanned() const {
+        return m_minMaxFallbackTuplesScanned;
+    }
+
+    int64_t minMaxTrackingMemory() const {
+        return m_minMaxTrackingMemory;
+    }
+
+    // Called by the MaterializedViewMetadata that maintains this view table
+    void addMinMaxFallbackScan(int64_t tuplesScanned) {
+        ++m_minMaxFallbackScans;
+        m_minMaxFallbackTuplesScanned += tuplesScanned;
+    }
+
+    void addMinMaxTrackingMemory(int64_t bytes) {
+        m_minMaxTrackingMemory += bytes;
+    }
+
     bool isPersistentTableEmpty()
     {
         // The narrow usage of this function (while updating the catalog)
@@ -593,6 +628,14 @@ class PersistentTable : public Table, public UndoQuantumReleaseInterest,
     // list of materialized views that are sourced from this table
     std::vector<MaterializedViewMetadata *> m_views;
 
+    // list of materialized views of other tables that join this table
+    std::vector<MaterializedViewMetadata *> m_joinedViews;
+
+    // source table scans done to recompute this view table's MIN / MAX columns
+    int64_t m_minMaxFallbackScans;
+    int64_t m_minMaxFallbackTuplesScanned;
+    int64_t m_minMaxTrackingMemory;
+
     // STATS
     voltdb::PersistentTableStats stats_;
     voltdb::TableStats* getTableStats();
@@ -620,6 +663,13 @@ class PersistentTable : public Table, public UndoQuantumReleaseInterest,
     TBMap m_data;
     int m_failedCompactionCount;
 
+    // Id of the next block allocated, see TupleBlock::id()
+    int64_t m_nextBlockId;
+
+    // Set by the first snapshot that tracks blocks. Until then every block is
+    // dirty anyway, so in-place updates don't need to look up their block.
+    bool m_blockTrackingEnabled;
+
     // This is a testability feature not intended for use in product logic.
     int m_invisibleTuplesPendingDeleteCount;
 
@@ -868,6 +918,7 @@ inline void PersistentTable::deleteTupleStorage(TableTuple &tuple, TBPtr block)
     }
 
     bool transitioningToBlockWithSpace = !block->hasFreeTuples();
+    block->markDirty();
 
     int retval = block->freeTuple(tuple.address());
     if (retval != -1) {
@@ -919,7 +970,8 @@ inline TBPtr PersistentTable::findBlock(char *tuple, TBMap &blocks, int blockSiz
 }
 
 inline TBPtr PersistentTable::allocateNextBlock() {
-    TBPtr block(new (ThreadLocalPool::getExact(sizeof(TupleBlock))->malloc()) TupleBlock(this, m_blocksNotPendingSnapshotLoad[0]));
+    TBPtr block(new (ThreadLocalPool::getExact(sizeof(TupleBlock))->malloc())
+                TupleBlock(this, m_blocksNotPendingSnapshotLoad[0], m_nextBlockId++));
     m_data.insert( block->address(), block);
     m_blocksNotPendingSnapshot.insert(block);
     return block;
@@ -177,6 +177,20 @@ class Table {
         return INT_MIN;
     }
 
+    // Scans of this (view) table's source table to recompute a MIN or MAX
+    virtual int64_t minMaxFallbackScans() const {
+        return 0;
+    }
+
+    virtual int64_t minMaxFallbackTuplesScanned() const {
+        return 0;
+    }
+
+    // Memory of the value counts kept to maintain this (view) table's MIN and MAX
+    virtual int64_t minMaxTrackingMemory() const {
+        return 0;
+    }
+
     // ------------------------------------------------------------------
     // COLUMNS
     // ------------------------------------------------------------------
@@ -0,0 +1,1118 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef COMPACTINGBTREE_H_
+#define COMPACTINGBTREE_H_
+
+#include <algorithm>
+#include <cstdio>
+#include <cstring>
+#include <new>
+
+#include "ContiguousAllocator.h"
+#include "CompactingMap.h"
+
+namespace voltdb {
+
+/**
+ * B+tree with the same interface as CompactingMap.
+ *
+ * Entries are kept sorted in wide leaf nodes that are chained together,
+ * inner nodes hold a copy of the smallest key of every child but the first.
+ * Nodes are sized to a few cache lines, so a lookup touches a handful of
+ * nodes instead of one node per level of a binary tree, and there are no
+ * per-entry child pointers.
+ *
+ * Like CompactingMap, leaves and inner nodes are packed into two
+ * ContiguousAllocators; when a node is freed the last node allocated is
+ * moved into the hole so deletes give memory back.
+ *
+ * Keys and values must be relocatable with memcpy (true of all the index
+ * key types): nodes are moved without calling copy constructors and the
+ * separator keys in inner nodes are bitwise copies of keys in the leaves,
+ * which are only ever compared, never destroyed.
+ *
+ * As with CompactingMap, iterators are invalidated by any mutation. An
+ * iterator is a leaf and a slot, so it fits in an IndexCursor.
+ *
+ * When hasRank is true each inner node also counts the entries under each
+ * child, which is what rankAsc(), rankUpper() and findRank() use.
+ */
+template<typename KeyValuePair, typename Compare, bool hasRank=false>
+class CompactingBTree {
+    typedef typename KeyValuePair::first_type Key;
+    typedef typename KeyValuePair::second_type Data;
+
+    enum {
+        NODE_BYTES = 512,
+        CHUNK_BYTES = 64 * 1024,
+        KEY_WORDS = (sizeof(Key) + sizeof(uint64_t) - 1) / sizeof(uint64_t),
+        LEAF_FANOUT = NODE_BYTES / sizeof(KeyValuePair),
+        LEAF_CAPACITY = LEAF_FANOUT < 8 ? 8 : LEAF_FANOUT,
+        INNER_FANOUT = NODE_BYTES / (KEY_WORDS * sizeof(uint64_t) + sizeof(void*) + sizeof(int64_t)),
+        INNER_CAPACITY = INNER_FANOUT < 8 ? 8 : INNER_FANOUT,
+        // Nodes other than the root and the last leaf are merged or refilled below half full
+        LEAF_MIN = LEAF_CAPACITY / 2,
+        INNER_MIN = INNER_CAPACITY / 2
+    };
+
+    struct InnerNode;
+
+    struct LeafNode {
+        InnerNode *parent;
+        LeafNode *prev;
+        LeafNode *next;
+        int32_t count;
+        KeyValuePair kvs[LEAF_CAPACITY];
+
+        LeafNode() : parent(NULL), prev(NULL), next(NULL), count(0) {}
+    };
+
+    struct InnerNode {
+        InnerNode *parent;
+        int32_t count;          // number of children
+        bool leafChildren;
+        // separator i is the smallest key under child i + 1
+        uint64_t keyWords[(INNER_CAPACITY - 1) * KEY_WORDS];
+        void *children[INNER_CAPACITY];
+        // entries under each child, only maintained with hasRank
+        int64_t counts[INNER_CAPACITY];
+
+        const Key &key(int i) const { return *reinterpret_cast<const Key*>(&keyWords[i * KEY_WORDS]); }
+        void setKey(int i, const Key &key) { ::memcpy(&keyWords[i * KEY_WORDS], &key, sizeof(Key)); }
+        void copyKey(int i, const InnerNode *from, int j) {
+            ::memcpy(&keyWords[i * KEY_WORDS], &from->keyWords[j * KEY_WORDS], KEY_WORDS * sizeof(uint64_t));
+        }
+    };
+
+    // A bitwise copy of a key, for search keys that need their pointer changed
+    // without taking ownership of anything the original key owns.
+    struct KeyCopy {
+        uint64_t words[KEY_WORDS];
+        KeyCopy(const Key &key) { ::memcpy(words, &key, sizeof(Key)); }
+        Key &get() { return *reinterpret_cast<Key*>(words); }
+    };
+
+    int64_t m_count;
+    void *m_root;           // a LeafNode when m_height is 0
+    int m_height;           // levels of inner nodes
+    LeafNode *m_first;
+    LeafNode *m_last;
+    ContiguousAllocator m_leaves;
+    ContiguousAllocator m_inners;
+    bool m_unique;
+
+    // templated comparison function object
+    // follows STL conventions
+    Compare m_comper;
+
+public:
+    class iterator {
+        friend class CompactingBTree<KeyValuePair, Compare, hasRank>;
+    protected:
+        LeafNode *m_leaf;
+        int32_t m_slot;
+        iterator(LeafNode *leaf, int32_t slot) : m_leaf(leaf), m_slot(slot) {}
+        KeyValuePair &pair() { return m_leaf->kvs[m_slot]; }
+    public:
+        iterator() : m_leaf(NULL), m_slot(0) {}
+        iterator(const iterator &iter) : m_leaf(iter.m_leaf), m_slot(iter.m_slot) {}
+        const Key &key() const { return m_leaf->kvs[m_slot].getKey(); }
+        const Data &value() const { return m_leaf->kvs[m_slot].getValue(); }
+        void setValue(const Data &value) { m_leaf->kvs[m_slot].setValue(value); }
+        void moveNext() {
+            if (m_leaf != NULL && ++m_slot >= m_leaf->count) {
+                m_leaf = m_leaf->next;
+                m_slot = 0;
+            }
+        }
+        void movePrev() {
+            if (m_leaf != NULL && --m_slot < 0) {
+                m_leaf = m_leaf->prev;
+                m_slot = m_leaf == NULL ? 0 : m_leaf->count - 1;
+            }
+        }
+        bool isEnd() const { return m_leaf == NULL; }
+        bool equals(const iterator &iter) const {
+            if (isEnd()) {
+                return iter.isEnd();
+            }
+            return m_leaf == iter.m_leaf && m_slot == iter.m_slot;
+        }
+    };
+
+    CompactingBTree(bool unique, Compare comper);
+    ~CompactingBTree();
+
+    bool insert(std::pair<Key, Data> value) { return insert(value.first, value.second); };
+    bool insert(const Key &key, const Data &data);
+    bool erase(const Key &key);
+    bool erase(iterator &iter);
+
+    iterator find(const Key &key) const;
+    iterator findRank(int64_t ith) const;
+    int64_t size() const { return m_count; }
+    iterator begin() const { return iterator(m_first, 0); }
+    iterator rbegin() const { return m_last == NULL ? iterator() : iterator(m_last, m_last->count - 1); }
+    iterator lowerBound(const Key &key) const;
+    iterator upperBound(const Key &key) const;
+
+    std::pair<iterator, iterator> equalRange(const Key &key) const;
+
+    size_t bytesAllocated() const { return m_leaves.bytesAllocated() + m_inners.bytesAllocated(); }
+
+    // Performs a rank lookup using an exact key, returning -1 if
+    // the key is not in the tree or the tree has no ranks.
+    int64_t rankAsc(const Key& key) const;
+    int64_t rankUpper(const Key& key) const;
+
+    /**
+     * For debugging: verify the ordering, the fill of every node, the
+     * separators, the parent and sibling links and the rank counts.
+     */
+    bool verify() const;
+    bool verifyRank() const;
+
+    static const char *typeName() { return "CompactingBTree"; }
+
+protected:
+    LeafNode *descend(const Key &key, bool upper, int64_t *before) const;
+    int32_t leafSlot(const LeafNode *leaf, const Key &key, bool upper) const;
+    iterator bound(const Key &key, bool upper) const;
+    int64_t position(const Key &key, bool upper) const;
+
+    void insertChild(InnerNode *parent, void *left, void *right, const Key &separator);
+    void rebalanceLeaf(LeafNode *leaf);
+    void rebalanceInner(InnerNode *node);
+    void fixSeparator(LeafNode *leaf);
+    void recountUp(void *node, bool isLeaf);
+
+    LeafNode *allocLeaf();
+    InnerNode *allocInner(bool leafChildren);
+    void freeLeaf(LeafNode *x);
+    void freeInner(InnerNode *x, InnerNode **track);
+    void resetSlots(LeafNode *leaf, int32_t from, int32_t to);
+
+    static int childIndex(const InnerNode *parent, const void *child);
+    static int64_t countOf(const void *node, bool isLeaf);
+
+    int verify(const void *node, bool isLeaf, const InnerNode *parent,
+               const Key *low, const Key *high, int64_t *count) const;
+};
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+CompactingBTree<KeyValuePair, Compare, hasRank>::CompactingBTree(bool unique, Compare comper)
+    : m_count(0),
+      m_root(NULL),
+      m_height(0),
+      m_first(NULL),
+      m_last(NULL),
+      m_leaves(static_cast<int>(sizeof(LeafNode)), std::max(4, static_cast<int>(CHUNK_BYTES / sizeof(LeafNode)))),
+      m_inners(static_cast<int>(sizeof(InnerNode)), std::max(4, static_cast<int>(CHUNK_BYTES / sizeof(InnerNode)))),
+      m_unique(unique),
+      m_comper(comper)
+{
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+CompactingBTree<KeyValuePair, Compare, hasRank>::~CompactingBTree()
+{
+    LeafNode *leaf = m_first;
+    while (leaf != NULL) {
+        LeafNode *next = leaf->next;
+        leaf->~LeafNode();
+        leaf = next;
+    }
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::LeafNode *
+CompactingBTree<KeyValuePair, Compare, hasRank>::allocLeaf()
+{
+    void *memory = m_leaves.alloc();
+    assert(memory);
+    // placement new
+    return new(memory) LeafNode();
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::InnerNode *
+CompactingBTree<KeyValuePair, Compare, hasRank>::allocInner(bool leafChildren)
+{
+    InnerNode *node = static_cast<InnerNode*>(m_inners.alloc());
+    assert(node);
+    node->parent = NULL;
+    node->count = 0;
+    node->leafChildren = leafChildren;
+    return node;
+}
+
+/**
+ * Free a leaf, moving the last leaf allocated into its place.
+ */
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::freeLeaf(LeafNode *x)
+{
+    x->~LeafNode();
+    LeafNode *last = static_cast<LeafNode*>(m_leaves.last());
+    if (last != x) {
+        ::memcpy(static_cast<void*>(x), static_cast<void*>(last), sizeof(LeafNode));
+        if (x->prev != NULL) {
+            x->prev->next = x;
+        } else {
+            m_first = x;
+        }
+        if (x->next != NULL) {
+            x->next->prev = x;
+        } else {
+            m_last = x;
+        }
+        if (x->parent != NULL) {
+            x->parent->children[childIndex(x->parent, last)] = x;
+        } else {
+            m_root = x;
+        }
+    }
+    m_leaves.trim();
+}
+
+/**
+ * Free an inner node, moving the last inner node allocated into its place.
+ * If track points at the node that moves it is updated.
+ */
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::freeInner(InnerNode *x, InnerNode **track)
+{
+    InnerNode *last = static_cast<InnerNode*>(m_inners.last());
+    if (last != x) {
+        ::memcpy(static_cast<void*>(x), static_cast<void*>(last), sizeof(InnerNode));
+        if (x->parent != NULL) {
+            x->parent->children[childIndex(x->parent, last)] = x;
+        } else {
+            m_root = x;
+        }
+        for (int i = 0; i < x->count; i++) {
+            if (x->leafChildren) {
+                static_cast<LeafNode*>(x->children[i])->parent = x;
+            } else {
+                static_cast<InnerNode*>(x->children[i])->parent = x;
+            }
+        }
+        if (track != NULL && *track == last) {
+            *track = x;
+        }
+    }
+    m_inners.trim();
+}
+
+/**
+ * Destroy and default construct the slots in [from, to) so entries that
+ * have been moved or erased release anything they own.
+ */
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::resetSlots(LeafNode *leaf, int32_t from, int32_t to)
+{
+    for (int32_t i = from; i < to; i++) {
+        leaf->kvs[i].~KeyValuePair();
+        new(&leaf->kvs[i]) KeyValuePair();
+    }
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int CompactingBTree<KeyValuePair, Compare, hasRank>::childIndex(const InnerNode *parent, const void *child)
+{
+    for (int i = 0; i < parent->count; i++) {
+        if (parent->children[i] == child) {
+            return i;
+        }
+    }
+    assert(false);
+    return -1;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int64_t CompactingBTree<KeyValuePair, Compare, hasRank>::countOf(const void *node, bool isLeaf)
+{
+    if (isLeaf) {
+        return static_cast<const LeafNode*>(node)->count;
+    }
+    const InnerNode *inner = static_cast<const InnerNode*>(node);
+    int64_t sum = 0;
+    for (int i = 0; i < inner->count; i++) {
+        sum += inner->counts[i];
+    }
+    return sum;
+}
+
+/**
+ * Refresh the rank counts of every ancestor of a node.
+ */
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::recountUp(void *node, bool isLeaf)
+{
+    if (!hasRank) {
+        return;
+    }
+    InnerNode *parent = isLeaf ? static_cast<LeafNode*>(node)->parent : static_cast<InnerNode*>(node)->parent;
+    while (parent != NULL) {
+        parent->counts[childIndex(parent, node)] = countOf(node, isLeaf);
+        node = parent;
+        isLeaf = false;
+        parent = parent->parent;
+    }
+}
+
+/**
+ * The smallest key of a leaf changed, update the one separator that copies it.
+ */
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::fixSeparator(LeafNode *leaf)
+{
+    assert(leaf->count > 0);
+    void *node = leaf;
+    InnerNode *parent = leaf->parent;
+    while (parent != NULL) {
+        int i = childIndex(parent, node);
+        if (i > 0) {
+            parent->setKey(i - 1, leaf->kvs[0].getKey());
+            return;
+        }
+        node = parent;
+        parent = parent->parent;
+    }
+}
+
+/**
+ * Walk down to the leaf where the first entry not less than (or, if upper,
+ * greater than) the key would be, counting the entries in the subtrees to
+ * its left when ranks are kept.
+ */
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::LeafNode *
+CompactingBTree<KeyValuePair, Compare, hasRank>::descend(const Key &key, bool upper, int64_t *before) const
+{
+    void *node = m_root;
+    for (int level = 0; level < m_height; level++) {
+        const InnerNode *inner = static_cast<const InnerNode*>(node);
+        // number of separators less than (or not greater than) the key
+        int lo = 0;
+        int hi = inner->count - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) / 2;
+            int cmp = m_comper(inner->key(mid), key);
+            if (cmp < 0 || (upper && cmp == 0)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        if (hasRank && before != NULL) {
+            for (int i = 0; i < lo; i++) {
+                *before += inner->counts[i];
+            }
+        }
+        node = inner->children[lo];
+    }
+    return static_cast<LeafNode*>(node);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int32_t CompactingBTree<KeyValuePair, Compare, hasRank>::leafSlot(const LeafNode *leaf, const Key &key, bool upper) const
+{
+    int32_t lo = 0;
+    int32_t hi = leaf->count;
+    while (lo < hi) {
+        int32_t mid = (lo + hi) / 2;
+        int cmp = m_comper(leaf->kvs[mid].getKey(), key);
+        if (cmp < 0 || (upper && cmp == 0)) {
+            lo = mid + 1;
+        } else {
+            hi = mid;
+        }
+    }
+    return lo;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator
+CompactingBTree<KeyValuePair, Compare, hasRank>::bound(const Key &key, bool upper) const
+{
+    if (m_root == NULL) {
+        return iterator();
+    }
+    LeafNode *leaf = descend(key, upper, NULL);
+    int32_t slot = leafSlot(leaf, key, upper);
+    if (slot == leaf->count) {
+        return iterator(leaf->next, 0);
+    }
+    return iterator(leaf, slot);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int64_t CompactingBTree<KeyValuePair, Compare, hasRank>::position(const Key &key, bool upper) const
+{
+    if (m_root == NULL) {
+        return 0;
+    }
+    int64_t before = 0;
+    LeafNode *leaf = descend(key, upper, &before);
+    return before + leafSlot(leaf, key, upper);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator
+CompactingBTree<KeyValuePair, Compare, hasRank>::lowerBound(const Key &key) const
+{
+    return bound(key, false);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator
+CompactingBTree<KeyValuePair, Compare, hasRank>::upperBound(const Key &key) const
+{
+    KeyCopy tmpKey(key);
+    setPointerValue(tmpKey.get(), MAXPOINTER);
+    return bound(tmpKey.get(), true);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename std::pair<typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator,
+                   typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator>
+CompactingBTree<KeyValuePair, Compare, hasRank>::equalRange(const Key &key) const
+{
+    return std::pair<iterator, iterator>(lowerBound(key), upperBound(key));
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator
+CompactingBTree<KeyValuePair, Compare, hasRank>::find(const Key &key) const
+{
+    iterator iter = lowerBound(key);
+    if (iter.isEnd() || m_comper(iter.key(), key) != 0) {
+        return iterator();
+    }
+    return iter;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+typename CompactingBTree<KeyValuePair, Compare, hasRank>::iterator
+CompactingBTree<KeyValuePair, Compare, hasRank>::findRank(int64_t ith) const
+{
+    if ((!hasRank) || ith < 1 || ith > m_count) {
+        return iterator();
+    }
+    int64_t rk = ith - 1;
+    void *node = m_root;
+    for (int level = 0; level < m_height; level++) {
+        const InnerNode *inner = static_cast<const InnerNode*>(node);
+        int i = 0;
+        while (rk >= inner->counts[i]) {
+            rk -= inner->counts[i];
+            i++;
+        }
+        node = inner->children[i];
+    }
+    return iterator(static_cast<LeafNode*>(node), static_cast<int32_t>(rk));
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+bool CompactingBTree<KeyValuePair, Compare, hasRank>::insert(const Key &key, const Data &value)
+{
+    if (m_root == NULL) {
+        LeafNode *leaf = allocLeaf();
+        m_root = m_first = m_last = leaf;
+        m_height = 0;
+    }
+
+    // New duplicates go after existing ones, as in CompactingMap
+    LeafNode *leaf = descend(key, true, NULL);
+    int32_t slot = leafSlot(leaf, key, true);
+    if (m_unique && slot > 0 && m_comper(leaf->kvs[slot - 1].getKey(), key) == 0) {
+        return false;
+    }
+    // Only the first leaf can gain a new smallest key, so no separator changes
+    assert(slot > 0 || leaf->prev == NULL);
+
+    LeafNode *target = leaf;
+    if (leaf->count == LEAF_CAPACITY) {
+        // Appending to the last leaf leaves it full, so ascending inserts pack the leaves
+        int32_t mid = LEAF_CAPACITY / 2;
+        if (slot == LEAF_CAPACITY && leaf->next == NULL) {
+            mid = LEAF_CAPACITY;
+        }
+        LeafNode *right = allocLeaf();
+        for (int32_t i = mid; i < LEAF_CAPACITY; i++) {
+            right->kvs[i - mid] = leaf->kvs[i];
+        }
+        right->count = LEAF_CAPACITY - mid;
+        resetSlots(leaf, mid, LEAF_CAPACITY);
+        leaf->count = mid;
+
+        right->prev = leaf;
+        right->next = leaf->next;
+        if (leaf->next != NULL) {
+            leaf->next->prev = right;
+        } else {
+            m_last = right;
+        }
+        leaf->next = right;
+
+        if (slot > mid || mid == LEAF_CAPACITY) {
+            target = right;
+            slot -= mid;
+        }
+        // stitch the new leaf in once it holds its final contents
+        for (int32_t i = target->count; i > slot; i--) {
+            target->kvs[i] = target->kvs[i - 1];
+        }
+        target->kvs[slot].setKey(key);
+        target->kvs[slot].setValue(value); // for PointerKeyType, this is a little duplicating process
+        target->count++;
+        m_count++;
+        insertChild(leaf->parent, leaf, right, right->kvs[0].getKey());
+    } else {
+        for (int32_t i = target->count; i > slot; i--) {
+            target->kvs[i] = target->kvs[i - 1];
+        }
+        target->kvs[slot].setKey(key);
+        target->kvs[slot].setValue(value); // for PointerKeyType, this is a little duplicating process
+        target->count++;
+        m_count++;
+    }
+    recountUp(target, true);
+    assert(m_leaves.count() > 0);
+    return true;
+}
+
+/**
+ * Add right as the child after left in the parent, splitting the parent
+ * if it is full, or grow a new root if left was the root.
+ */
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::insertChild(InnerNode *parent, void *left, void *right,
+                                                                   const Key &separator)
+{
+    const bool leafChildren = (parent == NULL) ? (m_height == 0) : parent->leafChildren;
+    if (parent == NULL) {
+        InnerNode *root = allocInner(leafChildren);
+        root->count = 2;
+        root->children[0] = left;
+        root->children[1] = right;
+        root->setKey(0, separator);
+        if (hasRank) {
+            root->counts[0] = countOf(left, leafChildren);
+            root->counts[1] = countOf(right, leafChildren);
+        }
+        if (leafChildren) {
+            static_cast<LeafNode*>(left)->parent = root;
+            static_cast<LeafNode*>(right)->parent = root;
+        } else {
+            static_cast<InnerNode*>(left)->parent = root;
+            static_cast<InnerNode*>(right)->parent = root;
+        }
+        m_root = root;
+        m_height++;
+        return;
+    }
+
+    const int pos = childIndex(parent, left) + 1;
+    if (parent->count < INNER_CAPACITY) {
+        for (int i = parent->count; i > pos; i--) {
+            parent->children[i] = parent->children[i - 1];
+            parent->counts[i] = parent->counts[i - 1];
+            parent->copyKey(i - 1, parent, i - 2);
+        }
+        parent->children[pos] = right;
+        parent->setKey(pos - 1, separator);
+        if (hasRank) {
+            parent->counts[pos - 1] = countOf(left, leafChildren);
+            parent->counts[pos] = countOf(right, leafChildren);
+        }
+        parent->count++;
+        if (leafChildren) {
+            static_cast<LeafNode*>(right)->parent = parent;
+        } else {
+            static_cast<InnerNode*>(right)->parent = parent;
+        }
+        return;
+    }
+
+    // Split: lay the children out with the new one in place, then deal
+    // the first half back to the parent and the rest to a new sibling.
+    void *children[INNER_CAPACITY + 1];
+    int64_t counts[INNER_CAPACITY + 1];
+    uint64_t keyWords[INNER_CAPACITY * KEY_WORDS];
+    for (int i = 0, j = 0; i <= INNER_CAPACITY; i++) {
+        if (i == pos) {
+            children[i] = right;
+            counts[i] = hasRank ? countOf(right, leafChildren) : 0;
+        } else {
+            children[i] = parent->children[j];
+            counts[i] = (hasRank && j == pos - 1) ? countOf(left, leafChildren) : parent->counts[j];
+            j++;
+        }
+    }
+    for (int i = 0, j = 0; i < INNER_CAPACITY; i++) {
+        if (i == pos - 1) {
+            ::memcpy(&keyWords[i * KEY_WORDS], &separator, sizeof(Key));
+        } else {
+            ::memcpy(&keyWords[i * KEY_WORDS], &parent->keyWords[j * KEY_WORDS], KEY_WORDS * sizeof(uint64_t));
+            j++;
+        }
+    }
+
+    const int leftCount = (INNER_CAPACITY + 1) / 2;
+    InnerNode *sibling = allocInner(leafChildren);
+    parent->count = leftCount;
+    sibling->count = INNER_CAPACITY + 1 - leftCount;
+    for (int i = 0; i < INNER_CAPACITY + 1; i++) {
+        InnerNode *owner = i < leftCount ? parent : sibling;
+        const int k = i < leftCount ? i : i - leftCount;
+        owner->children[k] = children[i];
+        owner->counts[k] = counts[i];
+        if (leafChildren) {
+            static_cast<LeafNode*>(children[i])->parent = owner;
+        } else {
+            static_cast<InnerNode*>(children[i])->parent = owner;
+        }
+        if (i < leftCount - 1) {
+            ::memcpy(&parent->keyWords[i * KEY_WORDS], &keyWords[i * KEY_WORDS], KEY_WORDS * sizeof(uint64_t));
+        } else if (i >= leftCount && i < INNER_CAPACITY) {
+            ::memcpy(&sibling->keyWords[(i - leftCount) * KEY_WORDS], &keyWords[i * KEY_WORDS],
+                     KEY_WORDS * sizeof(uint64_t));
+        }
+    }
+    // the separator between the halves moves up
+    KeyCopy up(*reinterpret_cast<const Key*>(&keyWords[(leftCount - 1) * KEY_WORDS]));
+    insertChild(parent->parent, parent, sibling, up.get());
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+bool CompactingBTree<KeyValuePair, Compare, hasRank>::erase(const Key &key)
+{
+    iterator iter = find(key);
+    if (iter.isEnd()) {
+        return false;
+    }
+    return erase(iter);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+bool CompactingBTree<KeyValuePair, Compare, hasRank>::erase(iterator &iter)
+{
+    assert(!iter.isEnd());
+    LeafNode *leaf = iter.m_leaf;
+    const int32_t slot = iter.m_slot;
+    // shifting by assignment carries the erased entry to the end of the leaf
+    for (int32_t i = slot; i < leaf->count - 1; i++) {
+        leaf->kvs[i] = leaf->kvs[i + 1];
+    }
+    leaf->count--;
+    resetSlots(leaf, leaf->count, leaf->count + 1);
+    m_count--;
+    if (slot == 0 && leaf->count > 0) {
+        fixSeparator(leaf);
+    }
+    rebalanceLeaf(leaf);
+    return true;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::rebalanceLeaf(LeafNode *leaf)
+{
+    InnerNode *parent = leaf->parent;
+    if (parent == NULL) {
+        if (leaf->count == 0) {
+            freeLeaf(leaf);
+            m_root = m_first = m_last = NULL;
+            m_height = 0;
+        }
+        return;
+    }
+    if (leaf->count >= LEAF_MIN) {
+        recountUp(leaf, true);
+        return;
+    }
+
+    const int index = childIndex(parent, leaf);
+    // prefer the left sibling, only the first child uses its right one
+    LeafNode *left = index > 0 ? static_cast<LeafNode*>(parent->children[index - 1]) : leaf;
+    LeafNode *right = index > 0 ? leaf : static_cast<LeafNode*>(parent->children[index + 1]);
+    const int rightIndex = index > 0 ? index : index + 1;
+
+    if (left->count + right->count <= LEAF_CAPACITY) {
+        // merge the right leaf into the left one
+        for (int32_t i = 0; i < right->count; i++) {
+            left->kvs[left->count + i] = right->kvs[i];
+        }
+        resetSlots(right, 0, right->count);
+        left->count += right->count;
+        right->count = 0;
+        left->next = right->next;
+        if (right->next != NULL) {
+            right->next->prev = left;
+        } else {
+            m_last = left;
+        }
+        if (leaf == left && left->count > 0) {
+            // an emptied first child takes over its sibling's entries
+            fixSeparator(left);
+        }
+        for (int i = rightIndex; i < parent->count - 1; i++) {
+            parent->children[i] = parent->children[i + 1];
+            parent->counts[i] = parent->counts[i + 1];
+            parent->copyKey(i - 1, parent, i);
+        }
+        parent->count--;
+        if (hasRank) {
+            parent->counts[rightIndex - 1] = left->count;
+        }
+        freeLeaf(right);
+        rebalanceInner(parent);
+        return;
+    }
+
+    if (leaf == right) {
+        // take the largest entry of the left sibling
+        for (int32_t i = right->count; i > 0; i--) {
+            right->kvs[i] = right->kvs[i - 1];
+        }
+        right->kvs[0] = left->kvs[left->count - 1];
+        right->count++;
+        left->count--;
+        resetSlots(left, left->count, left->count + 1);
+        parent->setKey(rightIndex - 1, right->kvs[0].getKey());
+    } else {
+        // take the smallest entry of the right sibling
+        left->kvs[left->count] = right->kvs[0];
+        left->count++;
+        for (int32_t i = 0; i < right->count - 1; i++) {
+            right->kvs[i] = right->kvs[i + 1];
+        }
+        right->count--;
+        resetSlots(right, right->count, right->count + 1);
+        parent->setKey(rightIndex - 1, right->kvs[0].getKey());
+        if (left->count == 1) {
+            fixSeparator(left);
+        }
+    }
+    if (hasRank) {
+        parent->counts[rightIndex - 1] = left->count;
+        parent->counts[rightIndex] = right->count;
+    }
+    recountUp(parent, false);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+void CompactingBTree<KeyValuePair, Compare, hasRank>::rebalanceInner(InnerNode *node)
+{
+    InnerNode *parent = node->parent;
+    if (parent == NULL) {
+        if (node->count == 1) {
+            // the root has a single child, which becomes the root
+            void *child = node->children[0];
+            if (node->leafChildren) {
+                static_cast<LeafNode*>(child)->parent = NULL;
+            } else {
+                static_cast<InnerNode*>(child)->parent = NULL;
+            }
+            m_root = child;
+            m_height--;
+            freeInner(node, NULL);
+        }
+        return;
+    }
+    if (node->count >= INNER_MIN) {
+        recountUp(node, false);
+        return;
+    }
+
+    const int index = childIndex(parent, node);
+    InnerNode *left = index > 0 ? static_cast<InnerNode*>(parent->children[index - 1]) : node;
+    InnerNode *right = index > 0 ? node : static_cast<InnerNode*>(parent->children[index + 1]);
+    const int rightIndex = index > 0 ? index : index + 1;
+
+    if (left->count + right->count <= INNER_CAPACITY) {
+        // merge the right node into the left one, pulling down the separator between them
+        left->copyKey(left->count - 1, parent, rightIndex - 1);
+        for (int i = 0; i < right->count; i++) {
+            left->children[left->count + i] = right->children[i];
+            left->counts[left->count + i] = right->counts[i];
+            if (i < right->count - 1) {
+                left->copyKey(left->count + i, right, i);
+            }
+            if (left->leafChildren) {
+                static_cast<LeafNode*>(right->children[i])->parent = left;
+            } else {
+                static_cast<InnerNode*>(right->children[i])->parent = left;
+            }
+        }
+        left->count += right->count;
+        for (int i = rightIndex; i < parent->count - 1; i++) {
+            parent->children[i] = parent->children[i + 1];
+            parent->counts[i] = parent->counts[i + 1];
+            parent->copyKey(i - 1, parent, i);
+        }
+        parent->count--;
+        if (hasRank) {
+            parent->counts[rightIndex - 1] = countOf(left, false);
+        }
+        right->count = 0;
+        freeInner(right, &parent);
+        rebalanceInner(parent);
+        return;
+    }
+
+    if (node == right) {
+        // rotate the last child of the left sibling through the parent
+        for (int i = right->count; i > 0; i--) {
+            right->children[i] = right->children[i - 1];
+            right->counts[i] = right->counts[i - 1];
+            if (i > 1) {
+                right->copyKey(i - 1, right, i - 2);
+            }
+        }
+        right->children[0] = left->children[left->count - 1];
+        right->counts[0] = left->counts[left->count - 1];
+        right->copyKey(0, parent, rightIndex - 1);
+        parent->copyKey(rightIndex - 1, left, left->count - 2);
+        right->count++;
+        left->count--;
+        if (right->leafChildren) {
+            static_cast<LeafNode*>(right->children[0])->parent = right;
+        } else {
+            static_cast<InnerNode*>(right->children[0])->parent = right;
+        }
+    } else {
+        // rotate the first child of the right sibling through the parent
+        left->children[left->count] = right->children[0];
+        left->counts[left->count] = right->counts[0];
+        left->copyKey(left->count - 1, parent, rightIndex - 1);
+        parent->copyKey(rightIndex - 1, right, 0);
+        if (left->leafChildren) {
+            static_cast<LeafNode*>(left->children[left->count])->parent = left;
+        } else {
+            static_cast<InnerNode*>(left->children[left->count])->parent = left;
+        }
+        left->count++;
+        for (int i = 0; i < right->count - 1; i++) {
+            right->children[i] = right->children[i + 1];
+            right->counts[i] = right->counts[i + 1];
+            if (i < right->count - 2) {
+                right->copyKey(i, right, i + 1);
+            }
+        }
+        right->count--;
+    }
+    if (hasRank) {
+        parent->counts[rightIndex - 1] = countOf(left, false);
+        parent->counts[rightIndex] = countOf(right, false);
+    }
+    recountUp(parent, false);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int64_t CompactingBTree<KeyValuePair, Compare, hasRank>::rankAsc(const Key& key) const
+{
+    if (!hasRank) {
+        return -1;
+    }
+    // return -1 if the key passed in is not in the tree
+    if (find(key).isEnd()) {
+        return -1;
+    }
+    // count the entries before the key regardless of their pointer
+    KeyCopy tmpKey(key);
+    setPointerValue(tmpKey.get(), NULL);
+    return position(tmpKey.get(), false) + 1;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int64_t CompactingBTree<KeyValuePair, Compare, hasRank>::rankUpper(const Key& key) const
+{
+    if (!hasRank) {
+        return -1;
+    }
+    if (m_unique) {
+        return rankAsc(key);
+    }
+    // return -1 if the key passed in is not in the tree
+    if (find(key).isEnd()) {
+        return -1;
+    }
+    KeyCopy tmpKey(key);
+    setPointerValue(tmpKey.get(), MAXPOINTER);
+    return position(tmpKey.get(), true);
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+bool CompactingBTree<KeyValuePair, Compare, hasRank>::verify() const
+{
+    if (m_root == NULL) {
+        if (m_count != 0 || m_first != NULL || m_last != NULL || m_leaves.count() != 0 || m_inners.count() != 0) {
+            printf("Empty tree has entries or nodes\n");
+            return false;
+        }
+        return true;
+    }
+    int64_t count = 0;
+    int depth = verify(m_root, m_height == 0, NULL, NULL, NULL, &count);
+    if (depth < 0) {
+        return false;
+    }
+    if (depth != m_height) {
+        printf("Tree height %d but leaves are at depth %d\n", m_height, depth);
+        return false;
+    }
+    if (count != m_count) {
+        printf("Tree holds %ld entries but counted %ld\n", (long)m_count, (long)count);
+        return false;
+    }
+    // the leaf chain covers every entry in order
+    int64_t chained = 0;
+    const LeafNode *prev = NULL;
+    for (const LeafNode *leaf = m_first; leaf != NULL; leaf = leaf->next) {
+        if (leaf->prev != prev) {
+            printf("Broken leaf chain\n");
+            return false;
+        }
+        if (prev != NULL && m_comper(prev->kvs[prev->count - 1].getKey(), leaf->kvs[0].getKey()) > 0) {
+            printf("Leaves out of order\n");
+            return false;
+        }
+        chained += leaf->count;
+        prev = leaf;
+    }
+    if (prev != m_last || chained != m_count) {
+        printf("Leaf chain holds %ld of %ld entries\n", (long)chained, (long)m_count);
+        return false;
+    }
+    return true;
+}
+
+/**
+ * Check a subtree whose keys fall in [low, high], returning its depth or -1.
+ */
+template<typename KeyValuePair, typename Compare, bool hasRank>
+int CompactingBTree<KeyValuePair, Compare, hasRank>::verify(const void *node, bool isLeaf, const InnerNode *parent,
+                                                            const Key *low, const Key *high, int64_t *count) const
+{
+    if (isLeaf) {
+        const LeafNode *leaf = static_cast<const LeafNode*>(node);
+        if (leaf->parent != parent) {
+            printf("Leaf has the wrong parent\n");
+            return -1;
+        }
+        // appending to the last leaf leaves it short of half full
+        const int32_t minCount = (parent == NULL || leaf->next == NULL) ? 1 : static_cast<int32_t>(LEAF_MIN);
+        if (leaf->count < minCount || leaf->count > LEAF_CAPACITY) {
+            printf("Leaf holds %d entries\n", leaf->count);
+            return -1;
+        }
+        for (int32_t i = 0; i < leaf->count; i++) {
+            const Key &key = leaf->kvs[i].getKey();
+            if (i > 0) {
+                int cmp = m_comper(leaf->kvs[i - 1].getKey(), key);
+                if (cmp > 0 || (m_unique && cmp == 0)) {
+                    printf("Leaf entries out of order\n");
+                    return -1;
+                }
+            }
+            if ((low != NULL && m_comper(*low, key) > 0) || (high != NULL && m_comper(key, *high) > 0)) {
+                printf("Leaf entry outside of its separators\n");
+                return -1;
+            }
+        }
+        *count += leaf->count;
+        return 0;
+    }
+
+    const InnerNode *inner = static_cast<const InnerNode*>(node);
+    if (inner->parent != parent) {
+        printf("Inner node has the wrong parent\n");
+        return -1;
+    }
+    const int minCount = parent == NULL ? 2 : static_cast<int>(INNER_MIN);
+    if (inner->count < minCount || inner->count > INNER_CAPACITY) {
+        printf("Inner node has %d children\n", inner->count);
+        return -1;
+    }
+    int depth = -1;
+    for (int i = 0; i < inner->count; i++) {
+        const Key *childLow = i == 0 ? low : &inner->key(i - 1);
+        const Key *childHigh = i == inner->count - 1 ? high : &inner->key(i);
+        int64_t childCount = 0;
+        int d = verify(inner->children[i], inner->leafChildren, inner, childLow, childHigh, &childCount);
+        if (d < 0 || (depth >= 0 && d != depth)) {
+            printf("Unbalanced subtree\n");
+            return -1;
+        }
+        depth = d;
+        if (i > 0) {
+            // the separator is the smallest key under its child
+            const LeafNode *leftmost = NULL;
+            const void *child = inner->children[i];
+            bool childIsLeaf = inner->leafChildren;
+            while (!childIsLeaf) {
+                const InnerNode *c = static_cast<const InnerNode*>(child);
+                childIsLeaf = c->leafChildren;
+                child = c->children[0];
+            }
+            leftmost = static_cast<const LeafNode*>(child);
+            if (m_comper(inner->key(i - 1), leftmost->kvs[0].getKey()) != 0) {
+                printf("Separator %d is not the smallest key under its child\n", i - 1);
+                return -1;
+            }
+        }
+        if (hasRank && inner->counts[i] != childCount) {
+            printf("Child %d counted %ld entries but holds %ld\n", i, (long)inner->counts[i], (long)childCount);
+            return -1;
+        }
+        *count += childCount;
+    }
+    return depth + 1;
+}
+
+template<typename KeyValuePair, typename Compare, bool hasRank>
+bool CompactingBTree<KeyValuePair, Compare, hasRank>::verifyRank() const
+{
+    if (!hasRank) {
+        return true;
+    }
+    int64_t i = 1;
+    for (iterator it = begin(); !it.isEnd(); it.moveNext(), i++) {
+        if (!findRank(i).equals(it)) {
+            printf("findRank(%ld) is not the %ldth entry\n", (long)i, (long)i);
+            return false;
+        }
+        if (m_unique && rankAsc(it.key()) != i) {
+            printf("false: unique_rankAsc expected %ld, but got %ld\n", (long)i, (long)rankAsc(it.key()));
+            return false;
+        }
+        iterator up = upperBound(it.key());
+        up.movePrev();
+        if (!m_unique && it.equals(up) && rankUpper(it.key()) != i) {
+            printf("false: multi_rankUpper expected %ld, but got %ld\n", (long)i, (long)rankUpper(it.key()));
+            return false;
+        }
+    }
+    return true;
+}
+
+}
+
+#endif // COMPACTINGBTREE_H_
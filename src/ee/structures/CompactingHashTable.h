@@ -66,6 +66,8 @@ namespace voltdb {
 
         static const uint64_t TABLE_SIZES[];
 
+        static const char *typeName() { return "CompactingHash"; }
+
 #ifndef MEMCHECK
 
         // start with a roughly 512k hash table
@@ -175,6 +177,12 @@ namespace voltdb {
         /** Return bytes used for this index */
         size_t bytesAllocated() const { return m_allocator.bytesAllocated() + TABLE_SIZES[m_sizeIndex] * sizeof(HashNode*); }
 
+        /** Distinct keys per bucket */
+        double loadFactor() const { return static_cast<double>(m_uniqueCount) / static_cast<double>(TABLE_SIZES[m_sizeIndex]); }
+
+        /** Expected nodes a successful lookup walks, assuming keys hash uniformly over the buckets */
+        double averageProbeLength() const { return m_count == 0 ? 0.0 : 1.0 + loadFactor() / 2; }
+
         /** verification for debugging and testing */
         bool verify();
 
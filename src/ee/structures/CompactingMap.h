@@ -186,6 +186,8 @@ public:
 
     size_t bytesAllocated() const { return m_allocator.bytesAllocated(); }
 
+    static const char *typeName() { return "CompactingTree"; }
+
     // TODO(xin): later rename it to rankLower
     // Must pass a key that already in map, or else return -1
     int64_t rankAsc(const Key& key) const;
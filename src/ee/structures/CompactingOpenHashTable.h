@@ -0,0 +1,578 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef COMPACTINGOPENHASHTABLE_H_
+#define COMPACTINGOPENHASHTABLE_H_
+
+#include <cstdio>
+#include <cstdlib>
+#include <cstring>
+#include <utility>
+#include <algorithm>
+#include <functional>
+#include <cassert>
+#include <new>
+#include <sys/mman.h>
+#include <boost/functional/hash.hpp>
+#include <stdint.h>
+
+namespace voltdb {
+
+    /**
+     * CompactingOpenHashTable is an open-addressing alternative to CompactingHashTable with the
+     * same interface, so the hash indexes can be instantiated over either one.
+     *
+     * It differs from the chained table in that:
+     * 1. Keys and values live inline in one slot array, there is no per-entry node or pointer.
+     *    Each slot has a 4 byte control word holding its distance from its home slot and an
+     *    8 bit fingerprint of the hash, so most probes never touch a key that doesn't match.
+     * 2. Collisions are resolved by linear probing with Robin Hood placement and backward
+     *    shift deletion. There are no tombstones, and a probe can stop as soon as it meets an
+     *    entry closer to its home than the key being looked for would be.
+     * 3. Resizing is incremental. A new table is allocated, and every insert or delete then
+     *    moves at least MIGRATE_SLOTS slots of the old table into it, so no single operation
+     *    pays for rehashing the whole table. Lookups check both tables until the old one is
+     *    drained and released. The old table is drained whole collision cluster at a time,
+     *    which keeps what remains of it a valid Robin Hood table.
+     * 4. Entries are moved by assignment as slots shift, so it is meant for key types that are
+     *    plain values, like the IntsKey keys of the hash indexes.
+     *
+     * Like CompactingHashTable, iterators only walk the values of a single key, and they are
+     * invalidated by any insert or delete.
+     */
+    template<class K, class T, class H = boost::hash<K>, class EK = std::equal_to<K>, class ET = std::equal_to<T> >
+    class CompactingOpenHashTable {
+    public:
+        typedef K Key;            // key type
+        typedef T Data;           // value type
+        typedef H Hasher;         // hash a value to a uint64_t
+        typedef EK KeyEqChecker;  // compare two keys
+        typedef ET DataEqChecker; // compare two values
+
+        // grow when the table is 80% full
+        // (new table will be 40% full)
+        static const uint64_t MAX_LOAD_FACTOR = 80; // %
+        // shrink when the table is 20% full
+        // (new table will be 40% full)
+        static const uint64_t MIN_LOAD_FACTOR = 20; // %
+
+#ifndef MEMCHECK
+        // 4k slots, the memory is only touched as slots are used
+        static const uint64_t INITIAL_CAPACITY = 4096;
+        // old table slots moved by each insert or delete while resizing
+        static const uint64_t MIGRATE_SLOTS = 64;
+#else // for MEMCHECK
+        static const uint64_t INITIAL_CAPACITY = 8;
+        static const uint64_t MIGRATE_SLOTS = 1;
+#endif // MEMCHECK
+
+        static const char *typeName() { return "CompactingOpenHash"; }
+
+    protected:
+        enum { ACTIVE = 0, DRAINING = 1 };
+
+        static const uint64_t NOT_FOUND = ~0ULL;
+        static const uint32_t DIST_ONE = 1 << 8;
+
+        struct Slot {
+            Key key;
+            Data value;
+        };
+
+        /**
+         * One power of two sized slot array. A control word of 0 is an empty slot,
+         * otherwise it is ((distance from the home slot + 1) << 8) | fingerprint.
+         */
+        struct Table {
+            uint32_t *ctrl;
+            Slot *slots;
+            uint64_t capacity;
+            uint64_t mask;
+            int shift;           // the home slot is the top bits of the hash
+            size_t bytes;
+            uint64_t count;
+            uint64_t probeSum;   // sum of all entries' distances from home
+        };
+
+        Table m_tables[2];           // the table in use, and the one being drained
+        bool m_unique;               // support unique
+        uint64_t m_drainPos;         // next slot of the draining table to move
+        uint64_t m_drainRemaining;   // slots of the draining table not yet visited
+        Hasher m_hasher;             // instance of the hashing function
+        KeyEqChecker m_keyEq;        // instance of the key eq checker
+        DataEqChecker m_dataEq;      // instance of the value eq checker
+
+    public:
+
+        /**
+         * Iterator class that will only iterate over the values for one key
+         */
+        class iterator {
+            friend class CompactingOpenHashTable;
+        protected:
+            const CompactingOpenHashTable *m_table;
+            uint32_t m_slot;
+            int32_t m_which;         // table index, or -1 at the end
+
+            iterator(const CompactingOpenHashTable *table, int which, uint64_t slot)
+                : m_table(table), m_slot(static_cast<uint32_t>(slot)), m_which(which) {}
+
+            Slot &slot() const {
+                return const_cast<Slot&>(m_table->m_tables[m_which].slots[m_slot]);
+            }
+
+        public:
+            iterator() : m_table(NULL), m_slot(0), m_which(-1) {}
+            iterator(const iterator &iter) : m_table(iter.m_table), m_slot(iter.m_slot), m_which(iter.m_which) {}
+
+            Key &key() const { return slot().key; }
+            Data &value() const { return slot().value; }
+            void setValue(const Data &value) { slot().value = value; }
+
+            // move to the next entry with the same key or make isEnd() true
+            void moveNext() { m_table->moveNext(*this); }
+            // equivalent to == containter.end() in STL-speak
+            bool isEnd() const { return m_which < 0; }
+            // do two iterators point to the same entry
+            bool equals(iterator &iter) const {
+                if (isEnd() || iter.isEnd()) {
+                    return isEnd() == iter.isEnd();
+                }
+                return m_which == iter.m_which && m_slot == iter.m_slot;
+            }
+        };
+
+        /** Constructor allows passing in instances for the hasher and eq checkers */
+        CompactingOpenHashTable(bool unique, Hasher hasher = Hasher(), KeyEqChecker keyEq = KeyEqChecker(), DataEqChecker dataEq = DataEqChecker());
+        ~CompactingOpenHashTable();
+
+        /** simple find */
+        iterator find(const Key &key) const { return findEntry(key, NULL); }
+        /** find an exact key/value match */
+        iterator find(const Key &key, const Data &value) const { return findEntry(key, &value); }
+        /** simple insert */
+        bool insert(const Key &key, const Data &value);
+        /** delete by key (unique only) */
+        bool erase(const Key &key);
+        /** delete by kv pair */
+        bool erase(const Key &key, const Data &value);
+        /** delete from iterator */
+        bool erase(iterator &iter);
+        /** STL-ish size() method */
+        size_t size() const { return m_tables[ACTIVE].count + m_tables[DRAINING].count; }
+
+        /** Return bytes used for this index */
+        size_t bytesAllocated() const { return m_tables[ACTIVE].bytes + m_tables[DRAINING].bytes; }
+
+        /** Entries per slot of the table being filled */
+        double loadFactor() const {
+            return static_cast<double>(size()) / static_cast<double>(m_tables[ACTIVE].capacity);
+        }
+
+        /** Average number of slots a successful lookup examines */
+        double averageProbeLength() const {
+            if (size() == 0) {
+                return 0.0;
+            }
+            uint64_t probeSum = m_tables[ACTIVE].probeSum + m_tables[DRAINING].probeSum;
+            return 1.0 + static_cast<double>(probeSum) / static_cast<double>(size());
+        }
+
+        /** true while an incremental resize is in progress */
+        bool isResizing() const { return m_tables[DRAINING].ctrl != NULL; }
+
+        /** verification for debugging and testing */
+        bool verify() const;
+
+    private:
+        // no copying, the tables are owned
+        CompactingOpenHashTable(const CompactingOpenHashTable&);
+        CompactingOpenHashTable& operator=(const CompactingOpenHashTable&);
+
+    protected:
+        /** spread the bits of weak hashes (like the identity hash of an integer key) */
+        uint64_t hash(const Key &key) const {
+            uint64_t h = static_cast<uint64_t>(m_hasher(key));
+            h ^= h >> 33;
+            h *= 0xff51afd7ed558ccdULL;
+            h ^= h >> 33;
+            h *= 0xc4ceb9fe1a85ec53ULL;
+            h ^= h >> 33;
+            return h;
+        }
+
+        iterator findEntry(const Key &key, const Data *value) const;
+        void moveNext(iterator &iter) const;
+
+        /** probe a table starting at pos, which is dist - 1 slots away from the key's home */
+        uint64_t probe(const Table &table, uint64_t pos, uint32_t dist, uint32_t tag,
+                       const Key &key, const Data *value) const;
+        uint64_t probe(const Table &table, uint64_t hash, const Key &key, const Data *value) const {
+            if (table.ctrl == NULL) {
+                return NOT_FOUND;
+            }
+            return probe(table, hash >> table.shift, 1, static_cast<uint32_t>(hash & 0xff), key, value);
+        }
+
+        /** Robin Hood insert into a table known to have a free slot */
+        void place(Table &table, uint64_t hash, const Key &key, const Data &value);
+        /** backward shift delete */
+        void eraseAt(Table &table, uint64_t pos);
+
+        /** see if the table needs to grow or shrink, or move on with a resize */
+        void checkLoadFactor();
+        /** start an incremental resize */
+        void resize(uint64_t newCapacity);
+        /** move whole clusters of the draining table until at least budget slots are visited */
+        void migrate(uint64_t budget);
+
+        static void allocate(Table &table, uint64_t capacity);
+        static void release(Table &table);
+    };
+
+    ///////////////////////////////////////////
+    //
+    // COMPACTING OPEN HASH TABLE CODE
+    //
+    ///////////////////////////////////////////
+
+    template<class K, class T, class H, class EK, class ET>
+    CompactingOpenHashTable<K, T, H, EK, ET>::CompactingOpenHashTable(bool unique, Hasher hasher, KeyEqChecker keyEq, DataEqChecker dataEq)
+    : m_unique(unique),
+    m_drainPos(0),
+    m_drainRemaining(0),
+    m_hasher(hasher),
+    m_keyEq(keyEq),
+    m_dataEq(dataEq)
+    {
+        memset(m_tables, 0, sizeof(m_tables));
+        allocate(m_tables[ACTIVE], INITIAL_CAPACITY);
+    }
+
+    template<class K, class T, class H, class EK, class ET>
+    CompactingOpenHashTable<K, T, H, EK, ET>::~CompactingOpenHashTable() {
+        for (int which = 0; which < 2; ++which) {
+            Table &table = m_tables[which];
+            if (table.ctrl == NULL) {
+                continue;
+            }
+            for (uint64_t pos = 0; pos < table.capacity; ++pos) {
+                if (table.ctrl[pos]) {
+                    table.slots[pos].~Slot();
+                }
+            }
+            release(table);
+        }
+    }
+
+    template<class K, class T, class H, class EK, class ET>
+    void CompactingOpenHashTable<K, T, H, EK, ET>::allocate(Table &table, uint64_t capacity) {
+        assert(capacity >= 8 && (capacity & (capacity - 1)) == 0);
+        // control words first, the slots after them stay 8 byte aligned
+        size_t ctrlBytes = ((sizeof(uint32_t) * capacity + 7) / 8) * 8;
+        table.bytes = ctrlBytes + sizeof(Slot) * capacity;
+        // anonymous memory comes back zeroed, which makes every slot empty
+        void *memory = mmap(NULL, table.bytes, PROT_READ | PROT_WRITE, MAP_PRIVATE | MAP_ANON, -1, 0);
+        assert(memory != MAP_FAILED);
+        table.ctrl = reinterpret_cast<uint32_t*>(memory);
+        table.slots = reinterpret_cast<Slot*>(reinterpret_cast<char*>(memory) + ctrlBytes);
+        table.capacity = capacity;
+        table.mask = capacity - 1;
+        table.shift = 64;
+        for (uint64_t c = capacity; c > 1; c >>= 1) {
+            --table.shift;
+        }
+        table.count = 0;
+        table.probeSum = 0;
+    }
+
+    template<class K, class T, class H, class EK, class ET>
+    void CompactingOpenHashTable<K, T, H, EK, ET>::release(Table &table) {
+        munmap(table.ctrl, table.bytes);
+        memset(&table, 0, sizeof(Table));
+    }
+
+    template<class K, class T, class H, class EK, class ET>
+    typename CompactingOpenHashTable<K, T, H, EK, ET>::iterator
+    CompactingOpenHashTable<K, T, H, EK, ET>::findEntry(const Key &key, const Data *value) const {
+        uint64_t h = hash(key);
+        // while resizing, entries of a key can be in both tables, the older ones first
+        uint64_t pos = probe(m_tables[DRAINING], h, key, value);
+        if (pos != NOT_FOUND) {
+            return iterator(this, DRAINING, pos);
+        }
+        pos = probe(m_tables[ACTIVE], h, key, value);
+        if (pos != NOT_FOUND) {
+            return iterator(this, ACTIVE, pos);
+        }
+        return iterator();
+    }
+
+    template<class K, class T, class H, class EK, class ET>
+    void CompactingOpenHashTable<K, T, H, EK, ET>::moveNext(iterator &iter) const {
+        assert( ! iter.isEnd());
+        const Table &table = m_tables[iter.m_which];
+        const uint32_t ctrl = table.ctrl[iter.m_slot];
+        const Key &key = table.slots[iter.m_slot].key;
+        // all the entries of a key share its home slot, so they are in the same run
+        uint64_t pos = probe(table, (iter.m_slot + 1) & table.mask, (ctrl >> 8) + 1, ctrl & 0xff, key, NULL);
+        if (pos != NOT_FOUND) {
+            iter.m_slot = static_cast<uint32_t>(pos);
+            return;
+        }
+        if (iter.m_which == DRAINING) {
+            pos = probe(m_tables[ACTIVE], hash(key), key, NULL);
+            if (pos != NOT_FOUND) {
+                iter.m_which = ACTIVE;
+                iter.m_slot = static_cast<uint32_t>(pos);
+                return;
+            }
+        }
+        iter = iterator();
+    }
+
+    template<class K, class T, class H, class EK, class ET>
+    uint64_t CompactingOpenHashTable<K, T, H, EK, ET>::probe(const Table &table, uint64_t pos, uint32_t dist, uint32_t tag,
+                                                             const Key &key, const Data *value) const {
+        for (;;) {
+            const uint32_t ctrl = table.ctrl[pos];
+            // an empty slot, or an entry closer to its home than the key would be,
+            // means the key isn't any further along
+            if ((ctrl >> 8) < dist) {
+                return NOT_FOUND;
+            }
+            if ((ctrl & 0xff) == tag && m_keyEq(table.slots[pos].key, key) &&
+                (value == NULL || m_dataEq(table.slots[pos].value, *value))) {
+                return pos;
+            }
+            pos = (pos + 1) & table.mask;
+            ++dist;
+        }
+    }
+
+    template<class K, class T, class H, class EK, class ET>
+    bool CompactingOpenHashTable<K, T, H, EK, ET>::insert(const Key &key, const Data &value) {
+        uint64_t h = hash(key);
+        // protect unique constraint
+        if (m_unique && (probe(m_tables[DRAINING], h, key, NULL) != NOT_FOUND ||
+                         probe(m_tables[ACTIVE], h, key, NULL) != NOT_FOUND)) {
+            return false;
+        }
+        place(m_tables[ACTIVE], h, key, value);
+        checkLoadFactor();
+        return true;
+    }
+
+    template<class K, class T, class H, class EK, class ET>
+    void CompactingOpenHashTable<K, T, H, EK, ET>::place(Table &table, uint64_t hash, const Key &key, const Data &value) {
+        assert(table.count < table.capacity);
+        uint64_t pos = hash >> table.shift;
+        uint32_t ctrl = DIST_ONE | static_cast<uint32_t>(hash & 0xff);
+        Slot carry;
+        carry.key = key;
+        carry.value = value;
+        for (;;) {
+            const uint32_t existing = table.ctrl[pos];
+            if (existing == 0) {
+                new (&table.slots[pos]) Slot(carry);
+                table.ctrl[pos] = ctrl;
+                table.probeSum += (ctrl >> 8) - 1;
+                ++table.count;
+                return;
+            }
+            if ((existing >> 8) < (ctrl >> 8)) {
+                // the carried entry is further from home, it takes the slot
+                // and the displaced entry moves on
+                std::swap(carry, table.slots[pos]);
+                table.ctrl[pos] = ctrl;
+                table.probeSum += (ctrl >> 8) - (existing >> 8);
+                ctrl = existing;
+            }
+            pos = (pos + 1) & table.mask;
+            ctrl += DIST_ONE;
+            assert((ctrl >> 8) != 0);
+        }
+    }
+
+    template<class K, class T, class H, class EK, class ET>
+    void CompactingOpenHashTable<K, T, H, EK, ET>::eraseAt(Table &table, uint64_t pos) {
+        assert(table.ctrl[pos]);
+        table.probeSum -= (table.ctrl[pos] >> 8) - 1;
+        --table.count;
+        // pull back the following entries of the cluster that aren't in their home slot
+        uint64_t next = (pos + 1) & table.mask;
+        while ((table.ctrl[next] >> 8) > 1) {
+            table.slots[pos] = table.slots[next];
+            table.ctrl[pos] = table.ctrl[next] - DIST_ONE;
+            --table.probeSum;
+            pos = next;
+            next = (next + 1) & table.mask;
+        }
+        table.slots[pos].~Slot();
+        table.ctrl[pos] = 0;
+    }
+
+    template<class K, class T, class H, class EK, class ET>
+    bool CompactingOpenHashTable<K, T, H, EK, ET>::erase(const Key &key) {
+        assert(m_unique);
+        iterator iter = findEntry(key, NULL);
+        if (iter.isEnd()) {
+            return false;
+        }
+        return erase(iter);
+    }
+
+    template<class K, class T, class H, class EK, class ET>
+    bool CompactingOpenHashTable<K, T, H, EK, ET>::erase(const Key &key, const Data &value) {
+        iterator iter = findEntry(key, &value);
+        if (iter.isEnd()) {
+            return false;
+        }
+        return erase(iter);
+    }
+
+    template<class K, class T, class H, class EK, class ET>
+    bool CompactingOpenHashTable<K, T, H, EK, ET>::erase(iterator &iter) {
+        assert( ! iter.isEnd() && iter.m_table == this);
+        eraseAt(m_tables[iter.m_which], iter.m_slot);
+        iter = iterator();
+        checkLoadFactor();
+        return true;
+    }
+
+    template<class K, class T, class H, class EK, class ET>
+    void CompactingOpenHashTable<K, T, H, EK, ET>::checkLoadFactor() {
+        Table &active = m_tables[ACTIVE];
+        if (isResizing()) {
+            if (size() * 100 < active.capacity * MAX_LOAD_FACTOR) {
+                migrate(MIGRATE_SLOTS);
+                return;
+            }
+            // everything must fit in the new table before it can grow again,
+            // finish this resize now (only happens if it had to shrink and then
+            // filled back up before draining)
+            migrate(m_drainRemaining);
+        }
+        if (active.count * 100 >= active.capacity * MAX_LOAD_FACTOR) {
+            resize(active.capacity * 2);
+        }
+        else if (active.count * 100 < active.capacity * MIN_LOAD_FACTOR) {
+            // make sure the table doesn't over-shrink
+            if (active.capacity > INITIAL_CAPACITY) {
+                resize(active.capacity / 2);
+            }
+        }
+    }
+
+    template<class K, class T, class H, class EK, class ET>
+    void CompactingOpenHashTable<K, T, H, EK, ET>::resize(uint64_t newCapacity) {
+        assert( ! isResizing());
+        m_tables[DRAINING] = m_tables[ACTIVE];
+        allocate(m_tables[ACTIVE], newCapacity);
+
+        // drain starting right after an empty slot, so no cluster is split
+        // (there is one because the table is never more than MAX_LOAD_FACTOR full)
+        Table &draining = m_tables[DRAINING];
+        uint64_t pos = 0;
+        while (draining.ctrl[pos] != 0) {
+            ++pos;
+        }
+        m_drainPos = (pos + 1) & draining.mask;
+        m_drainRemaining = draining.capacity;
+        migrate(MIGRATE_SLOTS);
+    }
+
+    template<class K, class T, class H, class EK, class ET>
+    void CompactingOpenHashTable<K, T, H, EK, ET>::migrate(uint64_t budget) {
+        Table &draining = m_tables[DRAINING];
+        Table &active = m_tables[ACTIVE];
+        while (m_drainRemaining > 0) {
+            const uint32_t ctrl = draining.ctrl[m_drainPos];
+            if (ctrl == 0) {
+                // only stop between clusters, so the rest of the table stays searchable
+                if (budget == 0) {
+                    break;
+                }
+            }
+            else {
+                Slot &slot = draining.slots[m_drainPos];
+                place(active, hash(slot.key), slot.key, slot.value);
+                slot.~Slot();
+                draining.ctrl[m_drainPos] = 0;
+                draining.probeSum -= (ctrl >> 8) - 1;
+                --draining.count;
+            }
+            m_drainPos = (m_drainPos + 1) & draining.mask;
+            --m_drainRemaining;
+            if (budget > 0) {
+                --budget;
+            }
+        }
+        if (m_drainRemaining == 0) {
+            assert(draining.count == 0);
+            release(draining);
+        }
+    }
+
+    template<class K, class T, class H, class EK, class ET>
+    bool CompactingOpenHashTable<K, T, H, EK, ET>::verify() const {
+        for (int which = 0; which < 2; ++which) {
+            const Table &table = m_tables[which];
+            if (table.ctrl == NULL) {
+                continue;
+            }
+            uint64_t count = 0;
+            uint64_t probeSum = 0;
+            for (uint64_t pos = 0; pos < table.capacity; ++pos) {
+                const uint32_t ctrl = table.ctrl[pos];
+                if (ctrl == 0) {
+                    continue;
+                }
+                uint64_t h = hash(table.slots[pos].key);
+                uint64_t dist = ((pos - (h >> table.shift)) & table.mask) + 1;
+                if ((ctrl >> 8) != dist) {
+                    printf("Slot %d distance from home is %d, expected %d.\n",
+                           (int) pos, (int) (ctrl >> 8) - 1, (int) dist - 1);
+                    return false;
+                }
+                if ((ctrl & 0xff) != (h & 0xff)) {
+                    printf("Slot %d fingerprint doesn't match the key hash.\n", (int) pos);
+                    return false;
+                }
+                const uint32_t next = table.ctrl[(pos + 1) & table.mask];
+                if ((next >> 8) > (ctrl >> 8) + 1) {
+                    printf("Slot %d is followed by an entry further from home.\n", (int) pos);
+                    return false;
+                }
+                ++count;
+                probeSum += dist - 1;
+            }
+            if (count != table.count) {
+                printf("Found %d entries by walking all slots, but expected %d entries.\n",
+                       (int) count, (int) table.count);
+                return false;
+            }
+            if (probeSum != table.probeSum) {
+                printf("Probe length total is %d, expected %d.\n", (int) probeSum, (int) table.probeSum);
+                return false;
+            }
+        }
+        return true;
+    }
+}
+
+#endif // COMPACTINGOPENHASHTABLE_H_
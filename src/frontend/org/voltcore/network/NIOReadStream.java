@@ -63,7 +63,12 @@ public class NIOReadStream {
     }
 
     int getInt() {
-        // TODO: Optimize?
+        // Fast path, the int doesn't span buffers and doesn't empty the first one
+        final BBContainer firstC = m_readBuffers.peekFirst();
+        if (firstC != null && firstC.b().remaining() > 4) {
+            m_totalAvailable -= 4;
+            return firstC.b().getInt();
+        }
         byte[] intbytes = new byte[4];
         getBytes(intbytes);
         int output = 0;
@@ -75,13 +80,20 @@ public class NIOReadStream {
     }
 
     void getBytes(byte[] output) {
-        if (m_totalAvailable < output.length) {
-            throw new IllegalStateException("Requested " + output.length + " bytes; only have "
+        getBytes(output, 0, output.length);
+    }
+
+    /**
+     * Copy the next length bytes in the stream to output starting at offset
+     */
+    void getBytes(byte[] output, int offset, int length) {
+        if (m_totalAvailable < length) {
+            throw new IllegalStateException("Requested " + length + " bytes; only have "
                     + m_totalAvailable + " bytes; call tryRead() first");
         }
 
         int bytesCopied = 0;
-        while (bytesCopied < output.length) {
+        while (bytesCopied < length) {
             BBContainer firstC = m_readBuffers.peekFirst();
             if (firstC == null) {
                 // Steal the write buffer
@@ -95,9 +107,9 @@ public class NIOReadStream {
 
             // Copy bytes from first into output
             int bytesRemaining = first.remaining();
-            int bytesToCopy = output.length - bytesCopied;
+            int bytesToCopy = length - bytesCopied;
             if (bytesToCopy > bytesRemaining) bytesToCopy = bytesRemaining;
-            first.get(output, bytesCopied, bytesToCopy);
+            first.get(output, offset + bytesCopied, bytesToCopy);
             bytesCopied += bytesToCopy;
             m_totalAvailable -= bytesToCopy;
 
@@ -22,8 +22,11 @@ import java.nio.ByteBuffer;
 import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SelectionKey;
 import java.util.ArrayDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.DeferredSerialization;
 import org.voltcore.utils.EstTime;
 
@@ -76,20 +79,73 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
      */
     private long m_lastPendingWriteTime = -1;
 
+    /**
+     * Hold back writes of less than this many bytes for up to NETWORK_WRITE_COALESCE_MICROS
+     * so responses that complete close together share a write() call. Off by default,
+     * it trades response latency for fewer system calls.
+     */
+    static final int WRITE_COALESCE_BYTES = Integer.getInteger("NETWORK_WRITE_COALESCE_BYTES", 0);
+    static final long WRITE_COALESCE_NANOS = Long.getLong("NETWORK_WRITE_COALESCE_MICROS", 0) * 1000;
+
+    private final int m_coalesceBytes;
+    private final long m_coalesceNanos;
+
+    /**
+     * System.nanoTime() of the first drain that held back pending writes, -1 if none are held back
+     */
+    private long m_coalesceStartNanos = -1;
+
+    /**
+     * True while a task is scheduled to turn write interest back on for held back writes
+     */
+    private boolean m_coalesceRearmScheduled = false;
+
+    /**
+     * Turns write interest back on when a held back write is due, shared by all streams
+     * and only started once coalescing is used
+     */
+    private static ScheduledExecutorService s_coalesceTimer = null;
+
+    private static synchronized ScheduledExecutorService getCoalesceTimer() {
+        if (s_coalesceTimer == null) {
+            s_coalesceTimer = CoreUtils.getScheduledThreadPoolExecutor("Network write coalescing", 1,
+                                                                       CoreUtils.SMALL_STACK_SIZE);
+        }
+        return s_coalesceTimer;
+    }
+
     NIOWriteStream(VoltPort port) {
         this(port, null, null, null);
     }
 
+    NIOWriteStream(VoltPort port, int coalesceBytes, long coalesceNanos) {
+        this(port, null, null, null, coalesceBytes, coalesceNanos);
+    }
+
     NIOWriteStream (
             VoltPort port,
             Runnable offBackPressureCallback,
             Runnable onBackPressureCallback,
             QueueMonitor monitor)
+    {
+        this(port, offBackPressureCallback, onBackPressureCallback, monitor,
+             WRITE_COALESCE_BYTES, WRITE_COALESCE_NANOS);
+    }
+
+    private NIOWriteStream (
+            VoltPort port,
+            Runnable offBackPressureCallback,
+            Runnable onBackPressureCallback,
+            QueueMonitor monitor,
+            int coalesceBytes,
+            long coalesceNanos)
     {
         m_port = port;
         m_offBackPressureCallback = offBackPressureCallback;
         m_onBackPressureCallback = onBackPressureCallback;
         m_monitor = monitor;
+        m_coalesceBytes = coalesceBytes;
+        m_coalesceNanos = coalesceNanos;
     }
 
     /*
@@ -311,6 +367,48 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
         }
     }
 
+    private boolean shouldCoalesce() {
+        if (m_coalesceBytes <= 0 || m_bytesPending >= m_coalesceBytes || m_hadBackPressure) {
+            m_coalesceStartNanos = -1;
+            return false;
+        }
+        final long now = System.nanoTime();
+        if (m_coalesceStartNanos == -1) {
+            m_coalesceStartNanos = now;
+        }
+        if (now - m_coalesceStartNanos < m_coalesceNanos) {
+            return true;
+        }
+        m_coalesceStartNanos = -1;
+        return false;
+    }
+
+    /**
+     * Stop selecting for write while writes are held back, the selector would report the
+     * port writable right away and the network thread would spin on it. Write interest comes
+     * back when the hold expires or when another message is queued.
+     */
+    private void holdWrites() {
+        m_port.setInterests(0, SelectionKey.OP_WRITE);
+        if (m_coalesceRearmScheduled) {
+            return;
+        }
+        m_coalesceRearmScheduled = true;
+        final long delay = m_coalesceNanos - (System.nanoTime() - m_coalesceStartNanos);
+        getCoalesceTimer().schedule(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (NIOWriteStream.this) {
+                    m_coalesceRearmScheduled = false;
+                    if (m_isShutdown) {
+                        return;
+                    }
+                    m_port.setInterests(SelectionKey.OP_WRITE, 0);
+                }
+            }
+        }, Math.max(0, delay), TimeUnit.NANOSECONDS);
+    }
+
     /**
      * Does the work of queueing addititional buffers that have been serialized
      * and choosing between gathering and regular writes to the channel. Also splits up very large
@@ -333,26 +431,19 @@ public class NIOWriteStream extends NIOWriteStreamBase implements WriteStream {
                     return bytesWritten;
                 }
 
-                ByteBuffer buffer = null;
-                if (m_currentWriteBuffer == null) {
-                    m_currentWriteBuffer = m_queuedBuffers.poll();
-                    buffer = m_currentWriteBuffer.b();
-                    buffer.flip();
-                } else {
-                    buffer = m_currentWriteBuffer.b();
+                /*
+                 * Wait for more to write, the port is drained again when the hold
+                 * expires or another message is queued.
+                 */
+                if (bytesWritten == 0 && shouldCoalesce()) {
+                    holdWrites();
+                    return 0;
                 }
 
-                rc = channel.write(buffer);
+                rc = gatheringWrite(channel);
 
-                //Discard the buffer back to a pool if no data remains
-                if (buffer.hasRemaining()) {
-                    if (!m_hadBackPressure) {
-                        backpressureStarted();
-                    }
-                } else {
-                    m_currentWriteBuffer.discard();
-                    m_currentWriteBuffer = null;
-                    m_messagesWritten++;
+                if (m_currentWriteBuffer != null && !m_hadBackPressure) {
+                    backpressureStarted();
                 }
                 bytesWritten += rc;
 
@@ -47,8 +47,22 @@ public abstract class NIOWriteStreamBase {
      */
     protected final ArrayDeque<BBContainer> m_queuedBuffers = new ArrayDeque<BBContainer>();
 
+    /**
+     * Most buffers passed to one gathering write() call
+     */
+    static final int MAX_GATHERED_BUFFERS = Math.max(1, Integer.getInteger("NETWORK_MAX_GATHERED_BUFFERS", 16));
+
+    private final ByteBuffer[] m_gatheredBuffers = new ByteBuffer[MAX_GATHERED_BUFFERS];
+    private final BBContainer[] m_gatheredContainers = new BBContainer[MAX_GATHERED_BUFFERS];
+
+    /**
+     * Bytes serialized and not yet written to the channel
+     */
+    protected int m_bytesPending = 0;
+
     protected long m_bytesWritten = 0;
     protected long m_messagesWritten = 0;
+    protected long m_writeCalls = 0;
 
     /*
      * Used to provide incremental reads of the amount of
@@ -58,7 +72,11 @@ public abstract class NIOWriteStreamBase {
      */
     private long m_lastBytesWritten = 0;
     private long m_lastMessagesWritten = 0;
+    private long m_lastWriteCalls = 0;
 
+    /**
+     * @return bytes written, messages written and the number of write() calls to the channel
+     */
     long[] getBytesAndMessagesWritten(boolean interval) {
         if (interval) {
             final long bytesWrittenThisTime = m_bytesWritten - m_lastBytesWritten;
@@ -66,9 +84,12 @@ public abstract class NIOWriteStreamBase {
 
             final long messagesWrittenThisTime = m_messagesWritten - m_lastMessagesWritten;
             m_lastMessagesWritten = m_messagesWritten;
-            return new long[] { bytesWrittenThisTime, messagesWrittenThisTime };
+
+            final long writeCallsThisTime = m_writeCalls - m_lastWriteCalls;
+            m_lastWriteCalls = m_writeCalls;
+            return new long[] { bytesWrittenThisTime, messagesWrittenThisTime, writeCallsThisTime };
         } else {
-            return new long[] {m_bytesWritten, m_messagesWritten};
+            return new long[] {m_bytesWritten, m_messagesWritten, m_writeCalls};
         }
     }
 
@@ -87,6 +108,72 @@ public abstract class NIOWriteStreamBase {
 
     abstract int drainTo (final GatheringByteChannel channel) throws IOException;
 
+    /**
+     * Write m_currentWriteBuffer and as many of the queued buffers after it as
+     * fit in MAX_GATHERED_BUFFERS with one write() call, so a burst of messages
+     * costs one system call instead of one per buffer. Buffers that are written
+     * completely are discarded back to the pool, a partially written one becomes
+     * m_currentWriteBuffer and the rest are returned to the head of
+     * m_queuedBuffers as they were.
+     * @return the number of bytes written, 0 if there was nothing to write
+     */
+    protected final long gatheringWrite(final GatheringByteChannel channel) throws IOException {
+        int count = 0;
+        if (m_currentWriteBuffer != null) {
+            m_gatheredContainers[count] = m_currentWriteBuffer;
+            m_gatheredBuffers[count++] = m_currentWriteBuffer.b();
+            m_currentWriteBuffer = null;
+        }
+        while (count < MAX_GATHERED_BUFFERS && !m_queuedBuffers.isEmpty()) {
+            final BBContainer c = m_queuedBuffers.poll();
+            c.b().flip();
+            m_gatheredContainers[count] = c;
+            m_gatheredBuffers[count++] = c.b();
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        long rc = 0;
+        try {
+            if (count == 1) {
+                rc = channel.write(m_gatheredBuffers[0]);
+            } else {
+                rc = channel.write(m_gatheredBuffers, 0, count);
+            }
+            m_writeCalls++;
+            m_bytesPending -= rc;
+        } finally {
+            returnGatheredBuffers(count);
+        }
+        return rc;
+    }
+
+    private void returnGatheredBuffers(int count) {
+        int ii = 0;
+        // A gathering write consumes the buffers in order, so only the first one with data left
+        // can be partially written
+        while (ii < count && !m_gatheredBuffers[ii].hasRemaining()) {
+            m_gatheredContainers[ii].discard();
+            ii++;
+        }
+        if (ii < count) {
+            m_currentWriteBuffer = m_gatheredContainers[ii];
+        }
+        for (int jj = count - 1; jj > ii; jj--) {
+            // Undo the flip so later messages can be serialized into the last buffer
+            final ByteBuffer b = m_gatheredBuffers[jj];
+            assert(b.position() == 0);
+            b.position(b.limit());
+            b.limit(b.capacity());
+            m_queuedBuffers.addFirst(m_gatheredContainers[jj]);
+        }
+        for (int jj = 0; jj < count; jj++) {
+            m_gatheredBuffers[jj] = null;
+            m_gatheredContainers[jj] = null;
+        }
+    }
+
     protected abstract ArrayDeque<DeferredSerialization> getQueuedWrites();
 
     /**
@@ -106,6 +193,7 @@ public abstract class NIOWriteStreamBase {
             processedWrites++;
             final int serializedSize = ds.getSerializedSize();
             if (serializedSize == DeferredSerialization.EMPTY_MESSAGE_LENGTH) continue;
+            m_messagesWritten++;
             BBContainer outCont = m_queuedBuffers.peekLast();
             ByteBuffer outbuf = null;
             if (outCont == null || !outCont.b().hasRemaining()) {
@@ -152,6 +240,7 @@ public abstract class NIOWriteStreamBase {
                 }
             }
         }
+        m_bytesPending += bytesQueued;
         updateQueued(bytesQueued, true);
         return processedWrites;
     }
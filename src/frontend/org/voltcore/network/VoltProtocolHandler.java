@@ -41,9 +41,32 @@ public abstract class VoltProtocolHandler implements InputHandler {
 
     private static int MAX_MESSAGE_LENGTH = 52428800;
 
+    /*
+     * Small messages are copied out of the read stream into a slice of a heap slab shared
+     * by the connections of a network thread, rather than each getting its own array. The
+     * slab is never reused, a new one is started when it fills up, so a consumer that
+     * retains a message (a parameter set or a VoltTable often refers to the message it was
+     * deserialized from) keeps the whole slab reachable until it lets go of the message.
+     * NETWORK_INBOUND_SLAB_SIZE=0 gives every message its own array.
+     */
+    private static final int SLAB_SIZE = Integer.getInteger("NETWORK_INBOUND_SLAB_SIZE", 1024 * 64);
+    private static final int MAX_SLAB_MESSAGE_LENGTH = SLAB_SIZE / 8;
+    private static final ThreadLocal<ByteBuffer> m_slab = new ThreadLocal<ByteBuffer>();
+
+    private final boolean m_useSlab;
+
     public VoltProtocolHandler() {
+        this(true);
+    }
+
+    /**
+     * @param useSlab false for connections whose messages tend to be retained for an
+     * unbounded time, like client responses handed to applications
+     */
+    protected VoltProtocolHandler(boolean useSlab) {
         m_sequenceId = 0;
         m_connectionId = m_globalConnectionCounter.incrementAndGet();
+        m_useSlab = useSlab && SLAB_SIZE > 0;
     }
 
     @Override
@@ -72,14 +95,33 @@ public abstract class VoltProtocolHandler implements InputHandler {
             assert m_nextLength > 0;
         }
         if (m_nextLength > 0 && inputStream.dataAvailable() >= m_nextLength) {
-            result = ByteBuffer.allocate(m_nextLength);
-            inputStream.getBytes(result.array());
+            if (m_useSlab && m_nextLength <= MAX_SLAB_MESSAGE_LENGTH) {
+                result = sliceFromSlab(inputStream, m_nextLength);
+            } else {
+                result = ByteBuffer.allocate(m_nextLength);
+                inputStream.getBytes(result.array());
+            }
             m_nextLength = 0;
             m_sequenceId++;
         }
         return result;
     }
 
+    private static ByteBuffer sliceFromSlab(final NIOReadStream inputStream, final int length) {
+        ByteBuffer slab = m_slab.get();
+        if (slab == null || slab.remaining() < length) {
+            slab = ByteBuffer.allocate(SLAB_SIZE);
+            m_slab.set(slab);
+        }
+        final int position = slab.position();
+        inputStream.getBytes(slab.array(), position, length);
+        slab.limit(position + length);
+        final ByteBuffer result = slab.slice();
+        slab.limit(slab.capacity());
+        slab.position(position + length);
+        return result;
+    }
+
     @Override
     public void started(Connection c) {
     }
@@ -285,7 +285,8 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
             String connectionHostname,
             String procedureName,
             long deltaNanos,
-            byte status) {
+            byte status,
+            boolean replicaRead) {
         boolean needToInsert = false;
         Map<String, InvocationInfo> procInfoMap = m_connectionStates.get(connectionId);
         if (procInfoMap == null) {
@@ -297,7 +298,7 @@ public class AdmissionControlGroup implements org.voltcore.network.QueueMonitor
             info = new InvocationInfo(connectionHostname);
             procInfoMap.put(procedureName, info);
         }
-        info.processInvocation((int)TimeUnit.NANOSECONDS.toMillis(deltaNanos), status);
+        info.processInvocation((int)TimeUnit.NANOSECONDS.toMillis(deltaNanos), status, replicaRead);
         // ENG-7209 This is to not log the latency value for a snapshot restore, as this just creates
         // a large initial value in the graph which is not actually relevant to the user.
         if (!procedureName.equals("@SnapshotRestore")) {
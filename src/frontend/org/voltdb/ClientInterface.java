@@ -33,6 +33,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -100,6 +101,7 @@ import org.voltdb.dtxn.InitiatorStats.InvocationInfo;
 import org.voltdb.iv2.Cartographer;
 import org.voltdb.iv2.Iv2Trace;
 import org.voltdb.iv2.MpInitiator;
+import org.voltdb.iv2.TxnTracer;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.messaging.InitiateResponseMessage;
 import org.voltdb.messaging.Iv2EndOfLogMessage;
@@ -242,6 +244,9 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
     // IV2 doesn't use this at all. Leave it here for now for legacy.
     private final int m_allPartitions[];
     private ImmutableMap<Integer, Long> m_localReplicas = ImmutableMap.<Integer, Long>builder().build();
+    // Spreads single partition reads across replicas, null unless the read level is "replica"
+    private final SpReadRouter m_readRouter;
+    private static final long READ_ROUTER_REFRESH_MS = 5000;
     final long m_siteId;
     final long m_plannerSiteId;
 
@@ -264,6 +269,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
     // MAX_CONNECTIONS is updated to be (FD LIMIT - 300) after startup
     private final AtomicInteger MAX_CONNECTIONS = new AtomicInteger(800);
     private ScheduledFuture<?> m_maxConnectionUpdater;
+    private ScheduledFuture<?> m_readRouterRefresher;
 
     private final boolean m_isConfiguredForHSQL;
 
@@ -936,6 +942,8 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                 return DeferredSerialization.EMPTY_MESSAGE_LENGTH;
             }
 
+            TxnTracer.recordClient(clientData.m_partitionId, response.getClientInterfaceHandle(),
+                                   TxnTracer.Event.RESPONSE);
             final long now = System.nanoTime();
             final long delta = now - clientData.m_creationTimeNanos;
 
@@ -947,7 +955,8 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                     cihm.connection.getHostnameOrIP(),
                     clientData.m_procName,
                     delta,
-                    clientResponse.getStatus());
+                    clientResponse.getStatus(),
+                    isReplicaRead(clientData, response.getClientInterfaceHandle()));
 
             clientResponse.setClientHandle(clientData.m_clientHandle);
             clientResponse.setClusterRoundtrip((int)TimeUnit.NANOSECONDS.toMillis(delta));
@@ -961,6 +970,19 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             return clientResponse.getClass().getName();
         }
 
+        /*
+         * Single partition reads short circuit to a copy of the partition,
+         * count those not run by the partition leader.
+         */
+        private boolean isReplicaRead(Iv2InFlight clientData, long ciHandle) {
+            if (!ClientInterfaceHandleManager.isShortCircuitHandle(ciHandle) ||
+                    clientData.m_partitionId == MpInitiator.MP_INIT_PID) {
+                return false;
+            }
+            final Long leader = m_cartographer.getHSIdForSinglePartitionMasterIfKnown(clientData.m_partitionId);
+            return leader != null && leader != clientData.m_initiatorHSId;
+        }
+
         /**
          * Checks if the transaction needs to be restarted, if so, restart it.
          * @param messageSize the original message size when the invocation first came in
@@ -1058,14 +1080,21 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
 
         Long initiatorHSId = null;
         boolean isShortCircuitRead = false;
+        boolean isReplicaRead = false;
 
         /*
          * If this is a read only single part, check if there is a local replica,
-         * if there is, send it to the replica as a short circuit read
+         * if there is, send it to the replica as a short circuit read. With the
+         * replica read level pick any copy of the partition instead.
          */
         if (isSinglePartition && !isEveryPartition) {
             if (isReadOnly) {
-                initiatorHSId = m_localReplicas.get(partition);
+                if (m_readRouter != null) {
+                    initiatorHSId = m_readRouter.pickCopy(partition);
+                    isReplicaRead = initiatorHSId != null;
+                } else {
+                    initiatorHSId = m_localReplicas.get(partition);
+                }
             }
             if (initiatorHSId != null) {
                 isShortCircuitRead = true;
@@ -1104,8 +1133,13 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                     handle,
                     connectionId,
                     isForReplay);
+        if (isReplicaRead) {
+            // Tells the copy which writes it must have queued before it can run the read
+            workRequest.setSpHandle(m_readRouter.getReadSpHandle(partition));
+        }
 
         Iv2Trace.logCreateTransaction(workRequest);
+        TxnTracer.recordClient(isSinglePartition ? partition : MpInitiator.MP_INIT_PID, handle, TxnTracer.Event.CREATE);
         m_mailbox.send(initiatorHSId, workRequest);
         return true;
     }
@@ -1159,6 +1193,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         m_adminAcceptor = null;
         m_adminAcceptor = new ClientAcceptor(adminIntf, adminPort, messenger.getNetwork(), true);
         m_invocationValidator = new InvocationValidator(replicationRole);
+        m_readRouter = SpReadRouter.isReplicaReadsEnabled() ? new SpReadRouter() : null;
 
         m_mailbox = new LocalMailbox(messenger,  messenger.getHSIdForLocalSite(HostMessenger.CLIENT_INTERFACE_SITE_ID)) {
             LinkedBlockingQueue<VoltMessage> m_d = new LinkedBlockingQueue<VoltMessage>();
@@ -1170,6 +1205,13 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                     InitiateResponseMessage response = (InitiateResponseMessage)message;
                     StoredProcedureInvocation invocation = response.getInvocation();
                     Iv2Trace.logFinishTransaction(response, m_mailbox.getHSId());
+                    if (m_readRouter != null && !response.isReadOnly()) {
+                        final int partitionId =
+                                ClientInterfaceHandleManager.getPartIdFromHandle(response.getClientInterfaceHandle());
+                        if (partitionId != MpInitiator.MP_INIT_PID) {
+                            m_readRouter.writeCompleted(partitionId, response.getSpHandle());
+                        }
+                    }
                     ClientInterfaceHandleManager cihm = m_cihm.get(response.getClientConnectionId());
                     Procedure procedure = null;
 
@@ -1206,43 +1248,56 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         m_isConfiguredForHSQL = (VoltDB.instance().getBackendTargetType() == BackendTarget.HSQLDB_BACKEND);
     }
 
-    private void handlePartitionFailOver(BinaryPayloadMessage message) {
+    private void refreshReadRouter() {
         try {
-            JSONObject jsObj = new JSONObject(new String(message.m_payload, "UTF-8"));
-            final int partitionId = jsObj.getInt(Cartographer.JSON_PARTITION_ID);
-            final long initiatorHSId = jsObj.getLong(Cartographer.JSON_INITIATOR_HSID);
+            final List<Integer> partitions = m_cartographer.getPartitions();
+            partitions.remove(Integer.valueOf(MpInitiator.MP_INIT_PID));
+            final Map<Integer, List<Long>> copies = m_cartographer.getReplicasForPartitions(partitions);
+
+            // A rejoining replica may not have its data yet, only read from leaders until it's done
+            if (m_zk.exists(VoltZK.rejoinActiveBlocker, false) != null) {
+                for (Map.Entry<Integer, List<Long>> e : copies.entrySet()) {
+                    final Long leader = m_cartographer.getHSIdForSinglePartitionMasterIfKnown(e.getKey());
+                    e.setValue(leader == null ? new ArrayList<Long>() : Arrays.asList(leader));
+                }
+            }
+
+            final Set<Long> gone = m_readRouter.setCopies(copies);
+            if (gone.isEmpty()) {
+                return;
+            }
             for (final ClientInterfaceHandleManager cihm : m_cihm.values()) {
                 try {
                     cihm.connection.queueTask(new Runnable() {
                         @Override
                         public void run() {
-                            failOverConnection(partitionId, initiatorHSId, cihm.connection);
+                            failReplicaReads(gone, cihm.connection);
                         }
                     });
                 } catch (UnsupportedOperationException ignore) {
                     // In case some internal connections don't implement queueTask()
-                    failOverConnection(partitionId, initiatorHSId, cihm.connection);
+                    failReplicaReads(gone, cihm.connection);
                 }
             }
         } catch (Exception e) {
-            hostLog.warn("Error handling partition fail over at ClientInterface, continuing anyways", e);
+            hostLog.warn("Error refreshing the replicas used for single partition reads", e);
         }
     }
 
     /*
-     * When partition mastership for a partition changes, check all outstanding
-     * requests for that partition and if they aren't for the current partition master,
-     * drop them and send an error response.
+     * Answer the reads outstanding at replicas that are no longer part of the cluster.
+     * They didn't change anything so the client can simply retry them.
      */
-    private void failOverConnection(Integer partitionId, Long initiatorHSId, Connection c) {
+    private void failReplicaReads(Set<Long> hsids, Connection c) {
         ClientInterfaceHandleManager cihm = m_cihm.get(c.connectionId());
         if (cihm == null) {
             return;
         }
+        sendDroppedResponses(cihm.removeShortCircuitReadsForInitiators(hsids), c,
+                "Read dropped due to the failure of the replica it was sent to");
+    }
 
-        List<Iv2InFlight> transactions =
-                cihm.removeHandlesForPartitionAndInitiator( partitionId, initiatorHSId);
-
+    private void sendDroppedResponses(List<Iv2InFlight> transactions, Connection c, String reason) {
         for (Iv2InFlight inFlight : transactions) {
             ClientResponseImpl response =
                     new ClientResponseImpl(
@@ -1250,8 +1305,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                             ClientResponse.UNINITIALIZED_APP_STATUS_CODE,
                             null,
                             new VoltTable[0],
-                            "Transaction dropped due to change in mastership. " +
-                            "It is possible the transaction was committed");
+                            reason);
             response.setClientHandle( inFlight.m_clientHandle );
             ByteBuffer buf = ByteBuffer.allocate(response.getSerializedSize() + 4);
             buf.putInt(buf.capacity() - 4);
@@ -1259,6 +1313,55 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             buf.flip();
             c.writeStream().enqueue(buf);
         }
+    }
+
+    private void handlePartitionFailOver(BinaryPayloadMessage message) {
+        if (m_readRouter != null) {
+            VoltDB.instance().scheduleWork(new Runnable() {
+                @Override
+                public void run() {
+                    refreshReadRouter();
+                }
+            }, 0, 0, TimeUnit.MILLISECONDS);
+        }
+        try {
+            JSONObject jsObj = new JSONObject(new String(message.m_payload, "UTF-8"));
+            final int partitionId = jsObj.getInt(Cartographer.JSON_PARTITION_ID);
+            final long initiatorHSId = jsObj.getLong(Cartographer.JSON_INITIATOR_HSID);
+            for (final ClientInterfaceHandleManager cihm : m_cihm.values()) {
+                try {
+                    cihm.connection.queueTask(new Runnable() {
+                        @Override
+                        public void run() {
+                            failOverConnection(partitionId, initiatorHSId, cihm.connection);
+                        }
+                    });
+                } catch (UnsupportedOperationException ignore) {
+                    // In case some internal connections don't implement queueTask()
+                    failOverConnection(partitionId, initiatorHSId, cihm.connection);
+                }
+            }
+        } catch (Exception e) {
+            hostLog.warn("Error handling partition fail over at ClientInterface, continuing anyways", e);
+        }
+    }
+
+    /*
+     * When partition mastership for a partition changes, check all outstanding
+     * requests for that partition and if they aren't for the current partition master,
+     * drop them and send an error response.
+     */
+    private void failOverConnection(Integer partitionId, Long initiatorHSId, Connection c) {
+        ClientInterfaceHandleManager cihm = m_cihm.get(c.connectionId());
+        if (cihm == null) {
+            return;
+        }
+
+        List<Iv2InFlight> transactions =
+                cihm.removeHandlesForPartitionAndInitiator( partitionId, initiatorHSId);
+        sendDroppedResponses(transactions, c,
+                "Transaction dropped due to change in mastership. " +
+                "It is possible the transaction was committed");
 
         if (cihm.repairCallback != null) {
             cihm.repairCallback.repairCompleted(partitionId, initiatorHSId);
@@ -2599,6 +2702,9 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         if (m_maxConnectionUpdater != null) {
             m_maxConnectionUpdater.cancel(false);
         }
+        if (m_readRouterRefresher != null) {
+            m_readRouterRefresher.cancel(false);
+        }
         if (m_acceptor != null) {
             m_acceptor.shutdown();
         }
@@ -2650,6 +2756,19 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         };
         m_localReplicasBuilder.start();
 
+        /*
+         * With the replica read level, keep the set of copies each read can go to
+         * up to date, and fail reads that were sent to copies that went away.
+         */
+        if (m_readRouter != null) {
+            m_readRouterRefresher = VoltDB.instance().scheduleWork(new Runnable() {
+                @Override
+                public void run() {
+                    refreshReadRouter();
+                }
+            }, 0, READ_ROUTER_REFRESH_MS, TimeUnit.MILLISECONDS);
+        }
+
         /*
          * Periodically check the limit on the number of open files
          */
@@ -2885,6 +3004,10 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         return m_snapshotDaemon;
     }
 
+    public long getSiteId() {
+        return m_siteId;
+    }
+
     /**
      * Send a command log replay sentinel to the given partition.
      * @param txnId
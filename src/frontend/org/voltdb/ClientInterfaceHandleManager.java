@@ -25,6 +25,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.network.Connection;
@@ -91,6 +92,11 @@ public class ClientInterfaceHandleManager
         return (int)((handle >> PART_ID_SHIFT) & MP_PART_ID);
     }
 
+    public static boolean isShortCircuitHandle(long handle)
+    {
+        return ((handle >> PART_ID_SHIFT) & ((1 << PART_ID_BITS) - 1)) == SHORT_CIRCUIT_PART_ID;
+    }
+
     public static long getSeqNumFromHandle(long handle)
     {
         return handle & SEQNUM_MAX;
@@ -109,8 +115,10 @@ public class ClientInterfaceHandleManager
         final long m_creationTimeNanos;
         final String m_procName;
         final long m_initiatorHSId;
+        final int m_partitionId;
         Iv2InFlight(long ciHandle, long clientHandle,
-                int messageSize, long creationTimeNanos, String procName, long initiatorHSId)
+                int messageSize, long creationTimeNanos, String procName, long initiatorHSId,
+                int partitionId)
         {
             m_ciHandle = ciHandle;
             m_clientHandle = clientHandle;
@@ -118,6 +126,7 @@ public class ClientInterfaceHandleManager
             m_creationTimeNanos = creationTimeNanos;
             m_procName = procName;
             m_initiatorHSId = initiatorHSId;
+            m_partitionId = partitionId;
         }
     }
 
@@ -181,6 +190,11 @@ public class ClientInterfaceHandleManager
                 return super.removeHandlesForPartitionAndInitiator(partitionId, initiatorHSId);
             }
 
+            @Override
+            synchronized List<Iv2InFlight> removeShortCircuitReadsForInitiators(Set<Long> initiatorHSIds) {
+                return super.removeShortCircuitReadsForInitiators(initiatorHSIds);
+            }
+
             @Override
             synchronized boolean shouldCheckThreadIdAssertion()
             {
@@ -224,7 +238,8 @@ public class ClientInterfaceHandleManager
         long ciHandle =
                 isShortCircuitRead ? m_shortCircuitHG.getNextHandle() : partitionStuff.m_generator.getNextHandle();
         Iv2InFlight inFlight =
-                new Iv2InFlight(ciHandle, clientHandle, messageSize, creationTimeNanos, procName, initiatorHSId);
+                new Iv2InFlight(ciHandle, clientHandle, messageSize, creationTimeNanos, procName, initiatorHSId,
+                        partitionId);
 
         if (isShortCircuitRead) {
             /*
@@ -420,6 +435,27 @@ public class ClientInterfaceHandleManager
         }
     }
 
+    /**
+     * Remove the outstanding short circuit reads sent to any of the given
+     * initiators. Used when reads spread across replicas were sent to a
+     * replica that has since failed.
+     */
+    List<Iv2InFlight> removeShortCircuitReadsForInitiators(Set<Long> initiatorHSIds) {
+        assert(!shouldCheckThreadIdAssertion() || m_expectedThreadId == Thread.currentThread().getId());
+        List<Iv2InFlight> retval = new ArrayList<Iv2InFlight>();
+        Iterator<Map.Entry<Long, Iv2InFlight>> itr = m_shortCircuitReads.entrySet().iterator();
+        while (itr.hasNext()) {
+            Iv2InFlight entry = itr.next().getValue();
+            if (initiatorHSIds.contains(entry.m_initiatorHSId)) {
+                itr.remove();
+                retval.add(entry);
+                m_outstandingTxns--;
+                m_acg.reduceBackpressure(entry.m_messageSize);
+            }
+        }
+        return retval;
+    }
+
     List<Iv2InFlight> removeHandlesForPartitionAndInitiator(Integer partitionId,
             Long initiatorHSId) {
         assert(!shouldCheckThreadIdAssertion() || m_expectedThreadId == Thread.currentThread().getId());
@@ -0,0 +1,350 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.messaging.HostMessenger;
+import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.InstanceId;
+import org.voltcore.zk.ZKCountdownLatch;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.dtxn.TransactionCreator;
+import org.voltdb.iv2.LeaderCache;
+import org.voltdb.iv2.MpInitiator;
+import org.voltdb.iv2.TxnEgo;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+
+import com.google_voltpatches.common.collect.ImmutableMap;
+
+/**
+ * Replays the segments written by {@link GroupCommitCommandLog}.
+ *
+ * Every copy of a partition logs the same transactions, so each partition is
+ * replayed by the host that currently leads it, from that host's own log.
+ * Single partition transactions are initiated again with their original
+ * transaction ids; the position of each multi-partition transaction in a
+ * partition's stream is marked with a sentinel. The host running the MPI
+ * initiates every multi-partition and every-site transaction found in its log
+ * once, then sends the end-of-log message that lets the partitions release
+ * anything still waiting for the MPI. Transactions already in the restored
+ * snapshot are skipped.
+ *
+ * Once a host has seen responses for everything it initiated it waits on a
+ * ZooKeeper barrier so the truncation snapshot that follows replay only
+ * starts after every host is done.
+ */
+public class CommandLogReplayer implements CommandLogReinitiator
+{
+    private static final VoltLogger LOG = new VoltLogger("LOGGING");
+
+    static final long REPLAY_CID = ClientInterface.CL_REPLAY_BASE_CID;
+    static final int MAX_OUTSTANDING = Integer.getInteger("COMMAND_LOG_REPLAY_MAX_OUTSTANDING", 5000);
+
+    private final int m_hostId;
+    private final StartAction m_action;
+    private final HostMessenger m_messenger;
+    private final File m_logDir;
+    private final Set<Integer> m_liveHosts;
+
+    private Callback m_callback;
+    private TransactionCreator m_initiator;
+    private RestoreAgent.SnapshotInfo m_snapshot;
+
+    // Log contents, scanned when the replayer is created
+    private final List<File> m_segments = new ArrayList<File>();
+    private InstanceId m_instanceId = null;
+    private Map<Integer, Long> m_startTxnIds = null;
+
+    // Replay plan
+    private boolean m_planned = false;
+    private final Set<Integer> m_replayPartitions = new HashSet<Integer>();
+    private boolean m_isMpiNode = false;
+
+    private final SimpleClientResponseAdapter m_adapter =
+            new SimpleClientResponseAdapter(REPLAY_CID, "Command log replay adapter");
+    private final Semaphore m_outstanding = new Semaphore(MAX_OUTSTANDING);
+    private final AtomicLong m_replayedTxns = new AtomicLong();
+    private final AtomicLong m_failedTxns = new AtomicLong();
+
+    public CommandLogReplayer(int hostId, StartAction action, HostMessenger messenger, String clPath,
+                              Set<Integer> liveHosts)
+    {
+        m_hostId = hostId;
+        m_action = action;
+        m_messenger = messenger;
+        m_logDir = new File(clPath);
+        m_liveHosts = liveHosts;
+        if (action.doesRecover()) {
+            scan();
+        }
+    }
+
+    /**
+     * Read the segment headers: the oldest one says where the log starts.
+     */
+    private void scan()
+    {
+        try {
+            final List<CommandLogSegment.Reader> readers = CommandLogSegment.openSegments(m_logDir);
+            for (CommandLogSegment.Reader reader : readers) {
+                final CommandLogSegment.Header header = reader.getHeader();
+                if (m_instanceId == null) {
+                    m_instanceId = header.instanceId;
+                    m_startTxnIds = header.lastSeenTxnIds;
+                } else if (!m_instanceId.equals(header.instanceId)) {
+                    LOG.warn("Ignoring command log segment " + reader.getFile() +
+                             " written by a different database instance");
+                    reader.close();
+                    continue;
+                }
+                m_segments.add(reader.getFile());
+                reader.close();
+            }
+        } catch (IOException e) {
+            VoltDB.crashLocalVoltDB("Unable to read the command log in " + m_logDir, true, e);
+        }
+        if (!m_segments.isEmpty()) {
+            LOG.info("Found " + m_segments.size() + " command log segments to replay in " + m_logDir);
+        }
+    }
+
+    @Override
+    public void setSnapshotTxnId(RestoreAgent.SnapshotInfo info)
+    {
+        m_snapshot = info;
+    }
+
+    @Override
+    public void setCallback(Callback callback)
+    {
+        m_callback = callback;
+    }
+
+    @Override
+    public void setInitiator(TransactionCreator initiator)
+    {
+        m_initiator = initiator;
+        m_initiator.bindAdapter(m_adapter);
+    }
+
+    @Override
+    public void initPartitionTracking()
+    {
+    }
+
+    @Override
+    public void generateReplayPlan(int newPartitionCount, boolean isMPINode)
+    {
+        m_isMpiNode = isMPINode;
+        m_replayPartitions.clear();
+        final LeaderCache masters = new LeaderCache(m_messenger.getZK(), VoltZK.iv2masters);
+        try {
+            masters.start(true);
+            final ImmutableMap<Integer, Long> leaders = masters.pointInTimeCache();
+            for (Map.Entry<Integer, Long> e : leaders.entrySet()) {
+                if (CoreUtils.getHostIdFromHSId(e.getValue()) == m_hostId) {
+                    m_replayPartitions.add(e.getKey());
+                }
+            }
+            masters.shutdown();
+        } catch (Exception e) {
+            VoltDB.crashGlobalVoltDB("Unable to determine the partition leaders for command log replay", true, e);
+        }
+        m_planned = true;
+        LOG.info("Replaying the command log for partitions " + m_replayPartitions +
+                 (m_isMpiNode ? " and the multi-partition initiator" : ""));
+    }
+
+    @Override
+    public void replay()
+    {
+        final Thread replayThread = new Thread(new Runnable() {
+            @Override
+            public void run()
+            {
+                try {
+                    if (m_planned && !m_segments.isEmpty()) {
+                        replayLocalLog();
+                    }
+                    if (m_planned && m_isMpiNode) {
+                        m_initiator.sendEOLMessage(MpInitiator.MP_INIT_PID);
+                    }
+                    // Wait for everything this host initiated to finish
+                    m_outstanding.acquire(MAX_OUTSTANDING);
+                    m_outstanding.release(MAX_OUTSTANDING);
+                    if (m_planned) {
+                        final ZKCountdownLatch latch =
+                                new ZKCountdownLatch(m_messenger.getZK(), VoltZK.commandlog_replay_barrier, m_liveHosts.size());
+                        latch.countDown(true);
+                        latch.await();
+                    }
+                } catch (Exception e) {
+                    VoltDB.crashGlobalVoltDB("Command log replay failed", true, e);
+                }
+                if (m_replayedTxns.get() > 0) {
+                    LOG.info("Replayed " + m_replayedTxns.get() + " transactions from the command log, " +
+                             m_failedTxns.get() + " of them did not commit");
+                }
+                if (m_callback != null) {
+                    m_callback.onReplayCompletion();
+                }
+            }
+        }, "Command log replay");
+        replayThread.setDaemon(true);
+        replayThread.start();
+    }
+
+    private void replayLocalLog() throws IOException, InterruptedException
+    {
+        long lastMpTxnId = m_snapshot == null ? Long.MIN_VALUE : m_snapshot.txnId;
+        for (File f : m_segments) {
+            final CommandLogSegment.Reader reader = new CommandLogSegment.Reader(f);
+            try {
+                CommandLogSegment.Entry entry;
+                while ((entry = reader.next()) != null) {
+                    if (entry.type != CommandLogSegment.INVOCATION) {
+                        continue;
+                    }
+                    final Iv2InitiateTaskMessage message = entry.message;
+                    final boolean isMpiTxn = entry.isMultiPartition() ||
+                            TxnEgo.getPartitionId(message.getTxnId()) == MpInitiator.MP_INIT_PID;
+                    if (!isMpiTxn) {
+                        if (m_replayPartitions.contains(entry.partitionId) &&
+                            !isInSnapshot(entry.partitionId, entry.spHandle)) {
+                            initiate(message, true, entry.partitionId);
+                        }
+                        continue;
+                    }
+                    // Every-site sysprocs are sequenced by the MPI, they get no sentinel
+                    if (entry.isMultiPartition() && m_replayPartitions.contains(entry.partitionId) &&
+                        !isInSnapshot(entry.partitionId, entry.spHandle)) {
+                        m_initiator.sendSentinel(message.getTxnId(), entry.partitionId);
+                    }
+                    if (m_isMpiNode && message.getTxnId() > lastMpTxnId) {
+                        lastMpTxnId = message.getTxnId();
+                        initiate(message, false, MpInitiator.MP_INIT_PID);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    private boolean isInSnapshot(int partitionId, long spHandle)
+    {
+        if (m_snapshot == null) {
+            return false;
+        }
+        final Long snapshotTxnId = m_snapshot.partitionToTxnId.get(partitionId);
+        return snapshotTxnId != null && spHandle <= snapshotTxnId;
+    }
+
+    private void initiate(Iv2InitiateTaskMessage message, boolean isSinglePartition, int partitionId)
+            throws IOException, InterruptedException
+    {
+        final StoredProcedureInvocation invocation = message.getStoredProcedureInvocation();
+        m_outstanding.acquire();
+        invocation.setClientHandle(m_adapter.registerCallback(new SimpleClientResponseAdapter.Callback() {
+            @Override
+            public void handleResponse(ClientResponse response)
+            {
+                if (response.getStatus() != ClientResponse.SUCCESS) {
+                    m_failedTxns.incrementAndGet();
+                }
+                m_outstanding.release();
+            }
+        }));
+        m_replayedTxns.incrementAndGet();
+        if (!m_initiator.createTransaction(m_adapter.connectionId(),
+                                           message.getTxnId(),
+                                           message.getUniqueId(),
+                                           invocation,
+                                           false,
+                                           isSinglePartition,
+                                           false,
+                                           partitionId,
+                                           invocation.getSerializedSize(),
+                                           System.nanoTime())) {
+            throw new IOException("Unable to initiate " + invocation.getProcName() + " during replay");
+        }
+    }
+
+    @Override
+    public boolean hasReplayedSegments()
+    {
+        return !m_segments.isEmpty();
+    }
+
+    @Override
+    public boolean hasReplayedTxns()
+    {
+        return m_replayedTxns.get() > 0;
+    }
+
+    @Override
+    public Long getMaxLastSeenTxn()
+    {
+        if (m_startTxnIds == null) {
+            return null;
+        }
+        long max = Long.MIN_VALUE;
+        for (long txnId : m_startTxnIds.values()) {
+            max = Math.max(max, txnId);
+        }
+        return max;
+    }
+
+    @Override
+    public Map<Integer, Long> getMaxLastSeenTxnByPartition()
+    {
+        return m_startTxnIds == null ? null : new HashMap<Integer, Long>(m_startTxnIds);
+    }
+
+    @Override
+    public InstanceId getInstanceId()
+    {
+        return m_instanceId;
+    }
+
+    /**
+     * The truncation snapshot after replay covers everything in the log,
+     * GroupCommitCommandLog recycles the files when it is initialized.
+     */
+    @Override
+    public void returnAllSegments()
+    {
+    }
+
+    @Override
+    public boolean checkAndBalancePartitions()
+    {
+        return true;
+    }
+}
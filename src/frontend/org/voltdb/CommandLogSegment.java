@@ -0,0 +1,630 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.hadoop_voltpatches.util.PureJavaCrc32C;
+import org.voltcore.utils.InstanceId;
+import org.voltdb.iv2.TxnEgo;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+import org.voltdb.messaging.VoltDbMessageFactory;
+
+/**
+ * One preallocated file of the command log.
+ *
+ * A segment starts with a header, padded to ALIGNMENT bytes, holding the
+ * segment id, the instance id of the cluster that wrote it and, for every
+ * partition, the spHandle of the last transaction logged before the segment
+ * was started. That is the point a snapshot must have reached for the log to
+ * be replayable on top of it.
+ *
+ * Entries follow the header back to back, each one framed as
+ * <pre>
+ *   int length | int crc | byte type | body
+ * </pre>
+ * where length covers type and body, and the CRC covers the segment id, type
+ * and body. A zero length, a length running past the end of the file or a
+ * CRC mismatch marks the end of the segment. Including the segment id in the
+ * CRC stops a reader from picking up entries left over from the previous use
+ * of a recycled file.
+ */
+public class CommandLogSegment
+{
+    public static final int MAGIC = 0x56434C47; // "VCLG"
+    public static final int VERSION = 1;
+    public static final int ALIGNMENT = 4096;
+    public static final int ENTRY_HEADER_SIZE = 8;
+
+    public static final byte INVOCATION = 1;
+    public static final byte FAULT = 2;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("cl_(\\d+)\\.log");
+    private static final Pattern FREE_NAME = Pattern.compile("cl_free_(\\d+)\\.log");
+
+    public static String segmentFileName(long segmentId)
+    {
+        return String.format("cl_%016d.log", segmentId);
+    }
+
+    public static String freeFileName(long id)
+    {
+        return String.format("cl_free_%016d.log", id);
+    }
+
+    public static final FileFilter SEGMENT_FILTER = new FileFilter() {
+        @Override
+        public boolean accept(File f)
+        {
+            return f.isFile() && SEGMENT_NAME.matcher(f.getName()).matches();
+        }
+    };
+
+    public static final FileFilter FREE_FILTER = new FileFilter() {
+        @Override
+        public boolean accept(File f)
+        {
+            return f.isFile() && FREE_NAME.matcher(f.getName()).matches();
+        }
+    };
+
+    /**
+     * @return the number in a segment or free file name, -1 if it is neither
+     */
+    public static long fileNumber(File f)
+    {
+        Matcher m = SEGMENT_NAME.matcher(f.getName());
+        if (m.matches()) {
+            return Long.parseLong(m.group(1));
+        }
+        m = FREE_NAME.matcher(f.getName());
+        if (m.matches()) {
+            return Long.parseLong(m.group(1));
+        }
+        return -1;
+    }
+
+    /**
+     * Fill a file of the given size with zeros and force it to disk, so later
+     * appends only change data blocks and fdatasync doesn't have to write
+     * metadata for every group commit.
+     */
+    public static void preallocate(File file, long size) throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            final FileChannel channel = raf.getChannel();
+            final ByteBuffer zeros = ByteBuffer.allocateDirect(1024 * 1024);
+            long position = 0;
+            while (position < size) {
+                zeros.clear();
+                zeros.limit((int)Math.min(zeros.capacity(), size - position));
+                position += channel.write(zeros, position);
+            }
+            channel.force(true);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /*
+     * Entry encoding
+     */
+
+    /**
+     * @return the number of bytes an invocation entry takes, framing included
+     */
+    public static int invocationEntrySize(Iv2InitiateTaskMessage message, int[] involvedPartitions)
+    {
+        int involved = involvedPartitions == null ? 0 : involvedPartitions.length;
+        return ENTRY_HEADER_SIZE + 1 + 8 + 4 + 4 * involved + message.getSerializedSize();
+    }
+
+    public static void writeInvocation(ByteBuffer buf, long segmentId, Iv2InitiateTaskMessage message,
+                                       long spHandle, int[] involvedPartitions) throws IOException
+    {
+        final int start = buf.position();
+        buf.position(start + ENTRY_HEADER_SIZE);
+        buf.put(INVOCATION);
+        buf.putLong(spHandle);
+        if (involvedPartitions == null) {
+            buf.putInt(-1);
+        } else {
+            buf.putInt(involvedPartitions.length);
+            for (int partition : involvedPartitions) {
+                buf.putInt(partition);
+            }
+        }
+        // The message expects a buffer of exactly its size and clamps the limit
+        final int size = message.getSerializedSize();
+        final ByteBuffer body = buf.slice();
+        body.limit(size);
+        message.flattenToBuffer(body.slice());
+        buf.position(buf.position() + size);
+        frame(buf, start, segmentId);
+    }
+
+    public static int faultEntrySize(Set<Long> survivors)
+    {
+        return ENTRY_HEADER_SIZE + 1 + 8 + 4 + 8 + 4 + 8 * survivors.size();
+    }
+
+    public static void writeFault(ByteBuffer buf, long segmentId, long writerHSId, Set<Long> survivors,
+                                  int partitionId, long spHandle)
+    {
+        final int start = buf.position();
+        buf.position(start + ENTRY_HEADER_SIZE);
+        buf.put(FAULT);
+        buf.putLong(writerHSId);
+        buf.putInt(partitionId);
+        buf.putLong(spHandle);
+        buf.putInt(survivors.size());
+        for (long hsid : survivors) {
+            buf.putLong(hsid);
+        }
+        frame(buf, start, segmentId);
+    }
+
+    /**
+     * Fill in length and CRC of the entry written from start to the current position.
+     */
+    private static void frame(ByteBuffer buf, int start, long segmentId)
+    {
+        final int end = buf.position();
+        final int length = end - start - ENTRY_HEADER_SIZE;
+        buf.putInt(start, length);
+        buf.putInt(start + 4, entryCrc(buf, start + ENTRY_HEADER_SIZE, length, segmentId));
+    }
+
+    /**
+     * Entries are encoded once, when they are logged, with no segment id yet.
+     * The writer thread stamps the id of the segment that ends up holding the
+     * entry right before writing it out.
+     */
+    public static void restamp(ByteBuffer buf, int start, long segmentId)
+    {
+        final int length = buf.getInt(start);
+        buf.putInt(start + 4, entryCrc(buf, start + ENTRY_HEADER_SIZE, length, segmentId));
+    }
+
+    private static int entryCrc(ByteBuffer buf, int offset, int length, long segmentId)
+    {
+        final PureJavaCrc32C crc = new PureJavaCrc32C();
+        for (int i = 0; i < 8; i++) {
+            crc.update((int)(segmentId >>> (8 * i)) & 0xFF);
+        }
+        if (buf.hasArray()) {
+            crc.update(buf.array(), buf.arrayOffset() + offset, length);
+        } else {
+            final byte[] bytes = new byte[length];
+            final ByteBuffer dup = buf.duplicate();
+            dup.position(offset);
+            dup.get(bytes);
+            crc.update(bytes, 0, length);
+        }
+        return (int)crc.getValue();
+    }
+
+    /**
+     * @return the partition an encoded entry belongs to, taken from its spHandle
+     */
+    public static int entryPartition(ByteBuffer buf, int start)
+    {
+        final byte type = buf.get(start + ENTRY_HEADER_SIZE);
+        if (type == INVOCATION) {
+            return TxnEgo.getPartitionId(buf.getLong(start + ENTRY_HEADER_SIZE + 1));
+        }
+        return buf.getInt(start + ENTRY_HEADER_SIZE + 1 + 8);
+    }
+
+    /**
+     * @return the spHandle of an encoded entry
+     */
+    public static long entrySpHandle(ByteBuffer buf, int start)
+    {
+        final byte type = buf.get(start + ENTRY_HEADER_SIZE);
+        if (type == INVOCATION) {
+            return buf.getLong(start + ENTRY_HEADER_SIZE + 1);
+        }
+        return buf.getLong(start + ENTRY_HEADER_SIZE + 1 + 8 + 4);
+    }
+
+    /*
+     * Header
+     */
+
+    public static class Header
+    {
+        public final long segmentId;
+        public final InstanceId instanceId;
+        // partition to the spHandle of the last transaction logged before this segment
+        public final Map<Integer, Long> lastSeenTxnIds;
+
+        public Header(long segmentId, InstanceId instanceId, Map<Integer, Long> lastSeenTxnIds)
+        {
+            this.segmentId = segmentId;
+            this.instanceId = instanceId;
+            this.lastSeenTxnIds = Collections.unmodifiableMap(new TreeMap<Integer, Long>(lastSeenTxnIds));
+        }
+
+        public int size()
+        {
+            final int raw = 4 + 4 + 4 + 8 + 4 + 8 + 4 + 12 * lastSeenTxnIds.size() + 4;
+            return (raw + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+        }
+
+        void write(ByteBuffer buf)
+        {
+            final int start = buf.position();
+            final int size = size();
+            buf.putInt(MAGIC);
+            buf.putInt(VERSION);
+            buf.putInt(size);
+            buf.putLong(segmentId);
+            buf.putInt(instanceId.getCoord());
+            buf.putLong(instanceId.getTimestamp());
+            buf.putInt(lastSeenTxnIds.size());
+            for (Map.Entry<Integer, Long> e : lastSeenTxnIds.entrySet()) {
+                buf.putInt(e.getKey());
+                buf.putLong(e.getValue());
+            }
+            final PureJavaCrc32C crc = new PureJavaCrc32C();
+            final ByteBuffer dup = buf.duplicate();
+            dup.flip();
+            dup.position(start);
+            final byte[] bytes = new byte[dup.remaining()];
+            dup.get(bytes);
+            crc.update(bytes, 0, bytes.length);
+            buf.putInt((int)crc.getValue());
+            while (buf.position() < start + size) {
+                buf.put((byte)0);
+            }
+        }
+
+        static Header read(FileChannel channel) throws IOException
+        {
+            final ByteBuffer prefix = ByteBuffer.allocate(12);
+            readFully(channel, prefix, 0);
+            prefix.flip();
+            if (prefix.getInt() != MAGIC) {
+                throw new IOException("Not a command log segment");
+            }
+            final int version = prefix.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported command log segment version " + version);
+            }
+            final int size = prefix.getInt();
+            if (size < ALIGNMENT || size > channel.size()) {
+                throw new IOException("Corrupt command log segment header size " + size);
+            }
+            final ByteBuffer buf = ByteBuffer.allocate(size);
+            readFully(channel, buf, 0);
+            buf.flip();
+            buf.position(12);
+            final long segmentId = buf.getLong();
+            final InstanceId instanceId = new InstanceId(buf.getInt(), buf.getLong());
+            final int count = buf.getInt();
+            if (count < 0 || count > (size - buf.position()) / 12) {
+                throw new IOException("Corrupt command log segment header");
+            }
+            final Map<Integer, Long> lastSeen = new HashMap<Integer, Long>();
+            for (int i = 0; i < count; i++) {
+                lastSeen.put(buf.getInt(), buf.getLong());
+            }
+            final int crcEnd = buf.position();
+            final int expected = buf.getInt();
+            final PureJavaCrc32C crc = new PureJavaCrc32C();
+            crc.update(buf.array(), 0, crcEnd);
+            if ((int)crc.getValue() != expected) {
+                throw new IOException("Command log segment header CRC mismatch");
+            }
+            return new Header(segmentId, instanceId, lastSeen);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buf, long position) throws IOException
+    {
+        while (buf.hasRemaining()) {
+            final int read = channel.read(buf, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of command log segment");
+            }
+            position += read;
+        }
+    }
+
+    /*
+     * Writing
+     */
+
+    private final File m_file;
+    private final RandomAccessFile m_raf;
+    private final FileChannel m_channel;
+    private final Header m_header;
+    private final long m_capacity;
+    private long m_position;
+    // partition to the highest spHandle written to this segment
+    private final Map<Integer, Long> m_maxSpHandles = new HashMap<Integer, Long>();
+
+    /**
+     * Turn a preallocated file into a segment and write its header.
+     */
+    public CommandLogSegment(File preallocated, File target, Header header) throws IOException
+    {
+        if (!preallocated.renameTo(target)) {
+            throw new IOException("Unable to rename " + preallocated + " to " + target);
+        }
+        m_file = target;
+        m_raf = new RandomAccessFile(target, "rw");
+        m_channel = m_raf.getChannel();
+        m_header = header;
+        m_capacity = m_channel.size();
+
+        final ByteBuffer buf = ByteBuffer.allocateDirect(header.size());
+        header.write(buf);
+        buf.flip();
+        while (buf.hasRemaining()) {
+            m_channel.write(buf, buf.position());
+        }
+        m_position = header.size();
+    }
+
+    public File getFile()
+    {
+        return m_file;
+    }
+
+    public Header getHeader()
+    {
+        return m_header;
+    }
+
+    public long remaining()
+    {
+        return m_capacity - m_position;
+    }
+
+    public boolean isEmpty()
+    {
+        return m_maxSpHandles.isEmpty();
+    }
+
+    public Map<Integer, Long> getMaxSpHandles()
+    {
+        return m_maxSpHandles;
+    }
+
+    /**
+     * Write the entry between start and end of the buffer at the current end of
+     * the segment. The caller checks it fits with {@link #remaining()}.
+     */
+    public void append(ByteBuffer buf, int start, int end) throws IOException
+    {
+        restamp(buf, start, m_header.segmentId);
+        final int partition = entryPartition(buf, start);
+        final long spHandle = entrySpHandle(buf, start);
+        final Long max = m_maxSpHandles.get(partition);
+        if (max == null || spHandle > max) {
+            m_maxSpHandles.put(partition, spHandle);
+        }
+
+        final ByteBuffer slice = buf.duplicate();
+        slice.limit(end);
+        slice.position(start);
+        while (slice.hasRemaining()) {
+            m_position += m_channel.write(slice, m_position);
+        }
+    }
+
+    /**
+     * fdatasync, the file was preallocated so there is no metadata to flush.
+     */
+    public void force() throws IOException
+    {
+        m_channel.force(false);
+    }
+
+    public void close() throws IOException
+    {
+        m_raf.close();
+    }
+
+    /*
+     * Reading
+     */
+
+    /** One decoded entry. */
+    public static class Entry
+    {
+        public final byte type;
+        public final long spHandle;
+        public final int partitionId;
+        // INVOCATION only
+        public final int[] involvedPartitions;
+        public final Iv2InitiateTaskMessage message;
+        // FAULT only
+        public final long writerHSId;
+        public final List<Long> survivors;
+
+        Entry(long spHandle, int[] involvedPartitions, Iv2InitiateTaskMessage message)
+        {
+            this.type = INVOCATION;
+            this.spHandle = spHandle;
+            this.partitionId = TxnEgo.getPartitionId(spHandle);
+            this.involvedPartitions = involvedPartitions;
+            this.message = message;
+            this.writerHSId = -1;
+            this.survivors = null;
+        }
+
+        Entry(long writerHSId, int partitionId, long spHandle, List<Long> survivors)
+        {
+            this.type = FAULT;
+            this.spHandle = spHandle;
+            this.partitionId = partitionId;
+            this.involvedPartitions = null;
+            this.message = null;
+            this.writerHSId = writerHSId;
+            this.survivors = survivors;
+        }
+
+        public boolean isMultiPartition()
+        {
+            return involvedPartitions != null;
+        }
+    }
+
+    /**
+     * Reads the entries of a closed segment in the order they were written.
+     */
+    public static class Reader
+    {
+        private final File m_file;
+        private final RandomAccessFile m_raf;
+        private final FileChannel m_channel;
+        private final Header m_header;
+        private final VoltDbMessageFactory m_factory = new VoltDbMessageFactory();
+        private long m_position;
+        private final ByteBuffer m_entryHeader = ByteBuffer.allocate(ENTRY_HEADER_SIZE);
+
+        public Reader(File file) throws IOException
+        {
+            m_file = file;
+            m_raf = new RandomAccessFile(file, "r");
+            m_channel = m_raf.getChannel();
+            try {
+                m_header = Header.read(m_channel);
+            } catch (IOException e) {
+                m_raf.close();
+                throw e;
+            }
+            m_position = m_header.size();
+        }
+
+        public File getFile()
+        {
+            return m_file;
+        }
+
+        public Header getHeader()
+        {
+            return m_header;
+        }
+
+        /**
+         * @return the next entry, or null at the end of the segment
+         */
+        public Entry next() throws IOException
+        {
+            if (m_position + ENTRY_HEADER_SIZE > m_channel.size()) {
+                return null;
+            }
+            m_entryHeader.clear();
+            readFully(m_channel, m_entryHeader, m_position);
+            m_entryHeader.flip();
+            final int length = m_entryHeader.getInt();
+            final int crc = m_entryHeader.getInt();
+            if (length <= 0 || m_position + ENTRY_HEADER_SIZE + length > m_channel.size()) {
+                return null;
+            }
+            final ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(m_channel, body, m_position + ENTRY_HEADER_SIZE);
+            if (entryCrc(body, 0, length, m_header.segmentId) != crc) {
+                return null;
+            }
+            m_position += ENTRY_HEADER_SIZE + length;
+
+            body.flip();
+            final byte type = body.get();
+            if (type == INVOCATION) {
+                final long spHandle = body.getLong();
+                final int involvedCount = body.getInt();
+                int[] involved = null;
+                if (involvedCount >= 0) {
+                    involved = new int[involvedCount];
+                    for (int i = 0; i < involvedCount; i++) {
+                        involved[i] = body.getInt();
+                    }
+                }
+                final Iv2InitiateTaskMessage message =
+                        (Iv2InitiateTaskMessage)m_factory.createMessageFromBuffer(body, -1);
+                return new Entry(spHandle, involved, message);
+            } else if (type == FAULT) {
+                final long writerHSId = body.getLong();
+                final int partitionId = body.getInt();
+                final long spHandle = body.getLong();
+                final int count = body.getInt();
+                final List<Long> survivors = new ArrayList<Long>(count);
+                for (int i = 0; i < count; i++) {
+                    survivors.add(body.getLong());
+                }
+                return new Entry(writerHSId, partitionId, spHandle, survivors);
+            }
+            throw new IOException("Unknown command log entry type " + type + " in " + m_file);
+        }
+
+        public void close() throws IOException
+        {
+            m_raf.close();
+        }
+    }
+
+    /**
+     * @return the headers of every readable segment in the directory, oldest first.
+     * Files that don't have a valid header are skipped.
+     */
+    public static List<Reader> openSegments(File dir) throws IOException
+    {
+        final List<Reader> readers = new ArrayList<Reader>();
+        final File[] files = dir.listFiles(SEGMENT_FILTER);
+        if (files == null) {
+            return readers;
+        }
+        for (File f : files) {
+            try {
+                readers.add(new Reader(f));
+            } catch (IOException e) {
+                // A crash while turning a free file into a segment leaves a file without a header
+                continue;
+            }
+        }
+        Collections.sort(readers, new Comparator<Reader>() {
+            @Override
+            public int compare(Reader a, Reader b)
+            {
+                return Long.compare(a.getHeader().segmentId, b.getHeader().segmentId);
+            }
+        });
+        return readers;
+    }
+}
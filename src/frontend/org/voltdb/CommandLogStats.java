@@ -31,7 +31,12 @@ public class CommandLogStats extends StatsSource {
         OUTSTANDING_TXNS,
         IN_USE_SEGMENT_COUNT,
         SEGMENT_COUNT,
-        FSYNC_INTERVAL
+        FSYNC_INTERVAL,
+        LOGGED_TXNS,
+        TXNS_PER_SEC,
+        BYTES_PER_SEC,
+        AVG_FSYNC_LATENCY,
+        MAX_FSYNC_LATENCY
     };
 
     public CommandLogStats(CommandLog commandLog) {
@@ -47,6 +52,12 @@ public class CommandLogStats extends StatsSource {
         columns.add(new VoltTable.ColumnInfo(StatName.IN_USE_SEGMENT_COUNT.name(), VoltType.INTEGER));
         columns.add(new VoltTable.ColumnInfo(StatName.SEGMENT_COUNT.name(), VoltType.INTEGER));
         columns.add(new VoltTable.ColumnInfo(StatName.FSYNC_INTERVAL.name(), VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo(StatName.LOGGED_TXNS.name(), VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo(StatName.TXNS_PER_SEC.name(), VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo(StatName.BYTES_PER_SEC.name(), VoltType.BIGINT));
+        // microseconds
+        columns.add(new VoltTable.ColumnInfo(StatName.AVG_FSYNC_LATENCY.name(), VoltType.INTEGER));
+        columns.add(new VoltTable.ColumnInfo(StatName.MAX_FSYNC_LATENCY.name(), VoltType.INTEGER));
     }
 
     @Override
@@ -80,6 +80,11 @@ public class DummyCommandLog implements CommandLog {
         rowValues[columnNameToIndex.get(CommandLogStats.StatName.IN_USE_SEGMENT_COUNT.name())] = 0;
         rowValues[columnNameToIndex.get(CommandLogStats.StatName.SEGMENT_COUNT.name())] = 0;
         rowValues[columnNameToIndex.get(CommandLogStats.StatName.FSYNC_INTERVAL.name())] = 0;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.LOGGED_TXNS.name())] = 0;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.TXNS_PER_SEC.name())] = 0;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.BYTES_PER_SEC.name())] = 0;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.AVG_FSYNC_LATENCY.name())] = 0;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.MAX_FSYNC_LATENCY.name())] = 0;
     }
 
 }
@@ -0,0 +1,658 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.zookeeper_voltpatches.CreateMode;
+import org.apache.zookeeper_voltpatches.ZooDefs.Ids;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.InstanceId;
+import org.voltdb.iv2.MpInitiator;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+
+import com.google_voltpatches.common.util.concurrent.Futures;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.SettableFuture;
+
+/**
+ * Command log that appends every logged transaction to preallocated segment
+ * files and commits them in groups.
+ *
+ * Site threads encode entries into an in-memory batch under a short lock. A
+ * single writer thread swaps the batch out once the fsync interval from the
+ * deployment has passed, or as soon as maxtxns entries are waiting, writes it
+ * to the current segment and forces it to disk.
+ *
+ * With synchronous logging log() returns null and transactions are handed
+ * back to their DurabilityListener, one list per listener, after the fsync
+ * covering them. With asynchronous logging transactions run right away; the
+ * returned future is already complete unless more than MAX_OUTSTANDING_BYTES
+ * are waiting to be written, in which case it completes once they are, which
+ * gives the sites backpressure.
+ *
+ * Segments are SEGMENT_SIZE_MB each and the deployment's logsize determines how
+ * many are kept. Once half of them are in use a truncation snapshot is
+ * requested; segments entirely covered by a completed truncation snapshot are
+ * recycled into preallocated free files.
+ */
+public class GroupCommitCommandLog implements CommandLog, SnapshotCompletionInterest
+{
+    private static final VoltLogger LOG = new VoltLogger("LOGGING");
+
+    static final int SEGMENT_SIZE_MB = Integer.getInteger("COMMAND_LOG_SEGMENT_SIZE_MB", 64);
+    static final long MAX_OUTSTANDING_BYTES =
+            Long.getLong("COMMAND_LOG_MAX_OUTSTANDING_BYTES", 64L * 1024 * 1024);
+    // Free preallocated files kept around so rolling over never waits for a preallocation
+    static final int SPARE_SEGMENTS = 2;
+    static final int INITIAL_BATCH_SIZE = 1024 * 1024;
+
+    private static final ListenableFuture<Object> DONE = Futures.immediateFuture(null);
+
+    private final Object m_lock = new Object();
+
+    // Configuration, set by init
+    private volatile boolean m_initialized = false;
+    private boolean m_synchronous;
+    private int m_fsyncIntervalMs;
+    private int m_maxTxns;
+    private final long m_segmentSize;
+    private int m_segmentCount;
+    private File m_logDir;
+    private InstanceId m_instanceId;
+
+    // Batch being filled by log(), guarded by m_lock
+    private ByteBuffer m_pending;
+    private ByteBuffer m_spare;
+    private int m_pendingTxns = 0;
+    private LinkedHashMap<DurabilityListener, ArrayList<Object>> m_pendingDurable =
+            new LinkedHashMap<DurabilityListener, ArrayList<Object>>();
+    private ArrayList<SettableFuture<Object>> m_pendingFutures = new ArrayList<SettableFuture<Object>>();
+    private long m_writingBytes = 0;
+    private int m_writingTxns = 0;
+    private boolean m_shutdown = false;
+
+    // Owned by the writer thread
+    private Thread m_writer;
+    private CommandLogSegment m_current;
+    private long m_nextSegmentId = 1;
+    private final Map<Integer, Long> m_lastSpHandles = new HashMap<Integer, Long>();
+    private long m_lastForceNanos = 0;
+
+    // Closed segments oldest first, and preallocated files ready for use
+    private final Deque<CommandLogSegment> m_closed = new ArrayDeque<CommandLogSegment>();
+    private final Deque<File> m_free = new ArrayDeque<File>();
+    private long m_nextFreeId = 1;
+    private ExecutorService m_preallocator;
+    private volatile boolean m_truncationPending = false;
+
+    // Statistics, guarded by m_stats
+    private final Object m_stats = new Object();
+    private long m_loggedTxns = 0;
+    private long m_loggedBytes = 0;
+    private long m_statsTxns = 0;
+    private long m_statsBytes = 0;
+    private long m_statsFsyncs = 0;
+    private long m_statsFsyncNanos = 0;
+    private long m_statsMaxFsyncNanos = 0;
+    private long m_statsFsyncGapNanos = 0;
+    private long m_statsStartNanos = System.nanoTime();
+
+    public GroupCommitCommandLog()
+    {
+        this(SEGMENT_SIZE_MB * 1024L * 1024L);
+    }
+
+    /**
+     * @param segmentSize size of each segment file in bytes, tests use small segments
+     */
+    GroupCommitCommandLog(long segmentSize)
+    {
+        m_segmentSize = segmentSize;
+    }
+
+    @Override
+    public void init(CatalogContext context, long txnId, int partitionCount, String coreBinding,
+                     Map<Integer, Long> perPartitionTxnId)
+    {
+        initialize(context, perPartitionTxnId);
+    }
+
+    @Override
+    public void initForRejoin(CatalogContext context, long txnId, int partitionCount, boolean isRejoin,
+                              String coreBinding, Map<Integer, Long> perPartitionTxnId)
+    {
+        initialize(context, perPartitionTxnId);
+    }
+
+    private void initialize(CatalogContext context, Map<Integer, Long> perPartitionTxnId)
+    {
+        final org.voltdb.catalog.CommandLog config = context.cluster.getLogconfig().get("log");
+        m_synchronous = config.getSynchronous();
+        m_fsyncIntervalMs = Math.max(1, config.getFsyncinterval());
+        m_maxTxns = config.getMaxtxns() > 0 ? config.getMaxtxns() : Integer.MAX_VALUE;
+        m_segmentCount = (int)Math.max(2, config.getLogsize() * 1024L * 1024L / m_segmentSize);
+        m_logDir = new File(config.getLogpath());
+        m_instanceId = VoltDB.instance().getHostMessenger().getInstanceId();
+        if (perPartitionTxnId != null) {
+            for (Map.Entry<Integer, Long> e : perPartitionTxnId.entrySet()) {
+                if (e.getKey() != MpInitiator.MP_INIT_PID) {
+                    m_lastSpHandles.put(e.getKey(), e.getValue());
+                }
+            }
+        }
+
+        m_preallocator = CoreUtils.getSingleThreadExecutor("Command log preallocator");
+        try {
+            if (!m_logDir.exists() && !m_logDir.mkdirs()) {
+                throw new IOException("Unable to create command log directory " + m_logDir);
+            }
+            recycleExistingFiles();
+            while (m_free.size() < SPARE_SEGMENTS) {
+                preallocateOne();
+            }
+            m_current = startSegment();
+        } catch (IOException e) {
+            VoltDB.crashLocalVoltDB("Unable to initialize the command log in " + m_logDir, true, e);
+        }
+
+        m_pending = ByteBuffer.allocateDirect(INITIAL_BATCH_SIZE);
+        m_spare = ByteBuffer.allocateDirect(INITIAL_BATCH_SIZE);
+        VoltDB.instance().getSnapshotCompletionMonitor().addInterest(this);
+
+        m_writer = new Thread(new Runnable() {
+            @Override
+            public void run()
+            {
+                writerLoop();
+            }
+        }, "Command log writer");
+        m_writer.setDaemon(true);
+        m_writer.start();
+        m_initialized = true;
+        LOG.info("Command logging to " + m_logDir + " is " + (m_synchronous ? "synchronous" : "asynchronous") +
+                 " with an fsync interval of " + m_fsyncIntervalMs + " ms, " + m_segmentCount +
+                 " segments of " + (m_segmentSize / 1024) + " KB");
+    }
+
+    /**
+     * Anything left in the directory has either been replayed and covered by
+     * the truncation snapshot taken at startup or belongs to a database that was
+     * created from scratch. Keep the files as preallocated space.
+     */
+    private void recycleExistingFiles() throws IOException
+    {
+        final File[] segments = m_logDir.listFiles(CommandLogSegment.SEGMENT_FILTER);
+        final File[] free = m_logDir.listFiles(CommandLogSegment.FREE_FILTER);
+        for (File f : free) {
+            m_nextFreeId = Math.max(m_nextFreeId, CommandLogSegment.fileNumber(f) + 1);
+        }
+        for (File f : free) {
+            if (f.length() == m_segmentSize && m_free.size() < SPARE_SEGMENTS) {
+                m_free.add(f);
+            } else if (!f.delete()) {
+                throw new IOException("Unable to delete " + f);
+            }
+        }
+        for (File f : segments) {
+            recycle(f);
+        }
+    }
+
+    private void recycle(File f) throws IOException
+    {
+        synchronized (m_free) {
+            if (f.length() == m_segmentSize && m_free.size() < SPARE_SEGMENTS) {
+                final File target = new File(m_logDir, CommandLogSegment.freeFileName(m_nextFreeId++));
+                if (f.renameTo(target)) {
+                    m_free.add(target);
+                    return;
+                }
+            }
+        }
+        if (!f.delete()) {
+            throw new IOException("Unable to delete " + f);
+        }
+    }
+
+    private File preallocateOne() throws IOException
+    {
+        final File f;
+        synchronized (m_free) {
+            f = new File(m_logDir, CommandLogSegment.freeFileName(m_nextFreeId++));
+        }
+        CommandLogSegment.preallocate(f, m_segmentSize);
+        synchronized (m_free) {
+            m_free.add(f);
+        }
+        return f;
+    }
+
+    private CommandLogSegment startSegment() throws IOException
+    {
+        File free;
+        synchronized (m_free) {
+            free = m_free.poll();
+        }
+        if (free == null) {
+            // The preallocator fell behind, do it inline
+            preallocateOne();
+            synchronized (m_free) {
+                free = m_free.poll();
+            }
+        }
+        final long segmentId = m_nextSegmentId++;
+        final CommandLogSegment.Header header =
+                new CommandLogSegment.Header(segmentId, m_instanceId, m_lastSpHandles);
+        final CommandLogSegment segment =
+                new CommandLogSegment(free, new File(m_logDir, CommandLogSegment.segmentFileName(segmentId)), header);
+        m_preallocator.execute(new Runnable() {
+            @Override
+            public void run()
+            {
+                try {
+                    int missing;
+                    synchronized (m_free) {
+                        missing = SPARE_SEGMENTS - m_free.size();
+                    }
+                    for (int i = 0; i < missing; i++) {
+                        preallocateOne();
+                    }
+                } catch (IOException e) {
+                    LOG.warn("Unable to preallocate a command log segment", e);
+                }
+            }
+        });
+        return segment;
+    }
+
+    @Override
+    public boolean needsInitialization()
+    {
+        return !m_initialized;
+    }
+
+    @Override
+    public ListenableFuture<Object> log(Iv2InitiateTaskMessage message, long spHandle, int[] involvedPartitions,
+                                        DurabilityListener listener, Object durabilityHandle)
+    {
+        if (!m_initialized) {
+            // Replayed transactions run before the log is initialized, the
+            // truncation snapshot taken after replay makes them durable
+            return DONE;
+        }
+        final int size = CommandLogSegment.invocationEntrySize(message, involvedPartitions);
+        synchronized (m_lock) {
+            ensureCapacity(size);
+            try {
+                CommandLogSegment.writeInvocation(m_pending, 0, message, spHandle, involvedPartitions);
+            } catch (IOException e) {
+                VoltDB.crashLocalVoltDB("Unable to serialize a transaction for the command log", true, e);
+            }
+            m_pendingTxns++;
+            if (m_synchronous) {
+                ArrayList<Object> handles = m_pendingDurable.get(listener);
+                if (handles == null) {
+                    handles = new ArrayList<Object>();
+                    m_pendingDurable.put(listener, handles);
+                }
+                handles.add(durabilityHandle);
+                if (m_pendingTxns >= m_maxTxns) {
+                    m_lock.notify();
+                }
+                return null;
+            }
+            if (m_pending.position() + m_writingBytes > MAX_OUTSTANDING_BYTES) {
+                final SettableFuture<Object> future = SettableFuture.create();
+                m_pendingFutures.add(future);
+                m_lock.notify();
+                return future;
+            }
+            return DONE;
+        }
+    }
+
+    @Override
+    public void logIv2Fault(long writerHSId, Set<Long> survivorHSId, int partitionId, long spHandle)
+    {
+        if (!m_initialized) {
+            return;
+        }
+        synchronized (m_lock) {
+            ensureCapacity(CommandLogSegment.faultEntrySize(survivorHSId));
+            CommandLogSegment.writeFault(m_pending, 0, writerHSId, survivorHSId, partitionId, spHandle);
+            m_lock.notify();
+        }
+    }
+
+    private void ensureCapacity(int size)
+    {
+        if (m_pending.remaining() >= size) {
+            return;
+        }
+        int capacity = m_pending.capacity();
+        while (capacity - m_pending.position() < size) {
+            capacity *= 2;
+        }
+        final ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+        m_pending.flip();
+        grown.put(m_pending);
+        m_pending = grown;
+    }
+
+    private void writerLoop()
+    {
+        final long intervalNanos = TimeUnit.MILLISECONDS.toNanos(m_fsyncIntervalMs);
+        long lastCommit = System.nanoTime();
+        while (true) {
+            ByteBuffer batch;
+            int txns;
+            LinkedHashMap<DurabilityListener, ArrayList<Object>> durable;
+            ArrayList<SettableFuture<Object>> futures;
+            boolean shutdown;
+            synchronized (m_lock) {
+                try {
+                    while (true) {
+                        final long now = System.nanoTime();
+                        final boolean empty = m_pending.position() == 0;
+                        if (m_shutdown || (!empty && (now - lastCommit >= intervalNanos ||
+                                                      m_pendingTxns >= m_maxTxns ||
+                                                      !m_pendingFutures.isEmpty()))) {
+                            break;
+                        }
+                        if (empty) {
+                            m_lock.wait(m_fsyncIntervalMs);
+                        } else {
+                            TimeUnit.NANOSECONDS.timedWait(m_lock, intervalNanos - (now - lastCommit));
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                shutdown = m_shutdown;
+                batch = m_pending;
+                m_pending = m_spare != null ? m_spare : ByteBuffer.allocateDirect(INITIAL_BATCH_SIZE);
+                m_spare = null;
+                txns = m_pendingTxns;
+                m_pendingTxns = 0;
+                durable = m_pendingDurable;
+                m_pendingDurable = new LinkedHashMap<DurabilityListener, ArrayList<Object>>();
+                futures = m_pendingFutures;
+                m_pendingFutures = new ArrayList<SettableFuture<Object>>();
+                m_writingBytes = batch.position();
+                m_writingTxns = txns;
+            }
+
+            lastCommit = System.nanoTime();
+            final int bytes = batch.position();
+            if (bytes > 0) {
+                try {
+                    writeBatch(batch);
+                    // Async logging doesn't wait for the fsync, only for the write
+                    for (SettableFuture<Object> f : futures) {
+                        f.set(null);
+                    }
+                    final long start = System.nanoTime();
+                    m_current.force();
+                    final long end = System.nanoTime();
+                    recordCommit(txns, bytes, end - start, end);
+                } catch (IOException e) {
+                    VoltDB.crashLocalVoltDB("Unable to write the command log", true, e);
+                }
+                for (Map.Entry<DurabilityListener, ArrayList<Object>> e : durable.entrySet()) {
+                    e.getKey().onDurability(e.getValue());
+                }
+            }
+
+            synchronized (m_lock) {
+                m_writingBytes = 0;
+                m_writingTxns = 0;
+                if (batch.capacity() == INITIAL_BATCH_SIZE) {
+                    batch.clear();
+                    m_spare = batch;
+                }
+            }
+            if (shutdown) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Write every entry in the batch, starting a new segment whenever the next
+     * entry doesn't fit in the current one.
+     */
+    private void writeBatch(ByteBuffer batch) throws IOException
+    {
+        final int limit = batch.position();
+        int position = 0;
+        while (position < limit) {
+            final int end = position + CommandLogSegment.ENTRY_HEADER_SIZE + batch.getInt(position);
+            if (m_current.remaining() < end - position) {
+                if (end - position > m_segmentSize - m_current.getHeader().size()) {
+                    throw new IOException("Transaction of " + (end - position) +
+                                          " bytes doesn't fit in a command log segment of " + m_segmentSize + " bytes");
+                }
+                rollover();
+            }
+            m_current.append(batch, position, end);
+            final int partition = CommandLogSegment.entryPartition(batch, position);
+            final long spHandle = CommandLogSegment.entrySpHandle(batch, position);
+            final Long last = m_lastSpHandles.get(partition);
+            if (last == null || spHandle > last) {
+                m_lastSpHandles.put(partition, spHandle);
+            }
+            position = end;
+        }
+    }
+
+    private void rollover() throws IOException
+    {
+        m_current.force();
+        m_current.close();
+        int inUse;
+        synchronized (m_closed) {
+            m_closed.add(m_current);
+            inUse = m_closed.size() + 1;
+        }
+        m_current = startSegment();
+        if (inUse >= m_segmentCount / 2) {
+            if (inUse > m_segmentCount) {
+                LOG.warn("Command log uses " + inUse + " segments, more than the " + m_segmentCount +
+                         " its logsize allows, because no truncation snapshot has completed");
+            }
+            requestTruncationSnapshot(false);
+        }
+    }
+
+    private void recordCommit(int txns, int bytes, long fsyncNanos, long now)
+    {
+        synchronized (m_stats) {
+            m_loggedTxns += txns;
+            m_loggedBytes += bytes;
+            m_statsTxns += txns;
+            m_statsBytes += bytes;
+            m_statsFsyncs++;
+            m_statsFsyncNanos += fsyncNanos;
+            m_statsMaxFsyncNanos = Math.max(m_statsMaxFsyncNanos, fsyncNanos);
+            if (m_lastForceNanos != 0) {
+                m_statsFsyncGapNanos += now - m_lastForceNanos;
+            }
+            m_lastForceNanos = now;
+        }
+    }
+
+    @Override
+    public void requestTruncationSnapshot(final boolean queueIfPending)
+    {
+        if (!queueIfPending && m_truncationPending) {
+            return;
+        }
+        m_truncationPending = true;
+        try {
+            VoltDB.instance().getHostMessenger().getZK().create(VoltZK.request_truncation_snapshot_node, null,
+                    Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT_SEQUENTIAL);
+        } catch (Exception e) {
+            m_truncationPending = false;
+            LOG.warn("Unable to request a command log truncation snapshot", e);
+        }
+    }
+
+    /**
+     * Drop the closed segments, oldest first, whose transactions are all
+     * included in the truncation snapshot.
+     */
+    @Override
+    public CountDownLatch snapshotCompleted(SnapshotCompletionEvent event)
+    {
+        if (!event.truncationSnapshot) {
+            return new CountDownLatch(0);
+        }
+        m_truncationPending = false;
+        if (!event.didSucceed) {
+            return new CountDownLatch(0);
+        }
+        final List<CommandLogSegment> truncated = new ArrayList<CommandLogSegment>();
+        synchronized (m_closed) {
+            while (!m_closed.isEmpty() && isCovered(m_closed.peek(), event.partitionTxnIds)) {
+                truncated.add(m_closed.poll());
+            }
+        }
+        for (CommandLogSegment segment : truncated) {
+            try {
+                recycle(segment.getFile());
+            } catch (IOException e) {
+                LOG.warn("Unable to remove truncated command log segment " + segment.getFile(), e);
+            }
+        }
+        if (!truncated.isEmpty()) {
+            LOG.debug("Truncated " + truncated.size() + " command log segments");
+        }
+        return new CountDownLatch(0);
+    }
+
+    static boolean isCovered(CommandLogSegment segment, Map<Integer, Long> snapshotTxnIds)
+    {
+        for (Map.Entry<Integer, Long> e : segment.getMaxSpHandles().entrySet()) {
+            final Long snapshotTxnId = snapshotTxnIds.get(e.getKey());
+            if (snapshotTxnId == null || snapshotTxnId < e.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException
+    {
+        if (!m_initialized) {
+            return;
+        }
+        synchronized (m_lock) {
+            m_shutdown = true;
+            m_lock.notify();
+        }
+        m_writer.join();
+        VoltDB.instance().getSnapshotCompletionMonitor().removeInterest(this);
+        m_preallocator.shutdown();
+        m_preallocator.awaitTermination(1, TimeUnit.MINUTES);
+        try {
+            m_current.close();
+        } catch (IOException e) {
+            LOG.warn("Unable to close the command log", e);
+        }
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return true;
+    }
+
+    /**
+     * Rates and fsync latencies cover the time since the statistics were last
+     * read. FSYNC_INTERVAL is the measured average time between fsyncs.
+     */
+    @Override
+    public void populateCommandLogStats(Map<String, Integer> columnNameToIndex, Object[] rowValues)
+    {
+        long outstandingBytes = 0;
+        long outstandingTxns = 0;
+        if (m_initialized) {
+            synchronized (m_lock) {
+                outstandingBytes = m_pending.position() + m_writingBytes;
+                outstandingTxns = m_pendingTxns + m_writingTxns;
+            }
+        }
+        int inUse = 0;
+        if (m_initialized) {
+            synchronized (m_closed) {
+                inUse = m_closed.size() + 1;
+            }
+        }
+        int free;
+        synchronized (m_free) {
+            free = m_free.size();
+        }
+
+        final long now = System.nanoTime();
+        long txnsPerSec, bytesPerSec, avgFsyncMicros, maxFsyncMicros, fsyncInterval, loggedTxns;
+        synchronized (m_stats) {
+            final double seconds = Math.max(1, now - m_statsStartNanos) / 1e9;
+            txnsPerSec = (long)(m_statsTxns / seconds);
+            bytesPerSec = (long)(m_statsBytes / seconds);
+            avgFsyncMicros = m_statsFsyncs == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(m_statsFsyncNanos / m_statsFsyncs);
+            maxFsyncMicros = TimeUnit.NANOSECONDS.toMicros(m_statsMaxFsyncNanos);
+            fsyncInterval = m_statsFsyncs <= 1 ? m_fsyncIntervalMs :
+                TimeUnit.NANOSECONDS.toMillis(m_statsFsyncGapNanos / (m_statsFsyncs - 1));
+            loggedTxns = m_loggedTxns;
+            m_statsTxns = 0;
+            m_statsBytes = 0;
+            m_statsFsyncs = 0;
+            m_statsFsyncNanos = 0;
+            m_statsMaxFsyncNanos = 0;
+            m_statsFsyncGapNanos = 0;
+            m_statsStartNanos = now;
+        }
+
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.OUTSTANDING_BYTES.name())] = outstandingBytes;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.OUTSTANDING_TXNS.name())] = outstandingTxns;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.IN_USE_SEGMENT_COUNT.name())] = inUse;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.SEGMENT_COUNT.name())] = inUse + free;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.FSYNC_INTERVAL.name())] = (int)fsyncInterval;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.LOGGED_TXNS.name())] = loggedTxns;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.TXNS_PER_SEC.name())] = txnsPerSec;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.BYTES_PER_SEC.name())] = bytesPerSec;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.AVG_FSYNC_LATENCY.name())] = (int)avgFsyncMicros;
+        rowValues[columnNameToIndex.get(CommandLogStats.StatName.MAX_FSYNC_LATENCY.name())] = (int)maxFsyncMicros;
+    }
+}
@@ -20,11 +20,15 @@ package org.voltdb;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.HdrHistogram_voltpatches.AbstractHistogram;
 import org.eclipse.jetty.continuation.Continuation;
 import org.eclipse.jetty.continuation.ContinuationSupport;
 import org.eclipse.jetty.server.Request;
@@ -59,38 +63,60 @@ public class HTTPClientInterface {
 
     public final static int MAX_QUERY_PARAM_SIZE = 2 * 1024 * 1024; // 2MB
 
+    private final MetricsRegistry.Counter m_requestsMetric;
+    private final MetricsRegistry.Counter m_invocationsMetric;
+    private final MetricsRegistry.Counter m_failuresMetric;
+    private final AbstractHistogram m_latencyMetric;
+
     public void setTimeout(int seconds) {
         m_timeout = seconds * 1000;
     }
 
-    class JSONProcCallback implements ProcedureCallback {
+    /**
+     * Collects the responses of the invocations of a request and resumes the request
+     * once they are all in, so they are written from a Jetty thread.
+     */
+    class JSONProcCallback {
 
         final Request m_request;
         final Continuation m_continuation;
         final String m_jsonp;
+        final boolean m_batch;
+        final ClientResponseImpl[] m_responses;
+        final AtomicInteger m_pending;
 
-        public JSONProcCallback(Request request, Continuation continuation, String jsonp) {
+        public JSONProcCallback(Request request, Continuation continuation, String jsonp,
+                                boolean batch, int invocationCount) {
             assert(request != null);
             assert(continuation != null);
 
             m_request = request;
             m_continuation = continuation;
             m_jsonp = jsonp;
+            m_batch = batch;
+            m_responses = new ClientResponseImpl[invocationCount];
+            m_pending = new AtomicInteger(invocationCount);
         }
 
-        @Override
-        public void clientCallback(ClientResponse clientResponse) throws Exception {
-            ClientResponseImpl rimpl = (ClientResponseImpl) clientResponse;
-            String msg = rimpl.toJSONString();
+        ProcedureCallback forInvocation(final int index) {
+            return new ProcedureCallback() {
+                @Override
+                public void clientCallback(ClientResponse clientResponse) throws Exception {
+                    complete(index, (ClientResponseImpl) clientResponse);
+                }
+            };
+        }
 
-            // handle jsonp pattern
-            // http://en.wikipedia.org/wiki/JSON#The_Basic_Idea:_Retrieving_JSON_via_Script_Tags
-            if (m_jsonp != null) {
-                msg = String.format("%s( %s )", m_jsonp, msg);
+        void complete(int index, ClientResponseImpl response) {
+            m_responses[index] = response;
+            if (m_pending.decrementAndGet() > 0) {
+                return;
             }
-
-            m_request.setAttribute("result", msg);
-            if (!m_continuation.isInitial()) try {
+            m_request.setAttribute("result", this);
+            // The continuation was suspended before any invocation was made. Resuming it
+            // during the initial dispatch redispatches the request as soon as that returns,
+            // rather than leaving the response waiting for the continuation to time out.
+            try {
                 m_continuation.resume();
             } catch (IllegalStateException e) {
                 // Thrown when we shut down the server via the JSON/HTTP (web studio) API
@@ -98,12 +124,48 @@ public class HTTPClientInterface {
                  m_log.warn("JSON request completion exception: ", e);
             }
         }
+
+        void write(HttpServletResponse response) throws IOException {
+            if (m_batch) {
+                HTTPJSONCodec.writeResponses(response.getOutputStream(), m_jsonp, m_responses);
+            } else {
+                HTTPJSONCodec.writeResponse(response.getOutputStream(), m_jsonp, m_responses[0]);
+            }
+        }
     }
 
     public HTTPClientInterface() {
         final ClientResponseImpl r = new ClientResponseImpl(ClientResponse.CONNECTION_TIMEOUT,
                 new VoltTable[0], "Request Timeout");
         m_timeoutResponse = r.toJSONString();
+
+        MetricsRegistry metrics = MetricsRegistry.instance();
+        m_requestsMetric = metrics.counter("voltdb_http_requests_total",
+                "Requests to the JSON/HTTP procedure interface");
+        m_invocationsMetric = metrics.counter("voltdb_http_invocations_total",
+                "Procedure calls made through the JSON/HTTP interface, counting each call of a batch");
+        m_failuresMetric = metrics.counter("voltdb_http_failures_total",
+                "JSON/HTTP requests rejected before any procedure was called");
+        m_latencyMetric = metrics.histogram("voltdb_http_request_latency_microseconds",
+                "Time from receiving a JSON/HTTP request to writing its response");
+    }
+
+    private void recordLatency(Request request) {
+        Long start = (Long) request.getAttribute("startNanos");
+        if (start != null) {
+            long micros = (System.nanoTime() - start) / 1000;
+            m_latencyMetric.recordValue(Math.min(micros, m_latencyMetric.getHighestTrackableValue()));
+        }
+    }
+
+    private void writeFailure(Request request, HttpServletResponse response, String jsonp, String msg)
+            throws IOException {
+        m_failuresMetric.increment();
+        ClientResponseImpl rimpl = new ClientResponseImpl(ClientResponse.UNEXPECTED_FAILURE, new VoltTable[0], msg);
+        response.setStatus(HttpServletResponse.SC_OK);
+        request.setHandled(true);
+        HTTPJSONCodec.writeResponse(response.getOutputStream(), jsonp, rimpl);
+        recordLatency(request);
     }
 
     public void process(Request request, HttpServletResponse response) {
@@ -114,12 +176,13 @@ public class HTTPClientInterface {
         if (m_timeout > 0) {
             continuation.setTimeout(m_timeout);
         }
-        String result = (String )request.getAttribute("result");
+        JSONProcCallback result = (JSONProcCallback) request.getAttribute("result");
         if (result != null) {
             try {
                 response.setStatus(HttpServletResponse.SC_OK);
                 request.setHandled(true);
-                response.getWriter().print(result);
+                result.write(response);
+                recordLatency(request);
             } catch (IllegalStateException | IOException e){
                // Thrown when we shut down the server via the JSON/HTTP (web studio) API
                // Essentially we're closing everything down from underneath the HTTP request.
@@ -138,6 +201,8 @@ public class HTTPClientInterface {
             }
             return;
         }
+        request.setAttribute("startNanos", System.nanoTime());
+        m_requestsMetric.increment();
         String jsonp = null;
         try {
             jsonp = request.getParameter("jsonp");
@@ -152,59 +217,79 @@ public class HTTPClientInterface {
                 }
             }
 
-            String procName = request.getParameter("Procedure");
-            String params = request.getParameter("Parameters");
+            String batch = request.getParameter(HTTPJSONCodec.PARAM_BATCH);
+            String procName = request.getParameter(HTTPJSONCodec.PARAM_PROCEDURE);
+            String params = request.getParameter(HTTPJSONCodec.PARAM_PARAMETERS);
 
             // null procs are bad news
-            if (procName == null) {
+            if (procName == null && batch == null) {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 return;
             }
 
+            // decode before taking a connection, a bad request never needs one
+            List<HTTPJSONCodec.Invocation> invocations;
+            if (batch != null) {
+                try {
+                    invocations = HTTPJSONCodec.parseInvocations(batch);
+                } catch (Exception e) {
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    return;
+                }
+            } else {
+                ParameterSet paramSet = null;
+                if (params != null) {
+                    try {
+                        paramSet = HTTPJSONCodec.parseParameters(params);
+                    }
+                    // if decoding params has a fail, then fail
+                    catch (Exception e) {
+                        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                        return;
+                    }
+                    // if the paramset has content, but decodes to null, fail
+                    if (paramSet == null) {
+                        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                        return;
+                    }
+                }
+                invocations = Collections.singletonList(new HTTPJSONCodec.Invocation(procName, paramSet));
+            }
+
             authResult = authenticate(request);
             if (!authResult.isAuthenticated()) {
-                String msg = authResult.m_message;
-                ClientResponseImpl rimpl = new ClientResponseImpl(ClientResponse.UNEXPECTED_FAILURE, new VoltTable[0], msg);
-                msg = rimpl.toJSONString();
-                if (jsonp != null) {
-                    msg = String.format("%s( %s )", jsonp, msg);
-                }
-                response.setStatus(HttpServletResponse.SC_OK);
-                request.setHandled(true);
                 try {
-                    response.getWriter().print(msg);
+                    writeFailure(request, response, jsonp, authResult.m_message);
                 } catch (IOException e1) {} // Ignore this as browser must have closed.
                 return;
             }
 
             continuation.suspend(response);
             suspended = true;
-            JSONProcCallback cb = new JSONProcCallback(request, continuation, jsonp);
-            boolean success;
-            if (params != null) {
-                ParameterSet paramSet = null;
-                try {
-                    paramSet = ParameterSet.fromJSONString(params);
+            JSONProcCallback cb = new JSONProcCallback(request, continuation, jsonp,
+                                                       batch != null, invocations.size());
+            for (int i = 0; i < invocations.size(); i++) {
+                HTTPJSONCodec.Invocation invocation = invocations.get(i);
+                boolean success;
+                if (invocation.params != null) {
+                    success = authResult.m_client.callProcedure(cb.forInvocation(i), invocation.procName,
+                                                                invocation.params.toArray());
                 }
-                // if decoding params has a fail, then fail
-                catch (Exception e) {
-                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-                    continuation.complete();
-                    return;
+                else {
+                    success = authResult.m_client.callProcedure(cb.forInvocation(i), invocation.procName);
                 }
-                // if the paramset has content, but decodes to null, fail
-                if (paramSet == null) {
-                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-                    continuation.complete();
-                    return;
+                if (!success) {
+                    if (i == 0) {
+                        throw new Exception("Server is not accepting work at this time.");
+                    }
+                    // the calls already made will complete, answer the rest right away
+                    for (int j = i; j < invocations.size(); j++) {
+                        cb.complete(j, new ClientResponseImpl(ClientResponse.UNEXPECTED_FAILURE, new VoltTable[0],
+                                                              "Server is not accepting work at this time."));
+                    }
+                    break;
                 }
-                success = authResult.m_client.callProcedure(cb, procName, paramSet.toArray());
-            }
-            else {
-                success = authResult.m_client.callProcedure(cb, procName);
-            }
-            if (!success) {
-                throw new Exception("Server is not accepting work at this time.");
+                m_invocationsMetric.increment();
             }
             if (jsonp != null) {
                 request.setAttribute("jsonp", jsonp);
@@ -216,15 +301,8 @@ public class HTTPClientInterface {
                 forceClose = true;
             }
             m_rate_limited_log.log("JSON interface exception: " + msg, EstTime.currentTimeMillis());
-            ClientResponseImpl rimpl = new ClientResponseImpl(ClientResponse.UNEXPECTED_FAILURE, new VoltTable[0], msg);
-            msg = rimpl.toJSONString();
-            if (jsonp != null) {
-                msg = String.format("%s( %s )", jsonp, msg);
-            }
-            response.setStatus(HttpServletResponse.SC_OK);
-            request.setHandled(true);
             try {
-                response.getWriter().print(msg);
+                writeFailure(request, response, jsonp, msg);
                 if (suspended) {
                     continuation.complete();
                 }
@@ -0,0 +1,401 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.voltdb.utils.Encoder;
+
+/**
+ * Streaming JSON encoding of procedure responses and decoding of procedure
+ * parameters for the HTTP interface.
+ *
+ * Responses are written in the same format as {@link ClientResponseImpl#toJSONString()},
+ * but row by row straight into the servlet's output buffer, without building a
+ * JSONStringer and a string for every response. Parameters are decoded into the
+ * same objects as {@link ParameterSet#fromJSONString(String)} without building a
+ * JSONArray first.
+ *
+ * This lives outside of the client classes because the client jar doesn't ship
+ * Jackson.
+ */
+public class HTTPJSONCodec {
+
+    /** Form parameter of a batch of invocations, see {@link #parseInvocations(String)} */
+    public static final String PARAM_BATCH = "Batch";
+    public static final String PARAM_PROCEDURE = "Procedure";
+    public static final String PARAM_PARAMETERS = "Parameters";
+
+    // Thread-safe once configured
+    private static final JsonFactory s_factory = new JsonFactory();
+    static {
+        // The servlet stream belongs to Jetty
+        s_factory.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    /**
+     * A procedure call of a batch.
+     */
+    public static class Invocation {
+        public final String procName;
+        /** null if the call has no parameters */
+        public final ParameterSet params;
+
+        Invocation(String procName, ParameterSet params) {
+            this.procName = procName;
+            this.params = params;
+        }
+    }
+
+    /**
+     * Write a response in the format of {@link ClientResponseImpl#toJSONString()}.
+     *
+     * @param jsonp name of the JSONP callback to wrap the response in, or null
+     */
+    public static void writeResponse(OutputStream out, String jsonp, ClientResponseImpl response)
+            throws IOException
+    {
+        JsonGenerator gen = s_factory.createJsonGenerator(out, JsonEncoding.UTF8);
+        writeJSONPPrefix(gen, jsonp);
+        writeResponse(gen, response);
+        writeJSONPSuffix(gen, jsonp);
+        gen.flush();
+    }
+
+    /**
+     * Write the responses of a batch as a JSON array, in the order of the invocations.
+     */
+    public static void writeResponses(OutputStream out, String jsonp, ClientResponseImpl[] responses)
+            throws IOException
+    {
+        JsonGenerator gen = s_factory.createJsonGenerator(out, JsonEncoding.UTF8);
+        writeJSONPPrefix(gen, jsonp);
+        gen.writeStartArray();
+        for (ClientResponseImpl response : responses) {
+            writeResponse(gen, response);
+        }
+        gen.writeEndArray();
+        writeJSONPSuffix(gen, jsonp);
+        gen.flush();
+    }
+
+    private static void writeJSONPPrefix(JsonGenerator gen, String jsonp) throws IOException {
+        if (jsonp != null) {
+            gen.writeRaw(jsonp);
+            gen.writeRaw("( ");
+        }
+    }
+
+    private static void writeJSONPSuffix(JsonGenerator gen, String jsonp) throws IOException {
+        if (jsonp != null) {
+            gen.writeRaw(" )");
+        }
+    }
+
+    static void writeResponse(JsonGenerator gen, ClientResponseImpl response) throws IOException {
+        gen.writeStartObject();
+        gen.writeNumberField(ClientResponseImpl.JSON_STATUS_KEY, response.getStatus());
+        gen.writeNumberField(ClientResponseImpl.JSON_APPSTATUS_KEY, response.getAppStatus());
+        gen.writeStringField(ClientResponseImpl.JSON_STATUSSTRING_KEY, response.getStatusString());
+        gen.writeStringField(ClientResponseImpl.JSON_APPSTATUSSTRING_KEY, response.getAppStatusString());
+        gen.writeArrayFieldStart(ClientResponseImpl.JSON_RESULTS_KEY);
+        for (VoltTable table : response.getResults()) {
+            writeTable(gen, table);
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    /**
+     * Write a table in the format of {@link VoltTable#toJSONString()}.
+     */
+    static void writeTable(JsonGenerator gen, VoltTable table) throws IOException {
+        final int columnCount = table.getColumnCount();
+        gen.writeStartObject();
+        gen.writeNumberField(VoltTable.JSON_STATUS_KEY, table.getStatusCode());
+
+        gen.writeArrayFieldStart(VoltTable.JSON_SCHEMA_KEY);
+        for (int i = 0; i < columnCount; i++) {
+            gen.writeStartObject();
+            gen.writeStringField(VoltTable.JSON_NAME_KEY, table.getColumnName(i));
+            gen.writeNumberField(VoltTable.JSON_TYPE_KEY, table.getColumnType(i).getValue());
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+
+        gen.writeArrayFieldStart(VoltTable.JSON_DATA_KEY);
+        VoltTableRow row = table.cloneRow();
+        row.resetRowPosition();
+        while (row.advanceRow()) {
+            gen.writeStartArray();
+            for (int i = 0; i < columnCount; i++) {
+                writeValue(gen, row, i);
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    /**
+     * Same representation as VoltTableRow.putJSONRep()
+     */
+    private static void writeValue(JsonGenerator gen, VoltTableRow row, int columnIndex) throws IOException {
+        long value;
+        switch (row.getColumnType(columnIndex)) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+            value = row.getLong(columnIndex);
+            if (row.wasNull()) {
+                gen.writeNull();
+            } else {
+                gen.writeNumber(value);
+            }
+            break;
+        case TIMESTAMP:
+            value = row.getTimestampAsLong(columnIndex);
+            if (row.wasNull()) {
+                gen.writeNull();
+            } else {
+                gen.writeNumber(value);
+            }
+            break;
+        case FLOAT:
+            double dvalue = row.getDouble(columnIndex);
+            if (row.wasNull()) {
+                gen.writeNull();
+            } else {
+                // JSONStringer shaves trailing zeros off, 2.0 is written as 2
+                try {
+                    gen.writeNumber(JSONObject.numberToString(dvalue));
+                } catch (JSONException e) {
+                    throw new IOException("Failed to serialize a table to JSON.", e);
+                }
+            }
+            break;
+        case STRING:
+            gen.writeString(row.getString(columnIndex));
+            break;
+        case VARBINARY:
+            byte[] bin = row.getVarbinary(columnIndex);
+            gen.writeString(Encoder.hexEncode(bin));
+            break;
+        case DECIMAL:
+            BigDecimal dec = row.getDecimalAsBigDecimal(columnIndex);
+            if (dec == null) {
+                gen.writeNull();
+            } else {
+                gen.writeString(dec.toString());
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+     * Decode a JSON array of procedure parameters into the same values as
+     * {@link ParameterSet#fromJSONString(String)}. Input the strict parser rejects, like
+     * the unquoted strings and hex numbers the lenient JSON library accepts, is handed
+     * to {@link ParameterSet#fromJSONString(String)}.
+     *
+     * @return null if the JSON is the literal null
+     */
+    public static ParameterSet parseParameters(String json) throws JSONException, IOException {
+        try {
+            JsonParser parser = s_factory.createJsonParser(json);
+            try {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.VALUE_NULL) {
+                    return null;
+                }
+                if (token != JsonToken.START_ARRAY) {
+                    throw new JSONException("A JSONArray text must start with '['");
+                }
+                ParameterSet params = ParameterSet.fromArrayNoCopy(readArray(parser));
+                if (parser.nextToken() != null) {
+                    throw new JSONException("Unexpected text after the parameters");
+                }
+                return params;
+            } finally {
+                parser.close();
+            }
+        } catch (JsonParseException e) {
+            return ParameterSet.fromJSONString(json);
+        }
+    }
+
+    /**
+     * Decode a batch of procedure calls, a JSON array of objects with a "Procedure" name
+     * and optional "Parameters", the latter either a JSON array or a string holding one
+     * like the "Parameters" form parameter of a single call.
+     */
+    public static List<Invocation> parseInvocations(String json) throws JSONException, IOException {
+        List<Invocation> invocations = new ArrayList<Invocation>();
+        try {
+            JsonParser parser = s_factory.createJsonParser(json);
+            try {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new JSONException("A batch must be a JSON array of invocations");
+                }
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                        throw new JSONException("A batch must be a JSON array of invocations");
+                    }
+                    invocations.add(readInvocation(parser));
+                }
+                if (parser.nextToken() != null) {
+                    throw new JSONException("Unexpected text after the batch");
+                }
+            } finally {
+                parser.close();
+            }
+        } catch (JsonParseException e) {
+            throw new JSONException(e);
+        }
+        if (invocations.isEmpty()) {
+            throw new JSONException("A batch must contain at least one invocation");
+        }
+        return invocations;
+    }
+
+    private static Invocation readInvocation(JsonParser parser) throws JSONException, IOException {
+        String procName = null;
+        ParameterSet params = null;
+        while (parser.nextToken() != JsonToken.END_OBJECT) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (PARAM_PROCEDURE.equals(field) && token == JsonToken.VALUE_STRING) {
+                procName = parser.getText();
+            } else if (PARAM_PARAMETERS.equals(field) && token == JsonToken.START_ARRAY) {
+                params = ParameterSet.fromArrayNoCopy(readArray(parser));
+            } else if (PARAM_PARAMETERS.equals(field) && token == JsonToken.VALUE_STRING) {
+                params = parseParameters(parser.getText());
+            } else if (PARAM_PARAMETERS.equals(field) && token == JsonToken.VALUE_NULL) {
+                params = null;
+            } else {
+                throw new JSONException("Unexpected " + token + " for " + field + " in a batch invocation");
+            }
+        }
+        if (procName == null) {
+            throw new JSONException("Batch invocation without a " + PARAM_PROCEDURE);
+        }
+        return new Invocation(procName, params);
+    }
+
+    /**
+     * Read the values of the array the parser is at the start of, up to its end.
+     */
+    private static Object[] readArray(JsonParser parser) throws JSONException, IOException {
+        List<Object> values = new ArrayList<Object>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(readValue(parser));
+        }
+        return values.toArray();
+    }
+
+    /**
+     * The value the parser is at, as ParameterSet.paramFromPossibleJSON() would
+     * see it after JSONTokener: integers that fit are Integers, larger ones Longs,
+     * and those beyond a long stay strings, other numbers are Doubles, objects are
+     * tables and arrays are Object[]
+     */
+    private static Object readValue(JsonParser parser) throws JSONException, IOException {
+        switch (parser.getCurrentToken()) {
+        case START_ARRAY:
+            return readArray(parser);
+        case START_OBJECT:
+            return VoltTable.fromJSONObject(readObject(parser));
+        case VALUE_STRING:
+            return parser.getText();
+        case VALUE_NUMBER_INT:
+            switch (parser.getNumberType()) {
+            case INT:
+                return parser.getIntValue();
+            case LONG:
+                return parser.getLongValue();
+            default:
+                return parser.getText();
+            }
+        case VALUE_NUMBER_FLOAT:
+            return Double.valueOf(parser.getText());
+        case VALUE_TRUE:
+            return Boolean.TRUE;
+        case VALUE_FALSE:
+            return Boolean.FALSE;
+        case VALUE_NULL:
+            return JSONObject.NULL;
+        default:
+            throw new JSONException("Unexpected " + parser.getCurrentToken() + " in the parameters");
+        }
+    }
+
+    /**
+     * Tables are rare as parameters, build the JSONObject VoltTable knows how to read.
+     */
+    private static JSONObject readObject(JsonParser parser) throws JSONException, IOException {
+        JSONObject object = new JSONObject();
+        while (parser.nextToken() != JsonToken.END_OBJECT) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            object.put(field, readJSONValue(parser));
+        }
+        return object;
+    }
+
+    private static Object readJSONValue(JsonParser parser) throws JSONException, IOException {
+        switch (parser.getCurrentToken()) {
+        case START_OBJECT:
+            return readObject(parser);
+        case START_ARRAY:
+            JSONArray array = new JSONArray();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                array.put(readJSONValue(parser));
+            }
+            return array;
+        default:
+            return readValue(parser);
+        }
+    }
+
+    /**
+     * Encode a response to a string, for tests.
+     */
+    static String toJSONString(ClientResponseImpl response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeResponse(out, null, response);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -69,6 +69,10 @@ public class IOStats extends StatsSource {
         columns.add(new ColumnInfo("MESSAGES_READ", VoltType.BIGINT));
         columns.add(new ColumnInfo("BYTES_WRITTEN", VoltType.BIGINT));
         columns.add(new ColumnInfo("MESSAGES_WRITTEN", VoltType.BIGINT));
+        // write() system calls, and how well they are shared between messages
+        columns.add(new ColumnInfo("WRITE_CALLS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("WRITE_CALLS_PER_MESSAGE", VoltType.FLOAT));
+        columns.add(new ColumnInfo("BYTES_PER_WRITE", VoltType.BIGINT));
 
     }
 
@@ -83,6 +87,10 @@ public class IOStats extends StatsSource {
         rowValues[columnNameToIndex.get("MESSAGES_READ")] = counters[1];
         rowValues[columnNameToIndex.get("BYTES_WRITTEN")] = counters[2];
         rowValues[columnNameToIndex.get("MESSAGES_WRITTEN")] = counters[3];
+        rowValues[columnNameToIndex.get("WRITE_CALLS")] = counters[4];
+        rowValues[columnNameToIndex.get("WRITE_CALLS_PER_MESSAGE")] =
+                counters[3] == 0 ? 0.0 : counters[4] / (double)counters[3];
+        rowValues[columnNameToIndex.get("BYTES_PER_WRITE")] = counters[4] == 0 ? 0L : counters[2] / counters[4];
         super.updateStatsRow(rowKey, rowValues);
     }
 
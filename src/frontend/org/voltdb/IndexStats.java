@@ -47,5 +47,7 @@ public class IndexStats extends SiteStatsSource {
         columns.add(new ColumnInfo("IS_COUNTABLE", VoltType.TINYINT));
         columns.add(new ColumnInfo("ENTRY_COUNT", VoltType.BIGINT));
         columns.add(new ColumnInfo("MEMORY_ESTIMATE", VoltType.INTEGER));
+        columns.add(new ColumnInfo("LOAD_FACTOR", VoltType.FLOAT));
+        columns.add(new ColumnInfo("AVG_PROBE_LENGTH", VoltType.FLOAT));
     }
 }
@@ -448,6 +448,10 @@ public class Inits {
                         VoltDB.crashLocalVoltDB("Unable to instantiate command log", true, e);
                     }
                 }
+                // Without the enterprise command log use the open group commit one
+                if (!m_rvdb.m_commandLog.isEnabled()) {
+                    m_rvdb.m_commandLog = new GroupCommitCommandLog();
+                }
             }
         }
     }
@@ -492,7 +492,8 @@ public class JdbcDatabaseMetaDataGenerator
     private short getIndexType(Index index)
     {
         short type = java.sql.DatabaseMetaData.tableIndexOther;
-        if (index.getType() == IndexType.HASH_TABLE.getValue())
+        if ((index.getType() == IndexType.HASH_TABLE.getValue()) ||
+            (index.getType() == IndexType.OPEN_HASH_TABLE.getValue()))
         {
             type = java.sql.DatabaseMetaData.tableIndexHashed;
         }
@@ -502,7 +503,7 @@ public class JdbcDatabaseMetaDataGenerator
     private String getSortOrder(Index index)
     {
         String sort_order = null;
-        if (index.getType() == IndexType.BALANCED_TREE.getValue())
+        if (IndexType.isScannable(index.getType()))
         {
             sort_order = "A";
         }
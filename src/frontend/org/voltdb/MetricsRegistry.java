@@ -0,0 +1,264 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram_voltpatches.AbstractHistogram;
+import org.voltdb.dtxn.LatencyStats;
+
+import com.google_voltpatches.common.base.Supplier;
+import com.google_voltpatches.common.base.Suppliers;
+
+/**
+ * Node-local registry of counters, gauges and histograms, rendered in the
+ * Prometheus text exposition format by the HTTP admin listener.
+ *
+ * Unlike the @Statistics selectors, reading the registry never goes through
+ * the transaction system or the site threads: stats sources update their metrics
+ * with atomic operations as they go, and a scrape only reads them.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry s_instance = new MetricsRegistry();
+
+    public static MetricsRegistry instance() {
+        return s_instance;
+    }
+
+    /**
+     * Upper bounds, in microseconds, of the buckets histograms are rendered with
+     */
+    static final long[] HISTOGRAM_BUCKETS = {
+        100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000,
+        100000, 250000, 500000, 1000000, 2500000, 5000000, 10000000
+    };
+
+    enum Type {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        HISTOGRAM("histogram");
+
+        final String m_name;
+
+        Type(String name) {
+            m_name = name;
+        }
+    }
+
+    /**
+     * A monotonically increasing count.
+     */
+    public static final class Counter {
+        private final AtomicLong m_value = new AtomicLong();
+
+        public void increment() {
+            m_value.incrementAndGet();
+        }
+
+        public void add(long delta) {
+            m_value.addAndGet(delta);
+        }
+
+        public long get() {
+            return m_value.get();
+        }
+    }
+
+    /**
+     * All the series of one metric name, by their rendered label set.
+     */
+    private static final class Family {
+        final Type m_type;
+        final String m_help;
+        final ConcurrentSkipListMap<String, Object> m_series = new ConcurrentSkipListMap<String, Object>();
+
+        Family(Type type, String help) {
+            m_type = type;
+            m_help = help;
+        }
+    }
+
+    private final ConcurrentSkipListMap<String, Family> m_families = new ConcurrentSkipListMap<String, Family>();
+
+    /**
+     * Get the counter of the given name and labels, creating it on first use.
+     * Counters outlive the stats sources feeding them, so a source re-created by a
+     * catalog update keeps counting where the previous one stopped.
+     *
+     * @param labels alternating label names and values
+     */
+    public Counter counter(String name, String help, String... labels) {
+        Family family = family(name, Type.COUNTER, help);
+        String key = formatLabels(labels);
+        Counter counter = (Counter) family.m_series.get(key);
+        if (counter == null) {
+            counter = new Counter();
+            Counter existing = (Counter) family.m_series.putIfAbsent(key, counter);
+            if (existing != null) {
+                counter = existing;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Get the thread-safe histogram, in microseconds, of the given name and labels,
+     * creating it on first use.
+     */
+    public AbstractHistogram histogram(String name, String help, String... labels) {
+        Family family = family(name, Type.HISTOGRAM, help);
+        String key = formatLabels(labels);
+        @SuppressWarnings("unchecked")
+        Supplier<AbstractHistogram> histogram = (Supplier<AbstractHistogram>) family.m_series.get(key);
+        if (histogram == null) {
+            histogram = Suppliers.ofInstance(LatencyStats.constructHistogram(true));
+            @SuppressWarnings("unchecked")
+            Supplier<AbstractHistogram> existing =
+                    (Supplier<AbstractHistogram>) family.m_series.putIfAbsent(key, histogram);
+            if (existing != null) {
+                histogram = existing;
+            }
+        }
+        return histogram.get();
+    }
+
+    /**
+     * Register a gauge whose value is read from the supplier at each scrape.
+     * Replaces any gauge previously registered with the same name and labels.
+     */
+    public void registerGauge(String name, String help, Supplier<Long> value, String... labels) {
+        family(name, Type.GAUGE, help).m_series.put(formatLabels(labels), value);
+    }
+
+    /**
+     * Register a histogram, in microseconds, that is read from the supplier at each scrape.
+     * Replaces any histogram previously registered with the same name and labels.
+     */
+    public void registerHistogram(String name, String help, Supplier<AbstractHistogram> value, String... labels) {
+        family(name, Type.HISTOGRAM, help).m_series.put(formatLabels(labels), value);
+    }
+
+    private Family family(String name, Type type, String help) {
+        Family family = m_families.get(name);
+        if (family == null) {
+            family = new Family(type, help);
+            Family existing = m_families.putIfAbsent(name, family);
+            if (existing != null) {
+                family = existing;
+            }
+        }
+        if (family.m_type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is a " + family.m_type.m_name +
+                                               ", not a " + type.m_name);
+        }
+        return family;
+    }
+
+    static String formatLabels(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be given as name and value pairs");
+        }
+        if (labels.length == 0) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int ii = 0; ii < labels.length; ii += 2) {
+            sb.append(ii == 0 ? "" : ",").append(labels[ii]).append("=\"");
+            String value = labels[ii + 1];
+            for (int jj = 0; jj < value.length(); jj++) {
+                char c = value.charAt(jj);
+                if (c == '\\' || c == '"') {
+                    sb.append('\\').append(c);
+                } else if (c == '\n') {
+                    sb.append("\\n");
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Render every metric in the Prometheus text format, version 0.0.4.
+     */
+    public void write(StringBuilder sb) {
+        for (Map.Entry<String, Family> e : m_families.entrySet()) {
+            String name = e.getKey();
+            Family family = e.getValue();
+            if (family.m_series.isEmpty()) {
+                continue;
+            }
+            sb.append("# HELP ").append(name).append(' ').append(family.m_help).append('\n');
+            sb.append("# TYPE ").append(name).append(' ').append(family.m_type.m_name).append('\n');
+            for (Map.Entry<String, Object> series : family.m_series.entrySet()) {
+                String labels = series.getKey();
+                switch (family.m_type) {
+                case COUNTER:
+                    writeSample(sb, name, labels, null, ((Counter) series.getValue()).get());
+                    break;
+                case GAUGE:
+                    @SuppressWarnings("unchecked")
+                    Long value = ((Supplier<Long>) series.getValue()).get();
+                    if (value != null) {
+                        writeSample(sb, name, labels, null, value);
+                    }
+                    break;
+                case HISTOGRAM:
+                    @SuppressWarnings("unchecked")
+                    AbstractHistogram histogram = ((Supplier<AbstractHistogram>) series.getValue()).get();
+                    if (histogram != null) {
+                        writeHistogram(sb, name, labels, histogram);
+                    }
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void writeHistogram(StringBuilder sb, String name, String labels, AbstractHistogram histogram) {
+        // Writers keep recording while we read, so take the total first and
+        // never report a bucket above it.
+        final long total = histogram.getHistogramData().getTotalCount();
+        final long highest = histogram.getHighestTrackableValue();
+        for (long bound : HISTOGRAM_BUCKETS) {
+            long count = histogram.getHistogramData().getCountBetweenValues(0, Math.min(bound, highest));
+            writeSample(sb, name + "_bucket", labels, "le=\"" + bound + "\"", Math.min(count, total));
+        }
+        writeSample(sb, name + "_bucket", labels, "le=\"+Inf\"", total);
+        writeSample(sb, name + "_sum", labels, null,
+                    Math.round(histogram.getHistogramData().getMean() * total));
+        writeSample(sb, name + "_count", labels, null, total);
+    }
+
+    private static void writeSample(StringBuilder sb, String name, String labels, String extraLabel, long value) {
+        sb.append(name);
+        if (!labels.isEmpty() || extraLabel != null) {
+            sb.append('{').append(labels);
+            if (extraLabel != null) {
+                sb.append(labels.isEmpty() ? "" : ",").append(extraLabel);
+            }
+            sb.append('}');
+        }
+        sb.append(' ').append(value).append('\n');
+    }
+}
@@ -306,13 +306,137 @@ public class ParameterSet implements JSONString {
             throw new RuntimeException("Invalid partition parameter requested.");
         }
         for (int i = 0; i < partitionIndex; ++i) {
-            readOneParameter(unserializedParams);
+            skipOneParameter(unserializedParams);
         }
         OneParamInfo opi = readOneParameter(unserializedParams);
         unserializedParams.rewind();
         return opi.value;
     }
 
+    /**
+     * Decode serialized parameters into the values a procedure is called with, without
+     * building a ParameterSet. Strings the procedure takes as strings are decoded straight
+     * from the buffer rather than through a copy of their bytes, which a ParameterSet would
+     * keep to serialize them again.
+     *
+     * @param paramTypes The types of the procedure's parameters. Parameters past their
+     *                   end, or of a mismatching type, are decoded as by fromByteBuffer()
+     *                   for the procedure runner to convert or reject.
+     */
+    static Object[] readParametersForCall(ByteBuffer buffer, Class<?>[] paramTypes) throws IOException {
+        short count = buffer.getShort();
+        Object[] params = new Object[count];
+        for (int i = 0; i < count; ++i) {
+            if (i < paramTypes.length && paramTypes[i] == String.class && buffer.hasArray() &&
+                    buffer.get(buffer.position()) == VoltType.STRING.getValue()) {
+                buffer.get();
+                int len = buffer.getInt();
+                if (len == VoltType.NULL_STRING_LENGTH) {
+                    params[i] = VoltType.NULL_STRING_OR_VARBINARY;
+                }
+                else {
+                    params[i] = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), len,
+                                           Constants.UTF8ENCODING);
+                    buffer.position(buffer.position() + len);
+                }
+            }
+            else {
+                params[i] = readOneParameter(buffer).value;
+            }
+        }
+        return params;
+    }
+
+    /**
+     * Move the buffer past a parameter without decoding it.
+     */
+    static private void skipOneParameter(ByteBuffer in) throws IOException {
+        final int start = in.position();
+        final byte nextTypeByte = in.get();
+        VoltType nextType;
+        if (nextTypeByte == ARRAY) {
+            final byte etype = in.get();
+            try {
+                nextType = VoltType.get(etype);
+            } catch (AssertionError ae) {
+                throw new RuntimeException("ParameterSet doesn't support type " + etype);
+            }
+            if (nextType == null) {
+                return;
+            }
+            switch (nextType) {
+                case TINYINT:
+                    // byte arrays have an int length, see SerializationHelper.readArray()
+                    skip(in, in.getInt());
+                    break;
+                case SMALLINT:
+                case INTEGER:
+                case BIGINT:
+                case FLOAT:
+                case TIMESTAMP:
+                case DECIMAL:
+                    skip(in, in.getShort() * nextType.getLengthInBytesForFixedTypes());
+                    break;
+                case STRING:
+                case VARBINARY:
+                    final short count = in.getShort();
+                    for (int i = 0; i < count; ++i) {
+                        final int len = in.getInt();
+                        if (len != VoltType.NULL_STRING_LENGTH) {
+                            skip(in, len);
+                        }
+                    }
+                    break;
+                default:
+                    in.position(start);
+                    readOneParameter(in);
+                    break;
+            }
+            return;
+        }
+
+        try {
+            nextType = VoltType.get(nextTypeByte);
+        } catch (AssertionError ae) {
+            throw new RuntimeException("ParameterSet doesn't support type " + nextTypeByte);
+        }
+        switch (nextType) {
+            case NULL:
+                break;
+            case STRING:
+            case VARBINARY:
+                final int len = in.getInt();
+                if (len != VoltType.NULL_STRING_LENGTH) {
+                    skip(in, len);
+                }
+                break;
+            case VOLTTABLE:
+                skip(in, in.getInt());
+                break;
+            case BOOLEAN:
+                skip(in, 1);
+                break;
+            case TINYINT:
+            case SMALLINT:
+            case INTEGER:
+            case BIGINT:
+            case FLOAT:
+            case TIMESTAMP:
+            case DECIMAL:
+                skip(in, nextType.getLengthInBytesForFixedTypes());
+                break;
+            default:
+                throw new RuntimeException("ParameterSet doesn't support type " + nextType);
+        }
+    }
+
+    static private void skip(ByteBuffer in, int length) throws IOException {
+        if (length < 0 || length > in.remaining()) {
+            throw new IOException("Invalid parameter length " + length);
+        }
+        in.position(in.position() + length);
+    }
+
     static Object getAKosherArray(Object[] array) {
         int tables = 0;
         int integers = 0;
@@ -790,7 +914,19 @@ public class ParameterSet implements JSONString {
      */
     @Override
     public int hashCode() {
-        assert false : "hashCode not designed";
-        return 42; // any arbitrary constant will do
+        int hash = 1;
+        for (Object param : m_params) {
+            int paramHash;
+            if (param instanceof VoltTable) {
+                // VoltTable doesn't implement hashCode
+                VoltTable table = (VoltTable) param;
+                paramHash = table.getRowCount() * 31 + table.getColumnCount();
+            }
+            else {
+                paramHash = Arrays.deepHashCode(new Object[] { param });
+            }
+            hash = 31 * hash + paramHash;
+        }
+        return hash;
     }
 }
@@ -20,12 +20,20 @@ package org.voltdb;
 import java.util.ArrayList;
 import java.util.Iterator;
 
+import org.HdrHistogram_voltpatches.AbstractHistogram;
+import org.HdrHistogram_voltpatches.HistogramData;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.dtxn.LatencyStats;
+
+import com.google_voltpatches.common.base.Supplier;
 
 /**
  * Collects global cache use stats
+ *
+ * The node level collector is shared by all ad hoc planner threads, so the
+ * counters are updated and read under the collector's lock.
  */
 public class PlannerStatsCollector extends StatsSource {
 
@@ -95,11 +103,6 @@ public class PlannerStatsCollector extends StatsSource {
     long m_cacheMisses = 0;
     long m_lastCacheMisses = 0;
 
-    /**
-     * Time of last planning start
-     */
-    Long m_currentStartTime = null;
-
     /**
      * Total amount of planning time
      */
@@ -131,6 +134,17 @@ public class PlannerStatsCollector extends StatsSource {
     long m_invocations = 0;
     long m_lastInvocations = 0;
 
+    /**
+     * Distribution of the timed planning times in microseconds
+     */
+    final AbstractHistogram m_planTimes = LatencyStats.constructHistogram(false);
+    final AbstractHistogram m_lastPlanTimes = LatencyStats.constructHistogram(false);
+
+    /**
+     * Number of statements waiting for a planner thread, if there is a queue
+     */
+    private volatile Supplier<Integer> m_queueDepth = null;
+
     /**
      * Calculate the invocation count based on the cache hit/miss counts.
      * @return  invocation count
@@ -165,10 +179,17 @@ public class PlannerStatsCollector extends StatsSource {
         m_siteId = siteId;
     }
 
+    /**
+     * Report the depth of the queue of work waiting to be planned.
+     */
+    public void setQueueDepthSupplier(Supplier<Integer> queueDepth) {
+        m_queueDepth = queueDepth;
+    }
+
     /**
      * Used to update EE cache stats without changing tracked time
      */
-    public void updateEECacheStats(long eeCacheSize, long hits, long misses, int partitionId) {
+    public synchronized void updateEECacheStats(long eeCacheSize, long hits, long misses, int partitionId) {
         m_cache1Level = eeCacheSize;
         m_cache1Hits += hits;
         m_cacheMisses += misses;
@@ -179,24 +200,30 @@ public class PlannerStatsCollector extends StatsSource {
 
     /**
      * Called before doing planning. Starts timer.
+     *
+     * @return  the start time to pass to endStatsCollection, null if this
+     *          invocation is not timed
      */
-    public void startStatsCollection() {
+    public synchronized Long startStatsCollection() {
         if (getInvocations() % m_collectionFrequency == 0) {
-            m_currentStartTime = System.nanoTime();
+            return System.nanoTime();
         }
+        return null;
     }
 
     /**
      * Called after planning or failing to plan. Records timer and cache stats.
      *
+     * @param startTime    value returned by startStatsCollection
      * @param cache1Size   number of entries in level 1 cache
      * @param cache2Size   number of entries in level 2 cache
      * @param cacheUse     where the planned statement came from
      * @param partitionId  partition id
      */
-    public void endStatsCollection(long cache1Size, long cache2Size, CacheUse cacheUse, long partitionId) {
-        if (m_currentStartTime != null) {
-            long delta = System.nanoTime() - m_currentStartTime;
+    public synchronized void endStatsCollection(Long startTime, long cache1Size, long cache2Size,
+                                                CacheUse cacheUse, long partitionId) {
+        if (startTime != null) {
+            long delta = System.nanoTime() - startTime;
             if (delta < 0) {
                 if (Math.abs(delta) > 1000000000) {
                     log.info("Planner statistics recorded a negative planning time larger than one second: " +
@@ -209,8 +236,10 @@ public class PlannerStatsCollector extends StatsSource {
                 m_maxPlanningTime = Math.max(delta, m_maxPlanningTime);
                 m_lastMinPlanningTime = Math.min(delta, m_lastMinPlanningTime);
                 m_lastMaxPlanningTime = Math.max(delta, m_lastMaxPlanningTime);
+                final long micros = Math.min(delta / 1000, m_planTimes.getHighestTrackableValue());
+                m_planTimes.recordValue(micros);
+                m_lastPlanTimes.recordValue(micros);
             }
-            m_currentStartTime = null;
         }
 
         m_cache1Level = cache1Size;
@@ -242,7 +271,7 @@ public class PlannerStatsCollector extends StatsSource {
      * @param values Values of each column of the row of stats. Used as output.
      */
     @Override
-    protected void updateStatsRow(Object rowKey, Object rowValues[]) {
+    protected synchronized void updateStatsRow(Object rowKey, Object rowValues[]) {
         super.updateStatsRow(rowKey, rowValues);
 
         rowValues[columnNameToIndex.get("PARTITION_ID")] = m_partitionId;
@@ -255,6 +284,7 @@ public class PlannerStatsCollector extends StatsSource {
         long cache2Hits  = m_cache2Hits;
         long cacheMisses = m_cacheMisses;
         long failureCount = m_failures;
+        AbstractHistogram planTimes = m_planTimes;
 
         if (m_interval) {
             totalTimedExecutionTime = m_totalPlanningTime - m_lastTimedPlanningTime;
@@ -284,6 +314,9 @@ public class PlannerStatsCollector extends StatsSource {
             m_lastFailures = m_failures;
 
             m_lastInvocations = m_invocations;
+
+            planTimes = m_lastPlanTimes.copy();
+            m_lastPlanTimes.reset();
         }
 
         rowValues[columnNameToIndex.get(VoltSystemProcedure.CNAME_SITE_ID)] = CoreUtils.getSiteIdFromHSId(m_siteId);
@@ -302,6 +335,13 @@ public class PlannerStatsCollector extends StatsSource {
             rowValues[columnNameToIndex.get("PLAN_TIME_AVG")] = 0L;
         }
         rowValues[columnNameToIndex.get("FAILURES")] = failureCount;
+        // Percentiles are kept in microseconds, reported in nanoseconds like the other times
+        final HistogramData planTimeData = planTimes.getHistogramData();
+        rowValues[columnNameToIndex.get("PLAN_TIME_P50")] = planTimeData.getValueAtPercentile(50.0) * 1000;
+        rowValues[columnNameToIndex.get("PLAN_TIME_P95")] = planTimeData.getValueAtPercentile(95.0) * 1000;
+        rowValues[columnNameToIndex.get("PLAN_TIME_P99")] = planTimeData.getValueAtPercentile(99.0) * 1000;
+        final Supplier<Integer> queueDepth = m_queueDepth;
+        rowValues[columnNameToIndex.get("QUEUE_DEPTH")] = queueDepth == null ? 0 : queueDepth.get();
     }
 
     /**
@@ -322,6 +362,10 @@ public class PlannerStatsCollector extends StatsSource {
         columns.add(new ColumnInfo("PLAN_TIME_MAX", VoltType.BIGINT));
         columns.add(new ColumnInfo("PLAN_TIME_AVG", VoltType.BIGINT));
         columns.add(new ColumnInfo("FAILURES",      VoltType.BIGINT));
+        columns.add(new ColumnInfo("PLAN_TIME_P50", VoltType.BIGINT));
+        columns.add(new ColumnInfo("PLAN_TIME_P95", VoltType.BIGINT));
+        columns.add(new ColumnInfo("PLAN_TIME_P99", VoltType.BIGINT));
+        columns.add(new ColumnInfo("QUEUE_DEPTH",   VoltType.INTEGER));
     }
 
     @Override
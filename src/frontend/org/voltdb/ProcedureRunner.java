@@ -26,6 +26,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -55,6 +56,8 @@ import org.voltdb.exceptions.EEException;
 import org.voltdb.exceptions.SerializableException;
 import org.voltdb.exceptions.SpecifiedException;
 import org.voltdb.groovy.GroovyScriptProcedureDelegate;
+import org.voltdb.iv2.MpTransactionState;
+import org.voltdb.iv2.TxnTracer;
 import org.voltdb.iv2.UniqueIdGenerator;
 import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.planner.ActivePlanRepository;
@@ -102,6 +105,8 @@ public class ProcedureRunner {
     protected final VoltProcedure m_procedure;
     protected Method m_procMethod;
     protected Class<?>[] m_paramTypes;
+    // m_paramTypes without the sysproc execution context, see getCallerParameterTypes()
+    private Class<?>[] m_callerParamTypes;
 
     // per txn state (are reset after call)
     //
@@ -114,6 +119,8 @@ public class ProcedureRunner {
     // cached txnid-seeded RNG so all calls to getSeededRandomNumberGenerator() for
     // a given call don't re-seed and generate the same number over and over
     private Random m_cachedRNG = null;
+    // ClientInterface handle of the running transaction if it is sampled for tracing
+    private long m_traceHandle = TxnTracer.NOT_TRACED;
 
     // hooks into other parts of voltdb
     //
@@ -230,6 +237,18 @@ public class ProcedureRunner {
         return m_isSysProc;
     }
 
+    /**
+     * @return the types of the parameters callers pass, without the execution
+     *         context system procedures get first
+     */
+    public Class<?>[] getCallerParameterTypes() {
+        if (m_callerParamTypes == null) {
+            m_callerParamTypes = (m_isSysProc && m_paramTypes.length > 0) ?
+                    Arrays.copyOfRange(m_paramTypes, 1, m_paramTypes.length) : m_paramTypes;
+        }
+        return m_callerParamTypes;
+    }
+
     public boolean isEverySite() {
         return m_isEverySite;
     }
@@ -272,6 +291,9 @@ public class ProcedureRunner {
         // set procedure name in the site/ee
         m_site.setProcedureName(m_procedureName);
 
+        m_traceHandle = TxnTracer.traceHandle(m_txnState);
+        TxnTracer.recordTraced(m_site, m_traceHandle, TxnTracer.Event.PROC_START);
+
         // use local var to avoid warnings about reassigning method argument
         Object[] paramList = paramListIn;
 
@@ -279,6 +301,8 @@ public class ProcedureRunner {
         // assert no sql is queued
         assert(m_batch.size() == 0);
 
+        final long cacheHits = m_site.getResultCacheHits();
+        final long cacheMisses = m_site.getResultCacheMisses();
         try {
             m_statsCollector.beginProcedure();
 
@@ -296,7 +320,7 @@ public class ProcedureRunner {
             }
 
             if (paramList.length != m_paramTypes.length) {
-                m_statsCollector.endProcedure(false, true, null, null);
+                m_statsCollector.endProcedure(false, true, null, 0);
                 String msg = "PROCEDURE " + m_procedureName + " EXPECTS " + String.valueOf(m_paramTypes.length) +
                     " PARAMS, BUT RECEIVED " + String.valueOf(paramList.length);
                 m_statusCode = ClientResponse.GRACEFUL_FAILURE;
@@ -309,7 +333,7 @@ public class ProcedureRunner {
                     // check the result type in an assert
                     assert(ParameterConverter.verifyParameterConversion(paramList[i], m_paramTypes[i]));
                 } catch (Exception e) {
-                    m_statsCollector.endProcedure(false, true, null, null);
+                    m_statsCollector.endProcedure(false, true, null, 0);
                     String msg = "PROCEDURE " + m_procedureName + " TYPE ERROR FOR PARAMETER " + i +
                             ": " + e.toString();
                     m_statusCode = ClientResponse.GRACEFUL_FAILURE;
@@ -358,7 +382,7 @@ public class ProcedureRunner {
                         // a missing object that results in an error, throw the error and let the server deal with
                         // the condition as best as it can (usually a crashLocalVoltDB).
                         try {
-                            m_statsCollector.endProcedure(false, true, null, null);
+                            m_statsCollector.endProcedure(false, true, null, 0);
                         }
                         finally {
                             // Ensure that ex is always re-thrown even if endProcedure throws an exception.
@@ -395,8 +419,10 @@ public class ProcedureRunner {
 
             // Record statistics for procedure call.
             StoredProcedureInvocation invoc = (m_txnState != null ? m_txnState.getInvocation() : null);
-            ParameterSet paramSet = (invoc != null ? invoc.getParams() : null);
-            m_statsCollector.endProcedure(abort, error, results, paramSet);
+            int paramSetSize = (invoc != null ? invoc.getSerializedParamsSize() : 0);
+            m_statsCollector.recordResultCache(m_site.getResultCacheHits() - cacheHits,
+                                               m_site.getResultCacheMisses() - cacheMisses);
+            m_statsCollector.endProcedure(abort, error, results, paramSetSize);
 
             // don't leave empty handed
             if (results == null) {
@@ -429,6 +455,9 @@ public class ProcedureRunner {
             // the next call
             m_batch.clear();
 
+            TxnTracer.recordTraced(m_site, m_traceHandle, TxnTracer.Event.PROC_END);
+            m_traceHandle = TxnTracer.NOT_TRACED;
+
             // reset other per-txn state
             m_txnState = null;
             m_statusCode = ClientResponse.SUCCESS;
@@ -713,6 +742,10 @@ public class ProcedureRunner {
             if (batchSize <= MAX_BATCH_SIZE) {
                 return executeQueriesInABatch(m_batch, isFinalSQL);
             }
+            // pipeline the sub-batches of big multi-partition reads
+            else if (canPipelineSubBatches()) {
+                return executePipelinedReadBatches(m_batch, isFinalSQL);
+            }
             // otherwise, break it into sub-batches
             else {
                 List<VoltTable[]> results = new ArrayList<VoltTable[]>();
@@ -765,11 +798,15 @@ public class ProcedureRunner {
                         qs.stmt, qs.params, qs.stmt.statementParamJavaTypes);
             }
         }
-        else if (m_isSinglePartition) {
-            results = fastPath(batch);
-        }
         else {
-            results = slowPath(batch, isFinalSQL);
+            TxnTracer.recordTraced(m_site, m_traceHandle, TxnTracer.Event.EE_START);
+            if (m_isSinglePartition) {
+                results = fastPath(batch);
+            }
+            else {
+                results = slowPath(batch, isFinalSQL);
+            }
+            TxnTracer.recordTraced(m_site, m_traceHandle, TxnTracer.Event.EE_END);
         }
 
         // check expectations
@@ -863,8 +900,12 @@ public class ProcedureRunner {
 
         for (PlanFragment frag : catStmt.getFragments()) {
             byte[] planHash = Encoder.hexDecode(frag.getPlanhash());
-            byte[] plan = Encoder.decodeBase64AndDecompressToBytes(frag.getPlannodetree());
-            long id = ActivePlanRepository.loadOrAddRefPlanFragment(planHash, plan, catStmt.getSqltext());
+            // Every site loads the same catalog, so only the first decodes the plan
+            long id = ActivePlanRepository.addRefPlanFragmentIfLoaded(planHash, catStmt.getSqltext());
+            if (id == -1) {
+                byte[] plan = Encoder.decodeBase64AndDecompressToBytes(frag.getPlannodetree());
+                id = ActivePlanRepository.loadOrAddRefPlanFragment(planHash, plan, catStmt.getSqltext());
+            }
             boolean transactional = frag.getNontransactional() == false;
 
             SQLStmt.Frag stmtFrag = new SQLStmt.Frag(id, planHash, transactional);
@@ -1350,6 +1391,15 @@ public class ProcedureRunner {
     * Execute a batch of homogeneous queries, i.e. all reads or all writes.
     */
    VoltTable[] executeSlowHomogeneousBatch(final List<QueuedSQL> batch, final boolean finalTask) {
+       BatchState state = prepareSlowHomogeneousBatch(batch, finalTask);
+       dispatchSlowHomogeneousBatch(state, finalTask, false);
+       return collectSlowHomogeneousBatch(state, batch);
+   }
+
+   /*
+    * Build the local and distributed fragment tasks for a homogeneous batch.
+    */
+   private BatchState prepareSlowHomogeneousBatch(final List<QueuedSQL> batch, final boolean finalTask) {
 
        BatchState state = new BatchState(batch.size(),
                                          m_txnState,
@@ -1401,9 +1451,6 @@ public class ProcedureRunner {
            state.addStatement(i, queuedSQL.stmt, paramBuf, m_site);
        }
 
-       // instruct the dtxn what's needed to resume the proc
-       m_txnState.setupProcedureResume(finalTask, state.m_depsToResume);
-
        // create all the local work for the transaction
        for (int i = 0; i < state.m_depsForLocalTask.length; i++) {
            if (state.m_depsForLocalTask[i] < 0) {
@@ -1412,15 +1459,36 @@ public class ProcedureRunner {
            state.m_localTask.addInputDepId(i, state.m_depsForLocalTask[i]);
        }
 
+       state.m_distributedTask.setBatch(m_batchIndex);
+       return state;
+   }
+
+   /*
+    * Hand a prepared batch to the dtxn, sending its distributed work unless
+    * that was already sent ahead with MpTransactionState.pipelineFragmentWork().
+    */
+   private void dispatchSlowHomogeneousBatch(BatchState state, final boolean finalTask, boolean pipelined) {
+       // instruct the dtxn what's needed to resume the proc
+       m_txnState.setupProcedureResume(finalTask, state.m_depsToResume);
+
        // note: non-transactional work only helps us if it's final work
        m_txnState.createLocalFragmentWork(state.m_localTask,
                                           state.m_localFragsAreNonTransactional && finalTask);
 
        if (!state.m_distributedTask.isEmpty()) {
-           state.m_distributedTask.setBatch(m_batchIndex);
-           m_txnState.createAllParticipatingFragmentWork(state.m_distributedTask);
+           if (pipelined) {
+               ((MpTransactionState)m_txnState).createPipelinedFragmentWork(state.m_distributedTask);
+           }
+           else {
+               m_txnState.createAllParticipatingFragmentWork(state.m_distributedTask);
+           }
        }
+   }
 
+   /*
+    * Wait for a dispatched batch and return its results.
+    */
+   private VoltTable[] collectSlowHomogeneousBatch(BatchState state, final List<QueuedSQL> batch) {
        // recursively call recursableRun and don't allow it to shutdown
        Map<Integer,List<VoltTable>> mapResults =
            m_site.recursableRun(m_txnState);
@@ -1440,6 +1508,69 @@ public class ProcedureRunner {
        return state.m_results;
    }
 
+   /*
+    * Can an oversized batch run as pipelined sub-batches? Only reads of a
+    * multi-partition transaction qualify: they can't affect each other, so
+    * sending the fragments of a later sub-batch early changes nothing but
+    * how long the procedure waits.
+    */
+   private boolean canPipelineSubBatches() {
+       return !m_isSinglePartition &&
+              m_txnState.isReadOnly() &&
+              m_txnState instanceof MpTransactionState &&
+              MpTransactionState.PIPELINE_DEPTH > 1 &&
+              getHsqlBackendIfExists() == null;
+   }
+
+   /*
+    * Run an oversized read-only multi-partition batch as sub-batches of at
+    * most MAX_BATCH_SIZE statements like voltExecuteSQL() does, but keep the
+    * distributed fragments of up to PIPELINE_DEPTH - 1 later sub-batches at
+    * the partitions while the current one is aggregated. A final sub-batch
+    * is never sent ahead, it would complete the transaction at the partitions.
+    */
+   private VoltTable[] executePipelinedReadBatches(List<QueuedSQL> batch, final boolean isFinalSQL) {
+       final MpTransactionState txnState = (MpTransactionState)m_txnState;
+       final List<List<QueuedSQL>> subBatches = new ArrayList<List<QueuedSQL>>();
+       for (int start = 0; start < batch.size(); start += MAX_BATCH_SIZE) {
+           subBatches.add(batch.subList(start, Math.min(start + MAX_BATCH_SIZE, batch.size())));
+       }
+       final int count = subBatches.size();
+       final BatchState[] states = new BatchState[count];
+       final List<VoltTable[]> results = new ArrayList<VoltTable[]>();
+       int sentAhead = 0;
+
+       TxnTracer.recordTraced(m_site, m_traceHandle, TxnTracer.Event.EE_START);
+       for (int i = 0; i < count; i++) {
+           final boolean finalSubBatch = isFinalSQL && i == count - 1;
+           final boolean pipelined = states[i] != null;
+           if (!pipelined) {
+               states[i] = prepareSlowHomogeneousBatch(subBatches.get(i), finalSubBatch);
+           }
+           dispatchSlowHomogeneousBatch(states[i], finalSubBatch, pipelined);
+
+           sentAhead = Math.max(sentAhead, i + 1);
+           while (sentAhead < count && sentAhead < i + MpTransactionState.PIPELINE_DEPTH &&
+                  !(isFinalSQL && sentAhead == count - 1)) {
+               states[sentAhead] = prepareSlowHomogeneousBatch(subBatches.get(sentAhead), false);
+               txnState.pipelineFragmentWork(states[sentAhead].m_distributedTask);
+               sentAhead++;
+           }
+
+           results.add(collectSlowHomogeneousBatch(states[i], subBatches.get(i)));
+       }
+       TxnTracer.recordTraced(m_site, m_traceHandle, TxnTracer.Event.EE_END);
+
+       // check expectations
+       VoltTable[] retval = MiscUtils.concatAll(new VoltTable[0], results);
+       int i = 0; for (QueuedSQL qs : batch) {
+           Expectation.check(m_procedureName, qs.stmt,
+                   i, qs.expectation, retval[i]);
+           i++;
+       }
+       return retval;
+   }
+
    // Batch up pre-planned fragments, but handle ad hoc independently.
    private VoltTable[] fastPath(List<QueuedSQL> batch) {
        final int batchSize = batch.size();
@@ -20,6 +20,7 @@ package org.voltdb;
 import java.util.ArrayList;
 import java.util.Iterator;
 
+import org.HdrHistogram_voltpatches.AbstractHistogram;
 import org.voltcore.logging.VoltLogger;
 import org.voltdb.catalog.Procedure;
 
@@ -119,6 +120,15 @@ class ProcedureStatsCollector extends SiteStatsSource {
     private long m_totalParameterSetSize = 0;
     private long m_lastTotalParameterSetSize = 0;
 
+    /**
+     * SQL batches answered from the site's result cache, and those looked up
+     * there and not found
+     */
+    private long m_cacheHits = 0;
+    private long m_lastCacheHits = 0;
+    private long m_cacheMisses = 0;
+    private long m_lastCacheMisses = 0;
+
     /**
      * Whether to return results in intervals since polling or since the beginning
      */
@@ -127,6 +137,16 @@ class ProcedureStatsCollector extends SiteStatsSource {
     private final Procedure m_catProc;
     private final int m_partitionId;
 
+    /**
+     * The same counts published to the node's MetricsRegistry, which can be
+     * read without interrupting this site. The execution time histogram is
+     * shared by all the sites running the procedure.
+     */
+    private final MetricsRegistry.Counter m_invocationsMetric;
+    private final MetricsRegistry.Counter m_abortsMetric;
+    private final MetricsRegistry.Counter m_failuresMetric;
+    private final AbstractHistogram m_executionTimeMetric;
+
     /**
      * Constructor requires no args because it has access to the enclosing classes members.
      */
@@ -134,6 +154,18 @@ class ProcedureStatsCollector extends SiteStatsSource {
         super(siteId, false);
         m_partitionId = partitionId;
         m_catProc = catProc;
+
+        MetricsRegistry metrics = MetricsRegistry.instance();
+        String procName = catProc.getClassname();
+        String partition = Integer.toString(partitionId);
+        m_invocationsMetric = metrics.counter("voltdb_procedure_invocations_total",
+                "Procedure invocations", "procedure", procName, "partition", partition);
+        m_abortsMetric = metrics.counter("voltdb_procedure_aborts_total",
+                "Procedure invocations that aborted", "procedure", procName, "partition", partition);
+        m_failuresMetric = metrics.counter("voltdb_procedure_failures_total",
+                "Procedure invocations that failed", "procedure", procName, "partition", partition);
+        m_executionTimeMetric = metrics.histogram("voltdb_procedure_execution_time_microseconds",
+                "Sampled procedure execution times", "procedure", procName);
     }
 
     /**
@@ -153,7 +185,7 @@ class ProcedureStatsCollector extends SiteStatsSource {
             boolean aborted,
             boolean failed,
             VoltTable[] results,
-            ParameterSet parameterSet) {
+            int parameterSetSize) {
         if (m_currentStartTime > 0) {
             // This is a sampled invocation.
             // Update timings and size statistics.
@@ -172,6 +204,8 @@ class ProcedureStatsCollector extends SiteStatsSource {
             {
                 m_totalTimedExecutionTime += delta;
                 m_timedInvocations++;
+                m_executionTimeMetric.recordValue(
+                        Math.min(delta / 1000, m_executionTimeMetric.getHighestTrackableValue()));
 
                 // sampled timings
                 m_minExecutionTime = Math.min( delta, m_minExecutionTime);
@@ -191,8 +225,6 @@ class ProcedureStatsCollector extends SiteStatsSource {
                 m_maxResultSize = Math.max(resultSize, m_maxResultSize);
                 m_lastMinResultSize = Math.min(resultSize, m_lastMinResultSize);
                 m_lastMaxResultSize = Math.max(resultSize, m_lastMaxResultSize);
-                long parameterSetSize = (
-                        parameterSet != null ? parameterSet.getSerializedSize() : 0);
                 m_totalParameterSetSize += parameterSetSize;
                 m_minParameterSetSize = Math.min(parameterSetSize, m_minParameterSetSize);
                 m_maxParameterSetSize = Math.max(parameterSetSize, m_maxParameterSetSize);
@@ -203,11 +235,22 @@ class ProcedureStatsCollector extends SiteStatsSource {
         }
         if (aborted) {
             m_abortCount++;
+            m_abortsMetric.increment();
         }
         if (failed) {
             m_failureCount++;
+            m_failuresMetric.increment();
         }
         m_invocations++;
+        m_invocationsMetric.increment();
+    }
+
+    /**
+     * Called with the result cache lookups made by one invocation.
+     */
+    public final void recordResultCache(long hits, long misses) {
+        m_cacheHits += hits;
+        m_cacheMisses += misses;
     }
 
     /**
@@ -234,6 +277,8 @@ class ProcedureStatsCollector extends SiteStatsSource {
         long minParameterSetSize = m_minParameterSetSize;
         long maxParameterSetSize = m_maxParameterSetSize;
         long totalParameterSetSize = m_totalParameterSetSize;
+        long cacheHits = m_cacheHits;
+        long cacheMisses = m_cacheMisses;
 
         if (m_interval) {
             invocations = m_invocations - m_lastInvocations;
@@ -266,6 +311,12 @@ class ProcedureStatsCollector extends SiteStatsSource {
 
             totalParameterSetSize = m_totalParameterSetSize - m_lastTotalParameterSetSize;
             m_lastTotalParameterSetSize = m_totalParameterSetSize;
+
+            cacheHits = m_cacheHits - m_lastCacheHits;
+            m_lastCacheHits = m_cacheHits;
+
+            cacheMisses = m_cacheMisses - m_lastCacheMisses;
+            m_lastCacheMisses = m_cacheMisses;
         }
 
         rowValues[columnNameToIndex.get("INVOCATIONS")] = invocations;
@@ -290,6 +341,8 @@ class ProcedureStatsCollector extends SiteStatsSource {
         rowValues[columnNameToIndex.get("MAX_RESULT_SIZE")] = maxResultSize;
         rowValues[columnNameToIndex.get("MIN_PARAMETER_SET_SIZE")] = minParameterSetSize;
         rowValues[columnNameToIndex.get("MAX_PARAMETER_SET_SIZE")] = maxParameterSetSize;
+        rowValues[columnNameToIndex.get("CACHE_HITS")] = cacheHits;
+        rowValues[columnNameToIndex.get("CACHE_MISSES")] = cacheMisses;
     }
 
     /**
@@ -314,6 +367,8 @@ class ProcedureStatsCollector extends SiteStatsSource {
         columns.add(new VoltTable.ColumnInfo("AVG_PARAMETER_SET_SIZE", VoltType.INTEGER));
         columns.add(new VoltTable.ColumnInfo("ABORTS", VoltType.BIGINT));
         columns.add(new VoltTable.ColumnInfo("FAILURES", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("CACHE_HITS", VoltType.BIGINT));
+        columns.add(new VoltTable.ColumnInfo("CACHE_MISSES", VoltType.BIGINT));
     }
 
     @Override
@@ -0,0 +1,231 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+import org.voltcore.utils.DBBPool;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.utils.ProcFS;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Process wide resource usage, the first table of "@Statistics THREADS".
+ * Memory, CPU and context switches are read from /proc/self and are zero
+ * where procfs isn't available. GC pauses come from the JVM's GC
+ * notifications and direct memory from DBBPool's accounting.
+ */
+public class ProcessResourceStats extends StatsSource {
+
+    public static interface Constants {
+        // bytes
+        public final static String RSS = "RSS";
+        public final static String RSS_PEAK = "RSS_PEAK";
+        public final static String VSIZE = "VSIZE";
+        public final static String NATIVE_THREADS = "NATIVE_THREADS";
+        public final static String JAVA_THREADS = "JAVA_THREADS";
+        // milliseconds, and percent of one core since the previous collection
+        public final static String USER_CPU = "USER_CPU";
+        public final static String SYSTEM_CPU = "SYSTEM_CPU";
+        public final static String PERCENT_CPU = "PERCENT_CPU";
+        public final static String VOLUNTARY_CONTEXT_SWITCHES = "VOLUNTARY_CONTEXT_SWITCHES";
+        public final static String INVOLUNTARY_CONTEXT_SWITCHES = "INVOLUNTARY_CONTEXT_SWITCHES";
+        // collections, their total time and the longest single pause in milliseconds
+        public final static String GC_COUNT = "GC_COUNT";
+        public final static String GC_TIME = "GC_TIME";
+        public final static String GC_MAX_PAUSE = "GC_MAX_PAUSE";
+        // bytes held by DBBPool, and by all of the JVM's direct buffers
+        public final static String DBBPOOL_MEMORY = "DBBPOOL_MEMORY";
+        public final static String DIRECT_MEMORY = "DIRECT_MEMORY";
+    }
+
+    private final List<GarbageCollectorMXBean> m_gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+    private final BufferPoolMXBean m_directPool;
+
+    // longest pause since start, and since the last interval collection
+    private long m_maxPauseMillis = 0;
+    private long m_intervalMaxPauseMillis = 0;
+
+    private boolean m_interval;
+    private long m_lastGcCount = 0;
+    private long m_lastGcTime = 0;
+    private ProcFS.Stat m_lastCpuStat = null;
+    private long m_lastCpuSampleNanos = System.nanoTime();
+
+    public ProcessResourceStats() {
+        super(false);
+        BufferPoolMXBean directPool = null;
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) {
+                directPool = pool;
+            }
+        }
+        m_directPool = directPool;
+
+        // HotSpot reports the duration of every collection; without it GC_MAX_PAUSE stays 0
+        NotificationListener pauseListener = new NotificationListener() {
+            @Override
+            public void handleNotification(Notification notification, Object handback) {
+                if (!notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                    return;
+                }
+                long duration = GarbageCollectionNotificationInfo.from(
+                        (CompositeData)notification.getUserData()).getGcInfo().getDuration();
+                recordPause(duration);
+            }
+        };
+        try {
+            for (GarbageCollectorMXBean bean : m_gcBeans) {
+                if (bean instanceof NotificationEmitter) {
+                    ((NotificationEmitter)bean).addNotificationListener(pauseListener, null, null);
+                }
+            }
+        } catch (Throwable t) {
+            // Not a HotSpot JVM
+        }
+    }
+
+    private synchronized void recordPause(long durationMillis) {
+        m_maxPauseMillis = Math.max(m_maxPauseMillis, durationMillis);
+        m_intervalMaxPauseMillis = Math.max(m_intervalMaxPauseMillis, durationMillis);
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(Constants.RSS, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.RSS_PEAK, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.VSIZE, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.NATIVE_THREADS, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.JAVA_THREADS, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.USER_CPU, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.SYSTEM_CPU, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.PERCENT_CPU, VoltType.FLOAT));
+        columns.add(new ColumnInfo(Constants.VOLUNTARY_CONTEXT_SWITCHES, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.INVOLUNTARY_CONTEXT_SWITCHES, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.GC_COUNT, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.GC_TIME, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.GC_MAX_PAUSE, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.DBBPOOL_MEMORY, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.DIRECT_MEMORY, VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object rowValues[]) {
+        ProcFS.Stat stat = ProcFS.readProcessStat();
+        Map<String, Long> status = ProcFS.readProcessStatus();
+
+        final long now = System.nanoTime();
+        double percentCpu = 0.0;
+        if (stat != null && m_lastCpuStat != null && now > m_lastCpuSampleNanos) {
+            percentCpu = (stat.cpuMillis() - m_lastCpuStat.cpuMillis()) * 100.0 /
+                    ((now - m_lastCpuSampleNanos) / 1000000.0);
+        }
+        if (stat != null) {
+            m_lastCpuStat = stat;
+            m_lastCpuSampleNanos = now;
+        }
+
+        long gcCount = 0;
+        long gcTime = 0;
+        for (GarbageCollectorMXBean bean : m_gcBeans) {
+            gcCount += Math.max(0, bean.getCollectionCount());
+            gcTime += Math.max(0, bean.getCollectionTime());
+        }
+        long maxPause = m_maxPauseMillis;
+        if (m_interval) {
+            long count = gcCount;
+            long time = gcTime;
+            gcCount -= m_lastGcCount;
+            gcTime -= m_lastGcTime;
+            m_lastGcCount = count;
+            m_lastGcTime = time;
+            maxPause = m_intervalMaxPauseMillis;
+            m_intervalMaxPauseMillis = 0;
+        }
+
+        rowValues[columnNameToIndex.get(Constants.RSS)] = stat == null ? 0L : stat.rss;
+        rowValues[columnNameToIndex.get(Constants.RSS_PEAK)] = statusValue(status, "VmHWM");
+        rowValues[columnNameToIndex.get(Constants.VSIZE)] = stat == null ? 0L : stat.vsize;
+        rowValues[columnNameToIndex.get(Constants.NATIVE_THREADS)] = stat == null ? 0 : stat.numThreads;
+        rowValues[columnNameToIndex.get(Constants.JAVA_THREADS)] =
+            ManagementFactory.getThreadMXBean().getThreadCount();
+        rowValues[columnNameToIndex.get(Constants.USER_CPU)] = stat == null ? 0L : stat.userMillis;
+        rowValues[columnNameToIndex.get(Constants.SYSTEM_CPU)] = stat == null ? 0L : stat.systemMillis;
+        rowValues[columnNameToIndex.get(Constants.PERCENT_CPU)] = percentCpu;
+        rowValues[columnNameToIndex.get(Constants.VOLUNTARY_CONTEXT_SWITCHES)] =
+            statusValue(status, "voluntary_ctxt_switches");
+        rowValues[columnNameToIndex.get(Constants.INVOLUNTARY_CONTEXT_SWITCHES)] =
+            statusValue(status, "nonvoluntary_ctxt_switches");
+        rowValues[columnNameToIndex.get(Constants.GC_COUNT)] = gcCount;
+        rowValues[columnNameToIndex.get(Constants.GC_TIME)] = gcTime;
+        rowValues[columnNameToIndex.get(Constants.GC_MAX_PAUSE)] = maxPause;
+        rowValues[columnNameToIndex.get(Constants.DBBPOOL_MEMORY)] = DBBPool.getBytesAllocatedGlobally();
+        rowValues[columnNameToIndex.get(Constants.DIRECT_MEMORY)] =
+            m_directPool == null ? 0L : m_directPool.getMemoryUsed();
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    private static long statusValue(Map<String, Long> status, String name) {
+        if (status == null) {
+            return 0L;
+        }
+        Long value = status.get(name);
+        return value == null ? 0L : value;
+    }
+
+    @Override
+    protected synchronized Iterator<Object> getStatsRowKeyIterator(final boolean interval) {
+        m_interval = interval;
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -108,8 +108,11 @@ import org.voltdb.iv2.Initiator;
 import org.voltdb.iv2.KSafetyStats;
 import org.voltdb.iv2.LeaderAppointer;
 import org.voltdb.iv2.MpInitiator;
+import org.voltdb.iv2.SiteIdleStrategy;
 import org.voltdb.iv2.SpInitiator;
 import org.voltdb.iv2.TxnEgo;
+import org.voltdb.iv2.TxnTraceStats;
+import org.voltdb.iv2.TxnTracer;
 import org.voltdb.join.BalancePartitionsStatistics;
 import org.voltdb.join.ElasticJoinService;
 import org.voltdb.licensetool.LicenseApi;
@@ -711,6 +714,10 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback {
             m_cpuStats = new CpuStats();
             getStatsAgent().registerStatsSource(StatsSelector.CPU,
                     0, m_cpuStats);
+            getStatsAgent().registerStatsSource(StatsSelector.PROCESSRESOURCE,
+                    0, new ProcessResourceStats());
+            getStatsAgent().registerStatsSource(StatsSelector.THREADRESOURCE,
+                    0, new ThreadResourceStats());
 
             // ENG-6321
             m_commandLogStats = new CommandLogStats(m_commandLog);
@@ -771,12 +778,14 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback {
                         adminIntf,
                         config.m_adminPort,
                         m_config.m_timestampTestingSalt);
+                // Client side trace events are kept per host, not per site.
+                getStatsAgent().registerStatsSource(StatsSelector.TXNTRACE, 0,
+                        TxnTraceStats.forClientInterface(m_clientInterface.getSiteId()));
             } catch (Exception e) {
                 VoltDB.crashLocalVoltDB(e.getMessage(), true, e);
             }
 
-            boolean usingCommandLog = m_config.m_isEnterprise &&
-                    m_catalogContext.cluster.getLogconfig().get("log").getEnabled();
+            boolean usingCommandLog = m_catalogContext.cluster.getLogconfig().get("log").getEnabled();
             String clSnapshotPath = null;
             if (m_catalogContext.cluster.getLogconfig().get("log").getEnabled()) {
                 clSnapshotPath = m_catalogContext.cluster.getLogconfig().get("log").getInternalsnapshotpath();
@@ -811,7 +820,9 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback {
              * Configure and start all the IV2 sites
              */
             try {
+                long startNanos = System.nanoTime();
                 final String serializedCatalog = m_catalogContext.catalog.serialize();
+                long serializedNanos = System.nanoTime();
                 boolean createMpDRGateway = true;
                 for (Initiator iv2init : m_iv2Initiators) {
                     iv2init.configure(
@@ -834,6 +845,11 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback {
                         createMpDRGateway = false;
                     }
                 }
+                // The sites load the catalog and their procedures on their own threads
+                hostLog.info(String.format("Serialized the catalog in %d ms and configured %d initiators in %d ms",
+                        TimeUnit.NANOSECONDS.toMillis(serializedNanos - startNanos),
+                        m_iv2Initiators.size(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - serializedNanos)));
 
                 // LeaderAppointer startup blocks if the initiators are not initialized.
                 // So create the LeaderAppointer after the initiators.
@@ -1423,18 +1439,13 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback {
                             "in the community edition of VoltDB.");
                     shutdownDeployment = true;
                 }
-                if ((deployment.getCommandlog() != null) && (deployment.getCommandlog().isEnabled())) {
-                    consoleLog.error("Command logging is not supported " +
-                            "in the community edition of VoltDB.");
-                    shutdownDeployment = true;
-                }
                 if ((deployment.getExport() != null) && Boolean.TRUE.equals(deployment.getExport().isEnabled())) {
                     consoleLog.error("Export is not supported " +
                             "in the community edition of VoltDB.");
                     shutdownDeployment = true;
                 }
                 // check the start action for the community edition
-                if (m_config.m_startAction != StartAction.CREATE) {
+                if (m_config.m_startAction.isEnterpriseOnly()) {
                     consoleLog.error("Start action \"" + m_config.m_startAction.getClass().getSimpleName() +
                             "\" is not supported in the community edition of VoltDB.");
                     shutdownAction = true;
@@ -1451,7 +1462,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback {
                     }
 
                     if (shutdownAction && !shutdownDeployment) {
-                        msg += "the CREATE start action";
+                        msg += "the CREATE or RECOVER start action";
                     }
                     msg += ".";
 
@@ -1468,6 +1479,11 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback {
                 hostLog.info("Dead host timeout set to " + m_config.m_deadHostTimeoutMS + " milliseconds");
             }
 
+            if (deployment.getConsistency() != null) {
+                SpReadRouter.configure(deployment.getConsistency().getReadlevel().value());
+                hostLog.info("Single partition read level set to " + deployment.getConsistency().getReadlevel().value());
+            }
+
             final String elasticSetting = deployment.getCluster().getElastic().trim().toUpperCase();
             if (elasticSetting.equals("ENABLED")) {
                 TheHashinator.setConfiguredHashinatorType(HashinatorType.ELASTIC);
@@ -1496,6 +1512,12 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback {
                 if (sysType.getQuery() != null && sysType.getQuery().getTimeout() > 0) {
                     hostLog.info("Query timeout set to " + sysType.getQuery().getTimeout() + " milliseconds");
                 }
+                if (sysType.getSiteidle() != null) {
+                    SystemSettingsType.Siteidle siteIdle = sysType.getSiteidle();
+                    SiteIdleStrategy.configure(siteIdle.getStrategy().value(), siteIdle.getSpin(), siteIdle.getYield());
+                    hostLog.info("Site idle strategy set to " + siteIdle.getStrategy().value() +
+                                 " (spin " + siteIdle.getSpin() + " us, yield " + siteIdle.getYield() + " us)");
+                }
             }
 
             // create a dummy catalog to load deployment info into
@@ -1984,6 +2006,15 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback {
                     m_cartographer.shutdown();
                 }
 
+                try {
+                    File traceFile = TxnTracer.dumpIfConfigured();
+                    if (traceFile != null) {
+                        hostLog.info("Wrote sampled transaction traces to " + traceFile);
+                    }
+                } catch (IOException e) {
+                    hostLog.warn("Failed to write sampled transaction traces", e);
+                }
+
                 if (m_configLogger != null) {
                     m_configLogger.join();
                 }
@@ -2409,7 +2440,7 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback {
         try {
             final ZooKeeper zk = m_messenger.getZK();
             boolean logRecoveryCompleted = false;
-            if (getCommandLog().getClass().getName().equals("org.voltdb.CommandLogImpl")) {
+            if (getCommandLog().isEnabled()) {
                 String requestNode = zk.create(VoltZK.request_truncation_snapshot_node, null,
                         Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT_SEQUENTIAL);
                 if (m_rejoinTruncationReqId == null) {
@@ -56,6 +56,7 @@ import org.voltdb.catalog.Procedure;
 import org.voltdb.client.ClientResponse;
 import org.voltdb.common.Constants;
 import org.voltdb.dtxn.TransactionCreator;
+import org.voltdb.sysprocs.saverestore.IncrementalSnapshotChain;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil.Snapshot;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil.TableFiles;
@@ -454,7 +455,7 @@ SnapshotCompletionInterest, Promotable
         m_callback = callback;
         m_action = action;
         m_zk = hostMessenger.getZK();
-        m_clEnabled = VoltDB.instance().getConfig().m_isEnterprise ? clEnabled : false;
+        m_clEnabled = clEnabled;
         m_clPath = clPath;
         m_clSnapshotPath = clSnapshotPath;
         m_snapshotPath = snapshotPath;
@@ -483,6 +484,8 @@ SnapshotCompletionInterest, Promotable
                                                                     hostMessenger,
                                                                     m_clPath,
                                                                     m_liveHosts);
+            } else if (m_clEnabled || m_action.doesRecover()) {
+                m_replayAgent = new CommandLogReplayer(m_hostId, m_action, hostMessenger, m_clPath, m_liveHosts);
             }
         } catch (Exception e) {
             VoltDB.crashGlobalVoltDB("Unable to instantiate command log reinitiator",
@@ -681,6 +684,11 @@ SnapshotCompletionInterest, Promotable
         // Negotiate with other hosts about which snapshot to restore
         SnapshotInfo infoWithMinHostId = getRestorePlan();
 
+        // The restore reads whole tables, so apply a delta snapshot to the ones it depends on first
+        if (infoWithMinHostId != null) {
+            SnapshotUtil.consolidateIncrementalSnapshot(infoWithMinHostId.path, infoWithMinHostId.nonce, LOG);
+        }
+
         /*
          * Generate the replay plan here so that we don't have to wait until the
          * snapshot restore finishes.
@@ -775,6 +783,20 @@ SnapshotCompletionInterest, Promotable
                     digestTableNames.add(tableObj.getString(i));
                 }
             }
+
+            if (IncrementalSnapshotChain.getMode(digest_detail, IncrementalSnapshotChain.JSON_MODE) ==
+                    IncrementalSnapshotChain.BlockTracking.DELTA) {
+                IncrementalSnapshotChain.Link missing =
+                        IncrementalSnapshotChain.findMissingLink(IncrementalSnapshotChain.getChain(digest_detail));
+                if (missing != null) {
+                    m_snapshotErrLogStr.append("\nRejected snapshot ")
+                                    .append(s.getNonce())
+                                    .append(" because the snapshot ")
+                                    .append(missing)
+                                    .append(" its changes apply to is missing.");
+                    return null;
+                }
+            }
         }
         catch (IOException ioe)
         {
@@ -1332,10 +1354,8 @@ SnapshotCompletionInterest, Promotable
          * they can be set individually
          */
         List<String> paths = new ArrayList<String>();
-        if (VoltDB.instance().getConfig().m_isEnterprise) {
-            if (m_clSnapshotPath != null) {
-                paths.add(m_clSnapshotPath);
-            }
+        if (m_clSnapshotPath != null) {
+            paths.add(m_clSnapshotPath);
         }
         if (m_snapshotPath != null) {
             paths.add(m_snapshotPath);
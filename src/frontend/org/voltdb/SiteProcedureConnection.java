@@ -107,6 +107,14 @@ public interface SiteProcedureConnection {
             long uniqueId,
             boolean readOnly) throws EEException;
 
+    /**
+     * Number of read-only fragment batches served from the site's result
+     * cache, and the number looked up there and not found. Both are 0 when
+     * the cache is off.
+     */
+    public long getResultCacheHits();
+    public long getResultCacheMisses();
+
     /**
      * Let the EE know which batch of sql is running so it can include this
      * information in any slow query progress log messages.
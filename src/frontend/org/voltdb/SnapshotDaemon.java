@@ -65,6 +65,8 @@ import org.voltdb.client.ClientResponse;
 import org.voltdb.client.ProcedureCallback;
 import org.voltdb.messaging.SnapshotCheckRequestMessage;
 import org.voltdb.messaging.SnapshotCheckResponseMessage;
+import org.voltdb.sysprocs.saverestore.IncrementalSnapshotChain;
+import org.voltdb.sysprocs.saverestore.IncrementalSnapshotChain.BlockTracking;
 import org.voltdb.sysprocs.saverestore.SnapshotUtil;
 import org.voltdb.utils.VoltTableUtil;
 
@@ -161,6 +163,12 @@ public class SnapshotDaemon implements SnapshotCompletionInterest {
      */
     final LinkedList<Snapshot> m_snapshots = new LinkedList<Snapshot>();
 
+    /**
+     * Write only the changes since the previous automated snapshot, with a full
+     * one every IncrementalSnapshotChain.MAX_DELTAS snapshots
+     */
+    static boolean m_incrementalSnapshots = Boolean.getBoolean("SNAPSHOT_DAEMON_INCREMENTAL");
+
     /**
      * States the daemon can be in
      *
@@ -1254,11 +1262,14 @@ public class SnapshotDaemon implements SnapshotCompletionInterest {
         private final String path;
         private final String nonce;
         private final Long txnId;
+        // Only has the changes since the previous snapshot, which can't be deleted before it
+        private final boolean delta;
 
-        private Snapshot (String path, String nonce, Long txnId) {
+        private Snapshot (String path, String nonce, Long txnId, boolean delta) {
             this.path = path;
             this.nonce = nonce;
             this.txnId = txnId;
+            this.delta = delta;
         }
 
         @Override
@@ -1319,7 +1330,7 @@ public class SnapshotDaemon implements SnapshotCompletionInterest {
             return;
         }
 
-        if (m_snapshots.size() > m_retain) {
+        if (countSnapshotsToDelete() > 0) {
             //Quick hack to make sure we don't delete while the snapshot is running.
             //Deletes work really badly during a snapshot because the FS is occupied
             if (!SnapshotSiteProcessor.ExecutionSitesCurrentlySnapshotting.isEmpty()) {
@@ -1347,7 +1358,14 @@ public class SnapshotDaemon implements SnapshotCompletionInterest {
             jsObj.put("path", m_path);
             jsObj.put("nonce", nonce);
             jsObj.put("perPartitionTxnIds", retrievePerPartitionTransactionIds());
-            m_snapshots.offer(new Snapshot(m_path, nonce, now));
+            BlockTracking incremental = BlockTracking.NONE;
+            if (m_incrementalSnapshots) {
+                incremental = nextIncrementalSnapshot();
+                JSONObject jsData = new JSONObject();
+                jsData.put(IncrementalSnapshotChain.JSON_INCREMENTAL, incremental.name());
+                jsObj.put("data", jsData.toString());
+            }
+            m_snapshots.offer(new Snapshot(m_path, nonce, now, incremental == BlockTracking.DELTA));
             long handle = m_nextCallbackHandle++;
             m_procedureCallbacks.put(handle, new ProcedureCallback() {
 
@@ -1542,7 +1560,7 @@ public class SnapshotDaemon implements SnapshotCompletionInterest {
                 final String nonce = snapshots.getString("NONCE");
                 if (nonce.startsWith(m_prefixAndSeparator)) {
                     final Long txnId = snapshots.getLong("TXNID");
-                    m_snapshots.add(new Snapshot(path, nonce, txnId));
+                    m_snapshots.add(new Snapshot(path, nonce, txnId, isDeltaSnapshot(path, nonce)));
                 }
             }
         }
@@ -1557,12 +1575,12 @@ public class SnapshotDaemon implements SnapshotCompletionInterest {
      * @return
      */
     private void deleteExtraSnapshots() {
-        if (m_snapshots.size() <= m_retain) {
+        final int numberToDelete = countSnapshotsToDelete();
+        if (numberToDelete == 0) {
             setState(State.WAITING);
         } else {
             m_lastSysprocInvocation = System.currentTimeMillis();
             setState(State.DELETING);
-            final int numberToDelete = m_snapshots.size() - m_retain;
             String pathsToDelete[] = new String[numberToDelete];
             String noncesToDelete[] = new String[numberToDelete];
             for (int ii = 0; ii < numberToDelete; ii++) {
@@ -1590,6 +1608,50 @@ public class SnapshotDaemon implements SnapshotCompletionInterest {
         }
     }
 
+    /**
+     * @return how many of the oldest snapshots can be deleted, keeping m_retain
+     * snapshots and the earlier ones the oldest of those depends on
+     */
+    private int countSnapshotsToDelete() {
+        int count = m_snapshots.size() - m_retain;
+        while (count > 0 && count < m_snapshots.size() && m_snapshots.get(count).delta) {
+            count--;
+        }
+        return Math.max(count, 0);
+    }
+
+    /**
+     * Request a full snapshot after IncrementalSnapshotChain.MAX_DELTAS deltas, so the
+     * snapshots kept for the oldest retained one stay few. Every host writes a requested
+     * full snapshot in full, which is what allows deleting the snapshots before it.
+     */
+    private BlockTracking nextIncrementalSnapshot() {
+        int deltas = 0;
+        Iterator<Snapshot> iter = m_snapshots.descendingIterator();
+        while (iter.hasNext()) {
+            if (!iter.next().delta) {
+                return deltas < IncrementalSnapshotChain.MAX_DELTAS ? BlockTracking.DELTA : BlockTracking.FULL;
+            }
+            deltas++;
+        }
+        return BlockTracking.FULL;
+    }
+
+    /**
+     * @return true if the local digest of a snapshot says it was requested as a delta
+     */
+    private static boolean isDeltaSnapshot(String path, String nonce) {
+        try {
+            for (JSONObject digest : SnapshotUtil.retrieveDigests(path, nonce, SNAP_LOG)) {
+                return IncrementalSnapshotChain.getMode(digest, IncrementalSnapshotChain.JSON_REQUESTED) ==
+                        BlockTracking.DELTA;
+            }
+        } catch (Exception e) {
+            SNAP_LOG.warn("Unable to read the digest of snapshot " + nonce, e);
+        }
+        return false;
+    }
+
     private void logFailureResponse(String message, ClientResponse response) {
         SNAP_LOG.warn(message + "\n" + response.getStatusString());
         if (response.getStatusString() != null) {
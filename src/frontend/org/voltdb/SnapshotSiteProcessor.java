@@ -55,6 +55,7 @@ import org.voltdb.iv2.MpInitiator;
 import org.voltdb.iv2.SiteTaskerQueue;
 import org.voltdb.iv2.SnapshotTask;
 import org.voltdb.rejoin.StreamSnapshotDataTarget.StreamSnapshotTimeoutException;
+import org.voltdb.sysprocs.saverestore.IncrementalSnapshotChain.BlockTracking;
 import org.voltdb.sysprocs.saverestore.SnapshotPredicates;
 import org.voltdb.utils.CatalogUtil;
 import org.voltdb.utils.CompressionService;
@@ -495,7 +496,10 @@ public class SnapshotSiteProcessor {
                 tablesAndPredicates.put(task.m_table.getRelativeIndex(), predicates);
             }
 
-            predicates.addPredicate(task.m_predicate, task.m_deleteTuples);
+            predicates.addPredicate(task.m_predicate, task.m_deleteTuples, task.m_projection);
+            if (task.m_blockTracking != BlockTracking.NONE) {
+                predicates.setBlockTracking(task.m_blockTracking);
+            }
         }
 
         for (Map.Entry<Integer, SnapshotPredicates> e : tablesAndPredicates.entrySet()) {
@@ -19,6 +19,7 @@ package org.voltdb;
 
 import org.voltdb.catalog.Table;
 import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.sysprocs.saverestore.IncrementalSnapshotChain.BlockTracking;
 
 /**
  * A class identifying a table that should be snapshotted as well as the destination
@@ -30,6 +31,10 @@ public class SnapshotTableTask
     public final SnapshotDataFilter m_filters[];
     public final AbstractExpression m_predicate;
     public final boolean m_deleteTuples;
+    /** Indexes of the columns to write, or null to write all of them */
+    public final int[] m_projection;
+    /** Whether the rows are tagged with their block id and only the changed blocks written */
+    public final BlockTracking m_blockTracking;
 
     volatile SnapshotDataTarget m_target;
 
@@ -38,11 +43,34 @@ public class SnapshotTableTask
             final SnapshotDataFilter filters[],
             final AbstractExpression predicate,
             final boolean deleteTuples)
+    {
+        this(table, filters, predicate, deleteTuples, null);
+    }
+
+    public SnapshotTableTask(
+            final Table table,
+            final SnapshotDataFilter filters[],
+            final AbstractExpression predicate,
+            final boolean deleteTuples,
+            final int[] projection)
+    {
+        this(table, filters, predicate, deleteTuples, projection, BlockTracking.NONE);
+    }
+
+    public SnapshotTableTask(
+            final Table table,
+            final SnapshotDataFilter filters[],
+            final AbstractExpression predicate,
+            final boolean deleteTuples,
+            final int[] projection,
+            final BlockTracking blockTracking)
     {
         m_table = table;
         m_filters = filters;
         m_predicate = predicate;
         m_deleteTuples = deleteTuples;
+        m_projection = projection;
+        m_blockTracking = blockTracking;
     }
 
     public void setTarget(SnapshotDataTarget target)
@@ -71,7 +99,8 @@ public class SnapshotTableTask
     {
         return ("SnapshotTableTask for " + m_table.getTypeName() +
                 " replicated " + m_table.getIsreplicated() +
-                ", delete " + m_deleteTuples);
+                ", delete " + m_deleteTuples +
+                ", block tracking " + m_blockTracking);
     }
 }
 
@@ -0,0 +1,140 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google_voltpatches.common.collect.ImmutableMap;
+import com.google_voltpatches.common.primitives.Longs;
+
+/**
+ * Spreads read-only single partition procedures across every copy of a
+ * partition when the deployment sets consistency readlevel="replica".
+ *
+ * Each read is sent round robin to the leader or one of the replicas, together
+ * with a minimum spHandle: the highest spHandle of a write to that partition
+ * this ClientInterface has returned to a client. A replica only runs the read
+ * once it has queued every transaction up to that handle, so a client always
+ * sees its own acknowledged writes no matter which copy serves the read.
+ * Since the leader only acknowledges a write after every replica has run it,
+ * replicas almost never have to wait.
+ *
+ * The copies of each partition are refreshed periodically from ZooKeeper by
+ * the ClientInterface. Copies that disappear are reported back so reads
+ * outstanding at a failed replica can be answered with an error.
+ */
+public class SpReadRouter
+{
+    public static final String FAST = "fast";
+    public static final String REPLICA = "replica";
+
+    private static volatile boolean s_replicaReads = false;
+
+    /**
+     * @param readLevel  fast or replica
+     */
+    public static void configure(String readLevel)
+    {
+        final String level = readLevel.trim().toLowerCase();
+        if (!level.equals(FAST) && !level.equals(REPLICA)) {
+            throw new IllegalArgumentException("Unknown read level " + readLevel);
+        }
+        s_replicaReads = level.equals(REPLICA);
+    }
+
+    public static boolean isReplicaReadsEnabled()
+    {
+        return s_replicaReads;
+    }
+
+    // Partition to HSIds of every copy, leader included
+    private volatile ImmutableMap<Integer, long[]> m_copies = ImmutableMap.of();
+    // Partition to the highest spHandle of a write acknowledged to a client
+    private final ConcurrentHashMap<Integer, AtomicLong> m_writeSpHandles =
+            new ConcurrentHashMap<Integer, AtomicLong>();
+    private final AtomicLong m_nextCopy = new AtomicLong();
+
+    /**
+     * @return the HSId of the copy of the partition that should run the next
+     * read, or null if no copies are known yet
+     */
+    public Long pickCopy(int partitionId)
+    {
+        final long[] copies = m_copies.get(partitionId);
+        if (copies == null || copies.length == 0) {
+            return null;
+        }
+        return copies[(int)(m_nextCopy.getAndIncrement() % copies.length)];
+    }
+
+    /**
+     * @return the spHandle a copy must have queued before running a read for
+     * the partition, never negative so it can't be mistaken for an unset handle
+     */
+    public long getReadSpHandle(int partitionId)
+    {
+        final AtomicLong spHandle = m_writeSpHandles.get(partitionId);
+        return spHandle == null ? 0 : spHandle.get();
+    }
+
+    /**
+     * Remember the spHandle of a write to the partition that completed.
+     */
+    public void writeCompleted(int partitionId, long spHandle)
+    {
+        AtomicLong current = m_writeSpHandles.get(partitionId);
+        if (current == null) {
+            final AtomicLong fresh = new AtomicLong(0);
+            current = m_writeSpHandles.putIfAbsent(partitionId, fresh);
+            if (current == null) {
+                current = fresh;
+            }
+        }
+        long seen = current.get();
+        while (spHandle > seen && !current.compareAndSet(seen, spHandle)) {
+            seen = current.get();
+        }
+    }
+
+    /**
+     * Install a new set of copies for every partition.
+     * @return HSIds of copies that were known before and are gone now
+     */
+    public synchronized Set<Long> setCopies(Map<Integer, List<Long>> copies)
+    {
+        final Set<Long> before = new HashSet<Long>();
+        for (long[] hsids : m_copies.values()) {
+            before.addAll(Longs.asList(hsids));
+        }
+
+        final ImmutableMap.Builder<Integer, long[]> builder = ImmutableMap.builder();
+        for (Map.Entry<Integer, List<Long>> e : copies.entrySet()) {
+            if (!e.getValue().isEmpty()) {
+                builder.put(e.getKey(), Longs.toArray(e.getValue()));
+                before.removeAll(e.getValue());
+            }
+        }
+        m_copies = builder.build();
+        return before;
+    }
+}
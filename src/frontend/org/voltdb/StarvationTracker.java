@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 
 import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.iv2.SiteIdleStrategy;
 
 /**
  * A class to track and generate statistics regarding task starvation.
@@ -52,6 +53,12 @@ public class StarvationTracker extends SiteStatsSource {
 
     private long m_starvationStartTime;
 
+    /*
+     * Time spent in each phase of the site idle strategy, in nanoseconds
+     */
+    private final long m_phaseTime[] = new long[SiteIdleStrategy.Phase.values().length];
+    private final long m_lastPhaseTime[] = new long[SiteIdleStrategy.Phase.values().length];
+
     private boolean m_interval;
 
     /**
@@ -81,6 +88,25 @@ public class StarvationTracker extends SiteStatsSource {
         m_lastMin = Math.min(m_lastMin, delta);
     }
 
+    /**
+     * Account time a starved worker spent spinning, yielding or parked.
+     */
+    public void addIdlePhaseTime(SiteIdleStrategy.Phase phase, long nanos) {
+        m_phaseTime[phase.ordinal()] += nanos;
+    }
+
+    private void setPhaseColumns(Object rowValues[], boolean interval) {
+        for (SiteIdleStrategy.Phase phase : SiteIdleStrategy.Phase.values()) {
+            final int i = phase.ordinal();
+            long nanos = m_phaseTime[i];
+            if (interval) {
+                nanos -= m_lastPhaseTime[i];
+                m_lastPhaseTime[i] = m_phaseTime[i];
+            }
+            rowValues[columnNameToIndex.get(phase.name() + "_TIME")] = nanos / 1000;
+        }
+    }
+
     @Override
     protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
         super.populateColumnSchema(columns);
@@ -90,6 +116,9 @@ public class StarvationTracker extends SiteStatsSource {
         columns.add(new ColumnInfo("MIN", VoltType.BIGINT));
         columns.add(new ColumnInfo("MAX", VoltType.BIGINT));
         columns.add(new ColumnInfo("STDDEV", VoltType.BIGINT));
+        columns.add(new ColumnInfo("SPIN_TIME", VoltType.BIGINT));
+        columns.add(new ColumnInfo("YIELD_TIME", VoltType.BIGINT));
+        columns.add(new ColumnInfo("PARK_TIME", VoltType.BIGINT));
     }
 
     @Override
@@ -142,6 +171,7 @@ public class StarvationTracker extends SiteStatsSource {
                 rowValues[columnNameToIndex.get("STDDEV")] = 0L;
             }
         }
+        setPhaseColumns(rowValues, m_interval);
         super.updateStatsRow(rowKey, rowValues);
     }
 
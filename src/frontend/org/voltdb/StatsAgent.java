@@ -423,6 +423,21 @@ public class StatsAgent extends OpsAgent
         case COMMANDLOG:
             stats = collectCommandLogStats();
             break;
+        case TXNTRACE:
+            stats = collectTxnTraceStats(interval);
+            break;
+        case MPREADPOOL:
+            stats = collectMpReadPoolStats(interval);
+            break;
+        case MPYIELD:
+            stats = collectMpYieldStats(interval);
+            break;
+        case REPAIRLOG:
+            stats = collectRepairLogStats(interval);
+            break;
+        case THREADS:
+            stats = collectThreadsStats(interval);
+            break;
         default:
             // Should have been successfully groomed in collectStatsImpl().  Log something
             // for our information but let the null check below return harmlessly
@@ -758,6 +773,73 @@ public class StatsAgent extends OpsAgent
         return stats;
     }
 
+    private VoltTable[] collectTxnTraceStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable tStats = getStatsAggregate(StatsSelector.TXNTRACE, interval, now);
+        if (tStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = tStats;
+        }
+        return stats;
+    }
+
+    private VoltTable[] collectMpReadPoolStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable pStats = getStatsAggregate(StatsSelector.MPREADPOOL, interval, now);
+        if (pStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = pStats;
+        }
+        return stats;
+    }
+
+    private VoltTable[] collectMpYieldStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable yStats = getStatsAggregate(StatsSelector.MPYIELD, interval, now);
+        if (yStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = yStats;
+        }
+        return stats;
+    }
+
+    private VoltTable[] collectRepairLogStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable rStats = getStatsAggregate(StatsSelector.REPAIRLOG, interval, now);
+        if (rStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = rStats;
+        }
+        return stats;
+    }
+
+    private VoltTable[] collectThreadsStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable processStats = getStatsAggregate(StatsSelector.PROCESSRESOURCE, interval, now);
+        VoltTable threadStats = getStatsAggregate(StatsSelector.THREADRESOURCE, interval, now);
+        if (processStats != null && threadStats != null) {
+            stats = new VoltTable[2];
+            stats[0] = processStats;
+            stats[1] = threadStats;
+        }
+        return stats;
+    }
+
     public void registerStatsSource(StatsSelector selector, long siteId, StatsSource source) {
         assert selector != null;
         assert source != null;
@@ -52,5 +52,17 @@ public enum StatsSelector {
     KSAFETY,        // return ksafety coverage information
     CPU,            // Return CPU Stats
 
-    COMMANDLOG      // return number of outstanding bytes and txns on this node
+    COMMANDLOG,     // return number of outstanding bytes and txns on this node
+    TXNTRACE,       // return sampled per-transaction trace events
+    MPREADPOOL,     // return MP read-only site pool utilization and queue wait
+    MPYIELD,        // return SP reads run ahead of MP reads and the wait saved
+    REPAIRLOG,      // return the size of each initiator's repair log
+
+    /*
+     * PROCESSRESOURCE and THREADRESOURCE are internal names
+     * Externally the selector is just "THREADS"
+     */
+    THREADS,        // return process and per-thread CPU, memory and GC use
+    PROCESSRESOURCE,
+    THREADRESOURCE
 }
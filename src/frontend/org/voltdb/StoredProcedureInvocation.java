@@ -151,6 +151,39 @@ public class StoredProcedureInvocation implements JSONString {
         return null;
     }
 
+    /**
+     * The parameters to call a procedure with. When the invocation still only has its
+     * serialized parameters, they are decoded straight into the procedure's parameter
+     * types and the decoded values are not kept: the invocation lives on in the repair
+     * log and the command log with just the serialized bytes.
+     *
+     * @param paramTypes The types of the procedure's parameters, see
+     *                   {@link ParameterSet#readParametersForCall(ByteBuffer, Class[])}
+     */
+    public Object[] getParamsForCall(Class<?>[] paramTypes) {
+        if (serializedParams == null || params.isDone()) {
+            return getParams().toArray();
+        }
+        try {
+            return ParameterSet.readParametersForCall(serializedParams.duplicate(), paramTypes);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return the serialized size of the parameters, without decoding them
+     */
+    public int getSerializedParamsSize() {
+        if (serializedParams != null) {
+            return serializedParams.remaining();
+        }
+        else if (params != null) {
+            return getParams().getSerializedSize();
+        }
+        return 0;
+    }
+
     public void setClientHandle(long aHandle) {
         clientHandle = aHandle;
     }
@@ -48,5 +48,8 @@ public class TableStats extends SiteStatsSource {
         columns.add(new ColumnInfo("STRING_DATA_MEMORY", VoltType.INTEGER));
         columns.add(new ColumnInfo("TUPLE_LIMIT", VoltType.INTEGER));
         columns.add(new ColumnInfo("PERCENT_FULL", VoltType.INTEGER));
+        columns.add(new ColumnInfo("MINMAX_FALLBACK_SCANS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("MINMAX_FALLBACK_TUPLES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("MINMAX_TRACKING_MEMORY", VoltType.INTEGER));
     }
 }
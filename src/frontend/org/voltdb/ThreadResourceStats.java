@@ -0,0 +1,210 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.utils.ProcFS;
+
+/**
+ * Per thread CPU, the second table of "@Statistics THREADS". There is a row
+ * for each live Java thread, attributed to a group by the names VoltDB gives
+ * its threads, and a JVM row for the native threads that aren't Java threads
+ * (GC, JIT compiler and VM threads).
+ *
+ * Java thread CPU is read from each thread's CPU clock. The native thread names
+ * under /proc/self/task don't carry the Java names, so /proc/self/task is only
+ * used for the total CPU of live native threads, from which the JVM row is the
+ * remainder.
+ */
+public class ThreadResourceStats extends StatsSource {
+
+    public static interface Constants {
+        public final static String THREAD_ID = "THREAD_ID";
+        public final static String THREAD_NAME = "THREAD_NAME";
+        public final static String THREAD_GROUP = "THREAD_GROUP";
+        public final static String STATE = "STATE";
+        // milliseconds, and percent of one core since the previous collection
+        public final static String CPU_TIME = "CPU_TIME";
+        public final static String USER_TIME = "USER_TIME";
+        public final static String PERCENT_CPU = "PERCENT_CPU";
+        public final static String BLOCKED_COUNT = "BLOCKED_COUNT";
+        public final static String WAITED_COUNT = "WAITED_COUNT";
+    }
+
+    // Thread groups, from the names VoltDB gives its threads
+    public final static String SITE = "SITE";
+    public final static String NETWORK = "NETWORK";
+    public final static String PICONETWORK = "PICONETWORK";
+    public final static String SNAPSHOT = "SNAPSHOT";
+    public final static String EXPORT = "EXPORT";
+    public final static String OTHER = "OTHER";
+    public final static String JVM = "JVM";
+
+    private final ThreadMXBean m_threadBean = ManagementFactory.getThreadMXBean();
+
+    // CPU nanos of each thread and the JVM row at the previous collection
+    private Map<Long, Long> m_lastCpuNanos = new HashMap<Long, Long>();
+    private long m_lastSampleNanos = System.nanoTime();
+
+    private static class Row {
+        final long threadId;
+        final String name;
+        final String group;
+        final String state;
+        final long cpuNanos;
+        final long userNanos;
+        final double percentCpu;
+        final long blockedCount;
+        final long waitedCount;
+
+        Row(long threadId, String name, String group, String state, long cpuNanos,
+            long userNanos, double percentCpu, long blockedCount, long waitedCount) {
+            this.threadId = threadId;
+            this.name = name;
+            this.group = group;
+            this.state = state;
+            this.cpuNanos = cpuNanos;
+            this.userNanos = userNanos;
+            this.percentCpu = percentCpu;
+            this.blockedCount = blockedCount;
+            this.waitedCount = waitedCount;
+        }
+    }
+
+    public ThreadResourceStats() {
+        super(false);
+        if (m_threadBean.isThreadCpuTimeSupported() && !m_threadBean.isThreadCpuTimeEnabled()) {
+            m_threadBean.setThreadCpuTimeEnabled(true);
+        }
+        // Baseline, so the first collection's PERCENT_CPU isn't averaged over each thread's lifetime
+        getStatsRowKeyIterator(false);
+    }
+
+    /**
+     * Attribute a thread to a group by its name.
+     */
+    static String threadGroup(String name) {
+        if (name.contains("Iv2ExecutionSite")) {
+            return SITE;
+        }
+        if (name.startsWith("Pico Network")) {
+            return PICONETWORK;
+        }
+        if (name.startsWith("Volt ") && name.contains(" Network")) {
+            return NETWORK;
+        }
+        if (name.contains("Snapshot")) {
+            return SNAPSHOT;
+        }
+        if (name.contains("Export")) {
+            return EXPORT;
+        }
+        return OTHER;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(Constants.THREAD_ID, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.THREAD_NAME, VoltType.STRING));
+        columns.add(new ColumnInfo(Constants.THREAD_GROUP, VoltType.STRING));
+        columns.add(new ColumnInfo(Constants.STATE, VoltType.STRING));
+        columns.add(new ColumnInfo(Constants.CPU_TIME, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.USER_TIME, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.PERCENT_CPU, VoltType.FLOAT));
+        columns.add(new ColumnInfo(Constants.BLOCKED_COUNT, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.WAITED_COUNT, VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object rowValues[]) {
+        Row row = (Row)rowKey;
+        rowValues[columnNameToIndex.get(Constants.THREAD_ID)] = row.threadId;
+        rowValues[columnNameToIndex.get(Constants.THREAD_NAME)] = row.name;
+        rowValues[columnNameToIndex.get(Constants.THREAD_GROUP)] = row.group;
+        rowValues[columnNameToIndex.get(Constants.STATE)] = row.state;
+        rowValues[columnNameToIndex.get(Constants.CPU_TIME)] = row.cpuNanos / 1000000;
+        rowValues[columnNameToIndex.get(Constants.USER_TIME)] = row.userNanos / 1000000;
+        rowValues[columnNameToIndex.get(Constants.PERCENT_CPU)] = row.percentCpu;
+        rowValues[columnNameToIndex.get(Constants.BLOCKED_COUNT)] = row.blockedCount;
+        rowValues[columnNameToIndex.get(Constants.WAITED_COUNT)] = row.waitedCount;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    /**
+     * Sample every thread once per collection, so all rows cover the same period.
+     */
+    @Override
+    protected synchronized Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        final long now = System.nanoTime();
+        final double elapsedNanos = Math.max(1, now - m_lastSampleNanos);
+        final Map<Long, Long> cpuNanos = new HashMap<Long, Long>();
+        final List<Object> rows = new ArrayList<Object>();
+
+        long javaCpuNanos = 0;
+        for (ThreadInfo info : m_threadBean.getThreadInfo(m_threadBean.getAllThreadIds())) {
+            // the thread exited after the ids were listed
+            if (info == null) {
+                continue;
+            }
+            long id = info.getThreadId();
+            long cpu = Math.max(0, m_threadBean.getThreadCpuTime(id));
+            long user = Math.max(0, m_threadBean.getThreadUserTime(id));
+            javaCpuNanos += cpu;
+            cpuNanos.put(id, cpu);
+            rows.add(new Row(id, info.getThreadName(), threadGroup(info.getThreadName()),
+                             info.getThreadState().name(), cpu, user,
+                             percent(cpu, m_lastCpuNanos.get(id), elapsedNanos),
+                             info.getBlockedCount(), info.getWaitedCount()));
+        }
+
+        Map<Integer, ProcFS.Stat> tasks = ProcFS.readThreadStats();
+        if (tasks != null) {
+            long nativeCpuNanos = 0;
+            long nativeUserNanos = 0;
+            for (ProcFS.Stat task : tasks.values()) {
+                nativeCpuNanos += task.cpuMillis() * 1000000;
+                nativeUserNanos += task.userMillis * 1000000;
+            }
+            // The clocks differ in resolution, so the remainder can be slightly negative
+            long jvmCpuNanos = Math.max(0, nativeCpuNanos - javaCpuNanos);
+            cpuNanos.put(-1L, jvmCpuNanos);
+            rows.add(new Row(-1, "JVM internal threads", JVM, "", jvmCpuNanos,
+                             Math.min(jvmCpuNanos, nativeUserNanos),
+                             percent(jvmCpuNanos, m_lastCpuNanos.get(-1L), elapsedNanos), 0, 0));
+        }
+
+        m_lastCpuNanos = cpuNanos;
+        m_lastSampleNanos = now;
+        return rows.iterator();
+    }
+
+    private static double percent(long cpuNanos, Long lastCpuNanos, double elapsedNanos) {
+        long delta = cpuNanos - (lastCpuNanos == null ? 0 : lastCpuNanos);
+        return Math.max(0, delta) * 100.0 / elapsedNanos;
+    }
+}
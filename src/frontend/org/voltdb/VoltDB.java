@@ -526,7 +526,7 @@ public class VoltDB {
             // check if start action is not valid in community
             if ((!m_isEnterprise) && (m_startAction.isEnterpriseOnly())) {
                 isValid = false;
-                hostLog.fatal("VoltDB Community Edition only supports the \"create\" start action.");
+                hostLog.fatal("VoltDB Community Edition only supports the \"create\" and \"recover\" start actions.");
                 String msg = m_startAction.featureNameForErrorString();
                 msg += " is an Enterprise Edition feature. An evaluation edition is availibale at http://voltdb.com.";
                 hostLog.fatal(msg);
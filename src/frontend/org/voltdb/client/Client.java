@@ -27,6 +27,8 @@ import java.util.List;
 import org.voltdb.client.VoltBulkLoader.BulkLoaderFailureCallBack;
 import org.voltdb.client.VoltBulkLoader.VoltBulkLoader;
 
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
 /**
  *  <p>
  *  A <code>Client</code> that connects to one or more nodes in a volt cluster
@@ -110,6 +112,44 @@ public interface Client {
     public boolean callProcedure(ProcedureCallback callback, String procName, Object... parameters)
     throws IOException, NoConnectionsException;
 
+    /**
+     * <p>Asynchronously invoke a procedure, returning a future for its response. Unlike
+     * {@link #callProcedure(ProcedureCallback, String, Object...)} this never blocks the calling
+     * thread on backpressure. Invocations that can't be queued right away are held by the client and
+     * queued in submission order once backpressure ends.</p>
+     *
+     * <p>The future completes with the {@link ClientResponse} whatever its status, and fails with
+     * {@link NoConnectionsException} if there are no connections or the client is closed before the
+     * invocation is queued. Listeners that run in the completing thread run on the client's network
+     * thread and must not block.</p>
+     *
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameters vararg list of procedure's parameter values.
+     * @return future that completes with the procedure results.
+     */
+    public ListenableFuture<ClientResponse> callProcedureAsync(String procName, Object... parameters);
+
+    /**
+     * <p>Asynchronously invoke a procedure once for each set of parameters, pipelining the invocations
+     * without waiting for any responses. Invocations are queued in list order, and once one is held back
+     * by backpressure the rest of the batch is queued behind it. See
+     * {@link #callProcedureAsync(String, Object...)}.</p>
+     *
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameterSets one array of parameter values per invocation.
+     * @return futures for the procedure results, in the order of <code>parameterSets</code>.
+     */
+    public List<ListenableFuture<ClientResponse>> callProceduresAsync(String procName, List<Object[]> parameterSets);
+
+    /**
+     * <p>Get a future that completes when there is no backpressure, as a non-blocking alternative to
+     * {@link #backpressureBarrier()}. The future is already complete if there is no backpressure now
+     * or the client is closed.</p>
+     *
+     * @return future that completes when invocations can be queued without waiting.
+     */
+    public ListenableFuture<Void> whenCapacityAvailable();
+
     /**
      * <p>Asynchronously invoke a replicated procedure. If there is backpressure
      * this call will block until the invocation is queued. If configureBlocking(false) is invoked
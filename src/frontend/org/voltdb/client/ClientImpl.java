@@ -22,14 +22,18 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
+import jsr166y.ConcurrentLinkedDeque;
+
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.VoltTable;
 import org.voltdb.client.HashinatorLite.HashinatorLiteType;
@@ -39,6 +43,10 @@ import org.voltdb.client.VoltBulkLoader.VoltBulkLoader;
 import org.voltdb.common.Constants;
 import org.voltdb.utils.Encoder;
 
+import com.google_voltpatches.common.util.concurrent.Futures;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+import com.google_voltpatches.common.util.concurrent.SettableFuture;
+
 /**
  *  A client that connects to one or more nodes in a VoltCluster
  *  and provides methods to call stored procedures and receive
@@ -423,6 +431,136 @@ public final class ClientImpl implements Client, ReplicaProcCaller {
         }
     }
 
+    @Override
+    public ListenableFuture<ClientResponse> callProcedureAsync(String procName, Object... parameters) {
+        DeferredInvocation call = new DeferredInvocation(
+                new ProcedureInvocation(m_handle.getAndIncrement(), procName, parameters));
+        submitOrDefer(call);
+        return call.m_future;
+    }
+
+    @Override
+    public List<ListenableFuture<ClientResponse>> callProceduresAsync(String procName,
+            List<Object[]> parameterSets) {
+        List<ListenableFuture<ClientResponse>> futures =
+                new ArrayList<ListenableFuture<ClientResponse>>(parameterSets.size());
+        for (Object[] parameters : parameterSets) {
+            DeferredInvocation call = new DeferredInvocation(
+                    new ProcedureInvocation(m_handle.getAndIncrement(), procName, parameters));
+            futures.add(call.m_future);
+            // Once one invocation is deferred the rest of the batch queues up behind it
+            submitOrDefer(call);
+        }
+        return futures;
+    }
+
+    @Override
+    public ListenableFuture<Void> whenCapacityAvailable() {
+        m_backpressureLock.lock();
+        try {
+            if (m_backpressure && !m_isShutdown) {
+                return m_capacityAvailable;
+            }
+        } finally {
+            m_backpressureLock.unlock();
+        }
+        return Futures.immediateFuture(null);
+    }
+
+    /**
+     * A future based invocation. The handle and submission time are fixed when
+     * the call is made so the procedure timeout includes time spent deferred.
+     */
+    private static final class DeferredInvocation implements ProcedureCallback {
+        final ProcedureInvocation m_invocation;
+        final long m_nowNanos = System.nanoTime();
+        final SettableFuture<ClientResponse> m_future = SettableFuture.create();
+
+        DeferredInvocation(ProcedureInvocation invocation) {
+            m_invocation = invocation;
+        }
+
+        @Override
+        public void clientCallback(ClientResponse clientResponse) {
+            m_future.set(clientResponse);
+        }
+
+        /**
+         * Queue without waiting out backpressure. Returns false if the invocation
+         * could not be queued and must be retried once capacity is available.
+         */
+        boolean tryQueue(Distributer distributer, boolean isBlessed) {
+            try {
+                if (!distributer.queue(m_invocation, this, isBlessed, m_nowNanos, Distributer.USE_DEFAULT_TIMEOUT)) {
+                    return false;
+                }
+            } catch (Exception e) {
+                m_future.setException(e);
+            }
+            return true;
+        }
+    }
+
+    private void submitOrDefer(DeferredInvocation call) {
+        if (m_isShutdown) {
+            call.m_future.setException(new NoConnectionsException("Client is closed."));
+            return;
+        }
+        boolean isBlessed = m_blessedThreadIds.contains(Thread.currentThread().getId());
+        // Check for deferred calls and queue or defer under the lock the drain holds
+        // from taking a call to putting it back, so this call can't overtake one
+        m_deferredLock.lock();
+        try {
+            if ((isBlessed || m_deferred.isEmpty()) && call.tryQueue(m_distributer, isBlessed)) {
+                return;
+            }
+            m_deferred.offer(call);
+        } finally {
+            m_deferredLock.unlock();
+        }
+        // Every deferral registers a drain, so a call deferred just after a drain
+        // emptied the queue is still picked up once capacity is available
+        whenCapacityAvailable().addListener(m_drainDeferred, m_distributer.getDeferredExecutor());
+    }
+
+    /**
+     * Queue deferred invocations in order until backpressure returns. Runs on the
+     * distributer's deferred executor, never on a network thread.
+     */
+    private final Runnable m_drainDeferred = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                m_deferredLock.lock();
+                try {
+                    DeferredInvocation call = m_deferred.poll();
+                    if (call == null) {
+                        return;
+                    }
+                    if (m_isShutdown) {
+                        call.m_future.setException(new NoConnectionsException("Client is closed."));
+                        continue;
+                    }
+                    if (call.tryQueue(m_distributer, false)) {
+                        continue;
+                    }
+                    m_deferred.offerFirst(call);
+                } finally {
+                    m_deferredLock.unlock();
+                }
+                whenCapacityAvailable().addListener(this, m_distributer.getDeferredExecutor());
+                return;
+            }
+        }
+    };
+
+    private void failDeferred() {
+        DeferredInvocation call;
+        while ((call = m_deferred.poll()) != null) {
+            call.m_future.setException(new NoConnectionsException("Client is closed."));
+        }
+    }
+
     /**
      * Serializes catalog and deployment file for UpdateApplicationCatalog.
      * Catalog is serialized into byte array, deployment file is serialized into
@@ -515,9 +653,14 @@ public final class ClientImpl implements Client, ReplicaProcCaller {
                     " without deadlocking the client library");
         }
         m_isShutdown = true;
-        synchronized (m_backpressureLock) {
-            m_backpressureLock.notifyAll();
+        m_backpressureLock.lock();
+        try {
+            m_backpressureCleared.signalAll();
+            m_capacityAvailable.set(null);
+        } finally {
+            m_backpressureLock.unlock();
         }
+        failDeferred();
 
         if (m_reconnectStatusListener != null) {
             m_distributer.removeClientStatusListener(m_reconnectStatusListener);
@@ -545,30 +688,31 @@ public final class ClientImpl implements Client, ReplicaProcCaller {
                     " without deadlocking the client library");
         }
         if (m_backpressure) {
-            synchronized (m_backpressureLock) {
-                if (m_backpressure) {
-                    while (m_backpressure && !m_isShutdown) {
-                       if (start != 0) {
-                            //Wait on the condition for the specified timeout remaining
-                            m_backpressureLock.wait(timeoutNanos / TimeUnit.MILLISECONDS.toNanos(1), (int)(timeoutNanos % TimeUnit.MILLISECONDS.toNanos(1)));
-
-                            //Condition is true, break and return false
-                            if (!m_backpressure) break;
-
-                            //Calculate whether the timeout should be triggered
-                            final long nowNanos = System.nanoTime();
-                            final long deltaNanos = Math.max(1, nowNanos - start);
-                            if (deltaNanos >= timeoutNanos) {
-                                return true;
-                            }
-
-                            //Reassigning timeout nanos with remainder of timeout
-                            timeoutNanos -= deltaNanos;
-                       } else {
-                           m_backpressureLock.wait();
-                       }
+            m_backpressureLock.lock();
+            try {
+                while (m_backpressure && !m_isShutdown) {
+                    if (start != 0) {
+                        //Wait on the condition for the specified timeout remaining
+                        m_backpressureCleared.awaitNanos(timeoutNanos);
+
+                        //Condition is true, break and return false
+                        if (!m_backpressure) break;
+
+                        //Calculate whether the timeout should be triggered
+                        final long nowNanos = System.nanoTime();
+                        final long deltaNanos = Math.max(1, nowNanos - start);
+                        if (deltaNanos >= timeoutNanos) {
+                            return true;
+                        }
+
+                        //Reassigning timeout nanos with remainder of timeout
+                        timeoutNanos -= deltaNanos;
+                    } else {
+                        m_backpressureCleared.await();
                     }
                 }
+            } finally {
+                m_backpressureLock.unlock();
             }
         }
         return false;
@@ -578,13 +722,18 @@ public final class ClientImpl implements Client, ReplicaProcCaller {
 
         @Override
         public void backpressure(boolean status) {
-            synchronized (m_backpressureLock) {
+            m_backpressureLock.lock();
+            try {
                 if (status) {
+                    if (!m_backpressure) {
+                        m_capacityAvailable = SettableFuture.create();
+                    }
                     m_backpressure = true;
                 } else {
-                    m_backpressure = false;
-                    m_backpressureLock.notifyAll();
+                    clearBackpressure();
                 }
+            } finally {
+                m_backpressureLock.unlock();
             }
         }
 
@@ -594,14 +743,28 @@ public final class ClientImpl implements Client, ReplicaProcCaller {
             if (connectionsLeft == 0) {
                 //Wake up client and let it attempt to queue work
                 //and then fail with a NoConnectionsException
-                synchronized (m_backpressureLock) {
-                    m_backpressure = false;
-                    m_backpressureLock.notifyAll();
+                m_backpressureLock.lock();
+                try {
+                    clearBackpressure();
+                } finally {
+                    m_backpressureLock.unlock();
                 }
             }
         }
 
     }
+
+    /**
+     * Must be called holding m_backpressureLock. Capacity future listeners are
+     * only ever added with the deferred executor, so completing it here does not
+     * run client work under the lock.
+     */
+    private void clearBackpressure() {
+        m_backpressure = false;
+        m_backpressureCleared.signalAll();
+        m_capacityAvailable.set(null);
+    }
+
      /****************************************************
                         Implementation
      ****************************************************/
@@ -610,8 +773,17 @@ public final class ClientImpl implements Client, ReplicaProcCaller {
 
     static final Logger LOG = Logger.getLogger(ClientImpl.class.getName());  // Logger shared by client package.
     private final Distributer m_distributer;                             // de/multiplexes connections to a cluster
-    private final Object m_backpressureLock = new Object();
-    private boolean m_backpressure = false;
+    // A j.u.c. lock rather than a monitor so that callers parked on backpressure don't pin a thread
+    private final ReentrantLock m_backpressureLock = new ReentrantLock();
+    private final Condition m_backpressureCleared = m_backpressureLock.newCondition();
+    private volatile boolean m_backpressure = false;
+    // Completed when backpressure ends, replaced each time it starts
+    private SettableFuture<Void> m_capacityAvailable = SettableFuture.create();
+    // Future based invocations waiting for backpressure to end, in submission order
+    private final ConcurrentLinkedDeque<DeferredInvocation> m_deferred =
+            new ConcurrentLinkedDeque<DeferredInvocation>();
+    // Held while a call is taken from or kept out of m_deferred, see submitOrDefer
+    private final ReentrantLock m_deferredLock = new ReentrantLock();
 
     private boolean m_blockingQueue = true;
 
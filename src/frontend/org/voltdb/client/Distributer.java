@@ -34,6 +34,7 @@ import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -358,7 +359,10 @@ class Distributer {
         boolean m_outstandingPing = false;
         ClientStatusListenerExt.DisconnectCause m_closeCause = DisconnectCause.CONNECTION_CLOSED;
 
-        public NodeConnection(long ids[]) {}
+        public NodeConnection(long ids[]) {
+            // Responses are handed to the application, which may keep them indefinitely
+            super(false);
+        }
 
         /*
          * NodeConnection uses ignoreBackpressure to get rate limiter to not
@@ -1147,6 +1151,16 @@ class Distributer {
         return !backpressure;
     }
 
+    /**
+     * Executor for client work that must not run on a network thread, such as
+     * queueing invocations that were deferred by backpressure. Backpressure is
+     * reported while holding the distributer lock, so queueing from the listener
+     * itself would take a connection lock in the wrong order.
+     */
+    Executor getDeferredExecutor() {
+        return m_ex;
+    }
+
     /**
      * Shutdown the VoltNetwork allowing the Ports to close and free resources
      * like memory pools
@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -35,6 +36,7 @@ import org.voltcore.messaging.VoltMessage;
 import org.voltcore.utils.CoreUtils;
 import org.voltdb.CatalogContext;
 import org.voltdb.ClientInterface.ExplainMode;
+import org.voltdb.PlannerStatsCollector;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltType;
 import org.voltdb.messaging.LocalMailbox;
@@ -42,6 +44,7 @@ import org.voltdb.parser.SQLLexer;
 import org.voltdb.planner.StatementPartitioning;
 import org.voltdb.utils.MiscUtils;
 
+import com.google_voltpatches.common.base.Supplier;
 import com.google_voltpatches.common.util.concurrent.ListeningExecutorService;
 
 public class AsyncCompilerAgent {
@@ -52,6 +55,10 @@ public class AsyncCompilerAgent {
     // if more than this amount of work is queued, reject new work
     static public final int MAX_QUEUE_DEPTH = 250;
 
+    // number of threads planning DML and queries concurrently
+    static public final int PLANNER_THREADS =
+        Math.max(1, Integer.getInteger("AD_HOC_PLANNER_THREADS", CoreUtils.availableProcessors()));
+
     // accept work via this mailbox
     Mailbox m_mailbox;
 
@@ -59,9 +66,14 @@ public class AsyncCompilerAgent {
     // of Europe, Scandinavia, and the sub-continent.
     AsyncCompilerAgentHelper m_helper = new AsyncCompilerAgentHelper();
 
-    // do work in this executor service
+    // plan DML and queries in this executor service
+    final LinkedBlockingQueue<Runnable> m_plannerQueue = new LinkedBlockingQueue<Runnable>(MAX_QUEUE_DEPTH);
+    final ListeningExecutorService m_plannerEs =
+        CoreUtils.getListeningExecutorService("Ad Hoc Planner", PLANNER_THREADS, m_plannerQueue, null);
+
+    // catalog changes, including ad hoc DDL, are compiled one at a time in this executor service
     final ListeningExecutorService m_es =
-        CoreUtils.getBoundedSingleThreadExecutor("Ad Hoc Planner", MAX_QUEUE_DEPTH);
+        CoreUtils.getBoundedSingleThreadExecutor("Ad Hoc DDL Compiler", MAX_QUEUE_DEPTH);
 
     // Enable debug hooks when the "asynccompilerdebug" sys prop is set to "true" or "yes".
     private final static MiscUtils.BooleanSystemProperty DEBUG_MODE =
@@ -75,6 +87,10 @@ public class AsyncCompilerAgent {
     // intended for integration test use. finish planning what's in
     // the queue and terminate the TPE.
     public void shutdown() throws InterruptedException {
+        if (m_plannerEs != null) {
+            m_plannerEs.shutdown();
+            m_plannerEs.awaitTermination(120, TimeUnit.SECONDS);
+        }
         if (m_es != null) {
             m_es.shutdown();
             m_es.awaitTermination(120, TimeUnit.SECONDS);
@@ -92,21 +108,35 @@ public class AsyncCompilerAgent {
 
             @Override
             public void deliver(final VoltMessage message) {
+                // Catalog changes go straight to the DDL compiler, ad hoc
+                // work is sorted into DDL and DML by a planner thread
+                final LocalObjectMessage wrapper = (LocalObjectMessage)message;
+                final ListeningExecutorService es =
+                    (wrapper.payload instanceof CatalogChangeWork) ? m_es : m_plannerEs;
                 try {
-                    m_es.submit(new Runnable() {
+                    es.submit(new Runnable() {
                         @Override
                         public void run() {
                             handleMailboxMessage(message);
                         }
                     });
                 } catch (RejectedExecutionException rejected) {
-                    final LocalObjectMessage wrapper = (LocalObjectMessage)message;
                     AsyncCompilerWork work = (AsyncCompilerWork)(wrapper.payload);
                     generateErrorResult("Ad Hoc Planner task queue is full. Try again.", work);
                 }
             }
         };
         hostMessenger.createMailbox(hsId, m_mailbox);
+
+        final PlannerStatsCollector plannerStats = PlannerTool.getPlannerStats();
+        if (plannerStats != null) {
+            plannerStats.setQueueDepthSupplier(new Supplier<Integer>() {
+                @Override
+                public Integer get() {
+                    return m_plannerQueue.size();
+                }
+            });
+        }
     }
 
     void generateErrorResult(String errorMsg, AsyncCompilerWork work) {
@@ -259,7 +289,25 @@ public class AsyncCompilerAgent {
                 return;
             }
             final CatalogChangeWork ccw = new CatalogChangeWork(w);
-            dispatchCatalogChangeWork(ccw);
+            try {
+                m_es.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            dispatchCatalogChangeWork(ccw);
+                        }
+                        catch (RuntimeException e) {
+                            ccw.completionHandler.onCompletion(
+                                AsyncCompilerResult.makeErrorResult(ccw,
+                                    "Unexpected async compiler exception for " +
+                                    ccw.getClass().getName() + ": " + e.getLocalizedMessage()));
+                        }
+                    }
+                });
+            }
+            catch (RejectedExecutionException rejected) {
+                generateErrorResult("Ad Hoc DDL compiler task queue is full. Try again.", ccw);
+            }
         }
     }
 
@@ -289,7 +337,7 @@ public class AsyncCompilerAgent {
     }
 
     public void compileAdHocPlanForProcedure(final AdHocPlannerWork apw) {
-        m_es.submit(new Runnable() {
+        m_plannerEs.submit(new Runnable() {
             @Override
             public void run(){
                 apw.completionHandler.onCompletion(compileAdHocPlan(apw));
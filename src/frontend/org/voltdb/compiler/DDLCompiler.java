@@ -1730,7 +1730,19 @@ public class DDLCompiler {
                              " uses a non-hashable column " + nonint_col_name;
                 throw m_compiler.new VoltCompilerException(msg);
             }
-            index.setType(IndexType.HASH_TABLE.getValue());
+            if (indexNameNoCase.contains("openhash")) {
+                // Open addressing table with incremental resizing
+                index.setType(IndexType.OPEN_HASH_TABLE.getValue());
+            }
+            else {
+                index.setType(IndexType.HASH_TABLE.getValue());
+            }
+        }
+        else if (indexNameNoCase.contains("btree"))
+        {
+            // Wide node B+tree, a denser alternative to the red-black tree
+            index.setType(IndexType.BTREE.getValue());
+            index.setCountable(true);
         }
         else
         {
@@ -2022,7 +2034,15 @@ public class DDLCompiler {
 
             MaterializedViewInfo matviewinfo = srcTable.getViews().add(viewName);
             matviewinfo.setDest(destTable);
-            AbstractExpression where = stmt.getSingleTableFilterExpression();
+            // A view over a join is maintained from its first table, looking up the other tables.
+            boolean isJoinView = stmt.m_tableList.size() > 1;
+            AbstractExpression where;
+            if (isJoinView) {
+                where = processMaterializedViewJoins(viewName, stmt, matviewinfo, viewTableNames);
+            } else {
+                where = stmt.getSingleTableFilterExpression();
+                matviewinfo.setJoinsjson("");
+            }
             if (where != null) {
                 String hex = Encoder.hexEncode(where.toJSONString());
                 matviewinfo.setPredicate(hex);
@@ -2035,7 +2055,7 @@ public class DDLCompiler {
             List<Column> destColumnArray = CatalogUtil.getSortedCatalogItems(destTable.getColumns(), "index");
             List<AbstractExpression> groupbyExprs = null;
 
-            if (stmt.hasComplexGroupby()) {
+            if (stmt.hasComplexGroupby() || isJoinView) {
                 groupbyExprs = new ArrayList<AbstractExpression>();
                 for (ParsedColInfo col: stmt.m_groupByColumns) {
                     groupbyExprs.add(col.expression);
@@ -2104,6 +2124,7 @@ public class DDLCompiler {
             List<AbstractExpression> aggregationExprs = new ArrayList<AbstractExpression>();
             boolean hasAggregationExprs = false;
             boolean hasMinOrMaxAgg = false;
+            boolean hasVariableLengthMinOrMax = false;
             ArrayList<AbstractExpression> minMaxAggs = new ArrayList<AbstractExpression>();
             for (int i = stmt.m_groupByColumns.size() + 1; i < stmt.m_displayColumns.size(); i++) {
                 ParsedColInfo col = stmt.m_displayColumns.get(i);
@@ -2116,11 +2137,15 @@ public class DDLCompiler {
                         col.expression.getExpressionType() == ExpressionType.AGGREGATE_MAX) {
                     hasMinOrMaxAgg = true;
                     minMaxAggs.add(aggExpr);
+                    VoltType minMaxType = col.expression.getValueType();
+                    if (minMaxType == VoltType.STRING || minMaxType == VoltType.VARBINARY) {
+                        hasVariableLengthMinOrMax = true;
+                    }
                 }
             }
 
             // set Aggregation Expressions.
-            if (hasAggregationExprs) {
+            if (hasAggregationExprs || isJoinView) {
                 String aggregationExprsJson = null;
                 try {
                     aggregationExprsJson = convertToJSONArray(aggregationExprs);
@@ -2135,14 +2160,32 @@ public class DDLCompiler {
                 // TODO: deal with minMaxAggs, i.e. if only one min/max agg, try to find the index
                 // with group by cols followed by this agg col; if multiple min/max aggs, decide
                 // what to do (probably the index on group by cols is the best choice)
-                Index found = findBestMatchIndexForMatviewMinOrMax(matviewinfo, srcTable, groupbyExprs);
+                // The rows of a join view's group can't be found through an index on srcTable alone.
+                Index found = isJoinView ? null :
+                    findBestMatchIndexForMatviewMinOrMax(matviewinfo, srcTable, groupbyExprs);
                 if (found != null) {
                     matviewinfo.setIndexforminmax(found.getTypeName());
                 } else {
                     matviewinfo.setIndexforminmax("");
+                }
+                // The EE keeps counts of each group's fixed width min() / max() inputs, so only
+                // string and varbinary min() / max() or FLOAT group keys still need to rescan the group.
+                boolean hasFloatGroupKey = false;
+                for (int i = 0; i < stmt.m_groupByColumns.size(); i++) {
+                    if (stmt.m_displayColumns.get(i).expression.getValueType() == VoltType.FLOAT) {
+                        hasFloatGroupKey = true;
+                    }
+                }
+                String scan = (found != null) ? "an index scan of " + found.getTypeName() : "a sequential scan";
+                if (hasVariableLengthMinOrMax || hasFloatGroupKey) {
+                    m_compiler.addWarn("Materialized View " + matviewinfo.getTypeName() +
+                            (hasFloatGroupKey ? " groups by a FLOAT value" : " has a min() / max() of a string or varbinary value") +
+                            ", so " + scan + " will be issued each time a current min / max value is updated / deleted.");
+                } else if (found == null) {
                     m_compiler.addWarn("No index found to support min() / max() UPDATE and DELETE on Materialized View " +
                             matviewinfo.getTypeName() +
-                            ", and a sequential scan might be issued when current min / max value is updated / deleted.");
+                            ", and a sequential scan might be issued the first time a current min / max value of a group " +
+                            "is updated / deleted after the view is rebuilt by a schema change or rejoin.");
                 }
             } else {
                 matviewinfo.setIndexforminmax("");
@@ -2305,6 +2348,192 @@ public class DDLCompiler {
         return predicate;
     }
 
+    /**
+     * Validate a materialized view over a join and describe its joins in the catalog.
+     * The first table of the FROM clause is the source table whose inserts and deletes are
+     * applied to the view. Each other table must be replicated and must be joined by
+     * equality on all the columns of one of its unique indexes to columns of the source
+     * table, so that each source row joins to at most one row of it.
+     * The view's expressions are re-indexed to evaluate against a joined row that holds
+     * the source table's columns followed by the columns of each joined table in FROM order.
+     *
+     * @return the filters that are not join keys, to be applied to the joined rows.
+     * @throws VoltCompilerException
+     */
+    private AbstractExpression processMaterializedViewJoins(String viewName, ParsedSelectStmt stmt,
+            MaterializedViewInfo matviewinfo, Set<String> viewTableNames) throws VoltCompilerException {
+        String msg = "Materialized view \"" + viewName + "\" ";
+        Table srcTable = stmt.m_tableList.get(0);
+
+        Map<String, Table> tablesByName = new HashMap<String, Table>();
+        Map<String, Integer> joinedRowOffsets = new HashMap<String, Integer>();
+        int offset = 0;
+        for (Table table : stmt.m_tableList) {
+            String tableName = table.getTypeName();
+            if (joinedRowOffsets.containsKey(tableName)) {
+                msg += "joins the table " + tableName + " to itself, which is not supported.";
+                throw m_compiler.new VoltCompilerException(msg);
+            }
+            if (viewTableNames.contains(tableName)) {
+                msg = String.format("A materialized view (%s) can not be defined on another view (%s).",
+                        viewName, tableName);
+                throw m_compiler.new VoltCompilerException(msg);
+            }
+            tablesByName.put(tableName, table);
+            joinedRowOffsets.put(tableName, offset);
+            offset += table.getColumns().size();
+        }
+
+        // Sort out the equalities between a joined table's column and a source table column.
+        // Keyed by joined table name, then by its column name.
+        Map<String, Map<String, AbstractExpression>> joinKeys =
+                new HashMap<String, Map<String, AbstractExpression>>();
+        List<AbstractExpression> filters = new ArrayList<AbstractExpression>();
+        for (AbstractExpression expr : ExpressionUtil.uncombineAny(stmt.m_joinTree.getAllFilters())) {
+            TupleValueExpression joinedColumn = getMaterializedViewJoinedColumn(expr, srcTable);
+            if (joinedColumn == null) {
+                filters.add(expr);
+                continue;
+            }
+            Map<String, AbstractExpression> keys = joinKeys.get(joinedColumn.getTableName());
+            if (keys == null) {
+                keys = new HashMap<String, AbstractExpression>();
+                joinKeys.put(joinedColumn.getTableName(), keys);
+            }
+            if (keys.containsKey(joinedColumn.getColumnName())) {
+                filters.add(expr);
+            } else {
+                keys.put(joinedColumn.getColumnName(), expr);
+            }
+        }
+
+        // Re-index every column reference against the joined row.
+        List<AbstractExpression> viewExprs = new ArrayList<AbstractExpression>(filters);
+        for (ParsedColInfo col : stmt.m_displayColumns) {
+            viewExprs.add(col.expression);
+        }
+        for (ParsedColInfo col : stmt.m_groupByColumns) {
+            viewExprs.add(col.expression);
+        }
+        for (Map<String, AbstractExpression> keys : joinKeys.values()) {
+            viewExprs.addAll(keys.values());
+        }
+        for (AbstractExpression expr : viewExprs) {
+            for (AbstractExpression tveExpr : expr.findAllSubexpressionsOfClass(TupleValueExpression.class)) {
+                TupleValueExpression tve = (TupleValueExpression) tveExpr;
+                Table table = tablesByName.get(tve.getTableName());
+                Column column = table.getColumns().getIgnoreCase(tve.getColumnName());
+                tve.setColumnIndex(joinedRowOffsets.get(tve.getTableName()) + column.getIndex());
+            }
+        }
+
+        JSONStringer stringer = new JSONStringer();
+        try {
+            stringer.array();
+            for (Table joinedTable : stmt.m_tableList.subList(1, stmt.m_tableList.size())) {
+                String joinedName = joinedTable.getTypeName();
+                VoltXMLElement joinedTableXML = m_schema.findChild("table", joinedName);
+                if (joinedTableXML != null && joinedTableXML.attributes.get("partitioncolumn") != null) {
+                    msg += "joins the partitioned table " + joinedName + ". " +
+                            "Only the first table of a materialized view join may be partitioned.";
+                    throw m_compiler.new VoltCompilerException(msg);
+                }
+                Map<String, AbstractExpression> keys = joinKeys.get(joinedName);
+                if (keys == null) {
+                    keys = new HashMap<String, AbstractExpression>();
+                }
+                Index index = findUniqueIndexForMatviewJoin(joinedTable, keys.keySet());
+                if (index == null) {
+                    msg += "must join the table " + joinedName + " on all the columns of one of its " +
+                            "unique indexes, each equal to a column of the same type in " +
+                            srcTable.getTypeName() + ".";
+                    throw m_compiler.new VoltCompilerException(msg);
+                }
+                stringer.object();
+                stringer.key("TABLE").value(joinedName);
+                stringer.key("INDEX").value(index.getTypeName());
+                stringer.key("KEYS").array();
+                Set<String> indexedColumnNames = new HashSet<String>();
+                for (ColumnRef cref : CatalogUtil.getSortedCatalogItems(index.getColumns(), "index")) {
+                    String columnName = cref.getColumn().getTypeName();
+                    indexedColumnNames.add(columnName);
+                    AbstractExpression equality = keys.get(columnName);
+                    // The source table side of the equality makes up the lookup key.
+                    AbstractExpression srcSide = equality.getLeft();
+                    if (((TupleValueExpression) srcSide).getTableName().equalsIgnoreCase(joinedName)) {
+                        srcSide = equality.getRight();
+                    }
+                    stringer.object();
+                    srcSide.toJSONString(stringer);
+                    stringer.endObject();
+                }
+                stringer.endArray();
+                stringer.endObject();
+                // Equalities on columns outside the index are just filters.
+                for (Entry<String, AbstractExpression> key : keys.entrySet()) {
+                    if ( ! indexedColumnNames.contains(key.getKey())) {
+                        filters.add(key.getValue());
+                    }
+                }
+            }
+            stringer.endArray();
+        } catch (JSONException e) {
+            throw m_compiler.new VoltCompilerException("Unexpected error serializing the joins of " +
+                    "materialized view " + viewName + ": " + e.toString());
+        }
+        matviewinfo.setJoinsjson(stringer.toString());
+        return ExpressionUtil.combine(filters);
+    }
+
+    /**
+     * If expr equates a column of srcTable to a column of the same type in another table,
+     * return the other table's column.
+     */
+    private static TupleValueExpression getMaterializedViewJoinedColumn(AbstractExpression expr, Table srcTable) {
+        if (expr.getExpressionType() != ExpressionType.COMPARE_EQUAL ||
+                ! (expr.getLeft() instanceof TupleValueExpression) ||
+                ! (expr.getRight() instanceof TupleValueExpression)) {
+            return null;
+        }
+        TupleValueExpression left = (TupleValueExpression) expr.getLeft();
+        TupleValueExpression right = (TupleValueExpression) expr.getRight();
+        if (left.getValueType() != right.getValueType()) {
+            return null;
+        }
+        String srcTableName = srcTable.getTypeName();
+        boolean leftIsSrc = left.getTableName().equalsIgnoreCase(srcTableName);
+        boolean rightIsSrc = right.getTableName().equalsIgnoreCase(srcTableName);
+        if (leftIsSrc == rightIsSrc) {
+            return null;
+        }
+        return leftIsSrc ? right : left;
+    }
+
+    /**
+     * Find the unique index of a table joined into a materialized view whose columns
+     * are all join keys, preferring the one with the fewest columns.
+     */
+    private static Index findUniqueIndexForMatviewJoin(Table joinedTable, Set<String> keyColumnNames) {
+        Index best = null;
+        for (Index index : joinedTable.getIndexes()) {
+            if (( ! index.getUnique() && ! index.getAssumeunique()) ||
+                    ! index.getExpressionsjson().isEmpty() || ! index.getPredicatejson().isEmpty()) {
+                continue;
+            }
+            boolean covered = true;
+            for (ColumnRef cref : index.getColumns()) {
+                if ( ! keyColumnNames.contains(cref.getColumn().getTypeName())) {
+                    covered = false;
+                    break;
+                }
+            }
+            if (covered && (best == null || index.getColumns().size() < best.getColumns().size())) {
+                best = index;
+            }
+        }
+        return best;
+    }
+
     /**
      * Verify the materialized view meets our arcane rules about what can and can't
      * go in a materialized view. Throw hopefully helpful error messages when these
@@ -2324,9 +2553,8 @@ public class DDLCompiler {
             throw m_compiler.new VoltCompilerException(msg);
         }
 
-        if (stmt.m_tableList.size() != 1) {
-            msg += "has " + String.valueOf(stmt.m_tableList.size()) + " sources. " +
-            "Only one source table is allowed.";
+        if (stmt.m_joinTree.hasOuterJoin()) {
+            msg += "with OUTER JOIN is not supported.";
             throw m_compiler.new VoltCompilerException(msg);
         }
 
@@ -2383,7 +2611,7 @@ public class DDLCompiler {
         }
 
         // Check unsupported SQL functions like: NOW, CURRENT_TIMESTAMP
-        AbstractExpression where = stmt.getSingleTableFilterExpression();
+        AbstractExpression where = stmt.m_joinTree.getAllFilters();
         checkExpressions.add(where);
 
         for (AbstractExpression expr: checkExpressions) {
@@ -2398,8 +2626,8 @@ public class DDLCompiler {
             Column destColumn, ExpressionType type, TupleValueExpression colExpr)
             throws VoltCompiler.VoltCompilerException {
 
-        if (colExpr != null) {
-            assert(colExpr.getTableName().equalsIgnoreCase(srcTable.getTypeName()));
+        // A column of a table joined to srcTable has no source column.
+        if (colExpr != null && colExpr.getTableName().equalsIgnoreCase(srcTable.getTypeName())) {
             String srcColName = colExpr.getColumnName();
             Column srcColumn = srcTable.getColumns().getIgnoreCase(srcColName);
             destColumn.setMatviewsource(srcColumn);
@@ -18,6 +18,8 @@
 package org.voltdb.compiler;
 
 import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hsqldb_voltpatches.HSQLInterface;
 import org.hsqldb_voltpatches.HSQLInterface.HSQLParseException;
@@ -44,31 +46,72 @@ import org.voltdb.utils.Encoder;
 /**
  * Planner tool accepts an already compiled VoltDB catalog and then
  * interactively accept SQL and outputs plans on standard out.
+ *
+ * Statements may be planned by several threads at once. Each planning call
+ * borrows an HSQL instance of its own, loaded from the catalog DDL, from a
+ * small pool that grows on demand up to the number of ad hoc planner
+ * threads. All of them share the plan cache of the catalog.
  */
 public class PlannerTool {
     private static final VoltLogger hostLog = new VoltLogger("HOST");
 
     private final Database m_database;
     private final Cluster m_cluster;
-    private final HSQLInterface m_hsql;
     private final byte[] m_catalogHash;
     private final AdHocCompilerCache m_cache;
     private static PlannerStatsCollector m_plannerStats;
 
+    // HSQL instances not currently used for planning
+    private final LinkedBlockingQueue<HSQLInterface> m_idleHsql = new LinkedBlockingQueue<HSQLInterface>();
+    private final AtomicInteger m_hsqlCount = new AtomicInteger();
+    private final int m_maxHsqlCount;
+
     private static final int AD_HOC_JOINED_TABLE_LIMIT = 5;
 
     public PlannerTool(final Cluster cluster, final Database database, byte[] catalogHash)
+    {
+        this(cluster, database, catalogHash, AsyncCompilerAgent.PLANNER_THREADS);
+    }
+
+    public PlannerTool(final Cluster cluster, final Database database, byte[] catalogHash, int maxHsqlCount)
     {
         assert(cluster != null);
         assert(database != null);
+        assert(maxHsqlCount > 0);
 
         m_database = database;
         m_cluster = cluster;
         m_catalogHash = catalogHash;
         m_cache = AdHocCompilerCache.getCacheForCatalogHash(catalogHash);
+        m_maxHsqlCount = maxHsqlCount;
+
+        // Load the first HSQL up front so a bad schema is reported right away
+        m_hsqlCount.incrementAndGet();
+        m_idleHsql.offer(loadHsql());
 
-        // LOAD HSQL
-        m_hsql = HSQLInterface.loadHsqldb();
+        hostLog.debug("hsql loaded");
+
+        getPlannerStats();
+    }
+
+    /**
+     * Create and register a singleton planner stats collector, if this is the first time.
+     * @return the node level planner stats, or null if there is no stats agent
+     */
+    public static synchronized PlannerStatsCollector getPlannerStats() {
+        if (m_plannerStats == null) {
+            final StatsAgent statsAgent = VoltDB.instance().getStatsAgent();
+            // In mock test environments there may be no stats agent.
+            if (statsAgent != null) {
+                m_plannerStats = new PlannerStatsCollector(-1);
+                statsAgent.registerStatsSource(StatsSelector.PLANNER, -1, m_plannerStats);
+            }
+        }
+        return m_plannerStats;
+    }
+
+    private HSQLInterface loadHsql() {
+        HSQLInterface hsql = HSQLInterface.loadHsqldb();
         String binDDL = m_database.getSchema();
         String ddl = Encoder.decodeBase64AndDecompress(binDDL);
         String[] commands = ddl.split("\n");
@@ -78,29 +121,56 @@ public class PlannerTool {
             if (decoded_cmd.length() == 0)
                 continue;
             try {
-                m_hsql.runDDLCommand(decoded_cmd);
+                hsql.runDDLCommand(decoded_cmd);
             }
             catch (HSQLParseException e) {
                 // need a good error message here
                 throw new RuntimeException("Error creating hsql: " + e.getMessage() + " in DDL statement: " + decoded_cmd);
             }
         }
+        return hsql;
+    }
 
-        hostLog.debug("hsql loaded");
-
-        // Create and register a singleton planner stats collector, if this is the first time.
-        if (m_plannerStats == null) {
-            synchronized (this.getClass()) {
-                if (m_plannerStats == null) {
-                    final StatsAgent statsAgent = VoltDB.instance().getStatsAgent();
-                    // In mock test environments there may be no stats agent.
-                    if (statsAgent != null) {
-                        m_plannerStats = new PlannerStatsCollector(-1);
-                        statsAgent.registerStatsSource(StatsSelector.PLANNER, -1, m_plannerStats);
-                    }
+    /**
+     * Take an idle HSQL instance, loading a new one if all of them are busy
+     * and the pool may still grow, or waiting for one otherwise.
+     */
+    private HSQLInterface acquireHsql() {
+        HSQLInterface hsql = m_idleHsql.poll();
+        if (hsql != null) {
+            return hsql;
+        }
+        int count = m_hsqlCount.get();
+        while (count < m_maxHsqlCount) {
+            if (m_hsqlCount.compareAndSet(count, count + 1)) {
+                try {
+                    return loadHsql();
+                }
+                catch (RuntimeException e) {
+                    m_hsqlCount.decrementAndGet();
+                    throw e;
                 }
             }
+            count = m_hsqlCount.get();
         }
+        try {
+            return m_idleHsql.take();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a planner", e);
+        }
+    }
+
+    private void releaseHsql(HSQLInterface hsql) {
+        m_idleHsql.offer(hsql);
+    }
+
+    /**
+     * @return the number of HSQL instances loaded for this catalog
+     */
+    public int getHsqlCount() {
+        return m_hsqlCount.get();
     }
 
     public AdHocPlannedStatement planSqlForTest(String sqlIn) {
@@ -111,16 +181,17 @@ public class PlannerTool {
     /**
      * Stripped down compile that is ONLY used to plan default procedures.
      */
-    public synchronized CompiledPlan planSqlCore(String sql, StatementPartitioning partitioning) {
+    public CompiledPlan planSqlCore(String sql, StatementPartitioning partitioning) {
         TrivialCostModel costModel = new TrivialCostModel();
         DatabaseEstimates estimates = new DatabaseEstimates();
-        QueryPlanner planner = new QueryPlanner(
-            sql, "PlannerTool", "PlannerToolProc", m_cluster, m_database,
-            partitioning, m_hsql, estimates, true,
-            AD_HOC_JOINED_TABLE_LIMIT, costModel, null, null, DeterminismMode.FASTER);
-
+        HSQLInterface hsql = acquireHsql();
         CompiledPlan plan = null;
         try {
+            QueryPlanner planner = new QueryPlanner(
+                sql, "PlannerTool", "PlannerToolProc", m_cluster, m_database,
+                partitioning, hsql, estimates, true,
+                AD_HOC_JOINED_TABLE_LIMIT, costModel, null, null, DeterminismMode.FASTER);
+
             // do the expensive full planning.
             planner.parse();
             plan = planner.plan();
@@ -129,6 +200,9 @@ public class PlannerTool {
         catch (Exception e) {
             throw new RuntimeException("Error compiling query: " + e.toString(), e);
         }
+        finally {
+            releaseHsql(hsql);
+        }
 
         if (plan == null) {
             throw new RuntimeException("Null plan received in PlannerTool.planSql");
@@ -137,13 +211,15 @@ public class PlannerTool {
         return plan;
     }
 
-    synchronized AdHocPlannedStatement planSql(String sqlIn, StatementPartitioning partitioning,
+    AdHocPlannedStatement planSql(String sqlIn, StatementPartitioning partitioning,
             boolean isExplainMode, final Object[] userParams) {
 
         CacheUse cacheUse = CacheUse.FAIL;
+        Long startTime = null;
         if (m_plannerStats != null) {
-            m_plannerStats.startStatsCollection();
+            startTime = m_plannerStats.startStatsCollection();
         }
+        HSQLInterface hsql = null;
         boolean hasUserQuestionMark = false;
         boolean wrongNumberParameters = false;
         try {
@@ -181,9 +257,10 @@ public class PlannerTool {
 
             TrivialCostModel costModel = new TrivialCostModel();
             DatabaseEstimates estimates = new DatabaseEstimates();
+            hsql = acquireHsql();
             QueryPlanner planner = new QueryPlanner(
                     sql, "PlannerTool", "PlannerToolProc", m_cluster, m_database,
-                    partitioning, m_hsql, estimates, true,
+                    partitioning, hsql, estimates, true,
                     AD_HOC_JOINED_TABLE_LIMIT, costModel, null, null, DeterminismMode.FASTER);
 
             CompiledPlan plan = null;
@@ -286,8 +363,12 @@ public class PlannerTool {
             return ahps;
         }
         finally {
+            if (hsql != null) {
+                releaseHsql(hsql);
+            }
             if (m_plannerStats != null) {
-                m_plannerStats.endStatsCollection(m_cache.getLiteralCacheSize(), m_cache.getCoreCacheSize(), cacheUse, -1);
+                m_plannerStats.endStatsCollection(startTime, m_cache.getLiteralCacheSize(),
+                                                  m_cache.getCoreCacheSize(), cacheUse, -1);
             }
         }
     }
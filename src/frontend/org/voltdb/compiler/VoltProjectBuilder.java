@@ -47,6 +47,7 @@ import org.voltdb.compiler.deploymentfile.AdminModeType;
 import org.voltdb.compiler.deploymentfile.ClusterType;
 import org.voltdb.compiler.deploymentfile.CommandLogType;
 import org.voltdb.compiler.deploymentfile.ConnectionType;
+import org.voltdb.compiler.deploymentfile.ConsistencyType;
 import org.voltdb.compiler.deploymentfile.DeploymentType;
 import org.voltdb.compiler.deploymentfile.DrType;
 import org.voltdb.compiler.deploymentfile.ExportConfigurationType;
@@ -59,9 +60,11 @@ import org.voltdb.compiler.deploymentfile.PartitionDetectionType.Snapshot;
 import org.voltdb.compiler.deploymentfile.PathsType;
 import org.voltdb.compiler.deploymentfile.PathsType.Voltdbroot;
 import org.voltdb.compiler.deploymentfile.PropertyType;
+import org.voltdb.compiler.deploymentfile.ReadLevelString;
 import org.voltdb.compiler.deploymentfile.SchemaType;
 import org.voltdb.compiler.deploymentfile.SecurityProviderString;
 import org.voltdb.compiler.deploymentfile.SecurityType;
+import org.voltdb.compiler.deploymentfile.SiteIdleStrategyString;
 import org.voltdb.compiler.deploymentfile.ServerExportEnum;
 import org.voltdb.compiler.deploymentfile.SnapshotType;
 import org.voltdb.compiler.deploymentfile.SystemSettingsType;
@@ -283,6 +286,10 @@ public class VoltProjectBuilder {
     private Integer m_elasticThroughput = null;
     private Integer m_elasticDuration = null;
     private Integer m_queryTimeout = null;
+    private String m_siteIdleStrategy = null;
+    private int m_siteIdleSpin = 0;
+    private int m_siteIdleYield = 0;
+    private String m_readLevel = null;
 
     private boolean m_useDDLSchema = false;
 
@@ -295,6 +302,18 @@ public class VoltProjectBuilder {
         return this;
     }
 
+    public VoltProjectBuilder setSiteIdleStrategy(String strategy, int spinMicros, int yieldMicros) {
+        m_siteIdleStrategy = strategy;
+        m_siteIdleSpin = spinMicros;
+        m_siteIdleYield = yieldMicros;
+        return this;
+    }
+
+    public VoltProjectBuilder setReadLevel(String readLevel) {
+        m_readLevel = readLevel;
+        return this;
+    }
+
     public VoltProjectBuilder setElasticThroughput(int target) {
         m_elasticThroughput = target;
         return this;
@@ -1011,9 +1030,23 @@ public class VoltProjectBuilder {
             query.setTimeout(m_queryTimeout);
             systemSettingType.setQuery(query);
         }
+        if (m_siteIdleStrategy != null) {
+            SystemSettingsType.Siteidle siteIdle = factory.createSystemSettingsTypeSiteidle();
+            siteIdle.setStrategy(SiteIdleStrategyString.fromValue(m_siteIdleStrategy));
+            siteIdle.setSpin(m_siteIdleSpin);
+            siteIdle.setYield(m_siteIdleYield);
+            systemSettingType.setSiteidle(siteIdle);
+        }
 
         deployment.setSystemsettings(systemSettingType);
 
+        // <consistency>
+        if (m_readLevel != null) {
+            ConsistencyType consistency = factory.createConsistencyType();
+            consistency.setReadlevel(ReadLevelString.fromValue(m_readLevel));
+            deployment.setConsistency(consistency);
+        }
+
         // <users>
         if (m_users.size() > 0) {
             UsersType users = factory.createUsersType();
@@ -86,17 +86,26 @@ public class InitiatorStats extends SiteStatsSource {
         private long failureCount = 0;
         private long lastFailureCount = 0;
 
+        /**
+         * Number of reads run by a replica rather than the partition leader
+         */
+        private long replicaReadCount = 0;
+        private long lastReplicaReadCount = 0;
+
         public InvocationInfo (String hostname) {
             connectionHostname = hostname;
         }
 
-        public void processInvocation(int delta, byte status) {
+        public void processInvocation(int delta, byte status, boolean replicaRead) {
             totalExecutionTime += delta;
             minExecutionTime = Math.min( delta, minExecutionTime);
             maxExecutionTime = Math.max(  delta, maxExecutionTime);
             lastMinExecutionTime = Math.min( delta, lastMinExecutionTime);
             lastMaxExecutionTime = Math.max( delta, lastMaxExecutionTime);
             invocationCount++;
+            if (replicaRead) {
+                replicaReadCount++;
+            }
             if (status != ClientResponse.SUCCESS) {
                 if (status == ClientResponse.GRACEFUL_FAILURE || status == ClientResponse.USER_ABORT) {
                     abortCount++;
@@ -119,6 +128,7 @@ public class InitiatorStats extends SiteStatsSource {
         columns.add(new ColumnInfo("MAX_EXECUTION_TIME", VoltType.INTEGER));
         columns.add(new ColumnInfo("ABORTS", VoltType.BIGINT));
         columns.add(new ColumnInfo("FAILURES", VoltType.BIGINT));
+        columns.add(new ColumnInfo("REPLICA_READS", VoltType.BIGINT));
     }
 
     @Override
@@ -136,6 +146,7 @@ public class InitiatorStats extends SiteStatsSource {
         int maxExecutionTime = info.maxExecutionTime;
         long abortCount = info.abortCount;
         long failureCount = info.failureCount;
+        long replicaReadCount = info.replicaReadCount;
 
         if (iterator.interval) {
             invocationCount = info.invocationCount - info.lastInvocationCount;
@@ -154,6 +165,9 @@ public class InitiatorStats extends SiteStatsSource {
 
             failureCount = info.failureCount - info.lastFailureCount;
             info.lastFailureCount = info.failureCount;
+
+            replicaReadCount = info.replicaReadCount - info.lastReplicaReadCount;
+            info.lastReplicaReadCount = info.replicaReadCount;
         }
 
         rowValues[columnNameToIndex.get("CONNECTION_ID")] = connectionId;
@@ -165,6 +179,7 @@ public class InitiatorStats extends SiteStatsSource {
         rowValues[columnNameToIndex.get("MAX_EXECUTION_TIME")] = maxExecutionTime;
         rowValues[columnNameToIndex.get("ABORTS")] = abortCount;
         rowValues[columnNameToIndex.get("FAILURES")] = failureCount;
+        rowValues[columnNameToIndex.get("REPLICA_READS")] = replicaReadCount;
         super.updateStatsRow(rowKey, rowValues);
     }
 
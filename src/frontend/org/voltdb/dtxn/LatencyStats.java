@@ -79,6 +79,22 @@ public class LatencyStats extends SiteStatsSource {
         }
     }
 
+    /**
+     * Build a fresh histogram of the client latencies (in microseconds) recorded so far
+     * by the local ClientInterface. Unlike the cached stats row this is always current,
+     * so callers can diff two snapshots to get the latency of a recent window.
+     */
+    public static Histogram snapshotClientLatencies() {
+        Histogram snapshot = (Histogram) constructHistogram(false);
+        ClientInterface ci = VoltDB.instance().getClientInterface();
+        if (ci != null) {
+            for (AbstractHistogram info : ci.getLatencyStats()) {
+                snapshot.add(info);
+            }
+        }
+        return snapshot;
+    }
+
     private WeakReference<byte[]> m_compressedCache = null;
     private WeakReference<byte[]> m_serializedCache = null;
 
@@ -32,7 +32,7 @@ public class RowSubqueryExpression extends AbstractSubqueryExpression {
     public RowSubqueryExpression() {
         super();
         m_type = ExpressionType.ROW_SUBQUERY;
-        m_subqueryId = AbstractParsedStmt.NEXT_STMT_ID++;
+        m_subqueryId = AbstractParsedStmt.nextStmtId();
     }
 
     /**
@@ -84,7 +84,7 @@ public class RowSubqueryExpression extends AbstractSubqueryExpression {
         if (expr instanceof TupleValueExpression || expr instanceof AggregateExpression) {
             // Create a matching PVE for this expression to be used on the EE side
             // to get the original expression value
-            int paramIdx = AbstractParsedStmt.NEXT_PARAMETER_ID++;
+            int paramIdx = AbstractParsedStmt.nextParameterId();
             m_parameterIdxList.add(paramIdx);
             ParameterValueExpression pve = new ParameterValueExpression(paramIdx, expr);
             pves.add(pve);
@@ -106,6 +106,12 @@ public abstract class BaseInitiator implements Initiator
         agent.registerStatsSource(StatsSelector.STARVATION,
                                   getInitiatorHSId(),
                                   st);
+        agent.registerStatsSource(StatsSelector.TXNTRACE,
+                                  getInitiatorHSId(),
+                                  new TxnTraceStats(getInitiatorHSId(), m_partitionId));
+        agent.registerStatsSource(StatsSelector.REPAIRLOG,
+                                  getInitiatorHSId(),
+                                  new RepairLogStats(getInitiatorHSId(), m_partitionId, m_repairLog));
 
         String partitionString = " ";
         if (m_partitionId != -1) {
@@ -168,8 +174,7 @@ public abstract class BaseInitiator implements Initiator
                     prf,
                     m_initiatorMailbox.getHSId(),
                     0); // this has no meaning
-            procSet.loadProcedures(catalogContext, backend, csp);
-            m_executionSite.setLoadedProcedures(procSet);
+            m_executionSite.setLoadedProceduresOnStartup(procSet, csp);
             m_scheduler.setCommandLog(cl);
 
             m_siteThread = new Thread(m_executionSite);
@@ -239,6 +239,15 @@ public class Cartographer extends StatsSource
         return m_iv2Masters.get(partitionId);
     }
 
+    /**
+     * Get the HSID of the single partition master for the specified partition ID,
+     * or null if no master is currently known
+     */
+    public Long getHSIdForSinglePartitionMasterIfKnown(int partitionId)
+    {
+        return m_iv2Masters.get(partitionId);
+    }
+
     // This used to be the method to get this on SiteTracker
     public long getHSIdForMultiPartitionInitiator()
     {
@@ -0,0 +1,352 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONException;
+import org.voltdb.ParameterSet;
+import org.voltdb.PrivateVoltTableFactory;
+import org.voltdb.VoltTable;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.MaterializedViewInfo;
+import org.voltdb.catalog.Table;
+import org.voltdb.planner.ActivePlanRepository;
+
+import com.google_voltpatches.common.base.Charsets;
+
+/**
+ * A site's cache of read-only plan fragment batch results, keyed by the
+ * fragments and their parameter sets. The site runs one transaction at a time,
+ * so the cache needs no locking.
+ *
+ * Each entry remembers the tables its fragments read, taken from the scans in
+ * their plans, and is stale once any of those tables, or a view of them, has
+ * been written. A join view counts as a view of each table it joins. Writes the site can't attribute to tables clear the cache.
+ * Entries are evicted least recently used first once the cache exceeds
+ * SITE_RESULT_CACHE_MB, and the cache is off when that is 0, the default.
+ */
+class FragmentResultCache {
+
+    static final long CAPACITY_BYTES = Long.getLong("SITE_RESULT_CACHE_MB", 0) * 1024 * 1024;
+
+    private static final Pattern TABLE_NAME = Pattern.compile("\"TARGET_TABLE_NAME\":\"([^\"]*)\"");
+    // CURRENT_TIMESTAMP and NOW read the transaction's time, so can't be cached
+    private static final Pattern CURRENT_TIMESTAMP = Pattern.compile("\"FUNCTION_ID\":43[,}]");
+    private static final Pattern DML = Pattern.compile("\"PLAN_NODE_TYPE\":\"(INSERT|UPDATE|DELETE)\"");
+    // Bound the per-fragment memo, which ad hoc fragments keep adding to
+    private static final int MAX_FRAGMENTS = 10000;
+
+    private static class FragmentTables {
+        // null if unknown
+        final String[] tables;
+        final boolean cacheable;
+        final boolean writes;
+
+        FragmentTables(String[] tables, boolean cacheable, boolean writes) {
+            this.tables = tables;
+            this.cacheable = cacheable;
+            this.writes = writes;
+        }
+    }
+
+    static class Key {
+        final long[] fragmentIds;
+        final ParameterSet[] params;
+        final int hash;
+
+        Key(long[] fragmentIds, ParameterSet[] params) {
+            this.fragmentIds = fragmentIds;
+            this.params = params;
+            this.hash = 31 * Arrays.hashCode(fragmentIds) + Arrays.hashCode(params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash &&
+                   Arrays.equals(fragmentIds, other.fragmentIds) &&
+                   Arrays.equals(params, other.params);
+        }
+    }
+
+    private static class Entry {
+        final ByteBuffer[] results;
+        final String[] tables;
+        final long version;
+        final long bytes;
+
+        Entry(ByteBuffer[] results, String[] tables, long version, long bytes) {
+            this.results = results;
+            this.tables = tables;
+            this.version = version;
+            this.bytes = bytes;
+        }
+    }
+
+    private final long m_capacityBytes;
+    private final LinkedHashMap<Key, Entry> m_entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+    private final Map<Long, FragmentTables> m_fragments = new HashMap<Long, FragmentTables>();
+    // views maintained from each table
+    private Map<String, List<String>> m_viewsBySource = new HashMap<String, List<String>>();
+    // the version of the last write to each table
+    private final Map<String, Long> m_tableVersions = new HashMap<String, Long>();
+    private long m_version = 0;
+    private long m_bytes = 0;
+
+    private long m_hits = 0;
+    private long m_misses = 0;
+
+    FragmentResultCache(long capacityBytes) {
+        m_capacityBytes = capacityBytes;
+    }
+
+    /**
+     * Catalog updates may change the tables, views and plans, so drop everything.
+     */
+    void updateCatalog(Database database) {
+        Map<String, List<String>> viewsBySource = new HashMap<String, List<String>>();
+        for (Table table : database.getTables()) {
+            for (MaterializedViewInfo view : table.getViews()) {
+                String dest = view.getDest().getTypeName();
+                addView(viewsBySource, table.getTypeName(), dest);
+                // A join view also changes with the replicated tables it joins,
+                // which are named only in its joins
+                for (String joined : joinedTables(view)) {
+                    Table joinedTable = database.getTables().getIgnoreCase(joined);
+                    addView(viewsBySource, joinedTable == null ? joined : joinedTable.getTypeName(), dest);
+                }
+            }
+        }
+        m_viewsBySource = viewsBySource;
+        m_fragments.clear();
+        invalidateAll();
+    }
+
+    private static void addView(Map<String, List<String>> viewsBySource, String source, String view) {
+        List<String> views = viewsBySource.get(source);
+        if (views == null) {
+            views = new ArrayList<String>();
+            viewsBySource.put(source, views);
+        }
+        if (!views.contains(view)) {
+            views.add(view);
+        }
+    }
+
+    private static List<String> joinedTables(MaterializedViewInfo view) {
+        List<String> tables = new ArrayList<String>();
+        String joinsJson = view.getJoinsjson();
+        if (joinsJson == null || joinsJson.isEmpty()) {
+            return tables;
+        }
+        try {
+            JSONArray joins = new JSONArray(joinsJson);
+            for (int i = 0; i < joins.length(); i++) {
+                tables.add(joins.getJSONObject(i).getString("TABLE"));
+            }
+        }
+        catch (JSONException e) {
+            throw new RuntimeException("Invalid joins of view " + view.getTypeName() + ": " + joinsJson, e);
+        }
+        return tables;
+    }
+
+    /**
+     * @return the key for a batch of read-only fragments, or null if its
+     * results can't be cached.
+     */
+    Key keyFor(int numFragmentIds, long[] planFragmentIds, long[] inputDepIds, Object[] parameterSets) {
+        ParameterSet[] params = new ParameterSet[numFragmentIds];
+        for (int i = 0; i < numFragmentIds; ++i) {
+            // results computed from other sites' dependencies aren't only a function of the parameters
+            if (inputDepIds != null && inputDepIds[i] != -1) {
+                return null;
+            }
+            if (!(parameterSets[i] instanceof ParameterSet) || !fragmentTables(planFragmentIds[i]).cacheable) {
+                return null;
+            }
+            params[i] = (ParameterSet) parameterSets[i];
+        }
+        return new Key(Arrays.copyOf(planFragmentIds, numFragmentIds), params);
+    }
+
+    /**
+     * @return copies of the cached results for the key, or null if there are none
+     * or they are stale.
+     */
+    VoltTable[] get(Key key) {
+        Entry entry = m_entries.get(key);
+        if (entry != null && isStale(entry)) {
+            remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            ++m_misses;
+            return null;
+        }
+        ++m_hits;
+        VoltTable[] results = new VoltTable[entry.results.length];
+        for (int i = 0; i < results.length; ++i) {
+            results[i] = PrivateVoltTableFactory.createVoltTableFromBuffer(entry.results[i].duplicate(), true);
+        }
+        return results;
+    }
+
+    void put(Key key, VoltTable[] results) {
+        long bytes = 0;
+        ByteBuffer[] buffers = new ByteBuffer[results.length];
+        for (int i = 0; i < results.length; ++i) {
+            buffers[i] = PrivateVoltTableFactory.getTableDataReference(results[i]);
+            bytes += results[i].getSerializedSize();
+        }
+        if (bytes > m_capacityBytes) {
+            return;
+        }
+        List<String> tables = new ArrayList<String>();
+        for (long fragmentId : key.fragmentIds) {
+            tables.addAll(Arrays.asList(fragmentTables(fragmentId).tables));
+        }
+        remove(key);
+        m_entries.put(key, new Entry(buffers, tables.toArray(new String[tables.size()]), m_version, bytes));
+        m_bytes += bytes;
+
+        Iterator<Entry> iter = m_entries.values().iterator();
+        while (m_bytes > m_capacityBytes && iter.hasNext()) {
+            m_bytes -= iter.next().bytes;
+            iter.remove();
+        }
+    }
+
+    /**
+     * Mark the tables a batch of fragments may write, and their views, as changed.
+     * Read fragments of a read-write transaction change nothing.
+     */
+    void invalidate(int numFragmentIds, long[] planFragmentIds) {
+        for (int i = 0; i < numFragmentIds; ++i) {
+            FragmentTables fragment = fragmentTables(planFragmentIds[i]);
+            if (fragment.tables == null || (fragment.writes && fragment.tables.length == 0)) {
+                invalidateAll();
+                return;
+            }
+            if (!fragment.writes) {
+                continue;
+            }
+            ++m_version;
+            // Every table the fragment names, as the plan doesn't say which one it writes
+            for (String table : fragment.tables) {
+                m_tableVersions.put(table, m_version);
+                List<String> views = m_viewsBySource.get(table);
+                if (views != null) {
+                    for (String view : views) {
+                        m_tableVersions.put(view, m_version);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop everything, for writes that can't be attributed to tables.
+     */
+    void invalidateAll() {
+        m_entries.clear();
+        m_tableVersions.clear();
+        m_bytes = 0;
+    }
+
+    long getHits() {
+        return m_hits;
+    }
+
+    long getMisses() {
+        return m_misses;
+    }
+
+    int size() {
+        return m_entries.size();
+    }
+
+    long getBytes() {
+        return m_bytes;
+    }
+
+    private boolean isStale(Entry entry) {
+        for (String table : entry.tables) {
+            Long version = m_tableVersions.get(table);
+            if (version != null && version > entry.version) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void remove(Key key) {
+        Entry entry = m_entries.remove(key);
+        if (entry != null) {
+            m_bytes -= entry.bytes;
+        }
+    }
+
+    private FragmentTables fragmentTables(long fragmentId) {
+        FragmentTables tables = m_fragments.get(fragmentId);
+        if (tables == null) {
+            tables = parsePlan(ActivePlanRepository.planForFragmentId(fragmentId));
+            if (m_fragments.size() >= MAX_FRAGMENTS) {
+                m_fragments.clear();
+            }
+            m_fragments.put(fragmentId, tables);
+        }
+        return tables;
+    }
+
+    static FragmentTables parsePlan(byte[] plan) {
+        if (plan == null) {
+            return new FragmentTables(null, false, true);
+        }
+        String json = new String(plan, Charsets.UTF_8);
+        List<String> tables = new ArrayList<String>();
+        Matcher m = TABLE_NAME.matcher(json);
+        while (m.find()) {
+            if (!tables.contains(m.group(1))) {
+                tables.add(m.group(1));
+            }
+        }
+        return new FragmentTables(tables.toArray(new String[tables.size()]),
+                                  !CURRENT_TIMESTAMP.matcher(json).find(),
+                                  DML.matcher(json).find());
+    }
+}
@@ -207,6 +207,7 @@ public class InitiatorMailbox implements Mailbox
             m_algo.cancel();
         }
         m_scheduler.shutdown();
+        m_repairLog.shutdown();
     }
 
     // Change the replica set configuration (during or after promotion)
@@ -35,6 +35,7 @@ import org.voltdb.ProducerDRGateway;
 import org.voltdb.Promotable;
 import org.voltdb.StartAction;
 import org.voltdb.StatsAgent;
+import org.voltdb.StatsSelector;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltZK;
 import org.voltdb.iv2.RepairAlgo.RepairResult;
@@ -98,6 +99,9 @@ public class MpInitiator extends BaseInitiator implements Promotable
                 m_initiatorMailbox,
                 csp);
         sched.setMpRoSitePool(sitePool);
+        agent.registerStatsSource(StatsSelector.MPREADPOOL,
+                                  getInitiatorHSId(),
+                                  new MpRoSitePoolStats(getInitiatorHSId(), sitePool));
 
         // add ourselves to the ephemeral node list which BabySitters will watch for this
         // partition
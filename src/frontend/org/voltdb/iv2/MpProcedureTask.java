@@ -106,6 +106,8 @@ public class MpProcedureTask extends ProcedureTask
         hostLog.debug("STARTING: " + this);
         // Cast up. Could avoid ugliness with Iv2TransactionClass baseclass
         MpTransactionState txn = (MpTransactionState)m_txnState;
+        final long traceHandle = TxnTracer.traceHandle(txn);
+        TxnTracer.recordTraced(siteConnection, traceHandle, TxnTracer.Event.TASK_START);
         // Check for restarting sysprocs
         String spName = txn.m_initiationMsg.getStoredProcedureName();
 
@@ -174,6 +176,7 @@ public class MpProcedureTask extends ProcedureTask
             // Set the source HSId (ugh) to ourselves so we track the message path correctly
             response.m_sourceHSId = m_initiator.getHSId();
             m_initiator.deliver(response);
+            TxnTracer.recordTraced(siteConnection, traceHandle, TxnTracer.Event.TASK_END);
             execLog.l7dlog( Level.TRACE, LogKeys.org_voltdb_ExecutionSite_SendingCompletedWUToDtxn.name(), null);
             hostLog.debug("COMPLETE: " + this);
         }
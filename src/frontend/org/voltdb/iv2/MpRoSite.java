@@ -496,6 +496,18 @@ public class MpRoSite implements Runnable, SiteProcedureConnection
         throw new RuntimeException("RO MP Site doesn't do this, shouldn't be here.");
     }
 
+    @Override
+    public long getResultCacheHits()
+    {
+        return 0;
+    }
+
+    @Override
+    public long getResultCacheMisses()
+    {
+        return 0;
+    }
+
     @Override
     public ProcedureRunner getProcedureRunner(String procedureName) {
         return m_loadedProcedures.getProcByName(procedureName);
@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.CoreUtils;
@@ -36,13 +37,23 @@ import org.voltdb.StarvationTracker;
 /**
  * Provide a pool of MP Read-only sites to do MP RO work.
  * This should be owned by the MpTransactionTaskQueue and expects all operations
- * to be done while holding its lock.
+ * to be done while holding its lock.  The accounting read by MpRoSitePoolStats
+ * is additionally guarded by the pool's own monitor.
+ *
+ * Unless mpiReadPoolSize fixes the size, the pool sizes itself from observed
+ * queueing.  Once per ADJUST_INTERVAL it looks at whether reads had to wait in
+ * the MpTransactionTaskQueue backlog because every site was busy.  If they did,
+ * the size limit grows by a quarter, up to mpiReadPoolMaxSize.  If no read
+ * waited and at most half of the sites were ever busy at once, it shrinks back
+ * towards DEFAULT_MAX_POOL_SIZE, retiring idle sites beyond the new limit.
  */
 class MpRoSitePool {
     final static VoltLogger tmLog = new VoltLogger("TM");
 
     static int DEFAULT_MAX_POOL_SIZE = 20;
+    static int DEFAULT_ADAPTIVE_MAX_POOL_SIZE = 80;
     static int INITIAL_POOL_SIZE = 1;
+    static long ADJUST_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
 
     class MpRoSiteContext {
         final private BackendTarget m_backend;
@@ -113,7 +124,22 @@ class MpRoSitePool {
     private CatalogContext m_catalogContext;
     private CatalogSpecificPlanner m_csp;
     private ThreadFactory m_poolThreadFactory;
-    private final int m_poolSize;
+    private final boolean m_adaptive;
+    private final int m_minPoolSize;
+    private final int m_maxPoolSize;
+    private int m_poolSize;
+
+    // Accounting for sizing and MpRoSitePoolStats
+    private long m_lastBusyChange = System.nanoTime();
+    private long m_busySiteNanos = 0;
+    private long m_readsStarted = 0;
+    private long m_queueWaitNanos = 0;
+    private long m_maxQueueWaitNanos = 0;
+    private long m_saturatedCount = 0;
+    // Per sizing interval
+    private long m_intervalStart = System.nanoTime();
+    private long m_intervalSaturatedCount = 0;
+    private int m_intervalPeakBusy = 0;
 
     MpRoSitePool(
             long siteId,
@@ -135,10 +161,20 @@ class MpRoSitePool {
 
         Integer poolSize = Integer.getInteger("mpiReadPoolSize");
         if (poolSize == null) {
-            poolSize = DEFAULT_MAX_POOL_SIZE;
+            m_adaptive = true;
+            m_minPoolSize = DEFAULT_MAX_POOL_SIZE;
+            m_maxPoolSize = Math.max(m_minPoolSize,
+                    Integer.getInteger("mpiReadPoolMaxSize", DEFAULT_ADAPTIVE_MAX_POOL_SIZE));
+            tmLog.info("Sizing MPI read pool from queueing between " + m_minPoolSize +
+                    " and " + m_maxPoolSize + " sites");
         }
-        m_poolSize = poolSize;
-        tmLog.info("Setting maximum size of MPI read pool to: " + m_poolSize);
+        else {
+            m_adaptive = false;
+            m_minPoolSize = poolSize;
+            m_maxPoolSize = poolSize;
+            tmLog.info("Setting maximum size of MPI read pool to: " + poolSize);
+        }
+        m_poolSize = m_minPoolSize;
 
         // Construct the initial pool
         for (int i = 0; i < INITIAL_POOL_SIZE; i++) {
@@ -156,7 +192,7 @@ class MpRoSitePool {
     /**
      * Update the catalog
      */
-    void updateCatalog(String diffCmds, CatalogContext context, CatalogSpecificPlanner csp)
+    synchronized void updateCatalog(String diffCmds, CatalogContext context, CatalogSpecificPlanner csp)
     {
         m_catalogContext = context;
         m_csp = csp;
@@ -194,7 +230,7 @@ class MpRoSitePool {
     /**
      * Is there a RO site available to do MP RO work?
      */
-    boolean canAcceptWork()
+    synchronized boolean canAcceptWork()
     {
         boolean retval = (!m_idleSites.isEmpty() || m_busySites.size() < m_poolSize);
         return retval;
@@ -204,7 +240,7 @@ class MpRoSitePool {
      * Attempt to start the transaction represented by the given task.  Need the txn ID for future reference.
      * @return true if work was started successfully, false if not.
      */
-    boolean doWork(long txnId, TransactionTask task)
+    synchronized boolean doWork(long txnId, TransactionTask task)
     {
         boolean retval = canAcceptWork();
         if (!retval) {
@@ -216,6 +252,7 @@ class MpRoSitePool {
             site = m_busySites.get(txnId);
         }
         else {
+            accountBusySites(System.nanoTime());
             if (m_idleSites.isEmpty()) {
                 m_idleSites.push(new MpRoSiteContext(m_siteId,
                             m_backend,
@@ -227,16 +264,68 @@ class MpRoSitePool {
             }
             site = m_idleSites.pop();
             m_busySites.put(txnId, site);
+            m_intervalPeakBusy = Math.max(m_intervalPeakBusy, m_busySites.size());
         }
         site.offer(task);
         return true;
     }
 
+    /**
+     * A read that was waiting in the backlog for waitNanos got a site.
+     */
+    synchronized void readStarted(long waitNanos)
+    {
+        m_readsStarted++;
+        m_queueWaitNanos += waitNanos;
+        m_maxQueueWaitNanos = Math.max(m_maxQueueWaitNanos, waitNanos);
+    }
+
+    /**
+     * A read at the head of the backlog could not start because every site is busy.
+     */
+    synchronized void saturated()
+    {
+        m_saturatedCount++;
+        m_intervalSaturatedCount++;
+        maybeResize(System.nanoTime());
+    }
+
+    private void accountBusySites(long now)
+    {
+        m_busySiteNanos += m_busySites.size() * (now - m_lastBusyChange);
+        m_lastBusyChange = now;
+    }
+
+    private void maybeResize(long now)
+    {
+        if (!m_adaptive || now - m_intervalStart < ADJUST_INTERVAL_NANOS) {
+            return;
+        }
+        final int oldSize = m_poolSize;
+        if (m_intervalSaturatedCount > 0) {
+            m_poolSize = Math.min(m_maxPoolSize, m_poolSize + Math.max(1, m_poolSize / 4));
+        }
+        else if (m_intervalPeakBusy <= m_poolSize / 2) {
+            m_poolSize = Math.max(m_minPoolSize, m_intervalPeakBusy * 2);
+        }
+        if (m_poolSize != oldSize) {
+            tmLog.debug("Resized MPI read pool from " + oldSize + " to " + m_poolSize + " sites");
+        }
+        while (m_idleSites.size() + m_busySites.size() > m_poolSize && !m_idleSites.isEmpty()) {
+            m_idleSites.pollLast().shutdown();
+        }
+        m_intervalStart = now;
+        m_intervalSaturatedCount = 0;
+        m_intervalPeakBusy = m_busySites.size();
+    }
+
     /**
      * Inform the pool that the work associated with the given txnID is complete
      */
-    void completeWork(long txnId)
+    synchronized void completeWork(long txnId)
     {
+        final long now = System.nanoTime();
+        accountBusySites(now);
         MpRoSiteContext site = m_busySites.remove(txnId);
         if (site == null) {
             throw new RuntimeException("No busy site for txnID: " + txnId + " found, shouldn't happen.");
@@ -251,6 +340,45 @@ class MpRoSitePool {
         else {
             site.shutdown();
         }
+        maybeResize(now);
+    }
+
+    /**
+     * Counters for MpRoSitePoolStats, see {@link MpRoSitePoolStats.Constants}
+     * for their meaning.
+     */
+    static class Snapshot {
+        int poolSize;
+        int maxPoolSize;
+        int busySites;
+        int idleSites;
+        long busySiteNanos;
+        long readsStarted;
+        long queueWaitNanos;
+        long maxQueueWaitNanos;
+        long saturatedCount;
+    }
+
+    /**
+     * @param resetMax  start tracking the maximum queue wait over again
+     */
+    synchronized Snapshot snapshot(boolean resetMax)
+    {
+        accountBusySites(System.nanoTime());
+        Snapshot snap = new Snapshot();
+        snap.poolSize = m_poolSize;
+        snap.maxPoolSize = m_maxPoolSize;
+        snap.busySites = m_busySites.size();
+        snap.idleSites = m_idleSites.size();
+        snap.busySiteNanos = m_busySiteNanos;
+        snap.readsStarted = m_readsStarted;
+        snap.queueWaitNanos = m_queueWaitNanos;
+        snap.maxQueueWaitNanos = m_maxQueueWaitNanos;
+        snap.saturatedCount = m_saturatedCount;
+        if (resetMax) {
+            m_maxQueueWaitNanos = 0;
+        }
+        return snap;
     }
 
     void shutdown()
@@ -0,0 +1,133 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.voltdb.SiteStatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Reports the MPI's pool of read-only sites as "@Statistics MPREADPOOL".
+ * Only the host running the MPI returns a row.
+ */
+public class MpRoSitePoolStats extends SiteStatsSource {
+
+    public static interface Constants {
+        // current size limit of the pool, and the most it may grow to
+        public final static String POOL_SIZE = "POOL_SIZE";
+        public final static String MAX_POOL_SIZE = "MAX_POOL_SIZE";
+        public final static String BUSY_SITES = "BUSY_SITES";
+        public final static String IDLE_SITES = "IDLE_SITES";
+        // average busy sites as a percentage of the pool size limit
+        public final static String UTILIZATION = "UTILIZATION";
+        // reads that started, and their wait in the MPI backlog in microseconds
+        public final static String READS = "READS";
+        public final static String AVG_QUEUE_WAIT = "AVG_QUEUE_WAIT";
+        public final static String MAX_QUEUE_WAIT = "MAX_QUEUE_WAIT";
+        // times a read could not start because every site was busy
+        public final static String SATURATED = "SATURATED";
+    }
+
+    private final MpRoSitePool m_pool;
+    private final long m_startTime = System.nanoTime();
+    private long m_lastTime = m_startTime;
+    private MpRoSitePool.Snapshot m_last = new MpRoSitePool.Snapshot();
+    private boolean m_interval;
+
+    MpRoSitePoolStats(long siteId, MpRoSitePool pool) {
+        super(siteId, false);
+        m_pool = pool;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(Constants.POOL_SIZE, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.MAX_POOL_SIZE, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.BUSY_SITES, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.IDLE_SITES, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.UTILIZATION, VoltType.FLOAT));
+        columns.add(new ColumnInfo(Constants.READS, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.AVG_QUEUE_WAIT, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.MAX_QUEUE_WAIT, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.SATURATED, VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object rowValues[]) {
+        final long now = System.nanoTime();
+        final MpRoSitePool.Snapshot snap = m_pool.snapshot(m_interval);
+        long elapsed = now - m_startTime;
+        long busySiteNanos = snap.busySiteNanos;
+        long reads = snap.readsStarted;
+        long queueWaitNanos = snap.queueWaitNanos;
+        long saturated = snap.saturatedCount;
+        if (m_interval) {
+            elapsed = now - m_lastTime;
+            busySiteNanos -= m_last.busySiteNanos;
+            reads -= m_last.readsStarted;
+            queueWaitNanos -= m_last.queueWaitNanos;
+            saturated -= m_last.saturatedCount;
+            m_lastTime = now;
+            m_last = snap;
+        }
+
+        rowValues[columnNameToIndex.get(Constants.POOL_SIZE)] = snap.poolSize;
+        rowValues[columnNameToIndex.get(Constants.MAX_POOL_SIZE)] = snap.maxPoolSize;
+        rowValues[columnNameToIndex.get(Constants.BUSY_SITES)] = snap.busySites;
+        rowValues[columnNameToIndex.get(Constants.IDLE_SITES)] = snap.idleSites;
+        rowValues[columnNameToIndex.get(Constants.UTILIZATION)] =
+            elapsed > 0 ? busySiteNanos * 100.0 / ((double)elapsed * snap.poolSize) : 0.0;
+        rowValues[columnNameToIndex.get(Constants.READS)] = reads;
+        rowValues[columnNameToIndex.get(Constants.AVG_QUEUE_WAIT)] =
+            reads > 0 ? queueWaitNanos / reads / 1000 : 0L;
+        rowValues[columnNameToIndex.get(Constants.MAX_QUEUE_WAIT)] = snap.maxQueueWaitNanos / 1000;
+        rowValues[columnNameToIndex.get(Constants.SATURATED)] = saturated;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected synchronized Iterator<Object> getStatsRowKeyIterator(final boolean interval) {
+        m_interval = interval;
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
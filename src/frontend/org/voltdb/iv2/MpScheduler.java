@@ -250,6 +250,7 @@ public class MpScheduler extends Scheduler
 
         // Don't have an SP HANDLE at the MPI, so fill in the unused value
         Iv2Trace.logIv2InitiateTaskMessage(message, m_mailbox.getHSId(), mpTxnId, Long.MIN_VALUE);
+        TxnTracer.record(m_mailbox.getHSId(), m_partitionId, message.getClientInterfaceHandle(), TxnTracer.Event.SCHEDULE);
 
         // Handle every-site system procedures (at the MPI)
         final Config sysprocConfig = SystemProcedureCatalog.listing.get(procedureName);
@@ -333,7 +334,9 @@ public class MpScheduler extends Scheduler
     }
 
     /**
-     * Extract the two involved partitions from the @BalancePartitions request.
+     * Extract the involved partitions from the @BalancePartitions request. A request
+     * may move several disjoint ranges at once, in which case all of their source
+     * and destination partitions take part in the transaction.
      */
     private Set<Integer> getBalancePartitions(Iv2InitiateTaskMessage msg)
     {
@@ -341,8 +344,7 @@ public class MpScheduler extends Scheduler
             JSONObject jsObj = new JSONObject((String) msg.getParameters()[0]);
             BalancePartitionsRequest request = new BalancePartitionsRequest(jsObj);
 
-            return Sets.newHashSet(request.partitionPairs.get(0).srcPartition,
-                    request.partitionPairs.get(0).destPartition);
+            return Sets.newHashSet(request.getInvolvedPartitions());
         } catch (JSONException e) {
             hostLog.warn("Unable to determine partitions for @BalancePartitions", e);
             return null;
@@ -76,6 +76,15 @@ public class MpTransactionState extends TransactionState
     boolean m_haveDistributedInitTask = false;
     boolean m_isRestart = false;
 
+    /*
+     * Read-only transactions may send the distributed fragments of batches
+     * ahead of the batch being run, see pipelineFragmentWork(). Responses for
+     * those are tracked here until the batch becomes the current one.
+     */
+    public static final int PIPELINE_DEPTH = Integer.getInteger("mpiReadPipelineDepth", 2);
+    Map<Integer, Set<Long>> m_pipelinedDeps = new HashMap<Integer, Set<Long>>();
+    Map<Integer, List<VoltTable>> m_pipelinedDepTables = new HashMap<Integer, List<VoltTable>>();
+
     MpTransactionState(Mailbox mailbox,
                        TransactionInfoBaseMessage notice,
                        List<Long> useHSIds, Map<Integer, Long> partitionMasters,
@@ -109,6 +118,9 @@ public class MpTransactionState extends TransactionState
         // since some masters may not have seen it.
         m_haveDistributedInitTask = false;
         m_isRestart = true;
+        // Batches sent ahead went to the old masters, the procedure will re-run them
+        m_pipelinedDeps.clear();
+        m_pipelinedDepTables.clear();
     }
 
     @Override
@@ -163,20 +175,70 @@ public class MpTransactionState extends TransactionState
                 task.setStateForDurability((Iv2InitiateTaskMessage) getNotice(), m_masterHSIds.keySet());
             }
 
-            if (m_initiationMsg.getStoredProcedureInvocation().getType() == ProcedureInvocationType.REPLICATED) {
-                task.setOriginalTxnId(m_initiationMsg.getStoredProcedureInvocation().getOriginalTxnId());
-            }
+            m_remoteWork = task;
+            sendRemoteWork(task);
+        }
+        else {
+            m_remoteWork = null;
+        }
+    }
+
+    private void sendRemoteWork(FragmentTaskMessage task)
+    {
+        if (m_initiationMsg.getStoredProcedureInvocation().getType() == ProcedureInvocationType.REPLICATED) {
+            task.setOriginalTxnId(m_initiationMsg.getStoredProcedureInvocation().getOriginalTxnId());
+        }
+
+        task.setTruncationHandle(m_initiationMsg.getTruncationHandle());
+        // Distribute fragments to remote destinations.
+        long[] non_local_hsids = new long[m_useHSIds.size()];
+        for (int i = 0; i < m_useHSIds.size(); i++) {
+            non_local_hsids[i] = m_useHSIds.get(i);
+        }
+        // send to all non-local sites
+        if (non_local_hsids.length > 0) {
+            m_mbox.send(non_local_hsids, task);
+        }
+    }
 
+    /**
+     * Send the distributed fragments of a later batch of a read-only
+     * transaction before the current batch is done, so the partitions can
+     * work on it while the procedure waits for the current batch. The batch
+     * must later be run with {@link #createPipelinedFragmentWork}, and must
+     * not be the final one: its fragments would complete the transaction at
+     * the partitions before the borrow tasks of earlier batches arrive.
+     */
+    public void pipelineFragmentWork(FragmentTaskMessage task)
+    {
+        assert(isReadOnly());
+        assert(!task.isFinalTask());
+        if (task.getFragmentCount() > 0) {
+            m_pipelinedDeps.putAll(createTrackedDependenciesFromTask(task, m_useHSIds));
+            sendRemoteWork(task);
+        }
+    }
+
+    /**
+     * Make a batch previously sent with {@link #pipelineFragmentWork} the
+     * current remote work, keeping whatever responses already arrived for it.
+     */
+    public void createPipelinedFragmentWork(FragmentTaskMessage task)
+    {
+        if (task.getFragmentCount() > 0) {
             m_remoteWork = task;
-            m_remoteWork.setTruncationHandle(m_initiationMsg.getTruncationHandle());
-            // Distribute fragments to remote destinations.
-            long[] non_local_hsids = new long[m_useHSIds.size()];
-            for (int i = 0; i < m_useHSIds.size(); i++) {
-                non_local_hsids[i] = m_useHSIds.get(i);
-            }
-            // send to all non-local sites
-            if (non_local_hsids.length > 0) {
-                m_mbox.send(non_local_hsids, m_remoteWork);
+            m_remoteDeps = new HashMap<Integer, Set<Long>>();
+            for (int i = 0; i < task.getFragmentCount(); i++) {
+                final int dep = task.getOutputDepId(i);
+                final Set<Long> scoreboard = m_pipelinedDeps.remove(dep);
+                if (scoreboard == null) {
+                    throw new RuntimeException("Batch with dependency " + dep + " was never pipelined");
+                }
+                m_remoteDeps.put(dep, scoreboard);
+                final List<VoltTable> tables = m_pipelinedDepTables.remove(dep);
+                if (tables != null) {
+                    m_remoteDepTables.put(dep, tables);
+                }
             }
         }
         else {
@@ -236,9 +298,12 @@ public class MpTransactionState extends TransactionState
         }
         // Do distributed fragments, if any
         if (m_remoteWork != null) {
-            // Create some record of expected dependencies for tracking
-            m_remoteDeps = createTrackedDependenciesFromTask(m_remoteWork,
-                                                             m_useHSIds);
+            // Create some record of expected dependencies for tracking,
+            // pipelined batches already have one
+            if (m_remoteDeps == null) {
+                m_remoteDeps = createTrackedDependenciesFromTask(m_remoteWork,
+                                                                 m_useHSIds);
+            }
             // if there are remote deps, block on them
             // FragmentResponses indicating failure will throw an exception
             // which will propagate out of handleReceivedFragResponse and
@@ -262,6 +327,10 @@ public class MpTransactionState extends TransactionState
         m_mbox.send(m_buddyHSId, borrowmsg);
 
         FragmentResponseMessage msg = pollForResponses();
+        while (isPipelinedResponse(msg)) {
+            handleReceivedFragResponse(msg);
+            msg = pollForResponses();
+        }
         m_localWork = null;
 
         // Build results from the FragmentResponseMessage
@@ -329,6 +398,12 @@ public class MpTransactionState extends TransactionState
         // Remove the distributed fragment for this site from remoteDeps
         // for the dependency Id depId.
         Set<Long> localRemotes = m_remoteDeps.get(depId);
+        Map<Integer, List<VoltTable>> depTables = m_remoteDepTables;
+        if (localRemotes == null) {
+            // may belong to a batch that was sent ahead
+            localRemotes = m_pipelinedDeps.get(depId);
+            depTables = m_pipelinedDepTables;
+        }
         if (localRemotes == null && m_isRestart) {
             // Tolerate weird deps showing up on restart
             // After Ariel separates unique ID from transaction ID, rewrite restart to restart with
@@ -338,10 +413,10 @@ public class MpTransactionState extends TransactionState
         Object needed = localRemotes.remove(hsid);
         if (needed != null) {
             // add table to storage
-            List<VoltTable> tables = m_remoteDepTables.get(depId);
+            List<VoltTable> tables = depTables.get(depId);
             if (tables == null) {
                 tables = new ArrayList<VoltTable>();
-                m_remoteDepTables.put(depId, tables);
+                depTables.put(depId, tables);
             }
             // null dependency table is from a joining node, has no content, drop it
             if (table.getStatusCode() != VoltTableUtil.NULL_DEPENDENCY_STATUS) {
@@ -364,6 +439,13 @@ public class MpTransactionState extends TransactionState
         }
     }
 
+    // Responses for batches sent ahead may arrive while waiting for the borrow
+    private boolean isPipelinedResponse(FragmentResponseMessage msg)
+    {
+        return !m_pipelinedDeps.isEmpty() && msg.getTableCount() > 0 &&
+            m_pipelinedDeps.containsKey(msg.getTableDependencyIdAtIndex(0));
+    }
+
     private boolean checkDoneReceivingFragResponses()
     {
         boolean done = true;
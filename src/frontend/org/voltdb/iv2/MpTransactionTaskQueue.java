@@ -46,6 +46,8 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
     private final Map<Long, TransactionTask> m_currentWrites = new HashMap<Long, TransactionTask>();
     private final Map<Long, TransactionTask> m_currentReads = new HashMap<Long, TransactionTask>();
     private Deque<TransactionTask> m_backlog = new ArrayDeque<TransactionTask>();
+    // System.nanoTime() at which each task in the backlog was offered, in backlog order
+    private Deque<Long> m_backlogOfferTimes = new ArrayDeque<Long>();
 
     private MpRoSitePool m_sitePool = null;
 
@@ -81,6 +83,7 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
     {
         Iv2Trace.logTransactionTaskQueueOffer(task);
         m_backlog.addLast(task);
+        m_backlogOfferTimes.addLast(System.nanoTime());
         taskQueueOffer();
         return true;
     }
@@ -182,6 +185,7 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
             if (!task.getTransactionState().isReadOnly()) {
                 if (m_currentReads.isEmpty() && m_currentWrites.isEmpty()) {
                     task = m_backlog.pollFirst();
+                    m_backlogOfferTimes.pollFirst();
                     m_currentWrites.put(task.getTxnId(), task);
                     taskQueueOffer(task);
                     retval = true;
@@ -193,6 +197,7 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
                 {
                     task = m_backlog.pollFirst();
                     assert(task.getTransactionState().isReadOnly());
+                    m_sitePool.readStarted(System.nanoTime() - m_backlogOfferTimes.pollFirst());
                     m_currentReads.put(task.getTxnId(), task);
                     taskQueueOffer(task);
                     retval = true;
@@ -200,6 +205,10 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
                     // task will be null
                     task = m_backlog.peekFirst();
                 }
+                if (task != null && task.getTransactionState().isReadOnly()) {
+                    // Reads are waiting only because every site in the pool is busy
+                    m_sitePool.saturated();
+                }
             }
         }
         return retval;
@@ -0,0 +1,107 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.voltdb.SiteStatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Reports how often a partition's multi-part reads yielded to single part
+ * reads as "@Statistics MPYIELD", and the queue wait that saved them.
+ */
+public class MpYieldStats extends SiteStatsSource {
+
+    public static interface Constants {
+        public final static String PARTITION_ID = "PARTITION_ID";
+        // single part reads that ran ahead of a multi-part read
+        public final static String YIELDS = "YIELDS";
+        // wait they would otherwise have had, in microseconds
+        public final static String AVG_WAIT_SAVED = "AVG_WAIT_SAVED";
+        public final static String TOTAL_WAIT_SAVED = "TOTAL_WAIT_SAVED";
+    }
+
+    private final int m_partitionId;
+    private final TransactionTaskQueue m_queue;
+    private long[] m_last = new long[] { 0, 0 };
+    private boolean m_interval;
+
+    MpYieldStats(long siteId, int partitionId, TransactionTaskQueue queue) {
+        super(siteId, false);
+        m_partitionId = partitionId;
+        m_queue = queue;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(Constants.PARTITION_ID, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.YIELDS, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.AVG_WAIT_SAVED, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.TOTAL_WAIT_SAVED, VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object rowValues[]) {
+        final long[] passed = m_queue.getReadsPassed();
+        long yields = passed[0];
+        long savedNanos = passed[1];
+        if (m_interval) {
+            yields -= m_last[0];
+            savedNanos -= m_last[1];
+            m_last = passed;
+        }
+
+        rowValues[columnNameToIndex.get(Constants.PARTITION_ID)] = m_partitionId;
+        rowValues[columnNameToIndex.get(Constants.YIELDS)] = yields;
+        rowValues[columnNameToIndex.get(Constants.AVG_WAIT_SAVED)] =
+            yields > 0 ? savedNanos / yields / 1000 : 0L;
+        rowValues[columnNameToIndex.get(Constants.TOTAL_WAIT_SAVED)] = savedNanos / 1000;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected synchronized Iterator<Object> getStatsRowKeyIterator(final boolean interval) {
+        m_interval = interval;
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
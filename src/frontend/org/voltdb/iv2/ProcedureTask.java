@@ -66,12 +66,18 @@ abstract public class ProcedureTask extends TransactionTask
 
         try {
             Object[] callerParams = null;
+            ProcedureRunner runner = siteConnection.getProcedureRunner(m_procName);
             /*
              * Parameters are lazily deserialized. We may not find out until now
-             * that the parameter set is corrupt
+             * that the parameter set is corrupt. Decode them for the procedure's
+             * signature if it is known.
              */
             try {
-                callerParams = task.getParameters();
+                if (runner != null) {
+                    callerParams = task.getParameters(runner.getCallerParameterTypes());
+                } else {
+                    callerParams = task.getParameters();
+                }
             } catch (RuntimeException e) {
                 Writer result = new StringWriter();
                 PrintWriter pw = new PrintWriter(result);
@@ -85,7 +91,6 @@ abstract public class ProcedureTask extends TransactionTask
             }
             if (callerParams != null) {
                 ClientResponseImpl cr = null;
-                ProcedureRunner runner = siteConnection.getProcedureRunner(m_procName);
                 if (runner == null) {
                     String error =
                         "Procedure " + m_procName + " is not present in the catalog. "  +
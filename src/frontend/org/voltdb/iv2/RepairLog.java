@@ -17,7 +17,10 @@
 
 package org.voltdb.iv2;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Deque;
@@ -28,6 +31,8 @@ import java.util.List;
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.messaging.VoltMessage;
 import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.TheHashinator;
 import org.voltdb.messaging.CompleteTransactionMessage;
@@ -41,6 +46,13 @@ import org.voltdb.messaging.Iv2RepairLogResponseMessage;
  * shared with less informed RIs should the PI shed its mortal coil.  This includes
  * recording and sharing messages starting and completing multipartition transactions
  * so that a new MPI can repair the cluster state on promotion.
+ *
+ * The most recent messages of each log are kept as objects. When truncation
+ * lags so that more than REPAIR_LOG_HEAP_ENTRIES are waiting, the oldest are
+ * serialized into off-heap segments and indexed by primitive arrays, so a
+ * backlog doesn't linger on the heap long enough to be promoted to the old
+ * generation. Serialized entries are sent to a repairing initiator as they
+ * are, without being deserialized here.
  */
 public class RepairLog
 {
@@ -70,6 +82,9 @@ public class RepairLog
     // The HSID of this initiator, for logging purposes
     long m_HSId = Long.MIN_VALUE;
 
+    private static final int HEAP_ENTRIES = Integer.getInteger("REPAIR_LOG_HEAP_ENTRIES", 512);
+    private static final int SEGMENT_SIZE = Integer.getInteger("REPAIR_LOG_SEGMENT_SIZE", 1024 * 1024);
+
     // want voltmessage as payload with message-independent metadata.
     static class Item
     {
@@ -122,14 +137,215 @@ public class RepairLog
         }
     }
 
-    // log storage.
+    /**
+     * Serialized log entries, oldest first, in a chain of direct memory segments.
+     * An entry never spans segments, and a segment is freed once every entry in
+     * it has been truncated.
+     */
+    static class SerializedLog
+    {
+        private static class Segment
+        {
+            final BBContainer m_container;
+            // position in the log of the first byte of the segment
+            final long m_start;
+            int m_used = 0;
+
+            Segment(int size, long start)
+            {
+                m_container = DBBPool.allocateDirect(size);
+                m_start = start;
+            }
+
+            long end()
+            {
+                return m_start + m_used;
+            }
+        }
+
+        private final ArrayDeque<Segment> m_segments = new ArrayDeque<Segment>();
+        private long m_nextOffset = 0;
+        private long m_bytes = 0;
+
+        // circular index of the entries, from m_head for m_count entries
+        private long[] m_handles = new long[16];
+        private long[] m_txnIds = new long[16];
+        private long[] m_sourceHSIds = new long[16];
+        private long[] m_offsets = new long[16];
+        private int[] m_lengths = new int[16];
+        private int m_head = 0;
+        private int m_count = 0;
+
+        int size()
+        {
+            return m_count;
+        }
+
+        long bytes()
+        {
+            return m_bytes;
+        }
+
+        private int index(int i)
+        {
+            return (m_head + i) & (m_handles.length - 1);
+        }
+
+        long getHandle(int i)
+        {
+            return m_handles[index(i)];
+        }
+
+        long getTxnId(int i)
+        {
+            return m_txnIds[index(i)];
+        }
+
+        void add(VoltMessage msg, long handle, long txnId)
+        {
+            final int length = msg.getSerializedSize();
+            Segment segment = m_segments.peekLast();
+            if (segment == null || segment.m_container.b().capacity() - segment.m_used < length) {
+                segment = new Segment(Math.max(SEGMENT_SIZE, length), m_nextOffset);
+                m_segments.add(segment);
+            }
+            final ByteBuffer buf = segment.m_container.b().duplicate();
+            buf.limit(segment.m_used + length);
+            buf.position(segment.m_used);
+            try {
+                msg.flattenToBuffer(buf.slice());
+            } catch (IOException e) {
+                // Serializing to memory doesn't do IO
+                throw new RuntimeException(e);
+            }
+
+            if (m_count == m_handles.length) {
+                grow();
+            }
+            final int idx = index(m_count++);
+            m_handles[idx] = handle;
+            m_txnIds[idx] = txnId;
+            m_sourceHSIds[idx] = msg.m_sourceHSId;
+            m_offsets[idx] = segment.end();
+            m_lengths[idx] = length;
+            segment.m_used += length;
+            m_nextOffset = segment.end();
+            m_bytes += length;
+        }
+
+        private void grow()
+        {
+            final int size = m_handles.length * 2;
+            long[] handles = new long[size];
+            long[] txnIds = new long[size];
+            long[] sourceHSIds = new long[size];
+            long[] offsets = new long[size];
+            int[] lengths = new int[size];
+            for (int i = 0; i < m_count; i++) {
+                final int idx = index(i);
+                handles[i] = m_handles[idx];
+                txnIds[i] = m_txnIds[idx];
+                sourceHSIds[i] = m_sourceHSIds[idx];
+                offsets[i] = m_offsets[idx];
+                lengths[i] = m_lengths[idx];
+            }
+            m_handles = handles;
+            m_txnIds = txnIds;
+            m_sourceHSIds = sourceHSIds;
+            m_offsets = offsets;
+            m_lengths = lengths;
+            m_head = 0;
+        }
+
+        // Remove the oldest entry, freeing the segments it was the last entry of
+        void poll()
+        {
+            final int idx = index(0);
+            m_bytes -= m_lengths[idx];
+            m_head = index(1);
+            m_count--;
+            final long nextOffset = m_count == 0 ? Long.MAX_VALUE : m_offsets[index(0)];
+            Segment segment;
+            while ((segment = m_segments.peek()) != null && segment.end() <= nextOffset) {
+                if (m_count > 0 && segment == m_segments.peekLast()) {
+                    break;
+                }
+                m_segments.poll().m_container.discard();
+            }
+        }
+
+        /**
+         * @return a response carrying a heap copy of the serialized entry. The copy
+         * outlives truncation of the entry, which frees its segment.
+         */
+        Iv2RepairLogResponseMessage getResponse(int i, long requestId, int sequence, int ofTotal)
+        {
+            final int idx = index(i);
+            final ByteBuffer payload = ByteBuffer.allocate(m_lengths[idx]);
+            for (Segment segment : m_segments) {
+                if (m_offsets[idx] < segment.end()) {
+                    final ByteBuffer buf = segment.m_container.b().duplicate();
+                    final int position = (int)(m_offsets[idx] - segment.m_start);
+                    buf.limit(position + m_lengths[idx]);
+                    buf.position(position);
+                    payload.put(buf);
+                    break;
+                }
+            }
+            payload.flip();
+            return new Iv2RepairLogResponseMessage(requestId, sequence, ofTotal,
+                    m_handles[idx], m_txnIds[idx], m_sourceHSIds[idx], payload);
+        }
+
+        void clear()
+        {
+            for (Segment segment : m_segments) {
+                segment.m_container.discard();
+            }
+            m_segments.clear();
+            m_head = 0;
+            m_count = 0;
+            m_bytes = 0;
+        }
+    }
+
+    // A serialized entry, only used while producing the contents of the log
+    private static class SerializedItem extends Item
+    {
+        final SerializedLog m_log;
+        final int m_index;
+
+        SerializedItem(boolean type, SerializedLog log, int index)
+        {
+            super(type, null, log.getHandle(index), log.getTxnId(index));
+            m_log = log;
+            m_index = index;
+        }
+    }
+
+    // log storage. Messages move from the heap logs to the serialized logs, oldest first.
     final Deque<Item> m_logSP;
     final Deque<Item> m_logMP;
+    final SerializedLog m_serializedSP = new SerializedLog();
+    final SerializedLog m_serializedMP = new SerializedLog();
+    private final int m_heapEntries;
+
+    // Read by RepairLogStats
+    private volatile int m_spEntries = 0;
+    private volatile int m_mpEntries = 0;
+    private volatile int m_serializedEntries = 0;
+    private volatile long m_serializedBytes = 0;
 
     RepairLog()
+    {
+        this(HEAP_ENTRIES);
+    }
+
+    RepairLog(int heapEntries)
     {
         m_logSP = new ArrayDeque<Item>();
         m_logMP = new ArrayDeque<Item>();
+        m_heapEntries = heapEntries;
     }
 
     // get the HSID for dump logging
@@ -161,7 +377,7 @@ public class RepairLog
             if (!m.isReadOnly()) {
                 m_lastSpHandle = m.getSpHandle();
                 truncate(m.getTruncationHandle(), IS_SP);
-                m_logSP.add(new Item(IS_SP, m, m.getSpHandle(), m.getTxnId()));
+                add(m_logSP, m_serializedSP, new Item(IS_SP, m, m.getSpHandle(), m.getTxnId()));
                 if ("@ApplyBinaryLogSP".equals(m.getStoredProcedureName())) {
                     StoredProcedureInvocation spi = m.getStoredProcedureInvocation();
                     // params[2] is the end sequence number from the original cluster
@@ -176,7 +392,7 @@ public class RepairLog
                 truncate(m.getTruncationHandle(), IS_MP);
                 // only log the first fragment of a procedure (and handle 1st case)
                 if (m.getTxnId() > m_lastMpHandle || m_lastMpHandle == Long.MAX_VALUE) {
-                    m_logMP.add(new Item(IS_MP, m, m.getSpHandle(), m.getTxnId()));
+                    add(m_logMP, m_serializedMP, new Item(IS_MP, m, m.getSpHandle(), m.getTxnId()));
                     m_lastMpHandle = m.getTxnId();
                     m_lastSpHandle = m.getSpHandle();
                 }
@@ -197,7 +413,7 @@ public class RepairLog
             CompleteTransactionMessage ctm = (CompleteTransactionMessage)msg;
             if (!ctm.isReadOnly() && !ctm.isRestart()) {
                 truncate(ctm.getTruncationHandle(), IS_MP);
-                m_logMP.add(new Item(IS_MP, ctm, ctm.getSpHandle(), ctm.getTxnId()));
+                add(m_logMP, m_serializedMP, new Item(IS_MP, ctm, ctm.getSpHandle(), ctm.getTxnId()));
                 //Restore will send a complete transaction message with a lower mp transaction id because
                 //the restore transaction precedes the loading of the right mp transaction id from the snapshot
                 //Hence Math.max
@@ -215,6 +431,16 @@ public class RepairLog
         }
     }
 
+    private void add(Deque<Item> deq, SerializedLog serialized, Item item)
+    {
+        deq.add(item);
+        while (deq.size() > m_heapEntries) {
+            final Item oldest = deq.poll();
+            serialized.add(oldest.getMessage(), oldest.getHandle(), oldest.getTxnId());
+        }
+        updateSizes();
+    }
+
     // trim unnecessary log messages.
     private void truncate(long handle, boolean isSP)
     {
@@ -224,11 +450,25 @@ public class RepairLog
         }
 
         Deque<RepairLog.Item> deq = null;
+        SerializedLog serialized = null;
         if (isSP) {
             deq = m_logSP;
+            serialized = m_serializedSP;
         }
         else {
             deq = m_logMP;
+            serialized = m_serializedMP;
+        }
+
+        // The serialized entries are older than any on the heap
+        while (serialized.size() > 0) {
+            final long key = isSP ? serialized.getHandle(0) : serialized.getTxnId(0);
+            if (key <= handle) {
+                serialized.poll();
+            } else {
+                updateSizes();
+                return;
+            }
         }
 
         RepairLog.Item item = null;
@@ -239,6 +479,32 @@ public class RepairLog
                 break;
             }
         }
+        updateSizes();
+    }
+
+    private void updateSizes()
+    {
+        m_spEntries = m_logSP.size() + m_serializedSP.size();
+        m_mpEntries = m_logMP.size() + m_serializedMP.size();
+        m_serializedEntries = m_serializedSP.size() + m_serializedMP.size();
+        m_serializedBytes = m_serializedSP.bytes() + m_serializedMP.bytes();
+    }
+
+    /**
+     * @return the number of SP entries, MP entries and serialized entries in the
+     * log, and the bytes of off-heap memory the serialized entries use
+     */
+    long[] getSizes()
+    {
+        return new long[] { m_spEntries, m_mpEntries, m_serializedEntries, m_serializedBytes };
+    }
+
+    // free the off-heap segments
+    void shutdown()
+    {
+        m_serializedSP.clear();
+        m_serializedMP.clear();
+        updateSizes();
     }
 
     // return the last seen SP handle
@@ -265,16 +531,16 @@ public class RepairLog
     // produce the contents of the repair log.
     public List<Iv2RepairLogResponseMessage> contents(long requestId, boolean forMPI)
     {
-        List<Item> items = new LinkedList<Item>();
+        List<Item> items = new ArrayList<Item>();
         // All cases include the log of MP transactions
-        items.addAll(m_logMP);
+        addItems(items, m_logMP, m_serializedMP, IS_MP);
         long maxSeenBinaryLogUniqueId = m_maxSeenMpBinaryLogUniqueId;
         long maxSeenBinaryLogDRId = m_maxSeenMpBinaryLogDRId;
         // SP repair requests also want the SP transactions
         if (!forMPI) {
             maxSeenBinaryLogUniqueId = m_maxSeenSpBinaryLogUniqueId;
             maxSeenBinaryLogDRId = m_maxSeenSpBinaryLogDRId;
-            items.addAll(m_logSP);
+            addItems(items, m_logSP, m_serializedSP, IS_SP);
         }
 
         // Contents need to be sorted in increasing spHandle order
@@ -303,16 +569,30 @@ public class RepairLog
         Iterator<Item> itemator = items.iterator();
         while (itemator.hasNext()) {
             Item item = itemator.next();
-            Iv2RepairLogResponseMessage response =
-                new Iv2RepairLogResponseMessage(
-                        requestId,
-                        seq++,
-                        ofTotal,
-                        item.getHandle(),
-                        item.getTxnId(),
-                        item.getMessage());
+            Iv2RepairLogResponseMessage response;
+            if (item instanceof SerializedItem) {
+                SerializedItem serialized = (SerializedItem)item;
+                response = serialized.m_log.getResponse(serialized.m_index, requestId, seq++, ofTotal);
+            } else {
+                response =
+                    new Iv2RepairLogResponseMessage(
+                            requestId,
+                            seq++,
+                            ofTotal,
+                            item.getHandle(),
+                            item.getTxnId(),
+                            item.getMessage());
+            }
             responses.add(response);
         }
         return responses;
     }
+
+    private static void addItems(List<Item> items, Deque<Item> deq, SerializedLog serialized, boolean type)
+    {
+        for (int i = 0; i < serialized.size(); i++) {
+            items.add(new SerializedItem(type, serialized, i));
+        }
+        items.addAll(deq);
+    }
 }
@@ -0,0 +1,98 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.voltdb.SiteStatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Reports the size of an initiator's repair log as "@Statistics REPAIRLOG".
+ * The repair log of the MPI is reported with partition id MpInitiator.MP_INIT_PID.
+ */
+public class RepairLogStats extends SiteStatsSource {
+
+    public static interface Constants {
+        public final static String PARTITION_ID = "PARTITION_ID";
+        // messages waiting for truncation
+        public final static String SP_ENTRIES = "SP_ENTRIES";
+        public final static String MP_ENTRIES = "MP_ENTRIES";
+        // of those, the messages moved off the heap and the bytes they use
+        public final static String SERIALIZED_ENTRIES = "SERIALIZED_ENTRIES";
+        public final static String SERIALIZED_BYTES = "SERIALIZED_BYTES";
+    }
+
+    private final int m_partitionId;
+    private final RepairLog m_repairLog;
+
+    RepairLogStats(long siteId, int partitionId, RepairLog repairLog) {
+        super(siteId, false);
+        m_partitionId = partitionId;
+        m_repairLog = repairLog;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(Constants.PARTITION_ID, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.SP_ENTRIES, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.MP_ENTRIES, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.SERIALIZED_ENTRIES, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.SERIALIZED_BYTES, VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object rowValues[]) {
+        final long[] sizes = m_repairLog.getSizes();
+        rowValues[columnNameToIndex.get(Constants.PARTITION_ID)] = m_partitionId;
+        rowValues[columnNameToIndex.get(Constants.SP_ENTRIES)] = (int)sizes[0];
+        rowValues[columnNameToIndex.get(Constants.MP_ENTRIES)] = (int)sizes[1];
+        rowValues[columnNameToIndex.get(Constants.SERIALIZED_ENTRIES)] = (int)sizes[2];
+        rowValues[columnNameToIndex.get(Constants.SERIALIZED_BYTES)] = sizes[3];
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(final boolean interval) {
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
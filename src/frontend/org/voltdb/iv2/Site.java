@@ -26,6 +26,7 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.voltcore.logging.Level;
@@ -138,6 +139,9 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
 
     // Almighty execution engine and its HSQL sidekick
     ExecutionEngine m_ee;
+
+    // Results of read-only fragments, null when SITE_RESULT_CACHE_MB is 0
+    private FragmentResultCache m_resultCache = null;
     HsqlBackend m_hsql;
 
     // Stats
@@ -170,6 +174,8 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     {
         final String m_serializedCatalog;
         final long m_timestamp;
+        // set when the site thread loads the procedures
+        CatalogSpecificPlanner m_csp = null;
         StartupConfig(final String catalog, final long timestamp)
         {
             m_serializedCatalog = catalog;
@@ -363,6 +369,10 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         @Override
         public boolean activateTableStream(final int tableId, TableStreamType type, boolean undo, byte[] predicates)
         {
+            // Only snapshot streams leave the table as it was
+            if (m_resultCache != null && type != TableStreamType.SNAPSHOT) {
+                m_resultCache.invalidateAll();
+            }
             return m_ee.activateTableStream(tableId, type, undo ? getNextUndoToken(m_currentTxnId) : Long.MAX_VALUE, predicates);
         }
 
@@ -370,6 +380,9 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         public Pair<Long, int[]> tableStreamSerializeMore(int tableId, TableStreamType type,
                                                           List<DBBPool.BBContainer> outputBuffers)
         {
+            if (m_resultCache != null && type != TableStreamType.SNAPSHOT) {
+                m_resultCache.invalidateAll();
+            }
             return m_ee.tableStreamSerializeMore(tableId, type, outputBuffers);
         }
 
@@ -452,6 +465,17 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         m_loadedProcedures = loadedProcedure;
     }
 
+    /**
+     * Load the procedures on the site thread when it starts, rather than on
+     * the caller's thread. All sites start together, so this loads every
+     * site's procedures in parallel.
+     */
+    void setLoadedProceduresOnStartup(LoadedProcedureSet loadedProcedure, CatalogSpecificPlanner csp)
+    {
+        m_loadedProcedures = loadedProcedure;
+        m_startupConfig.m_csp = csp;
+    }
+
     /** Thread specific initialization */
     void initialize()
     {
@@ -468,6 +492,10 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             m_hsql = null;
             m_ee = initializeEE();
         }
+        if (FragmentResultCache.CAPACITY_BYTES > 0) {
+            m_resultCache = new FragmentResultCache(FragmentResultCache.CAPACITY_BYTES);
+            m_resultCache.updateCatalog(m_context.database);
+        }
 
         m_snapshotter = new SnapshotSiteProcessor(m_scheduler,
         m_snapshotPriority,
@@ -536,7 +564,18 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         if (m_coreBindIds != null) {
             PosixJNAAffinity.INSTANCE.setAffinity(m_coreBindIds);
         }
+        final long startNanos = System.nanoTime();
         initialize();
+        final long eeLoadedNanos = System.nanoTime();
+        if (m_startupConfig.m_csp != null) {
+            m_loadedProcedures.loadProcedures(m_context, m_backend, m_startupConfig.m_csp);
+        }
+        if (hostLog.isDebugEnabled()) {
+            hostLog.debug(String.format("Site %s loaded the catalog in %d ms and the procedures in %d ms",
+                    CoreUtils.hsIdToString(m_siteId),
+                    TimeUnit.NANOSECONDS.toMillis(eeLoadedNanos - startNanos),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - eeLoadedNanos)));
+        }
         m_startupConfig = null; // release the serializableCatalog.
         //Maintain a minimum ratio of task log (unrestricted) to live (restricted) transactions
         final MinimumRatioMaintainer mrm = new MinimumRatioMaintainer(m_taskLogReplayRatio);
@@ -806,6 +845,9 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
             VoltTable data, boolean returnUniqueViolations, boolean shouldDRStream,
             boolean undo)
     {
+        if (m_resultCache != null) {
+            m_resultCache.invalidateAll();
+        }
         // Long.MAX_VALUE is a no-op don't track undo token
         return m_ee.loadTable(tableId, data, txnId,
                 spHandle,
@@ -1001,6 +1043,9 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                     tupleDataMem += (int) stats.getLong(9);
                     assert(stats.getColumnName(10).equals("STRING_DATA_MEMORY"));
                     stringMem += (int) stats.getLong(10);
+                    // the value counts behind a view's MIN and MAX are an index of sorts
+                    assert(stats.getColumnName(15).equals("MINMAX_TRACKING_MEMORY"));
+                    indexMem += (int) stats.getLong(15);
                 }
                 stats.resetRowPosition();
 
@@ -1159,7 +1204,22 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                                             boolean readOnly)
             throws EEException
     {
-        return m_ee.executePlanFragments(
+        FragmentResultCache.Key cacheKey = null;
+        if (m_resultCache != null) {
+            if (readOnly) {
+                cacheKey = m_resultCache.keyFor(numFragmentIds, planFragmentIds, inputDepIds, parameterSets);
+                if (cacheKey != null) {
+                    VoltTable[] cached = m_resultCache.get(cacheKey);
+                    if (cached != null) {
+                        return cached;
+                    }
+                }
+            }
+            else {
+                m_resultCache.invalidate(numFragmentIds, planFragmentIds);
+            }
+        }
+        VoltTable[] results = m_ee.executePlanFragments(
                 numFragmentIds,
                 planFragmentIds,
                 inputDepIds,
@@ -1170,6 +1230,22 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                 m_lastCommittedSpHandle,
                 uniqueId,
                 readOnly ? Long.MAX_VALUE : getNextUndoTokenBroken());
+        if (cacheKey != null) {
+            m_resultCache.put(cacheKey, results);
+        }
+        return results;
+    }
+
+    @Override
+    public long getResultCacheHits()
+    {
+        return m_resultCache == null ? 0 : m_resultCache.getHits();
+    }
+
+    @Override
+    public long getResultCacheMisses()
+    {
+        return m_resultCache == null ? 0 : m_resultCache.getMisses();
     }
 
     @Override
@@ -1213,6 +1289,9 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         //so export data for the old generation is pushed to Java.
         m_ee.quiesce(m_lastCommittedSpHandle);
         m_ee.updateCatalog(m_context.m_uniqueId, diffCmds);
+        if (m_resultCache != null) {
+            m_resultCache.updateCatalog(m_context.database);
+        }
 
         return true;
     }
@@ -1260,6 +1339,9 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         Preconditions.checkNotNull(hashinator);
         m_hashinator = hashinator;
         m_ee.updateHashinator(hashinator.pGetCurrentConfig());
+        if (m_resultCache != null) {
+            m_resultCache.invalidateAll();
+        }
     }
 
     /**
@@ -1305,6 +1387,9 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
         ByteBuffer paramBuffer = m_ee.getParamBufferForExecuteTask(4 + log.length);
         paramBuffer.putInt(log.length);
         paramBuffer.put(log);
+        if (m_resultCache != null) {
+            m_resultCache.invalidateAll();
+        }
         m_ee.applyBinaryLog(paramBuffer, txnId, spHandle, m_lastCommittedSpHandle, uniqueId,
                             getNextUndoToken(m_currentTxnId));
     }
@@ -0,0 +1,174 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.concurrent.TimeUnit;
+
+import org.voltcore.utils.CoreUtils;
+
+/**
+ * Decides what a site thread does while its SiteTaskerQueue is empty.
+ *
+ * Each time the site runs out of work the queue asks the strategy, step by
+ * step, which phase to be in: SPIN (poll again immediately), YIELD (give the
+ * core to another runnable thread) or PARK (sleep until a producer offers a
+ * task). One strategy instance belongs to one queue and is only used by the
+ * site thread, so implementations need no synchronization.
+ *
+ * The strategy is chosen once per process from the systemsettings/siteidle
+ * element of the deployment file, see {@link #configure(String, int, int)}.
+ */
+public abstract class SiteIdleStrategy
+{
+    public enum Phase {
+        SPIN,
+        YIELD,
+        PARK
+    }
+
+    public static final String BUSY_SPIN = "busyspin";
+    public static final String SPIN_YIELD_PARK = "spinyieldpark";
+    public static final String ADAPTIVE = "adaptive";
+
+    // Defaults preserve the old behavior: spin for QUEUE_SPIN_MICROS (0 unless set), then block.
+    private static volatile String s_strategy = SPIN_YIELD_PARK;
+    private static volatile long s_spinNanos = CoreUtils.QUEUE_SPIN_MICROSECONDS;
+    private static volatile long s_yieldNanos = 0;
+
+    /**
+     * Select the strategy used by every SiteTaskerQueue created afterwards.
+     * @param strategy     one of busyspin, spinyieldpark or adaptive
+     * @param spinMicros   how long to spin before yielding
+     * @param yieldMicros  how long to yield before parking
+     */
+    public static void configure(String strategy, int spinMicros, int yieldMicros)
+    {
+        final String name = strategy.trim().toLowerCase();
+        if (!name.equals(BUSY_SPIN) && !name.equals(SPIN_YIELD_PARK) && !name.equals(ADAPTIVE)) {
+            throw new IllegalArgumentException("Unknown site idle strategy " + strategy);
+        }
+        s_strategy = name;
+        s_spinNanos = TimeUnit.MICROSECONDS.toNanos(spinMicros);
+        s_yieldNanos = TimeUnit.MICROSECONDS.toNanos(yieldMicros);
+    }
+
+    /**
+     * @return a new instance of the configured strategy for a single queue
+     */
+    public static SiteIdleStrategy create()
+    {
+        final String name = s_strategy;
+        if (name.equals(BUSY_SPIN)) {
+            return new BusySpin();
+        } else if (name.equals(ADAPTIVE)) {
+            return new Adaptive(s_spinNanos, s_yieldNanos);
+        }
+        return new SpinYieldPark(s_spinNanos, s_yieldNanos);
+    }
+
+    /**
+     * @param idleNanos  time since the site found its queue empty
+     * @return what the site thread should do next while the queue is still empty
+     */
+    public abstract Phase phase(long idleNanos);
+
+    /**
+     * Called once a task arrived, with the phase the site was in at that point.
+     */
+    public void idleEnd(long idleNanos, Phase lastPhase) {}
+
+    /** Never gives up the core. Lowest latency, only sensible with a core per site. */
+    public static class BusySpin extends SiteIdleStrategy
+    {
+        @Override
+        public Phase phase(long idleNanos)
+        {
+            return Phase.SPIN;
+        }
+    }
+
+    /** Spin for a fixed time, then yield for a fixed time, then park. */
+    public static class SpinYieldPark extends SiteIdleStrategy
+    {
+        protected final long m_spinNanos;
+        protected final long m_yieldNanos;
+
+        public SpinYieldPark(long spinNanos, long yieldNanos)
+        {
+            m_spinNanos = spinNanos;
+            m_yieldNanos = yieldNanos;
+        }
+
+        protected long spinNanos()
+        {
+            return m_spinNanos;
+        }
+
+        @Override
+        public Phase phase(long idleNanos)
+        {
+            final long spinNanos = spinNanos();
+            if (idleNanos < spinNanos) {
+                return Phase.SPIN;
+            } else if (idleNanos < spinNanos + m_yieldNanos) {
+                return Phase.YIELD;
+            }
+            return Phase.PARK;
+        }
+    }
+
+    /**
+     * Like SpinYieldPark, but only spins while work has recently been arriving
+     * quickly enough for spinning to pay off. Keeps a moving average of how long
+     * the site waited for work; once that is well beyond the spin budget the site
+     * goes straight to yielding and parking, and goes back to spinning when
+     * arrivals speed up again.
+     */
+    public static class Adaptive extends SpinYieldPark
+    {
+        // Weight of the newest sample in the moving average, as a shift: 1/8
+        static final int EWMA_SHIFT = 3;
+        // Cap samples so one long quiet period doesn't disable spinning for ages
+        static final int MAX_SAMPLE_MULTIPLIER = 8;
+
+        private long m_avgIdleNanos = 0;
+
+        public Adaptive(long spinNanos, long yieldNanos)
+        {
+            super(spinNanos, yieldNanos);
+        }
+
+        @Override
+        protected long spinNanos()
+        {
+            return m_avgIdleNanos <= 2 * m_spinNanos ? m_spinNanos : 0;
+        }
+
+        @Override
+        public void idleEnd(long idleNanos, Phase lastPhase)
+        {
+            final long sample = Math.min(idleNanos, MAX_SAMPLE_MULTIPLIER * m_spinNanos);
+            m_avgIdleNanos += (sample - m_avgIdleNanos) >> EWMA_SHIFT;
+        }
+
+        long getAverageIdleNanos()
+        {
+            return m_avgIdleNanos;
+        }
+    }
+}
@@ -17,47 +17,156 @@
 
 package org.voltdb.iv2;
 
-import java.util.concurrent.LinkedTransferQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
-import org.voltcore.utils.CoreUtils;
 import org.voltdb.StarvationTracker;
+import org.voltdb.iv2.SiteIdleStrategy.Phase;
 
-/** SiteTaskerScheduler orders SiteTaskers for execution. */
+/**
+ * SiteTaskerScheduler orders SiteTaskers for execution.
+ *
+ * Many threads offer tasks but only the site thread takes them, so the tasks
+ * are kept in a multi-producer, single-consumer linked queue: offer is a
+ * single atomic swap and poll touches no shared atomic state. The queue is
+ * unbounded on purpose, a site offers work to its own queue and must never
+ * block doing so. What the site thread does while the queue is empty is up to
+ * the configured {@link SiteIdleStrategy}.
+ */
 public class SiteTaskerQueue
 {
-    private final LinkedTransferQueue<SiteTasker> m_tasks = new LinkedTransferQueue<SiteTasker>();
+    private static final class Node {
+        SiteTasker m_task;
+        volatile Node m_next;
+
+        Node(SiteTasker task) {
+            m_task = task;
+        }
+    }
+
+    // Producers append at the head, the consumer removes after the tail.
+    private final AtomicReference<Node> m_head;
+    private Node m_tail;
+
+    private final SiteIdleStrategy m_idleStrategy;
+    // The site thread, only set while it is (about to be) parked.
+    private volatile Thread m_parkedConsumer = null;
     private StarvationTracker m_starvationTracker;
 
+    public SiteTaskerQueue()
+    {
+        this(SiteIdleStrategy.create());
+    }
+
+    SiteTaskerQueue(SiteIdleStrategy idleStrategy)
+    {
+        m_tail = new Node(null);
+        m_head = new AtomicReference<Node>(m_tail);
+        m_idleStrategy = idleStrategy;
+    }
+
     public boolean offer(SiteTasker task)
     {
-        return m_tasks.offer(task);
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        final Node node = new Node(task);
+        final Node prev = m_head.getAndSet(node);
+        prev.m_next = node;
+
+        final Thread parked = m_parkedConsumer;
+        if (parked != null) {
+            LockSupport.unpark(parked);
+        }
+        return true;
     }
 
     // Block on the site tasker queue.
     public SiteTasker take() throws InterruptedException
     {
-        SiteTasker task = m_tasks.poll();
-        if (task == null) {
-            m_starvationTracker.beginStarvation();
-        } else {
+        SiteTasker task = poll();
+        if (task != null) {
             return task;
         }
+
+        m_starvationTracker.beginStarvation();
+        final long start = System.nanoTime();
+        long phaseStart = start;
+        Phase phase = null;
         try {
-            return CoreUtils.queueSpinTake(m_tasks);
+            for (;;) {
+                final long now = System.nanoTime();
+                final Phase next = m_idleStrategy.phase(now - start);
+                if (next != phase) {
+                    if (phase != null) {
+                        m_starvationTracker.addIdlePhaseTime(phase, now - phaseStart);
+                    }
+                    phase = next;
+                    phaseStart = now;
+                }
+
+                switch (phase) {
+                case YIELD:
+                    Thread.yield();
+                    break;
+                case PARK:
+                    park();
+                    break;
+                default:
+                    break;
+                }
+
+                task = poll();
+                if (task != null) {
+                    return task;
+                }
+            }
         } finally {
+            final long end = System.nanoTime();
+            if (phase != null) {
+                m_starvationTracker.addIdlePhaseTime(phase, end - phaseStart);
+            }
+            m_idleStrategy.idleEnd(end - start, phase);
             m_starvationTracker.endStarvation();
         }
     }
 
+    /**
+     * Park the site thread until a producer offers a task. The consumer publishes
+     * itself before the final emptiness check and producers read it after
+     * enqueueing, so an offer can't slip in between the check and the park
+     * without also unparking the site.
+     */
+    private void park() throws InterruptedException
+    {
+        m_parkedConsumer = Thread.currentThread();
+        try {
+            if (m_tail.m_next == null) {
+                LockSupport.park(this);
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        } finally {
+            m_parkedConsumer = null;
+        }
+    }
+
     // Non-blocking poll on the site tasker queue.
     public SiteTasker poll()
     {
-        return m_tasks.poll();
+        final Node next = m_tail.m_next;
+        if (next == null) {
+            return null;
+        }
+        final SiteTasker task = next.m_task;
+        next.m_task = null;
+        m_tail = next;
+        return task;
     }
 
     public boolean isEmpty() {
-        return m_tasks.isEmpty();
+        return m_head.get() == m_tail;
     }
 
     public void setStarvationTracker(StarvationTracker tracker) {
@@ -36,6 +36,7 @@ import org.voltdb.Promotable;
 import org.voltdb.SnapshotCompletionMonitor;
 import org.voltdb.StartAction;
 import org.voltdb.StatsAgent;
+import org.voltdb.StatsSelector;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltZK;
 import org.voltdb.export.ExportManager;
@@ -120,6 +121,10 @@ public class SpInitiator extends BaseInitiator implements Promotable
 
         super.configureCommon(backend, catalogContext, serializedCatalog,
                 csp, numberOfPartitions, startAction, agent, memStats, cl, coreBindIds, drGateway, mpPDRG);
+        agent.registerStatsSource(StatsSelector.MPYIELD,
+                                  getInitiatorHSId(),
+                                  new MpYieldStats(getInitiatorHSId(), m_partitionId,
+                                                   ((SpScheduler) m_scheduler).getPendingTasks()));
 
         m_tickProducer.start();
 
@@ -68,6 +68,8 @@ public class SpProcedureTask extends ProcedureTask
         if (HOST_DEBUG_ENABLED) {
             hostLog.debug("STARTING: " + this);
         }
+        final long traceHandle = TxnTracer.traceHandle(m_txnState);
+        TxnTracer.recordTraced(siteConnection, traceHandle, TxnTracer.Event.TASK_START);
         if (!m_txnState.isReadOnly()) {
             m_txnState.setBeginUndoToken(siteConnection.getLatestUndoToken());
         }
@@ -81,6 +83,7 @@ public class SpProcedureTask extends ProcedureTask
         completeInitiateTask(siteConnection);
         response.m_sourceHSId = m_initiator.getHSId();
         m_initiator.deliver(response);
+        TxnTracer.recordTraced(siteConnection, traceHandle, TxnTracer.Event.TASK_END);
         if (EXEC_TRACE_ENABLED) {
             execLog.l7dlog( Level.TRACE, LogKeys.org_voltdb_ExecutionSite_SendingCompletedWUToDtxn.name(), null);
         }
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -152,6 +153,9 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     // the current not-needed-any-more point of the repair log.
     long m_repairLogTruncationHandle = Long.MIN_VALUE;
 
+    // Reads spread to this replica that need writes it hasn't queued yet
+    private final List<Iv2InitiateTaskMessage> m_replicaReadsWaiting = new ArrayList<Iv2InitiateTaskMessage>();
+
     SpScheduler(int partitionId, SiteTaskerQueue taskQueue, SnapshotCompletionMonitor snapMonitor)
     {
         super(partitionId, taskQueue);
@@ -172,6 +176,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                                     offerPendingMPTasks(((TransactionTask) o).getTxnId());
                                 }
                             }
+                            releaseReplicaReads();
                         }
                     }
                 };
@@ -190,6 +195,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     {
         super.setLeaderState(isLeader);
         m_snapMonitor.addInterest(this);
+        releaseReplicaReads();
     }
 
     @Override
@@ -394,12 +400,41 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         else {
             throw new RuntimeException("UNKNOWN MESSAGE TYPE, BOOM!");
         }
+        releaseReplicaReads();
+    }
+
+    /*
+     * Run the reads waiting for writes this replica has queued since, or all of
+     * them if it became the leader, which by definition has every write.
+     */
+    private void releaseReplicaReads()
+    {
+        if (m_replicaReadsWaiting.isEmpty()) {
+            return;
+        }
+        final long maxTasked = getMaxTaskedSpHandle();
+        final List<Iv2InitiateTaskMessage> ready = new ArrayList<Iv2InitiateTaskMessage>();
+        Iterator<Iv2InitiateTaskMessage> iter = m_replicaReadsWaiting.iterator();
+        while (iter.hasNext()) {
+            Iv2InitiateTaskMessage read = iter.next();
+            if (m_isLeader || read.getSpHandle() <= maxTasked) {
+                iter.remove();
+                ready.add(read);
+            }
+        }
+        for (Iv2InitiateTaskMessage read : ready) {
+            handleIv2InitiateTaskMessage(read);
+        }
     }
 
     private long getMaxTaskedSpHandle() {
         return m_pendingTasks.getMaxTaskedSpHandle();
     }
 
+    TransactionTaskQueue getPendingTasks() {
+        return m_pendingTasks;
+    }
+
     // SpScheduler expects to see InitiateTaskMessages corresponding to single-partition
     // procedures only.
     public void handleIv2InitiateTaskMessage(Iv2InitiateTaskMessage message)
@@ -419,12 +454,21 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
              * this node. The CI will let a replica perform a read in this case and
              * it does looser tracking of client handles since it can't be
              * partitioned from the local replica.
+             *
+             * With the replica read level the CI may also send reads to remote
+             * replicas. Those carry the spHandle of the last write the CI has
+             * acknowledged for this partition, which the read has to wait for.
              */
-            if (!m_isLeader &&
+            final boolean isReplicaRead = message.getSpHandle() != Long.MIN_VALUE;
+            if (!m_isLeader && !isReplicaRead &&
                     CoreUtils.getHostIdFromHSId(msg.getInitiatorHSId()) !=
                     CoreUtils.getHostIdFromHSId(m_mailbox.getHSId())) {
                 VoltDB.crashLocalVoltDB("Only allowed to do short circuit reads locally", true, null);
                     }
+            if (!m_isLeader && isReplicaRead && message.getSpHandle() > getMaxTaskedSpHandle()) {
+                m_replicaReadsWaiting.add(message);
+                return;
+            }
 
             /*
              * If this is for CL replay or DR, update the unique ID generator
@@ -532,6 +576,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             uniqueId = msg.getUniqueId();
         }
         Iv2Trace.logIv2InitiateTaskMessage(message, m_mailbox.getHSId(), msg.getTxnId(), newSpHandle);
+        TxnTracer.record(m_mailbox.getHSId(), m_partitionId, msg.getClientInterfaceHandle(), TxnTracer.Event.SCHEDULE);
         doLocalInitiateOffer(msg);
         return;
     }
@@ -673,6 +718,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         final DuplicateCounterKey dcKey = new DuplicateCounterKey(message.getTxnId(), spHandle);
         DuplicateCounter counter = m_duplicateCounters.get(dcKey);
         if (counter != null) {
+            TxnTracer.record(m_mailbox.getHSId(), m_partitionId, message.getClientInterfaceHandle(), TxnTracer.Event.REPLICA_ACK);
             int result = counter.offer(message);
             if (result == DuplicateCounter.DONE) {
                 m_duplicateCounters.remove(dcKey);
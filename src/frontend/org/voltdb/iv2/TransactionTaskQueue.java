@@ -37,6 +37,25 @@ public class TransactionTaskQueue
      */
     private Deque<TransactionTask> m_backlog = new ArrayDeque<TransactionTask>();
 
+    /*
+     * Reads don't conflict, so a read-only single part can run between the
+     * fragments of a read-only multi-part instead of waiting for it to finish.
+     * It never passes a write in the backlog, so a client still sees its own
+     * earlier writes. Set SP_READS_PASS_MP_READS=false to always wait.
+     */
+    static final boolean SP_READS_PASS_MP_READS =
+        Boolean.valueOf(System.getProperty("SP_READS_PASS_MP_READS", "true"));
+
+    // Number of tasks in the backlog that aren't read-only
+    private int m_backlogWrites = 0;
+
+    // Single parts that passed a multi-part read, and the wait they were spared.
+    // The wait of the ones passing the current multi-part is counted when it finishes.
+    private long m_readsPassed = 0;
+    private long m_passedWaitNanos = 0;
+    private int m_pendingPassed = 0;
+    private long m_pendingPassedOfferNanos = 0;
+
     /*
      * Track the maximum spHandle offered to the task queue
      */
@@ -72,8 +91,17 @@ public class TransactionTaskQueue
              */
             if (task.getTxnId() != m_backlog.getFirst().getTxnId())
             {
-                m_backlog.addLast(task);
-                retval = true;
+                if (SP_READS_PASS_MP_READS && m_backlogWrites == 0 &&
+                        txnState.isSinglePartition() && txnState.isReadOnly()) {
+                    ++m_readsPassed;
+                    ++m_pendingPassed;
+                    m_pendingPassedOfferNanos += System.nanoTime();
+                    taskQueueOffer(task);
+                }
+                else {
+                    addToBacklog(task);
+                    retval = true;
+                }
             }
             else {
                 taskQueueOffer(task);
@@ -87,7 +115,7 @@ public class TransactionTaskQueue
              * multipart
              */
             if (!task.getTransactionState().isSinglePartition()) {
-                m_backlog.addLast(task);
+                addToBacklog(task);
                 retval = true;
             }
             taskQueueOffer(task);
@@ -95,6 +123,21 @@ public class TransactionTaskQueue
         return retval;
     }
 
+    private void addToBacklog(TransactionTask task)
+    {
+        if (!task.getTransactionState().isReadOnly()) {
+            ++m_backlogWrites;
+        }
+        m_backlog.addLast(task);
+    }
+
+    private void removedFromBacklog(TransactionTask task)
+    {
+        if (!task.getTransactionState().isReadOnly()) {
+            --m_backlogWrites;
+        }
+    }
+
     // Add a local method to offer to the SiteTaskerQueue so we have
     // a single point we can log through.
     private void taskQueueOffer(TransactionTask task)
@@ -135,7 +178,13 @@ public class TransactionTaskQueue
         if (m_backlog.isEmpty() || !m_backlog.getFirst().getTransactionState().isDone()) {
             return offered;
         }
-        m_backlog.removeFirst();
+        removedFromBacklog(m_backlog.removeFirst());
+        if (m_pendingPassed > 0) {
+            // Without passing, these reads would have waited until now
+            m_passedWaitNanos += m_pendingPassed * System.nanoTime() - m_pendingPassedOfferNanos;
+            m_pendingPassed = 0;
+            m_pendingPassedOfferNanos = 0;
+        }
         Iterator<TransactionTask> iter = m_backlog.iterator();
         while (iter.hasNext()) {
             TransactionTask task = iter.next();
@@ -145,6 +194,7 @@ public class TransactionTaskQueue
             if (task.getTransactionState().isSinglePartition()) {
                 // single part can be immediately removed and offered
                 iter.remove();
+                removedFromBacklog(task);
                 continue;
             }
             else {
@@ -154,6 +204,7 @@ public class TransactionTaskQueue
                     task = iter.next();
                     if (task.getTxnId() == lastQueuedTxnId) {
                         iter.remove();
+                        removedFromBacklog(task);
                         taskQueueOffer(task);
                         ++offered;
                     }
@@ -174,6 +225,16 @@ public class TransactionTaskQueue
         taskQueueOffer(m_backlog.getFirst());
     }
 
+    /**
+     * @return the number of read-only single parts that ran ahead of a
+     * multi-part read, and in [1] the total nanoseconds they would otherwise
+     * have waited for it to finish.
+     */
+    synchronized long[] getReadsPassed()
+    {
+        return new long[] { m_readsPassed, m_passedWaitNanos };
+    }
+
     /**
      * How many Tasks are un-runnable?
      * @return
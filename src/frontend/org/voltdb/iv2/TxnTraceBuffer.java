@@ -0,0 +1,158 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed size ring of trace events that overwrites its oldest entries.
+ *
+ * Any number of threads may record into the ring without locking: a writer
+ * claims the next sequence number and then owns the slot it maps to while it
+ * fills it in. Every slot carries a stamp holding the sequence number of the
+ * event in it, or BUSY while a writer is filling it. Readers copy a slot and
+ * only keep the copy if the stamp was the same before and after, so a
+ * snapshot never contains half written events. A writer that laps a slower
+ * writer still working on the same slot drops its event instead of waiting.
+ */
+public class TxnTraceBuffer
+{
+    static final long BUSY = -1;
+    static final long EMPTY = -2;
+
+    /** One event copied out of the ring. */
+    public static class Entry
+    {
+        public final long seq;
+        public final long ciHandle;
+        public final TxnTracer.Event event;
+        public final long nanos;
+
+        Entry(long seq, long ciHandle, TxnTracer.Event event, long nanos)
+        {
+            this.seq = seq;
+            this.ciHandle = ciHandle;
+            this.event = event;
+            this.nanos = nanos;
+        }
+    }
+
+    private final int m_partitionId;
+    private final int m_mask;
+    private final AtomicLong m_nextSeq = new AtomicLong(0);
+    private final AtomicLong m_dropped = new AtomicLong(0);
+
+    private final AtomicLongArray m_stamps;
+    private final AtomicLongArray m_handles;
+    private final AtomicLongArray m_events;
+    private final AtomicLongArray m_nanos;
+
+    /**
+     * @param partitionId  partition whose events are recorded here
+     * @param capacity     number of events kept, rounded up to a power of two
+     */
+    public TxnTraceBuffer(int partitionId, int capacity)
+    {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Trace buffer capacity must be positive: " + capacity);
+        }
+        final int size = Integer.highestOneBit(capacity) == capacity ?
+                capacity : Integer.highestOneBit(capacity) << 1;
+        m_partitionId = partitionId;
+        m_mask = size - 1;
+        m_stamps = new AtomicLongArray(size);
+        m_handles = new AtomicLongArray(size);
+        m_events = new AtomicLongArray(size);
+        m_nanos = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            m_stamps.set(i, EMPTY);
+        }
+    }
+
+    public int getPartitionId()
+    {
+        return m_partitionId;
+    }
+
+    public int getCapacity()
+    {
+        return m_mask + 1;
+    }
+
+    /**
+     * @return the number of events dropped because their slot was still being written
+     */
+    public long getDropped()
+    {
+        return m_dropped.get();
+    }
+
+    /**
+     * @return the sequence number the next recorded event will get
+     */
+    public long getNextSeq()
+    {
+        return m_nextSeq.get();
+    }
+
+    public void record(long ciHandle, TxnTracer.Event event, long nanos)
+    {
+        final long seq = m_nextSeq.getAndIncrement();
+        final int slot = (int)(seq & m_mask);
+        final long stamp = m_stamps.get(slot);
+        if (stamp == BUSY || !m_stamps.compareAndSet(slot, stamp, BUSY)) {
+            m_dropped.incrementAndGet();
+            return;
+        }
+        m_handles.lazySet(slot, ciHandle);
+        m_events.lazySet(slot, event.ordinal());
+        m_nanos.lazySet(slot, nanos);
+        m_stamps.set(slot, seq);
+    }
+
+    /**
+     * Copy out the events currently in the ring, oldest first.
+     * @param afterSeq  only return events with a sequence number greater than this,
+     *                  -1 for everything still in the ring
+     */
+    public List<Entry> snapshot(long afterSeq)
+    {
+        final TxnTracer.Event[] events = TxnTracer.Event.values();
+        final long end = m_nextSeq.get();
+        final long start = Math.max(afterSeq + 1, end - getCapacity());
+        final List<Entry> entries = new ArrayList<Entry>((int)Math.max(0, end - start));
+        for (long seq = Math.max(0, start); seq < end; seq++) {
+            final int slot = (int)(seq & m_mask);
+            if (m_stamps.get(slot) != seq) {
+                // still being written, overwritten or dropped
+                continue;
+            }
+            final long ciHandle = m_handles.get(slot);
+            final long event = m_events.get(slot);
+            final long nanos = m_nanos.get(slot);
+            if (m_stamps.get(slot) != seq) {
+                continue;
+            }
+            entries.add(new Entry(seq, ciHandle, events[(int)event], nanos));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,125 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.voltdb.SiteStatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Exposes a site's TxnTraceBuffer, or the ClientInterface's buffers of the
+ * host, as "@Statistics TXNTRACE", one row per traced event. The interval
+ * form only returns events recorded since the previous interval request.
+ */
+public class TxnTraceStats extends SiteStatsSource {
+
+    public static interface Constants {
+        public final static String PARTITION_ID = "PARTITION_ID";
+        public final static String CI_HANDLE = "CI_HANDLE";
+        public final static String EVENT = "EVENT";
+        public final static String TIMESTAMP = "TIMESTAMP";
+    }
+
+    private static class Row {
+        final int partitionId;
+        final TxnTraceBuffer.Entry entry;
+
+        Row(int partitionId, TxnTraceBuffer.Entry entry) {
+            this.partitionId = partitionId;
+            this.entry = entry;
+        }
+    }
+
+    private final long m_siteId;
+    private final int m_partitionId;
+    private final boolean m_client;
+    private final Map<TxnTraceBuffer, Long> m_lastIntervalSeqs = new HashMap<TxnTraceBuffer, Long>();
+
+    /**
+     * The events of the site siteId of the partition
+     */
+    public TxnTraceStats(long siteId, int partitionId) {
+        this(siteId, partitionId, false);
+    }
+
+    /**
+     * The events of the ClientInterface whose mailbox is ciHSId, for every partition
+     */
+    public static TxnTraceStats forClientInterface(long ciHSId) {
+        return new TxnTraceStats(ciHSId, -1, true);
+    }
+
+    private TxnTraceStats(long siteId, int partitionId, boolean client) {
+        super(siteId, false);
+        m_siteId = siteId;
+        m_partitionId = partitionId;
+        m_client = client;
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo(Constants.PARTITION_ID, VoltType.INTEGER));
+        columns.add(new ColumnInfo(Constants.CI_HANDLE, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.EVENT, VoltType.STRING));
+        columns.add(new ColumnInfo(Constants.TIMESTAMP, VoltType.BIGINT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object rowValues[]) {
+        Row row = (Row)rowKey;
+        TxnTraceBuffer.Entry entry = row.entry;
+        rowValues[columnNameToIndex.get(Constants.PARTITION_ID)] = row.partitionId;
+        rowValues[columnNameToIndex.get(Constants.CI_HANDLE)] = entry.ciHandle;
+        rowValues[columnNameToIndex.get(Constants.EVENT)] = entry.event.name();
+        rowValues[columnNameToIndex.get(Constants.TIMESTAMP)] = entry.nanos;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected synchronized Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        if (!TxnTracer.ENABLED) {
+            return Collections.emptyIterator();
+        }
+        final List<TxnTraceBuffer> buffers = m_client ? TxnTracer.getClientBuffers() :
+            Collections.singletonList(TxnTracer.getSiteBuffer(m_siteId, m_partitionId));
+        final List<Row> rows = new ArrayList<Row>();
+        for (TxnTraceBuffer buffer : buffers) {
+            final Long lastSeq = m_lastIntervalSeqs.get(buffer);
+            final List<TxnTraceBuffer.Entry> entries =
+                    buffer.snapshot(interval && lastSeq != null ? lastSeq : -1);
+            if (interval && !entries.isEmpty()) {
+                m_lastIntervalSeqs.put(buffer, entries.get(entries.size() - 1).seq);
+            }
+            for (TxnTraceBuffer.Entry entry : entries) {
+                rows.add(new Row(buffer.getPartitionId(), entry));
+            }
+        }
+        @SuppressWarnings("rawtypes")
+        Iterator iter = rows.iterator();
+        return (Iterator<Object>)iter;
+    }
+}
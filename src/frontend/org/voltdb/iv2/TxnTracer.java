@@ -0,0 +1,244 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.voltcore.messaging.TransactionInfoBaseMessage;
+import org.voltcore.utils.CoreUtils;
+import org.voltdb.ClientInterfaceHandleManager;
+import org.voltdb.SiteProcedureConnection;
+import org.voltdb.dtxn.TransactionState;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+
+/**
+ * Sampled per-transaction tracing.
+ *
+ * One in TXN_TRACE_SAMPLE_RATE transactions (0, the default, turns tracing
+ * off) gets a nanosecond timestamp recorded at each step of its life: creation
+ * in the ClientInterface, scheduling, replica acknowledgement, task execution,
+ * the procedure call, EE fragment execution and the response being handed to
+ * the client connection. Whether a transaction is sampled is decided from its
+ * ClientInterface handle, so every component on every host makes the same
+ * decision without anything being added to the messages.
+ *
+ * Events recorded by a site or its scheduler go into that site's TxnTraceBuffer,
+ * so replicas of a partition on the same host keep their events apart. Events
+ * recorded by the ClientInterface go into one buffer per partition for the host.
+ * The buffers can be read through "@Statistics TXNTRACE" or written to
+ * TXN_TRACE_DUMP_FILE at shutdown.
+ * Timestamps come from System.nanoTime() and are only comparable between
+ * events recorded on the same host.
+ */
+public class TxnTracer
+{
+    public enum Event {
+        CREATE,         // ClientInterface created the initiate task
+        SCHEDULE,       // SP leader or MPI scheduled the transaction
+        REPLICA_ACK,    // a replica's response reached the SP leader
+        TASK_START,     // the transaction task started running on the site
+        PROC_START,     // ProcedureRunner.call started
+        EE_START,       // a batch was handed to the EE
+        EE_END,         // the EE returned the batch results
+        PROC_END,       // ProcedureRunner.call finished
+        TASK_END,       // the task delivered its response
+        RESPONSE        // ClientInterface queued the response to the connection
+    }
+
+    public static final long NOT_TRACED = Long.MIN_VALUE;
+
+    public static final int SAMPLE_RATE = Integer.getInteger("TXN_TRACE_SAMPLE_RATE", 0);
+    public static final boolean ENABLED = SAMPLE_RATE > 0;
+    static final int BUFFER_SIZE = Integer.getInteger("TXN_TRACE_BUFFER_SIZE", 8192);
+    static final String DUMP_FILE = System.getProperty("TXN_TRACE_DUMP_FILE");
+
+    // by the HSId of the site
+    private static final Map<Long, TxnTraceBuffer> s_siteBuffers =
+            new ConcurrentHashMap<Long, TxnTraceBuffer>();
+    // by partition
+    private static final Map<Integer, TxnTraceBuffer> s_clientBuffers =
+            new ConcurrentHashMap<Integer, TxnTraceBuffer>();
+
+    /**
+     * Sampling decision for a ClientInterface handle. The low bits of a handle
+     * are a sequence number, so mix them before taking the remainder to avoid
+     * always picking the same procedures in workloads that cycle through them.
+     */
+    public static boolean isSampled(long ciHandle)
+    {
+        return isSampled(ciHandle, SAMPLE_RATE);
+    }
+
+    static boolean isSampled(long ciHandle, int rate)
+    {
+        if (rate <= 0) {
+            return false;
+        }
+        final long mixed = (ciHandle * 0x9E3779B97F4A7C15L) >>> 32;
+        return mixed % rate == 0;
+    }
+
+    private static <K> TxnTraceBuffer getBuffer(Map<K, TxnTraceBuffer> buffers, K key, int partitionId)
+    {
+        TxnTraceBuffer buffer = buffers.get(key);
+        if (buffer == null) {
+            synchronized (buffers) {
+                buffer = buffers.get(key);
+                if (buffer == null) {
+                    buffer = new TxnTraceBuffer(partitionId, BUFFER_SIZE);
+                    buffers.put(key, buffer);
+                }
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * @return the buffer for the site of the partition, created on first use
+     */
+    public static TxnTraceBuffer getSiteBuffer(long hsId, int partitionId)
+    {
+        return getBuffer(s_siteBuffers, hsId, partitionId);
+    }
+
+    /**
+     * @return the buffer for the ClientInterface's events of the partition, created on first use
+     */
+    public static TxnTraceBuffer getClientBuffer(int partitionId)
+    {
+        return getBuffer(s_clientBuffers, partitionId, partitionId);
+    }
+
+    /**
+     * @return the buffers of the ClientInterface's events, by partition
+     */
+    public static List<TxnTraceBuffer> getClientBuffers()
+    {
+        return new ArrayList<TxnTraceBuffer>(new TreeMap<Integer, TxnTraceBuffer>(s_clientBuffers).values());
+    }
+
+    /**
+     * Record an event of the site hsId, or of its scheduler.
+     */
+    public static void record(long hsId, int partitionId, long ciHandle, Event event)
+    {
+        if (ENABLED && isSampled(ciHandle)) {
+            getSiteBuffer(hsId, partitionId).record(ciHandle, event, System.nanoTime());
+        }
+    }
+
+    /**
+     * Record an event of the ClientInterface.
+     */
+    public static void recordClient(int partitionId, long ciHandle, Event event)
+    {
+        if (ENABLED && isSampled(ciHandle)) {
+            getClientBuffer(partitionId).record(ciHandle, event, System.nanoTime());
+        }
+    }
+
+    /**
+     * Record an event for a transaction already known to be sampled, see
+     * {@link #traceHandle(TransactionState)}.
+     */
+    public static void recordTraced(long hsId, int partitionId, long traceHandle, Event event)
+    {
+        if (traceHandle != NOT_TRACED) {
+            getSiteBuffer(hsId, partitionId).record(traceHandle, event, System.nanoTime());
+        }
+    }
+
+    public static void recordTraced(SiteProcedureConnection site, long traceHandle, Event event)
+    {
+        if (traceHandle != NOT_TRACED) {
+            recordTraced(site.getCorrespondingSiteId(), site.getCorrespondingPartitionId(), traceHandle, event);
+        }
+    }
+
+    /**
+     * @return the ClientInterface handle of the transaction if it is sampled,
+     * NOT_TRACED otherwise. Transactions not started by an initiate task, such
+     * as multi-partition fragments, are not traced.
+     */
+    public static long traceHandle(TransactionState txnState)
+    {
+        if (!ENABLED || txnState == null) {
+            return NOT_TRACED;
+        }
+        final TransactionInfoBaseMessage notice = txnState.getNotice();
+        if (notice instanceof Iv2InitiateTaskMessage) {
+            final long ciHandle = ((Iv2InitiateTaskMessage)notice).getClientInterfaceHandle();
+            if (isSampled(ciHandle)) {
+                return ciHandle;
+            }
+        }
+        return NOT_TRACED;
+    }
+
+    /**
+     * Write every buffered event to the file, one line per event, grouped by
+     * buffer and oldest first. The ClientInterface's events come first, with
+     * CLIENT for their site.
+     */
+    public static void dump(File file) throws IOException
+    {
+        final PrintWriter out = new PrintWriter(new FileWriter(file));
+        try {
+            out.println("PARTITION_ID,SITE,CI_HANDLE,EVENT,TIMESTAMP");
+            for (TxnTraceBuffer buffer : getClientBuffers()) {
+                dump(out, buffer, "CLIENT");
+            }
+            for (Map.Entry<Long, TxnTraceBuffer> e : new TreeMap<Long, TxnTraceBuffer>(s_siteBuffers).entrySet()) {
+                dump(out, e.getValue(), CoreUtils.hsIdToString(e.getKey()));
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void dump(PrintWriter out, TxnTraceBuffer buffer, String site)
+    {
+        for (TxnTraceBuffer.Entry e : buffer.snapshot(-1)) {
+            out.println(buffer.getPartitionId() + "," + site + "," +
+                        ClientInterfaceHandleManager.handleToString(e.ciHandle) + "," +
+                        e.event.name() + "," + e.nanos);
+        }
+    }
+
+    /**
+     * Dump to TXN_TRACE_DUMP_FILE if tracing is on and the file is configured.
+     * @return the file written, or null
+     */
+    public static File dumpIfConfigured() throws IOException
+    {
+        if (!ENABLED || DUMP_FILE == null) {
+            return null;
+        }
+        final File file = new File(DUMP_FILE);
+        dump(file);
+        return file;
+    }
+}
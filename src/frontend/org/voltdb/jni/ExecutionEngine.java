@@ -88,6 +88,7 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
 
     /** Statistics collector (provided later) */
     private PlannerStatsCollector m_plannerStats = null;
+    private Long m_statsStartTime = null;
 
     // used for tracking statistics about the plan cache in the EE
     private int m_cacheMisses = 0;
@@ -997,7 +998,7 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     protected void startStatsCollection() {
         if (m_plannerStats != null) {
-            m_plannerStats.startStatsCollection();
+            m_statsStartTime = m_plannerStats.startStatsCollection();
         }
     }
 
@@ -1009,7 +1010,8 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     protected void endStatsCollection(long cacheSize, CacheUse cacheUse) {
         if (m_plannerStats != null) {
-            m_plannerStats.endStatsCollection(cacheSize, 0, cacheUse, m_partitionId);
+            m_plannerStats.endStatsCollection(m_statsStartTime, cacheSize, 0, cacheUse, m_partitionId);
+            m_statsStartTime = null;
         }
     }
 
@@ -53,7 +53,7 @@ public class BalancePartitionsStatistics extends StatsSource {
     // Bytes transferred in each @BalancePartitions call in the past second.
     // Keyed by nanosecond timestamp.
     TreeMap<Long, Long> bytesTransferredInLastSec = Maps.newTreeMap();
-    long throughput = 0;
+    volatile long throughput = 0;
     long lastTransferTimeNanos = 0;
 
     private volatile StatsPoint statsPoint;
@@ -158,10 +158,12 @@ public class BalancePartitionsStatistics extends StatsSource {
             log.info(String.format("JOIN PROGRESS SUMMARY: "
                                    + "time elapsed: %s  "
                                    + "amount completed: %.2f%%  "
-                                   + "est. time remaining: %s",
+                                   + "est. time remaining: %s  "
+                                   + "current rate: %d bytes/second",
                                    this.overallStats.getFormattedDuration(),
                                    this.overallStats.getCompletedFraction() * 100.0,
-                                   this.overallStats.getFormattedEstimatedRemaining()));
+                                   this.overallStats.getFormattedEstimatedRemaining(),
+                                   this.throughput));
             log.info(String.format("JOIN DIAGNOSTICS: %s", intervalStats.toString()));
             log.info(String.format("JOIN DIAGNOSTICS: %s", overallStats.toString()));
         }
@@ -207,6 +209,8 @@ public class BalancePartitionsStatistics extends StatsSource {
         public final static String CALLS_LATENCY = "CALLS_LATENCY";
         public final static String CALLS_TIME = "CALLS_TIME";
         public final static String CALLS_TRANSFER_TIME = "CALLS_TRANSFER_TIME";
+        public final static String BYTES_PER_SECOND = "BYTES_PER_SECOND";
+        public final static String ESTIMATED_COMPLETION = "ESTIMATED_COMPLETION";
     }
 
     @Override
@@ -222,14 +226,18 @@ public class BalancePartitionsStatistics extends StatsSource {
         columns.add(new ColumnInfo(Constants.CALLS_LATENCY, VoltType.FLOAT));
         columns.add(new ColumnInfo(Constants.CALLS_TIME, VoltType.FLOAT));
         columns.add(new ColumnInfo(Constants.CALLS_TRANSFER_TIME, VoltType.FLOAT));
+        columns.add(new ColumnInfo(Constants.BYTES_PER_SECOND, VoltType.BIGINT));
+        columns.add(new ColumnInfo(Constants.ESTIMATED_COMPLETION, VoltType.BIGINT));
     }
 
     @Override
     protected void updateStatsRow(Object rowKey, Object[] rowValues)
     {
         final StatsPoint point = statsPoint;
+        final long now = System.currentTimeMillis();
+        final double remaining = point.getEstimatedRemaining();
 
-        rowValues[columnNameToIndex.get(Constants.TIMESTAMP)] = System.currentTimeMillis();
+        rowValues[columnNameToIndex.get(Constants.TIMESTAMP)] = now;
         rowValues[columnNameToIndex.get(Constants.PERCENTAGE_MOVED)] = point.getPercentageMoved();
         rowValues[columnNameToIndex.get(Constants.MOVED_ROWS)] = point.getMovedRows();
         rowValues[columnNameToIndex.get(Constants.ROWS_PER_SECOND)] = point.getRowsPerSecond();
@@ -239,6 +247,9 @@ public class BalancePartitionsStatistics extends StatsSource {
         rowValues[columnNameToIndex.get(Constants.CALLS_LATENCY)] = point.getAverageInvocationLatency();
         rowValues[columnNameToIndex.get(Constants.CALLS_TIME)] = point.getAverageInvocationTime();
         rowValues[columnNameToIndex.get(Constants.CALLS_TRANSFER_TIME)] = point.getAverageInvocationTransferTime();
+        rowValues[columnNameToIndex.get(Constants.BYTES_PER_SECOND)] = throughput;
+        // Wall clock time the rebalance is expected to finish, -1 until there is an estimate
+        rowValues[columnNameToIndex.get(Constants.ESTIMATED_COMPLETION)] = remaining < 0 ? -1L : now + (long) remaining;
     }
 
     @Override
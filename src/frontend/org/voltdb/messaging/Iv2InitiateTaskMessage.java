@@ -129,6 +129,13 @@ public class Iv2InitiateTaskMessage extends TransactionInfoBaseMessage {
         return m_invocation.getParams().toArray();
     }
 
+    /**
+     * @see StoredProcedureInvocation#getParamsForCall(Class[])
+     */
+    public Object[] getParameters(Class<?>[] paramTypes) {
+        return m_invocation.getParamsForCall(paramTypes);
+    }
+
     public long getClientInterfaceHandle() {
         return m_clientInterfaceHandle;
     }
@@ -56,6 +56,11 @@ public class Iv2RepairLogResponseMessage extends VoltMessage
     // log request was processed and that no logs exist.)
     private VoltMessage m_payload = null;
 
+    // The payload as serialized by a repair log that stored it that way, until
+    // getPayload() deserializes it.
+    private ByteBuffer m_serializedPayload = null;
+    private long m_payloadSourceHSId;
+
     // Only set when sequence is 0
     private byte [] m_hashinatorConfig = new byte[0];
 
@@ -76,6 +81,24 @@ public class Iv2RepairLogResponseMessage extends VoltMessage
         m_payload = payload;
     }
 
+    /**
+     * A response whose payload is already serialized. It is sent without being
+     * deserialized and re-serialized, and only deserialized on a local getPayload().
+     */
+    public Iv2RepairLogResponseMessage(long requestId, int sequence,
+            int ofTotal, long spHandle, long txnId, long payloadSourceHSId,
+            ByteBuffer serializedPayload)
+    {
+        super();
+        m_requestId = requestId;
+        m_sequence = sequence;
+        m_ofTotal = ofTotal;
+        m_handle = spHandle;
+        m_txnId = txnId;
+        m_payloadSourceHSId = payloadSourceHSId;
+        m_serializedPayload = serializedPayload;
+    }
+
     public Iv2RepairLogResponseMessage(long requestId, int ofTotal,
             long spHandle, long txnId,
             Pair<Long, byte[]> versionedHashinatorConfig,
@@ -127,6 +150,15 @@ public class Iv2RepairLogResponseMessage extends VoltMessage
 
     public VoltMessage getPayload()
     {
+        if (m_payload == null && m_serializedPayload != null) {
+            try {
+                m_payload = new VoltDbMessageFactory().createMessageFromBuffer(
+                        m_serializedPayload.duplicate(), m_payloadSourceHSId);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to deserialize repair log entry", e);
+            }
+            m_serializedPayload = null;
+        }
         return m_payload;
     }
 
@@ -157,6 +189,8 @@ public class Iv2RepairLogResponseMessage extends VoltMessage
         msgsize += 8; // binaryLogUniqueId
         if (m_payload != null) {
             msgsize += m_payload.getSerializedSize();
+        } else if (m_serializedPayload != null) {
+            msgsize += m_serializedPayload.remaining();
         }
         if (m_hashinatorConfig.length > 0) {
             msgsize += 8; // hashinator version
@@ -185,6 +219,8 @@ public class Iv2RepairLogResponseMessage extends VoltMessage
                 paybuf.flip();
             }
             buf.put(paybuf);
+        } else if (m_serializedPayload != null) {
+            buf.put(m_serializedPayload.duplicate());
         }
         if (m_hashinatorConfig.length > 0) {
             buf.putLong(m_hashinatorVersion);
@@ -238,11 +274,14 @@ public class Iv2RepairLogResponseMessage extends VoltMessage
         sb.append(" TXNID: ");
         sb.append(m_txnId);
         sb.append(" PAYLOAD: ");
-        if (m_payload == null) {
-            sb.append("null");
+        if (m_payload != null) {
+            sb.append(m_payload.toString());
+        }
+        else if (m_serializedPayload != null) {
+            sb.append(m_serializedPayload.remaining()).append(" SERIALIZED BYTES");
         }
         else {
-            sb.append(m_payload.toString());
+            sb.append("null");
         }
         if (m_hashinatorConfig.length > 0)
         {
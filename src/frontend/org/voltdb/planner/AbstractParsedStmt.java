@@ -60,10 +60,26 @@ import org.voltdb.types.QuantifierType;
 
 public abstract class AbstractParsedStmt {
 
-     // Internal statement counter
-    public static int NEXT_STMT_ID = 0;
-    // Internal parameter counter
-    public static int NEXT_PARAMETER_ID = 0;
+    // Internal statement and parameter counters. Ad hoc statements are
+    // planned on several threads at once, so each thread counts on its own.
+    private static class IdCounters {
+        int nextStmtId = 0;
+        int nextParameterId = 0;
+    }
+    private static final ThreadLocal<IdCounters> ID_COUNTERS = new ThreadLocal<IdCounters>() {
+        @Override
+        protected IdCounters initialValue() {
+            return new IdCounters();
+        }
+    };
+
+    public static int nextStmtId() {
+        return ID_COUNTERS.get().nextStmtId++;
+    }
+
+    public static int nextParameterId() {
+        return ID_COUNTERS.get().nextParameterId++;
+    }
 
     // The unique id to identify the statement
     public int m_stmtId;
@@ -171,7 +187,7 @@ public abstract class AbstractParsedStmt {
            throw new RuntimeException("Unexpected Element: " + stmtTypeElement.name);
        }
        // Set the unique id
-       retval.m_stmtId = NEXT_STMT_ID++;
+       retval.m_stmtId = nextStmtId();
        return retval;
    }
 
@@ -206,8 +222,9 @@ public abstract class AbstractParsedStmt {
             Database db, String joinOrder) {
 
         // reset the statement counters
-        NEXT_STMT_ID = 0;
-        NEXT_PARAMETER_ID = 0;
+        final IdCounters counters = ID_COUNTERS.get();
+        counters.nextStmtId = 0;
+        counters.nextParameterId = 0;
         AbstractParsedStmt retval = getParsedStmt(stmtTypeElement, paramValues, db);
 
         parse(retval, sql, stmtTypeElement, db, joinOrder);
@@ -444,7 +461,7 @@ public abstract class AbstractParsedStmt {
         }
 
         // This a TVE from the correlated expression
-        int paramIdx = NEXT_PARAMETER_ID++;
+        int paramIdx = nextParameterId();
         ParameterValueExpression pve = new ParameterValueExpression(paramIdx, expr);
         m_parameterTveMap.put(paramIdx, expr);
         return pve;
@@ -772,13 +789,13 @@ public abstract class AbstractParsedStmt {
     protected AbstractExpression replaceExpressionsWithPve(AbstractExpression expr) {
         assert(expr != null);
         if (expr instanceof TupleValueExpression) {
-            int paramIdx = NEXT_PARAMETER_ID++;
+            int paramIdx = nextParameterId();
             ParameterValueExpression pve = new ParameterValueExpression(paramIdx, expr);
             m_parameterTveMap.put(paramIdx, expr);
             return pve;
         }
         if (expr instanceof AggregateExpression) {
-            int paramIdx = NEXT_PARAMETER_ID++;
+            int paramIdx = nextParameterId();
             ParameterValueExpression pve = new ParameterValueExpression(paramIdx, expr);
             // Disallow aggregation of parent columns in a subquery.
             // except the case HAVING AGG(T1.C1) IN (SELECT T2.C2 ...)
@@ -1062,8 +1079,9 @@ public abstract class AbstractParsedStmt {
                 m_paramsByIndex.put(index, pve);
             }
         }
-        if (max_parameter_id >= NEXT_PARAMETER_ID) {
-            NEXT_PARAMETER_ID = (int)max_parameter_id + 1;
+        final IdCounters counters = ID_COUNTERS.get();
+        if (max_parameter_id >= counters.nextParameterId) {
+            counters.nextParameterId = (int)max_parameter_id + 1;
         }
     }
 
@@ -109,23 +109,43 @@ public abstract class ActivePlanRepository {
                     evictLRUfragment();
                 }
             }
+            return addRef(frag, stmtText);
+        }
+    }
 
-            // Bit of a hack to work around an issue where a statement-less adhoc
-            // fragment could be identical to a statement-needing regular procedure.
-            // This doesn't really address the broader issue that fragment hashes
-            // are not 1-1 with SQL statements.
-            if (frag.stmtText == null) {
-                frag.stmtText = stmtText;
+    /**
+     * Addref the plan identified by 20-byte sha-1 hash if it is already loaded,
+     * so callers loading the same catalog on many sites decode each plan once.
+     * @return the site-local fragment id, or -1 if the plan isn't loaded.
+     */
+    public static long addRefPlanFragmentIfLoaded(byte[] planHash, String stmtText) {
+        Sha1Wrapper key = new Sha1Wrapper(planHash);
+        synchronized (FragInfo.class) {
+            FragInfo frag = m_plansByHash.get(key);
+            if (frag == null) {
+                return -1;
             }
+            return addRef(frag, stmtText);
+        }
+    }
 
-            // The fragment MAY be in the LRU map.
-            // An incremented refCount is a lazy way to keep it safe from eviction
-            // without having to update the map.
-            // This optimizes for popular fragments in a small or stable cache that may be reused
-            // many times before the eviction process needs to take any notice.
-            frag.refCount++;
-            return frag.fragId;
+    // Must be called holding the FragInfo.class lock
+    private static long addRef(FragInfo frag, String stmtText) {
+        // Bit of a hack to work around an issue where a statement-less adhoc
+        // fragment could be identical to a statement-needing regular procedure.
+        // This doesn't really address the broader issue that fragment hashes
+        // are not 1-1 with SQL statements.
+        if (frag.stmtText == null) {
+            frag.stmtText = stmtText;
         }
+
+        // The fragment MAY be in the LRU map.
+        // An incremented refCount is a lazy way to keep it safe from eviction
+        // without having to update the map.
+        // This optimizes for popular fragments in a small or stable cache that may be reused
+        // many times before the eviction process needs to take any notice.
+        frag.refCount++;
+        return frag.fragId;
     }
 
     private static void evictLRUfragment() {
@@ -120,6 +120,8 @@ public class MaterializedViewFixInfo {
             return false;
         }
 
+        // The group by expressions of a view over a join index into a joined row that
+        // starts with the source table's columns, so this index still identifies them.
         int partitionColIndex = partitionCol.getIndex();
         MaterializedViewInfo mvInfo = srcTable.getViews().get(mvTableName);
 
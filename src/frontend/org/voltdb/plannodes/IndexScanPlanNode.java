@@ -501,7 +501,8 @@ public class IndexScanPlanNode extends AbstractScanPlanNode {
         int tuplesToRead = 0;
 
         // Assign minor priorities for different index types (tiebreakers).
-        if (m_catalogIndex.getType() == IndexType.HASH_TABLE.getValue()) {
+        if ((m_catalogIndex.getType() == IndexType.HASH_TABLE.getValue()) ||
+            (m_catalogIndex.getType() == IndexType.OPEN_HASH_TABLE.getValue())) {
             tuplesToRead = 2;
         }
         else if ((m_catalogIndex.getType() == IndexType.BALANCED_TREE.getValue()) ||
@@ -18,6 +18,7 @@
 package org.voltdb.sysprocs;
 
 import com.google_voltpatches.common.collect.ImmutableList;
+import com.google_voltpatches.common.collect.ImmutableSet;
 import org.json_voltpatches.JSONArray;
 import org.json_voltpatches.JSONException;
 import org.json_voltpatches.JSONObject;
@@ -26,6 +27,7 @@ import org.json_voltpatches.JSONStringer;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 public class BalancePartitionsRequest implements JSONString {
     public static class PartitionPair {
@@ -55,6 +57,21 @@ public class BalancePartitionsRequest implements JSONString {
         partitionPairs = parseRanges(jsObj);
     }
 
+    /**
+     * Every partition that is either a source or a destination of a range
+     * in this request. A request that moves several ranges concurrently has
+     * to involve all of them in the same transaction.
+     */
+    public Set<Integer> getInvolvedPartitions()
+    {
+        ImmutableSet.Builder<Integer> builder = ImmutableSet.builder();
+        for (PartitionPair pair : partitionPairs) {
+            builder.add(pair.srcPartition);
+            builder.add(pair.destPartition);
+        }
+        return builder.build();
+    }
+
     private List<PartitionPair> parseRanges(JSONObject jsObj) throws JSONException
     {
         ImmutableList.Builder<PartitionPair> builder = ImmutableList.builder();
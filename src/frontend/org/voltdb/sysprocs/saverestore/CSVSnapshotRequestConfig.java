@@ -0,0 +1,194 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs.saverestore;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.voltdb.ParameterConverter;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Column;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Table;
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.ComparisonExpression;
+import org.voltdb.expressions.ConjunctionExpression;
+import org.voltdb.expressions.ConstantValueExpression;
+import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.types.ExpressionType;
+import org.voltdb.types.TimestampType;
+import org.voltdb.utils.Encoder;
+
+/**
+ * Options of a partial CSV snapshot. On top of the "tableNames" to save, the request
+ * may name the columns to write and simple predicates to filter the rows of each table:
+ *
+ * <pre>
+ * "columns": {"T": ["A", "B"]},
+ * "predicates": {"T": [{"column": "C", "op": ">=", "value": 10}, ...]}
+ * </pre>
+ *
+ * The predicates of a table are ANDed. Both are applied by the EE as it streams the
+ * table, so rows and columns left out are never serialized.
+ */
+public class CSVSnapshotRequestConfig extends SnapshotRequestConfig {
+
+    private static final ExpressionType[] COMPARISONS = {
+        ExpressionType.COMPARE_EQUAL,
+        ExpressionType.COMPARE_NOTEQUAL,
+        ExpressionType.COMPARE_LESSTHAN,
+        ExpressionType.COMPARE_GREATERTHAN,
+        ExpressionType.COMPARE_LESSTHANOREQUALTO,
+        ExpressionType.COMPARE_GREATERTHANOREQUALTO
+    };
+
+    /** Column indexes to write, by table name. Tables not present write every column. */
+    public final Map<String, int[]> projections = new HashMap<String, int[]>();
+
+    /** Row filters, by table name. Tables not present write every row. */
+    public final Map<String, AbstractExpression> predicates = new HashMap<String, AbstractExpression>();
+
+    /**
+     * @throws IllegalArgumentException if a column, operator or value is invalid
+     */
+    public CSVSnapshotRequestConfig(JSONObject jsData, Database catalogDatabase)
+    {
+        super(jsData, catalogDatabase);
+        if (jsData == null) {
+            return;
+        }
+        try {
+            JSONObject columns = jsData.optJSONObject("columns");
+            if (columns != null) {
+                Iterator<?> tableNames = columns.keys();
+                while (tableNames.hasNext()) {
+                    String tableName = (String) tableNames.next();
+                    Table table = getTable(catalogDatabase, tableName);
+                    JSONArray columnNames = columns.getJSONArray(tableName);
+                    int[] projection = new int[columnNames.length()];
+                    for (int i = 0; i < projection.length; i++) {
+                        projection[i] = getColumn(table, columnNames.getString(i)).getIndex();
+                    }
+                    if (projection.length > 0) {
+                        projections.put(table.getTypeName(), projection);
+                    }
+                }
+            }
+
+            JSONObject filters = jsData.optJSONObject("predicates");
+            if (filters != null) {
+                Iterator<?> tableNames = filters.keys();
+                while (tableNames.hasNext()) {
+                    String tableName = (String) tableNames.next();
+                    Table table = getTable(catalogDatabase, tableName);
+                    JSONArray comparisons = filters.getJSONArray(tableName);
+                    AbstractExpression predicate = null;
+                    for (int i = 0; i < comparisons.length(); i++) {
+                        AbstractExpression comparison = parseComparison(table, comparisons.getJSONObject(i));
+                        predicate = predicate == null ? comparison :
+                            new ConjunctionExpression(ExpressionType.CONJUNCTION_AND, predicate, comparison);
+                    }
+                    if (predicate != null) {
+                        predicates.put(table.getTypeName(), predicate);
+                    }
+                }
+            }
+        } catch (JSONException e) {
+            throw new IllegalArgumentException("Invalid CSV snapshot columns or predicates: " + e.getMessage(), e);
+        }
+    }
+
+    private static Table getTable(Database catalogDatabase, String tableName)
+    {
+        Table table = catalogDatabase.getTables().getIgnoreCase(tableName);
+        if (table == null) {
+            throw new IllegalArgumentException("Table " + tableName + " does not exist");
+        }
+        return table;
+    }
+
+    private static Column getColumn(Table table, String columnName)
+    {
+        Column column = table.getColumns().getIgnoreCase(columnName);
+        if (column == null) {
+            throw new IllegalArgumentException("Column " + columnName + " does not exist in table " +
+                                               table.getTypeName());
+        }
+        return column;
+    }
+
+    private static AbstractExpression parseComparison(Table table, JSONObject comparison) throws JSONException
+    {
+        Column column = getColumn(table, comparison.getString("column"));
+        String op = comparison.getString("op");
+        ExpressionType type = null;
+        for (ExpressionType candidate : COMPARISONS) {
+            if (candidate.symbol().equals(op)) {
+                type = candidate;
+            }
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("Unsupported comparison " + op + " on column " +
+                                               column.getTypeName());
+        }
+
+        VoltType columnType = VoltType.get((byte) column.getType());
+        TupleValueExpression tve = new TupleValueExpression(table.getTypeName(), column.getTypeName(),
+                                                            column.getIndex());
+        tve.setValueType(columnType);
+        tve.setValueSize(column.getSize());
+
+        ConstantValueExpression constant = new ConstantValueExpression();
+        constant.setValueType(columnType);
+        constant.setValueSize(column.getSize());
+        constant.setValue(toConstantString(columnType, comparison.get("value"), column));
+
+        return new ComparisonExpression(type, tve, constant);
+    }
+
+    /**
+     * Convert a JSON value to the string the EE parses a constant of the column's type from.
+     */
+    private static String toConstantString(VoltType type, Object value, Column column)
+    {
+        if (value == JSONObject.NULL) {
+            throw new IllegalArgumentException("Comparisons with NULL are not supported, on column " +
+                                               column.getTypeName());
+        }
+        Object converted;
+        try {
+            converted = ParameterConverter.tryToMakeCompatible(type.classFromType(), value);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Invalid value " + value + " for column " +
+                                               column.getTypeName() + ": " + e.getMessage(), e);
+        }
+        if (converted instanceof TimestampType) {
+            return Long.toString(((TimestampType) converted).getTime());
+        } else if (converted instanceof BigDecimal) {
+            return ((BigDecimal) converted).toPlainString();
+        } else if (converted instanceof byte[]) {
+            return Encoder.hexEncode((byte[]) converted);
+        }
+        return converted.toString();
+    }
+}
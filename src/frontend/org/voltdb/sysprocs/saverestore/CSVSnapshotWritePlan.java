@@ -42,6 +42,8 @@ import org.voltdb.SnapshotSiteProcessor;
 import org.voltdb.SnapshotTableTask;
 import org.voltdb.SystemProcedureExecutionContext;
 import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Column;
 import org.voltdb.catalog.Table;
 import org.voltdb.dtxn.SiteTracker;
 import org.voltdb.sysprocs.SnapshotRegistry;
@@ -81,6 +83,21 @@ public class CSVSnapshotWritePlan extends SnapshotWritePlan
     {
         assert(SnapshotSiteProcessor.ExecutionSitesCurrentlySnapshotting.isEmpty());
 
+        final CSVSnapshotRequestConfig config;
+        try {
+            config = new CSVSnapshotRequestConfig(jsData, context.getDatabase());
+        } catch (IllegalArgumentException e) {
+            SNAP_LOG.warn("Invalid CSV snapshot request: " + e.getMessage());
+            for (Table table : SnapshotUtil.getTablesToSave(context.getDatabase())) {
+                result.addRow(context.getHostId(),
+                        CoreUtils.getHostnameOrAddress(),
+                        table.getTypeName(),
+                        "FAILURE",
+                        e.getMessage());
+            }
+            return null;
+        }
+
         /*
          * List of partitions to include if this snapshot is
          * going to be deduped. Attempts to break up the work
@@ -94,7 +111,8 @@ public class CSVSnapshotWritePlan extends SnapshotWritePlan
             return null;
         }
 
-        final List<Table> tables = SnapshotUtil.getTablesToSave(context.getDatabase());
+        final List<Table> tables = config.tables.length == 0 ?
+                SnapshotUtil.getTablesToSave(context.getDatabase()) : Arrays.asList(config.tables);
         final AtomicInteger numTables = new AtomicInteger(tables.size());
         final SnapshotRegistry.Snapshot snapshotRecord =
             SnapshotRegistry.startSnapshot(
@@ -125,15 +143,19 @@ public class CSVSnapshotWritePlan extends SnapshotWritePlan
                 continue;
             }
 
+            // Columns and rows left out of a partial snapshot are dropped by the EE,
+            // so the filter only sees the projected columns.
+            final int[] projection = config.projections.get(table.getTypeName());
             List<SnapshotDataFilter> filters = new ArrayList<SnapshotDataFilter>();
-            filters.add(new CSVSnapshotFilter(CatalogUtil.getVoltTable(table), ',', null));
+            filters.add(new CSVSnapshotFilter(getProjectedVoltTable(table, projection), ',', null));
 
             final SnapshotTableTask task =
                     new SnapshotTableTask(
                             table,
                             filters.toArray(new SnapshotDataFilter[filters.size()]),
-                            null,
-                            false);
+                            config.predicates.get(table.getTypeName()),
+                            false,
+                            projection);
 
             if (table.getIsreplicated()) {
                 replicatedSnapshotTasks.add(task);
@@ -186,7 +208,7 @@ public class CSVSnapshotWritePlan extends SnapshotWritePlan
             {
                 NativeSnapshotWritePlan.createFileBasedCompletionTasks(file_path, file_nonce,
                         txnId, partitionTransactionIds, remoteDCLastIds, context, exportSequenceNumbers, drTupleStreamInfo, null, timestamp,
-                        context.getNumberOfPartitions());
+                        context.getNumberOfPartitions(), null);
 
                 for (SnapshotTableTask task : replicatedSnapshotTasks) {
                     final SnapshotDataTarget target = createDataTargetForTable(file_path, file_nonce,
@@ -230,6 +252,23 @@ public class CSVSnapshotWritePlan extends SnapshotWritePlan
         return sdt;
     }
 
+    /**
+     * The schema of the rows written for a table, with only the projected columns if any.
+     */
+    static VoltTable getProjectedVoltTable(Table table, int[] projection)
+    {
+        if (projection == null) {
+            return CatalogUtil.getVoltTable(table);
+        }
+        List<Column> catalogColumns = CatalogUtil.getSortedCatalogItems(table.getColumns(), "index");
+        VoltTable.ColumnInfo[] columns = new VoltTable.ColumnInfo[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            Column catCol = catalogColumns.get(projection[i]);
+            columns[i] = new VoltTable.ColumnInfo(catCol.getTypeName(), VoltType.get((byte)catCol.getType()));
+        }
+        return new VoltTable(columns);
+    }
+
     static private List<Long> computeDedupedLocalSites(long txnId, SiteTracker tracker)
     {
         MessageDigest digest;
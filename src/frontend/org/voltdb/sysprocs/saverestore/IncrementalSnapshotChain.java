@@ -0,0 +1,315 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs.saverestore;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.SnapshotDataTarget;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Table;
+import org.voltdb.utils.CatalogUtil;
+import org.voltdb.utils.VoltFile;
+
+/**
+ * The chain of incremental native snapshots written by this host.
+ *
+ * An incremental snapshot tags every row with the id of the EE tuple block it
+ * was read from, in an extra leading {@link #BLOCK_ID_COLUMN}. A full one writes
+ * every block and starts a new chain. A delta one writes only the blocks changed
+ * since the previous snapshot of the chain, and a row holding just the negated
+ * id (minus one) of each unchanged block. Every incremental snapshot makes the EE
+ * track the blocks changed from then on, so the chain has to be unbroken: the next
+ * snapshot is a full one again when the previous one failed or is gone, the schema
+ * or the partitions of the host changed, or the chain reached
+ * {@link #MAX_DELTAS} deltas.
+ *
+ * Block ids are only unique within a table of a partition, and only live as long as
+ * the process, so the chain is kept in memory and restarts with the process.
+ */
+public class IncrementalSnapshotChain
+{
+    private static final VoltLogger SNAP_LOG = new VoltLogger("SNAPSHOT");
+
+    public static enum BlockTracking {
+        /** A regular snapshot, leaves the tracked blocks alone */
+        NONE,
+        /** Write every block and start a new chain */
+        FULL,
+        /** Write the blocks changed since the last snapshot of the chain */
+        DELTA
+    }
+
+    public static final String BLOCK_ID_COLUMN = "VOLT_BLOCK_ID";
+
+    /** Digest key of the incremental snapshot details */
+    public static final String JSON_INCREMENTAL = "incremental";
+    /** The kind of snapshot written by the host, FULL or DELTA */
+    public static final String JSON_MODE = "mode";
+    /** The kind of snapshot requested, a DELTA request may be written as FULL */
+    public static final String JSON_REQUESTED = "requested";
+    /** The earlier snapshots a delta depends on, oldest (the full one) first */
+    public static final String JSON_CHAIN = "chain";
+
+    /** Number of deltas after which an incremental snapshot is written in full again */
+    public static final int MAX_DELTAS = Integer.getInteger("SNAPSHOT_INCREMENTAL_MAX_DELTAS", 8);
+
+    /**
+     * A snapshot of a chain.
+     */
+    public static class Link {
+        public final String path;
+        public final String nonce;
+
+        public Link(String path, String nonce) {
+            this.path = path;
+            this.nonce = nonce;
+        }
+
+        @Override
+        public String toString() {
+            return path + "/" + nonce;
+        }
+    }
+
+    /**
+     * How a host writes an incremental snapshot.
+     */
+    public static class Plan {
+        public final BlockTracking requested;
+        public final BlockTracking mode;
+        /** Snapshots the new one depends on, empty for a full snapshot */
+        public final List<Link> chain;
+
+        Plan(BlockTracking requested, BlockTracking mode, List<Link> chain) {
+            this.requested = requested;
+            this.mode = mode;
+            this.chain = Collections.unmodifiableList(chain);
+        }
+
+        void toJSONString(JSONStringer stringer) throws JSONException {
+            stringer.object();
+            stringer.key(JSON_MODE).value(mode.name());
+            stringer.key(JSON_REQUESTED).value(requested.name());
+            stringer.key(JSON_CHAIN).array();
+            for (Link link : chain) {
+                stringer.object();
+                stringer.key(SnapshotUtil.JSON_PATH).value(link.path);
+                stringer.key(SnapshotUtil.JSON_NONCE).value(link.nonce);
+                stringer.endObject();
+            }
+            stringer.endArray();
+            stringer.endObject();
+        }
+    }
+
+    // Snapshots of the current chain, the full one first
+    private static final List<Link> s_links = new ArrayList<Link>();
+    private static int s_hostId;
+    private static long s_catalogCRC;
+    private static Set<Integer> s_partitionIds;
+    private static List<SnapshotDataTarget> s_lastTargets;
+
+    /**
+     * Parse the "incremental" option of a snapshot request: true or "DELTA" to
+     * write only the changes if possible, "FULL" to start a new chain.
+     *
+     * @throws IllegalArgumentException if the value is not one of those
+     */
+    public static BlockTracking parseRequest(JSONObject jsData)
+    {
+        if (jsData == null || !jsData.has(JSON_INCREMENTAL)) {
+            return BlockTracking.NONE;
+        }
+        String value = jsData.optString(JSON_INCREMENTAL);
+        if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase(BlockTracking.DELTA.name())) {
+            return BlockTracking.DELTA;
+        } else if (value.equalsIgnoreCase(BlockTracking.FULL.name())) {
+            return BlockTracking.FULL;
+        } else if (value.equalsIgnoreCase("false")) {
+            return BlockTracking.NONE;
+        }
+        throw new IllegalArgumentException("Invalid incremental snapshot option " + value +
+                                           ", expected true, false, FULL or DELTA");
+    }
+
+    /**
+     * Decide whether the next snapshot of the host is a full or a delta one, and add it
+     * to the chain.
+     *
+     * @param targets   The data targets of the new snapshot, checked for write errors
+     *                  when planning the next one. Filled in later by the caller.
+     */
+    public static synchronized Plan plan(BlockTracking requested,
+                                         String path,
+                                         String nonce,
+                                         int hostId,
+                                         long catalogCRC,
+                                         Collection<Integer> partitionIds,
+                                         List<SnapshotDataTarget> targets)
+    {
+        assert(requested != BlockTracking.NONE);
+        final Set<Integer> partitions = new HashSet<Integer>(partitionIds);
+        String rebaseReason = null;
+        if (requested == BlockTracking.FULL) {
+            rebaseReason = "it was requested";
+        } else if (s_links.isEmpty()) {
+            rebaseReason = "there is no earlier incremental snapshot";
+        } else if (s_links.size() > MAX_DELTAS) {
+            rebaseReason = "the chain has " + MAX_DELTAS + " deltas";
+        } else if (s_hostId != hostId || !partitions.equals(s_partitionIds)) {
+            rebaseReason = "the partitions of the host changed";
+        } else if (s_catalogCRC != catalogCRC) {
+            rebaseReason = "the catalog changed";
+        } else {
+            rebaseReason = checkLastSnapshot();
+        }
+
+        final BlockTracking mode;
+        final List<Link> chain;
+        if (rebaseReason != null) {
+            SNAP_LOG.info("Writing incremental snapshot " + nonce + " in full because " + rebaseReason);
+            mode = BlockTracking.FULL;
+            chain = new ArrayList<Link>();
+            s_links.clear();
+        } else {
+            mode = BlockTracking.DELTA;
+            chain = new ArrayList<Link>(s_links);
+        }
+        s_links.add(new Link(path, nonce));
+        s_hostId = hostId;
+        s_catalogCRC = catalogCRC;
+        s_partitionIds = partitions;
+        s_lastTargets = targets;
+        return new Plan(requested, mode, chain);
+    }
+
+    /**
+     * Forget the chain, the next incremental snapshot is written in full.
+     */
+    public static synchronized void reset()
+    {
+        s_links.clear();
+        s_lastTargets = null;
+    }
+
+    /**
+     * @return why the last snapshot of the chain can't be the base of a delta, or null if it can
+     */
+    private static String checkLastSnapshot()
+    {
+        if (s_lastTargets != null) {
+            for (SnapshotDataTarget target : s_lastTargets) {
+                if (target.getLastWriteException() != null) {
+                    return "the previous one failed";
+                }
+            }
+        }
+        final Link last = s_links.get(s_links.size() - 1);
+        if (!new VoltFile(last.path,
+                          SnapshotUtil.constructCompletionFilenameForNonce(last.nonce, s_hostId)).exists()) {
+            return "the previous one did not complete";
+        }
+        for (Link link : s_links) {
+            if (!new VoltFile(link.path,
+                              SnapshotUtil.constructDigestFilenameForNonce(link.nonce, s_hostId)).exists()) {
+                return "snapshot " + link + " of the chain is gone";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the schema of the file of an incremental snapshot, the table's with the block id first
+     */
+    public static VoltTable getSchema(Table table)
+    {
+        final VoltTable schema = CatalogUtil.getVoltTable(table);
+        final VoltTable.ColumnInfo[] columns = new VoltTable.ColumnInfo[schema.getColumnCount() + 1];
+        columns[0] = new VoltTable.ColumnInfo(BLOCK_ID_COLUMN, VoltType.BIGINT);
+        for (int ii = 0; ii < schema.getColumnCount(); ii++) {
+            columns[ii + 1] = new VoltTable.ColumnInfo(schema.getColumnName(ii), schema.getColumnType(ii));
+        }
+        return new VoltTable(columns);
+    }
+
+    /**
+     * @return the kind of snapshot a digest describes, NONE for a regular one
+     */
+    public static BlockTracking getMode(JSONObject digest, String key) throws JSONException
+    {
+        JSONObject incremental = digest.optJSONObject(JSON_INCREMENTAL);
+        if (incremental == null) {
+            return BlockTracking.NONE;
+        }
+        return BlockTracking.valueOf(incremental.getString(key));
+    }
+
+    /**
+     * @return the snapshots a delta depends on, oldest first
+     */
+    public static List<Link> getChain(JSONObject digest) throws JSONException
+    {
+        List<Link> chain = new ArrayList<Link>();
+        JSONObject incremental = digest.optJSONObject(JSON_INCREMENTAL);
+        if (incremental != null) {
+            JSONArray links = incremental.getJSONArray(JSON_CHAIN);
+            for (int ii = 0; ii < links.length(); ii++) {
+                JSONObject link = links.getJSONObject(ii);
+                chain.add(new Link(link.getString(SnapshotUtil.JSON_PATH),
+                                   link.getString(SnapshotUtil.JSON_NONCE)));
+            }
+        }
+        return chain;
+    }
+
+    /**
+     * @return the first snapshot of the chain without a digest in this node's file system,
+     *         or null if they are all there
+     */
+    public static Link findMissingLink(List<Link> chain)
+    {
+        for (Link link : chain) {
+            File[] files = new VoltFile(link.path).listFiles();
+            boolean found = false;
+            if (files != null) {
+                for (File f : files) {
+                    if (f.getName().startsWith(link.nonce + "-host_") && f.getName().endsWith(".digest")) {
+                        found = true;
+                        break;
+                    }
+                }
+            }
+            if (!found) {
+                return link;
+            }
+        }
+        return null;
+    }
+}
@@ -44,6 +44,7 @@ import org.voltdb.VoltTable;
 import org.voltdb.catalog.Table;
 import org.voltdb.dtxn.SiteTracker;
 import org.voltdb.sysprocs.SnapshotRegistry;
+import org.voltdb.sysprocs.saverestore.IncrementalSnapshotChain.BlockTracking;
 import org.voltdb.utils.CatalogUtil;
 
 import com.google_voltpatches.common.collect.Maps;
@@ -107,6 +108,35 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
         else {
             tableArray = config.tables;
         }
+
+        BlockTracking requested;
+        try {
+            requested = IncrementalSnapshotChain.parseRequest(jsData);
+        } catch (IllegalArgumentException e) {
+            SNAP_LOG.warn("Invalid snapshot request: " + e.getMessage());
+            for (Table table : tableArray) {
+                result.addRow(context.getHostId(),
+                        CoreUtils.getHostnameOrAddress(),
+                        table.getTypeName(),
+                        "FAILURE",
+                        e.getMessage());
+            }
+            return null;
+        }
+        // A delta depends on every table being in the previous snapshot of the chain
+        if (requested != BlockTracking.NONE && config.tables.length != 0) {
+            SNAP_LOG.warn("Ignoring the incremental option of snapshot " + file_nonce +
+                          " because it does not save every table");
+            requested = BlockTracking.NONE;
+        }
+        final IncrementalSnapshotChain.Plan incremental;
+        if (requested != BlockTracking.NONE) {
+            incremental = IncrementalSnapshotChain.plan(requested, file_path, file_nonce, context.getHostId(),
+                    context.getCatalogCRC(), tracker.getPartitionsForHost(context.getHostId()), m_targets);
+        } else {
+            incremental = null;
+        }
+        final BlockTracking blockTracking = incremental == null ? BlockTracking.NONE : incremental.mode;
         m_snapshotRecord =
             SnapshotRegistry.startSnapshot(
                     txnId,
@@ -126,7 +156,9 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                             table,
                             new SnapshotDataFilter[0],
                             null,
-                            false);
+                            false,
+                            null,
+                            blockTracking);
 
             SNAP_LOG.debug("ADDING TASK: " + task);
 
@@ -157,7 +189,7 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                 remoteDCLastIds, context,
                 exportSequenceNumbers, drTupleStreamInfo, tracker, hashinatorData, timestamp,
                 newPartitionCount, tableArray, m_snapshotRecord, partitionedSnapshotTasks,
-                replicatedSnapshotTasks);
+                replicatedSnapshotTasks, incremental);
     }
 
     private Callable<Boolean> createDeferredSetup(final String file_path,
@@ -175,7 +207,8 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                                                   final Table[] tables,
                                                   final SnapshotRegistry.Snapshot snapshotRecord,
                                                   final ArrayList<SnapshotTableTask> partitionedSnapshotTasks,
-                                                  final ArrayList<SnapshotTableTask> replicatedSnapshotTasks)
+                                                  final ArrayList<SnapshotTableTask> replicatedSnapshotTasks,
+                                                  final IncrementalSnapshotChain.Plan incremental)
     {
         return new Callable<Boolean>() {
             private final HashMap<Integer, SnapshotDataTarget> m_createdTargets = Maps.newHashMap();
@@ -190,7 +223,8 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                         drTupleStreamInfo,
                         hashinatorData,
                         timestamp,
-                        newPartitionCount);
+                        newPartitionCount,
+                        incremental);
 
                 for (SnapshotTableTask task : replicatedSnapshotTasks) {
                     SnapshotDataTarget target = getSnapshotDataTarget(numTables, task);
@@ -222,7 +256,7 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                     target = createDataTargetForTable(file_path, file_nonce, task.m_table, txnId,
                             context.getHostId(), context.getCluster().getTypeName(),
                             context.getDatabase().getTypeName(), context.getNumberOfPartitions(),
-                            tracker, timestamp, numTables, snapshotRecord);
+                            tracker, timestamp, numTables, snapshotRecord, task.m_blockTracking);
                     m_createdTargets.put(task.m_table.getRelativeIndex(), target);
                 }
                 return target;
@@ -241,7 +275,8 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                                                         SiteTracker tracker,
                                                         long timestamp,
                                                         AtomicInteger numTables,
-                                                        SnapshotRegistry.Snapshot snapshotRecord)
+                                                        SnapshotRegistry.Snapshot snapshotRecord,
+                                                        BlockTracking blockTracking)
             throws IOException
     {
         SnapshotDataTarget sdt;
@@ -261,7 +296,8 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                 partitionCount,
                 table.getIsreplicated(),
                 tracker.getPartitionsForHost(hostId),
-                CatalogUtil.getVoltTable(table),
+                blockTracking == BlockTracking.NONE ?
+                        CatalogUtil.getVoltTable(table) : IncrementalSnapshotChain.getSchema(table),
                 txnId,
                 timestamp);
 
@@ -280,7 +316,8 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
             Map<String, Map<Integer, Pair<Long, Long>>> exportSequenceNumbers,
             Map<Integer, Pair<Long, Long>> drTupleStreamInfo,
             HashinatorSnapshotData hashinatorData,
-            long timestamp, int newPartitionCount) throws IOException
+            long timestamp, int newPartitionCount,
+            IncrementalSnapshotChain.Plan incremental) throws IOException
     {
         final List<Table> tables = SnapshotUtil.getTablesToSave(context.getDatabase());
         InstanceId instId = VoltDB.instance().getHostMessenger().getInstanceId();
@@ -299,7 +336,8 @@ public class NativeSnapshotWritePlan extends SnapshotWritePlan
                 instId,
                 timestamp,
                 clusterCreateTime,
-                newPartitionCount);
+                newPartitionCount,
+                incremental);
         if (completionTask != null) {
             SnapshotSiteProcessor.m_tasksOnSnapshotCompletion.offer(completionTask);
         }
@@ -26,6 +26,7 @@ import org.voltcore.utils.Pair;
 import org.voltdb.VoltDB;
 import org.voltdb.catalog.Table;
 import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.sysprocs.saverestore.IncrementalSnapshotChain.BlockTracking;
 
 import com.google_voltpatches.common.base.Charsets;
 
@@ -36,6 +37,8 @@ public class SnapshotPredicates {
     public final int m_tableId;
     private final List<Pair<AbstractExpression, Boolean>> m_predicates =
             new ArrayList<Pair<AbstractExpression, Boolean>>();
+    private final List<int[]> m_projections = new ArrayList<int[]>();
+    private BlockTracking m_blockTracking = BlockTracking.NONE;
 
     public SnapshotPredicates(int tableId)
     {
@@ -43,8 +46,27 @@ public class SnapshotPredicates {
     }
 
     public void addPredicate(AbstractExpression predicate, boolean deleteTuples)
+    {
+        addPredicate(predicate, deleteTuples, null);
+    }
+
+    /**
+     * @param projection    Indexes of the columns the EE serializes for this predicate,
+     *                      null for all of them
+     */
+    public void addPredicate(AbstractExpression predicate, boolean deleteTuples, int[] projection)
     {
         m_predicates.add(Pair.of(predicate, deleteTuples));
+        m_projections.add(projection);
+    }
+
+    /**
+     * Make the stream tag every row with the id of its block, and for
+     * {@link BlockTracking#DELTA} only write the blocks changed since the last tracked stream.
+     */
+    public void setBlockTracking(BlockTracking blockTracking)
+    {
+        m_blockTracking = blockTracking;
     }
 
     public byte[] toBytes()
@@ -67,6 +89,17 @@ public class SnapshotPredicates {
                     predicate.toJSONString(stringer);
                     stringer.endObject();
                 }
+                final int[] projection = m_projections.get(i);
+                if (projection != null) {
+                    stringer.key("projection").array();
+                    for (int column : projection) {
+                        stringer.value(column);
+                    }
+                    stringer.endArray();
+                }
+                if (m_blockTracking != BlockTracking.NONE) {
+                    stringer.key("blockTracking").value(m_blockTracking.name());
+                }
                 stringer.endObject();
                 predicates[i] = stringer.toString().getBytes(Charsets.UTF_8);
                 size += predicates[i].length;
@@ -43,6 +43,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
@@ -60,12 +61,16 @@ import org.voltcore.utils.InstanceId;
 import org.voltcore.utils.Pair;
 import org.voltdb.ClientInterface;
 import org.voltdb.ClientResponseImpl;
+import org.voltdb.DefaultSnapshotDataTarget;
+import org.voltdb.PrivateVoltTableFactory;
 import org.voltdb.SimpleClientResponseAdapter;
 import org.voltdb.SnapshotCompletionInterest;
 import org.voltdb.SnapshotDaemon;
 import org.voltdb.SnapshotDaemon.ForwardClientException;
+import org.voltdb.SnapshotDataTarget;
 import org.voltdb.SnapshotFormat;
 import org.voltdb.SnapshotInitiationInfo;
+import org.voltdb.SnapshotSiteProcessor;
 import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.TheHashinator;
 import org.voltdb.TheHashinator.HashinatorType;
@@ -83,6 +88,7 @@ import org.voltdb.utils.CatalogUtil;
 import org.voltdb.utils.VoltFile;
 
 import com.google_voltpatches.common.base.Throwables;
+import com.google_voltpatches.common.util.concurrent.Callables;
 import com.google_voltpatches.common.util.concurrent.ListenableFuture;
 import com.google_voltpatches.common.util.concurrent.SettableFuture;
 
@@ -148,7 +154,8 @@ public class SnapshotUtil {
         InstanceId instanceId,
         long timestamp,
         long clusterCreateTime,
-        int newPartitionCount)
+        int newPartitionCount,
+        IncrementalSnapshotChain.Plan incremental)
     throws IOException
     {
         final File f = new VoltFile(path, constructDigestFilenameForNonce(nonce, hostId));
@@ -229,6 +236,10 @@ public class SnapshotUtil {
                     stringer.endObject();
                 }
                 stringer.endObject();
+                if (incremental != null) {
+                    stringer.key(IncrementalSnapshotChain.JSON_INCREMENTAL);
+                    incremental.toJSONString(stringer);
+                }
                 stringer.endObject();
             } catch (JSONException e) {
                 throw new IOException(e);
@@ -600,6 +611,367 @@ public class SnapshotUtil {
         }
     }
 
+    /**
+     * Turn the local files of a delta incremental snapshot into the files of a full
+     * one, by taking the blocks it carries over from the earlier snapshots of its
+     * chain. The files of the full snapshot still tag the rows with their block id,
+     * so later deltas of the chain keep working and a restore drops the extra column
+     * like any column that is not in the table anymore. Does nothing for any other
+     * snapshot, or when run again.
+     *
+     * @return true if the snapshot was a delta
+     * @throws IOException if an earlier snapshot of the chain is missing or unreadable
+     */
+    public static boolean consolidateIncrementalSnapshot(String path, String nonce, VoltLogger logger)
+    throws IOException
+    {
+        final File files[] = new VoltFile(path).listFiles();
+        if (files == null) {
+            return false;
+        }
+        final Map<File, JSONObject> digests = new HashMap<File, JSONObject>();
+        // Each host tracks its own blocks, so its files only go with the chain of its digest
+        final Map<Integer, List<IncrementalSnapshotChain.Link>> chains =
+                new HashMap<Integer, List<IncrementalSnapshotChain.Link>>();
+        final String digestPrefix = nonce + "-host_";
+        try {
+            for (File f : files) {
+                if (f.getName().startsWith(digestPrefix) && f.getName().endsWith(".digest")) {
+                    JSONObject digest = CRCCheck(f, logger);
+                    if (digest != null &&
+                        IncrementalSnapshotChain.getMode(digest, IncrementalSnapshotChain.JSON_MODE) ==
+                            IncrementalSnapshotChain.BlockTracking.DELTA) {
+                        final int hostId;
+                        try {
+                            hostId = Integer.parseInt(f.getName().substring(digestPrefix.length(),
+                                    f.getName().length() - ".digest".length()));
+                        } catch (NumberFormatException e) {
+                            logger.warn("Ignoring snapshot digest " + f + " with no host id in its name");
+                            continue;
+                        }
+                        digests.put(f, digest);
+                        chains.put(hostId, IncrementalSnapshotChain.getChain(digest));
+                    }
+                }
+            }
+        } catch (JSONException e) {
+            throw new IOException("Unable to read the chain of incremental snapshot " + nonce, e);
+        }
+        if (digests.isEmpty()) {
+            return false;
+        }
+        for (List<IncrementalSnapshotChain.Link> chain : chains.values()) {
+            IncrementalSnapshotChain.Link missing = IncrementalSnapshotChain.findMissingLink(chain);
+            if (missing != null) {
+                throw new IOException("Snapshot " + missing + " the delta snapshot " + nonce +
+                                      " depends on is missing");
+            }
+        }
+
+        logger.info("Consolidating delta snapshot " + nonce + " of hosts " + chains.keySet() +
+                    " with the snapshots each depends on");
+        for (File f : files) {
+            if (f.getName().startsWith(nonce + "-") && f.getName().endsWith(".vpt")) {
+                consolidateTableFile(f, nonce, chains);
+            }
+        }
+
+        for (Map.Entry<File, JSONObject> e : digests.entrySet()) {
+            try {
+                JSONObject incremental = e.getValue().getJSONObject(IncrementalSnapshotChain.JSON_INCREMENTAL);
+                incremental.put(IncrementalSnapshotChain.JSON_MODE, IncrementalSnapshotChain.BlockTracking.FULL.name());
+                incremental.put(IncrementalSnapshotChain.JSON_CHAIN, new JSONArray());
+            } catch (JSONException ex) {
+                throw new IOException(ex);
+            }
+            rewriteSnapshotDigest(e.getKey(), e.getValue());
+        }
+        return true;
+    }
+
+    /**
+     * Replace a table file of a delta snapshot with one that has every block of the table,
+     * taken from the chain of the host that wrote the file. Files of hosts that did not
+     * write a delta are left alone.
+     */
+    private static void consolidateTableFile(File file, String nonce,
+                                             Map<Integer, List<IncrementalSnapshotChain.Link>> chains)
+    throws IOException
+    {
+        final String suffix = file.getName().substring(nonce.length());
+        final File consolidated = new VoltFile(file.getParentFile(), file.getName() + ".consolidated");
+        final TableSaveFile saveFile = openTableSaveFile(file);
+        DefaultSnapshotDataTarget target = null;
+        ChunkWriter writer = null;
+        boolean success = false;
+        try {
+            final List<IncrementalSnapshotChain.Link> chain = chains.get(saveFile.getHostId());
+            if (chain == null) {
+                success = true;
+                return;
+            }
+            final VoltTable schema = getTableSaveFileSchema(saveFile);
+            if (schema.getColumnCount() == 0 ||
+                !schema.getColumnName(0).equals(IncrementalSnapshotChain.BLOCK_ID_COLUMN)) {
+                // Consolidated already
+                success = true;
+                return;
+            }
+            final List<Integer> partitionIds = new ArrayList<Integer>();
+            for (int partitionId : saveFile.getPartitionIds()) {
+                partitionIds.add(partitionId);
+            }
+            target = new DefaultSnapshotDataTarget(consolidated,
+                    saveFile.getHostId(),
+                    saveFile.getClusterName(),
+                    saveFile.getDatabaseName(),
+                    saveFile.getTableName(),
+                    saveFile.getTotalPartitions(),
+                    saveFile.isReplicated(),
+                    partitionIds,
+                    schema,
+                    saveFile.getTxnId(),
+                    saveFile.getTimestamp());
+
+            writer = new ChunkWriter(target);
+            Map<Integer, Set<Long>> needed = copyBlocks(saveFile, null, writer);
+            for (int ii = chain.size() - 1; ii >= 0 && !needed.isEmpty(); ii--) {
+                final IncrementalSnapshotChain.Link link = chain.get(ii);
+                final TableSaveFile linkSaveFile = openTableSaveFile(new VoltFile(link.path, link.nonce + suffix));
+                try {
+                    needed = copyBlocks(linkSaveFile, needed, writer);
+                } finally {
+                    linkSaveFile.close();
+                }
+            }
+            if (!needed.isEmpty()) {
+                throw new IOException("Blocks " + needed + " of " + file.getName() +
+                                      " are not in any snapshot of its chain " + chain);
+            }
+            writer.flush();
+            success = true;
+        } finally {
+            saveFile.close();
+            if (writer != null) {
+                writer.discard();
+            }
+            if (target != null) {
+                try {
+                    target.close();
+                } catch (InterruptedException e) {
+                    success = false;
+                    throw new java.io.InterruptedIOException();
+                } finally {
+                    if (!success || target.getLastWriteException() != null) {
+                        consolidated.delete();
+                    }
+                }
+            }
+        }
+        if (target.getLastWriteException() != null) {
+            throw target.getLastWriteException();
+        }
+        if (!consolidated.renameTo(file)) {
+            consolidated.delete();
+            throw new IOException("Unable to replace " + file + " with its consolidated copy");
+        }
+    }
+
+    private static TableSaveFile openTableSaveFile(File file) throws IOException
+    {
+        final TableSaveFile saveFile = new TableSaveFile(new FileInputStream(file), 1, null);
+        if (!saveFile.getCompleted()) {
+            saveFile.close();
+            throw new IOException("Snapshot file " + file + " was not completed");
+        }
+        return saveFile;
+    }
+
+    /**
+     * @return an empty table with the schema of a snapshot file
+     */
+    private static VoltTable getTableSaveFileSchema(TableSaveFile saveFile)
+    {
+        // The chunk reader moves the position of the shared header
+        final ByteBuffer header = saveFile.getTableHeader().duplicate();
+        header.clear();
+        final ByteBuffer table = ByteBuffer.allocate(header.capacity() + 4);
+        table.put(header);
+        table.putInt(0);
+        table.flip();
+        return PrivateVoltTableFactory.createVoltTableFromBuffer(table, false);
+    }
+
+    /**
+     * Copy the rows of the wanted blocks of an incremental snapshot file, or of all the
+     * blocks it has the rows of if wanted is null.
+     *
+     * @return the wanted blocks the file carries over from an earlier snapshot or does not
+     *         have at all, by partition
+     */
+    private static Map<Integer, Set<Long>> copyBlocks(TableSaveFile saveFile,
+                                                      Map<Integer, Set<Long>> wanted,
+                                                      ChunkWriter writer) throws IOException
+    {
+        final Map<Integer, Set<Long>> carried = new HashMap<Integer, Set<Long>>();
+        final Map<Integer, Set<Long>> unseen = new HashMap<Integer, Set<Long>>();
+        if (wanted != null) {
+            for (Map.Entry<Integer, Set<Long>> e : wanted.entrySet()) {
+                unseen.put(e.getKey(), new HashSet<Long>(e.getValue()));
+            }
+        }
+        final int headerLength = saveFile.getTableHeader().capacity();
+        while (saveFile.hasMoreChunks()) {
+            final TableSaveFile.Container c = (TableSaveFile.Container) saveFile.getNextChunk();
+            if (c == null) {
+                break;
+            }
+            try {
+                final Set<Long> wantedBlocks = wanted == null ? null : wanted.get(c.partitionId);
+                if (wanted != null && wantedBlocks == null) {
+                    continue;
+                }
+                final Set<Long> unseenBlocks = unseen.get(c.partitionId);
+                final ByteBuffer b = c.b();
+                b.position(headerLength);
+                final int rowCount = b.getInt();
+                for (int ii = 0; ii < rowCount; ii++) {
+                    final int rowStart = b.position();
+                    final int rowLength = b.getInt();
+                    // The block id is the first column of the row
+                    final long blockId = b.getLong(rowStart + 4);
+                    b.position(rowStart + 4 + rowLength);
+                    if (unseenBlocks != null) {
+                        unseenBlocks.remove(blockId < 0 ? -(blockId + 1) : blockId);
+                    }
+                    if (blockId < 0) {
+                        final long carriedId = -(blockId + 1);
+                        if (wantedBlocks == null || wantedBlocks.contains(carriedId)) {
+                            Set<Long> blocks = carried.get(c.partitionId);
+                            if (blocks == null) {
+                                blocks = new HashSet<Long>();
+                                carried.put(c.partitionId, blocks);
+                            }
+                            blocks.add(carriedId);
+                        }
+                    } else if (wantedBlocks == null || wantedBlocks.contains(blockId)) {
+                        writer.write(c.partitionId, b, rowStart, 4 + rowLength);
+                    }
+                }
+            } finally {
+                c.discard();
+            }
+        }
+        // A block the file does not have is still looked for in the earlier snapshots,
+        // to fail at the start of the chain rather than drop its rows
+        for (Map.Entry<Integer, Set<Long>> e : unseen.entrySet()) {
+            if (e.getValue().isEmpty()) {
+                continue;
+            }
+            Set<Long> blocks = carried.get(e.getKey());
+            if (blocks == null) {
+                carried.put(e.getKey(), e.getValue());
+            } else {
+                blocks.addAll(e.getValue());
+            }
+        }
+        return carried;
+    }
+
+    /**
+     * Packs the rows of one partition at a time into chunks for a snapshot data target.
+     */
+    private static class ChunkWriter {
+        private final SnapshotDataTarget m_target;
+        private BBContainer m_chunk = null;
+        private int m_partitionId;
+        private int m_rowCount;
+
+        ChunkWriter(SnapshotDataTarget target) {
+            m_target = target;
+        }
+
+        void write(int partitionId, ByteBuffer rows, int offset, int length) throws IOException {
+            if (m_chunk != null && (m_partitionId != partitionId || m_chunk.b().remaining() < length)) {
+                flush();
+            }
+            if (m_chunk == null) {
+                m_chunk = DBBPool.allocateDirectAndPool(SnapshotSiteProcessor.m_snapshotBufferLength);
+                m_chunk.b().clear();
+                m_chunk.b().putInt(partitionId);
+                m_chunk.b().putInt(0); // row count
+                m_partitionId = partitionId;
+                m_rowCount = 0;
+                if (m_chunk.b().remaining() < length) {
+                    throw new IOException("Row of " + length + " bytes does not fit in a snapshot chunk");
+                }
+            }
+            final ByteBuffer row = rows.duplicate();
+            row.limit(offset + length).position(offset);
+            m_chunk.b().put(row);
+            m_rowCount++;
+        }
+
+        /**
+         * Drop the rows not flushed yet, when giving up on the file
+         */
+        void discard() {
+            if (m_chunk != null) {
+                m_chunk.discard();
+                m_chunk = null;
+            }
+        }
+
+        void flush() throws IOException {
+            if (m_chunk == null) {
+                return;
+            }
+            final BBContainer chunk = m_chunk;
+            m_chunk = null;
+            chunk.b().putInt(4, m_rowCount);
+            chunk.b().flip();
+            final ListenableFuture<?> written = m_target.write(Callables.returning(chunk), 0);
+            try {
+                if (written != null) {
+                    written.get();
+                }
+            } catch (InterruptedException e) {
+                throw new java.io.InterruptedIOException();
+            } catch (ExecutionException e) {
+                throw new IOException(e.getCause());
+            }
+            if (m_target.getLastWriteException() != null) {
+                throw new IOException(m_target.getLastWriteException());
+            }
+        }
+    }
+
+    private static void rewriteSnapshotDigest(File f, JSONObject digest) throws IOException
+    {
+        final byte digestBytes[] = digest.toString().getBytes("UTF-8");
+        final PureJavaCrc32 crc = new PureJavaCrc32();
+        crc.update(digestBytes);
+        final ByteBuffer fileBuffer = ByteBuffer.allocate(digestBytes.length + 4);
+        fileBuffer.putInt((int)crc.getValue());
+        fileBuffer.put(digestBytes);
+        fileBuffer.flip();
+
+        final File rewritten = new VoltFile(f.getParentFile(), f.getName() + ".rewritten");
+        final FileOutputStream fos = new FileOutputStream(rewritten);
+        try {
+            while (fileBuffer.hasRemaining()) {
+                fos.getChannel().write(fileBuffer);
+            }
+            fos.getChannel().force(true);
+        } finally {
+            fos.close();
+        }
+        if (!rewritten.renameTo(f)) {
+            rewritten.delete();
+            throw new IOException("Unable to replace snapshot digest " + f);
+        }
+    }
+
     /**
      * Storage for information about files that are part of a specific snapshot
      */
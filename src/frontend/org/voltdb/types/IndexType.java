@@ -28,7 +28,8 @@ public enum IndexType {
     INVALID         (0),
     BALANCED_TREE   (1),
     HASH_TABLE      (2),
-    BTREE           (3);
+    BTREE           (3),
+    OPEN_HASH_TABLE (4);
 
     IndexType(int val) {
         assert (this.ordinal() == val) :
@@ -86,6 +87,9 @@ public enum IndexType {
         case BALANCED_TREE:
             return "_TREE";
         case BTREE:
+            return "_BTREE";
+        case OPEN_HASH_TABLE:
+            return "_OPENHASH";
         case HASH_TABLE:
             return "";
         }
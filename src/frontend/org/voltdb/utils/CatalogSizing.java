@@ -276,6 +276,14 @@ public abstract class CatalogSizing {
             isize.widthMin += 48;
             isize.widthMax += 48;
         }
+        else if (index.getType() == IndexType.OPEN_HASH_TABLE.getValue()) {
+            // Open addressing hash entries are the key, an 8 byte tuple
+            // pointer and a 4 byte control word, held in a table kept
+            // between 40% and 80% full:
+            //      (w + 12) * 1.67 * r
+            isize.widthMin += (isize.widthMin * 2) / 3 + 20;
+            isize.widthMax += (isize.widthMax * 2) / 3 + 20;
+        }
         else {
             // Tree indexes have a 40 byte overhead per row.
             isize.widthMin += 40;
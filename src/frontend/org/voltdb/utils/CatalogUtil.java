@@ -1422,7 +1422,6 @@ public abstract class CatalogUtil {
         File snapshotPath = getSnapshot(paths.getSnapshots(), voltDbRoot);
         //export overflow
         File exportOverflowPath = getExportOverflow(paths.getExportoverflow(), voltDbRoot);
-        // only use these directories in the enterprise version
         File commandLogPath = null;
         File commandLogSnapshotPath = null;
         commandLogPath = getCommandLog(paths.getCommandlog(), voltDbRoot);
@@ -1509,11 +1508,6 @@ public abstract class CatalogUtil {
     }
 
     public static File getCommandLog(PathsType.Commandlog paths, File voltDbRoot) {
-        if (!VoltDB.instance().getConfig().m_isEnterprise) {
-            // dumb defaults if you ask for logging in community version
-            File commandlogPath =  new VoltFile(voltDbRoot, "command_log");
-            return commandlogPath;
-        }
         File commandlogPath;
         commandlogPath = new File(paths.getPath());
         if (!commandlogPath.isAbsolute())
@@ -1536,12 +1530,6 @@ public abstract class CatalogUtil {
     }
 
     public static File getCommandLogSnapshot(PathsType.Commandlogsnapshot paths, File voltDbRoot) {
-        if (!VoltDB.instance().getConfig().m_isEnterprise) {
-            // dumb defaults if you ask for logging in community version
-            File commandlogSnapshotPath = new VoltFile(voltDbRoot, "command_log_snapshot");
-            return commandlogSnapshotPath;
-        }
-
         File commandlogSnapshotPath;
         commandlogSnapshotPath = new File(paths.getPath());
         if (!commandlogSnapshotPath.isAbsolute())
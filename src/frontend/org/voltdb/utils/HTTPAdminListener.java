@@ -36,6 +36,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.bind.annotation.XmlAttribute;
 
+import org.HdrHistogram_voltpatches.AbstractHistogram;
 import org.codehaus.jackson.JsonGenerator;
 import org.codehaus.jackson.annotate.JsonIgnore;
 import org.codehaus.jackson.annotate.JsonProperty;
@@ -59,6 +60,7 @@ import org.voltcore.logging.VoltLogger;
 import org.voltdb.AuthenticationResult;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.HTTPClientInterface;
+import org.voltdb.MetricsRegistry;
 import org.voltdb.VoltDB;
 import org.voltdb.VoltTable;
 import org.voltdb.client.Client;
@@ -68,8 +70,10 @@ import org.voltdb.compiler.deploymentfile.DeploymentType;
 import org.voltdb.compiler.deploymentfile.UsersType;
 import org.voltdb.compiler.deploymentfile.UsersType.User;
 import org.voltdb.compilereport.ReportMaker;
+import org.voltdb.dtxn.LatencyStats;
 
 import com.google_voltpatches.common.base.Charsets;
+import com.google_voltpatches.common.base.Supplier;
 import com.google_voltpatches.common.io.Resources;
 
 import org.voltdb.compiler.deploymentfile.ExportType;
@@ -270,6 +274,75 @@ public class HTTPAdminListener {
 
     }
 
+    /**
+     * Serves the node's MetricsRegistry as Prometheus text. Everything is read
+     * locally, without invoking @Statistics or touching the site threads.
+     */
+    class MetricsRequestHandler extends VoltRequestHandler {
+
+        @Override
+        public void handle(String target,
+                           Request baseRequest,
+                           HttpServletRequest request,
+                           HttpServletResponse response)
+                           throws IOException, ServletException {
+
+            super.handle(target, baseRequest, request, response);
+            AuthenticationResult authResult = null;
+            try {
+                response.setContentType("text/plain;version=0.0.4;charset=utf-8");
+                authResult = authenticate(baseRequest);
+                if (!authResult.isAuthenticated()) {
+                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                    response.getWriter().println(authResult.m_message);
+                } else if (!authResult.m_authUser.hasPermission(Permission.ADMIN)) {
+                    response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+                    response.getWriter().println("Permission denied");
+                } else {
+                    StringBuilder sb = new StringBuilder();
+                    MetricsRegistry.instance().write(sb);
+                    response.setStatus(HttpServletResponse.SC_OK);
+                    response.getWriter().print(sb);
+                }
+                baseRequest.setHandled(true);
+            } catch (Exception ex) {
+                logger.info("Not servicing url: " + baseRequest.getRequestURI() + " Details: "+ ex.getMessage(), ex);
+            } finally {
+                httpClientInterface.releaseClient(authResult, false);
+            }
+        }
+    }
+
+    /**
+     * Node-wide metrics that are read on demand rather than fed by a stats source.
+     */
+    static void registerNodeMetrics() {
+        MetricsRegistry metrics = MetricsRegistry.instance();
+        metrics.registerHistogram("voltdb_client_latency_microseconds",
+                "Latency of the procedure calls made by this node's clients",
+                new Supplier<AbstractHistogram>() {
+                    @Override
+                    public AbstractHistogram get() {
+                        return LatencyStats.snapshotClientLatencies();
+                    }
+                });
+        metrics.registerGauge("voltdb_jvm_heap_used_bytes", "Java heap in use",
+                new Supplier<Long>() {
+                    @Override
+                    public Long get() {
+                        Runtime runtime = Runtime.getRuntime();
+                        return runtime.totalMemory() - runtime.freeMemory();
+                    }
+                });
+        metrics.registerGauge("voltdb_jvm_heap_max_bytes", "Maximum Java heap",
+                new Supplier<Long>() {
+                    @Override
+                    public Long get() {
+                        return Runtime.getRuntime().maxMemory();
+                    }
+                });
+    }
+
     //This is a wrapper to generate JSON for profile of authenticated user.
     private final class Profile {
         private final String user;
@@ -890,6 +963,11 @@ public class HTTPAdminListener {
             ContextHandler profileRequestHandler = new ContextHandler("/profile");
             profileRequestHandler.setHandler(new UserProfileHandler());
 
+            ///metrics
+            ContextHandler metricsRequestHandler = new ContextHandler("/metrics");
+            metricsRequestHandler.setHandler(new MetricsRequestHandler());
+            registerNodeMetrics();
+
             ContextHandlerCollection handlers = new ContextHandlerCollection();
             handlers.setHandlers(new Handler[] {
                     apiRequestHandler,
@@ -897,6 +975,7 @@ public class HTTPAdminListener {
                     ddlRequestHandler,
                     deploymentRequestHandler,
                     profileRequestHandler,
+                    metricsRequestHandler,
                     dbMonitorHandler
             });
 
@@ -0,0 +1,190 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads process and thread resource usage for this process straight from
+ * Linux procfs, without forking a "ps" process. Every reader returns null
+ * when procfs isn't there (e.g. on OS X) or the file can't be parsed.
+ */
+public class ProcFS {
+
+    public static final File SELF = new File("/proc/self");
+
+    // Linux reports CPU times in clock ticks and RSS in pages. Neither sysconf
+    // value is visible from Java; these are the values on every supported platform.
+    static final long MILLIS_PER_TICK = 10;
+    static final long PAGE_SIZE = 4096;
+
+    /**
+     * The fields used from one /proc/[pid]/stat or /proc/[pid]/task/[tid]/stat line.
+     */
+    public static class Stat {
+        public final String comm;
+        public final char state;
+        public final long userMillis;
+        public final long systemMillis;
+        public final int numThreads;
+        public final long vsize;
+        public final long rss;
+
+        Stat(String comm, char state, long userMillis, long systemMillis,
+             int numThreads, long vsize, long rss) {
+            this.comm = comm;
+            this.state = state;
+            this.userMillis = userMillis;
+            this.systemMillis = systemMillis;
+            this.numThreads = numThreads;
+            this.vsize = vsize;
+            this.rss = rss;
+        }
+
+        public long cpuMillis() {
+            return userMillis + systemMillis;
+        }
+    }
+
+    public static boolean isAvailable() {
+        return new File(SELF, "stat").canRead();
+    }
+
+    /**
+     * Parse a stat line. The command name is in parentheses and may itself
+     * contain spaces or parentheses, so fields are counted from the last ')'.
+     */
+    static Stat parseStat(String line) {
+        int open = line.indexOf('(');
+        int close = line.lastIndexOf(')');
+        if (open < 0 || close < open) {
+            return null;
+        }
+        String[] fields = line.substring(close + 2).split(" ");
+        // fields[0] is field 3 (state) in proc(5)
+        if (fields.length < 22) {
+            return null;
+        }
+        try {
+            return new Stat(line.substring(open + 1, close),
+                            fields[0].charAt(0),
+                            Long.parseLong(fields[11]) * MILLIS_PER_TICK,
+                            Long.parseLong(fields[12]) * MILLIS_PER_TICK,
+                            Integer.parseInt(fields[17]),
+                            Long.parseLong(fields[20]),
+                            Long.parseLong(fields[21]) * PAGE_SIZE);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parse the "Name:   value [kB]" lines of a status file into numbers,
+     * converting kB values to bytes. Lines without a numeric value are skipped.
+     */
+    static Map<String, Long> parseStatus(Iterable<String> lines) {
+        Map<String, Long> values = new HashMap<String, Long>();
+        for (String line : lines) {
+            int colon = line.indexOf(':');
+            if (colon < 0) {
+                continue;
+            }
+            String[] parts = line.substring(colon + 1).trim().split("\\s+");
+            try {
+                long value = Long.parseLong(parts[0]);
+                if (parts.length > 1 && parts[1].equals("kB")) {
+                    value *= 1024;
+                }
+                values.put(line.substring(0, colon), value);
+            } catch (NumberFormatException e) {
+                // not a number, e.g. State or Cpus_allowed_list
+            }
+        }
+        return values;
+    }
+
+    /**
+     * @return /proc/self/stat, or null if it can't be read.
+     */
+    public static Stat readProcessStat() {
+        return readStat(new File(SELF, "stat"));
+    }
+
+    /**
+     * @return the numeric lines of /proc/self/status, or null if it can't be read.
+     */
+    public static Map<String, Long> readProcessStatus() {
+        try {
+            return parseStatus(readLines(new File(SELF, "status")));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the stat of each native thread in /proc/self/task keyed by
+     * thread id, or null if the directory can't be read. Threads that exit
+     * while the directory is walked are left out.
+     */
+    public static Map<Integer, Stat> readThreadStats() {
+        String[] tids = new File(SELF, "task").list();
+        if (tids == null) {
+            return null;
+        }
+        Map<Integer, Stat> stats = new HashMap<Integer, Stat>(tids.length * 2);
+        for (String tid : tids) {
+            Stat stat = readStat(new File(new File(new File(SELF, "task"), tid), "stat"));
+            if (stat != null) {
+                stats.put(Integer.valueOf(tid), stat);
+            }
+        }
+        return stats;
+    }
+
+    private static Stat readStat(File file) {
+        try {
+            List<String> lines = readLines(file);
+            return lines.isEmpty() ? null : parseStat(lines.get(0));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static List<String> readLines(File file) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        FileInputStream fis = new FileInputStream(file);
+        try {
+            BufferedReader r = new BufferedReader(new InputStreamReader(fis));
+            String line;
+            while ((line = r.readLine()) != null) {
+                lines.add(line);
+            }
+        } finally {
+            fis.close();
+        }
+        return lines;
+    }
+}
@@ -17,10 +17,6 @@
 
 package org.voltdb.utils;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.InputStreamReader;
 import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
@@ -297,10 +293,6 @@ public class SystemStatsCollector {
         pid = Integer.valueOf(pidString);
         initialized = true;
 
-        // get the RSS and other stats from scraping "ps" from the command line
-        PSScraper.PSData psdata = PSScraper.getPSData(pid);
-        assert(psdata.rss > 0);
-
         // figure out how much memory this thing has
         memorysize = pp.ramInMegabytes;
         assert(memorysize > 0);
@@ -325,6 +317,10 @@ public class SystemStatsCollector {
 
         // notify users if stats collection might be slow
         if (mode == GetRSSMode.PS) {
+            // only fork "ps" when neither faster method works
+            PSScraper.PSData psdata = PSScraper.getPSData(pid);
+            assert(psdata.rss > 0);
+
             VoltLogger logger = new VoltLogger("HOST");
             logger.warn("System statistics will be collected in a sub-optimal "
                     + "manner because either procfs couldn't be read from or "
@@ -337,21 +333,8 @@ public class SystemStatsCollector {
      * around, this will return -1;
      */
     private static long getRSSFromProcFS() {
-        try {
-            File statFile = new File(String.format("/proc/%d/stat", pid));
-            FileInputStream fis = new FileInputStream(statFile);
-            try {
-                BufferedReader r = new BufferedReader(new InputStreamReader(fis));
-                String stats = r.readLine();
-                String[] parts = stats.split(" ");
-                return Long.parseLong(parts[23]) * 4 * 1024;
-            } finally {
-                fis.close();
-            }
-        }
-        catch (Exception e) {
-            return -1;
-        }
+        ProcFS.Stat stat = ProcFS.readProcessStat();
+        return stat == null ? -1 : stat.rss;
     }
 
     public static synchronized long getRSSMB() {
@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hsqldb_voltpatches.VoltXMLElement.VoltXMLDiff;
 import org.hsqldb_voltpatches.index.Index;
@@ -98,7 +99,7 @@ public class HSQLInterface {
     Map<String, VoltXMLElement> lastSchema = new TreeMap<>();
     // empty schema for cloning and for null diffs
     final VoltXMLElement emptySchema = new VoltXMLElement(XML_SCHEMA_NAME);
-    static int instanceId = 0;
+    static final AtomicInteger instanceId = new AtomicInteger();
 
     private HSQLInterface(Session sessionProxy) {
         emptySchema.attributes.put("name", XML_SCHEMA_NAME);
@@ -121,8 +122,9 @@ public class HSQLInterface {
      */
     public static HSQLInterface loadHsqldb() {
         Session sessionProxy = null;
-        String name = "hsqldbinstance-" + String.valueOf(instanceId) + "-" + String.valueOf(System.currentTimeMillis());
-        instanceId++;
+        // Planner threads load their own instances concurrently, so each one
+        // needs a name of its own
+        String name = "hsqldbinstance-" + String.valueOf(instanceId.getAndIncrement()) + "-" + String.valueOf(System.currentTimeMillis());
 
         HsqlProperties props = new HsqlProperties();
         try {
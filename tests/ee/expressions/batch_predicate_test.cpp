@@ -0,0 +1,279 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include "harness.h"
+#include "common/common.h"
+#include "common/valuevector.h"
+#include "common/ValueFactory.hpp"
+#include "common/tabletuple.h"
+#include "expressions/batchpredicate.h"
+#include "expressions/expressions.h"
+#include "expressions/expressionutil.h"
+#include "storage/temptable.h"
+#include "storage/tablefactory.h"
+#include "storage/tableiterator.h"
+#include "boost/scoped_ptr.hpp"
+
+#include <cmath>
+#include <vector>
+
+#define TUPLES 1000
+
+using namespace voltdb;
+
+// Columns of the test table
+enum { ID, TINY, SMALL, INT, BIG, DBL, TS, STR };
+
+class BatchPredicateTest : public Test {
+public:
+    BatchPredicateTest() : m_params(2) {
+        CatalogId database_id = 1000;
+        const char *names[] = { "id", "tiny", "small", "int", "big", "dbl", "ts", "str" };
+        ValueType types[] = { VALUE_TYPE_BIGINT, VALUE_TYPE_TINYINT, VALUE_TYPE_SMALLINT,
+                              VALUE_TYPE_INTEGER, VALUE_TYPE_BIGINT, VALUE_TYPE_DOUBLE,
+                              VALUE_TYPE_TIMESTAMP, VALUE_TYPE_VARCHAR };
+        std::vector<std::string> columnNames;
+        std::vector<ValueType> columnTypes;
+        std::vector<int32_t> columnLengths;
+        std::vector<bool> columnAllowNull;
+        for (int i = 0; i <= STR; ++i) {
+            columnNames.push_back(names[i]);
+            columnTypes.push_back(types[i]);
+            columnLengths.push_back(types[i] == VALUE_TYPE_VARCHAR ?
+                                    10 : NValue::getTupleStorageSize(types[i]));
+            columnAllowNull.push_back(true);
+        }
+        TupleSchema *schema = TupleSchema::createTupleSchemaForTest(columnTypes, columnLengths, columnAllowNull);
+        m_table.reset(TableFactory::getTempTable(database_id, "test_table", schema, columnNames, NULL));
+
+        // Every 7th value of a column is NULL, and every 11th double is NaN
+        TableTuple &tuple = m_table->tempTuple();
+        for (int64_t i = 1; i <= TUPLES; ++i) {
+            tuple.setNValue(ID, ValueFactory::getBigIntValue(i));
+            tuple.setNValue(TINY, i % 7 == 1 ? NValue::getNullValue(VALUE_TYPE_TINYINT) :
+                            ValueFactory::getTinyIntValue(static_cast<int8_t>(i % 100 - 50)));
+            tuple.setNValue(SMALL, i % 7 == 2 ? NValue::getNullValue(VALUE_TYPE_SMALLINT) :
+                            ValueFactory::getSmallIntValue(static_cast<int16_t>(i * 3)));
+            tuple.setNValue(INT, i % 7 == 3 ? NValue::getNullValue(VALUE_TYPE_INTEGER) :
+                            ValueFactory::getIntegerValue(static_cast<int32_t>(i % 13)));
+            tuple.setNValue(BIG, i % 7 == 4 ? NValue::getNullValue(VALUE_TYPE_BIGINT) :
+                            ValueFactory::getBigIntValue((i % 5) * 1000000000000LL));
+            tuple.setNValue(DBL, i % 7 == 5 ? NValue::getNullValue(VALUE_TYPE_DOUBLE) :
+                            ValueFactory::getDoubleValue(i % 11 == 0 ? std::sqrt(-1.0) : i / 4.0));
+            tuple.setNValue(TS, i % 7 == 6 ? NValue::getNullValue(VALUE_TYPE_TIMESTAMP) :
+                            ValueFactory::getTimestampValue(i * 1000));
+            tuple.setNValue(STR, NValue::getNullValue(VALUE_TYPE_VARCHAR));
+            m_table->insertTuple(tuple);
+        }
+    }
+
+    /**
+     * Filter the table a block at a time and check that exactly the tuples
+     * eval() says are true pass.
+     * @return the number of tuples that pass
+     */
+    int checkMatches(AbstractExpression *predicate) {
+        boost::scoped_ptr<AbstractExpression> guard(predicate);
+        boost::scoped_ptr<BatchPredicate> batch(BatchPredicate::compile(predicate, m_table->schema()));
+        EXPECT_TRUE(batch.get() != NULL);
+        if (batch.get() == NULL) {
+            return -1;
+        }
+        EXPECT_TRUE(batch->bind());
+
+        TableIterator iter = m_table->iterator();
+        TableTuple tuple(m_table->schema());
+        char *block[BatchPredicate::BLOCK_SIZE];
+        int selected[BatchPredicate::BLOCK_SIZE];
+        int matches = 0;
+        bool more = true;
+        while (more) {
+            int count = 0;
+            while (count < BatchPredicate::BLOCK_SIZE && (more = iter.next(tuple))) {
+                block[count++] = tuple.address();
+            }
+            int passed = batch->filter(block, count, selected);
+            EXPECT_TRUE(passed >= 0);
+            int next = 0;
+            for (int k = 0; k < count; ++k) {
+                tuple.move(block[k]);
+                bool expected = predicate->eval(&tuple, NULL).isTrue();
+                bool actual = next < passed && selected[next] == k;
+                EXPECT_EQ(expected, actual);
+                if (actual) {
+                    ++next;
+                    ++matches;
+                }
+            }
+        }
+        return matches;
+    }
+
+    static AbstractExpression* column(int column) {
+        return new TupleValueExpression(0, column);
+    }
+
+    static AbstractExpression* constant(const NValue &value) {
+        return new ConstantValueExpression(value);
+    }
+
+    static AbstractExpression* compare(ExpressionType type, AbstractExpression *left, AbstractExpression *right) {
+        return ExpressionUtil::comparisonFactory(emptyDom(), type, left, right);
+    }
+
+    static AbstractExpression* conjunction(ExpressionType type, AbstractExpression *left, AbstractExpression *right) {
+        return ExpressionUtil::conjunctionFactory(type, left, right);
+    }
+
+    static PlannerDomValue emptyDom() { return s_emptyRoot.rootObject(); }
+
+protected:
+    boost::scoped_ptr<Table> m_table;
+    NValueArray m_params;
+
+private:
+    // An empty JSON object to get simple (non-quantified) behavior from comparators
+    static PlannerDomRoot s_emptyRoot;
+};
+
+PlannerDomRoot BatchPredicateTest::s_emptyRoot("{}");
+
+TEST_F(BatchPredicateTest, CompareEachType) {
+    // WHERE id = 20, and a constant on the left
+    ASSERT_EQ(1, checkMatches(compare(EXPRESSION_TYPE_COMPARE_EQUAL,
+                                      column(ID), constant(ValueFactory::getBigIntValue(20)))));
+    ASSERT_EQ(19, checkMatches(compare(EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+                                       constant(ValueFactory::getBigIntValue(20)), column(ID))));
+
+    ExpressionType comparisons[] = { EXPRESSION_TYPE_COMPARE_EQUAL,
+                                     EXPRESSION_TYPE_COMPARE_NOTEQUAL,
+                                     EXPRESSION_TYPE_COMPARE_LESSTHAN,
+                                     EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+                                     EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO,
+                                     EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO };
+    for (int i = 0; i < 6; ++i) {
+        checkMatches(compare(comparisons[i], column(TINY), constant(ValueFactory::getIntegerValue(-10))));
+        checkMatches(compare(comparisons[i], column(SMALL), constant(ValueFactory::getSmallIntValue(300))));
+        checkMatches(compare(comparisons[i], column(INT), constant(ValueFactory::getTinyIntValue(6))));
+        checkMatches(compare(comparisons[i], column(BIG), constant(ValueFactory::getBigIntValue(2000000000000LL))));
+        checkMatches(compare(comparisons[i], column(DBL), constant(ValueFactory::getDoubleValue(100.25))));
+        checkMatches(compare(comparisons[i], column(TS), constant(ValueFactory::getTimestampValue(500000))));
+        // Integers compared to doubles, and NaN compared to NaN
+        checkMatches(compare(comparisons[i], column(INT), constant(ValueFactory::getDoubleValue(6.5))));
+        checkMatches(compare(comparisons[i], column(DBL), column(SMALL)));
+        checkMatches(compare(comparisons[i], column(DBL), constant(ValueFactory::getDoubleValue(std::sqrt(-1.0)))));
+        checkMatches(compare(comparisons[i], column(TINY), column(INT)));
+    }
+}
+
+TEST_F(BatchPredicateTest, NullLogic) {
+    // WHERE NOT (tiny < 0 OR int > 6) AND small IS NOT NULL
+    AbstractExpression *either =
+        conjunction(EXPRESSION_TYPE_CONJUNCTION_OR,
+                    compare(EXPRESSION_TYPE_COMPARE_LESSTHAN, column(TINY), constant(ValueFactory::getBigIntValue(0))),
+                    compare(EXPRESSION_TYPE_COMPARE_GREATERTHAN, column(INT), constant(ValueFactory::getBigIntValue(6))));
+    AbstractExpression *notNull = new OperatorNotExpression(new OperatorIsNullExpression(column(SMALL)));
+    int matches = checkMatches(conjunction(EXPRESSION_TYPE_CONJUNCTION_AND,
+                                           new OperatorNotExpression(either), notNull));
+    ASSERT_TRUE(matches > 0);
+
+    // A NULL constant makes every comparison NULL
+    ASSERT_EQ(0, checkMatches(compare(EXPRESSION_TYPE_COMPARE_EQUAL,
+                                      column(ID), constant(NValue::getNullValue(VALUE_TYPE_BIGINT)))));
+    ASSERT_EQ(TUPLES, checkMatches(new OperatorNotExpression(
+        compare(EXPRESSION_TYPE_COMPARE_LESSTHAN, column(ID), constant(ValueFactory::getBigIntValue(0))))));
+}
+
+TEST_F(BatchPredicateTest, Arithmetic) {
+    // WHERE int * 2 + tiny > id - 500
+    AbstractExpression *lhs =
+        new OperatorExpression<OpPlus>(EXPRESSION_TYPE_OPERATOR_PLUS,
+            new OperatorExpression<OpMultiply>(EXPRESSION_TYPE_OPERATOR_MULTIPLY,
+                                               column(INT), constant(ValueFactory::getBigIntValue(2))),
+            column(TINY));
+    AbstractExpression *rhs =
+        new OperatorExpression<OpMinus>(EXPRESSION_TYPE_OPERATOR_MINUS,
+                                        column(ID), constant(ValueFactory::getBigIntValue(500)));
+    ASSERT_TRUE(checkMatches(compare(EXPRESSION_TYPE_COMPARE_GREATERTHAN, lhs, rhs)) > 0);
+
+    // WHERE big * 4 > 1 overflows, and the block has to be evaluated a tuple at a time
+    AbstractExpression *overflow =
+        compare(EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+                new OperatorExpression<OpMultiply>(EXPRESSION_TYPE_OPERATOR_MULTIPLY,
+                                                   column(BIG), constant(ValueFactory::getBigIntValue(INT64_MAX / 4))),
+                constant(ValueFactory::getBigIntValue(1)));
+    boost::scoped_ptr<AbstractExpression> guard(overflow);
+    boost::scoped_ptr<BatchPredicate> batch(BatchPredicate::compile(overflow, m_table->schema()));
+    ASSERT_TRUE(batch.get() != NULL);
+    ASSERT_TRUE(batch->bind());
+    TableIterator iter = m_table->iterator();
+    TableTuple tuple(m_table->schema());
+    char *block[BatchPredicate::BLOCK_SIZE];
+    int selected[BatchPredicate::BLOCK_SIZE];
+    int count = 0;
+    while (count < BatchPredicate::BLOCK_SIZE && iter.next(tuple)) {
+        block[count++] = tuple.address();
+    }
+    ASSERT_EQ(-1, batch->filter(block, count, selected));
+}
+
+TEST_F(BatchPredicateTest, Parameters) {
+    // WHERE id <= ? AND small > ?
+    AbstractExpression *predicate =
+        conjunction(EXPRESSION_TYPE_CONJUNCTION_AND,
+                    compare(EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO,
+                            column(ID), new ParameterValueExpression(0, &m_params[0])),
+                    compare(EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+                            column(SMALL), new ParameterValueExpression(1, &m_params[1])));
+    boost::scoped_ptr<AbstractExpression> guard(predicate);
+    boost::scoped_ptr<BatchPredicate> batch(BatchPredicate::compile(predicate, m_table->schema()));
+    ASSERT_TRUE(batch.get() != NULL);
+
+    m_params[0] = ValueFactory::getIntegerValue(100);
+    m_params[1] = ValueFactory::getDoubleValue(30.5);
+    ASSERT_TRUE(batch->bind());
+
+    // Each execution binds its own values, and one that isn't a fixed width number can't be bound
+    m_params[1] = ValueFactory::getDecimalValueFromString("30.5");
+    ASSERT_FALSE(batch->bind());
+    m_params[1] = ValueFactory::getBigIntValue(30);
+    ASSERT_TRUE(batch->bind());
+}
+
+TEST_F(BatchPredicateTest, Unsupported) {
+    // Strings, functions and IN lists are left to eval()
+    boost::scoped_ptr<AbstractExpression> strings(
+        compare(EXPRESSION_TYPE_COMPARE_EQUAL, column(STR), constant(ValueFactory::getBigIntValue(1))));
+    ASSERT_TRUE(BatchPredicate::compile(strings.get(), m_table->schema()) == NULL);
+
+    std::vector<AbstractExpression*>* argument = new std::vector<AbstractExpression*>();
+    argument->push_back(column(ID));
+    boost::scoped_ptr<AbstractExpression> function(
+        compare(EXPRESSION_TYPE_COMPARE_EQUAL, ExpressionUtil::functionFactory(FUNC_ABS, argument),
+                constant(ValueFactory::getBigIntValue(1))));
+    ASSERT_TRUE(BatchPredicate::compile(function.get(), m_table->schema()) == NULL);
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -1114,6 +1114,53 @@ TEST_F(IndexTest, ReentrantHashMultiple) {
     delete[] searchkey.address();
 }
 
+TEST_F(IndexTest, OpenHashMultiple) {
+    vector<int> ixm_column_indices;
+    vector<ValueType> ixm_column_types;
+    ixm_column_indices.push_back(2);
+    ixm_column_types.push_back(VALUE_TYPE_BIGINT);
+    init("ixo1",
+         OPEN_HASH_TABLE_INDEX,
+         ixm_column_indices,
+         ixm_column_types,
+         false);
+
+    TableIndex* index = table->index("ixo1");
+    EXPECT_EQ(true, index != NULL);
+    EXPECT_EQ("CompactingOpenHashMultiMapIndex", index->getTypeName());
+    EXPECT_EQ(NUM_OF_TUPLES, index->getSize());
+    EXPECT_TRUE(index->getLoadFactor() > 0.0);
+    EXPECT_TRUE(index->getAverageProbeLength() >= 1.0);
+    IndexCursor indexCursor(index->getTupleSchema());
+
+    vector<ValueType> keyColumnTypes(1, VALUE_TYPE_BIGINT);
+    vector<int32_t>keyColumnLengths(1, NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+    vector<bool> keyColumnAllowNull(1, true);
+    TupleSchema* keySchema =
+        TupleSchema::createTupleSchemaForTest(keyColumnTypes,
+                                       keyColumnLengths,
+                                       keyColumnAllowNull);
+    TableTuple searchkey(keySchema);
+    searchkey.move(new char[searchkey.tupleLength()]);
+
+    // every third tuple has the same key, all of them are found
+    searchkey.setNValue(0, ValueFactory::getBigIntValue(static_cast<int64_t>(1)));
+    EXPECT_TRUE(index->moveToKey(&searchkey, indexCursor));
+    int found = 0;
+    TableTuple tuple(table->schema());
+    while ( ! (tuple = index->nextValueAtKey(indexCursor)).isNullTuple()) {
+        EXPECT_TRUE(ValueFactory::getBigIntValue(1).op_equals(tuple.getNValue(2)).isTrue());
+        ++found;
+    }
+    EXPECT_EQ((NUM_OF_TUPLES + 2) / 3, found);
+
+    searchkey.setNValue(0, ValueFactory::getBigIntValue(static_cast<int64_t>(3)));
+    EXPECT_FALSE(index->moveToKey(&searchkey, indexCursor));
+
+    TupleSchema::freeTupleSchema(keySchema);
+    delete[] searchkey.address();
+}
+
 
 int main()
 {
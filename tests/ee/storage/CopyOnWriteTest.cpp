@@ -45,12 +45,15 @@
 #include "stx/btree_set.h"
 #include "common/DefaultTupleSerializer.h"
 #include "jsoncpp/jsoncpp.h"
+#include <map>
+#include <set>
 #include <vector>
 #include <string>
 #include <iostream>
 #include <stdint.h>
 #include <stdarg.h>
 #include <boost/foreach.hpp>
+#include <boost/scoped_array.hpp>
 #include <boost/shared_ptr.hpp>
 #include <boost/ptr_container/ptr_vector.hpp>
 #include <murmur3/MurmurHash3.h>
@@ -1019,6 +1022,60 @@ public:
         }
     }
 
+    /*
+     * Activate a block-tracked snapshot stream and stream the whole table through a small
+     * buffer, mutating the table between calls. Collects the rows by block id and the ids
+     * of the blocks carried over from the previous tracked snapshot.
+     */
+    void streamTrackedSnapshot(const std::string &mode, int numMutationsDuring,
+                               std::map<int64_t, std::map<int32_t, int32_t> > &blockRows,
+                               std::set<int64_t> &carriedBlocks) {
+        std::string predicate = "{\"triggersDelete\":false,\"blockTracking\":\"" + mode + "\"}";
+        char predicateBuffer[1024];
+        ReferenceSerializeOutput output(predicateBuffer, sizeof(predicateBuffer));
+        output.writeInt(1);
+        output.writeTextString(predicate);
+        ReferenceSerializeInputBE input(predicateBuffer, output.position());
+        ASSERT_TRUE(m_table->activateStream(m_serializer, TABLE_STREAM_SNAPSHOT, 0, m_tableId, input));
+
+        boost::scoped_array<char> buffer(new char[BUFFER_SIZE]);
+        int64_t remaining = 1;
+        while (remaining > 0) {
+            TupleOutputStreamProcessor outputStreams(buffer.get(), BUFFER_SIZE);
+            std::vector<int> retPositions;
+            remaining = m_table->streamMore(outputStreams, TABLE_STREAM_SNAPSHOT, retPositions);
+            ASSERT_TRUE(remaining >= 0);
+
+            ReferenceSerializeInputBE rows(buffer.get(), outputStreams.begin()->position());
+            rows.readInt(); // partition id
+            int32_t rowCount = rows.readInt();
+            for (int32_t i = 0; i < rowCount; i++) {
+                int32_t length = rows.readInt();
+                int64_t blockId = rows.readLong();
+                if (blockId < 0) {
+                    ASSERT_TRUE(carriedBlocks.insert(-blockId - 1).second);
+                    rows.getRawPointer(length - sizeof(int64_t));
+                    continue;
+                }
+                int32_t id = rows.readInt();
+                int32_t value = rows.readInt();
+                ASSERT_TRUE(blockRows[blockId].insert(std::make_pair(id, value)).second);
+                rows.getRawPointer(length - sizeof(int64_t) - 2 * sizeof(int32_t));
+            }
+            for (int i = 0; i < numMutationsDuring; i++) {
+                doRandomTableMutation(m_table);
+            }
+        }
+    }
+
+    void getTableRows(std::map<int32_t, int32_t> &rows) {
+        voltdb::TableIterator& iterator = m_table->iterator();
+        TableTuple tuple(m_table->schema());
+        while (iterator.next(tuple)) {
+            rows[ValuePeeker::peekAsInteger(tuple.getNValue(0))] = ValuePeeker::peekAsInteger(tuple.getNValue(1));
+        }
+    }
+
     boost::shared_ptr<ReferenceSerializeInputBE> getHashRangePredicateInput(const T_HashRange &testRange) {
         // Set up the hash range predicate.
         ReferenceSerializeOutput hashRangeOutput(m_hashRangeBuffer, 1024 * 256);
@@ -1523,6 +1580,115 @@ TEST_F(CopyOnWriteTest, MultiStream) {
     }
 }
 
+/*
+ * A stream with a column projection only serializes the projected columns,
+ * in the projected order, of the rows accepted by its predicate.
+ */
+TEST_F(CopyOnWriteTest, ProjectedStream) {
+    const int tupleCount = 100;
+    initTable(1, 0);
+    addRandomUniqueTuples(m_table, tupleCount);
+
+    std::map<int32_t, int32_t> expected;
+    voltdb::TableIterator& iterator = m_table->iterator();
+    TableTuple tuple(m_table->schema());
+    while (iterator.next(tuple)) {
+        expected[ValuePeeker::peekAsInteger(tuple.getNValue(0))] =
+            ValuePeeker::peekAsInteger(tuple.getNValue(1));
+    }
+
+    std::vector<std::string> strings;
+    strings.push_back("{\"triggersDelete\":false,\"projection\":[1,0]}");
+    char predicateBuffer[1024];
+    ReferenceSerializeOutput output(predicateBuffer, sizeof(predicateBuffer));
+    output.writeInt(1);
+    output.writeTextString(strings[0]);
+    ReferenceSerializeInputBE input(predicateBuffer, output.position());
+    ASSERT_TRUE(m_table->activateStream(m_serializer, TABLE_STREAM_SNAPSHOT, 0, m_tableId, input));
+
+    const size_t bufferSize = 1024 * 1024;
+    boost::scoped_array<char> buffer(new char[bufferSize]);
+    TupleOutputStreamProcessor outputStreams(buffer.get(), bufferSize);
+    std::vector<int> retPositions;
+    int64_t remaining = m_table->streamMore(outputStreams, TABLE_STREAM_SNAPSHOT, retPositions);
+    ASSERT_EQ(0, remaining);
+
+    ReferenceSerializeInputBE rows(buffer.get(), outputStreams.begin()->position());
+    rows.readInt(); // partition id
+    ASSERT_EQ(tupleCount, rows.readInt());
+    for (int i = 0; i < tupleCount; i++) {
+        // two INTEGER columns out of the nine
+        ASSERT_EQ(2 * sizeof(int32_t), rows.readInt());
+        int32_t value = rows.readInt();
+        int32_t id = rows.readInt();
+        ASSERT_EQ(1, expected.count(id));
+        ASSERT_EQ(expected[id], value);
+        expected.erase(id);
+    }
+    ASSERT_TRUE(expected.empty());
+}
+
+/*
+ * A delta stream only writes the blocks changed since the previous tracked snapshot,
+ * and the previous snapshot's blocks it carries over plus the ones it writes add up
+ * to the table as of the delta's activation.
+ */
+TEST_F(CopyOnWriteTest, DeltaStream) {
+    // Plenty of small blocks
+    initTable(1, static_cast<int>((m_tupleWidth + 1) * (TUPLE_COUNT / 200 + 1)));
+    addRandomUniqueTuples(m_table, TUPLE_COUNT);
+    ASSERT_TRUE(m_table->allocatedBlockCount() > 4);
+    ASSERT_EQ(m_table->allocatedBlockCount(), m_table->dirtyBlockCount());
+
+    std::map<int64_t, std::map<int32_t, int32_t> > snapshotRows;
+    std::set<int64_t> carried;
+    std::map<int32_t, int32_t> expected;
+    getTableRows(expected);
+    streamTrackedSnapshot("FULL", 1, snapshotRows, carried);
+    ASSERT_TRUE(carried.empty());
+
+    std::map<int32_t, int32_t> actual;
+    for (std::map<int64_t, std::map<int32_t, int32_t> >::iterator block = snapshotRows.begin();
+         block != snapshotRows.end(); ++block) {
+        actual.insert(block->second.begin(), block->second.end());
+    }
+    ASSERT_TRUE(expected == actual);
+
+    for (size_t iteration = 0; iteration < NUM_REPETITIONS; iteration++) {
+        // Touch a few tuples, most blocks stay clean
+        for (int i = 0; i < 3; i++) {
+            doRandomTableMutation(m_table);
+        }
+        const size_t blockCount = m_table->allocatedBlockCount();
+        const size_t dirtyBlockCount = m_table->dirtyBlockCount();
+        ASSERT_TRUE(dirtyBlockCount > 0);
+        ASSERT_TRUE(dirtyBlockCount < blockCount);
+
+        expected.clear();
+        getTableRows(expected);
+        std::map<int64_t, std::map<int32_t, int32_t> > deltaRows;
+        carried.clear();
+        streamTrackedSnapshot("DELTA", 1, deltaRows, carried);
+        ASSERT_EQ(blockCount - dirtyBlockCount, carried.size());
+        ASSERT_TRUE(deltaRows.size() <= dirtyBlockCount);
+
+        // Apply the delta to the previous snapshot's blocks
+        std::map<int64_t, std::map<int32_t, int32_t> > appliedRows = deltaRows;
+        for (std::set<int64_t>::iterator id = carried.begin(); id != carried.end(); ++id) {
+            ASSERT_EQ(0, deltaRows.count(*id));
+            ASSERT_EQ(1, snapshotRows.count(*id));
+            appliedRows[*id] = snapshotRows[*id];
+        }
+        actual.clear();
+        for (std::map<int64_t, std::map<int32_t, int32_t> >::iterator block = appliedRows.begin();
+             block != appliedRows.end(); ++block) {
+            actual.insert(block->second.begin(), block->second.end());
+        }
+        ASSERT_TRUE(expected == actual);
+        snapshotRows.swap(appliedRows);
+    }
+}
+
 /*
  * Test for the ENG-4524 edge condition where serializeMore() yields on
  * precisely the last tuple which had caused the loop to skip the last call to
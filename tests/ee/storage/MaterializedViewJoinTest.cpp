@@ -0,0 +1,609 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <string>
+#include <stdint.h>
+
+#include "harness.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
+#include "execution/VoltDBEngine.h"
+#include "storage/MaterializedViewMetadata.h"
+#include "storage/persistenttable.h"
+#include "storage/tableiterator.h"
+
+using namespace std;
+using namespace voltdb;
+
+/*
+ * CREATE TABLE SALES (ID INTEGER NOT NULL, STORE INTEGER, QTY BIGINT, NOTE VARCHAR(16),
+ *                     PRIMARY KEY (ID));
+ * CREATE TABLE STORES (SID INTEGER NOT NULL, REGION INTEGER, FREGION FLOAT, PRIMARY KEY (SID));
+ * CREATE VIEW RSALES (REGION, CNT, TOTAL, MAXQ) AS
+ *     SELECT STORES.REGION, COUNT(*), SUM(SALES.QTY), MAX(SALES.QTY)
+ *     FROM SALES JOIN STORES ON SALES.STORE = STORES.SID GROUP BY STORES.REGION;
+ * CREATE VIEW RNOTES (FREGION, CNT, MAXQ, MAXNOTE) AS
+ *     SELECT STORES.FREGION, COUNT(*), MAX(SALES.QTY), MAX(SALES.NOTE)
+ *     FROM SALES JOIN STORES ON SALES.STORE = STORES.SID GROUP BY STORES.FREGION;
+ */
+static const string catalogPayload =
+        "add / clusters cluster\n"
+        "add /clusters#cluster databases database\n"
+        "add /clusters#cluster/databases#database tables RNOTES\n"
+        "set /clusters#cluster/databases#database/tables#RNOTES isreplicated true\n"
+        "set $PREV materializer /clusters#cluster/databases#database/tables#SALES\n"
+        "set $PREV signature \"RNOTES|fibv\"\n"
+        "set $PREV tuplelimit 2147483647\n"
+        "add /clusters#cluster/databases#database/tables#RNOTES columns CNT\n"
+        "set /clusters#cluster/databases#database/tables#RNOTES/columns#CNT index 1\n"
+        "set $PREV type 5\n"
+        "set $PREV size 4\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"CNT\"\n"
+        "set $PREV matview /clusters#cluster/databases#database/tables#SALES/views#RNOTES\n"
+        "set $PREV aggregatetype 41\n"
+        "add /clusters#cluster/databases#database/tables#RNOTES columns FREGION\n"
+        "set /clusters#cluster/databases#database/tables#RNOTES/columns#FREGION index 0\n"
+        "set $PREV type 8\n"
+        "set $PREV size 8\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"FREGION\"\n"
+        "add /clusters#cluster/databases#database/tables#RNOTES columns MAXNOTE\n"
+        "set /clusters#cluster/databases#database/tables#RNOTES/columns#MAXNOTE index 3\n"
+        "set $PREV type 9\n"
+        "set $PREV size 16\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"MAXNOTE\"\n"
+        "set $PREV matview /clusters#cluster/databases#database/tables#SALES/views#RNOTES\n"
+        "set $PREV aggregatetype 44\n"
+        "set $PREV matviewsource /clusters#cluster/databases#database/tables#SALES/columns#NOTE\n"
+        "add /clusters#cluster/databases#database/tables#RNOTES columns MAXQ\n"
+        "set /clusters#cluster/databases#database/tables#RNOTES/columns#MAXQ index 2\n"
+        "set $PREV type 6\n"
+        "set $PREV size 8\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"MAXQ\"\n"
+        "set $PREV matview /clusters#cluster/databases#database/tables#SALES/views#RNOTES\n"
+        "set $PREV aggregatetype 44\n"
+        "set $PREV matviewsource /clusters#cluster/databases#database/tables#SALES/columns#QTY\n"
+        "add /clusters#cluster/databases#database/tables#RNOTES indexes MATVIEW_PK_INDEX\n"
+        "set /clusters#cluster/databases#database/tables#RNOTES/indexes#MATVIEW_PK_INDEX unique true\n"
+        "set $PREV type 1\n"
+        "add /clusters#cluster/databases#database/tables#RNOTES/indexes#MATVIEW_PK_INDEX columns 0\n"
+        "set /clusters#cluster/databases#database/tables#RNOTES/indexes#MATVIEW_PK_INDEX/columns#0 index 0\n"
+        "set $PREV column /clusters#cluster/databases#database/tables#RNOTES/columns#FREGION\n"
+        "add /clusters#cluster/databases#database/tables#RNOTES constraints MATVIEW_PK_CONSTRAINT\n"
+        "set /clusters#cluster/databases#database/tables#RNOTES/constraints#MATVIEW_PK_CONSTRAINT type 4\n"
+        "set $PREV index /clusters#cluster/databases#database/tables#RNOTES/indexes#MATVIEW_PK_INDEX\n"
+        "add /clusters#cluster/databases#database tables RSALES\n"
+        "set /clusters#cluster/databases#database/tables#RSALES isreplicated true\n"
+        "set $PREV materializer /clusters#cluster/databases#database/tables#SALES\n"
+        "set $PREV signature \"RSALES|iibb\"\n"
+        "set $PREV tuplelimit 2147483647\n"
+        "add /clusters#cluster/databases#database/tables#RSALES columns CNT\n"
+        "set /clusters#cluster/databases#database/tables#RSALES/columns#CNT index 1\n"
+        "set $PREV type 5\n"
+        "set $PREV size 4\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"CNT\"\n"
+        "set $PREV matview /clusters#cluster/databases#database/tables#SALES/views#RSALES\n"
+        "set $PREV aggregatetype 41\n"
+        "add /clusters#cluster/databases#database/tables#RSALES columns MAXQ\n"
+        "set /clusters#cluster/databases#database/tables#RSALES/columns#MAXQ index 3\n"
+        "set $PREV type 6\n"
+        "set $PREV size 8\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"MAXQ\"\n"
+        "set $PREV matview /clusters#cluster/databases#database/tables#SALES/views#RSALES\n"
+        "set $PREV aggregatetype 44\n"
+        "set $PREV matviewsource /clusters#cluster/databases#database/tables#SALES/columns#QTY\n"
+        "add /clusters#cluster/databases#database/tables#RSALES columns REGION\n"
+        "set /clusters#cluster/databases#database/tables#RSALES/columns#REGION index 0\n"
+        "set $PREV type 5\n"
+        "set $PREV size 4\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"REGION\"\n"
+        "add /clusters#cluster/databases#database/tables#RSALES columns TOTAL\n"
+        "set /clusters#cluster/databases#database/tables#RSALES/columns#TOTAL index 2\n"
+        "set $PREV type 6\n"
+        "set $PREV size 8\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"TOTAL\"\n"
+        "set $PREV matview /clusters#cluster/databases#database/tables#SALES/views#RSALES\n"
+        "set $PREV aggregatetype 42\n"
+        "set $PREV matviewsource /clusters#cluster/databases#database/tables#SALES/columns#QTY\n"
+        "add /clusters#cluster/databases#database/tables#RSALES indexes MATVIEW_PK_INDEX\n"
+        "set /clusters#cluster/databases#database/tables#RSALES/indexes#MATVIEW_PK_INDEX unique true\n"
+        "set $PREV type 1\n"
+        "add /clusters#cluster/databases#database/tables#RSALES/indexes#MATVIEW_PK_INDEX columns 0\n"
+        "set /clusters#cluster/databases#database/tables#RSALES/indexes#MATVIEW_PK_INDEX/columns#0 index 0\n"
+        "set $PREV column /clusters#cluster/databases#database/tables#RSALES/columns#REGION\n"
+        "add /clusters#cluster/databases#database/tables#RSALES constraints MATVIEW_PK_CONSTRAINT\n"
+        "set /clusters#cluster/databases#database/tables#RSALES/constraints#MATVIEW_PK_CONSTRAINT type 4\n"
+        "set $PREV index /clusters#cluster/databases#database/tables#RSALES/indexes#MATVIEW_PK_INDEX\n"
+        "add /clusters#cluster/databases#database tables SALES\n"
+        "set /clusters#cluster/databases#database/tables#SALES isreplicated true\n"
+        "set $PREV signature \"SALES|iibv\"\n"
+        "set $PREV tuplelimit 2147483647\n"
+        "add /clusters#cluster/databases#database/tables#SALES columns ID\n"
+        "set /clusters#cluster/databases#database/tables#SALES/columns#ID index 0\n"
+        "set $PREV type 5\n"
+        "set $PREV size 4\n"
+        "set $PREV name \"ID\"\n"
+        "add /clusters#cluster/databases#database/tables#SALES columns NOTE\n"
+        "set /clusters#cluster/databases#database/tables#SALES/columns#NOTE index 3\n"
+        "set $PREV type 9\n"
+        "set $PREV size 16\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"NOTE\"\n"
+        "add /clusters#cluster/databases#database/tables#SALES columns QTY\n"
+        "set /clusters#cluster/databases#database/tables#SALES/columns#QTY index 2\n"
+        "set $PREV type 6\n"
+        "set $PREV size 8\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"QTY\"\n"
+        "add /clusters#cluster/databases#database/tables#SALES columns STORE\n"
+        "set /clusters#cluster/databases#database/tables#SALES/columns#STORE index 1\n"
+        "set $PREV type 5\n"
+        "set $PREV size 4\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"STORE\"\n"
+        "add /clusters#cluster/databases#database/tables#SALES indexes VOLTDB_AUTOGEN_IDX_PK_SALES_ID\n"
+        "set /clusters#cluster/databases#database/tables#SALES/indexes#VOLTDB_AUTOGEN_IDX_PK_SALES_ID unique true\n"
+        "set $PREV countable true\n"
+        "set $PREV type 1\n"
+        "add /clusters#cluster/databases#database/tables#SALES/indexes#VOLTDB_AUTOGEN_IDX_PK_SALES_ID columns ID\n"
+        "set /clusters#cluster/databases#database/tables#SALES/indexes#VOLTDB_AUTOGEN_IDX_PK_SALES_ID/columns#ID index 0\n"
+        "set $PREV column /clusters#cluster/databases#database/tables#SALES/columns#ID\n"
+        "add /clusters#cluster/databases#database/tables#SALES constraints VOLTDB_AUTOGEN_IDX_PK_SALES_ID\n"
+        "set /clusters#cluster/databases#database/tables#SALES/constraints#VOLTDB_AUTOGEN_IDX_PK_SALES_ID type 4\n"
+        "set $PREV index /clusters#cluster/databases#database/tables#SALES/indexes#VOLTDB_AUTOGEN_IDX_PK_SALES_ID\n"
+        "add /clusters#cluster/databases#database/tables#SALES views RSALES\n"
+        "set /clusters#cluster/databases#database/tables#SALES/views#RSALES dest /clusters#cluster/databases#database/tables#RSALES\n"
+        "set $PREV groupbyExpressionsJson \"[{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":5}]\"\n"
+        "set $PREV aggregationExpressionsJson \"[{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2},{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2}]\"\n"
+        "set $PREV joinsJson \"[{\"TABLE\":\"STORES\",\"INDEX\":\"VOLTDB_AUTOGEN_IDX_PK_STORES_SID\",\"KEYS\":[{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}]}]\"\n"
+        "add /clusters#cluster/databases#database/tables#SALES views RNOTES\n"
+        "set /clusters#cluster/databases#database/tables#SALES/views#RNOTES dest /clusters#cluster/databases#database/tables#RNOTES\n"
+        "set $PREV groupbyExpressionsJson \"[{\"TYPE\":32,\"VALUE_TYPE\":8,\"COLUMN_IDX\":6}]\"\n"
+        "set $PREV aggregationExpressionsJson \"[{\"TYPE\":32,\"VALUE_TYPE\":6,\"COLUMN_IDX\":2},{\"TYPE\":32,\"VALUE_TYPE\":9,\"VALUE_SIZE\":16,\"COLUMN_IDX\":3}]\"\n"
+        "set $PREV joinsJson \"[{\"TABLE\":\"STORES\",\"INDEX\":\"VOLTDB_AUTOGEN_IDX_PK_STORES_SID\",\"KEYS\":[{\"TYPE\":32,\"VALUE_TYPE\":5,\"COLUMN_IDX\":1}]}]\"\n"
+        "add /clusters#cluster/databases#database tables STORES\n"
+        "set /clusters#cluster/databases#database/tables#STORES isreplicated true\n"
+        "set $PREV signature \"STORES|iif\"\n"
+        "set $PREV tuplelimit 2147483647\n"
+        "add /clusters#cluster/databases#database/tables#STORES columns FREGION\n"
+        "set /clusters#cluster/databases#database/tables#STORES/columns#FREGION index 2\n"
+        "set $PREV type 8\n"
+        "set $PREV size 8\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"FREGION\"\n"
+        "add /clusters#cluster/databases#database/tables#STORES columns REGION\n"
+        "set /clusters#cluster/databases#database/tables#STORES/columns#REGION index 1\n"
+        "set $PREV type 5\n"
+        "set $PREV size 4\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"REGION\"\n"
+        "add /clusters#cluster/databases#database/tables#STORES columns SID\n"
+        "set /clusters#cluster/databases#database/tables#STORES/columns#SID index 0\n"
+        "set $PREV type 5\n"
+        "set $PREV size 4\n"
+        "set $PREV name \"SID\"\n"
+        "add /clusters#cluster/databases#database/tables#STORES indexes VOLTDB_AUTOGEN_IDX_PK_STORES_SID\n"
+        "set /clusters#cluster/databases#database/tables#STORES/indexes#VOLTDB_AUTOGEN_IDX_PK_STORES_SID unique true\n"
+        "set $PREV countable true\n"
+        "set $PREV type 1\n"
+        "add /clusters#cluster/databases#database/tables#STORES/indexes#VOLTDB_AUTOGEN_IDX_PK_STORES_SID columns SID\n"
+        "set /clusters#cluster/databases#database/tables#STORES/indexes#VOLTDB_AUTOGEN_IDX_PK_STORES_SID/columns#SID index 0\n"
+        "set $PREV column /clusters#cluster/databases#database/tables#STORES/columns#SID\n"
+        "add /clusters#cluster/databases#database/tables#STORES constraints VOLTDB_AUTOGEN_IDX_PK_STORES_SID\n"
+        "set /clusters#cluster/databases#database/tables#STORES/constraints#VOLTDB_AUTOGEN_IDX_PK_STORES_SID type 4\n"
+        "set $PREV index /clusters#cluster/databases#database/tables#STORES/indexes#VOLTDB_AUTOGEN_IDX_PK_STORES_SID";
+
+
+// The same tables, with the sales indexed by store so a store change finds its sales
+// through the index rather than by scanning them all.
+static const string indexedCatalogPayload = catalogPayload + "\n"
+        "add /clusters#cluster/databases#database/tables#SALES indexes IDX_SALES_STORE\n"
+        "set /clusters#cluster/databases#database/tables#SALES/indexes#IDX_SALES_STORE unique false\n"
+        "set $PREV countable true\n"
+        "set $PREV type 1\n"
+        "add /clusters#cluster/databases#database/tables#SALES/indexes#IDX_SALES_STORE columns STORE\n"
+        "set /clusters#cluster/databases#database/tables#SALES/indexes#IDX_SALES_STORE/columns#STORE index 0\n"
+        "set $PREV column /clusters#cluster/databases#database/tables#SALES/columns#STORE";
+
+// view columns
+static const int RSALES_CNT = 1;
+static const int RSALES_TOTAL = 2;
+static const int RSALES_MAXQ = 3;
+static const int RNOTES_CNT = 1;
+static const int RNOTES_MAXQ = 2;
+static const int RNOTES_MAXNOTE = 3;
+
+class MaterializedViewJoinTest : public Test {
+public:
+    MaterializedViewJoinTest(const string &catalog = catalogPayload) : m_undoToken(INT64_MIN + 1) {
+        m_engine = new VoltDBEngine();
+        int partitionCount = 1;
+        m_engine->initialize(1, 1, 0, 0, "", false, DEFAULT_TEMP_TABLE_MEMORY);
+        m_engine->updateHashinator(HASHINATOR_LEGACY, (char*)&partitionCount, NULL, 0);
+        EXPECT_TRUE(m_engine->loadCatalog(0, catalog));
+        m_sales = dynamic_cast<PersistentTable*>(m_engine->getTable("SALES"));
+        m_stores = dynamic_cast<PersistentTable*>(m_engine->getTable("STORES"));
+        m_view = dynamic_cast<PersistentTable*>(m_engine->getTable("RSALES"));
+        m_notes = dynamic_cast<PersistentTable*>(m_engine->getTable("RNOTES"));
+        assert(m_sales && m_stores && m_view && m_notes);
+        m_engine->setUndoToken(m_undoToken);
+    }
+
+    ~MaterializedViewJoinTest() {
+        delete m_engine;
+    }
+
+    // Commit the changes made since the last call and start a new transaction
+    void commit() {
+        m_engine->releaseUndoToken(m_undoToken);
+        m_engine->setUndoToken(++m_undoToken);
+    }
+
+    void rollback() {
+        m_engine->undoUndoToken(m_undoToken);
+        m_engine->setUndoToken(++m_undoToken);
+    }
+
+    // The FLOAT region of a store follows its INTEGER one
+    static NValue floatRegion(int32_t region) {
+        return ValueFactory::getDoubleValue(region + 0.5);
+    }
+
+    void insertSale(int32_t id, int32_t store, int64_t qty, const char *note = NULL) {
+        TableTuple &tuple = m_sales->tempTuple();
+        NValue str = note ? ValueFactory::getStringValue(note) : ValueFactory::getNullStringValue();
+        tuple.setNValue(0, ValueFactory::getIntegerValue(id));
+        tuple.setNValue(1, ValueFactory::getIntegerValue(store));
+        tuple.setNValue(2, ValueFactory::getBigIntValue(qty));
+        tuple.setNValue(3, str);
+        m_sales->insertTuple(tuple);
+        str.free();
+    }
+
+    void insertStore(int32_t sid, int32_t region) {
+        TableTuple &tuple = m_stores->tempTuple();
+        tuple.setNValue(0, ValueFactory::getIntegerValue(sid));
+        tuple.setNValue(1, ValueFactory::getIntegerValue(region));
+        tuple.setNValue(2, floatRegion(region));
+        m_stores->insertTuple(tuple);
+    }
+
+    TableTuple find(PersistentTable *table, int32_t key) {
+        TableTuple tuple(table->schema());
+        TableIterator iterator = table->iterator();
+        while (iterator.next(tuple)) {
+            if (ValuePeeker::peekInteger(tuple.getNValue(0)) == key) {
+                return tuple;
+            }
+        }
+        return TableTuple();
+    }
+
+    void remove(PersistentTable *table, int32_t key) {
+        TableTuple tuple = find(table, key);
+        ASSERT_FALSE(tuple.isNullTuple());
+        table->deleteTuple(tuple, true);
+    }
+
+    // Set the second column: the store of a sale, or the region of a store
+    void update(PersistentTable *table, int32_t key, int32_t value) {
+        TableTuple tuple = find(table, key);
+        ASSERT_FALSE(tuple.isNullTuple());
+        TableTuple &newTuple = table->tempTuple();
+        newTuple.copy(tuple);
+        newTuple.setNValue(1, ValueFactory::getIntegerValue(value));
+        if (table == m_stores) {
+            newTuple.setNValue(2, floatRegion(value));
+        }
+        table->updateTuple(tuple, newTuple);
+    }
+
+    void expectGroup(int32_t region, int64_t count, int64_t total, int64_t maxQty) {
+        TableTuple row = find(m_view, region);
+        ASSERT_FALSE(row.isNullTuple());
+        EXPECT_EQ(count, ValuePeeker::peekAsBigInt(row.getNValue(RSALES_CNT)));
+        EXPECT_EQ(total, ValuePeeker::peekBigInt(row.getNValue(RSALES_TOTAL)));
+        EXPECT_EQ(maxQty, ValuePeeker::peekBigInt(row.getNValue(RSALES_MAXQ)));
+    }
+
+    void expectNoGroup(int32_t region) {
+        EXPECT_TRUE(find(m_view, region).isNullTuple());
+        EXPECT_TRUE(findNotes(region).isNullTuple());
+    }
+
+    TableTuple findNotes(int32_t region) {
+        TableTuple tuple(m_notes->schema());
+        TableIterator iterator = m_notes->iterator();
+        while (iterator.next(tuple)) {
+            if (tuple.getNValue(0).compare(floatRegion(region)) == 0) {
+                return tuple;
+            }
+        }
+        return TableTuple();
+    }
+
+    // The group of the FLOAT region
+    void expectNotes(int32_t region, int64_t count, int64_t maxQty, const char *maxNote) {
+        TableTuple row = findNotes(region);
+        ASSERT_FALSE(row.isNullTuple());
+        EXPECT_EQ(count, ValuePeeker::peekAsBigInt(row.getNValue(RNOTES_CNT)));
+        EXPECT_EQ(maxQty, ValuePeeker::peekBigInt(row.getNValue(RNOTES_MAXQ)));
+        if (maxNote) {
+            EXPECT_EQ(maxNote, ValuePeeker::peekStringCopy_withoutNull(row.getNValue(RNOTES_MAXNOTE)));
+        }
+        else {
+            EXPECT_TRUE(row.getNValue(RNOTES_MAXNOTE).isNull());
+        }
+    }
+
+    VoltDBEngine *m_engine;
+    PersistentTable *m_sales;
+    PersistentTable *m_stores;
+    PersistentTable *m_view;
+    PersistentTable *m_notes;
+    int64_t m_undoToken;
+};
+
+class MaterializedViewJoinIndexedTest : public MaterializedViewJoinTest {
+public:
+    MaterializedViewJoinIndexedTest() : MaterializedViewJoinTest(indexedCatalogPayload) {
+        EXPECT_EQ(2, m_sales->indexCount());
+    }
+};
+
+/*
+ * Sales are grouped by the region of their store. Sales of an unknown store
+ * are left out of the view, as the inner join drops them.
+ */
+TEST_F(MaterializedViewJoinTest, SalesChanges) {
+    insertStore(1, 10);
+    insertStore(2, 20);
+    insertStore(3, 10);
+    commit();
+
+    insertSale(1, 1, 5);
+    insertSale(2, 3, 7);
+    insertSale(3, 2, 4);
+    insertSale(4, 9, 100);
+    commit();
+    expectGroup(10, 2, 12, 7);
+    expectGroup(20, 1, 4, 4);
+    EXPECT_EQ(2, m_view->activeTupleCount());
+
+    // moving a sale to another region, then to no region
+    update(m_sales, 2, 2);
+    expectGroup(10, 1, 5, 5);
+    expectGroup(20, 2, 11, 7);
+    update(m_sales, 2, 9);
+    expectGroup(20, 1, 4, 4);
+    // and back from no region
+    update(m_sales, 4, 1);
+    expectGroup(10, 2, 105, 100);
+    commit();
+
+    remove(m_sales, 3);
+    expectNoGroup(20);
+    remove(m_sales, 2);
+    expectGroup(10, 2, 105, 100);
+    remove(m_sales, 4);
+    expectGroup(10, 1, 5, 5);
+    commit();
+}
+
+/*
+ * Changing, adding and removing a store moves its sales between groups.
+ */
+TEST_F(MaterializedViewJoinTest, StoreChanges) {
+    insertStore(1, 10);
+    insertStore(2, 20);
+    for (int32_t id = 0; id < 10; id++) {
+        insertSale(id, id % 3 + 1, id);
+    }
+    commit();
+    expectGroup(10, 4, 18, 9);
+    expectGroup(20, 3, 12, 7);
+
+    // the sales of store 3 join in once the store exists
+    insertStore(3, 30);
+    expectGroup(30, 3, 15, 8);
+    update(m_stores, 3, 10);
+    expectNoGroup(30);
+    expectGroup(10, 7, 33, 9);
+    commit();
+
+    update(m_stores, 1, 20);
+    expectGroup(10, 3, 15, 8);
+    expectGroup(20, 7, 30, 9);
+    remove(m_stores, 2);
+    expectGroup(20, 4, 18, 9);
+    remove(m_stores, 1);
+    expectNoGroup(20);
+    expectGroup(10, 3, 15, 8);
+    commit();
+    EXPECT_EQ(1, m_view->activeTupleCount());
+
+    // a store key update moves the sales joined to the old key
+    update(m_sales, 0, 3);
+    expectGroup(10, 4, 15, 8);
+    remove(m_stores, 3);
+    expectNoGroup(10);
+    commit();
+    EXPECT_EQ(0, m_view->activeTupleCount());
+}
+
+/*
+ * Rolling back store changes restores the view.
+ */
+TEST_F(MaterializedViewJoinTest, Rollback) {
+    insertStore(1, 10);
+    insertStore(2, 20);
+    for (int32_t id = 0; id < 6; id++) {
+        insertSale(id, id % 2 + 1, id);
+    }
+    commit();
+    expectGroup(10, 3, 6, 4);
+    expectGroup(20, 3, 9, 5);
+
+    update(m_stores, 1, 20);
+    remove(m_stores, 2);
+    insertStore(3, 30);
+    insertSale(6, 3, 60);
+    expectNoGroup(10);
+    expectGroup(20, 3, 6, 4);
+    expectGroup(30, 1, 60, 60);
+    rollback();
+    expectGroup(10, 3, 6, 4);
+    expectGroup(20, 3, 9, 5);
+    expectNoGroup(30);
+    EXPECT_EQ(2, m_view->activeTupleCount());
+
+    remove(m_sales, 4);
+    update(m_stores, 2, 10);
+    expectGroup(10, 5, 11, 5);
+    commit();
+    expectNoGroup(20);
+}
+
+/*
+ * Moving a store out of a group drops the MIN / MAX its sales held, even while the store
+ * is still found in its index with the old region by the scans for the new MAX.
+ */
+TEST_F(MaterializedViewJoinTest, StoreUpdateDropsMax) {
+    insertStore(1, 10);
+    insertStore(2, 10);
+    insertSale(1, 1, 9, "x");
+    insertSale(2, 1, 5, "m");
+    insertSale(3, 2, 1, "c");
+    commit();
+    expectGroup(10, 3, 15, 9);
+    expectNotes(10, 3, 9, "x");
+
+    update(m_stores, 1, 20);
+    expectGroup(10, 1, 1, 1);
+    expectNotes(10, 1, 1, "c");
+    expectGroup(20, 2, 14, 9);
+    expectNotes(20, 2, 9, "x");
+    rollback();
+    expectGroup(10, 3, 15, 9);
+    expectNotes(10, 3, 9, "x");
+    expectNoGroup(20);
+
+    // the sale holding the MAX comes after the others of its store this time
+    insertSale(4, 2, 3, "a");
+    insertSale(5, 2, 12, "z");
+    commit();
+    expectGroup(10, 5, 30, 12);
+    expectNotes(10, 5, 12, "z");
+    update(m_stores, 2, 30);
+    expectGroup(10, 2, 14, 9);
+    expectNotes(10, 2, 9, "x");
+    expectGroup(30, 3, 16, 12);
+    expectNotes(30, 3, 12, "z");
+    commit();
+}
+
+/*
+ * MAX(VARCHAR) and a MAX shared by sales of the store that goes away and of one that stays.
+ */
+TEST_F(MaterializedViewJoinTest, StoreRemoveVarcharMax) {
+    insertStore(1, 10);
+    insertStore(2, 10);
+    insertStore(3, 10);
+    insertSale(1, 1, 7, "pear");
+    insertSale(2, 2, 7, "apple");
+    insertSale(3, 1, 2, "plum");
+    insertSale(4, 3, 1, NULL);
+    commit();
+    expectNotes(10, 4, 7, "plum");
+
+    remove(m_stores, 1);
+    expectGroup(10, 2, 8, 7);
+    expectNotes(10, 2, 7, "apple");
+    remove(m_stores, 2);
+    expectNotes(10, 1, 1, NULL);
+    rollback();
+    expectNotes(10, 4, 7, "plum");
+
+    // deleting the sale holding the MAX note of the group
+    remove(m_sales, 3);
+    expectNotes(10, 3, 7, "pear");
+    update(m_stores, 1, 20);
+    expectNotes(10, 2, 7, "apple");
+    expectNotes(20, 1, 7, "pear");
+    commit();
+}
+
+/*
+ * A store change finds exactly the sales of the store through the index on their store,
+ * including sales moved to the store since they were inserted.
+ */
+TEST_F(MaterializedViewJoinIndexedTest, StoreChanges) {
+    insertStore(1, 10);
+    insertStore(2, 20);
+    for (int32_t id = 0; id < 10; id++) {
+        insertSale(id, id % 3 + 1, id);
+    }
+    commit();
+    expectGroup(10, 4, 18, 9);
+    expectGroup(20, 3, 12, 7);
+
+    insertStore(3, 30);
+    expectGroup(30, 3, 15, 8);
+    update(m_sales, 0, 3);
+    expectGroup(10, 3, 18, 9);
+    expectGroup(30, 4, 15, 8);
+    commit();
+
+    // moving and removing stores moves all of their sales, and only theirs
+    update(m_stores, 1, 20);
+    expectGroup(20, 6, 30, 9);
+    update(m_stores, 3, 10);
+    expectGroup(10, 4, 15, 8);
+    remove(m_stores, 2);
+    expectGroup(20, 3, 18, 9);
+    rollback();
+    expectGroup(10, 3, 18, 9);
+    expectGroup(20, 3, 12, 7);
+    expectGroup(30, 4, 15, 8);
+
+    // a store without sales changes nothing
+    insertStore(4, 10);
+    remove(m_stores, 4);
+    expectGroup(10, 3, 18, 9);
+    remove(m_stores, 1);
+    expectNoGroup(10);
+    commit();
+    EXPECT_EQ(2, m_view->activeTupleCount());
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -0,0 +1,458 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <string>
+#include <stdint.h>
+
+#include "harness.h"
+#include "common/NValue.hpp"
+#include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
+#include "execution/VoltDBEngine.h"
+#include "storage/MaterializedViewMetadata.h"
+#include "storage/persistenttable.h"
+#include "storage/tableiterator.h"
+
+using namespace std;
+using namespace voltdb;
+
+/*
+ * CREATE TABLE SRC (ID INTEGER NOT NULL, G INTEGER, NAME VARCHAR(16), V BIGINT, S VARCHAR(16),
+ *                   PRIMARY KEY (ID));
+ * CREATE VIEW MV (G, NAME, CNT, MINV, MAXV, MAXS) AS
+ *     SELECT G, NAME, COUNT(*), MIN(V), MAX(V), MAX(S) FROM SRC GROUP BY G, NAME;
+ */
+static const string catalogPayload =
+        "add / clusters cluster\n"
+        "add /clusters#cluster databases database\n"
+        "add /clusters#cluster/databases#database tables MV\n"
+        "set /clusters#cluster/databases#database/tables#MV isreplicated true\n"
+        "set $PREV materializer /clusters#cluster/databases#database/tables#SRC\n"
+        "set $PREV signature \"MV|ivibbv\"\n"
+        "set $PREV tuplelimit 2147483647\n"
+        "add /clusters#cluster/databases#database/tables#MV columns CNT\n"
+        "set /clusters#cluster/databases#database/tables#MV/columns#CNT index 2\n"
+        "set $PREV type 5\n"
+        "set $PREV size 4\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"CNT\"\n"
+        "set $PREV matview /clusters#cluster/databases#database/tables#SRC/views#MV\n"
+        "set $PREV aggregatetype 41\n"
+        "add /clusters#cluster/databases#database/tables#MV columns G\n"
+        "set /clusters#cluster/databases#database/tables#MV/columns#G index 0\n"
+        "set $PREV type 5\n"
+        "set $PREV size 4\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"G\"\n"
+        "set $PREV matview /clusters#cluster/databases#database/tables#SRC/views#MV\n"
+        "set $PREV aggregatetype 32\n"
+        "set $PREV matviewsource /clusters#cluster/databases#database/tables#SRC/columns#G\n"
+        "add /clusters#cluster/databases#database/tables#MV columns MAXS\n"
+        "set /clusters#cluster/databases#database/tables#MV/columns#MAXS index 5\n"
+        "set $PREV type 9\n"
+        "set $PREV size 16\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"MAXS\"\n"
+        "set $PREV matview /clusters#cluster/databases#database/tables#SRC/views#MV\n"
+        "set $PREV aggregatetype 44\n"
+        "set $PREV matviewsource /clusters#cluster/databases#database/tables#SRC/columns#S\n"
+        "add /clusters#cluster/databases#database/tables#MV columns MAXV\n"
+        "set /clusters#cluster/databases#database/tables#MV/columns#MAXV index 4\n"
+        "set $PREV type 6\n"
+        "set $PREV size 8\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"MAXV\"\n"
+        "set $PREV matview /clusters#cluster/databases#database/tables#SRC/views#MV\n"
+        "set $PREV aggregatetype 44\n"
+        "set $PREV matviewsource /clusters#cluster/databases#database/tables#SRC/columns#V\n"
+        "add /clusters#cluster/databases#database/tables#MV columns MINV\n"
+        "set /clusters#cluster/databases#database/tables#MV/columns#MINV index 3\n"
+        "set $PREV type 6\n"
+        "set $PREV size 8\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"MINV\"\n"
+        "set $PREV matview /clusters#cluster/databases#database/tables#SRC/views#MV\n"
+        "set $PREV aggregatetype 43\n"
+        "set $PREV matviewsource /clusters#cluster/databases#database/tables#SRC/columns#V\n"
+        "add /clusters#cluster/databases#database/tables#MV columns NAME\n"
+        "set /clusters#cluster/databases#database/tables#MV/columns#NAME index 1\n"
+        "set $PREV type 9\n"
+        "set $PREV size 16\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"NAME\"\n"
+        "set $PREV matview /clusters#cluster/databases#database/tables#SRC/views#MV\n"
+        "set $PREV aggregatetype 32\n"
+        "set $PREV matviewsource /clusters#cluster/databases#database/tables#SRC/columns#NAME\n"
+        "add /clusters#cluster/databases#database/tables#MV indexes MATVIEW_PK_INDEX\n"
+        "set /clusters#cluster/databases#database/tables#MV/indexes#MATVIEW_PK_INDEX unique true\n"
+        "set $PREV type 1\n"
+        "add /clusters#cluster/databases#database/tables#MV/indexes#MATVIEW_PK_INDEX columns 0\n"
+        "set /clusters#cluster/databases#database/tables#MV/indexes#MATVIEW_PK_INDEX/columns#0 index 0\n"
+        "set $PREV column /clusters#cluster/databases#database/tables#MV/columns#G\n"
+        "add /clusters#cluster/databases#database/tables#MV/indexes#MATVIEW_PK_INDEX columns 1\n"
+        "set /clusters#cluster/databases#database/tables#MV/indexes#MATVIEW_PK_INDEX/columns#1 index 1\n"
+        "set $PREV column /clusters#cluster/databases#database/tables#MV/columns#NAME\n"
+        "add /clusters#cluster/databases#database/tables#MV constraints MATVIEW_PK_CONSTRAINT\n"
+        "set /clusters#cluster/databases#database/tables#MV/constraints#MATVIEW_PK_CONSTRAINT type 4\n"
+        "set $PREV index /clusters#cluster/databases#database/tables#MV/indexes#MATVIEW_PK_INDEX\n"
+        "add /clusters#cluster/databases#database tables SRC\n"
+        "set /clusters#cluster/databases#database/tables#SRC isreplicated true\n"
+        "set $PREV signature \"SRC|iivbv\"\n"
+        "set $PREV tuplelimit 2147483647\n"
+        "add /clusters#cluster/databases#database/tables#SRC columns G\n"
+        "set /clusters#cluster/databases#database/tables#SRC/columns#G index 1\n"
+        "set $PREV type 5\n"
+        "set $PREV size 4\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"G\"\n"
+        "add /clusters#cluster/databases#database/tables#SRC columns ID\n"
+        "set /clusters#cluster/databases#database/tables#SRC/columns#ID index 0\n"
+        "set $PREV type 5\n"
+        "set $PREV size 4\n"
+        "set $PREV name \"ID\"\n"
+        "add /clusters#cluster/databases#database/tables#SRC columns NAME\n"
+        "set /clusters#cluster/databases#database/tables#SRC/columns#NAME index 2\n"
+        "set $PREV type 9\n"
+        "set $PREV size 16\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"NAME\"\n"
+        "add /clusters#cluster/databases#database/tables#SRC columns S\n"
+        "set /clusters#cluster/databases#database/tables#SRC/columns#S index 4\n"
+        "set $PREV type 9\n"
+        "set $PREV size 16\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"S\"\n"
+        "add /clusters#cluster/databases#database/tables#SRC columns V\n"
+        "set /clusters#cluster/databases#database/tables#SRC/columns#V index 3\n"
+        "set $PREV type 6\n"
+        "set $PREV size 8\n"
+        "set $PREV nullable true\n"
+        "set $PREV name \"V\"\n"
+        "add /clusters#cluster/databases#database/tables#SRC indexes VOLTDB_AUTOGEN_IDX_PK_SRC_ID\n"
+        "set /clusters#cluster/databases#database/tables#SRC/indexes#VOLTDB_AUTOGEN_IDX_PK_SRC_ID unique true\n"
+        "set $PREV countable true\n"
+        "set $PREV type 1\n"
+        "add /clusters#cluster/databases#database/tables#SRC/indexes#VOLTDB_AUTOGEN_IDX_PK_SRC_ID columns ID\n"
+        "set /clusters#cluster/databases#database/tables#SRC/indexes#VOLTDB_AUTOGEN_IDX_PK_SRC_ID/columns#ID index 0\n"
+        "set $PREV column /clusters#cluster/databases#database/tables#SRC/columns#ID\n"
+        "add /clusters#cluster/databases#database/tables#SRC constraints VOLTDB_AUTOGEN_IDX_PK_SRC_ID\n"
+        "set /clusters#cluster/databases#database/tables#SRC/constraints#VOLTDB_AUTOGEN_IDX_PK_SRC_ID type 4\n"
+        "set $PREV index /clusters#cluster/databases#database/tables#SRC/indexes#VOLTDB_AUTOGEN_IDX_PK_SRC_ID\n"
+        "add /clusters#cluster/databases#database/tables#SRC views MV\n"
+        "set /clusters#cluster/databases#database/tables#SRC/views#MV dest /clusters#cluster/databases#database/tables#MV\n"
+        "add /clusters#cluster/databases#database/tables#SRC/views#MV groupbycols G\n"
+        "set /clusters#cluster/databases#database/tables#SRC/views#MV/groupbycols#G index 0\n"
+        "set $PREV column /clusters#cluster/databases#database/tables#SRC/columns#G\n"
+        "add /clusters#cluster/databases#database/tables#SRC/views#MV groupbycols NAME\n"
+        "set /clusters#cluster/databases#database/tables#SRC/views#MV/groupbycols#NAME index 1\n"
+        "set $PREV column /clusters#cluster/databases#database/tables#SRC/columns#NAME";
+
+// view columns
+static const int MV_CNT = 2;
+static const int MV_MINV = 3;
+static const int MV_MAXV = 4;
+static const int MV_MAXS = 5;
+
+class MaterializedViewMinMaxTest : public Test {
+public:
+    MaterializedViewMinMaxTest() : m_undoToken(INT64_MIN + 1) {
+        m_engine = new VoltDBEngine();
+        int partitionCount = 1;
+        m_engine->initialize(1, 1, 0, 0, "", false, DEFAULT_TEMP_TABLE_MEMORY);
+        m_engine->updateHashinator(HASHINATOR_LEGACY, (char*)&partitionCount, NULL, 0);
+        EXPECT_TRUE(m_engine->loadCatalog(0, catalogPayload));
+        m_src = dynamic_cast<PersistentTable*>(m_engine->getTable("SRC"));
+        m_view = dynamic_cast<PersistentTable*>(m_engine->getTable("MV"));
+        assert(m_src && m_view);
+        m_engine->setUndoToken(m_undoToken);
+    }
+
+    ~MaterializedViewMinMaxTest() {
+        delete m_engine;
+    }
+
+    // Commit the changes made since the last call and start a new transaction
+    void commit() {
+        m_engine->releaseUndoToken(m_undoToken);
+        m_engine->setUndoToken(++m_undoToken);
+    }
+
+    void rollback() {
+        m_engine->undoUndoToken(m_undoToken);
+        m_engine->setUndoToken(++m_undoToken);
+    }
+
+    void insert(int32_t id, int32_t g, int64_t v, const char *s) {
+        TableTuple &tuple = m_src->tempTuple();
+        NValue name = ValueFactory::getStringValue("group");
+        NValue str = s ? ValueFactory::getStringValue(s) : ValueFactory::getNullStringValue();
+        tuple.setNValue(0, ValueFactory::getIntegerValue(id));
+        tuple.setNValue(1, ValueFactory::getIntegerValue(g));
+        tuple.setNValue(2, name);
+        tuple.setNValue(3, ValueFactory::getBigIntValue(v));
+        tuple.setNValue(4, str);
+        m_src->insertTuple(tuple);
+        name.free();
+        str.free();
+    }
+
+    TableTuple find(int32_t id) {
+        TableTuple tuple(m_src->schema());
+        TableIterator iterator = m_src->iterator();
+        while (iterator.next(tuple)) {
+            if (ValuePeeker::peekInteger(tuple.getNValue(0)) == id) {
+                return tuple;
+            }
+        }
+        return TableTuple();
+    }
+
+    void remove(int32_t id) {
+        TableTuple tuple = find(id);
+        ASSERT_FALSE(tuple.isNullTuple());
+        m_src->deleteTuple(tuple, true);
+    }
+
+    void updateValue(int32_t id, int64_t v) {
+        TableTuple tuple = find(id);
+        ASSERT_FALSE(tuple.isNullTuple());
+        TableTuple &newTuple = m_src->tempTuple();
+        newTuple.copy(tuple);
+        newTuple.setNValue(3, ValueFactory::getBigIntValue(v));
+        m_src->updateTuple(tuple, newTuple);
+    }
+
+    // The view row of group g
+    TableTuple group(int32_t g) {
+        TableTuple tuple(m_view->schema());
+        TableIterator iterator = m_view->iterator();
+        while (iterator.next(tuple)) {
+            if (ValuePeeker::peekInteger(tuple.getNValue(0)) == g) {
+                return tuple;
+            }
+        }
+        return TableTuple();
+    }
+
+    void expectGroup(int32_t g, int64_t count, int64_t minV, int64_t maxV) {
+        TableTuple row = group(g);
+        ASSERT_FALSE(row.isNullTuple());
+        EXPECT_EQ(count, ValuePeeker::peekAsBigInt(row.getNValue(MV_CNT)));
+        EXPECT_EQ(minV, ValuePeeker::peekBigInt(row.getNValue(MV_MINV)));
+        EXPECT_EQ(maxV, ValuePeeker::peekBigInt(row.getNValue(MV_MAXV)));
+    }
+
+    VoltDBEngine *m_engine;
+    PersistentTable *m_src;
+    PersistentTable *m_view;
+    int64_t m_undoToken;
+};
+
+/*
+ * Deleting and updating the rows holding a group's MIN and MAX is answered from
+ * the group's value counts, without scanning the source table.
+ */
+TEST_F(MaterializedViewMinMaxTest, DeleteAndUpdateWithoutScan) {
+    for (int32_t id = 0; id < 100; id++) {
+        insert(id, id % 2, id, NULL);
+    }
+    // a duplicate of the MAX of group 1
+    insert(100, 1, 99, NULL);
+    commit();
+    expectGroup(0, 50, 0, 98);
+    expectGroup(1, 51, 1, 99);
+
+    remove(99);
+    expectGroup(1, 50, 1, 99);
+    remove(100);
+    expectGroup(1, 49, 1, 97);
+    remove(1);
+    expectGroup(1, 48, 3, 97);
+
+    updateValue(0, 1000);
+    expectGroup(0, 50, 2, 1000);
+    updateValue(0, -5);
+    expectGroup(0, 50, -5, 98);
+    commit();
+
+    for (int32_t id = 2; id < 98; id += 2) {
+        remove(id);
+    }
+    expectGroup(0, 2, -5, 98);
+    remove(98);
+    expectGroup(0, 1, -5, -5);
+    remove(0);
+    EXPECT_TRUE(group(0).isNullTuple());
+    commit();
+
+    EXPECT_EQ(0, m_view->minMaxFallbackScans());
+}
+
+/*
+ * The value counts follow the view table when a transaction is rolled back.
+ */
+TEST_F(MaterializedViewMinMaxTest, Rollback) {
+    for (int32_t id = 0; id < 10; id++) {
+        insert(id, 0, id, NULL);
+    }
+    commit();
+
+    remove(9);
+    remove(8);
+    insert(20, 0, 50, NULL);
+    updateValue(0, 7);
+    expectGroup(0, 9, 1, 50);
+    rollback();
+    expectGroup(0, 10, 0, 9);
+
+    // dropping and re-creating the group within a transaction
+    for (int32_t id = 0; id < 10; id++) {
+        remove(id);
+    }
+    EXPECT_TRUE(group(0).isNullTuple());
+    insert(30, 0, 30, NULL);
+    expectGroup(0, 1, 30, 30);
+    rollback();
+    expectGroup(0, 10, 0, 9);
+
+    // a group created by a rolled back transaction is forgotten
+    insert(40, 1, 40, NULL);
+    rollback();
+    EXPECT_TRUE(group(1).isNullTuple());
+    insert(41, 1, 41, NULL);
+    insert(42, 1, 42, NULL);
+    commit();
+    remove(42);
+    expectGroup(1, 1, 41, 41);
+
+    remove(9);
+    remove(0);
+    expectGroup(0, 8, 1, 8);
+    commit();
+    EXPECT_EQ(0, m_view->minMaxFallbackScans());
+}
+
+/*
+ * Deleting the row holding the current MIN or MAX leaves the value counts in step
+ * with the source table, and their memory follows the distinct values counted.
+ */
+TEST_F(MaterializedViewMinMaxTest, DeleteMinMaxKeepsCounts) {
+    EXPECT_EQ(0, m_view->minMaxTrackingMemory());
+    for (int32_t id = 0; id < 10; id++) {
+        insert(id, 0, id, NULL);
+    }
+    commit();
+    const int64_t memory = m_view->minMaxTrackingMemory();
+    EXPECT_LT(0, memory);
+    // a duplicate of the MAX counts no new value
+    insert(10, 0, 9, NULL);
+    EXPECT_EQ(memory, m_view->minMaxTrackingMemory());
+    commit();
+
+    remove(9);
+    expectGroup(0, 10, 0, 9);
+    EXPECT_EQ(memory, m_view->minMaxTrackingMemory());
+    remove(10);
+    expectGroup(0, 9, 0, 8);
+    const int64_t valueMemory = memory - m_view->minMaxTrackingMemory();
+    EXPECT_LT(0, valueMemory);
+    remove(0);
+    expectGroup(0, 8, 1, 8);
+    EXPECT_EQ(memory - 2 * valueMemory, m_view->minMaxTrackingMemory());
+    commit();
+
+    // the deleted values are gone from the counts, so deleting the new MIN and MAX
+    // finds the next ones, and putting a value back counts it again
+    remove(8);
+    remove(1);
+    expectGroup(0, 6, 2, 7);
+    insert(20, 0, 9, NULL);
+    expectGroup(0, 7, 2, 9);
+    remove(20);
+    expectGroup(0, 6, 2, 7);
+    EXPECT_EQ(memory - 4 * valueMemory, m_view->minMaxTrackingMemory());
+    rollback();
+    expectGroup(0, 8, 1, 8);
+    EXPECT_EQ(memory - 2 * valueMemory, m_view->minMaxTrackingMemory());
+
+    for (int32_t id = 1; id < 9; id++) {
+        remove(id);
+    }
+    EXPECT_TRUE(group(0).isNullTuple());
+    EXPECT_EQ(0, m_view->minMaxTrackingMemory());
+    rollback();
+    EXPECT_EQ(memory - 2 * valueMemory, m_view->minMaxTrackingMemory());
+    commit();
+    EXPECT_EQ(0, m_view->minMaxFallbackScans());
+
+    // forgetting the counts releases their memory
+    m_src->views()[0]->setTargetTable(m_view);
+    EXPECT_EQ(0, m_view->minMaxTrackingMemory());
+}
+
+/*
+ * MAX of a VARCHAR is not counted, so deleting its current value still scans.
+ * A group that existed before its view was attached is counted once it needs a scan.
+ */
+TEST_F(MaterializedViewMinMaxTest, FallbackScans) {
+    insert(0, 0, 0, "a");
+    insert(1, 0, 1, "b");
+    insert(2, 0, 2, "c");
+    commit();
+
+    remove(2);
+    EXPECT_EQ(1, m_view->minMaxFallbackScans());
+    TableTuple row = group(0);
+    EXPECT_EQ("b", ValuePeeker::peekStringCopy_withoutNull(row.getNValue(MV_MAXS)));
+    commit();
+
+    for (int32_t id = 10; id < 20; id++) {
+        insert(id, 1, id, NULL);
+    }
+    commit();
+    // forget the value counts, as if the view rows had been loaded before the view
+    m_src->views()[0]->setTargetTable(m_view);
+
+    remove(19);
+    EXPECT_EQ(2, m_view->minMaxFallbackScans());
+    // 3 tuples for the first scan and 12 for this one
+    EXPECT_EQ(15, m_view->minMaxFallbackTuplesScanned());
+    expectGroup(1, 9, 10, 18);
+    remove(18);
+    remove(10);
+    expectGroup(1, 7, 11, 17);
+    rollback();
+    expectGroup(1, 10, 10, 19);
+    // the rollback also forgot the counts built in that transaction
+    remove(19);
+    EXPECT_EQ(3, m_view->minMaxFallbackScans());
+    expectGroup(1, 9, 10, 18);
+    remove(18);
+    EXPECT_EQ(3, m_view->minMaxFallbackScans());
+    expectGroup(1, 8, 10, 17);
+    commit();
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
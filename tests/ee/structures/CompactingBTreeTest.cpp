@@ -0,0 +1,325 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <map>
+#include <cstdlib>
+#include <cstdio>
+#include "harness.h"
+#include "structures/CompactingBTree.h"
+#include "common/FixUnusedAssertHack.h"
+
+using namespace voltdb;
+using namespace std;
+
+class IntComparator {
+public:
+    inline int operator()(const int &lhs, const int &rhs) const {
+        if (lhs > rhs) return 1;
+        else if (lhs < rhs) return -1;
+        else return 0;
+    }
+};
+
+// An int key that, like the multimap index keys, ends with a tuple address
+struct IntWithPointer {
+    int key;
+    const void *pointer;
+    IntWithPointer() : key(0), pointer(NULL) {}
+    IntWithPointer(int k, const void *p) : key(k), pointer(p) {}
+};
+
+inline void setPointerValue(IntWithPointer &k, const void *v) { k.pointer = v; }
+
+class IntWithPointerComparator {
+public:
+    inline int operator()(const IntWithPointer &lhs, const IntWithPointer &rhs) const {
+        if (lhs.key != rhs.key) {
+            return lhs.key > rhs.key ? 1 : -1;
+        }
+        const uintptr_t l = reinterpret_cast<uintptr_t>(lhs.pointer);
+        const uintptr_t r = reinterpret_cast<uintptr_t>(rhs.pointer);
+        if (l == r) return 0;
+        return l > r ? 1 : -1;
+    }
+};
+
+typedef CompactingBTree<NormalKeyValuePair<int, int>, IntComparator> IntTree;
+typedef CompactingBTree<NormalKeyValuePair<int, int>, IntComparator, true> RankedIntTree;
+typedef CompactingBTree<NormalKeyValuePair<IntWithPointer, int>, IntWithPointerComparator, true> RankedPointerTree;
+
+class CompactingBTreeTest : public Test {
+public:
+    CompactingBTreeTest() {}
+    ~CompactingBTreeTest() {}
+
+    // Walk the whole tree both ways and compare it to the STL map
+    template <typename Tree, typename Map>
+    void verifyContents(Tree &tree, Map &stl) {
+        ASSERT_TRUE(tree.verify());
+        ASSERT_EQ((int64_t)stl.size(), tree.size());
+        typename Tree::iterator volti = tree.begin();
+        typename Map::iterator stli = stl.begin();
+        for (; stli != stl.end(); ++stli, volti.moveNext()) {
+            ASSERT_FALSE(volti.isEnd());
+            ASSERT_EQ(stli->first, volti.key());
+            ASSERT_EQ(stli->second, volti.value());
+        }
+        ASSERT_TRUE(volti.isEnd());
+
+        volti = tree.rbegin();
+        typename Map::reverse_iterator rstli = stl.rbegin();
+        for (; rstli != stl.rend(); ++rstli, volti.movePrev()) {
+            ASSERT_FALSE(volti.isEnd());
+            ASSERT_EQ(rstli->first, volti.key());
+        }
+        ASSERT_TRUE(volti.isEnd());
+    }
+};
+
+TEST_F(CompactingBTreeTest, Trivial) {
+    IntTree t(true, IntComparator());
+    ASSERT_TRUE(t.begin().isEnd());
+    ASSERT_TRUE(t.rbegin().isEnd());
+    ASSERT_TRUE(t.find(2).isEnd());
+    ASSERT_TRUE(t.insert(2, 2));
+    ASSERT_FALSE(t.insert(2, 3));
+    ASSERT_TRUE(t.insert(1, 1));
+    ASSERT_EQ(2, t.size());
+
+    IntTree::iterator iter = t.find(2);
+    ASSERT_FALSE(iter.isEnd());
+    ASSERT_EQ(2, iter.value());
+    iter.movePrev();
+    ASSERT_EQ(1, iter.key());
+    iter.movePrev();
+    ASSERT_TRUE(iter.isEnd());
+
+    ASSERT_TRUE(t.lowerBound(3).isEnd());
+    ASSERT_EQ(2, t.upperBound(1).key());
+    ASSERT_TRUE(t.erase(1));
+    ASSERT_FALSE(t.erase(1));
+    ASSERT_TRUE(t.erase(2));
+    ASSERT_EQ(0, t.size());
+    ASSERT_TRUE(t.verify());
+    ASSERT_EQ(0, t.bytesAllocated());
+}
+
+TEST_F(CompactingBTreeTest, RandomUnique) {
+    const int ITERATIONS = 20000;
+    const int BIGGEST_VAL = 5000;
+
+    std::map<int, int> stl;
+    IntTree volt(true, IntComparator());
+
+    srand(0);
+    for (int i = 0; i < ITERATIONS; i++) {
+        int val = rand() % BIGGEST_VAL;
+        int op = rand() % 4;
+        if (op < 2) {
+            bool inserted = stl.insert(std::pair<int, int>(val, i)).second;
+            ASSERT_EQ(inserted, volt.insert(val, i));
+        } else if (op == 2) {
+            ASSERT_EQ(stl.erase(val) == 1, volt.erase(val));
+        } else {
+            IntTree::iterator volti = volt.find(val);
+            if (volti.isEnd()) {
+                ASSERT_TRUE(stl.find(val) == stl.end());
+            } else {
+                // erase through an iterator
+                ASSERT_EQ(1, stl.erase(val));
+                ASSERT_TRUE(volt.erase(volti));
+            }
+        }
+
+        std::map<int, int>::iterator stli = stl.lower_bound(val);
+        IntTree::iterator volti = volt.lowerBound(val);
+        ASSERT_EQ(stli == stl.end(), volti.isEnd());
+        if (stli != stl.end()) {
+            ASSERT_EQ(stli->first, volti.key());
+        }
+        stli = stl.upper_bound(val);
+        volti = volt.upperBound(val);
+        ASSERT_EQ(stli == stl.end(), volti.isEnd());
+        if (stli != stl.end()) {
+            ASSERT_EQ(stli->first, volti.key());
+        }
+
+        if ((i % 1000) == 0) {
+            verifyContents(volt, stl);
+        }
+    }
+    verifyContents(volt, stl);
+}
+
+TEST_F(CompactingBTreeTest, RandomMulti) {
+    const int ITERATIONS = 20000;
+    const int BIGGEST_VAL = 200;
+
+    std::multimap<int, int> stl;
+    IntTree volt(false, IntComparator());
+
+    srand(1);
+    for (int i = 0; i < ITERATIONS; i++) {
+        int val = rand() % BIGGEST_VAL;
+        if (rand() % 5 < 3) {
+            stl.insert(std::pair<int, int>(val, i));
+            ASSERT_TRUE(volt.insert(val, i));
+        } else {
+            std::multimap<int, int>::iterator stli = stl.find(val);
+            bool erased = volt.erase(val);
+            ASSERT_EQ(stli != stl.end(), erased);
+            if (stli != stl.end()) {
+                stl.erase(stli);
+            }
+        }
+
+        // duplicates may span leaves
+        std::pair<IntTree::iterator, IntTree::iterator> range = volt.equalRange(val);
+        size_t count = 0;
+        for (; !range.first.equals(range.second); range.first.moveNext()) {
+            ASSERT_EQ(val, range.first.key());
+            count++;
+        }
+        ASSERT_EQ(stl.count(val), count);
+
+        if ((i % 1000) == 0) {
+            ASSERT_TRUE(volt.verify());
+            ASSERT_EQ((int64_t)stl.size(), volt.size());
+        }
+    }
+    ASSERT_TRUE(volt.verify());
+}
+
+TEST_F(CompactingBTreeTest, UniqueRank) {
+    const int ITERATIONS = 10000;
+
+    std::map<int, int> stl;
+    RankedIntTree volt(true, IntComparator());
+
+    srand(2);
+    for (int i = 0; i < ITERATIONS; i++) {
+        int val = rand() % 3000;
+        if (rand() % 3 < 2) {
+            stl.insert(std::pair<int, int>(val, val));
+            volt.insert(val, val);
+        } else {
+            stl.erase(val);
+            volt.erase(val);
+        }
+    }
+    verifyContents(volt, stl);
+    ASSERT_TRUE(volt.verifyRank());
+
+    int64_t rank = 1;
+    for (std::map<int, int>::iterator stli = stl.begin(); stli != stl.end(); ++stli, rank++) {
+        ASSERT_EQ(rank, volt.rankAsc(stli->first));
+        ASSERT_EQ(rank, volt.rankUpper(stli->first));
+        ASSERT_EQ(stli->first, volt.findRank(rank).key());
+    }
+    ASSERT_TRUE(volt.findRank(rank).isEnd());
+    ASSERT_EQ(-1, volt.rankAsc(3000));
+
+    // no ranks without hasRank
+    IntTree unranked(true, IntComparator());
+    unranked.insert(1, 1);
+    ASSERT_EQ(-1, unranked.rankAsc(1));
+}
+
+TEST_F(CompactingBTreeTest, MultiRank) {
+    const int ITERATIONS = 10000;
+    const int BIGGEST_VAL = 300;
+
+    // the values stand in for tuple addresses
+    char tuples[ITERATIONS];
+    std::multimap<int, const void*> stl;
+    RankedPointerTree volt(false, IntWithPointerComparator());
+
+    srand(3);
+    for (int i = 0; i < ITERATIONS; i++) {
+        int val = rand() % BIGGEST_VAL;
+        stl.insert(std::pair<int, const void*>(val, &tuples[i]));
+        ASSERT_TRUE(volt.insert(IntWithPointer(val, &tuples[i]), i));
+    }
+    for (int i = 0; i < ITERATIONS; i += 3) {
+        int val = rand() % BIGGEST_VAL;
+        std::multimap<int, const void*>::iterator stli = stl.lower_bound(val);
+        if (stli == stl.end() || stli->first != val) {
+            continue;
+        }
+        ASSERT_TRUE(volt.erase(IntWithPointer(val, stli->second)));
+        stl.erase(stli);
+    }
+    ASSERT_TRUE(volt.verify());
+    ASSERT_TRUE(volt.verifyRank());
+    ASSERT_EQ((int64_t)stl.size(), volt.size());
+
+    for (RankedPointerTree::iterator volti = volt.begin(); !volti.isEnd(); volti.moveNext()) {
+        const int val = volti.key().key;
+        // ranks count every entry with a smaller key, or not a larger one
+        int64_t below = std::distance(stl.begin(), stl.lower_bound(val));
+        int64_t notAbove = std::distance(stl.begin(), stl.upper_bound(val));
+        ASSERT_EQ(below + 1, volt.rankAsc(volti.key()));
+        ASSERT_EQ(notAbove, volt.rankUpper(volti.key()));
+    }
+    ASSERT_EQ(-1, volt.rankAsc(IntWithPointer(BIGGEST_VAL, NULL)));
+}
+
+TEST_F(CompactingBTreeTest, Compaction) {
+    const int COUNT = 100000;
+    IntTree volt(true, IntComparator());
+    for (int i = 0; i < COUNT; i++) {
+        ASSERT_TRUE(volt.insert(i, i));
+    }
+    ASSERT_TRUE(volt.verify());
+    size_t full = volt.bytesAllocated();
+    ASSERT_TRUE(full > 0);
+    // ascending inserts leave the leaves full, so the tree needs
+    // little more than the entries themselves
+    ASSERT_TRUE(full < COUNT * sizeof(NormalKeyValuePair<int, int>) * 2);
+
+    // delete all but every 100th entry, the freed nodes are compacted away
+    for (int i = 0; i < COUNT; i++) {
+        if (i % 100 != 0) {
+            ASSERT_TRUE(volt.erase(i));
+        }
+    }
+    ASSERT_TRUE(volt.verify());
+    ASSERT_EQ(COUNT / 100, volt.size());
+    ASSERT_TRUE(volt.bytesAllocated() < full / 4);
+
+    IntTree::iterator iter = volt.begin();
+    for (int i = 0; i < COUNT; i += 100, iter.moveNext()) {
+        ASSERT_EQ(i, iter.key());
+    }
+    ASSERT_TRUE(iter.isEnd());
+
+    for (int i = 0; i < COUNT; i += 100) {
+        ASSERT_TRUE(volt.erase(i));
+    }
+    ASSERT_TRUE(volt.verify());
+    ASSERT_EQ(0, volt.bytesAllocated());
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -0,0 +1,206 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <cstdlib>
+#include <cstdio>
+#include <map>
+#include <set>
+#include <boost/unordered_map.hpp>
+#include "harness.h"
+#include "structures/CompactingOpenHashTable.h"
+
+using namespace voltdb;
+using namespace std;
+
+typedef CompactingOpenHashTable<int64_t, int64_t> OpenHash;
+
+// Hashes every key to the same few home slots, to force long collision clusters
+struct CollidingHasher {
+    size_t operator()(const int64_t &key) const { return static_cast<size_t>(key % 4); }
+};
+
+class CompactingOpenHashTest : public Test {
+public:
+    CompactingOpenHashTest() {
+        srand(0);
+    }
+
+    // every value stored for a key, walking the table's iterator
+    multiset<int64_t> valuesAt(OpenHash &volt, int64_t key) {
+        multiset<int64_t> values;
+        for (OpenHash::iterator iter = volt.find(key); ! iter.isEnd(); iter.moveNext()) {
+            EXPECT_EQ(key, iter.key());
+            values.insert(iter.value());
+        }
+        return values;
+    }
+};
+
+TEST_F(CompactingOpenHashTest, Trivial) {
+    OpenHash volt(true);
+    ASSERT_TRUE(volt.insert(1, 10));
+    ASSERT_FALSE(volt.insert(1, 11));
+    ASSERT_TRUE(volt.insert(2, 20));
+    ASSERT_EQ(2, volt.size());
+
+    OpenHash::iterator iter = volt.find(1);
+    ASSERT_FALSE(iter.isEnd());
+    ASSERT_EQ(10, iter.value());
+    iter.moveNext();
+    ASSERT_TRUE(iter.isEnd());
+
+    ASSERT_TRUE(volt.find(3).isEnd());
+    ASSERT_FALSE(volt.erase(1, 11));
+    ASSERT_TRUE(volt.erase(1, 10));
+    ASSERT_TRUE(volt.find(1).isEnd());
+    ASSERT_TRUE(volt.erase(2));
+    ASSERT_FALSE(volt.erase(2));
+    ASSERT_EQ(0, volt.size());
+    ASSERT_TRUE(volt.verify());
+}
+
+TEST_F(CompactingOpenHashTest, RandomUnique) {
+    boost::unordered_map<int64_t, int64_t> stl;
+    OpenHash volt(true);
+    bool sawResize = false;
+
+    for (int i = 0; i < 200000; i++) {
+        int64_t key = rand() % 50000;
+        // grow for the first half, then shrink
+        if (rand() % 100 < (i < 100000 ? 70 : 25)) {
+            bool inserted = stl.insert(make_pair(key, key * 3)).second;
+            ASSERT_EQ(inserted, volt.insert(key, key * 3));
+        }
+        else {
+            OpenHash::iterator iter = volt.find(key);
+            ASSERT_EQ(stl.count(key) == 0, iter.isEnd());
+            if ( ! iter.isEnd()) {
+                ASSERT_EQ(key * 3, iter.value());
+                stl.erase(key);
+                ASSERT_TRUE(volt.erase(iter));
+            }
+        }
+        ASSERT_EQ(stl.size(), volt.size());
+        sawResize = sawResize || volt.isResizing();
+        if (i % 10000 == 0) {
+            ASSERT_TRUE(volt.verify());
+        }
+    }
+    ASSERT_TRUE(sawResize);
+    ASSERT_TRUE(volt.verify());
+
+    for (boost::unordered_map<int64_t, int64_t>::iterator it = stl.begin(); it != stl.end(); ++it) {
+        OpenHash::iterator iter = volt.find(it->first);
+        ASSERT_FALSE(iter.isEnd());
+        ASSERT_EQ(it->second, iter.value());
+    }
+}
+
+TEST_F(CompactingOpenHashTest, RandomMulti) {
+    multimap<int64_t, int64_t> stl;
+    OpenHash volt(false);
+
+    for (int i = 0; i < 100000; i++) {
+        int64_t key = rand() % 2000;
+        int64_t value = rand() % 8;
+        if (rand() % 100 < (i < 50000 ? 70 : 30)) {
+            stl.insert(make_pair(key, value));
+            ASSERT_TRUE(volt.insert(key, value));
+        }
+        else {
+            bool found = false;
+            pair<multimap<int64_t, int64_t>::iterator, multimap<int64_t, int64_t>::iterator> range =
+                stl.equal_range(key);
+            for (multimap<int64_t, int64_t>::iterator it = range.first; it != range.second; ++it) {
+                if (it->second == value) {
+                    stl.erase(it);
+                    found = true;
+                    break;
+                }
+            }
+            ASSERT_EQ(found, volt.erase(key, value));
+        }
+        ASSERT_EQ(stl.size(), volt.size());
+
+        if (i % 1000 == 0) {
+            ASSERT_TRUE(volt.verify());
+            // the iterator sees every value of a key, including while resizing
+            for (int64_t k = 0; k < 2000; k += 97) {
+                multiset<int64_t> expected;
+                pair<multimap<int64_t, int64_t>::iterator, multimap<int64_t, int64_t>::iterator> range =
+                    stl.equal_range(k);
+                for (multimap<int64_t, int64_t>::iterator it = range.first; it != range.second; ++it) {
+                    expected.insert(it->second);
+                }
+                ASSERT_TRUE(expected == valuesAt(volt, k));
+            }
+        }
+    }
+    ASSERT_TRUE(volt.verify());
+}
+
+TEST_F(CompactingOpenHashTest, Collisions) {
+    CompactingOpenHashTable<int64_t, int64_t, CollidingHasher> volt(true);
+    for (int64_t i = 0; i < 600; i++) {
+        ASSERT_TRUE(volt.insert(i, i));
+    }
+    ASSERT_TRUE(volt.verify());
+    for (int64_t i = 0; i < 600; i += 3) {
+        ASSERT_TRUE(volt.erase(i));
+    }
+    ASSERT_TRUE(volt.verify());
+    for (int64_t i = 0; i < 600; i++) {
+        ASSERT_EQ(i % 3 == 0, volt.find(i).isEnd());
+    }
+}
+
+TEST_F(CompactingOpenHashTest, ShrinkAndGrow) {
+    const int64_t ITERATIONS = 100000;
+    OpenHash volt(true);
+    size_t emptyBytes = volt.bytesAllocated();
+
+    for (int64_t i = 0; i < ITERATIONS; i++) {
+        ASSERT_TRUE(volt.insert(i, i));
+    }
+    ASSERT_TRUE(volt.verify());
+    ASSERT_TRUE(volt.bytesAllocated() > emptyBytes);
+    ASSERT_TRUE(volt.loadFactor() > 0.2 && volt.loadFactor() < 0.81);
+    ASSERT_TRUE(volt.averageProbeLength() >= 1.0 && volt.averageProbeLength() < 4.0);
+
+    for (int64_t i = 0; i < ITERATIONS; i++) {
+        ASSERT_TRUE(volt.erase(i));
+    }
+    // the table shrinks a step at a time as later inserts and deletes drain it
+    for (int i = 0; i < 1000000 && volt.bytesAllocated() != emptyBytes; i++) {
+        ASSERT_TRUE(volt.insert(-1, -1));
+        ASSERT_TRUE(volt.erase(-1));
+    }
+    ASSERT_TRUE(volt.verify());
+    ASSERT_EQ(0, volt.size());
+    ASSERT_EQ(0.0, volt.averageProbeLength());
+    ASSERT_EQ(emptyBytes, volt.bytesAllocated());
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
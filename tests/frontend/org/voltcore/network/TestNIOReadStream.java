@@ -55,6 +55,7 @@ import java.nio.ByteBuffer;
 import org.voltcore.network.NIOReadStream;
 import junit.framework.TestCase;
 import java.io.IOException;
+import java.util.Arrays;
 
 public class TestNIOReadStream extends TestCase {
     MockReadableByteChannel channel;
@@ -199,6 +200,20 @@ public class TestNIOReadStream extends TestCase {
         assertEquals(252, stream.getInt());
     }
 
+    public void testReadIntsAndBytesAtOffset() throws IOException {
+        channel.nextRead = new byte[]{0, 0, 0, 1, 0, 0, 0, 2, 0, 0, 0, 3, 7, 8, 9};
+        assertEquals(15, stream.read( channel, 15, pool));
+        assertEquals(1, stream.getInt());
+        assertEquals(2, stream.getInt());
+        assertEquals(3, stream.getInt());
+        assertEquals(3, stream.dataAvailable());
+
+        byte[] target = new byte[5];
+        stream.getBytes(target, 1, 3);
+        assertTrue(Arrays.equals(new byte[]{0, 7, 8, 9, 0}, target));
+        assertStreamIsEmpty();
+    }
+
     public void testEndReadComplete() throws IOException {
         channel.nextRead = new byte[]{1, 2, 3,4 };
         channel.end = true;
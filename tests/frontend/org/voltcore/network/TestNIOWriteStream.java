@@ -50,6 +50,7 @@
 
 package org.voltcore.network;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -57,6 +58,8 @@ import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SelectionKey;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
 import junit.framework.TestCase;
@@ -81,6 +84,7 @@ public class TestNIOWriteStream extends TestCase {
         @Override
         public void setInterests(int opsToAdd, int opsToRemove) {
             this.opsToAdd = opsToAdd;
+            this.opsToRemove = opsToRemove;
         }
 
         public boolean checkWriteSet() {
@@ -91,7 +95,16 @@ public class TestNIOWriteStream extends TestCase {
             return false;
         }
 
-        int opsToAdd;
+        public boolean checkWriteCleared() {
+            if (opsToRemove == SelectionKey.OP_WRITE) {
+                opsToRemove = 0;
+                return true;
+            }
+            return false;
+        }
+
+        volatile int opsToAdd;
+        volatile int opsToRemove;
     }
 
     NetworkDBBPool pool;
@@ -203,9 +216,26 @@ public class TestNIOWriteStream extends TestCase {
         @Override
         public long write(ByteBuffer[] srcs, int offset, int length)
                 throws IOException {
-            // TODO Auto-generated method stub
-            return 0;
+            if (m_behavior != SINK) {
+                return write(srcs[offset]);
+            }
+            if (!m_open) throw new IOException();
+            if (closeAfter > 0 && ++writeCount >= closeAfter) {
+                m_open = false;
+            }
+
+            gatheredWrites++;
+            long written = 0;
+            for (int ii = offset; ii < offset + length; ii++) {
+                written += srcs[ii].remaining();
+                while (srcs[ii].hasRemaining()) {
+                    gathered.write(srcs[ii].get());
+                }
+            }
+            return written;
         }
+        public int gatheredWrites = 0;
+        public final ByteArrayOutputStream gathered = new ByteArrayOutputStream();
     }
 
 
@@ -337,20 +367,10 @@ public class TestNIOWriteStream extends TestCase {
         AdmissionControlGroup acg = new AdmissionControlGroup(2, 1024);
         NIOWriteStream wstream = new NIOWriteStream(port, null, null, acg);
 
-        ByteBuffer tmp = ByteBuffer.allocate(6);
-        tmp.put((byte)1);
-        tmp.put((byte)2);
-        tmp.put((byte)3);
-        tmp.put((byte)4);
-        tmp.put((byte)5);
-        tmp.put((byte)6);
-        tmp.flip();
+        // Fill one gathering write's worth of 4 byte pool buffers, and 6 bytes more
+        final int gathered = NIOWriteStreamBase.MAX_GATHERED_BUFFERS * 4;
+        ByteBuffer tmp = ByteBuffer.allocate(gathered + 2);
         ByteBuffer tmp2 = ByteBuffer.allocate(4);
-        tmp2.put((byte)1);
-        tmp2.put((byte)2);
-        tmp2.put((byte)3);
-        tmp2.put((byte)4);
-        tmp2.flip();
         wstream.enqueue(tmp);
         wstream.enqueue(tmp2);
         assertTrue(port.checkWriteSet());
@@ -358,7 +378,7 @@ public class TestNIOWriteStream extends TestCase {
         boolean threwException = false;
         try {
             wstream.swapAndSerializeQueuedWrites(pool);
-            //First write will succeed leaving 2 in first buffer and 4 in next
+            //First write will succeed leaving 2 in one buffer and 4 in the next
             wstream.drainTo( channel);
         } catch (IOException e) {
             threwException = true;
@@ -452,4 +472,96 @@ public class TestNIOWriteStream extends TestCase {
         assertEquals(0, queue.get());
     }
 
+    public void testGatheredWrite() throws IOException {
+        MockChannel channel = new MockChannel(MockChannel.FULL, 0);
+        MockPort port = new MockPort();
+        NIOWriteStream wstream = new NIOWriteStream(port);
+        pool.clear();
+        pool = new NetworkDBBPool(64, 64);
+
+        // Three messages spread over three 64 byte pool buffers
+        byte expected[] = new byte[200];
+        for (int ii = 0; ii < expected.length; ii++) {
+            expected[ii] = (byte)ii;
+        }
+        wstream.enqueue(ByteBuffer.wrap(expected, 0, 50));
+        wstream.enqueue(ByteBuffer.wrap(expected, 50, 50).slice());
+        wstream.enqueue(ByteBuffer.wrap(expected, 100, 50).slice());
+        wstream.swapAndSerializeQueuedWrites(pool);
+        assertEquals(0, wstream.drainTo(channel));
+        assertFalse(wstream.isEmpty());
+
+        // The buffers that weren't written can still be appended to
+        wstream.enqueue(ByteBuffer.wrap(expected, 150, 50).slice());
+        wstream.swapAndSerializeQueuedWrites(pool);
+
+        channel.m_behavior = MockChannel.SINK;
+        assertEquals(200, wstream.drainTo(channel));
+        assertTrue(wstream.isEmpty());
+        assertEquals(1, channel.gatheredWrites);
+        assertTrue(Arrays.equals(expected, channel.gathered.toByteArray()));
+
+        long writeInfo[] = wstream.getBytesAndMessagesWritten(false);
+        assertEquals(200, writeInfo[0]);
+        assertEquals(4, writeInfo[1]);
+        // One write() that wrote nothing, one that wrote everything
+        assertEquals(2, writeInfo[2]);
+        wstream.shutdown();
+    }
+
+    /*
+     * A held back write must not leave write interest on, the selector would
+     * spin on the writable port. Interest is turned back on once the hold
+     * expires and the next drain writes everything.
+     */
+    public void testCoalescedWriteIsFlushedWithinBound() throws Exception {
+        final long bound = TimeUnit.MILLISECONDS.toNanos(50);
+        MockChannel channel = new MockChannel(MockChannel.SINK, 0);
+        MockPort port = new MockPort();
+        NIOWriteStream wstream = new NIOWriteStream(port, 1024, bound);
+
+        final long start = System.nanoTime();
+        wstream.enqueue(ByteBuffer.wrap(new byte[] { 1, 2, 3 }));
+        assertTrue(port.checkWriteSet());
+        wstream.swapAndSerializeQueuedWrites(pool);
+        assertEquals(0, wstream.drainTo(channel));
+        assertTrue(port.checkWriteCleared());
+        assertFalse(wstream.isEmpty());
+
+        // Another message during the hold is held back with it
+        wstream.enqueue(ByteBuffer.wrap(new byte[] { 4, 5 }));
+        assertTrue(port.checkWriteSet());
+        wstream.swapAndSerializeQueuedWrites(pool);
+        assertEquals(0, wstream.drainTo(channel));
+        assertTrue(port.checkWriteCleared());
+
+        while (!port.checkWriteSet()) {
+            assertTrue(System.nanoTime() - start < bound + TimeUnit.SECONDS.toNanos(5));
+            Thread.sleep(1);
+        }
+        assertTrue(System.nanoTime() - start >= bound);
+        assertEquals(5, wstream.drainTo(channel));
+        assertTrue(wstream.isEmpty());
+        assertEquals(1, channel.gatheredWrites);
+        assertTrue(Arrays.equals(new byte[] { 1, 2, 3, 4, 5 }, channel.gathered.toByteArray()));
+        wstream.shutdown();
+    }
+
+    public void testCoalescingStopsAtByteLimit() throws Exception {
+        MockChannel channel = new MockChannel(MockChannel.SINK, 0);
+        MockPort port = new MockPort();
+        NIOWriteStream wstream = new NIOWriteStream(port, 4, TimeUnit.SECONDS.toNanos(60));
+
+        wstream.enqueue(ByteBuffer.wrap(new byte[] { 1, 2 }));
+        wstream.swapAndSerializeQueuedWrites(pool);
+        assertEquals(0, wstream.drainTo(channel));
+        assertTrue(port.checkWriteCleared());
+
+        wstream.enqueue(ByteBuffer.wrap(new byte[] { 3, 4 }));
+        wstream.swapAndSerializeQueuedWrites(pool);
+        assertEquals(4, wstream.drainTo(channel));
+        assertTrue(wstream.isEmpty());
+        wstream.shutdown();
+    }
+
 }
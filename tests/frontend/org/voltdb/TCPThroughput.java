@@ -24,6 +24,7 @@
 package org.voltdb;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.*;
 import java.nio.channels.*;
 import java.net.*;
@@ -34,9 +35,17 @@ import java.util.concurrent.atomic.AtomicLong;
 import java.util.HashSet;
 import java.util.ArrayList;
 
+import org.voltcore.network.Connection;
+import org.voltcore.network.QueueMonitor;
+import org.voltcore.network.VoltNetworkPool;
+import org.voltcore.network.VoltProtocolHandler;
+
 /**
  * A class implementing a throughput test across several TCP sockets. This class implements both the client and the server
  *
+ * With the "framed" argument the client sends length prefixed messages and the server receives them through
+ * a VoltNetworkPool and VoltProtocolHandler, like client and site to site traffic, and reports the bytes the
+ * network thread allocated per message received.
  */
 public class TCPThroughput {
 
@@ -70,6 +79,12 @@ public class TCPThroughput {
 
         //protected int m_readyOps = 0;
 
+        /**
+         * Length prefixed messages sent in framed mode. Carries on where the last write left off
+         * so the receiver sees whole messages.
+         */
+        private final ByteBuffer m_frames = framed ? frames.duplicate() : null;
+
         public void handleWork() {
             try {
                 m_buffer.clear();
@@ -78,7 +93,14 @@ public class TCPThroughput {
                 }
                 m_buffer.clear();
                 if (m_selectionKey.isWritable()) {
-                    bytesSent.addAndGet(m_channel.write(m_buffer));
+                    if (m_frames != null) {
+                        if (!m_frames.hasRemaining()) {
+                            m_frames.clear();
+                        }
+                        bytesSent.addAndGet(m_channel.write(m_frames));
+                    } else {
+                        bytesSent.addAndGet(m_channel.write(m_buffer));
+                    }
                 }
             } catch (IOException e) {
                 e.printStackTrace();
@@ -130,6 +152,71 @@ public class TCPThroughput {
     private static volatile boolean selectorWoke = false;
     private static volatile boolean shouldContinue = true;
 
+    private static boolean framed = false;
+    private static ByteBuffer frames;
+    public static final AtomicLong messagesReceived = new AtomicLong(0);
+    private static VoltNetworkPool network;
+    private static long networkAllocatedBytesAtStart = 0;
+
+    /**
+     * Receives the framed messages on the server, counting them as the selection loop
+     * does the bytes it reads
+     */
+    private static class FramedHandler extends VoltProtocolHandler {
+        @Override
+        public int getMaxRead() {
+            return 8192 * 4;
+        }
+
+        @Override
+        public void handleMessage(ByteBuffer message, Connection c) {
+            if (!messageReceived) {
+                messageReceived = true;
+                System.out.println("First message received");
+                firstMessageReceived = System.currentTimeMillis();
+            }
+            lastMessageReceived = System.currentTimeMillis();
+            messagesReceived.incrementAndGet();
+            bytesReceived.addAndGet(message.remaining() + 4);
+        }
+
+        @Override
+        public Runnable offBackPressure() {
+            return new Runnable() {
+                @Override
+                public void run() {}
+            };
+        }
+
+        @Override
+        public Runnable onBackPressure() {
+            return new Runnable() {
+                @Override
+                public void run() {}
+            };
+        }
+
+        @Override
+        public QueueMonitor writestreamMonitor() {
+            return null;
+        }
+    }
+
+    /**
+     * Bytes allocated by the network threads, or 0 if the JVM can't tell
+     */
+    private static long networkAllocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return 0;
+        }
+        long total = 0;
+        for (long id : network.getThreadIds()) {
+            total += Math.max(0, ((com.sun.management.ThreadMXBean)bean).getThreadAllocatedBytes(id));
+        }
+        return total;
+    }
+
     private static int seconds = 60;
     private static String addressString = "localhost";
     private static InetAddress address;
@@ -200,6 +287,8 @@ public class TCPThroughput {
             if (parts.length == 1) {
                 if (parts[0].equals("server")) {
                     runServer = true;
+                } else if (parts[0].equals("framed")) {
+                    framed = true;
                 }
                 continue;
             } else if (parts[1].startsWith("${")) {
@@ -225,6 +314,20 @@ public class TCPThroughput {
             System.exit(-1);
         }
 
+        if (framed) {
+            frames = ByteBuffer.allocateDirect(expectedPacketSize * 64);
+            while (frames.hasRemaining()) {
+                frames.putInt(expectedPacketSize - 4);
+                frames.position(frames.position() + expectedPacketSize - 4);
+            }
+            frames.clear();
+            if (runServer) {
+                network = new VoltNetworkPool(1, 0, null, "TCPThroughput");
+                network.start();
+                networkAllocatedBytesAtStart = networkAllocatedBytes();
+            }
+        }
+
         if (runServer) {
             servers = new ServerSocketChannel[numPorts];
             for (int ii = 0; ii < numPorts; ii++) {
@@ -342,6 +445,12 @@ public class TCPThroughput {
                                     + lastMessageReceived
                                     + " delta is "
                                     + delta);
+                    if (network != null) {
+                        long messages = Math.max(1, messagesReceived.get());
+                        System.out.println("\tframed messagesReceived == " + messagesReceived.get()
+                                + "\n\tnetwork thread bytes allocated per message == "
+                                + (networkAllocatedBytes() - networkAllocatedBytesAtStart) / messages);
+                    }
                     System.exit(0);
                 }
             }
@@ -377,6 +486,10 @@ public class TCPThroughput {
                         tempsocket.setTcpNoDelay(false);
 
                         client.configureBlocking(false);
+                        if (network != null) {
+                            network.registerChannel(client, new FramedHandler());
+                            continue;
+                        }
                         SelectionKey clientKey = client.register(selector,
                                 SelectionKey.OP_READ | SelectionKey.OP_WRITE);
                         Port newPort = new Port(client, clientKey, port);
@@ -0,0 +1,317 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.voltcore.network.Connection;
+import org.voltcore.utils.CoreUtils;
+import org.voltdb.CommandLog.DurabilityListener;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.dtxn.TransactionCreator;
+import org.voltdb.iv2.LeaderCache;
+import org.voltdb.iv2.MpInitiator;
+import org.voltdb.iv2.TxnEgo;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+import org.voltdb.utils.VoltFile;
+
+/**
+ * Writes transactions through GroupCommitCommandLog and replays the segments
+ * it leaves behind with CommandLogReplayer.
+ */
+public class TestCommandLogReplay extends TestCase
+{
+    private MockVoltDB m_volt;
+    private File m_dir;
+    private int m_hostId;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        m_dir = new File(System.getProperty("java.io.tmpdir"), "TestCommandLogReplay");
+        VoltFile.recursivelyDelete(m_dir);
+        assertTrue(m_dir.mkdirs());
+
+        m_volt = new MockVoltDB();
+        VoltDB.replaceVoltDBInstanceForTest(m_volt);
+        m_hostId = m_volt.getHostMessenger().getHostId();
+        // This host leads both partitions, so it replays both
+        LeaderCache masters = new LeaderCache(m_volt.getHostMessenger().getZK(), VoltZK.iv2masters);
+        masters.put(0, CoreUtils.getHSIdFromHostAndSite(m_hostId, 1));
+        masters.put(1, CoreUtils.getHSIdFromHostAndSite(m_hostId, 2));
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        m_volt.shutdown(null);
+        VoltDB.replaceVoltDBInstanceForTest(null);
+        VoltFile.recursivelyDelete(m_dir);
+    }
+
+    private GroupCommitCommandLog startLog(long segmentSize, int fsyncInterval, int maxTxns)
+    {
+        m_volt.configureLogging(true, true, fsyncInterval, maxTxns, m_dir.getPath(), m_dir.getPath());
+        m_volt.getCluster().getLogconfig().get("log").setLogsize(1024);
+        Map<Integer, Long> lastSeen = new HashMap<Integer, Long>();
+        lastSeen.put(0, TxnEgo.makeZero(0).getTxnId());
+        lastSeen.put(1, TxnEgo.makeZero(1).getTxnId());
+        GroupCommitCommandLog log = new GroupCommitCommandLog(segmentSize);
+        log.init(m_volt.getCatalogContext(), 0, 2, null, lastSeen);
+        return log;
+    }
+
+    private static Iv2InitiateTaskMessage initiate(long txnId, boolean isSinglePartition, String proc,
+                                                   Object... params)
+    {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setProcName(proc);
+        spi.setParams(params);
+        return new Iv2InitiateTaskMessage(0, 0, Iv2InitiateTaskMessage.UNUSED_TRUNC_HANDLE, txnId, txnId + 1,
+                                          false, isSinglePartition, spi, 0, 0, false);
+    }
+
+    /**
+     * Collects the handles made durable, in the order the log reports them.
+     */
+    private static class Durability implements DurabilityListener
+    {
+        final List<List<Object>> batches = new ArrayList<List<Object>>();
+        final CountDownLatch done;
+
+        Durability(int txns)
+        {
+            done = new CountDownLatch(txns);
+        }
+
+        @Override
+        public synchronized void onDurability(ArrayList<Object> durableThings)
+        {
+            batches.add(new ArrayList<Object>(durableThings));
+            for (int i = 0; i < durableThings.size(); i++) {
+                done.countDown();
+            }
+        }
+
+        synchronized List<Object> handles()
+        {
+            List<Object> all = new ArrayList<Object>();
+            for (List<Object> batch : batches) {
+                all.addAll(batch);
+            }
+            return all;
+        }
+    }
+
+    /**
+     * Records what the replayer initiates and answers every transaction
+     * right away.
+     */
+    private static class RecordingInitiator implements TransactionCreator
+    {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+        private Connection m_adapter;
+
+        @Override
+        public boolean createTransaction(long connectionId, StoredProcedureInvocation invocation,
+                                         boolean isReadOnly, boolean isSinglePartition, boolean isEverySite,
+                                         int partition, int messageSize, long nowNanos)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean createTransaction(long connectionId, long txnId, long uniqueId,
+                                         StoredProcedureInvocation invocation, boolean isReadOnly,
+                                         boolean isSinglePartition, boolean isEverySite, int partition,
+                                         int messageSize, long nowNanos)
+        {
+            assertEquals(txnId + 1, uniqueId);
+            calls.add((isSinglePartition ? "SP " : "MP ") + partition + " " + txnId + " " +
+                      invocation.getProcName() + Arrays.toString(invocation.getParams().toArray()));
+            ClientResponseImpl response =
+                    new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[0], null, invocation.getClientHandle());
+            ByteBuffer buf = ByteBuffer.allocate(4 + response.getSerializedSize());
+            buf.putInt(buf.capacity() - 4);
+            response.flattenToBuffer(buf).flip();
+            m_adapter.writeStream().enqueue(buf);
+            return true;
+        }
+
+        @Override
+        public void sendSentinel(long txnId, int partitionId)
+        {
+            calls.add("SENTINEL " + partitionId + " " + txnId);
+        }
+
+        @Override
+        public void sendEOLMessage(int partitionId)
+        {
+            calls.add("EOL " + partitionId);
+        }
+
+        @Override
+        public void bindAdapter(Connection adapter)
+        {
+            m_adapter = adapter;
+        }
+    }
+
+    private List<String> replay() throws Exception
+    {
+        CommandLogReplayer replayer = new CommandLogReplayer(m_hostId, StartAction.RECOVER, m_volt.getHostMessenger(),
+                                                             m_dir.getPath(), Collections.singleton(m_hostId));
+        assertTrue(replayer.hasReplayedSegments());
+        RecordingInitiator initiator = new RecordingInitiator();
+        final CountDownLatch replayed = new CountDownLatch(1);
+        replayer.setCallback(new CommandLogReinitiator.Callback() {
+            @Override
+            public void onReplayCompletion()
+            {
+                replayed.countDown();
+            }
+        });
+        replayer.setInitiator(initiator);
+        replayer.generateReplayPlan(2, true);
+        replayer.replay();
+        assertTrue(replayed.await(60, TimeUnit.SECONDS));
+        return new ArrayList<String>(initiator.calls);
+    }
+
+    private static String sp(int partition, long txnId, String proc, Object... params)
+    {
+        return "SP " + partition + " " + txnId + " " + proc + Arrays.toString(params);
+    }
+
+    /*
+     * Two partitions and a multi-partition transaction logged by both of them
+     * go out in one group commit. Replay initiates the single partition
+     * transactions in log order with their original ids, marks the position
+     * of the multi-partition transaction in each partition and has the MPI
+     * initiate it once.
+     */
+    public void testGroupCommittedBatchReplaysInOrder() throws Exception
+    {
+        final TxnEgo p0 = TxnEgo.makeZero(0);
+        final TxnEgo p1 = TxnEgo.makeZero(1);
+        final long sp0a = p0.makeNext().getTxnId();
+        final long sp1a = p1.makeNext().getTxnId();
+        final long sp0b = p0.makeNext().makeNext().getTxnId();
+        final long sp1b = p1.makeNext().makeNext().getTxnId();
+        final long sp0c = p0.makeNext().makeNext().makeNext().getTxnId();
+        final long mp = TxnEgo.makeZero(MpInitiator.MP_INIT_PID).makeNext().getTxnId();
+        final int[] involved = new int[] {0, 1};
+
+        // maxtxns makes the fifth transaction commit the batch, long before the interval
+        GroupCommitCommandLog log = startLog(1024 * 1024, 60 * 1000, 5);
+        Durability durability = new Durability(5);
+        assertNull(log.log(initiate(sp0a, true, "Insert", 1, "one"), sp0a, null, durability, "a"));
+        assertNull(log.log(initiate(sp1a, true, "Insert", 2, "two"), sp1a, null, durability, "b"));
+        assertNull(log.log(initiate(mp, false, "Transfer", 1, 2), sp0b, involved, durability, "c"));
+        assertNull(log.log(initiate(mp, false, "Transfer", 1, 2), sp1b, involved, durability, "d"));
+        assertNull(log.log(initiate(sp0c, true, "Delete", 1), sp0c, null, durability, "e"));
+        assertTrue(durability.done.await(60, TimeUnit.SECONDS));
+        log.shutdown();
+        assertEquals(1, durability.batches.size());
+        assertEquals(Arrays.<Object>asList("a", "b", "c", "d", "e"), durability.handles());
+
+        assertEquals(Arrays.asList(sp(0, sp0a, "Insert", 1, "one"),
+                                   sp(1, sp1a, "Insert", 2, "two"),
+                                   "SENTINEL 0 " + mp,
+                                   "MP " + MpInitiator.MP_INIT_PID + " " + mp + " Transfer[1, 2]",
+                                   "SENTINEL 1 " + mp,
+                                   sp(0, sp0c, "Delete", 1),
+                                   "EOL " + MpInitiator.MP_INIT_PID),
+                     replay());
+    }
+
+    /*
+     * Small segments make the log roll over several times. The last entry of
+     * the final segment is cut in half, as a crash in the middle of a write
+     * would leave it; replay stops right before it and keeps everything else
+     * in order.
+     */
+    public void testTruncatedFinalSegment() throws Exception
+    {
+        final int txns = 400;
+        final char[] padding = new char[100];
+        Arrays.fill(padding, 'x');
+        final String pad = new String(padding);
+
+        GroupCommitCommandLog log = startLog(16 * 1024, 60 * 1000, 32);
+        Durability durability = new Durability(txns);
+        List<String> expected = new ArrayList<String>();
+        TxnEgo ego = TxnEgo.makeZero(1);
+        for (int i = 0; i < txns; i++) {
+            ego = ego.makeNext();
+            final long txnId = ego.getTxnId();
+            assertNull(log.log(initiate(txnId, true, "Insert", i, pad), txnId, null, durability, i));
+            expected.add(sp(1, txnId, "Insert", i, pad));
+        }
+        assertTrue(durability.done.await(60, TimeUnit.SECONDS));
+        log.shutdown();
+        List<Object> handles = durability.handles();
+        for (int i = 0; i < txns; i++) {
+            assertEquals(i, handles.get(i));
+        }
+
+        List<CommandLogSegment.Reader> readers = CommandLogSegment.openSegments(m_dir);
+        assertTrue(readers.size() > 2);
+        for (int i = 0; i < readers.size() - 1; i++) {
+            readers.get(i).close();
+        }
+        CommandLogSegment.Reader last = readers.get(readers.size() - 1);
+        long end = last.getHeader().size();
+        int lastSize = 0;
+        CommandLogSegment.Entry entry;
+        while ((entry = last.next()) != null) {
+            lastSize = CommandLogSegment.invocationEntrySize(entry.message, entry.involvedPartitions);
+            end += lastSize;
+        }
+        last.close();
+        assertTrue(lastSize > 0);
+        RandomAccessFile raf = new RandomAccessFile(last.getFile(), "rw");
+        try {
+            raf.setLength(end - lastSize / 2);
+        } finally {
+            raf.close();
+        }
+
+        expected.remove(expected.size() - 1);
+        expected.add("EOL " + MpInitiator.MP_INIT_PID);
+        assertEquals(expected, replay());
+    }
+}
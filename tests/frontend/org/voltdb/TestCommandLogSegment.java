@@ -0,0 +1,219 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.voltcore.utils.InstanceId;
+import org.voltdb.iv2.TxnEgo;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+import org.voltdb.utils.VoltFile;
+
+public class TestCommandLogSegment extends TestCase
+{
+    private static final long SEGMENT_SIZE = 1024 * 1024;
+
+    private File m_dir;
+
+    @Override
+    public void setUp() throws Exception
+    {
+        m_dir = new File(System.getProperty("java.io.tmpdir"), "TestCommandLogSegment");
+        VoltFile.recursivelyDelete(m_dir);
+        assertTrue(m_dir.mkdirs());
+    }
+
+    @Override
+    public void tearDown() throws Exception
+    {
+        VoltFile.recursivelyDelete(m_dir);
+    }
+
+    private static Iv2InitiateTaskMessage initiate(long txnId, String proc, Object... params)
+    {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setProcName(proc);
+        spi.setParams(params);
+        return new Iv2InitiateTaskMessage(0, 0, Iv2InitiateTaskMessage.UNUSED_TRUNC_HANDLE, txnId, txnId + 1,
+                                          false, true, spi, 0, 0, false);
+    }
+
+    private CommandLogSegment createSegment(long segmentId, Map<Integer, Long> lastSeen) throws Exception
+    {
+        File free = new File(m_dir, CommandLogSegment.freeFileName(segmentId));
+        CommandLogSegment.preallocate(free, SEGMENT_SIZE);
+        assertEquals(SEGMENT_SIZE, free.length());
+        CommandLogSegment.Header header = new CommandLogSegment.Header(segmentId, new InstanceId(3, 1234), lastSeen);
+        return new CommandLogSegment(free, new File(m_dir, CommandLogSegment.segmentFileName(segmentId)), header);
+    }
+
+    private static void append(CommandLogSegment segment, Iv2InitiateTaskMessage msg, long spHandle, int[] involved)
+        throws Exception
+    {
+        ByteBuffer buf = ByteBuffer.allocateDirect(CommandLogSegment.invocationEntrySize(msg, involved));
+        CommandLogSegment.writeInvocation(buf, 0, msg, spHandle, involved);
+        segment.append(buf, 0, buf.position());
+    }
+
+    public void testWriteAndRead() throws Exception
+    {
+        Map<Integer, Long> lastSeen = new HashMap<Integer, Long>();
+        lastSeen.put(0, TxnEgo.makeZero(0).getTxnId());
+        lastSeen.put(1, TxnEgo.makeZero(1).getTxnId());
+        CommandLogSegment segment = createSegment(1, lastSeen);
+
+        long sp0 = TxnEgo.makeZero(0).makeNext().getTxnId();
+        long sp1 = TxnEgo.makeZero(1).makeNext().getTxnId();
+        append(segment, initiate(sp0, "Insert", 1, "one"), sp0, null);
+        append(segment, initiate(sp1, "Insert", 2, "two"), sp1, null);
+        long mpSp0 = TxnEgo.makeZero(0).makeNext().makeNext().getTxnId();
+        append(segment, initiate(12345, "MultiPart"), mpSp0, new int[] {0, 1});
+        segment.force();
+        segment.close();
+
+        assertEquals(Long.valueOf(mpSp0), segment.getMaxSpHandles().get(0));
+        assertEquals(Long.valueOf(sp1), segment.getMaxSpHandles().get(1));
+
+        List<CommandLogSegment.Reader> readers = CommandLogSegment.openSegments(m_dir);
+        assertEquals(1, readers.size());
+        CommandLogSegment.Reader reader = readers.get(0);
+        assertEquals(1, reader.getHeader().segmentId);
+        assertEquals(new InstanceId(3, 1234), reader.getHeader().instanceId);
+        assertEquals(lastSeen, reader.getHeader().lastSeenTxnIds);
+
+        CommandLogSegment.Entry e = reader.next();
+        assertEquals(CommandLogSegment.INVOCATION, e.type);
+        assertEquals(sp0, e.spHandle);
+        assertEquals(0, e.partitionId);
+        assertFalse(e.isMultiPartition());
+        assertEquals("Insert", e.message.getStoredProcedureName());
+        assertEquals(sp0, e.message.getTxnId());
+        assertEquals(sp0 + 1, e.message.getUniqueId());
+        assertEquals("one", e.message.getParameters()[1]);
+
+        e = reader.next();
+        assertEquals(1, e.partitionId);
+        assertEquals("two", e.message.getParameters()[1]);
+
+        e = reader.next();
+        assertTrue(e.isMultiPartition());
+        assertTrue(Arrays.equals(new int[] {0, 1}, e.involvedPartitions));
+        assertEquals(12345, e.message.getTxnId());
+
+        // The rest of the preallocated file is zeros
+        assertNull(reader.next());
+        reader.close();
+    }
+
+    public void testFaultEntry() throws Exception
+    {
+        CommandLogSegment segment = createSegment(1, new HashMap<Integer, Long>());
+        long spHandle = TxnEgo.makeZero(2).makeNext().getTxnId();
+        ByteBuffer buf = ByteBuffer.allocateDirect(
+                CommandLogSegment.faultEntrySize(new HashSet<Long>(Arrays.asList(5L, 6L))));
+        CommandLogSegment.writeFault(buf, 0, 7L, new HashSet<Long>(Arrays.asList(5L, 6L)), 2, spHandle);
+        segment.append(buf, 0, buf.position());
+        segment.close();
+        assertEquals(Long.valueOf(spHandle), segment.getMaxSpHandles().get(2));
+
+        CommandLogSegment.Reader reader = new CommandLogSegment.Reader(segment.getFile());
+        CommandLogSegment.Entry e = reader.next();
+        assertEquals(CommandLogSegment.FAULT, e.type);
+        assertEquals(7L, e.writerHSId);
+        assertEquals(2, e.partitionId);
+        assertEquals(spHandle, e.spHandle);
+        assertEquals(new HashSet<Long>(Arrays.asList(5L, 6L)), new HashSet<Long>(e.survivors));
+        assertNull(reader.next());
+        reader.close();
+    }
+
+    /**
+     * A recycled file still holds the entries of its previous use, they must
+     * not be read back as part of the new segment.
+     */
+    public void testRecycledSegmentStopsAtOldEntries() throws Exception
+    {
+        CommandLogSegment first = createSegment(1, new HashMap<Integer, Long>());
+        long spHandle = TxnEgo.makeZero(0).makeNext().getTxnId();
+        for (int i = 0; i < 10; i++) {
+            append(first, initiate(spHandle + i, "Insert", i), spHandle + i, null);
+        }
+        first.close();
+
+        File free = new File(m_dir, CommandLogSegment.freeFileName(100));
+        assertTrue(first.getFile().renameTo(free));
+        CommandLogSegment.Header header =
+                new CommandLogSegment.Header(2, new InstanceId(3, 1234), new HashMap<Integer, Long>());
+        CommandLogSegment second =
+                new CommandLogSegment(free, new File(m_dir, CommandLogSegment.segmentFileName(2)), header);
+        append(second, initiate(spHandle + 20, "Insert", 20), spHandle + 20, null);
+        second.close();
+
+        CommandLogSegment.Reader reader = new CommandLogSegment.Reader(second.getFile());
+        CommandLogSegment.Entry e = reader.next();
+        assertEquals(spHandle + 20, e.spHandle);
+        assertNull(reader.next());
+        reader.close();
+    }
+
+    public void testSegmentsAreOrderedById() throws Exception
+    {
+        createSegment(11, new HashMap<Integer, Long>()).close();
+        createSegment(2, new HashMap<Integer, Long>()).close();
+        new File(m_dir, CommandLogSegment.segmentFileName(5)).createNewFile(); // no header
+        List<CommandLogSegment.Reader> readers = CommandLogSegment.openSegments(m_dir);
+        assertEquals(2, readers.size());
+        assertEquals(2, readers.get(0).getHeader().segmentId);
+        assertEquals(11, readers.get(1).getHeader().segmentId);
+        for (CommandLogSegment.Reader r : readers) {
+            r.close();
+        }
+    }
+
+    public void testTruncationCoverage() throws Exception
+    {
+        CommandLogSegment segment = createSegment(1, new HashMap<Integer, Long>());
+        long sp0 = TxnEgo.makeZero(0).makeNext().getTxnId();
+        long sp1 = TxnEgo.makeZero(1).makeNext().getTxnId();
+        append(segment, initiate(sp0, "Insert"), sp0, null);
+        append(segment, initiate(sp1, "Insert"), sp1, null);
+        segment.close();
+
+        Map<Integer, Long> snapshot = new HashMap<Integer, Long>();
+        snapshot.put(0, sp0);
+        assertFalse(GroupCommitCommandLog.isCovered(segment, snapshot));
+        snapshot.put(1, sp1 - 1);
+        assertFalse(GroupCommitCommandLog.isCovered(segment, snapshot));
+        snapshot.put(1, sp1);
+        assertTrue(GroupCommitCommandLog.isCovered(segment, snapshot));
+    }
+}
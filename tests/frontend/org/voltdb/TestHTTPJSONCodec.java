@@ -0,0 +1,167 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.types.TimestampType;
+
+public class TestHTTPJSONCodec extends TestCase {
+
+    private static VoltTable makeTable() {
+        VoltTable t = new VoltTable(
+                new VoltTable.ColumnInfo("TINY", VoltType.TINYINT),
+                new VoltTable.ColumnInfo("BIG", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("TS", VoltType.TIMESTAMP),
+                new VoltTable.ColumnInfo("STR", VoltType.STRING),
+                new VoltTable.ColumnInfo("BIN", VoltType.VARBINARY),
+                new VoltTable.ColumnInfo("DEC", VoltType.DECIMAL));
+        t.addRow(1, 1L << 40, new TimestampType(1234567), "café \"quoted\"\n", new byte[] {1, 2, (byte) 0xff},
+                 new BigDecimal("3.25"));
+        t.addRow(null, null, null, null, null, null);
+        t.setStatusCode((byte) 7);
+        return t;
+    }
+
+    public void testResponseMatchesJSONStringer() throws Exception {
+        ClientResponseImpl response = new ClientResponseImpl(ClientResponse.SUCCESS, (byte) 3, "app",
+                new VoltTable[] { makeTable(), new VoltTable(new VoltTable.ColumnInfo("C", VoltType.INTEGER)) },
+                null);
+        assertEquals(response.toJSONString(), HTTPJSONCodec.toJSONString(response));
+    }
+
+    public void testFloatsRoundTrip() throws Exception {
+        VoltTable t = new VoltTable(new VoltTable.ColumnInfo("F", VoltType.FLOAT));
+        t.addRow(2.0);
+        t.addRow(-0.125);
+        t.addRow(1e300);
+        t.addRow(VoltType.NULL_FLOAT);
+        ClientResponseImpl response = new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[] { t }, "ok");
+        assertEquals(response.toJSONString(), HTTPJSONCodec.toJSONString(response));
+        assertTrue(HTTPJSONCodec.toJSONString(response).contains("\"data\":[[2],[-0.125],[1.0E300],[null]]"));
+        JSONObject json = new JSONObject(HTTPJSONCodec.toJSONString(response));
+        VoltTable decoded = VoltTable.fromJSONObject(json.getJSONArray("results").getJSONObject(0));
+        assertTrue(t.hasSameContents(decoded));
+    }
+
+    public void testJSONPAndBatch() throws Exception {
+        ClientResponseImpl ok = new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[] { makeTable() }, null);
+        ClientResponseImpl failed = new ClientResponseImpl(ClientResponse.UNEXPECTED_FAILURE, new VoltTable[0], "no");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HTTPJSONCodec.writeResponse(out, "cb", failed);
+        assertEquals("cb( " + failed.toJSONString() + " )", new String(out.toByteArray(), StandardCharsets.UTF_8));
+
+        out = new ByteArrayOutputStream();
+        HTTPJSONCodec.writeResponses(out, null, new ClientResponseImpl[] { ok, failed });
+        assertEquals("[" + ok.toJSONString() + "," + failed.toJSONString() + "]",
+                     new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The streaming decoder must hand procedures the same values as the JSONArray one.
+     */
+    public void testParametersMatchJSONArray() throws Exception {
+        String[] inputs = {
+                "[]",
+                "[1, -2147483649, 12345678901234567890, 1.5, 2e3, \"0x10\", null]",
+                "[\"caf\\u00e9\", [1, 2, 3], [\"a\", \"b\"]]",
+                "[{\"status\":-128,\"schema\":[{\"name\":\"A\",\"type\":6}],\"data\":[[1],[null]]}]",
+                // accepted by the lenient JSON library only
+                "[TABLE]",
+                "[8,NULL]",
+                "['single', 0x1F]",
+        };
+        for (String input : inputs) {
+            ParameterSet expected = ParameterSet.fromJSONString(input);
+            ParameterSet actual = HTTPJSONCodec.parseParameters(input);
+            assertEquals(input, expected.size(), actual.size());
+            Object[] e = expected.toArray();
+            Object[] a = actual.toArray();
+            for (int i = 0; i < e.length; i++) {
+                assertParamEquals(input, e[i], a[i]);
+            }
+        }
+
+        assertNull(HTTPJSONCodec.parseParameters("null"));
+        try {
+            HTTPJSONCodec.parseParameters("{\"a\": 1}");
+            fail();
+        } catch (JSONException expected) {}
+    }
+
+    private static void assertParamEquals(String input, Object expected, Object actual) {
+        if (expected instanceof Object[]) {
+            assertTrue(input, actual instanceof Object[]);
+            Object[] e = (Object[]) expected;
+            Object[] a = (Object[]) actual;
+            assertEquals(input, e.length, a.length);
+            for (int i = 0; i < e.length; i++) {
+                assertParamEquals(input, e[i], a[i]);
+            }
+        } else if (expected instanceof VoltTable) {
+            assertTrue(input, ((VoltTable) expected).hasSameContents((VoltTable) actual));
+        } else {
+            assertEquals(input, expected, actual);
+            assertEquals(input, expected.getClass(), actual.getClass());
+        }
+    }
+
+    public void testInvocations() throws Exception {
+        List<HTTPJSONCodec.Invocation> invocations = HTTPJSONCodec.parseInvocations(
+                "[{\"Procedure\": \"Insert\", \"Parameters\": [5, \"aa\"]}," +
+                " {\"Procedure\": \"@Statistics\", \"Parameters\": \"[TABLE, 0]\"}," +
+                " {\"Procedure\": \"@SystemInformation\"}]");
+        assertEquals(3, invocations.size());
+        assertEquals("Insert", invocations.get(0).procName);
+        assertEquals(Arrays.asList(5, "aa"), Arrays.asList(invocations.get(0).params.toArray()));
+        assertEquals("@Statistics", invocations.get(1).procName);
+        assertEquals(Arrays.asList("TABLE", 0), Arrays.asList(invocations.get(1).params.toArray()));
+        assertEquals("@SystemInformation", invocations.get(2).procName);
+        assertNull(invocations.get(2).params);
+
+        String[] invalid = {
+                "[]",
+                "{\"Procedure\": \"Insert\"}",
+                "[{\"Parameters\": [1]}]",
+                "[{\"Procedure\": \"Insert\", \"Other\": 1}]",
+                "[{\"Procedure\": \"Insert\"}",
+        };
+        for (String input : invalid) {
+            try {
+                HTTPJSONCodec.parseInvocations(input);
+                fail(input);
+            } catch (JSONException expected) {}
+        }
+    }
+}
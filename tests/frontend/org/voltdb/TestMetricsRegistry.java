@@ -0,0 +1,95 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import junit.framework.TestCase;
+
+import org.HdrHistogram_voltpatches.AbstractHistogram;
+
+import com.google_voltpatches.common.base.Supplier;
+
+public class TestMetricsRegistry extends TestCase {
+
+    public void testCounters() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        MetricsRegistry.Counter a = metrics.counter("calls_total", "Calls", "procedure", "A", "partition", "0");
+        a.increment();
+        a.add(2);
+        // the same name and labels return the same counter
+        metrics.counter("calls_total", "Calls", "procedure", "A", "partition", "0").increment();
+        metrics.counter("calls_total", "Calls", "procedure", "say \"hi\"", "partition", "1").increment();
+        assertEquals(4, a.get());
+
+        StringBuilder sb = new StringBuilder();
+        metrics.write(sb);
+        assertEquals("# HELP calls_total Calls\n" +
+                     "# TYPE calls_total counter\n" +
+                     "calls_total{procedure=\"A\",partition=\"0\"} 4\n" +
+                     "calls_total{procedure=\"say \\\"hi\\\"\",partition=\"1\"} 1\n",
+                     sb.toString());
+
+        try {
+            metrics.histogram("calls_total", "Calls");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            metrics.counter("odd_total", "Odd", "procedure");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testGaugesAndHistograms() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        final long[] value = { 5 };
+        metrics.registerGauge("size_bytes", "Size", new Supplier<Long>() {
+            @Override
+            public Long get() {
+                return value[0];
+            }
+        });
+        AbstractHistogram latency = metrics.histogram("latency_microseconds", "Latency", "procedure", "A");
+        assertSame(latency, metrics.histogram("latency_microseconds", "Latency", "procedure", "A"));
+        latency.recordValue(50);
+        latency.recordValue(2000);
+        latency.recordValue(2000);
+        latency.recordValue(20000000);
+
+        value[0] = 7;
+        StringBuilder sb = new StringBuilder();
+        metrics.write(sb);
+        String text = sb.toString();
+        assertTrue(text, text.contains("# TYPE latency_microseconds histogram\n"));
+        assertTrue(text, text.contains("latency_microseconds_bucket{procedure=\"A\",le=\"100\"} 1\n"));
+        assertTrue(text, text.contains("latency_microseconds_bucket{procedure=\"A\",le=\"1000\"} 1\n"));
+        assertTrue(text, text.contains("latency_microseconds_bucket{procedure=\"A\",le=\"2500\"} 3\n"));
+        assertTrue(text, text.contains("latency_microseconds_bucket{procedure=\"A\",le=\"10000000\"} 3\n"));
+        assertTrue(text, text.contains("latency_microseconds_bucket{procedure=\"A\",le=\"+Inf\"} 4\n"));
+        assertTrue(text, text.contains("latency_microseconds_count{procedure=\"A\"} 4\n"));
+        assertTrue(text, text.contains("# TYPE size_bytes gauge\nsize_bytes 7\n"));
+        // families are written in name order
+        assertTrue(text.indexOf("latency_microseconds") < text.indexOf("size_bytes"));
+    }
+}
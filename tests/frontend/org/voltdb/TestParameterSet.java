@@ -527,4 +527,79 @@ public class TestParameterSet extends TestCase {
 
         assertTrue(Arrays.deepEquals(pset1array, pset2array));
     }
+
+    private static ByteBuffer serializeMixedParameters() throws IOException {
+        VoltTable table = new VoltTable(new VoltTable.ColumnInfo("foo", VoltType.INTEGER),
+                                        new VoltTable.ColumnInfo("bar", VoltType.STRING));
+        table.addRow(1, "one");
+        table.addRow(null, null);
+
+        ParameterSet pset = ParameterSet.fromArrayNoCopy(new byte[100000],
+                                                         "stringparam",
+                                                         null,
+                                                         VoltType.NULL_STRING_OR_VARBINARY,
+                                                         (byte) 1,
+                                                         (short) 2,
+                                                         3,
+                                                         4L,
+                                                         5.0,
+                                                         new TimestampType(6),
+                                                         new BigDecimal("7.5"),
+                                                         table,
+                                                         new short[] { 1, 2 },
+                                                         new int[] { 3, 4, 5 },
+                                                         new long[] { 6 },
+                                                         new double[] { 7.0, 8.0 },
+                                                         new String[] { "a", null, "ccc" },
+                                                         new byte[][] { { 1, 2 }, { 3 } },
+                                                         new TimestampType[] { new TimestampType(9) },
+                                                         new BigDecimal[] { new BigDecimal("10.25") },
+                                                         "caf\u00e9",
+                                                         11L);
+
+        ByteBuffer buf = ByteBuffer.allocate(pset.getSerializedSize());
+        pset.flattenToBuffer(buf);
+        buf.flip();
+        return buf;
+    }
+
+    public void testGetParameterAtIndexSkipsEarlierParameters() throws IOException {
+        ByteBuffer buf = serializeMixedParameters();
+        Object[] expected = ParameterSet.fromByteBuffer(buf.duplicate()).toArray();
+        for (int i = 0; i < expected.length; i++) {
+            Object actual = ParameterSet.getParameterAtIndex(i, buf.duplicate());
+            assertTrue("parameter " + i, Arrays.deepEquals(new Object[] { expected[i] }, new Object[] { actual }));
+        }
+
+        try {
+            ParameterSet.getParameterAtIndex(expected.length, buf.duplicate());
+            fail();
+        } catch (RuntimeException expectedException) {}
+    }
+
+    public void testReadParametersForCall() throws IOException {
+        ByteBuffer buf = serializeMixedParameters();
+        Object[] expected = ParameterSet.fromByteBuffer(buf.duplicate()).toArray();
+
+        // strings decoded directly where the signature takes strings, the rest as usual
+        Class<?>[] types = new Class<?>[expected.length];
+        Arrays.fill(types, Object.class);
+        types[1] = String.class;
+        types[3] = String.class;
+        types[types.length - 2] = String.class;
+        Object[] actual = ParameterSet.readParametersForCall(buf.duplicate(), types);
+        assertTrue(Arrays.deepEquals(expected, actual));
+
+        // a shorter signature is left for the procedure runner to reject
+        actual = ParameterSet.readParametersForCall(buf.duplicate(), new Class<?>[] { byte[].class, String.class });
+        assertTrue(Arrays.deepEquals(expected, actual));
+
+        // decoding must not depend on the buffer starting at the backing array's start
+        ByteBuffer offset = ByteBuffer.allocate(buf.remaining() + 7);
+        offset.position(7);
+        offset.put(buf.duplicate());
+        offset.position(7);
+        actual = ParameterSet.readParametersForCall(offset.slice(), types);
+        assertTrue(Arrays.deepEquals(expected, actual));
+    }
 }
@@ -0,0 +1,95 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class TestSpReadRouter extends TestCase
+{
+    public void testConfigure()
+    {
+        try {
+            SpReadRouter.configure("replica");
+            assertTrue(SpReadRouter.isReplicaReadsEnabled());
+            SpReadRouter.configure(" FAST ");
+            assertFalse(SpReadRouter.isReplicaReadsEnabled());
+            try {
+                SpReadRouter.configure("eventual");
+                fail();
+            } catch (IllegalArgumentException expected) {}
+        } finally {
+            SpReadRouter.configure(SpReadRouter.FAST);
+        }
+    }
+
+    public void testPickCopyRoundRobin()
+    {
+        SpReadRouter router = new SpReadRouter();
+        assertNull(router.pickCopy(0));
+
+        Map<Integer, List<Long>> copies = new HashMap<Integer, List<Long>>();
+        copies.put(0, Arrays.asList(10L, 11L, 12L));
+        assertTrue(router.setCopies(copies).isEmpty());
+
+        Set<Long> picked = new HashSet<Long>();
+        for (int i = 0; i < 3; i++) {
+            picked.add(router.pickCopy(0));
+        }
+        assertEquals(new HashSet<Long>(Arrays.asList(10L, 11L, 12L)), picked);
+        assertNull(router.pickCopy(1));
+    }
+
+    public void testSetCopiesReportsRemoved()
+    {
+        SpReadRouter router = new SpReadRouter();
+        Map<Integer, List<Long>> copies = new HashMap<Integer, List<Long>>();
+        copies.put(0, Arrays.asList(10L, 11L));
+        copies.put(1, Arrays.asList(20L, 21L));
+        router.setCopies(copies);
+
+        copies.put(0, Arrays.asList(10L));
+        copies.put(1, Arrays.asList(20L, 21L, 22L));
+        assertEquals(new HashSet<Long>(Arrays.asList(11L)), router.setCopies(copies));
+        assertEquals(Long.valueOf(10L), router.pickCopy(0));
+    }
+
+    public void testReadSpHandleOnlyMovesForward()
+    {
+        SpReadRouter router = new SpReadRouter();
+        assertEquals(0, router.getReadSpHandle(0));
+        router.writeCompleted(0, 100);
+        router.writeCompleted(0, 50);
+        assertEquals(100, router.getReadSpHandle(0));
+        router.writeCompleted(0, 150);
+        assertEquals(150, router.getReadSpHandle(0));
+        assertEquals(0, router.getReadSpHandle(1));
+    }
+}
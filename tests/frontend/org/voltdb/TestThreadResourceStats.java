@@ -0,0 +1,105 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+import org.voltdb.utils.ProcFS;
+
+public class TestThreadResourceStats extends TestCase {
+
+    public void testThreadGroups() {
+        assertEquals(ThreadResourceStats.SITE, ThreadResourceStats.threadGroup("Iv2ExecutionSite: 0:1"));
+        assertEquals(ThreadResourceStats.SITE, ThreadResourceStats.threadGroup("RO MP Iv2ExecutionSite - 0:16383 - 3"));
+        assertEquals(ThreadResourceStats.NETWORK, ThreadResourceStats.threadGroup("Volt Client Network - 2"));
+        assertEquals(ThreadResourceStats.PICONETWORK, ThreadResourceStats.threadGroup("Pico Network - 1"));
+        assertEquals(ThreadResourceStats.SNAPSHOT, ThreadResourceStats.threadGroup("Snapshot write service "));
+        assertEquals(ThreadResourceStats.EXPORT, ThreadResourceStats.threadGroup("ExportDataSource gen 3"));
+        assertEquals(ThreadResourceStats.OTHER, ThreadResourceStats.threadGroup("Periodic Work"));
+    }
+
+    public void testThreadRows() throws Exception {
+        ThreadResourceStats stats = new ThreadResourceStats();
+        // burn some CPU in a named thread, then keep it alive for the collection
+        final CountDownLatch burned = new CountDownLatch(1);
+        final CountDownLatch collected = new CountDownLatch(1);
+        Thread worker = new Thread("Volt Test Network - 0") {
+            @Override
+            public void run() {
+                long end = System.nanoTime() + 200 * 1000000L;
+                while (System.nanoTime() < end) {
+                }
+                burned.countDown();
+                try {
+                    collected.await();
+                } catch (InterruptedException e) {
+                }
+            }
+        };
+        worker.start();
+        burned.await();
+
+        Map<String, Object[]> rows = new HashMap<String, Object[]>();
+        for (Object[] row : stats.getStatsRows(false, System.currentTimeMillis())) {
+            rows.put((String)row[stats.columnNameToIndex.get(ThreadResourceStats.Constants.THREAD_NAME)], row);
+        }
+        collected.countDown();
+        worker.join();
+
+        Object[] network = rows.get("Volt Test Network - 0");
+        assertNotNull(network);
+        assertEquals(ThreadResourceStats.NETWORK,
+                     network[stats.columnNameToIndex.get(ThreadResourceStats.Constants.THREAD_GROUP)]);
+        assertTrue((Long)network[stats.columnNameToIndex.get(ThreadResourceStats.Constants.CPU_TIME)] > 50);
+        assertTrue((Double)network[stats.columnNameToIndex.get(ThreadResourceStats.Constants.PERCENT_CPU)] > 0.0);
+
+        Object[] main = rows.get(Thread.currentThread().getName());
+        assertNotNull(main);
+        assertEquals("RUNNABLE", main[stats.columnNameToIndex.get(ThreadResourceStats.Constants.STATE)]);
+        if (ProcFS.isAvailable()) {
+            assertNotNull(rows.get("JVM internal threads"));
+        }
+    }
+
+    public void testProcessRow() {
+        ProcessResourceStats stats = new ProcessResourceStats();
+        Object[][] rows = stats.getStatsRows(false, System.currentTimeMillis());
+        assertEquals(1, rows.length);
+        Object[] row = rows[0];
+        assertTrue((Integer)row[stats.columnNameToIndex.get(ProcessResourceStats.Constants.JAVA_THREADS)] > 0);
+        assertTrue((Long)row[stats.columnNameToIndex.get(ProcessResourceStats.Constants.GC_COUNT)] >= 0);
+        if (ProcFS.isAvailable()) {
+            assertTrue((Long)row[stats.columnNameToIndex.get(ProcessResourceStats.Constants.RSS)] > 0);
+            assertTrue((Integer)row[stats.columnNameToIndex.get(ProcessResourceStats.Constants.NATIVE_THREADS)] > 0);
+        }
+
+        System.gc();
+        rows = stats.getStatsRows(true, System.currentTimeMillis());
+        assertTrue((Long)rows[0][stats.columnNameToIndex.get(ProcessResourceStats.Constants.GC_COUNT)] > 0);
+    }
+}
@@ -56,6 +56,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -67,6 +68,9 @@ import org.voltdb.VoltTable;
 import org.voltdb.client.VoltBulkLoader.BulkLoaderFailureCallBack;
 import org.voltdb.client.VoltBulkLoader.VoltBulkLoader;
 
+import com.google_voltpatches.common.util.concurrent.Futures;
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
 /** Hack subclass of VoltClient that fakes callProcedure. */
 public class MockVoltClient implements Client, ReplicaProcCaller{
     public MockVoltClient() {
@@ -159,6 +163,30 @@ public class MockVoltClient implements Client, ReplicaProcCaller{
         return false;
     }
 
+    @Override
+    public ListenableFuture<ClientResponse> callProcedureAsync(String procName, Object... parameters) {
+        try {
+            return Futures.immediateFuture(callProcedure(procName, parameters));
+        } catch (ProcCallException e) {
+            return Futures.immediateFuture(e.getClientResponse());
+        }
+    }
+
+    @Override
+    public List<ListenableFuture<ClientResponse>> callProceduresAsync(String procName,
+            List<Object[]> parameterSets) {
+        List<ListenableFuture<ClientResponse>> futures = new ArrayList<ListenableFuture<ClientResponse>>();
+        for (Object[] parameters : parameterSets) {
+            futures.add(callProcedureAsync(procName, parameters));
+        }
+        return futures;
+    }
+
+    @Override
+    public ListenableFuture<Void> whenCapacityAvailable() {
+        return Futures.immediateFuture(null);
+    }
+
     @Override
     public void drain() {
         // TODO Auto-generated method stub
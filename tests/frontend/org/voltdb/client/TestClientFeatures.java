@@ -26,9 +26,11 @@ package org.voltdb.client;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -43,6 +45,8 @@ import org.voltdb.compiler.CatalogBuilder;
 import org.voltdb.compiler.DeploymentBuilder;
 import org.voltdb.utils.MiscUtils;
 
+import com.google_voltpatches.common.util.concurrent.ListenableFuture;
+
 public class TestClientFeatures extends TestCase {
 
     ServerThread localServer;
@@ -417,6 +421,41 @@ public class TestClientFeatures extends TestCase {
         assertTrue(delta > TimeUnit.MILLISECONDS.toNanos(20));
     }
 
+    public void testFutureCalls() throws Exception {
+        final ClientImpl client = (ClientImpl)ClientFactory.createClient();
+        client.createConnection("localhost");
+
+        ClientResponse response = client.callProcedureAsync("ArbitraryDurationProc", 0).get(1, TimeUnit.MINUTES);
+        assertEquals(ClientResponse.SUCCESS, response.getStatus());
+
+        List<Object[]> parameterSets = new ArrayList<Object[]>();
+        for (int i = 0; i < 100; i++) {
+            parameterSets.add(new Object[] { 0 });
+        }
+        List<ListenableFuture<ClientResponse>> futures =
+                client.callProceduresAsync("ArbitraryDurationProc", parameterSets);
+        assertEquals(parameterSets.size(), futures.size());
+        for (ListenableFuture<ClientResponse> future : futures) {
+            assertEquals(ClientResponse.SUCCESS, future.get(1, TimeUnit.MINUTES).getStatus());
+        }
+
+        assertTrue(client.whenCapacityAvailable().isDone());
+        client.m_listener.backpressure(true);
+        ListenableFuture<Void> capacity = client.whenCapacityAvailable();
+        assertFalse(capacity.isDone());
+        client.m_listener.backpressure(false);
+        assertTrue(capacity.isDone());
+
+        client.close();
+        try {
+            client.callProcedureAsync("ArbitraryDurationProc", 0).get();
+            fail();
+        }
+        catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof NoConnectionsException);
+        }
+    }
+
     public void testDefaultConfigValues() {
         final ClientConfig dut = new ClientConfig();
         assertEquals(ClientAuthHashScheme.HASH_SHA256, dut.m_hashScheme);
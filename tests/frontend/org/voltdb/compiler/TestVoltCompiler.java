@@ -53,6 +53,7 @@ import org.voltdb.catalog.ConnectorTableInfo;
 import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Group;
 import org.voltdb.catalog.GroupRef;
+import org.voltdb.catalog.Index;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.SnapshotSchedule;
 import org.voltdb.catalog.Table;
@@ -1845,6 +1846,51 @@ public class TestVoltCompiler extends TestCase {
         }
     }
 
+    public void testDDLCompilerOpenHashIndexAllowed()
+    {
+        for (int i = 0; i < column_types.length; i++)
+        {
+            final String s =
+                "create table t(id " + column_types[i] + " not null, num integer not null);\n" +
+                "create index idx_t_id_openhash on t(id);\n" +
+                "create unique index idx_t_idnum_openhash on t(id,num);";
+            VoltCompiler c = compileForDDLTest(getPathForSchema(s), can_be_hash[i]);
+            if (can_be_hash[i])
+            {
+                assertFalse(c.hasErrors());
+                Database d = c.m_catalog.getClusters().get("cluster").getDatabases().get("database");
+                assertEquals(IndexType.OPEN_HASH_TABLE.getValue(),
+                            d.getTables().getIgnoreCase("t").getIndexes().getIgnoreCase("idx_t_id_openhash").getType());
+                assertEquals(IndexType.OPEN_HASH_TABLE.getValue(),
+                            d.getTables().getIgnoreCase("t").getIndexes().getIgnoreCase("idx_t_idnum_openhash").getType());
+            }
+            else
+            {
+                assertTrue(c.hasErrors());
+            }
+        }
+    }
+
+    public void testDDLCompilerBTreeIndexAllowed()
+    {
+        for (int i = 0; i < column_types.length; i++)
+        {
+            final String s =
+                "create table t(id " + column_types[i] + " not null, num integer not null);\n" +
+                "create index idx_t_id_btree on t(id);\n" +
+                "create unique index idx_t_idnum_btree on t(id,num);";
+            VoltCompiler c = compileForDDLTest(getPathForSchema(s), can_be_tree[i]);
+            assertFalse(c.hasErrors());
+            Database d = c.m_catalog.getClusters().get("cluster").getDatabases().get("database");
+            Index id = d.getTables().getIgnoreCase("t").getIndexes().getIgnoreCase("idx_t_id_btree");
+            Index idnum = d.getTables().getIgnoreCase("t").getIndexes().getIgnoreCase("idx_t_idnum_btree");
+            assertEquals(IndexType.BTREE.getValue(), id.getType());
+            assertEquals(IndexType.BTREE.getValue(), idnum.getType());
+            assertTrue(id.getCountable());
+            assertTrue(idnum.getCountable());
+        }
+    }
+
     public void testUniqueIndexAllowed()
     {
         final String s =
@@ -2390,7 +2436,36 @@ public class TestVoltCompiler extends TestCase {
                 "create table t2(id integer not null, num integer, wage integer);\n" +
                 "create view my_view1 (id, num, total) " +
                 "as select t1.id, t2.num, count(*) from t1 join t2 on t1.id = t2.id group by t1.id, t2.num; \n";
-        checkDDLErrorMessage(ddl, "Materialized view \"MY_VIEW1\" has 2 sources. Only one source table is allowed.");
+        checkDDLErrorMessage(ddl, "Materialized view \"MY_VIEW1\" must join the table T2 on all the columns " +
+                "of one of its unique indexes, each equal to a column of the same type in T1.");
+
+        ddl = "create table t1(id integer not null, num integer, wage integer);\n" +
+                "create table t2(id integer not null, num integer, wage integer, primary key (id));\n" +
+                "create view my_view1 (id, num, total) " +
+                "as select t1.id, t2.num, count(*) from t1 left join t2 on t1.id = t2.id group by t1.id, t2.num; \n";
+        checkDDLErrorMessage(ddl, "Materialized view \"MY_VIEW1\" with OUTER JOIN is not supported.");
+
+        ddl = "create table t1(id integer not null, num integer, wage integer, primary key (id));\n" +
+                "create view my_view1 (num, total) " +
+                "as select b.num, count(*) from t1 a join t1 b on a.wage = b.id group by b.num; \n";
+        checkDDLErrorMessage(ddl, "Materialized view \"MY_VIEW1\" joins the table T1 to itself, which is not supported.");
+
+        ddl = "create table t1(id integer not null, num integer, wage integer);\n" +
+                "create table t2(id integer not null, num integer, wage integer, primary key (id));\n" +
+                "partition table t2 on column id;\n" +
+                "create view my_view1 (num, total) " +
+                "as select t2.num, count(*) from t1 join t2 on t1.wage = t2.id group by t2.num; \n";
+        checkDDLErrorMessage(ddl, "Materialized view \"MY_VIEW1\" joins the partitioned table T2. " +
+                "Only the first table of a materialized view join may be partitioned.");
+
+        ddl = "create table t1(id integer not null, num integer, wage integer);\n" +
+                "partition table t1 on column id;\n" +
+                "create table t2(id integer not null, num integer, wage integer, primary key (id));\n" +
+                "create table t3(id integer not null, num integer, primary key (id));\n" +
+                "create view my_view1 (num, tnum, total, sumwage) " +
+                "as select t2.num, t3.num, count(*), sum(t1.wage) from t1, t2, t3 " +
+                "where t1.num = t2.id and t3.id = t1.id and t2.wage > 0 group by t2.num, t3.num; \n";
+        checkDDLErrorMessage(ddl, null);
 
         ddl = "create table t1(id integer not null, num integer, wage integer);\n" +
                 "create table t2(id integer not null, num integer, wage integer);\n" +
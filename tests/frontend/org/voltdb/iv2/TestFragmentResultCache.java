@@ -0,0 +1,171 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.voltdb.ParameterSet;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Catalog;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.MaterializedViewInfo;
+import org.voltdb.catalog.Table;
+import org.voltdb.planner.ActivePlanRepository;
+
+public class TestFragmentResultCache extends TestCase
+{
+    static final long READ_A = 1001;
+    static final long READ_B = 1002;
+    static final long WRITE_A = 1003;
+    static final long READ_NOW = 1004;
+    static final long READ_RSALES = 1005;
+    static final long WRITE_STORES = 1006;
+
+    private static byte[] plan(String type, String table) {
+        return ("{\"PLAN_NODES\":[{\"ID\":1,\"PLAN_NODE_TYPE\":\"" + type +
+                "\",\"TARGET_TABLE_NAME\":\"" + table + "\"}]}").getBytes();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void setUp() {
+        ActivePlanRepository.clear();
+        ActivePlanRepository.addFragmentForTest(READ_A, plan("SEQSCAN", "A"), "select * from A");
+        ActivePlanRepository.addFragmentForTest(READ_B, plan("SEQSCAN", "B"), "select * from B");
+        ActivePlanRepository.addFragmentForTest(WRITE_A, plan("DELETE", "A"), "delete from A");
+        ActivePlanRepository.addFragmentForTest(READ_NOW,
+                "{\"PLAN_NODES\":[{\"TARGET_TABLE_NAME\":\"A\",\"FUNCTION_ID\":43}]}".getBytes(),
+                "select now from A");
+        ActivePlanRepository.addFragmentForTest(READ_RSALES, plan("SEQSCAN", "RSALES"), "select * from RSALES");
+        ActivePlanRepository.addFragmentForTest(WRITE_STORES, plan("UPDATE", "STORES"), "update STORES set REGION = ?");
+    }
+
+    @Override
+    public void tearDown() {
+        ActivePlanRepository.clear();
+    }
+
+    private static VoltTable result(long value) {
+        VoltTable t = new VoltTable(new VoltTable.ColumnInfo("C", VoltType.BIGINT));
+        t.addRow(value);
+        return t;
+    }
+
+    private static FragmentResultCache.Key key(FragmentResultCache cache, long fragmentId, Object... params) {
+        return cache.keyFor(1, new long[] { fragmentId }, null,
+                            new Object[] { ParameterSet.fromArrayNoCopy(params) });
+    }
+
+    @Test
+    public void testHitAndWriteInvalidation() {
+        FragmentResultCache cache = new FragmentResultCache(1024 * 1024);
+        assertNull(cache.get(key(cache, READ_A, 1L)));
+        cache.put(key(cache, READ_A, 1L), new VoltTable[] { result(42) });
+        cache.put(key(cache, READ_B, 1L), new VoltTable[] { result(43) });
+
+        // equal parameters hit, different ones miss
+        VoltTable[] cached = cache.get(key(cache, READ_A, 1L));
+        assertNotNull(cached);
+        assertEquals(42, cached[0].asScalarLong());
+        // every hit gets its own copy to iterate
+        assertEquals(42, cache.get(key(cache, READ_A, 1L))[0].asScalarLong());
+        assertNull(cache.get(key(cache, READ_A, 2L)));
+        assertEquals(2, cache.getHits());
+        assertEquals(2, cache.getMisses());
+
+        // a read in a read-write transaction changes nothing
+        cache.invalidate(1, new long[] { READ_B });
+        assertNotNull(cache.get(key(cache, READ_A, 1L)));
+
+        // writing A invalidates reads of A only
+        cache.invalidate(1, new long[] { WRITE_A });
+        assertNull(cache.get(key(cache, READ_A, 1L)));
+        assertNotNull(cache.get(key(cache, READ_B, 1L)));
+
+        // results cached after the write are current
+        cache.put(key(cache, READ_A, 1L), new VoltTable[] { result(44) });
+        assertEquals(44, cache.get(key(cache, READ_A, 1L))[0].asScalarLong());
+
+        cache.invalidateAll();
+        assertNull(cache.get(key(cache, READ_B, 1L)));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testUncacheable() {
+        FragmentResultCache cache = new FragmentResultCache(1024 * 1024);
+        // the transaction's time
+        assertNull(key(cache, READ_NOW));
+        // input from other sites
+        assertNull(cache.keyFor(1, new long[] { READ_A }, new long[] { 7 },
+                                new Object[] { ParameterSet.emptyParameterSet() }));
+        // pre-serialized parameters
+        assertNull(cache.keyFor(1, new long[] { READ_A }, null, new Object[] { java.nio.ByteBuffer.allocate(2) }));
+    }
+
+    @Test
+    public void testLRUEviction() {
+        final int entryBytes = result(0).getSerializedSize();
+        FragmentResultCache cache = new FragmentResultCache(entryBytes * 2);
+        cache.put(key(cache, READ_A, 1L), new VoltTable[] { result(1) });
+        cache.put(key(cache, READ_A, 2L), new VoltTable[] { result(2) });
+        // use 1 so 2 is the least recently used
+        assertNotNull(cache.get(key(cache, READ_A, 1L)));
+        cache.put(key(cache, READ_A, 3L), new VoltTable[] { result(3) });
+
+        assertEquals(2, cache.size());
+        assertEquals(entryBytes * 2, cache.getBytes());
+        assertNotNull(cache.get(key(cache, READ_A, 1L)));
+        assertNull(cache.get(key(cache, READ_A, 2L)));
+        assertNotNull(cache.get(key(cache, READ_A, 3L)));
+    }
+
+    @Test
+    public void testJoinedTableWriteInvalidatesView() {
+        // RSALES is a view of SALES joined with the replicated STORES
+        Catalog catalog = new Catalog();
+        catalog.execute("add / clusters cluster");
+        catalog.execute("add /clusters#cluster databases database");
+        Database db = catalog.getClusters().get("cluster").getDatabases().get("database");
+        Table sales = db.getTables().add("SALES");
+        db.getTables().add("STORES");
+        Table rsales = db.getTables().add("RSALES");
+        MaterializedViewInfo view = sales.getViews().add("RSALES");
+        view.setDest(rsales);
+        view.setJoinsjson("[{\"TABLE\":\"stores\",\"INDEX\":\"PK_STORES\",\"KEYS\":[]}]");
+
+        FragmentResultCache cache = new FragmentResultCache(1024 * 1024);
+        cache.updateCatalog(db);
+        cache.put(key(cache, READ_RSALES, 1L), new VoltTable[] { result(1) });
+        assertNotNull(cache.get(key(cache, READ_RSALES, 1L)));
+
+        // moving a store to another region changes the view
+        cache.invalidate(1, new long[] { WRITE_STORES });
+        assertNull(cache.get(key(cache, READ_RSALES, 1L)));
+        cache.put(key(cache, READ_RSALES, 1L), new VoltTable[] { result(2) });
+        assertEquals(2, cache.get(key(cache, READ_RSALES, 1L))[0].asScalarLong());
+    }
+}
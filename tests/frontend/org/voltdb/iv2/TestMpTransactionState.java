@@ -28,6 +28,7 @@ import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -83,6 +84,14 @@ public class TestMpTransactionState extends TestCase
     MpTestPlan createTestPlan(int batchSize, boolean readOnly,
                               boolean replicatedTable, boolean rollback,
                               long[] remoteHSIds) throws IOException
+    {
+        return createTestPlan(batchSize, readOnly, replicatedTable, rollback, remoteHSIds, 0);
+    }
+
+    // depBase offsets the dependency IDs so several plans can share a transaction
+    MpTestPlan createTestPlan(int batchSize, boolean readOnly,
+                              boolean replicatedTable, boolean rollback,
+                              long[] remoteHSIds, int depBase) throws IOException
     {
         boolean single_frag = readOnly && replicatedTable;
         MpTestPlan plan = new MpTestPlan();
@@ -94,14 +103,14 @@ public class TestMpTransactionState extends TestCase
         {
             // each SQL statement in the batch gets an output dep ID
             // which corresponds to a local fragment ID
-            depsToResumeList.add(i);
+            depsToResumeList.add(depBase + i);
             // each local fragment ID needs an input dep.  If this is
             // not replicated read only, generate a new value and add it to
             // the distributed output deps
             if (!single_frag) {
                 // take the dep and add 1000
-                depsForLocalTask.add(i + 1000);
-                distributedOutputDepIds.add(i + 1000);
+                depsForLocalTask.add(depBase + i + 1000);
+                distributedOutputDepIds.add(depBase + i + 1000);
             } else {
                 depsForLocalTask.add(-1);
             }
@@ -599,4 +608,77 @@ public class TestMpTransactionState extends TestCase
         assertEquals(batch_size, results.size());
         System.out.println(results);
     }
+
+    @Test
+    public void testPipelinedPartitionedRead() throws IOException
+    {
+        long txnId = 1234l;
+        int batch_size = 3;
+        Iv2InitiateTaskMessage taskmsg =
+            new Iv2InitiateTaskMessage(
+                    0,
+                    -1,
+                    (txnId -1),
+                    txnId,
+                    System.currentTimeMillis(),
+                    true,
+                    false,
+                    new StoredProcedureInvocation(),
+                    0,
+                    0,
+                    false);
+        int hsids = 3;
+        buddyHSId = 0;
+        long[] non_local = configureHSIds(hsids);
+
+        MpTestPlan first = createTestPlan(batch_size, true, false, false, non_local);
+        MpTestPlan second = createTestPlan(batch_size, true, false, false, non_local, 100);
+
+        Mailbox mailbox = mock(Mailbox.class);
+        SiteProcedureConnection siteConnection = mock(SiteProcedureConnection.class);
+
+        MpTransactionState dut =
+            new MpTransactionState(mailbox, taskmsg, allHsids, partMasters, buddyHSId, false);
+
+        // emulate ProcedureRunner running the first batch with the second sent ahead
+        dut.setupProcedureResume(false, first.depsToResume);
+        dut.createLocalFragmentWork(first.localWork, false);
+        dut.createAllParticipatingFragmentWork(first.remoteWork);
+        dut.pipelineFragmentWork(second.remoteWork);
+        verify(mailbox, times(2)).send(eq(non_local), (VoltMessage)any());
+
+        // responses for the second batch arrive before, during and after the first batch's
+        List<FragmentResponseMessage> secondRemote =
+            second.generatedResponses.subList(0, hsids);
+        dut.offerReceivedFragmentResponse(secondRemote.get(0));
+        for (FragmentResponseMessage msg : first.generatedResponses.subList(0, hsids)) {
+            dut.offerReceivedFragmentResponse(msg);
+        }
+        dut.offerReceivedFragmentResponse(secondRemote.get(1));
+        dut.offerReceivedFragmentResponse(secondRemote.get(2));
+        dut.offerReceivedFragmentResponse(first.generatedResponses.get(hsids));
+
+        Map<Integer, List<VoltTable>> results = dut.recursableRun(siteConnection);
+        assertEquals(batch_size, results.size());
+        assertTrue(results.containsKey(first.depsToResume.get(0)));
+
+        // the second batch only waits for its borrow task
+        dut.setupProcedureResume(false, second.depsToResume);
+        dut.createLocalFragmentWork(second.localWork, false);
+        dut.createPipelinedFragmentWork(second.remoteWork);
+        dut.offerReceivedFragmentResponse(second.generatedResponses.get(hsids));
+
+        ArgumentCaptor<BorrowTaskMessage> borrowCaptor = ArgumentCaptor.forClass(BorrowTaskMessage.class);
+        results = dut.recursableRun(siteConnection);
+        verify(mailbox, times(2)).send(eq(non_local), (VoltMessage)any());
+        verify(mailbox, times(2)).send(eq(buddyHSId), borrowCaptor.capture());
+        assertEquals(batch_size, results.size());
+        assertTrue(results.containsKey(second.depsToResume.get(0)));
+        // every remote table of the second batch was handed to its borrow
+        Map<Integer, List<VoltTable>> inputDeps = borrowCaptor.getAllValues().get(1).getInputDepMap();
+        assertEquals(batch_size, inputDeps.size());
+        for (List<VoltTable> tables : inputDeps.values()) {
+            assertEquals(hsids, tables.size());
+        }
+    }
 }
@@ -49,6 +49,7 @@ import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.messaging.InitiateTaskMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 import org.voltdb.messaging.Iv2RepairLogResponseMessage;
+import org.voltdb.messaging.VoltDbMessageFactory;
 
 public class TestRepairLog
 {
@@ -284,7 +285,8 @@ public class TestRepairLog
         UniqueIdGenerator mpbuig = new UniqueIdGenerator(0, 0);
         sphandle = sphandle.makeNext();
         RandomMsgGenerator msgGen = new RandomMsgGenerator();
-        RepairLog dut = new RepairLog();
+        // The generated messages carry mocks that can't be serialized, keep them all on the heap
+        RepairLog dut = new RepairLog(Integer.MAX_VALUE);
         long binaryLogSpUniqueId = Long.MIN_VALUE;
         long binaryLogMpUniqueId = Long.MIN_VALUE;
         for (int i = 0; i < 4000; i++) {
@@ -325,6 +327,7 @@ public class TestRepairLog
         long end = System.currentTimeMillis();
         long duration1 = end - start;
         System.out.println("Time to deliver 100,000 SPs: " + duration1);
+        dut.shutdown();
 
         // Now, add 40000 MP messages and then see how long it takes to do the SPs
         dut = new RepairLog();
@@ -341,6 +344,7 @@ public class TestRepairLog
         end = System.currentTimeMillis();
         long duration2 = end - start;
         System.out.println("Time to deliver 100,000 SPs: " + duration2);
+        dut.shutdown();
         // rough check, verify that the two don't differ by more than 20%
         if (duration2 > duration1) {
             long delta = Math.abs(duration2 - duration1);
@@ -384,4 +388,64 @@ public class TestRepairLog
         log.deliver(msg);
         validateRepairLog(log.contents(1l, false), endUniqueId);
     }
+
+    Iv2InitiateTaskMessage realInitMsg(long truncPt, long handle)
+    {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setProcName("Insert" + handle);
+        spi.setParams(handle, "value " + handle);
+        Iv2InitiateTaskMessage msg =
+                new Iv2InitiateTaskMessage(0l, 0l, truncPt, handle, handle, false, true,
+                        spi, 0l, 0l, false);
+        msg.setSpHandle(handle);
+        return msg;
+    }
+
+    @Test
+    public void testSerializedEntries() throws IOException
+    {
+        // Keep two messages on the heap, serialize the rest
+        RepairLog rl = new RepairLog(2);
+        for (long handle = 1; handle <= 5; handle++) {
+            rl.deliver(realInitMsg(Long.MIN_VALUE, handle));
+        }
+        long[] sizes = rl.getSizes();
+        assertEquals(5, sizes[0]);
+        assertEquals(0, sizes[1]);
+        assertEquals(3, sizes[2]);
+        assertTrue(sizes[3] > 0);
+
+        List<Iv2RepairLogResponseMessage> contents = rl.contents(1L, false);
+        assertEquals(6, contents.size());
+        for (int i = 1; i <= 5; i++) {
+            Iv2RepairLogResponseMessage response = contents.get(i);
+            assertEquals(i, response.getHandle());
+
+            // Round trip through the wire format as a remote repair would
+            ByteBuffer buf = ByteBuffer.allocate(response.getSerializedSize());
+            response.flattenToBuffer(buf);
+            buf.flip();
+            Iv2RepairLogResponseMessage received = (Iv2RepairLogResponseMessage)
+                    new VoltDbMessageFactory().createMessageFromBuffer(buf, 0L);
+
+            for (Iv2RepairLogResponseMessage r : new Iv2RepairLogResponseMessage[] { response, received }) {
+                Iv2InitiateTaskMessage payload = (Iv2InitiateTaskMessage)r.getPayload();
+                assertEquals(i, payload.getSpHandle());
+                assertEquals("Insert" + i, payload.getStoredProcedureName());
+                assertEquals("value " + i, payload.getStoredProcedureInvocation().getParams().toArray()[1]);
+            }
+        }
+
+        // Truncate through the serialized entries into the heap entries
+        rl.deliver(realInitMsg(4L, 6L));
+        contents = rl.contents(1L, false);
+        assertEquals(3, contents.size());
+        assertEquals(5L, contents.get(1).getHandle());
+        assertEquals(6L, contents.get(2).getHandle());
+        sizes = rl.getSizes();
+        assertEquals(2, sizes[0]);
+        assertEquals(0, sizes[2]);
+        assertEquals(0, sizes[3]);
+        rl.shutdown();
+    }
 }
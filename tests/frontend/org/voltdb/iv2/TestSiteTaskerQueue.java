@@ -0,0 +1,188 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.voltdb.StarvationTracker;
+import org.voltdb.iv2.SiteIdleStrategy.Phase;
+
+public class TestSiteTaskerQueue extends TestCase
+{
+    static class NumberedTask extends SiteTasker.SiteTaskerRunnable
+    {
+        final int m_producer;
+        final int m_seq;
+
+        NumberedTask(int producer, int seq)
+        {
+            m_producer = producer;
+            m_seq = seq;
+        }
+
+        @Override
+        void run() {}
+    }
+
+    private static SiteTaskerQueue getSiteTaskerQueue(SiteIdleStrategy strategy)
+    {
+        SiteTaskerQueue queue = new SiteTaskerQueue(strategy);
+        queue.setStarvationTracker(new StarvationTracker(0));
+        return queue;
+    }
+
+    public void testPollIsFifo()
+    {
+        SiteTaskerQueue queue = getSiteTaskerQueue(new SiteIdleStrategy.BusySpin());
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+        for (int i = 0; i < 10; i++) {
+            queue.offer(new NumberedTask(0, i));
+        }
+        assertFalse(queue.isEmpty());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, ((NumberedTask) queue.poll()).m_seq);
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+    }
+
+    private void runProducersAndConsumer(SiteTaskerQueue queue) throws Exception
+    {
+        final int producers = 4;
+        final int perProducer = 50000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            final SiteTaskerQueue q = queue;
+            threads[p] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perProducer; i++) {
+                        q.offer(new NumberedTask(producer, i));
+                        if (i % 1000 == 0) {
+                            // Give the consumer a chance to go idle
+                            try {
+                                Thread.sleep(1);
+                            } catch (InterruptedException e) {
+                                return;
+                            }
+                        }
+                    }
+                }
+            };
+            threads[p].start();
+        }
+        start.countDown();
+
+        int[] nextSeq = new int[producers];
+        for (int i = 0; i < producers * perProducer; i++) {
+            NumberedTask task = (NumberedTask) queue.take();
+            // Each producer's tasks come out in the order it offered them
+            assertEquals(nextSeq[task.m_producer], task.m_seq);
+            nextSeq[task.m_producer]++;
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertNull(queue.poll());
+    }
+
+    public void testMultipleProducersBusySpin() throws Exception
+    {
+        runProducersAndConsumer(getSiteTaskerQueue(new SiteIdleStrategy.BusySpin()));
+    }
+
+    public void testMultipleProducersPark() throws Exception
+    {
+        runProducersAndConsumer(getSiteTaskerQueue(new SiteIdleStrategy.SpinYieldPark(0, 0)));
+    }
+
+    public void testMultipleProducersAdaptive() throws Exception
+    {
+        runProducersAndConsumer(getSiteTaskerQueue(
+                new SiteIdleStrategy.Adaptive(TimeUnit.MICROSECONDS.toNanos(20),
+                                              TimeUnit.MICROSECONDS.toNanos(20))));
+    }
+
+    public void testParkedConsumerIsWoken() throws Exception
+    {
+        final SiteTaskerQueue queue = getSiteTaskerQueue(new SiteIdleStrategy.SpinYieldPark(0, 0));
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread consumer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    queue.take();
+                    done.countDown();
+                } catch (InterruptedException e) {
+                }
+            }
+        };
+        consumer.start();
+        Thread.sleep(50);
+        assertEquals(1, done.getCount());
+        queue.offer(new NumberedTask(0, 0));
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        consumer.join();
+    }
+
+    public void testSpinYieldParkPhases()
+    {
+        SiteIdleStrategy strategy = new SiteIdleStrategy.SpinYieldPark(100, 50);
+        assertEquals(Phase.SPIN, strategy.phase(0));
+        assertEquals(Phase.SPIN, strategy.phase(99));
+        assertEquals(Phase.YIELD, strategy.phase(100));
+        assertEquals(Phase.YIELD, strategy.phase(149));
+        assertEquals(Phase.PARK, strategy.phase(150));
+        assertEquals(Phase.SPIN, new SiteIdleStrategy.BusySpin().phase(Long.MAX_VALUE));
+    }
+
+    public void testAdaptiveStopsSpinningWhenArrivalsSlowDown()
+    {
+        SiteIdleStrategy.Adaptive strategy = new SiteIdleStrategy.Adaptive(1000, 1000);
+        assertEquals(Phase.SPIN, strategy.phase(0));
+
+        // Work keeps arriving long after the spin budget
+        for (int i = 0; i < 50; i++) {
+            strategy.idleEnd(1000000, Phase.PARK);
+        }
+        assertEquals(Phase.YIELD, strategy.phase(0));
+
+        // And then picks up again
+        for (int i = 0; i < 50; i++) {
+            strategy.idleEnd(100, Phase.SPIN);
+        }
+        assertEquals(Phase.SPIN, strategy.phase(0));
+    }
+}
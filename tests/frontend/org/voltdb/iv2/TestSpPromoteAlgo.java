@@ -308,7 +308,8 @@ public class TestSpPromoteAlgo
         boolean[] stops = new boolean[3];
         RepairLog[] logs = new RepairLog[3];
         for (int i = 0; i < 3; i++) {
-            logs[i] = new RepairLog();
+            // The generated messages carry mocks that can't be serialized, keep them all on the heap
+            logs[i] = new RepairLog(Integer.MAX_VALUE);
             stops[i] = false;
             finalStreams.put((long)i, new ArrayList<TransactionInfoBaseMessage>());
         }
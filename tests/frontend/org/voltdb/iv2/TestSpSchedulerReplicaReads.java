@@ -0,0 +1,128 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import junit.framework.TestCase;
+
+import org.voltcore.messaging.HostMessenger;
+import org.voltcore.messaging.Mailbox;
+import org.voltcore.utils.CoreUtils;
+import org.voltdb.DummyCommandLog;
+import org.voltdb.ParameterSet;
+import org.voltdb.SnapshotCompletionMonitor;
+import org.voltdb.StarvationTracker;
+import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+
+public class TestSpSchedulerReplicaReads extends TestCase
+{
+    static final long dut_hsid = CoreUtils.getHSIdFromHostAndSite(1, 1);
+    static final long leader_hsid = CoreUtils.getHSIdFromHostAndSite(2, 1);
+    // reads spread to replicas may come from the ClientInterface of another host
+    static final long remote_ci_hsid = CoreUtils.getHSIdFromHostAndSite(3, HostMessenger.CLIENT_INTERFACE_SITE_ID);
+
+    SiteTaskerQueue queue;
+    SpScheduler dut;
+
+    @Override
+    public void setUp()
+    {
+        Mailbox mbox = mock(Mailbox.class);
+        when(mbox.getHSId()).thenReturn(dut_hsid);
+        queue = new SiteTaskerQueue();
+        queue.setStarvationTracker(new StarvationTracker(0));
+        dut = new SpScheduler(0, queue, mock(SnapshotCompletionMonitor.class));
+        dut.setMailbox(mbox);
+        dut.setCommandLog(new DummyCommandLog());
+        dut.setLock(mbox);
+    }
+
+    private Iv2InitiateTaskMessage createMsg(long initiatorHSId, long spHandle, boolean readOnly)
+    {
+        StoredProcedureInvocation spi = mock(StoredProcedureInvocation.class);
+        when(spi.getProcName()).thenReturn("MOCKSP");
+        when(spi.getParams()).thenReturn(mock(ParameterSet.class));
+        Iv2InitiateTaskMessage task =
+            new Iv2InitiateTaskMessage(initiatorHSId,
+                                       Long.MIN_VALUE,
+                                       Long.MIN_VALUE,
+                                       spHandle,
+                                       System.currentTimeMillis(),
+                                       readOnly,
+                                       true,
+                                       spi,
+                                       Long.MAX_VALUE,
+                                       Long.MAX_VALUE,
+                                       false);
+        task.setSpHandle(spHandle);
+        return task;
+    }
+
+    private TransactionTask pollTask()
+    {
+        return (TransactionTask)queue.poll();
+    }
+
+    public void testReadWaitsForWrite()
+    {
+        long write = TxnEgo.makeZero(0).makeNext().getTxnId();
+
+        dut.deliver(createMsg(remote_ci_hsid, write, true));
+        assertNull(queue.poll());
+
+        // the leader replicates the write the read has to see
+        dut.deliver(createMsg(leader_hsid, write, false));
+        TransactionTask first = pollTask();
+        TransactionTask second = pollTask();
+        assertFalse(first.getTransactionState().isReadOnly());
+        assertTrue(second.getTransactionState().isReadOnly());
+        assertNull(queue.poll());
+    }
+
+    public void testReadRunsWhenCaughtUp()
+    {
+        long write = TxnEgo.makeZero(0).makeNext().getTxnId();
+        dut.deliver(createMsg(leader_hsid, write, false));
+        assertFalse(pollTask().getTransactionState().isReadOnly());
+
+        dut.deliver(createMsg(remote_ci_hsid, write, true));
+        assertTrue(pollTask().getTransactionState().isReadOnly());
+        dut.deliver(createMsg(remote_ci_hsid, 0, true));
+        assertTrue(pollTask().getTransactionState().isReadOnly());
+    }
+
+    public void testPromotionReleasesReads()
+    {
+        long write = TxnEgo.makeZero(0).makeNext().getTxnId();
+        dut.deliver(createMsg(remote_ci_hsid, write, true));
+        assertNull(queue.poll());
+
+        // a new leader has every write there is, the read can go
+        dut.setLeaderState(true);
+        assertTrue(pollTask().getTransactionState().isReadOnly());
+    }
+}
@@ -52,12 +52,20 @@ public class TestTransactionTaskQueue extends TestCase
 
     private SpProcedureTask createSpProc(long localTxnId,
                                          TransactionTaskQueue queue)
+    {
+        return createSpProc(localTxnId, queue, false);
+    }
+
+    private SpProcedureTask createSpProc(long localTxnId,
+                                         TransactionTaskQueue queue,
+                                         boolean readOnly)
     {
         // Mock an initiate message; override its txnid to return
         // the default SP value (usually set by ClientInterface).
         Iv2InitiateTaskMessage init = mock(Iv2InitiateTaskMessage.class);
         when(init.getTxnId()).thenReturn(Iv2InitiateTaskMessage.UNUSED_MP_TXNID);
         when(init.getSpHandle()).thenReturn(localTxnId);
+        when(init.isReadOnly()).thenReturn(readOnly);
 
         InitiatorMailbox mbox = mock(InitiatorMailbox.class);
         when(mbox.getHSId()).thenReturn(1337l);
@@ -69,16 +77,18 @@ public class TestTransactionTaskQueue extends TestCase
 
     private FragmentTask createFrag(long localTxnId, long mpTxnId,
             TransactionTaskQueue queue) {
-        return createFrag(localTxnId, mpTxnId, queue, false);
+        return createFrag(localTxnId, mpTxnId, queue, false, false);
     }
     // Create the first fragment of a MP txn
     private FragmentTask createFrag(long localTxnId, long mpTxnId,
                                     TransactionTaskQueue queue,
-                                    boolean forReplay)
+                                    boolean forReplay,
+                                    boolean readOnly)
     {
         FragmentTaskMessage msg = mock(FragmentTaskMessage.class);
         when(msg.getTxnId()).thenReturn(mpTxnId);
         when(msg.isForReplay()).thenReturn(forReplay);
+        when(msg.isReadOnly()).thenReturn(readOnly);
         InitiatorMailbox mbox = mock(InitiatorMailbox.class);
         when(mbox.getHSId()).thenReturn(1337l);
         ParticipantTransactionState pft =
@@ -196,4 +206,59 @@ public class TestTransactionTaskQueue extends TestCase
             assertEquals(expected.getTxnId(), next_poll.getTxnId());
         }
     }
+
+    @Test
+    public void testSpReadsPassMpRead() throws InterruptedException
+    {
+        long localTxnId = 0;
+        long mpTxnId = 0;
+        SiteTaskerQueue task_queue = getSiteTaskerQueue();
+        TransactionTaskQueue dut = new TransactionTaskQueue(task_queue,localTxnId);
+        Deque<TransactionTask> expected_order =
+            new ArrayDeque<TransactionTask>();
+
+        // An MP read blocks the queue
+        TransactionTask block = createFrag(localTxnId++, mpTxnId++, dut, false, true);
+        addTask(block, dut, expected_order);
+        assertEquals(1, dut.size());
+
+        // SP reads run between its fragments
+        TransactionTask next = createSpProc(localTxnId++, dut, true);
+        addTask(next, dut, expected_order);
+        next = createSpProc(localTxnId++, dut, true);
+        addTask(next, dut, expected_order);
+        assertEquals(1, dut.size());
+        assertEquals(2, dut.getReadsPassed()[0]);
+
+        // An SP write waits, and later reads don't pass it
+        ArrayDeque<TransactionTask> blocked = new ArrayDeque<TransactionTask>();
+        next = createSpProc(localTxnId++, dut, false);
+        addTask(next, dut, blocked);
+        next = createSpProc(localTxnId++, dut, true);
+        addTask(next, dut, blocked);
+        assertEquals(blocked.size() + 1, dut.size());
+        assertEquals(2, dut.getReadsPassed()[0]);
+
+        block.getTransactionState().setDone();
+        int offered = dut.flush(block.getTxnId());
+        assertEquals(blocked.size(), offered);
+        assertEquals(0, dut.size());
+        expected_order.addAll(blocked);
+
+        // An MP write is never passed
+        block = createFrag(localTxnId++, mpTxnId++, dut, false, false);
+        addTask(block, dut, expected_order);
+        next = createSpProc(localTxnId++, dut, true);
+        addTask(next, dut, null);
+        assertEquals(2, dut.size());
+        assertEquals(2, dut.getReadsPassed()[0]);
+
+        while (!expected_order.isEmpty())
+        {
+            TransactionTask next_poll = (TransactionTask)task_queue.take();
+            TransactionTask expected = expected_order.removeFirst();
+            assertEquals(expected.getSpHandle(), next_poll.getSpHandle());
+            assertEquals(expected.getTxnId(), next_poll.getTxnId());
+        }
+    }
 }
@@ -0,0 +1,172 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+import org.voltdb.iv2.TxnTracer.Event;
+
+public class TestTxnTraceBuffer extends TestCase
+{
+    public void testCapacityRoundsUpToPowerOfTwo()
+    {
+        assertEquals(8, new TxnTraceBuffer(0, 8).getCapacity());
+        assertEquals(16, new TxnTraceBuffer(0, 9).getCapacity());
+        assertEquals(1, new TxnTraceBuffer(0, 1).getCapacity());
+    }
+
+    public void testSnapshotIsOldestFirst()
+    {
+        TxnTraceBuffer buffer = new TxnTraceBuffer(3, 8);
+        buffer.record(100, Event.CREATE, 1);
+        buffer.record(100, Event.SCHEDULE, 2);
+        buffer.record(100, Event.RESPONSE, 3);
+
+        List<TxnTraceBuffer.Entry> entries = buffer.snapshot(-1);
+        assertEquals(3, entries.size());
+        assertEquals(Event.CREATE, entries.get(0).event);
+        assertEquals(Event.SCHEDULE, entries.get(1).event);
+        assertEquals(Event.RESPONSE, entries.get(2).event);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(100, entries.get(i).ciHandle);
+            assertEquals(i + 1, entries.get(i).nanos);
+        }
+    }
+
+    public void testOverwritesOldest()
+    {
+        TxnTraceBuffer buffer = new TxnTraceBuffer(0, 4);
+        for (int i = 0; i < 10; i++) {
+            buffer.record(i, Event.TASK_START, i);
+        }
+        List<TxnTraceBuffer.Entry> entries = buffer.snapshot(-1);
+        assertEquals(4, entries.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(6 + i, entries.get(i).ciHandle);
+        }
+    }
+
+    public void testSnapshotAfterSeq()
+    {
+        TxnTraceBuffer buffer = new TxnTraceBuffer(0, 16);
+        for (int i = 0; i < 5; i++) {
+            buffer.record(i, Event.EE_START, i);
+        }
+        List<TxnTraceBuffer.Entry> first = buffer.snapshot(-1);
+        long last = first.get(first.size() - 1).seq;
+        assertTrue(buffer.snapshot(last).isEmpty());
+
+        buffer.record(42, Event.EE_END, 42);
+        List<TxnTraceBuffer.Entry> next = buffer.snapshot(last);
+        assertEquals(1, next.size());
+        assertEquals(42, next.get(0).ciHandle);
+    }
+
+    public void testSamplingIsDeterministic()
+    {
+        assertFalse(TxnTracer.isSampled(12345, 0));
+        int sampled = 0;
+        for (long handle = 0; handle < 10000; handle++) {
+            boolean decision = TxnTracer.isSampled(handle, 10);
+            assertEquals(decision, TxnTracer.isSampled(handle, 10));
+            assertTrue(TxnTracer.isSampled(handle, 1));
+            if (decision) {
+                sampled++;
+            }
+        }
+        // roughly one in ten
+        assertTrue(sampled > 800 && sampled < 1200);
+    }
+
+    /*
+     * Replicas of one partition on the same host must not share a buffer,
+     * otherwise every traced txn is reported once per replica.
+     */
+    public void testReplicasOfAPartitionKeepSeparateBuffers()
+    {
+        final long hsIdA = 0x7000000100000001L;
+        final long hsIdB = 0x7000000100000002L;
+        TxnTraceBuffer a = TxnTracer.getSiteBuffer(hsIdA, 5);
+        TxnTraceBuffer b = TxnTracer.getSiteBuffer(hsIdB, 5);
+        assertNotSame(a, b);
+        assertSame(a, TxnTracer.getSiteBuffer(hsIdA, 5));
+        assertNotSame(a, TxnTracer.getClientBuffer(5));
+        assertEquals(5, a.getPartitionId());
+        assertEquals(5, b.getPartitionId());
+
+        TxnTracer.recordTraced(hsIdA, 5, 4242, Event.TASK_START);
+        TxnTracer.recordTraced(hsIdB, 5, 4242, Event.TASK_START);
+        assertEquals(1, a.snapshot(-1).size());
+        assertEquals(1, b.snapshot(-1).size());
+
+        // untraced txns are never recorded
+        TxnTracer.recordTraced(hsIdA, 5, TxnTracer.NOT_TRACED, Event.TASK_END);
+        assertEquals(1, a.snapshot(-1).size());
+    }
+
+    /*
+     * Several threads record while a reader keeps taking snapshots. Every
+     * entry a snapshot returns must be one that was actually recorded, which
+     * the writers make checkable by recording nanos == ciHandle * 2.
+     */
+    public void testConcurrentWritersNeverTearEntries() throws Exception
+    {
+        final TxnTraceBuffer buffer = new TxnTraceBuffer(0, 64);
+        final int writers = 4;
+        final int perWriter = 200000;
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(writers);
+        for (int w = 0; w < writers; w++) {
+            final long base = (long)w * perWriter;
+            new Thread() {
+                @Override
+                public void run()
+                {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (long i = base; i < base + perWriter; i++) {
+                        buffer.record(i, Event.values()[(int)(i % Event.values().length)], i * 2);
+                    }
+                    done.countDown();
+                }
+            }.start();
+        }
+
+        start.countDown();
+        while (done.getCount() > 0) {
+            for (TxnTraceBuffer.Entry e : buffer.snapshot(-1)) {
+                assertEquals(e.ciHandle * 2, e.nanos);
+                assertEquals(Event.values()[(int)(e.ciHandle % Event.values().length)], e.event);
+            }
+        }
+        assertEquals((long)writers * perWriter, buffer.getNextSeq());
+        assertTrue(buffer.snapshot(-1).size() <= buffer.getCapacity());
+    }
+}
@@ -25,6 +25,12 @@ package org.voltdb.planner;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import junit.framework.TestCase;
 
@@ -163,4 +169,68 @@ public class TestPlannerTool extends TestCase {
         // would return a Stream Closed error
         m_pt.planSqlForTest("select * from A;");
     }
+
+    private static String planToString(CompiledPlan plan)
+    {
+        String result = plan.rootPlanGraph.toJSONString();
+        if (plan.subPlanGraph != null) {
+            result += plan.subPlanGraph.toJSONString();
+        }
+        return result;
+    }
+
+    /**
+     * Statements planned at the same time on different threads must come
+     * out exactly as if they were planned one after another.
+     */
+    public void testConcurrentPlanning() throws Exception
+    {
+        TPCCProjectBuilder builder = new TPCCProjectBuilder();
+        builder.addAllDefaults();
+        final File jar = new File("tpcc-concurrent-oop.jar");
+        jar.deleteOnExit();
+        builder.compile("tpcc-concurrent-oop.jar");
+        byte[] bytes = MiscUtils.fileToBytes(jar);
+        String serializedCatalog = CatalogUtil.getSerializedCatalogStringFromJar(CatalogUtil.loadAndUpgradeCatalogFromJar(bytes).getFirst());
+        Catalog catalog = new Catalog();
+        catalog.execute(serializedCatalog);
+        CatalogContext context = new CatalogContext(0, 0, catalog, bytes, new byte[] {}, 0);
+
+        final int threads = 4;
+        m_pt = new PlannerTool(context.cluster, context.database, context.getCatalogHash(), threads);
+
+        final String[] queries = new String[] {
+            "select * from warehouse where w_id = 1;",
+            "select d_id, count(*) from district group by d_id order by d_id;",
+            "select i_name from item where i_id in (select i_id from item where i_price > 10);",
+            "select * from stock, item where s_i_id = i_id and s_w_id = 3 order by i_price limit 10;",
+            "select o_id, sum(ol_amount) from orders, order_line where o_w_id = ol_w_id and o_id = ol_o_id group by o_id;",
+        };
+        final List<String> expected = new ArrayList<String>();
+        for (String sql : queries) {
+            expected.add(planToString(m_pt.planSqlCore(sql, StatementPartitioning.inferPartitioning())));
+        }
+        assertEquals(1, m_pt.getHsqlCount());
+
+        ExecutorService es = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i = 0; i < 50; i++) {
+                final String sql = queries[i % queries.length];
+                results.add(es.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return planToString(m_pt.planSqlCore(sql, StatementPartitioning.inferPartitioning()));
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(expected.get(i % queries.length), results.get(i).get());
+            }
+        }
+        finally {
+            es.shutdown();
+        }
+        assertTrue(m_pt.getHsqlCount() <= threads);
+    }
 }
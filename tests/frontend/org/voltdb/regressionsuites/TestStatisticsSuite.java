@@ -284,7 +284,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         System.out.println("\n\nTESTING INITIATOR STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[13];
+        ColumnInfo[] expectedSchema = new ColumnInfo[14];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -298,6 +298,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         expectedSchema[10] = new ColumnInfo("MAX_EXECUTION_TIME", VoltType.INTEGER);
         expectedSchema[11] = new ColumnInfo("ABORTS", VoltType.BIGINT);
         expectedSchema[12] = new ColumnInfo("FAILURES", VoltType.BIGINT);
+        expectedSchema[13] = new ColumnInfo("REPLICA_READS", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         //
@@ -362,7 +363,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         System.out.println("\n\nTESTING TABLE STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[13];
+        ColumnInfo[] expectedSchema = new ColumnInfo[16];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -376,6 +377,9 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         expectedSchema[10] = new ColumnInfo("STRING_DATA_MEMORY", VoltType.INTEGER);
         expectedSchema[11] = new ColumnInfo("TUPLE_LIMIT", VoltType.INTEGER);
         expectedSchema[12] = new ColumnInfo("PERCENT_FULL", VoltType.INTEGER);
+        expectedSchema[13] = new ColumnInfo("MINMAX_FALLBACK_SCANS", VoltType.BIGINT);
+        expectedSchema[14] = new ColumnInfo("MINMAX_FALLBACK_TUPLES", VoltType.BIGINT);
+        expectedSchema[15] = new ColumnInfo("MINMAX_TRACKING_MEMORY", VoltType.INTEGER);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -413,7 +417,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         System.out.println("\n\nTESTING INDEX STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[12];
+        ColumnInfo[] expectedSchema = new ColumnInfo[14];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -426,6 +430,8 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         expectedSchema[9] = new ColumnInfo("IS_COUNTABLE", VoltType.TINYINT);
         expectedSchema[10] = new ColumnInfo("ENTRY_COUNT", VoltType.BIGINT);
         expectedSchema[11] = new ColumnInfo("MEMORY_ESTIMATE", VoltType.INTEGER);
+        expectedSchema[12] = new ColumnInfo("LOAD_FACTOR", VoltType.FLOAT);
+        expectedSchema[13] = new ColumnInfo("AVG_PROBE_LENGTH", VoltType.FLOAT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -527,7 +533,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         System.out.println("\n\nTESTING PROCEDURE STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[19];
+        ColumnInfo[] expectedSchema = new ColumnInfo[21];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -547,6 +553,8 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         expectedSchema[16] = new ColumnInfo("AVG_PARAMETER_SET_SIZE", VoltType.INTEGER);
         expectedSchema[17] = new ColumnInfo("ABORTS", VoltType.BIGINT);
         expectedSchema[18] = new ColumnInfo("FAILURES", VoltType.BIGINT);
+        expectedSchema[19] = new ColumnInfo("CACHE_HITS", VoltType.BIGINT);
+        expectedSchema[20] = new ColumnInfo("CACHE_MISSES", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -682,7 +690,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         // Based on doc, not code
         // HOST_ID, SITE_ID, and PARTITION_ID all differ.  Fixed to match
         // reality so tests would pass, but, ugh.
-        ColumnInfo[] expectedSchema = new ColumnInfo[9];
+        ColumnInfo[] expectedSchema = new ColumnInfo[12];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -692,6 +700,9 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         expectedSchema[6] = new ColumnInfo("MESSAGES_READ", VoltType.BIGINT);
         expectedSchema[7] = new ColumnInfo("BYTES_WRITTEN", VoltType.BIGINT);
         expectedSchema[8] = new ColumnInfo("MESSAGES_WRITTEN", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("WRITE_CALLS", VoltType.BIGINT);
+        expectedSchema[10] = new ColumnInfo("WRITE_CALLS_PER_MESSAGE", VoltType.FLOAT);
+        expectedSchema[11] = new ColumnInfo("BYTES_PER_WRITE", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -754,7 +765,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         System.out.println("\n\nTESTING PLANNER STATS\n\n\n");
         Client client  = getClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[14];
+        ColumnInfo[] expectedSchema = new ColumnInfo[18];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -769,6 +780,10 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         expectedSchema[11] = new ColumnInfo("PLAN_TIME_MAX", VoltType.BIGINT);
         expectedSchema[12] = new ColumnInfo("PLAN_TIME_AVG", VoltType.BIGINT);
         expectedSchema[13] = new ColumnInfo("FAILURES", VoltType.BIGINT);
+        expectedSchema[14] = new ColumnInfo("PLAN_TIME_P50", VoltType.BIGINT);
+        expectedSchema[15] = new ColumnInfo("PLAN_TIME_P95", VoltType.BIGINT);
+        expectedSchema[16] = new ColumnInfo("PLAN_TIME_P99", VoltType.BIGINT);
+        expectedSchema[17] = new ColumnInfo("QUEUE_DEPTH", VoltType.INTEGER);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -820,6 +835,15 @@ public class TestStatisticsSuite extends SaveRestoreBase {
             plan_time_avg_tot += (Long)stats.get("PLAN_TIME_AVG", VoltType.BIGINT);
             failures += (Integer)stats.get("FAILURES", VoltType.INTEGER);
             siteIds.add((Long)stats.get("SITE_ID", VoltType.BIGINT));
+
+            long p50 = stats.getLong("PLAN_TIME_P50");
+            long p95 = stats.getLong("PLAN_TIME_P95");
+            long p99 = stats.getLong("PLAN_TIME_P99");
+            assertTrue("Failed PLAN_TIME_P50 >= 0, value was: " + p50, p50 >= 0);
+            assertTrue("Failed PLAN_TIME_P50 <= PLAN_TIME_P95, values were: " + p50 + ", " + p95, p50 <= p95);
+            assertTrue("Failed PLAN_TIME_P95 <= PLAN_TIME_P99, values were: " + p95 + ", " + p99, p95 <= p99);
+            long queueDepth = stats.getLong("QUEUE_DEPTH");
+            assertTrue("Failed QUEUE_DEPTH >= 0, value was: " + queueDepth, queueDepth >= 0);
         }
 
         // Check for reasonable results
@@ -1030,7 +1054,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         System.out.println("\n\nTESTING STARVATION STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[10];
+        ColumnInfo[] expectedSchema = new ColumnInfo[13];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -1041,6 +1065,9 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         expectedSchema[7] = new ColumnInfo("MIN", VoltType.BIGINT);
         expectedSchema[8] = new ColumnInfo("MAX", VoltType.BIGINT);
         expectedSchema[9] = new ColumnInfo("STDDEV", VoltType.BIGINT);
+        expectedSchema[10] = new ColumnInfo("SPIN_TIME", VoltType.BIGINT);
+        expectedSchema[11] = new ColumnInfo("YIELD_TIME", VoltType.BIGINT);
+        expectedSchema[12] = new ColumnInfo("PARK_TIME", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -1222,7 +1249,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
 
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[8];
+        ColumnInfo[] expectedSchema = new ColumnInfo[13];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -1231,6 +1258,11 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         expectedSchema[5] = new ColumnInfo(CommandLogStats.StatName.IN_USE_SEGMENT_COUNT.name(), VoltType.INTEGER);
         expectedSchema[6] = new ColumnInfo(CommandLogStats.StatName.SEGMENT_COUNT.name(), VoltType.INTEGER);
         expectedSchema[7] = new ColumnInfo(CommandLogStats.StatName.FSYNC_INTERVAL.name(), VoltType.INTEGER);
+        expectedSchema[8] = new ColumnInfo(CommandLogStats.StatName.LOGGED_TXNS.name(), VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo(CommandLogStats.StatName.TXNS_PER_SEC.name(), VoltType.BIGINT);
+        expectedSchema[10] = new ColumnInfo(CommandLogStats.StatName.BYTES_PER_SEC.name(), VoltType.BIGINT);
+        expectedSchema[11] = new ColumnInfo(CommandLogStats.StatName.AVG_FSYNC_LATENCY.name(), VoltType.INTEGER);
+        expectedSchema[12] = new ColumnInfo(CommandLogStats.StatName.MAX_FSYNC_LATENCY.name(), VoltType.INTEGER);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -0,0 +1,106 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.sysprocs.saverestore;
+
+import junit.framework.TestCase;
+
+import org.json_voltpatches.JSONObject;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.benchmark.tpcc.TPCCProjectBuilder;
+import org.voltdb.catalog.Catalog;
+import org.voltdb.catalog.Database;
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.expressions.ComparisonExpression;
+import org.voltdb.expressions.ConstantValueExpression;
+import org.voltdb.expressions.TupleValueExpression;
+import org.voltdb.types.ExpressionType;
+
+public class TestCSVSnapshotRequestConfig extends TestCase {
+
+    private Database m_db;
+
+    @Override
+    public void setUp() throws Exception {
+        Catalog catalog = TPCCProjectBuilder.getTPCCSchemaCatalog();
+        m_db = catalog.getClusters().get("cluster").getDatabases().get("database");
+    }
+
+    private CSVSnapshotRequestConfig config(String json) throws Exception {
+        return new CSVSnapshotRequestConfig(new JSONObject(json), m_db);
+    }
+
+    public void testColumnsAndPredicates() throws Exception {
+        CSVSnapshotRequestConfig config = config(
+                "{\"tableNames\":[\"WAREHOUSE\"]," +
+                " \"columns\":{\"warehouse\":[\"W_NAME\",\"W_ID\"]}," +
+                " \"predicates\":{\"WAREHOUSE\":[{\"column\":\"W_ID\",\"op\":\">=\",\"value\":3}," +
+                "                                {\"column\":\"W_STATE\",\"op\":\"=\",\"value\":\"MA\"}]}}");
+        assertEquals(1, config.tables.length);
+        int[] projection = config.projections.get("WAREHOUSE");
+        assertEquals(2, projection.length);
+        assertEquals(1, projection[0]);
+        assertEquals(0, projection[1]);
+
+        VoltTable schema = CSVSnapshotWritePlan.getProjectedVoltTable(config.tables[0], projection);
+        assertEquals(2, schema.getColumnCount());
+        assertEquals("W_NAME", schema.getColumnName(0));
+        assertEquals(VoltType.SMALLINT, schema.getColumnType(1));
+
+        AbstractExpression predicate = config.predicates.get("WAREHOUSE");
+        assertEquals(ExpressionType.CONJUNCTION_AND, predicate.getExpressionType());
+        ComparisonExpression first = (ComparisonExpression) predicate.getLeft();
+        assertEquals(ExpressionType.COMPARE_GREATERTHANOREQUALTO, first.getExpressionType());
+        assertEquals(0, ((TupleValueExpression) first.getLeft()).getColumnIndex());
+        assertEquals("3", ((ConstantValueExpression) first.getRight()).getValue());
+        assertEquals(VoltType.SMALLINT, first.getRight().getValueType());
+        ComparisonExpression second = (ComparisonExpression) predicate.getRight();
+        assertEquals(5, ((TupleValueExpression) second.getLeft()).getColumnIndex());
+        assertEquals("MA", ((ConstantValueExpression) second.getRight()).getValue());
+
+        // no options keeps the full snapshot
+        config = config("{}");
+        assertEquals(0, config.tables.length);
+        assertTrue(config.projections.isEmpty());
+        assertTrue(config.predicates.isEmpty());
+    }
+
+    public void testInvalidOptions() throws Exception {
+        String[] invalid = {
+                "{\"columns\":{\"NO_SUCH_TABLE\":[\"A\"]}}",
+                "{\"columns\":{\"WAREHOUSE\":[\"NO_SUCH_COLUMN\"]}}",
+                "{\"predicates\":{\"WAREHOUSE\":[{\"column\":\"W_ID\",\"op\":\"LIKE\",\"value\":1}]}}",
+                "{\"predicates\":{\"WAREHOUSE\":[{\"column\":\"W_ID\",\"op\":\"=\",\"value\":\"abc\"}]}}",
+                "{\"predicates\":{\"WAREHOUSE\":[{\"column\":\"W_ID\",\"op\":\"=\",\"value\":null}]}}",
+                "{\"predicates\":{\"WAREHOUSE\":[{\"op\":\"=\",\"value\":1}]}}"
+        };
+        for (String json : invalid) {
+            try {
+                config(json);
+                fail(json);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.sysprocs.saverestore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltdb.DevNullSnapshotTarget;
+import org.voltdb.SnapshotDataTarget;
+import org.voltdb.sysprocs.saverestore.IncrementalSnapshotChain.BlockTracking;
+import org.voltdb.sysprocs.saverestore.IncrementalSnapshotChain.Plan;
+import org.voltdb.utils.VoltFile;
+
+public class TestIncrementalSnapshotChain extends TestCase {
+
+    private static final int HOST_ID = 0;
+    private static final List<Integer> PARTITIONS = Arrays.asList(0, 1);
+
+    private File m_dir;
+    private int m_nextNonce = 0;
+
+    @Override
+    public void setUp() throws Exception {
+        m_dir = File.createTempFile("incremental", "");
+        m_dir.delete();
+        m_dir.mkdir();
+        IncrementalSnapshotChain.reset();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        IncrementalSnapshotChain.reset();
+        VoltFile.recursivelyDelete(m_dir);
+    }
+
+    /**
+     * Plan a snapshot and write the files the checks of the next one look for.
+     */
+    private Plan snapshot(BlockTracking requested, long catalogCRC, List<Integer> partitions,
+                          List<SnapshotDataTarget> targets, boolean complete) throws IOException {
+        String nonce = "n" + m_nextNonce++;
+        Plan plan = IncrementalSnapshotChain.plan(requested, m_dir.getPath(), nonce, HOST_ID,
+                                                  catalogCRC, partitions, targets);
+        new File(m_dir, SnapshotUtil.constructDigestFilenameForNonce(nonce, HOST_ID)).createNewFile();
+        if (complete) {
+            new File(m_dir, SnapshotUtil.constructCompletionFilenameForNonce(nonce, HOST_ID)).createNewFile();
+        }
+        return plan;
+    }
+
+    private Plan snapshot(BlockTracking requested) throws IOException {
+        return snapshot(requested, 1, PARTITIONS, new ArrayList<SnapshotDataTarget>(), true);
+    }
+
+    public void testParseRequest() throws Exception {
+        assertEquals(BlockTracking.NONE, IncrementalSnapshotChain.parseRequest(null));
+        assertEquals(BlockTracking.NONE, IncrementalSnapshotChain.parseRequest(new JSONObject("{}")));
+        assertEquals(BlockTracking.NONE,
+                     IncrementalSnapshotChain.parseRequest(new JSONObject("{\"incremental\":false}")));
+        assertEquals(BlockTracking.DELTA,
+                     IncrementalSnapshotChain.parseRequest(new JSONObject("{\"incremental\":true}")));
+        assertEquals(BlockTracking.DELTA,
+                     IncrementalSnapshotChain.parseRequest(new JSONObject("{\"incremental\":\"delta\"}")));
+        assertEquals(BlockTracking.FULL,
+                     IncrementalSnapshotChain.parseRequest(new JSONObject("{\"incremental\":\"FULL\"}")));
+        try {
+            IncrementalSnapshotChain.parseRequest(new JSONObject("{\"incremental\":\"sometimes\"}"));
+            fail();
+        } catch (IllegalArgumentException expected) {}
+    }
+
+    public void testChainGrowsAndRebases() throws Exception {
+        Plan plan = snapshot(BlockTracking.DELTA);
+        assertEquals(BlockTracking.FULL, plan.mode);
+        assertTrue(plan.chain.isEmpty());
+
+        for (int ii = 1; ii <= IncrementalSnapshotChain.MAX_DELTAS; ii++) {
+            plan = snapshot(BlockTracking.DELTA);
+            assertEquals(BlockTracking.DELTA, plan.mode);
+            assertEquals(ii, plan.chain.size());
+            assertEquals("n0", plan.chain.get(0).nonce);
+            assertEquals("n" + (ii - 1), plan.chain.get(ii - 1).nonce);
+        }
+
+        plan = snapshot(BlockTracking.DELTA);
+        assertEquals(BlockTracking.FULL, plan.mode);
+        plan = snapshot(BlockTracking.DELTA);
+        assertEquals(BlockTracking.DELTA, plan.mode);
+        assertEquals(1, plan.chain.size());
+
+        plan = snapshot(BlockTracking.FULL);
+        assertEquals(BlockTracking.FULL, plan.mode);
+        assertEquals(BlockTracking.FULL, plan.requested);
+    }
+
+    public void testRebaseWhenTheChainBreaks() throws Exception {
+        snapshot(BlockTracking.DELTA);
+        assertEquals(BlockTracking.DELTA, snapshot(BlockTracking.DELTA).mode);
+
+        // Catalog and topology changes
+        assertEquals(BlockTracking.FULL, snapshot(BlockTracking.DELTA, 2, PARTITIONS,
+                                                  new ArrayList<SnapshotDataTarget>(), true).mode);
+        assertEquals(BlockTracking.FULL, snapshot(BlockTracking.DELTA, 2, Arrays.asList(0),
+                                                  new ArrayList<SnapshotDataTarget>(), true).mode);
+        assertEquals(BlockTracking.DELTA, snapshot(BlockTracking.DELTA, 2, Arrays.asList(0),
+                                                   new ArrayList<SnapshotDataTarget>(), true).mode);
+
+        // The previous snapshot did not complete, or failed to write
+        snapshot(BlockTracking.DELTA, 2, Arrays.asList(0), new ArrayList<SnapshotDataTarget>(), false);
+        assertEquals(BlockTracking.FULL, snapshot(BlockTracking.DELTA, 2, Arrays.asList(0),
+                                                  new ArrayList<SnapshotDataTarget>(), true).mode);
+        List<SnapshotDataTarget> failed = new ArrayList<SnapshotDataTarget>();
+        snapshot(BlockTracking.DELTA, 2, Arrays.asList(0), failed, true);
+        failed.add(new DevNullSnapshotTarget() {
+            @Override
+            public Throwable getLastWriteException() {
+                return new IOException("Disk full");
+            }
+        });
+        assertEquals(BlockTracking.FULL, snapshot(BlockTracking.DELTA, 2, Arrays.asList(0),
+                                                  new ArrayList<SnapshotDataTarget>(), true).mode);
+
+        // A snapshot of the chain was deleted
+        Plan plan = snapshot(BlockTracking.DELTA, 2, Arrays.asList(0), new ArrayList<SnapshotDataTarget>(), true);
+        assertEquals(BlockTracking.DELTA, plan.mode);
+        String base = plan.chain.get(0).nonce;
+        new File(m_dir, SnapshotUtil.constructDigestFilenameForNonce(base, HOST_ID)).delete();
+        assertEquals(BlockTracking.FULL, snapshot(BlockTracking.DELTA, 2, Arrays.asList(0),
+                                                  new ArrayList<SnapshotDataTarget>(), true).mode);
+    }
+
+    public void testDigest() throws Exception {
+        snapshot(BlockTracking.DELTA);
+        Plan plan = snapshot(BlockTracking.DELTA);
+
+        JSONStringer stringer = new JSONStringer();
+        stringer.object();
+        stringer.key(IncrementalSnapshotChain.JSON_INCREMENTAL);
+        plan.toJSONString(stringer);
+        stringer.endObject();
+        JSONObject digest = new JSONObject(stringer.toString());
+
+        assertEquals(BlockTracking.DELTA,
+                     IncrementalSnapshotChain.getMode(digest, IncrementalSnapshotChain.JSON_MODE));
+        assertEquals(BlockTracking.DELTA,
+                     IncrementalSnapshotChain.getMode(digest, IncrementalSnapshotChain.JSON_REQUESTED));
+        List<IncrementalSnapshotChain.Link> chain = IncrementalSnapshotChain.getChain(digest);
+        assertEquals(1, chain.size());
+        assertEquals("n0", chain.get(0).nonce);
+        assertEquals(m_dir.getPath(), chain.get(0).path);
+        assertNull(IncrementalSnapshotChain.findMissingLink(chain));
+
+        new File(m_dir, SnapshotUtil.constructDigestFilenameForNonce("n0", HOST_ID)).delete();
+        assertEquals("n0", IncrementalSnapshotChain.findMissingLink(chain).nonce);
+        assertEquals(BlockTracking.NONE, IncrementalSnapshotChain.getMode(new JSONObject("{}"),
+                                                                          IncrementalSnapshotChain.JSON_MODE));
+    }
+}
@@ -0,0 +1,259 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.sysprocs.saverestore;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop_voltpatches.util.PureJavaCrc32;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.DefaultSnapshotDataTarget;
+import org.voltdb.EELibraryLoader;
+import org.voltdb.PrivateVoltTableFactory;
+import org.voltdb.SnapshotSiteProcessor;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.sysprocs.saverestore.IncrementalSnapshotChain.BlockTracking;
+import org.voltdb.utils.VoltFile;
+
+import com.google_voltpatches.common.util.concurrent.Callables;
+
+public class TestIncrementalSnapshotConsolidation extends TestCase {
+
+    private static final VoltLogger LOG = new VoltLogger("SNAPSHOT");
+    private static final String TABLE = "T";
+
+    private File m_dir;
+
+    @Override
+    public void setUp() throws Exception {
+        EELibraryLoader.loadExecutionEngineLibrary(true);
+        m_dir = File.createTempFile("consolidation", "");
+        m_dir.delete();
+        m_dir.mkdir();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        VoltFile.recursivelyDelete(m_dir);
+    }
+
+    private static VoltTable schema() {
+        return new VoltTable(new VoltTable.ColumnInfo(IncrementalSnapshotChain.BLOCK_ID_COLUMN, VoltType.BIGINT),
+                             new VoltTable.ColumnInfo("A", VoltType.INTEGER));
+    }
+
+    private File tableFile(String nonce, int hostId) {
+        return new File(m_dir, nonce + "-" + TABLE + "-host_" + hostId + ".vpt");
+    }
+
+    /**
+     * Write the table file of a host, one chunk per partition. Each row is a pair of
+     * block id and value, a carried block is a placeholder row with the block id -(id)-1.
+     */
+    private void writeTable(String nonce, int hostId, long[][]... partitions) throws Exception {
+        List<Integer> partitionIds = new ArrayList<Integer>();
+        for (int ii = 0; ii < partitions.length; ii++) {
+            partitionIds.add(ii);
+        }
+        DefaultSnapshotDataTarget target = new DefaultSnapshotDataTarget(tableFile(nonce, hostId),
+                hostId, "cluster", "database", TABLE, partitions.length, false,
+                partitionIds, schema(), 1, 1);
+        for (int ii = 0; ii < partitions.length; ii++) {
+            BBContainer chunk = DBBPool.allocateDirectAndPool(SnapshotSiteProcessor.m_snapshotBufferLength);
+            ByteBuffer b = chunk.b();
+            b.clear();
+            b.putInt(ii);
+            b.putInt(partitions[ii].length);
+            for (long[] row : partitions[ii]) {
+                b.putInt(12);
+                b.putLong(row[0]);
+                b.putInt((int) row[1]);
+            }
+            b.flip();
+            target.write(Callables.returning(chunk), 0).get();
+        }
+        target.close();
+    }
+
+    private void writeDigest(String nonce, int hostId, BlockTracking mode, String... chain) throws Exception {
+        JSONStringer stringer = new JSONStringer();
+        stringer.object();
+        stringer.key("txnId").value(1);
+        stringer.key(IncrementalSnapshotChain.JSON_INCREMENTAL).object();
+        stringer.key(IncrementalSnapshotChain.JSON_MODE).value(mode.name());
+        stringer.key(IncrementalSnapshotChain.JSON_REQUESTED).value(BlockTracking.DELTA.name());
+        stringer.key(IncrementalSnapshotChain.JSON_CHAIN).array();
+        for (String link : chain) {
+            stringer.object();
+            stringer.key(SnapshotUtil.JSON_PATH).value(m_dir.getPath());
+            stringer.key(SnapshotUtil.JSON_NONCE).value(link);
+            stringer.endObject();
+        }
+        stringer.endArray();
+        stringer.endObject();
+        stringer.endObject();
+
+        byte[] bytes = stringer.toString().getBytes("UTF-8");
+        PureJavaCrc32 crc = new PureJavaCrc32();
+        crc.update(bytes);
+        ByteBuffer b = ByteBuffer.allocate(bytes.length + 4);
+        b.putInt((int) crc.getValue());
+        b.put(bytes);
+        FileOutputStream fos =
+                new FileOutputStream(new File(m_dir, SnapshotUtil.constructDigestFilenameForNonce(nonce, hostId)));
+        try {
+            fos.write(b.array());
+        } finally {
+            fos.close();
+        }
+    }
+
+    /**
+     * @return the rows of a table file as "partition:block:value", sorted
+     */
+    private List<String> readTable(String nonce, int hostId) throws Exception {
+        List<String> rows = new ArrayList<String>();
+        TableSaveFile saveFile = new TableSaveFile(new FileInputStream(tableFile(nonce, hostId)), 1, null);
+        try {
+            while (saveFile.hasMoreChunks()) {
+                TableSaveFile.Container c = (TableSaveFile.Container) saveFile.getNextChunk();
+                if (c == null) {
+                    break;
+                }
+                try {
+                    VoltTable table = PrivateVoltTableFactory.createVoltTableFromBuffer(c.b(), true);
+                    while (table.advanceRow()) {
+                        rows.add(c.partitionId + ":" + table.getLong(0) + ":" + table.getLong(1));
+                    }
+                } finally {
+                    c.discard();
+                }
+            }
+        } finally {
+            saveFile.close();
+        }
+        Collections.sort(rows);
+        return rows;
+    }
+
+    /**
+     * A full snapshot and two deltas of host 0. Block 0 of partition 0 is carried by both
+     * deltas, block 1 is rewritten by the first one and block 2 by the second one.
+     */
+    private void writeChain() throws Exception {
+        writeTable("n0", 0,
+                   new long[][] {{0, 1}, {0, 2}, {1, 3}, {2, 4}},
+                   new long[][] {{0, 100}});
+        writeDigest("n0", 0, BlockTracking.FULL);
+        writeTable("n1", 0,
+                   new long[][] {{-1, 0}, {-3, 0}, {1, 30}, {1, 31}},
+                   new long[][] {{-1, 0}});
+        writeDigest("n1", 0, BlockTracking.DELTA, "n0");
+        writeTable("n2", 0,
+                   new long[][] {{-1, 0}, {-2, 0}, {2, 40}},
+                   new long[][] {{-1, 0}});
+        writeDigest("n2", 0, BlockTracking.DELTA, "n0", "n1");
+    }
+
+    public void testConsolidate() throws Exception {
+        writeChain();
+        assertTrue(SnapshotUtil.consolidateIncrementalSnapshot(m_dir.getPath(), "n2", LOG));
+
+        assertEquals(Arrays.asList("0:0:1", "0:0:2", "0:1:30", "0:1:31", "0:2:40", "1:0:100"),
+                     readTable("n2", 0));
+        // The earlier snapshots of the chain are left alone
+        assertEquals(Arrays.asList("0:-1:0", "0:-3:0", "0:1:30", "0:1:31", "1:-1:0"), readTable("n1", 0));
+        assertFalse(new File(m_dir, tableFile("n2", 0).getName() + ".consolidated").exists());
+
+        JSONObject digest = SnapshotUtil.CRCCheck(
+                new File(m_dir, SnapshotUtil.constructDigestFilenameForNonce("n2", 0)), LOG);
+        assertEquals(BlockTracking.FULL, IncrementalSnapshotChain.getMode(digest, IncrementalSnapshotChain.JSON_MODE));
+        assertTrue(IncrementalSnapshotChain.getChain(digest).isEmpty());
+
+        // Consolidated already
+        assertFalse(SnapshotUtil.consolidateIncrementalSnapshot(m_dir.getPath(), "n2", LOG));
+        assertFalse(SnapshotUtil.consolidateIncrementalSnapshot(m_dir.getPath(), "n0", LOG));
+    }
+
+    public void testMissingBlock() throws Exception {
+        writeChain();
+        // Carries a block no snapshot of the chain has
+        writeTable("n3", 0,
+                   new long[][] {{-1, 0}, {-6, 0}},
+                   new long[][] {{-1, 0}});
+        writeDigest("n3", 0, BlockTracking.DELTA, "n0", "n1");
+        List<String> before = readTable("n3", 0);
+        try {
+            SnapshotUtil.consolidateIncrementalSnapshot(m_dir.getPath(), "n3", LOG);
+            fail();
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("0=[5]"));
+        }
+        assertEquals(before, readTable("n3", 0));
+        assertFalse(new File(m_dir, tableFile("n3", 0).getName() + ".consolidated").exists());
+    }
+
+    public void testMissingSnapshot() throws Exception {
+        writeChain();
+        new File(m_dir, SnapshotUtil.constructDigestFilenameForNonce("n1", 0)).delete();
+        try {
+            SnapshotUtil.consolidateIncrementalSnapshot(m_dir.getPath(), "n2", LOG);
+            fail();
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("n1"));
+        }
+    }
+
+    public void testEachHostUsesItsOwnChain() throws Exception {
+        writeChain();
+        // Host 1 rebased on a snapshot of its own, that host 0 has no files of
+        writeTable("r0", 1,
+                   new long[][] {{0, 5}, {1, 6}},
+                   new long[][] {{0, 500}});
+        writeDigest("r0", 1, BlockTracking.FULL);
+        writeTable("n2", 1,
+                   new long[][] {{-1, 0}, {1, 60}},
+                   new long[][] {{-1, 0}});
+        writeDigest("n2", 1, BlockTracking.DELTA, "r0");
+
+        assertTrue(SnapshotUtil.consolidateIncrementalSnapshot(m_dir.getPath(), "n2", LOG));
+        assertEquals(Arrays.asList("0:0:1", "0:0:2", "0:1:30", "0:1:31", "0:2:40", "1:0:100"),
+                     readTable("n2", 0));
+        assertEquals(Arrays.asList("0:0:5", "0:1:60", "1:0:500"), readTable("n2", 1));
+    }
+}
@@ -0,0 +1,91 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2015 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class TestProcFS {
+
+    @Test
+    public void testParseStat() {
+        // the command name can contain spaces and parentheses
+        String line = "4242 (Volt (x) Net) S 1 4242 4242 0 -1 4194560 1000 0 0 0 " +
+                      "250 75 0 0 20 0 57 0 12345 3221225472 51200 18446744073709551615";
+        ProcFS.Stat stat = ProcFS.parseStat(line);
+        assertNotNull(stat);
+        assertEquals("Volt (x) Net", stat.comm);
+        assertEquals('S', stat.state);
+        assertEquals(2500, stat.userMillis);
+        assertEquals(750, stat.systemMillis);
+        assertEquals(3250, stat.cpuMillis());
+        assertEquals(57, stat.numThreads);
+        assertEquals(3221225472L, stat.vsize);
+        assertEquals(51200L * 4096, stat.rss);
+
+        assertNull(ProcFS.parseStat("4242 (java) S 1 2 3"));
+        assertNull(ProcFS.parseStat("garbage"));
+    }
+
+    @Test
+    public void testParseStatus() {
+        Map<String, Long> status = ProcFS.parseStatus(Arrays.asList(
+                "Name:\tjava",
+                "State:\tS (sleeping)",
+                "VmHWM:\t  204800 kB",
+                "Threads:\t57",
+                "voluntary_ctxt_switches:\t12",
+                "nonvoluntary_ctxt_switches:\t3"));
+        assertEquals(Long.valueOf(204800L * 1024), status.get("VmHWM"));
+        assertEquals(Long.valueOf(57), status.get("Threads"));
+        assertEquals(Long.valueOf(12), status.get("voluntary_ctxt_switches"));
+        assertEquals(Long.valueOf(3), status.get("nonvoluntary_ctxt_switches"));
+        assertNull(status.get("Name"));
+        assertNull(status.get("State"));
+    }
+
+    @Test
+    public void testReadSelf() {
+        if (!ProcFS.isAvailable()) {
+            return;
+        }
+        ProcFS.Stat stat = ProcFS.readProcessStat();
+        assertNotNull(stat);
+        assertTrue(stat.rss > 0);
+        assertTrue(stat.numThreads > 0);
+
+        assertNotNull(ProcFS.readProcessStatus().get("VmRSS"));
+
+        Map<Integer, ProcFS.Stat> threads = ProcFS.readThreadStats();
+        assertNotNull(threads);
+        assertTrue(threads.size() > 0);
+    }
+}